@@ -0,0 +1,87 @@
+/*
+ *
+ *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientechnologies.com
+ *
+ */
+
+package com.orientechnologies.common.concur.lock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sequence lock which allows to read data without writing of shared memory.
+ * <p>
+ * Writer increments the sequence when it starts and when it completes modification of data, so the sequence is odd while data
+ * is modified. Reader takes the stamp by {@link #tryOptimisticRead()}, reads data and checks by {@link #validate(long)} that the
+ * sequence was not changed in the meantime. If validation fails the data read may be inconsistent and has to be discarded.
+ * <p>
+ * Writers are not excluded by this lock, they have to be serialized by other means.
+ * <p>
+ * Validation is a volatile read of the sequence behind a fence which prevents reordering of preceding reads of data with it. Load
+ * fence is not available at Java 6, so volatile write to the field of the current thread is used instead, it orders both
+ * preceding reads and following read of the sequence and does not touch memory shared with other threads.
+ *
+ * @since 13.05.17
+ */
+public final class OSeqLock {
+  private static final ThreadLocal<Fence> FENCES = new ThreadLocal<Fence>() {
+    @Override
+    protected Fence initialValue() {
+      return new Fence();
+    }
+  };
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  public void beginWrite() {
+    sequence.incrementAndGet();
+  }
+
+  public void endWrite() {
+    sequence.incrementAndGet();
+  }
+
+  /**
+   * @return stamp which should be passed to {@link #validate(long)} once data are read or <code>-1</code> if data are modified at
+   * the moment.
+   */
+  public long tryOptimisticRead() {
+    final long stamp = sequence.get();
+    if ((stamp & 1) != 0)
+      return -1;
+
+    return stamp;
+  }
+
+  /**
+   * @return <code>true</code> if data were not modified since the stamp was taken.
+   */
+  public boolean validate(long stamp) {
+    if (stamp < 0)
+      return false;
+
+    FENCES.get().value = stamp;
+    return sequence.get() == stamp;
+  }
+
+  /**
+   * Field which is written only by the thread which owns it.
+   */
+  private static final class Fence {
+    private volatile long value;
+  }
+}
@@ -19,6 +19,7 @@
  */
 package com.orientechnologies.common.directmemory;
 
+import com.orientechnologies.common.concur.lock.ODistributedCounter;
 import com.orientechnologies.common.concur.lock.OInterruptedException;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.exception.OSystemException;
@@ -35,7 +36,11 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.management.ManagementFactory;
 import java.lang.ref.ReferenceQueue;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.lang.ref.WeakReference;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.*;
@@ -54,8 +59,15 @@ import java.util.logging.LogManager;
  * All <code>DirectByteBuffer</code> objects have the same size which is specified in objects constructor as "page size". Despite of
  * the fact that size of page is relatively small memory may be acquired from OS in relatively big chunks. It is done to optimize
  * memory usage inside of database.
+ * <p>
+ * Free buffers are kept in several shards, each thread takes buffers from and returns them to its own shard, so threads do not
+ * contend on the same queue. Buffers are stolen from other shards only if own shard is empty. In addition each thread caches
+ * a small amount of free buffers in thread local "magazine", so most of acquire/release pairs do not touch shared state at all
+ * and buffer is reused by the same thread which touched its memory last.
  *
  * @see OGlobalConfiguration#MEMORY_CHUNK_SIZE
+ * @see OGlobalConfiguration#DIRECT_MEMORY_POOL_SHARDS
+ * @see OGlobalConfiguration#DIRECT_MEMORY_POOL_MAGAZINE_SIZE
  */
 public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownListener, OByteBufferPoolMXBean {
   /**
@@ -63,6 +75,12 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
    */
   public static final String MBEAN_NAME = "com.orientechnologies.common.directmemory:type=OByteBufferPoolMXBean";
 
+  /**
+   * Alignment of addresses of buffers returned by pool. Buffers aligned by size of block of file system may be written to the files
+   * opened in direct I/O mode.
+   */
+  public static final int BUFFER_ALIGNMENT = 4096;
+
   /**
    * Pool returned by this method is used in all components of storage. Memory used by this pool is preallocated by chunks with size
    * not more than {@link OGlobalConfiguration#MEMORY_CHUNK_SIZE} Amount of maximum memory preallocated by this pool equals to sum
@@ -76,7 +94,8 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
     return InstanceHolder.INSTANCE;
   }
 
-  private static final boolean TRACK = OGlobalConfiguration.DIRECT_MEMORY_TRACK_MODE.getValueAsBoolean();
+  private static final Method ALIGNMENT_OFFSET = findAlignmentOffset();
+  private static final Field  BUFFER_ADDRESS   = ALIGNMENT_OFFSET == null ? findBufferAddress() : null;
 
   /**
    * Size of single byte buffer instance in bytes.
@@ -104,9 +123,25 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
   private final long preAllocationLimit;
 
   /**
-   * Pool of pages which are already allocated but not used any more.
+   * Shards of pool of pages which are already allocated but not used any more. Amount of shards is always power of two.
+   */
+  private final Shard[] shards;
+
+  /**
+   * Maximum amount of pages cached by single thread.
+   */
+  private final int magazineSize;
+
+  /**
+   * Thread local caches of free pages. It is replaced on shutdown, so pages which are cleaned will not be returned to the threads.
+   */
+  private volatile ThreadLocal<Magazine> magazines;
+
+  /**
+   * All thread local caches which were created by this pool, used to collect statistics and to return pages of threads which are
+   * terminated back to the pool.
    */
-  private final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<ByteBuffer>();
+  private final Set<Magazine> registeredMagazines = Collections.newSetFromMap(new ConcurrentHashMap<Magazine, Boolean>());
 
   /**
    * Tracks the number of the overflow buffer allocations.
@@ -119,9 +154,17 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
   private final AtomicBoolean mbeanIsRegistered = new AtomicBoolean();
 
   /**
-   * Size of page pool, we use separate counter because {@link ConcurrentLinkedQueue#size()} has linear complexity.
+   * Size of page pool including pages cached by threads, we use separate counter because {@link ConcurrentLinkedQueue#size()} has
+   * linear complexity.
+   */
+  private final ODistributedCounter poolSize = new ODistributedCounter();
+
+  /**
+   * Whether leaks of direct memory buffers should be tracked.
+   *
+   * @see OGlobalConfiguration#DIRECT_MEMORY_TRACK_MODE
    */
-  private final AtomicInteger poolSize = new AtomicInteger();
+  private final boolean track;
 
   /**
    * Amount of native memory in bytes consumed by current byte buffer pool
@@ -146,7 +189,32 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
    * @param preAllocationLimit Limit of memory which will be allocated by big chunks
    */
   public OByteBufferPool(int pageSize, int maxChunkSize, long preAllocationLimit) {
+    this(pageSize, maxChunkSize, preAllocationLimit, OGlobalConfiguration.DIRECT_MEMORY_POOL_SHARDS.getValueAsInteger(),
+        OGlobalConfiguration.DIRECT_MEMORY_POOL_MAGAZINE_SIZE.getValueAsInteger());
+  }
+
+  /**
+   * @param pageSize           Size of single page (<code>DirectByteBuffer</code>) returned by pool.
+   * @param maxChunkSize       Maximum allocation chunk size
+   * @param preAllocationLimit Limit of memory which will be allocated by big chunks
+   * @param shardCount         Amount of shards of pool, rounded up to the power of two. If value is not positive amount of shards
+   *                           equals to amount of available processors.
+   * @param magazineSize       Maximum amount of pages cached by single thread, if zero pages are not cached by threads.
+   */
+  public OByteBufferPool(int pageSize, int maxChunkSize, long preAllocationLimit, int shardCount, int magazineSize) {
     this.pageSize = pageSize;
+    this.track = OGlobalConfiguration.DIRECT_MEMORY_TRACK_MODE.getValueAsBoolean();
+
+    if (shardCount <= 0)
+      shardCount = Runtime.getRuntime().availableProcessors();
+
+    shards = new Shard[closestPowerOfTwo(shardCount)];
+    for (int i = 0; i < shards.length; i++) {
+      shards[i] = new Shard();
+    }
+
+    this.magazineSize = Math.max(magazineSize, 0);
+    this.magazines = newMagazines();
 
     this.preAllocationLimit = (preAllocationLimit / pageSize) * pageSize;
 
@@ -164,7 +232,7 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
       maxPagesPerSingleArea = 1;
     }
 
-    if (TRACK) {
+    if (track) {
       trackedBuffersQueue = new ReferenceQueue<ByteBuffer>();
       trackedReferences = new HashSet<TrackedBufferReference>();
       trackedBuffers = new HashMap<TrackedBufferKey, TrackedBufferReference>();
@@ -184,7 +252,7 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
    * @return Amount of pages which are available in pool. Pages which were allocated and now not used.
    */
   public int getSize() {
-    return pool.size();
+    return (int) poolSize.get();
   }
 
   /**
@@ -227,11 +295,14 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
    */
   public ByteBuffer acquireDirect(boolean clear) {
     // check the pool first.
-    final ByteBuffer buffer = pool.poll();
+    ByteBuffer buffer = poll();
 
-    if (buffer != null) {
-      poolSize.decrementAndGet();
+    // pages cached by other threads are not visible to poll, they are returned to the shards before memory is allocated beyond
+    // preallocation limit
+    if (buffer == null && (maxPagesPerSingleArea <= 1 || nextAllocationPosition.get() >= preAllocationLimit))
+      buffer = pollMagazines();
 
+    if (buffer != null) {
       if (clear) {
         buffer.position(0);
         buffer.put(new byte[pageSize]);
@@ -251,9 +322,9 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
         //if we hit the end of preallocation buffer we allocate by small chunks
         if (currentAllocationPosition >= preAllocationLimit) {
           overflowBufferCount.incrementAndGet();
-          allocatedMemory.getAndAdd(pageSize);
+          allocatedMemory.getAndAdd(pageSize + BUFFER_ALIGNMENT);
 
-          return trackBuffer(ByteBuffer.allocateDirect(pageSize).order(ByteOrder.nativeOrder()));
+          return trackBuffer(allocateAligned(pageSize));
         }
 
       } while (!nextAllocationPosition.compareAndSet(currentAllocationPosition, currentAllocationPosition + 1));
@@ -313,9 +384,9 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
 
     // this should not happen if amount of pages is needed for storage is calculated correctly
     overflowBufferCount.incrementAndGet();
-    allocatedMemory.getAndAdd(pageSize);
+    allocatedMemory.getAndAdd(pageSize + BUFFER_ALIGNMENT);
 
-    return trackBuffer(ByteBuffer.allocateDirect(pageSize).order(ByteOrder.nativeOrder()));
+    return trackBuffer(allocateAligned(pageSize));
   }
 
   /**
@@ -325,23 +396,218 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
    */
   private void allocateBuffer(BufferHolder bfh, int allocationSize) {
     try {
-      bfh.buffer = ByteBuffer.allocateDirect(allocationSize).order(ByteOrder.nativeOrder());
+      bfh.buffer = allocateAligned(allocationSize);
 
-      allocatedMemory.getAndAdd(allocationSize);
+      allocatedMemory.getAndAdd(allocationSize + BUFFER_ALIGNMENT);
     } finally {
       bfh.latch.countDown();
     }
   }
 
+  /**
+   * Allocates direct memory buffer which address is aligned by {@link #BUFFER_ALIGNMENT}. Because page size is multiple of
+   * alignment all pages which are sliced from aligned chunk are aligned too.
+   *
+   * @param size Size of buffer.
+   *
+   * @return Slice of bigger direct memory buffer, which starts from aligned address.
+   */
+  private static ByteBuffer allocateAligned(int size) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(size + BUFFER_ALIGNMENT);
+
+    final int offset = (BUFFER_ALIGNMENT - alignmentOffset(buffer, BUFFER_ALIGNMENT)) & (BUFFER_ALIGNMENT - 1);
+    buffer.position(offset);
+    buffer.limit(offset + size);
+
+    return buffer.slice().order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * @param buffer    Direct memory buffer.
+   * @param alignment Alignment, should be power of two.
+   *
+   * @return Offset of address of the first byte of the buffer from the closest address aligned by passed in value.
+   */
+  public static int alignmentOffset(ByteBuffer buffer, int alignment) {
+    //since Java 9 address of direct buffer is accessible by public API only
+    if (ALIGNMENT_OFFSET != null) {
+      try {
+        return (Integer) ALIGNMENT_OFFSET.invoke(buffer, 0, alignment);
+      } catch (IllegalAccessException e) {
+        throw OException.wrapException(new OSystemException("Can not calculate alignment of direct memory buffer"), e);
+      } catch (InvocationTargetException e) {
+        throw OException.wrapException(new OSystemException("Can not calculate alignment of direct memory buffer"), e);
+      }
+    }
+
+    //before Java 9 address of direct buffer is stored in the field of java.nio.Buffer
+    if (BUFFER_ADDRESS == null)
+      throw new OSystemException("Can not calculate alignment of direct memory buffer, address of buffer is not accessible");
+
+    try {
+      return (int) (BUFFER_ADDRESS.getLong(buffer) & (alignment - 1));
+    } catch (IllegalAccessException e) {
+      throw OException.wrapException(new OSystemException("Can not calculate alignment of direct memory buffer"), e);
+    }
+  }
+
+  private static Field findBufferAddress() {
+    try {
+      final Field field = Buffer.class.getDeclaredField("address");
+      field.setAccessible(true);
+      return field;
+    } catch (NoSuchFieldException e) {
+      return null;
+    } catch (SecurityException e) {
+      return null;
+    }
+  }
+
+  private static Method findAlignmentOffset() {
+    try {
+      return ByteBuffer.class.getMethod("alignmentOffset", int.class, int.class);
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
   /**
    * Put buffer which is not used any more back to the pool.
    *
    * @param buffer Not used instance of buffer.
    */
   public void release(ByteBuffer buffer) {
-    pool.offer(untrackBuffer(buffer));
+    untrackBuffer(buffer);
+    poolSize.increment();
+
+    if (magazineSize == 0) {
+      shards[homeShardIndex()].offer(buffer);
+      return;
+    }
+
+    magazines.get().offer(buffer);
+  }
+
+  /**
+   * Takes free page from the cache of current thread, from its own shard, or steals it from other shards. Magazine of the thread is
+   * refilled by half of its capacity at once, so next acquires are served without access to the shared state.
+   *
+   * @return Free page or <code>null</code> if pool is empty.
+   */
+  private ByteBuffer poll() {
+    if (magazineSize == 0) {
+      final ByteBuffer buffer = pollShards(homeShardIndex(), 1, null);
+      if (buffer != null)
+        poolSize.decrement();
+
+      return buffer;
+    }
+
+    final Magazine magazine = magazines.get();
+    ByteBuffer buffer = magazine.pop();
+
+    if (buffer == null)
+      buffer = pollShards(magazine.shardIndex, Math.max(magazineSize >>> 1, 1), magazine);
+
+    if (buffer != null)
+      poolSize.decrement();
+
+    return buffer;
+  }
+
+  /**
+   * Takes pages from the given shard first, and if it is empty from the rest of shards.
+   *
+   * @param shardIndex Index of the shard of current thread.
+   * @param count      Amount of pages to take.
+   * @param magazine   Cache of current thread which accepts all taken pages except of the first one, may be <code>null</code> if
+   *                   only single page is requested.
+   *
+   * @return First taken page or <code>null</code> if all shards are empty.
+   */
+  private ByteBuffer pollShards(int shardIndex, int count, Magazine magazine) {
+    for (int i = 0; i < shards.length; i++) {
+      final Shard shard = shards[(shardIndex + i) & (shards.length - 1)];
+
+      final ByteBuffer buffer = shard.poll();
+      if (buffer == null)
+        continue;
+
+      int taken = 1;
+      if (magazine != null) {
+        while (taken < count) {
+          final ByteBuffer next = shard.poll();
+          if (next == null)
+            break;
+
+          magazine.push(next);
+          taken++;
+        }
+      }
+
+      if (i == 0)
+        shard.hits.addAndGet(taken);
+      else
+        shard.steals.addAndGet(taken);
+
+      return buffer;
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns pages cached by all threads to their shards and takes one of them.
+   *
+   * @return Free page or <code>null</code> if pool is empty.
+   */
+  private ByteBuffer pollMagazines() {
+    if (magazineSize == 0)
+      return null;
+
+    for (Magazine magazine : registeredMagazines) {
+      if (magazine.size > 0)
+        magazine.drain();
+    }
+
+    final ByteBuffer buffer = pollShards(homeShardIndex(), 1, null);
+    if (buffer != null)
+      poolSize.decrement();
+
+    return buffer;
+  }
+
+  private int homeShardIndex() {
+    return (int) Thread.currentThread().getId() & (shards.length - 1);
+  }
+
+  private ThreadLocal<Magazine> newMagazines() {
+    return new ThreadLocal<Magazine>() {
+      @Override
+      protected Magazine initialValue() {
+        returnMagazinesOfTerminatedThreads();
 
-    poolSize.incrementAndGet();
+        final int shardIndex = homeShardIndex();
+        final Magazine magazine = new Magazine(Thread.currentThread(), shards[shardIndex], shardIndex, magazineSize);
+        registeredMagazines.add(magazine);
+
+        return magazine;
+      }
+    };
+  }
+
+  /**
+   * Returns pages cached by the threads which are terminated back to the shards. It is done when new thread starts to use the pool,
+   * because threads are usually replaced by new ones in thread pools.
+   */
+  private void returnMagazinesOfTerminatedThreads() {
+    for (Magazine magazine : registeredMagazines) {
+      final Thread owner = magazine.owner.get();
+
+      // several new threads may find the same magazine, only the one which removes it returns its pages
+      if ((owner == null || !owner.isAlive()) && registeredMagazines.remove(magazine))
+        magazine.drain();
+    }
   }
 
   @Override
@@ -391,7 +657,57 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
 
   @Override
   public int getPoolSize() {
-    return poolSize.get();
+    return getSize();
+  }
+
+  @Override
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  @Override
+  public int getMagazineSize() {
+    return magazineSize;
+  }
+
+  @Override
+  public int getBuffersInMagazines() {
+    int buffers = 0;
+    for (Magazine magazine : registeredMagazines) {
+      buffers += magazine.size;
+    }
+
+    return buffers;
+  }
+
+  @Override
+  public int[] getShardBuffersInThePool() {
+    final int[] buffers = new int[shards.length];
+    for (int i = 0; i < shards.length; i++) {
+      buffers[i] = shards[i].size.get();
+    }
+
+    return buffers;
+  }
+
+  @Override
+  public long[] getShardHitCounts() {
+    final long[] hits = new long[shards.length];
+    for (int i = 0; i < shards.length; i++) {
+      hits[i] = shards[i].hits.get();
+    }
+
+    return hits;
+  }
+
+  @Override
+  public long[] getShardStealCounts() {
+    final long[] steals = new long[shards.length];
+    for (int i = 0; i < shards.length; i++) {
+      steals[i] = shards[i].steals.get();
+    }
+
+    return steals;
   }
 
   /**
@@ -453,7 +769,7 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
    * erroneous state is detected, verification will fail with {@link AssertionError} exception.
    */
   public void verifyState() {
-    if (TRACK) {
+    if (track) {
       synchronized (this) {
         final boolean logsInAssertions = logInAssertion();
         final StringBuilder builder = logsInAssertions ? new StringBuilder() : null;
@@ -481,7 +797,7 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
    */
   @SuppressWarnings("ThrowableResultOfMethodCallIgnored")
   public void logTrackedBufferInfo(String prefix, ByteBuffer buffer) {
-    if (TRACK) {
+    if (track) {
       synchronized (this) {
         final TrackedBufferKey trackedBufferKey = new TrackedBufferKey(buffer);
         final TrackedBufferReference reference = trackedBuffers.get(trackedBufferKey);
@@ -509,10 +825,21 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
 
   @Override
   public void onShutdown() {
+    // threads should not reuse pages which are cleaned
+    magazines = newMagazines();
+
     final Set<ByteBuffer> cleaned = Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
     try {
-      for (ByteBuffer byteBuffer : pool)
-        clean(byteBuffer, cleaned);
+      for (Shard shard : shards) {
+        for (ByteBuffer byteBuffer : shard.buffers)
+          clean(byteBuffer, cleaned);
+      }
+
+      for (Magazine magazine : registeredMagazines) {
+        for (ByteBuffer byteBuffer : magazine.buffers)
+          if (byteBuffer != null)
+            clean(byteBuffer, cleaned);
+      }
     } catch (Throwable t) {
       return;
     }
@@ -525,12 +852,14 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
     }
 
     nextAllocationPosition.set(0);
-    pool.clear();
+    for (Shard shard : shards)
+      shard.clear();
+    registeredMagazines.clear();
     overflowBufferCount.set(0);
-    poolSize.set(0);
+    poolSize.clear();
     allocatedMemory.set(0);
 
-    if (TRACK) {
+    if (track) {
       for (TrackedBufferReference reference : trackedReferences)
         reference.clear();
       trackedReferences.clear();
@@ -548,11 +877,23 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
     if (directByteBufferWithCleaner != null && !cleaned.contains(directByteBufferWithCleaner)) {
       cleaned.add(directByteBufferWithCleaner);
       ((DirectBuffer) directByteBufferWithCleaner).cleaner().clean();
-      if (TRACK)
+      if (track)
         OLogManager.instance().info(this, "DIRECT-TRACK: cleaned " + directByteBufferWithCleaner);
     }
   }
 
+  /**
+   * Frees memory of direct buffer or unmaps memory mapped buffer without waiting for garbage collector. Buffer and all its
+   * slices should not be accessed after call of this method.
+   *
+   * @param buffer Buffer to clean, buffers which are not direct are ignored.
+   */
+  public static void cleanBuffer(ByteBuffer buffer) {
+    final ByteBuffer directByteBufferWithCleaner = findDirectByteBufferWithCleaner(buffer, 16);
+    if (directByteBufferWithCleaner != null)
+      ((DirectBuffer) directByteBufferWithCleaner).cleaner().clean();
+  }
+
   private static ByteBuffer findDirectByteBufferWithCleaner(ByteBuffer buffer, int depthLimit) {
     if (depthLimit == 0)
       return null;
@@ -577,8 +918,120 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
     private final CountDownLatch latch = new CountDownLatch(1);
   }
 
+  /**
+   * Part of pool of free pages.
+   */
+  private static final class Shard {
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+
+    /**
+     * Size of shard, we use separate counter because {@link ConcurrentLinkedQueue#size()} has linear complexity.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Amount of pages taken from the shard by threads which use this shard as own one.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Amount of pages taken from the shard by threads which use other shards as own ones.
+     */
+    private final AtomicLong steals = new AtomicLong();
+
+    private ByteBuffer poll() {
+      final ByteBuffer buffer = buffers.poll();
+      if (buffer != null)
+        size.decrementAndGet();
+
+      return buffer;
+    }
+
+    private void offer(ByteBuffer buffer) {
+      buffers.offer(buffer);
+      size.incrementAndGet();
+    }
+
+    private void clear() {
+      buffers.clear();
+      size.set(0);
+      hits.set(0);
+      steals.set(0);
+    }
+  }
+
+  /**
+   * Cache of free pages of single thread. It is changed by owner thread, and drained by other threads once owner is terminated or
+   * pool runs out of preallocated memory. Lock of magazine is almost always taken by its owner, so it is not contended.
+   */
+  private static final class Magazine {
+    private final WeakReference<Thread> owner;
+    private final Shard                 shard;
+    private final int                   shardIndex;
+    private final ByteBuffer[]          buffers;
+
+    /**
+     * Amount of cached pages, volatile only to be read by statistics.
+     */
+    private volatile int size;
+
+    private Magazine(Thread owner, Shard shard, int shardIndex, int capacity) {
+      this.owner = new WeakReference<Thread>(owner);
+      this.shard = shard;
+      this.shardIndex = shardIndex;
+      this.buffers = new ByteBuffer[capacity];
+    }
+
+    private synchronized void push(ByteBuffer buffer) {
+      buffers[size] = buffer;
+      size++;
+    }
+
+    private synchronized ByteBuffer pop() {
+      if (size == 0)
+        return null;
+
+      size--;
+      final ByteBuffer buffer = buffers[size];
+      buffers[size] = null;
+
+      return buffer;
+    }
+
+    /**
+     * Caches released page. If magazine is full older half of cached pages is returned to the shard, so magazine is able to absorb
+     * both following releases and acquires.
+     */
+    private synchronized void offer(ByteBuffer buffer) {
+      if (size == buffers.length) {
+        final int spill = Math.max(buffers.length >>> 1, 1);
+        for (int i = 0; i < spill; i++) {
+          shard.offer(buffers[i]);
+        }
+
+        System.arraycopy(buffers, spill, buffers, 0, size - spill);
+        Arrays.fill(buffers, size - spill, size, null);
+        size -= spill;
+      }
+
+      buffers[size] = buffer;
+      size++;
+    }
+
+    /**
+     * Returns all cached pages to the shard of the magazine.
+     */
+    private synchronized void drain() {
+      while (size > 0) {
+        size--;
+        shard.offer(buffers[size]);
+        buffers[size] = null;
+      }
+    }
+  }
+
   private ByteBuffer trackBuffer(ByteBuffer buffer) {
-    if (TRACK) {
+    if (track) {
       synchronized (this) {
         final boolean logInAssertion = logInAssertion();
         final StringBuilder logBuilder = logInAssertion ? new StringBuilder() : null;
@@ -599,7 +1052,7 @@ public class OByteBufferPool implements OOrientStartupListener, OOrientShutdownL
 
   @SuppressWarnings({ "ThrowableResultOfMethodCallIgnored" })
   private ByteBuffer untrackBuffer(ByteBuffer buffer) {
-    if (TRACK) {
+    if (track) {
       synchronized (this) {
         final boolean logInAssertion = logInAssertion();
         final StringBuilder logBuilder = logInAssertion ? new StringBuilder() : null;
@@ -79,4 +79,36 @@ public interface OByteBufferPoolMXBean {
    */
   int getPoolSize();
 
+  /**
+   * @return the number of the shards of the pool of the associated {@link OByteBufferPool}.
+   */
+  int getShardCount();
+
+  /**
+   * @return the maximum number of the free buffers cached by a single thread in the associated {@link OByteBufferPool}.
+   */
+  int getMagazineSize();
+
+  /**
+   * @return the number of the free buffers currently cached by threads in the associated {@link OByteBufferPool}.
+   */
+  int getBuffersInMagazines();
+
+  /**
+   * @return the number of the free buffers currently in each shard of the pool of the associated {@link OByteBufferPool}.
+   */
+  int[] getShardBuffersInThePool();
+
+  /**
+   * @return the number of the buffers taken from each shard of the associated {@link OByteBufferPool} by the threads which use
+   * this shard as their own one.
+   */
+  long[] getShardHitCounts();
+
+  /**
+   * @return the number of the buffers stolen from each shard of the associated {@link OByteBufferPool} by the threads which use
+   * other shards as their own ones.
+   */
+  long[] getShardStealCounts();
+
 }
@@ -22,6 +22,7 @@ package com.orientechnologies.orient.core.compression;
 
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.compression.impl.ODictionaryCompression;
 import com.orientechnologies.orient.core.compression.impl.OGZIPCompression;
 import com.orientechnologies.orient.core.compression.impl.OHighZIPCompression;
 import com.orientechnologies.orient.core.compression.impl.OLowZIPCompression;
@@ -54,6 +55,7 @@ public class OCompressionFactory {
     register(new OGZIPCompression());
     register(new OSnappyCompression());
     register(new ONothingCompression());
+    register(ODictionaryCompression.class);
   }
 
   public OCompression getCompression(final String name, final String iOptions) {
@@ -126,6 +128,14 @@ public class OCompressionFactory {
     }
   }
 
+  /**
+   * @return <code>true</code> if the same instance of compression with passed in name is shared on all the storages, so data
+   * compressed by it can be uncompressed by instance returned by {@link #getCompression(String, String)} at any time.
+   */
+  public boolean isStateless(final String name) {
+    return name == null || compressions.containsKey(name);
+  }
+
   public Set<String> getCompressions() {
     return compressions.keySet();
   }
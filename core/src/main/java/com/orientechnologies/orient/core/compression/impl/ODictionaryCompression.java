@@ -0,0 +1,295 @@
+/*
+ *
+ *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientechnologies.com
+ *
+ */
+
+package com.orientechnologies.orient.core.compression.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression with a preset dictionary. Small records, like documents of the same class, share field names and recurring
+ * values but are too short to compress well on their own. Priming the compressor with a dictionary built from sample records lets
+ * each record reference the content it has in common with the others.
+ * <p>
+ * The implementation is stateful, each cluster keeps its own instance and sets the dictionary it has trained, see {@link
+ * #train(List, int)}. Every compressed record starts with a byte telling whether it was compressed with the dictionary, so
+ * records written before the dictionary was set stay readable. The dictionary of a cluster must never change once records were
+ * compressed with it, zlib verifies the checksum of the dictionary on uncompression.
+ *
+ * @since 19.05.17
+ */
+public class ODictionaryCompression extends OAbstractCompression {
+  public static final String NAME = "dictionary";
+
+  /**
+   * Deflate window size, content of the dictionary beyond it can not be referenced.
+   */
+  public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+  private static final byte NO_DICTIONARY   = 0;
+  private static final byte WITH_DICTIONARY = 1;
+
+  /**
+   * Size of the sequences counted during training, they are packed into a single <code>long</code>.
+   */
+  private static final int SEQUENCE_SIZE = 8;
+
+  private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+    @Override
+    protected Deflater initialValue() {
+      return new Deflater();
+    }
+  };
+
+  private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+    @Override
+    protected Inflater initialValue() {
+      return new Inflater();
+    }
+  };
+
+  private volatile byte[] dictionary;
+
+  public byte[] getDictionary() {
+    return dictionary;
+  }
+
+  public void setDictionary(final byte[] dictionary) {
+    if (dictionary != null && dictionary.length > MAX_DICTIONARY_SIZE)
+      throw new IllegalArgumentException(
+          "Dictionary size " + dictionary.length + " exceeds maximum allowed size " + MAX_DICTIONARY_SIZE);
+
+    this.dictionary = dictionary;
+  }
+
+  @Override
+  public byte[] compress(final byte[] content, final int offset, final int length) {
+    final byte[] dictionary = this.dictionary;
+
+    final Deflater deflater = DEFLATER.get();
+    deflater.reset();
+    try {
+      if (dictionary != null)
+        deflater.setDictionary(dictionary);
+
+      deflater.setInput(content, offset, length);
+      deflater.finish();
+
+      byte[] result = new byte[length + (length >> 4) + 64];
+      result[0] = dictionary != null ? WITH_DICTIONARY : NO_DICTIONARY;
+
+      int size = 1;
+      while (!deflater.finished()) {
+        if (size == result.length)
+          result = Arrays.copyOf(result, result.length << 1);
+
+        size += deflater.deflate(result, size, result.length - size);
+      }
+
+      return Arrays.copyOf(result, size);
+    } finally {
+      deflater.reset();
+    }
+  }
+
+  @Override
+  public byte[] uncompress(final byte[] content, final int offset, final int length) {
+    final Inflater inflater = INFLATER.get();
+    inflater.reset();
+    try {
+      inflater.setInput(content, offset + 1, length - 1);
+
+      byte[] result = new byte[Math.max(64, length << 2)];
+      int size = 0;
+      while (!inflater.finished()) {
+        if (size == result.length)
+          result = Arrays.copyOf(result, result.length << 1);
+
+        final int read = inflater.inflate(result, size, result.length - size);
+        size += read;
+
+        if (read == 0 && !inflater.finished()) {
+          if (inflater.needsDictionary()) {
+            final byte[] dictionary = this.dictionary;
+            if (content[offset] != WITH_DICTIONARY || dictionary == null)
+              throw new IllegalStateException("Dictionary which is needed to uncompress data is absent");
+
+            inflater.setDictionary(dictionary);
+          } else if (inflater.needsInput())
+            throw new IllegalStateException("Compressed data are truncated");
+        }
+      }
+
+      return Arrays.copyOf(result, size);
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Exception during data uncompression", e);
+    } finally {
+      inflater.reset();
+    }
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  /**
+   * Builds a dictionary from sample records. Byte sequences found in several samples are joined into segments, segments are
+   * ranked by how often their content occurs and the best ones are concatenated until the dictionary is full. The most valuable
+   * segments are placed at the end of the dictionary, where deflate references them with the shortest distances.
+   *
+   * @param samples the sample records
+   * @param maxSize maximum size of the dictionary
+   *
+   * @return the dictionary or <code>null</code> if samples have no content in common
+   */
+  public static byte[] train(final List<byte[]> samples, final int maxSize) {
+    final Map<Long, Integer> occurrences = new HashMap<Long, Integer>();
+    final Set<Long> sampleSequences = new HashSet<Long>();
+
+    for (byte[] sample : samples) {
+      sampleSequences.clear();
+
+      for (int i = 0; i + SEQUENCE_SIZE <= sample.length; i++) {
+        final Long sequence = sequence(sample, i);
+        if (sampleSequences.add(sequence)) {
+          final Integer count = occurrences.get(sequence);
+          occurrences.put(sequence, count == null ? 1 : count + 1);
+        }
+      }
+    }
+
+    // content shared only by a handful of samples is not worth the space in the dictionary
+    final int minOccurrences = Math.max(2, samples.size() / 20);
+
+    final Map<ByteBuffer, Long> segments = new HashMap<ByteBuffer, Long>();
+    for (byte[] sample : samples) {
+      int start = -1;
+      int end = -1;
+      long score = 0;
+
+      for (int i = 0; i + SEQUENCE_SIZE <= sample.length; i++) {
+        final int count = occurrences.get(sequence(sample, i));
+        if (count < minOccurrences)
+          continue;
+
+        if (i > end) {
+          addSegment(segments, sample, start, end, score);
+          start = i;
+          score = 0;
+        }
+
+        end = i + SEQUENCE_SIZE;
+        score += count;
+      }
+
+      addSegment(segments, sample, start, end, score);
+    }
+
+    final List<Map.Entry<ByteBuffer, Long>> ranked = new ArrayList<Map.Entry<ByteBuffer, Long>>(segments.entrySet());
+    Collections.sort(ranked, new Comparator<Map.Entry<ByteBuffer, Long>>() {
+      @Override
+      public int compare(Map.Entry<ByteBuffer, Long> first, Map.Entry<ByteBuffer, Long> second) {
+        return second.getValue().compareTo(first.getValue());
+      }
+    });
+
+    final List<byte[]> selected = new ArrayList<byte[]>();
+    final Set<Long> covered = new HashSet<Long>();
+    final int limit = Math.min(maxSize, MAX_DICTIONARY_SIZE);
+    int size = 0;
+
+    for (Map.Entry<ByteBuffer, Long> entry : ranked) {
+      final byte[] segment = entry.getKey().array();
+
+      // segments of different samples overlap, only the parts of a segment which are not in the dictionary yet are taken
+      int start = -1;
+      int end = -1;
+      for (int i = 0; i + SEQUENCE_SIZE <= segment.length && size < limit; i++) {
+        final Long sequence = sequence(segment, i);
+        if (occurrences.get(sequence) < minOccurrences || covered.contains(sequence))
+          continue;
+
+        if (i > end) {
+          size += addPiece(selected, segment, start, end, limit - size);
+          start = i;
+        }
+
+        end = i + SEQUENCE_SIZE;
+      }
+
+      size += addPiece(selected, segment, start, end, limit - size);
+
+      for (int i = 0; i + SEQUENCE_SIZE <= segment.length; i++)
+        covered.add(sequence(segment, i));
+    }
+
+    if (size == 0)
+      return null;
+
+    final byte[] dictionary = new byte[size];
+    int position = 0;
+    for (int i = selected.size() - 1; i >= 0; i--) {
+      final byte[] segment = selected.get(i);
+      System.arraycopy(segment, 0, dictionary, position, segment.length);
+      position += segment.length;
+    }
+
+    return dictionary;
+  }
+
+  private static int addPiece(final List<byte[]> selected, final byte[] segment, final int start, final int end,
+      final int space) {
+    if (start < 0 || end - start > space)
+      return 0;
+
+    selected.add(Arrays.copyOfRange(segment, start, end));
+    return end - start;
+  }
+
+  private static void addSegment(final Map<ByteBuffer, Long> segments, final byte[] sample, final int start, final int end,
+      final long score) {
+    if (start < 0)
+      return;
+
+    final ByteBuffer segment = ByteBuffer.wrap(Arrays.copyOfRange(sample, start, end));
+    final Long total = segments.get(segment);
+    segments.put(segment, total == null ? score : total + score);
+  }
+
+  private static long sequence(final byte[] content, final int offset) {
+    long sequence = 0;
+    for (int i = 0; i < SEQUENCE_SIZE; i++)
+      sequence = (sequence << 8) | (content[offset + i] & 0xFF);
+
+    return sequence;
+  }
+}
@@ -84,6 +84,15 @@ public enum OGlobalConfiguration {
       "Some architectures do not allow unaligned memory access or may suffer from speed degradation. For such platforms, this flag should be set to true",
       Boolean.class, true),
 
+  DIRECT_MEMORY_POOL_SHARDS("memory.directMemory.poolShards",
+      "Number of shards of the pool of direct memory buffers. Threads return buffers to and take them from their own shard first, "
+          + "so they do not contend for the same queue. 0 means that number of shards equals to the number of available processors",
+      Integer.class, 0),
+
+  DIRECT_MEMORY_POOL_MAGAZINE_SIZE("memory.directMemory.poolMagazineSize",
+      "Maximum number of free direct memory buffers cached by each thread before they are returned to the shared pool. "
+          + "0 disables the thread local cache of buffers", Integer.class, 16),
+
   JVM_GC_DELAY_FOR_OPTIMIZE("jvm.gc.delayForOptimize",
       "Minimal amount of time (in seconds), since the last System.gc(), when called after tree optimization", Long.class, 600),
 
@@ -117,6 +126,25 @@ public enum OGlobalConfiguration {
         }
       }),
 
+  DISK_CACHE_READ_CACHE_TYPE("storage.diskCache.readCacheType", "Type of read cache which is used by plocal storages. "
+      + "Possible values: '2q' (default) - 2Q cache, 'tinylfu' - cache which page table is split on segments per CPU core and "
+      + "which uses frequency based admission policy, so hot pages are not evicted by big scans", String.class, "2q",
+      false),
+
+  DISK_CACHE_READ_AHEAD_ENABLED("storage.diskCache.readAhead",
+      "Detect sequential reads of cluster pages and leaf pages of indexes and load next pages in background, "
+          + "so scans do not wait for synchronous reads of every page", Boolean.class, false, false),
+
+  DISK_CACHE_READ_AHEAD_MIN_PAGES("storage.diskCache.readAheadMinPages",
+      "Amount of pages which are loaded ahead once sequential read is detected. This amount is doubled "
+          + "while read stays sequential till it reaches 'storage.diskCache.readAheadMaxPages'", Integer.class, 8, false),
+
+  DISK_CACHE_READ_AHEAD_MAX_PAGES("storage.diskCache.readAheadMaxPages",
+      "Maximum amount of pages which are loaded ahead by single background read", Integer.class, 128, false),
+
+  DISK_CACHE_READ_AHEAD_THREADS("storage.diskCache.readAheadThreads",
+      "Amount of background threads per storage which load pages ahead of sequential reads", Integer.class, 2, false),
+
   DISK_WRITE_CACHE_PART("storage.diskCache.writeCachePart", "Percentage of disk cache, which is used as write cache", Integer.class,
       15),
 
@@ -134,6 +162,11 @@ public enum OGlobalConfiguration {
   DISK_WRITE_CACHE_FLUSH_LOCK_TIMEOUT("storage.diskCache.writeCacheFlushLockTimeout",
       "Maximum amount of time the write cache will wait before a page flushes (in ms, -1 to disable)", Integer.class, -1),
 
+  DISK_WRITE_CACHE_FLUSH_READ_LATENCY_LIMIT("storage.diskCache.writeCacheFlushReadLatencyLimit",
+      "Average latency of reads of pages from disk (in microseconds), above which background flush of write cache pauses "
+          + "between writes to give priority to foreground reads. Flush is not paused if write cache is close to overflow "
+          + "(0 to disable)", Integer.class, 20000),
+
   @Deprecated DISC_CACHE_FREE_SPACE_CHECK_INTERVAL("storage.diskCache.diskFreeSpaceCheckInterval",
       "The interval (in seconds), after which the storage periodically "
           + "checks whether the amount of free disk space is enough to work in write mode", Integer.class, 5),
@@ -165,8 +198,16 @@ public enum OGlobalConfiguration {
       "Indicates a force sync should be performed for each update on the storage configuration", Boolean.class, true),
 
   STORAGE_COMPRESSION_METHOD("storage.compressionMethod", "Record compression method used in storage"
-      + " Possible values : gzip, nothing, snappy, snappy-native. Default is 'nothing' that means no compression", String.class,
-      "nothing"),
+      + " Possible values : gzip, nothing, snappy, snappy-native, dictionary. Default is 'nothing' that means no compression",
+      String.class, "nothing"),
+
+  STORAGE_COMPRESSION_DICTIONARY_TRAINING_RECORDS("storage.compressionDictionaryTrainingRecords",
+      "Number of records created in a cluster with 'dictionary' compression which are sampled to train its compression dictionary",
+      Integer.class, 200),
+
+  STORAGE_COMPRESSION_DICTIONARY_SIZE("storage.compressionDictionarySize",
+      "Maximum size in bytes of the compression dictionary trained for a cluster with 'dictionary' compression. It can not exceed 32768",
+      Integer.class, 16384),
 
   STORAGE_ENCRYPTION_METHOD("storage.encryptionMethod",
       "Record encryption method used in storage" + " Possible values : 'aes' and 'des'. Default is 'nothing' for no encryption",
@@ -208,12 +249,34 @@ public enum OGlobalConfiguration {
 
   WAL_COMMIT_TIMEOUT("storage.wal.commitTimeout", "Maximum interval between WAL commits (in ms.)", Integer.class, 1000),
 
+  WAL_GROUP_COMMIT("storage.wal.groupCommit",
+      "Makes commit of transaction durable: committing thread waits till its WAL records are flushed to the disk. "
+          + "Records of concurrent commits are flushed together by a single flush, so cost of fsync is shared between them",
+      Boolean.class, false),
+
+  WAL_GROUP_COMMIT_MAX_WINDOW("storage.wal.groupCommitMaxWindow",
+      "Maximum interval (in microseconds) during which group commit waits for other concurrent commits before flush of WAL. "
+          + "Actual interval is adapted to the measured duration of flush and is zero if commits are not concurrent",
+      Integer.class, 2000),
+
+  WAL_COMPRESSION_METHOD("storage.wal.compressionMethod",
+      "Compression method of WAL records, may be set per storage. Possible values : gzip, low-zip, high-zip, snappy, nothing, "
+          + "or name of other registered stateless compression. Default is 'nothing' that means no compression", String.class,
+      "nothing"),
+
+  WAL_COMPRESSION_MIN_SIZE("storage.wal.compressionMinSize",
+      "Minimum size of WAL record (in bytes) which is compressed, smaller records are always stored as is", Integer.class, 512),
+
   WAL_SHUTDOWN_TIMEOUT("storage.wal.shutdownTimeout", "Maximum wait interval between events, when the background flush thread"
       + "receives a shutdown command and when the background flush will be stopped (in ms.)", Integer.class, 10000),
 
   WAL_FUZZY_CHECKPOINT_INTERVAL("storage.wal.fuzzyCheckpointInterval", "Interval between fuzzy checkpoints (in seconds)",
       Integer.class, 300),
 
+  WAL_RESTORE_THREADS("storage.wal.restoreThreads",
+      "Amount of threads which apply changes of pages during restore of data from WAL. Changes are partitioned between threads by page, "
+          + "1 or less means that changes are applied by single thread", Integer.class, 1),
+
   WAL_REPORT_AFTER_OPERATIONS_DURING_RESTORE("storage.wal.reportAfterOperationsDuringRestore",
       "Amount of processed log operations, after which status of data restore procedure will be printed (0 or a negative value, disables the logging)",
       Integer.class, 10000),
@@ -243,6 +306,10 @@ public enum OGlobalConfiguration {
   PAGINATED_STORAGE_LOWEST_FREELIST_BOUNDARY("storage.lowestFreeListBound",
       "The least amount of free space (in kb) in a page, which is tracked in paginated storage", Integer.class, 16),
 
+  STORAGE_APPEND_ONLY_CLUSTER_SEGMENT_PAGES("storage.appendOnlyCluster.segmentPages",
+      "Number of pages in a segment file of an append-only cluster. Old records of such cluster are removed by whole segments",
+      Integer.class, 1024),
+
   STORAGE_LOCK_TIMEOUT("storage.lockTimeout", "Maximum amount of time (in ms) to lock the storage", Integer.class, 0),
 
   STORAGE_RECORD_LOCK_TIMEOUT("storage.record.lockTimeout", "Maximum of time (in ms) to lock a shared record", Integer.class, 2000),
@@ -305,6 +372,11 @@ public enum OGlobalConfiguration {
       + "that were split, but not flushed to the disk, are kept. This buffer is used to minimize random IO overhead", Integer.class,
       1500),
 
+  HASH_TABLE_OPTIMISTIC_READS("hashTable.optimisticReads",
+      "Look up keys of hash index without acquiring of read locks, so lookups are not blocked while hash table splits buckets and "
+          + "grows its directory, reads are repeated under read locks if hash table was changed by concurrent writers",
+      Boolean.class, false),
+
   INDEX_SYNCHRONOUS_AUTO_REBUILD("index.auto.synchronousAutoRebuild",
       "Synchronous execution of auto rebuilding of indexes, in case of a DB crash", Boolean.class, Boolean.TRUE),
 
@@ -336,6 +408,27 @@ public enum OGlobalConfiguration {
 
   INDEX_CURSOR_PREFETCH_SIZE("index.cursor.prefetchSize", "Default prefetch size of index cursor", Integer.class, 500000),
 
+  INDEX_BULK_LOAD("index.bulkLoad",
+      "Indicates whether SBTree based indexes are built bottom-up from sorted keys during creation and rebuild instead of insertion of keys one by one",
+      Boolean.class, true),
+
+  INDEX_BULK_LOAD_SORT_BUFFER_SIZE("index.bulkLoad.sortBufferSize",
+      "Size (in MB) of memory buffer which is used to sort keys during bulk load of index, "
+          + "if keys do not fit into the buffer they are sorted using temporary files", Integer.class, 64),
+
+  INDEX_REBUILD_PARALLELISM("index.rebuild.parallelism",
+      "Amount of threads which scan clusters in parallel during creation and rebuild of SBTree based index if keys are bulk loaded, "
+          + "1 or less means that clusters are scanned by the thread which rebuilds index", Integer.class,
+      Runtime.getRuntime().availableProcessors()),
+
+  INDEX_MULTI_GET_BATCH_SIZE("index.multiGet.batchSize",
+      "Maximum amount of keys which are looked up in index at once when values of several keys are requested, for example by IN operator",
+      Integer.class, 1000),
+
+  INDEX_STATISTICS_HISTOGRAM_SIZE("index.statistics.histogramSize",
+      "Number of buckets of the histogram of values of the first indexed field which is gathered by ANALYZE INDEX command",
+      Integer.class, 100),
+
   // SBTREE
   SBTREE_MAX_DEPTH("sbtree.maxDepth",
       "Maximum depth of sbtree, which will be traversed during key look up until it will be treated as broken (64 by default)",
@@ -348,6 +441,15 @@ public enum OGlobalConfiguration {
       "Maximum size of value which can be put in an SBTree without creation link to a standalone page in bytes (40960 by default)",
       Integer.class, 40960),
 
+  SBTREE_PREFIX_COMPRESSION("sbtree.prefixCompression",
+      "Store keys of new pages of sbtree as suffixes of common prefix of keys of the page, is applied only to indexes with keys of "
+          + "string, numeric, date and link types or composite keys of these types. Pages stored in other format are read as usual",
+      Boolean.class, false),
+
+  SBTREE_OPTIMISTIC_READS("sbtree.optimisticReads",
+      "Look up keys and fetch entries of sbtree cursors without acquiring of read locks, pages are validated after they are read, "
+          + "reads are repeated under read locks if pages were changed by concurrent writers", Boolean.class, false),
+
   SBTREEBONSAI_BUCKET_SIZE("sbtreebonsai.bucketSize",
       "Size of bucket in OSBTreeBonsai (in kB). Contract: bucketSize < storagePageSize, storagePageSize % bucketSize == 0",
       Integer.class, 2),
@@ -388,6 +490,18 @@ public enum OGlobalConfiguration {
 
   FILE_DELETE_RETRY("file.deleteRetry", "Number of retries to delete a locked file", Integer.class, 50),
 
+  FILE_TYPE("file.type", "Type of files which are used by plocal storage to keep data pages. Possible values: 'classic' (default) - "
+      + "pages are read by system calls, 'mmap' - pages are copied from memory mapped regions of files, which avoids system call per "
+      + "page read and suits read mostly databases. Pages are always written by system calls in both modes", String.class, "classic",
+      false),
+
+  FILE_MMAP_REGION_SIZE("file.mmap.regionSize",
+      "Size (in megabytes) of memory mapped region of file if 'file.type' is set to 'mmap'", Integer.class, 64, false),
+
+  FILE_DIRECT_IO("file.directIO", "Write pages flushed from disk cache to 'classic' files in direct I/O mode, bypassing page "
+      + "cache of OS. Direct I/O requires Java 10 or newer and file system which supports it, otherwise buffered I/O is used",
+      Boolean.class, false, false),
+
   // SECURITY
   SECURITY_USER_PASSWORD_SALT_ITERATIONS("security.userPasswordSaltIterations",
       "Number of iterations to generate the salt or user password. Changing this setting does not affect stored passwords",
@@ -585,6 +699,26 @@ public enum OGlobalConfiguration {
   QUERY_LIMIT_THRESHOLD_TIP("query.limitThresholdTip",
       "If the total number of returned records exceeds this value, then a warning is given. (Use 0 to disable)", Long.class, 10000),
 
+  QUERY_COVERING_INDEXES("query.coveringIndexes",
+      "Answer queries which project only fields stored in the keys of the used index directly from the index, without loading of records",
+      Boolean.class, true),
+
+  QUERY_INDEX_SCAN_THRESHOLD("query.indexScanThreshold",
+      "Part of the records of the class above which the class is scanned instead of the index, if index statistics gathered by ANALYZE INDEX command estimate that the index query returns more records",
+      Float.class, 0.3f),
+
+  QUERY_INDEX_INTERSECTION_MAX_RIDS("query.indexIntersection.maxRids",
+      "Maximum amount of RIDs which are fetched from an index to skip loading of records which do not satisfy its condition when another index is used by the query. Use 0 to disable intersection of indexes",
+      Integer.class, 100000),
+
+  QUERY_SCAN_BINARY_FILTER("query.scanBinaryFilter",
+      "Evaluate comparisons of fields with constant values in the WHERE condition against serialized content of the records while clusters are scanned, so records which do not match are neither unmarshalled nor put into the local cache",
+      Boolean.class, true),
+
+  QUERY_LAZY_FIELD_DECODING("query.lazyFieldDecoding",
+      "Decode fields of the documents read by SELECT directly from their serialized content on each access, instead of unmarshalling them into the documents. Reduces allocations of queries which return a lot of documents that are only read",
+      Boolean.class, false),
+
   QUERY_LIVE_SUPPORT("query.live.support", "Enable/Disable the support of live query. (Use false to disable)", Boolean.class, true),
 
   QUERY_TIMEOUT_DEFAULT_STRATEGY("query.timeout.defaultStrategy", "Default timeout strategy for queries (can be RETURN or EXCEPTION)", String.class, "EXCEPTION"),
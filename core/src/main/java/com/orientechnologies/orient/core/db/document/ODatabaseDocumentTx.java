@@ -3166,7 +3166,7 @@ public class ODatabaseDocumentTx extends OListenerManger<ODatabaseListener> impl
     serializer = serializerFactory.getFormat(serializeName);
     if (serializer == null)
       throw new ODatabaseException("RecordSerializer with name '" + serializeName + "' not found ");
-    if (getStorage().getConfiguration().getRecordSerializerVersion() > serializer.getMinSupportedVersion())
+    if (getStorage().getConfiguration().getRecordSerializerVersion() > serializer.getCurrentVersion())
       throw new ODatabaseException("Persistent record serializer version is not support by the current implementation");
 
     componentsFactory = getStorage().getComponentsFactory();
@@ -30,6 +30,8 @@ import com.orientechnologies.orient.core.engine.OEngineAbstract;
 import com.orientechnologies.orient.core.engine.OMemoryAndLocalPaginatedEnginesInitializer;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.cache.OReadCache;
+import com.orientechnologies.orient.core.storage.cache.local.tinylfu.OTinyLFUCache;
 import com.orientechnologies.orient.core.storage.cache.local.twoq.O2QCache;
 import com.orientechnologies.orient.core.storage.fs.OFileClassic;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
@@ -43,7 +45,7 @@ import java.util.Map;
 public class OEngineLocalPaginated extends OEngineAbstract {
   public static final String NAME = "plocal";
 
-  private volatile O2QCache readCache;
+  private volatile OReadCache readCache;
 
   protected final OClosableLinkedContainer<Long, OFileClassic> files = new OClosableLinkedContainer<Long, OFileClassic>(
       OGlobalConfiguration.OPEN_FILES_LIMIT.getValueAsInteger());
@@ -56,8 +58,8 @@ public class OEngineLocalPaginated extends OEngineAbstract {
     OMemoryAndLocalPaginatedEnginesInitializer.INSTANCE.initialize();
     super.startup();
 
-    readCache = new O2QCache(calculateReadCacheMaxMemory(OGlobalConfiguration.DISK_CACHE_SIZE.getValueAsLong() * 1024 * 1024),
-        OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * 1024, true,
+    readCache = createReadCache(calculateReadCacheMaxMemory(OGlobalConfiguration.DISK_CACHE_SIZE.getValueAsLong() * 1024 * 1024),
+        OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * 1024,
         OGlobalConfiguration.DISK_CACHE_PINNED_PAGES.getValueAsInteger());
 
     try {
@@ -68,6 +70,18 @@ public class OEngineLocalPaginated extends OEngineAbstract {
     }
   }
 
+  private OReadCache createReadCache(final long readCacheMaxMemory, final int pageSize, final int percentOfPinnedPages) {
+    final String cacheType = OGlobalConfiguration.DISK_CACHE_READ_CACHE_TYPE.getValueAsString();
+
+    if (OTinyLFUCache.NAME.equalsIgnoreCase(cacheType))
+      return new OTinyLFUCache(readCacheMaxMemory, pageSize, true, percentOfPinnedPages);
+
+    if (!O2QCache.NAME.equalsIgnoreCase(cacheType))
+      OLogManager.instance().warn(this, "Unknown read cache type '%s', '%s' cache will be used", cacheType, O2QCache.NAME);
+
+    return new O2QCache(readCacheMaxMemory, pageSize, true, percentOfPinnedPages);
+  }
+
   private long calculateReadCacheMaxMemory(final long cacheSize) {
     return (long) (cacheSize * ((100 - OGlobalConfiguration.DISK_WRITE_CACHE_PART.getValueAsInteger()) / 100.0));
   }
@@ -75,10 +89,15 @@ public class OEngineLocalPaginated extends OEngineAbstract {
   /**
    * @param cacheSize Cache size in bytes.
    * @see O2QCache#changeMaximumAmountOfMemory(long)
+   * @see OTinyLFUCache#changeMaximumAmountOfMemory(long)
    */
   public void changeCacheSize(final long cacheSize) {
-    if (readCache != null)
-      readCache.changeMaximumAmountOfMemory(calculateReadCacheMaxMemory(cacheSize));
+    final OReadCache cache = readCache;
+
+    if (cache instanceof O2QCache)
+      ((O2QCache) cache).changeMaximumAmountOfMemory(calculateReadCacheMaxMemory(cacheSize));
+    else if (cache instanceof OTinyLFUCache)
+      ((OTinyLFUCache) cache).changeMaximumAmountOfMemory(calculateReadCacheMaxMemory(cacheSize));
 
     //otherwise memory size will be set during cache initialization.
   }
@@ -100,7 +119,7 @@ public class OEngineLocalPaginated extends OEngineAbstract {
     return NAME;
   }
 
-  public O2QCache getReadCache() {
+  public OReadCache getReadCache() {
     return readCache;
   }
 
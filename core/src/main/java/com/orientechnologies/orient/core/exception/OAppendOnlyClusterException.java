@@ -0,0 +1,16 @@
+package com.orientechnologies.orient.core.exception;
+
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OAppendOnlyCluster;
+
+/**
+ * @since 19.05.17
+ */
+public class OAppendOnlyClusterException extends ODurableComponentException {
+  public OAppendOnlyClusterException(OAppendOnlyClusterException exception) {
+    super(exception);
+  }
+
+  public OAppendOnlyClusterException(String message, OAppendOnlyCluster component) {
+    super(message, component);
+  }
+}
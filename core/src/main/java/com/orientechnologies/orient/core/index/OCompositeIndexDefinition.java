@@ -41,6 +41,12 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
   private int               multiValueDefinitionIndex = -1;
   private OCompositeCollate collate                   = new OCompositeCollate(this);
 
+  /**
+   * Amount of the last index definitions which index fields listed in {@link OIndex#INCLUDE} field of index metadata. Values of
+   * those fields are only stored in the key, so document is indexed even if they are null and null values are ignored.
+   */
+  private int includedFieldsCount;
+
   public OCompositeIndexDefinition() {
     indexDefinitions = new ArrayList<OIndexDefinition>(5);
   }
@@ -137,10 +143,10 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
 
     compositeKeys.add(firstKey);
 
-    for (final OIndexDefinition indexDefinition : indexDefinitions) {
-      final Object result = indexDefinition.getDocumentValueToIndex(iDocument);
+    for (int i = 0; i < indexDefinitions.size(); i++) {
+      final Object result = indexDefinitions.get(i).getDocumentValueToIndex(iDocument);
 
-      if (result == null && isNullValuesIgnored())
+      if (result == null && isNullValueIgnored(i))
         return null;
 
       //for empty collections we add null key in index
@@ -156,6 +162,18 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
     return compositeKeys;
   }
 
+  public int getIncludedFieldsCount() {
+    return includedFieldsCount;
+  }
+
+  public void setIncludedFieldsCount(int includedFieldsCount) {
+    this.includedFieldsCount = includedFieldsCount;
+  }
+
+  private boolean isNullValueIgnored(int definitionIndex) {
+    return isNullValuesIgnored() && definitionIndex < indexDefinitions.size() - includedFieldsCount;
+  }
+
   public int getMultiValueDefinitionIndex() {
     return multiValueDefinitionIndex;
   }
@@ -179,7 +197,8 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
 
     boolean containsCollection = false;
 
-    for (final OIndexDefinition indexDefinition : indexDefinitions) {
+    for (int i = 0; i < indexDefinitions.size(); i++) {
+      final OIndexDefinition indexDefinition = indexDefinitions.get(i);
       if (currentParamIndex + 1 > params.size())
         break;
 
@@ -194,7 +213,7 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
 
       final Object keyValue = indexDefinition.createValue(indexParams);
 
-      if (keyValue == null && isNullValuesIgnored())
+      if (keyValue == null && isNullValueIgnored(i))
         return null;
 
       //for empty collections we add null key in index
@@ -221,7 +240,8 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
     final OCompositeKey compositeKey = new OCompositeKey();
     int currentParamIndex = 0;
 
-    for (final OIndexDefinition indexDefinition : indexDefinitions) {
+    for (int i = 0; i < indexDefinitions.size(); i++) {
+      final OIndexDefinition indexDefinition = indexDefinitions.get(i);
       if (currentParamIndex + 1 > params.size())
         break;
 
@@ -241,7 +261,7 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
       else
         keyValue = indexDefinition.createValue(indexParams);
 
-      if (keyValue == null && isNullValuesIgnored())
+      if (keyValue == null && isNullValueIgnored(i))
         return null;
 
       compositeKey.addKey(keyValue);
@@ -406,6 +426,9 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
     document.field("indexDefinitions", inds, OType.EMBEDDEDLIST);
     document.field("indClasses", indClasses, OType.EMBEDDEDLIST);
     document.field("nullValuesIgnored", isNullValuesIgnored());
+
+    if (includedFieldsCount > 0)
+      document.field("includedFieldsCount", includedFieldsCount);
   }
 
   /**
@@ -479,6 +502,9 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
       }
 
       setNullValuesIgnored(!Boolean.FALSE.equals(document.<Boolean>field("nullValuesIgnored")));
+
+      final Integer includedFieldsCount = document.field("includedFieldsCount");
+      this.includedFieldsCount = includedFieldsCount != null ? includedFieldsCount : 0;
     } catch (final ClassNotFoundException e) {
       throw OException.wrapException(new OIndexException("Error during composite index deserialization"), e);
     } catch (final NoSuchMethodException e) {
@@ -36,6 +36,12 @@ import java.util.Set;
 public interface OIndex<T> extends Comparable<OIndex<T>> {
   String MERGE_KEYS = "mergeKeys";
 
+  /**
+   * Name of the field of index metadata which contains list of fields whose values are stored in the index in addition to the
+   * indexed fields, so queries which project only these fields may be answered without loading of records.
+   */
+  String INCLUDE = "include";
+
   /**
    * Creates the index.
    *
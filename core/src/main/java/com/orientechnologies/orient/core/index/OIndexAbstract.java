@@ -28,15 +28,18 @@ import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.orient.core.OOrientShutdownListener;
 import com.orientechnologies.orient.core.OOrientStartupListener;
 import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OIndexRIDContainer;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.exception.OInvalidIndexEngineIdException;
 import com.orientechnologies.orient.core.exception.OTooBigIndexKeyException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecord;
@@ -89,6 +92,7 @@ public abstract class OIndexAbstract<T> implements OIndexInternal<T>, OOrientSta
   private Set<String> clustersToIndex = new HashSet<String>();
   private volatile OIndexDefinition indexDefinition;
   private volatile boolean                      rebuilding       = false;
+  private volatile OIndexStatistics             statistics;
   private volatile ThreadLocal<IndexTxSnapshot> txSnapshot       = new IndexTxSnapshotThreadLocal();
   private          Map<String, String>          engineProperties = new HashMap<String, String>();
 
@@ -276,6 +280,29 @@ public abstract class OIndexAbstract<T> implements OIndexInternal<T>, OOrientSta
     return this;
   }
 
+  /**
+   * Looks up values of several keys at once.
+   *
+   * @param keys collated keys to look up.
+   *
+   * @return map of found keys to their values.
+   *
+   * @see OIndexEngine#getAll(Collection)
+   */
+  protected Map<Object, Object> getIndexValues(final Collection<?> keys) {
+    acquireSharedLock();
+    try {
+      while (true)
+        try {
+          return storage.getIndexValues(indexId, keys);
+        } catch (OInvalidIndexEngineIdException e) {
+          doReloadIndexEngine();
+        }
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
   protected void doReloadIndexEngine() {
     indexId = storage.loadIndexEngine(name);
 
@@ -321,6 +348,9 @@ public abstract class OIndexAbstract<T> implements OIndexInternal<T>, OOrientSta
       algorithm = indexMetadata.getAlgorithm();
       valueContainerAlgorithm = indexMetadata.getValueContainerAlgorithm();
 
+      final ODocument statisticsDocument = config.field(OIndexInternal.STATISTICS);
+      statistics = statisticsDocument != null ? OIndexStatistics.fromStream(statisticsDocument) : null;
+
       try {
         indexId = storage.loadIndexEngine(name);
 
@@ -534,11 +564,32 @@ public abstract class OIndexAbstract<T> implements OIndexInternal<T>, OOrientSta
       if (iProgressListener != null)
         iProgressListener.onBegin(this, documentTotal, true);
 
-      // INDEX ALL CLUSTERS
-      for (final String clusterName : clustersToIndex) {
-        final long[] metrics = indexCluster(clusterName, iProgressListener, documentNum, documentIndexed, documentTotal);
-        documentNum = metrics[0];
-        documentIndexed = metrics[1];
+      final OIndexKeySorter keySorter = createKeySorter();
+      try {
+        final int parallelism = OGlobalConfiguration.INDEX_REBUILD_PARALLELISM.getValueAsInteger();
+        final ODatabaseDocumentInternal database = getDatabase();
+
+        // workers do not see records of current transaction, so they are used only if there is no one
+        if (keySorter != null && parallelism > 1 && database instanceof ODatabaseDocumentTx && !database.getTransaction()
+            .isActive()) {
+          // index lock is held by current thread, so workers may not call methods of index which acquire it
+          documentIndexed = new OIndexClusterScanner(this, name, (ODatabaseDocumentTx) database, keySorter, parallelism,
+              iProgressListener, documentTotal).scan(clustersToIndex);
+        } else {
+          // INDEX ALL CLUSTERS
+          for (final String clusterName : clustersToIndex) {
+            final long[] metrics = indexCluster(clusterName, iProgressListener, documentNum, documentIndexed, documentTotal,
+                keySorter);
+            documentNum = metrics[0];
+            documentIndexed = metrics[1];
+          }
+        }
+
+        if (keySorter != null)
+          bulkLoad(keySorter);
+      } finally {
+        if (keySorter != null)
+          keySorter.close();
       }
 
       if (iProgressListener != null)
@@ -748,9 +799,35 @@ public abstract class OIndexAbstract<T> implements OIndexInternal<T>, OOrientSta
     configuration.updateConfiguration(type, name, version, indexDefinition, clustersToIndex, algorithm, valueContainerAlgorithm);
     if (metadata != null)
       configuration.document.field(OIndexInternal.METADATA, metadata, OType.EMBEDDED);
+
+    final OIndexStatistics statistics = this.statistics;
+    if (statistics != null)
+      configuration.document.field(OIndexInternal.STATISTICS, statistics.toStream(), OType.EMBEDDED);
+
     return configuration.getDocument();
   }
 
+  @Override
+  public OIndexStatistics getStatistics() {
+    return statistics;
+  }
+
+  @Override
+  public OIndexStatistics analyze() {
+    final OIndexStatistics gathered = OIndexStatistics
+        .gather(this, OGlobalConfiguration.INDEX_STATISTICS_HISTOGRAM_SIZE.getValueAsInteger());
+
+    acquireExclusiveLock();
+    try {
+      statistics = gathered;
+      updateConfiguration();
+    } finally {
+      releaseExclusiveLock();
+    }
+
+    return gathered;
+  }
+
   public void addTxOperation(final OTransactionIndexChanges changes) {
     acquireSharedLock();
     try {
@@ -931,6 +1008,24 @@ public abstract class OIndexAbstract<T> implements OIndexInternal<T>, OOrientSta
 
   protected abstract OBinarySerializer determineValueSerializer();
 
+  /**
+   * @return <code>true</code> if index based on SBTree may be filled during creation and rebuild by bulk load of sorted keys. Values
+   * of the same key are merged by {@link #bulkLoadValue(Object, List)} in such case.
+   */
+  protected boolean isBulkLoadSupported() {
+    return false;
+  }
+
+  /**
+   * Merges identities of records which contain the same key into the value which is stored in index during bulk load.
+   *
+   * @param key  Key of index.
+   * @param rids Identities of records in the order in which records were indexed.
+   */
+  protected Object bulkLoadValue(Object key, List<ORID> rids) {
+    throw new UnsupportedOperationException("Bulk load is not supported by index " + name);
+  }
+
   protected void populateIndex(ODocument doc, Object fieldValue) {
     if (fieldValue instanceof Collection) {
       for (final Object fieldValueItem : (Collection<?>) fieldValue) {
@@ -1021,36 +1116,19 @@ public abstract class OIndexAbstract<T> implements OIndexInternal<T>, OOrientSta
 
   protected long[] indexCluster(final String clusterName, final OProgressListener iProgressListener, long documentNum,
       long documentIndexed, long documentTotal) {
+    return indexCluster(clusterName, iProgressListener, documentNum, documentIndexed, documentTotal, null);
+  }
+
+  private long[] indexCluster(final String clusterName, final OProgressListener iProgressListener, long documentNum,
+      long documentIndexed, long documentTotal, final OIndexKeySorter keySorter) {
     try {
       for (final ORecord record : getDatabase().browseCluster(clusterName)) {
         if (Thread.interrupted())
           throw new OCommandExecutionException("The index rebuild has been interrupted");
 
-        if (record instanceof ODocument) {
-          final ODocument doc = (ODocument) record;
-
-          if (indexDefinition == null)
-            throw new OConfigurationException(
-                "Index '" + name + "' cannot be rebuilt because has no a valid definition (" + indexDefinition + ")");
-
-          final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
-
-          if (fieldValue != null || !indexDefinition.isNullValuesIgnored()) {
-            try {
-              populateIndex(doc, fieldValue);
-            } catch (OTooBigIndexKeyException e) {
-              OLogManager.instance().error(this,
-                  "Exception during index rebuild. Exception was caused by following key/ value pair - key %s, value %s."
-                      + " Rebuild will continue from this point", e, fieldValue, doc.getIdentity());
-            } catch (OIndexException e) {
-              OLogManager.instance().error(this,
-                  "Exception during index rebuild. Exception was caused by following key/ value pair - key %s, value %s."
-                      + " Rebuild will continue from this point", e, fieldValue, doc.getIdentity());
-            }
-
-            ++documentIndexed;
-          }
-        }
+        if (record instanceof ODocument && indexDocument((ODocument) record, keySorter))
+          ++documentIndexed;
+
         documentNum++;
 
         if (iProgressListener != null)
@@ -1063,6 +1141,105 @@ public abstract class OIndexAbstract<T> implements OIndexInternal<T>, OOrientSta
     return new long[] { documentNum, documentIndexed };
   }
 
+  /**
+   * Extracts key of index from document and adds it either to the key sorter or, if sorter is absent, to the index.
+   *
+   * @return <code>true</code> if document was indexed.
+   */
+  boolean indexDocument(final ODocument doc, final OIndexKeySorter keySorter) {
+    if (indexDefinition == null)
+      throw new OConfigurationException(
+          "Index '" + name + "' cannot be rebuilt because has no a valid definition (" + indexDefinition + ")");
+
+    final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
+
+    if (fieldValue == null && indexDefinition.isNullValuesIgnored())
+      return false;
+
+    try {
+      if (keySorter != null)
+        populateKeySorter(keySorter, doc, fieldValue);
+      else
+        populateIndex(doc, fieldValue);
+    } catch (OTooBigIndexKeyException e) {
+      OLogManager.instance().error(this,
+          "Exception during index rebuild. Exception was caused by following key/ value pair - key %s, value %s."
+              + " Rebuild will continue from this point", e, fieldValue, doc.getIdentity());
+    } catch (OIndexException e) {
+      OLogManager.instance().error(this,
+          "Exception during index rebuild. Exception was caused by following key/ value pair - key %s, value %s."
+              + " Rebuild will continue from this point", e, fieldValue, doc.getIdentity());
+    }
+
+    return true;
+  }
+
+  private OIndexKeySorter createKeySorter() {
+    if (!OGlobalConfiguration.INDEX_BULK_LOAD.getValueAsBoolean() || !ODefaultIndexFactory.SBTREE_ALGORITHM.equals(algorithm)
+        || indexDefinition == null || !isBulkLoadSupported())
+      return null;
+
+    @SuppressWarnings("unchecked")
+    final OBinarySerializer<Object> keySerializer = (OBinarySerializer<Object>) storage.determineKeySerializer(indexDefinition);
+
+    return new OIndexKeySorter(name, keySerializer, indexDefinition.getTypes(),
+        OGlobalConfiguration.INDEX_BULK_LOAD_SORT_BUFFER_SIZE.getValueAsLong() * 1024 * 1024);
+  }
+
+  private void populateKeySorter(OIndexKeySorter keySorter, ODocument doc, Object fieldValue) {
+    if (fieldValue instanceof Collection) {
+      for (final Object fieldValueItem : (Collection<?>) fieldValue) {
+        addToKeySorter(keySorter, doc, fieldValueItem);
+      }
+    } else
+      addToKeySorter(keySorter, doc, fieldValue);
+  }
+
+  private void addToKeySorter(OIndexKeySorter keySorter, ODocument doc, Object key) {
+    final Object collatedKey = getCollatingValue(key);
+
+    if (collatedKey == null)
+      keySorter.addNull(doc.getIdentity());
+    else
+      keySorter.add(collatedKey, doc.getIdentity());
+  }
+
+  private void bulkLoad(OIndexKeySorter keySorter) {
+    final Iterator<Map.Entry<Object, List<ORID>>> sortedEntries = keySorter.sortedEntries();
+
+    final Iterator<Map.Entry<Object, Object>> entries = new Iterator<Map.Entry<Object, Object>>() {
+      @Override
+      public boolean hasNext() {
+        return sortedEntries.hasNext();
+      }
+
+      @Override
+      public Map.Entry<Object, Object> next() {
+        final Map.Entry<Object, List<ORID>> entry = sortedEntries.next();
+        return new AbstractMap.SimpleImmutableEntry<Object, Object>(entry.getKey(), bulkLoadValue(entry.getKey(), entry.getValue()));
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+
+    while (true) {
+      try {
+        storage.bulkLoadIndex(indexId, entries);
+        break;
+      } catch (OInvalidIndexEngineIdException e) {
+        doReloadIndexEngine();
+      }
+    }
+
+    // null keys are kept apart from the tree, so they are put as usual
+    for (ORID rid : keySorter.nullKeys()) {
+      put(null, rid);
+    }
+  }
+
   protected void releaseExclusiveLock() {
     rwLock.releaseWriteLock();
   }
@@ -0,0 +1,256 @@
+/*
+ *
+ *  *  Copyright 2017 OrientDB LTD (info(at)orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientdb.com
+ *
+ */
+
+package com.orientechnologies.orient.core.index;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.iterator.ORecordIteratorCluster;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scans clusters of index in parallel and collects keys of scanned documents into the key sorter of index.
+ * <p>
+ * Clusters are scanned by fixed thread pool, big clusters are split into ranges of record positions which are scanned
+ * independently. Each worker thread uses own copy of database and collects keys into own partition of the key sorter, partitions
+ * are added to the key sorter once all clusters are scanned.
+ *
+ * @since 15.05.17
+ */
+class OIndexClusterScanner {
+  /**
+   * Minimum amount of record positions in range of cluster which is scanned by single task.
+   */
+  private static final int  MIN_RANGE_SIZE = 16 * 1024;
+  private static final long PROGRESS_STEP  = 1024;
+
+  private final OIndexAbstract<?>   index;
+  private final String              indexName;
+  private final ODatabaseDocumentTx database;
+  private final OIndexKeySorter     keySorter;
+  private final int                 parallelism;
+  private final OProgressListener   progressListener;
+  private final long                documentTotal;
+
+  private final AtomicLong    documentNum     = new AtomicLong();
+  private final AtomicLong    documentIndexed = new AtomicLong();
+  private final AtomicInteger workersCounter  = new AtomicInteger();
+  private final List<Worker>  workers         = Collections.synchronizedList(new ArrayList<Worker>());
+
+  private volatile boolean cancelled;
+
+  OIndexClusterScanner(OIndexAbstract<?> index, String indexName, ODatabaseDocumentTx database, OIndexKeySorter keySorter,
+      int parallelism, OProgressListener progressListener, long documentTotal) {
+    this.index = index;
+    this.indexName = indexName;
+    this.database = database;
+    this.keySorter = keySorter;
+    this.parallelism = parallelism;
+    this.progressListener = progressListener;
+    this.documentTotal = documentTotal;
+  }
+
+  /**
+   * Scans given clusters and adds keys of their documents to the key sorter.
+   *
+   * @return Amount of indexed documents.
+   */
+  long scan(Collection<String> clusterNames) {
+    final List<ScanTask> tasks = new ArrayList<ScanTask>();
+    for (String clusterName : clusterNames) {
+      final int clusterId = database.getClusterIdByName(clusterName);
+
+      if (clusterId >= 0) {
+        final long[] range = database.getStorage().getClusterDataRange(clusterId);
+        splitRange(clusterId, range[0], range[1], tasks);
+      } else
+        tasks.add(new ScanTask(clusterId, ORID.CLUSTER_POS_INVALID, ORID.CLUSTER_POS_INVALID));
+    }
+
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        return new Worker(runnable);
+      }
+    });
+
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks.size());
+      for (ScanTask task : tasks) {
+        futures.add(executor.submit(task));
+      }
+
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      cancelled = true;
+      Thread.currentThread().interrupt();
+      throw new OCommandExecutionException("The index rebuild has been interrupted");
+    } catch (ExecutionException e) {
+      cancelled = true;
+
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+
+      throw OException.wrapException(new OIndexException("Error during scan of clusters of index " + indexName), cause);
+    } finally {
+      shutdown(executor);
+    }
+
+    return documentIndexed.get();
+  }
+
+  /**
+   * Splits range of cluster positions into ranges which contain from {@link #MIN_RANGE_SIZE} to two times more positions.
+   */
+  private void splitRange(int clusterId, long from, long to, List<ScanTask> tasks) {
+    if (from < 0) {
+      tasks.add(new ScanTask(clusterId, from, to));
+      return;
+    }
+
+    while (to - from >= 2 * MIN_RANGE_SIZE) {
+      tasks.add(new ScanTask(clusterId, from, from + MIN_RANGE_SIZE - 1));
+      from += MIN_RANGE_SIZE;
+    }
+
+    tasks.add(new ScanTask(clusterId, from, to));
+  }
+
+  private void shutdown(ThreadPoolExecutor executor) {
+    executor.shutdown();
+
+    // partitions of key sorter can be collected only when all workers are stopped
+    boolean interrupted = false;
+    while (true) {
+      try {
+        if (executor.awaitTermination(1, TimeUnit.MINUTES))
+          break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+
+    if (interrupted)
+      Thread.currentThread().interrupt();
+
+    for (Worker worker : workers) {
+      keySorter.addAll(worker.keySorter);
+    }
+  }
+
+  private void scanRange(int clusterId, long from, long to) {
+    final Worker worker = (Worker) Thread.currentThread();
+    if (worker.db == null)
+      throw new OIndexException("Database is not opened by worker of rebuild of index " + indexName);
+
+    final ODatabaseDocumentInternal db = worker.db;
+    final OIndexKeySorter workerKeySorter = worker.keySorter;
+
+    try {
+      for (ORecord record : new ORecordIteratorCluster<ORecord>(db, db, clusterId, from, to)) {
+        if (cancelled)
+          throw new OCommandExecutionException("The index rebuild has been interrupted");
+
+        if (record instanceof ODocument && index.indexDocument((ODocument) record, workerKeySorter))
+          documentIndexed.incrementAndGet();
+
+        final long num = documentNum.incrementAndGet();
+        if (progressListener != null && num % PROGRESS_STEP == 0) {
+          synchronized (progressListener) {
+            progressListener.onProgress(index, num, (float) (num * 100.0 / documentTotal));
+          }
+        }
+      }
+    } catch (NoSuchElementException e) {
+      // END OF CLUSTER REACHED, IGNORE IT
+    }
+  }
+
+  private final class ScanTask implements Callable<Void> {
+    private final int  clusterId;
+    private final long from;
+    private final long to;
+
+    private ScanTask(int clusterId, long from, long to) {
+      this.clusterId = clusterId;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      if (!cancelled)
+        scanRange(clusterId, from, to);
+
+      return null;
+    }
+  }
+
+  /**
+   * Thread of pool which holds own copy of database and own partition of the key sorter during whole its life.
+   */
+  private final class Worker extends Thread {
+    private ODatabaseDocumentInternal db;
+    private OIndexKeySorter           keySorter;
+
+    private Worker(Runnable runnable) {
+      super(runnable, "OrientDB rebuild of index " + indexName + " #" + workersCounter.getAndIncrement());
+    }
+
+    @Override
+    public void run() {
+      keySorter = OIndexClusterScanner.this.keySorter.createPartition(parallelism);
+      workers.add(this);
+
+      try {
+        db = database.copy();
+        db.activateOnCurrentThread();
+      } catch (RuntimeException e) {
+        OLogManager.instance().error(this, "Database can not be opened by worker of rebuild of index %s", e, indexName);
+      }
+
+      try {
+        super.run();
+      } finally {
+        if (db != null) {
+          db.activateOnCurrentThread();
+          db.close();
+        }
+      }
+    }
+  }
+}
@@ -59,6 +59,16 @@ public interface OIndexEngine {
 
   Object get(Object key);
 
+  /**
+   * Returns values of several keys at once. Engines may look up keys in the order which is the most effective for them, so this
+   * method should be preferred over {@link #get(Object)} called in a loop.
+   *
+   * @param keys keys to look up.
+   *
+   * @return map of requested keys to their values, keys which are absent in the index are absent in the map too.
+   */
+  Map<Object, Object> getAll(Collection<?> keys);
+
   void put(Object key, Object value);
 
   /**
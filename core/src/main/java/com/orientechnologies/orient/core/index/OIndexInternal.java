@@ -43,6 +43,7 @@ public interface OIndexInternal<T> extends OIndex<T> {
   String INDEX_DEFINITION_CLASS    = "indexDefinitionClass";
   String INDEX_VERSION             = "indexVersion";
   String METADATA                  = "metadata";
+  String STATISTICS                = "statistics";
 
   Object getCollatingValue(final Object key);
 
@@ -192,4 +193,16 @@ public interface OIndexInternal<T> extends OIndex<T> {
    * key} and only some subset of this index was locked.
    */
   boolean acquireAtomicExclusiveLock(Object key);
+
+  /**
+   * @return Statistics gathered by the last call of {@link #analyze()} or <code>null</code> if index was not analyzed yet.
+   */
+  OIndexStatistics getStatistics();
+
+  /**
+   * Iterates over all entries of the index, gathers its statistics and stores them in index configuration.
+   *
+   * @return Gathered statistics.
+   */
+  OIndexStatistics analyze();
 }
@@ -0,0 +1,119 @@
+/*
+  *
+  *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+  *  *
+  *  *  Licensed under the Apache License, Version 2.0 (the "License");
+  *  *  you may not use this file except in compliance with the License.
+  *  *  You may obtain a copy of the License at
+  *  *
+  *  *       http://www.apache.org/licenses/LICENSE-2.0
+  *  *
+  *  *  Unless required by applicable law or agreed to in writing, software
+  *  *  distributed under the License is distributed on an "AS IS" BASIS,
+  *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  *  *  See the License for the specific language governing permissions and
+  *  *  limitations under the License.
+  *  *
+  *  * For more information: http://www.orientechnologies.com
+  *
+  */
+package com.orientechnologies.orient.core.index;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Cursor which returns only those entries of the underlying cursor whose values are contained in the sorted array of RIDs fetched
+ * from other indexes, so records which do not satisfy conditions on fields of other indexes are not loaded at all.
+ *
+ * @since 18.05.17
+ */
+public class OIndexIntersectionCursor extends OIndexAbstractCursor {
+  private final OIndexCursor cursor;
+  private final ORID[]       rids;
+
+  /**
+   * @param cursor Cursor to filter.
+   * @param rids   Sorted array of RIDs without duplicates, usually created by {@link #fetchSortedRids(OIndexCursor, int)} and
+   *               {@link #intersect(ORID[], ORID[])}.
+   */
+  public OIndexIntersectionCursor(OIndexCursor cursor, ORID[] rids) {
+    this.cursor = cursor;
+    this.rids = rids;
+  }
+
+  /**
+   * Fetches values of all entries of the cursor.
+   *
+   * @param cursor  Cursor to fetch.
+   * @param maxRids Maximum amount of entries to fetch.
+   *
+   * @return sorted array of RIDs without duplicates or <code>null</code> if cursor contains more than <code>maxRids</code> entries.
+   */
+  public static ORID[] fetchSortedRids(OIndexCursor cursor, int maxRids) {
+    ORID[] rids = new ORID[16];
+    int size = 0;
+
+    Map.Entry<Object, OIdentifiable> entry = cursor.nextEntry();
+    while (entry != null) {
+      if (size == maxRids)
+        return null;
+
+      if (size == rids.length)
+        rids = Arrays.copyOf(rids, Math.min(rids.length << 1, maxRids));
+
+      rids[size++] = entry.getValue().getIdentity();
+      entry = cursor.nextEntry();
+    }
+
+    Arrays.sort(rids, 0, size);
+
+    int unique = 0;
+    for (int i = 0; i < size; i++) {
+      if (unique == 0 || !rids[unique - 1].equals(rids[i]))
+        rids[unique++] = rids[i];
+    }
+
+    return Arrays.copyOf(rids, unique);
+  }
+
+  /**
+   * Merges two sorted arrays of RIDs.
+   *
+   * @return sorted array of RIDs which are contained in both arrays.
+   */
+  public static ORID[] intersect(ORID[] first, ORID[] second) {
+    final ORID[] result = new ORID[Math.min(first.length, second.length)];
+    int size = 0;
+
+    int i = 0;
+    int j = 0;
+    while (i < first.length && j < second.length) {
+      final int cmp = first[i].compareTo(second[j]);
+      if (cmp < 0)
+        i++;
+      else if (cmp > 0)
+        j++;
+      else {
+        result[size++] = first[i];
+        i++;
+        j++;
+      }
+    }
+
+    return Arrays.copyOf(result, size);
+  }
+
+  @Override
+  public Map.Entry<Object, OIdentifiable> nextEntry() {
+    Map.Entry<Object, OIdentifiable> entry = cursor.nextEntry();
+
+    while (entry != null && Arrays.binarySearch(rids, entry.getValue().getIdentity()) < 0)
+      entry = cursor.nextEntry();
+
+    return entry;
+  }
+}
@@ -0,0 +1,405 @@
+/*
+ *
+ *  *  Copyright 2017 OrientDB LTD (info(at)orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientdb.com
+ *
+ */
+
+package com.orientechnologies.orient.core.index;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.exception.OTooBigIndexKeyException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Sorts keys of index together with identities of records they belong to, so index can be built by bulk load of sorted entries.
+ * <p>
+ * Entries are kept in memory till their size exceeds the limit, then they are sorted and written into temporary file. Sorted files
+ * are merged when entries are read. Identities of the same key are returned in the order in which they were added.
+ * <p>
+ * Sorter is not thread safe. If keys are collected by several threads, each of them uses own partition of the sorter created by
+ * {@link #createPartition(int)}, partitions are added back to the sorter by {@link #addAll(OIndexKeySorter)} once keys are
+ * collected.
+ *
+ * @since 11.05.17
+ */
+public class OIndexKeySorter implements Closeable {
+  private static final int ENTRY_OVERHEAD = 64;
+  private static final int MAX_KEY_SIZE   = OGlobalConfiguration.SBTREE_MAX_KEY_SIZE.getValueAsInteger();
+
+  private final OBinarySerializer<Object> keySerializer;
+  private final OType[]                   keyTypes;
+  private final String                    indexName;
+  private final long                      memoryLimit;
+
+  private final List<File>            runs       = new ArrayList<File>();
+  private final List<List<SortEntry>> memoryRuns = new ArrayList<List<SortEntry>>();
+  private final List<ORID>            nullKeys   = new ArrayList<ORID>();
+
+  private List<SortEntry> entries = new ArrayList<SortEntry>();
+  private long memorySize;
+  private long size;
+
+  public OIndexKeySorter(String indexName, OBinarySerializer<Object> keySerializer, OType[] keyTypes, long memoryLimit) {
+    this.indexName = indexName;
+    this.keySerializer = keySerializer;
+    this.keyTypes = keyTypes;
+    this.memoryLimit = memoryLimit;
+  }
+
+  /**
+   * Adds not null key and identity of record which contains this key.
+   */
+  public void add(Object key, ORID rid) {
+    key = keySerializer.preprocess(key, (Object[]) keyTypes);
+
+    final int keySize = keySerializer.getObjectSize(key, (Object[]) keyTypes);
+    if (keySize > MAX_KEY_SIZE)
+      throw new OTooBigIndexKeyException(
+          "Key size is more than allowed, operation was canceled. Current key size " + keySize + ", allowed  " + MAX_KEY_SIZE,
+          indexName);
+
+    entries.add(new SortEntry(key, rid));
+    memorySize += keySize + ENTRY_OVERHEAD;
+    size++;
+
+    if (memorySize >= memoryLimit) {
+      try {
+        writeRun();
+      } catch (IOException e) {
+        throw OException.wrapException(new OIndexException("Error during sorting of keys of index " + indexName), e);
+      }
+    }
+  }
+
+  /**
+   * Adds identity of record which contains null key. Null keys are not sorted, they are returned by {@link #nullKeys()}.
+   */
+  public void addNull(ORID rid) {
+    nullKeys.add(rid);
+    size++;
+  }
+
+  /**
+   * @return Identities of records which contain null key.
+   */
+  public List<ORID> nullKeys() {
+    return nullKeys;
+  }
+
+  /**
+   * Creates empty sorter for the same index which uses given part of memory of this sorter.
+   *
+   * @param partitions Amount of partitions between which memory of this sorter is split
+   */
+  public OIndexKeySorter createPartition(int partitions) {
+    return new OIndexKeySorter(indexName, keySerializer, keyTypes, Math.max(memoryLimit / partitions, 1));
+  }
+
+  /**
+   * Moves entries of other sorter into this one. Entries of both sorters are merged when they are read, other sorter becomes
+   * empty.
+   */
+  public void addAll(OIndexKeySorter sorter) {
+    runs.addAll(sorter.runs);
+    memoryRuns.addAll(sorter.memoryRuns);
+    nullKeys.addAll(sorter.nullKeys);
+
+    if (!sorter.entries.isEmpty()) {
+      Collections.sort(sorter.entries);
+      memoryRuns.add(sorter.entries);
+    }
+
+    size += sorter.size;
+
+    sorter.runs.clear();
+    sorter.memoryRuns.clear();
+    sorter.nullKeys.clear();
+    sorter.entries = new ArrayList<SortEntry>();
+    sorter.memorySize = 0;
+    sorter.size = 0;
+  }
+
+  /**
+   * @return Amount of added entries.
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * @return Added keys in ascending order, each of them together with identities of records which contain this key.
+   */
+  public Iterator<Map.Entry<Object, List<ORID>>> sortedEntries() {
+    final Iterator<SortEntry> sorted;
+
+    try {
+      if (runs.isEmpty() && memoryRuns.isEmpty()) {
+        Collections.sort(entries);
+        sorted = entries.iterator();
+      } else {
+        // entries which are left in memory fit into the limit, so they are merged without writing them to the file
+        if (!entries.isEmpty()) {
+          Collections.sort(entries);
+          memoryRuns.add(entries);
+          entries = new ArrayList<SortEntry>();
+        }
+
+        sorted = new MergeIterator();
+      }
+    } catch (IOException e) {
+      throw OException.wrapException(new OIndexException("Error during sorting of keys of index " + indexName), e);
+    }
+
+    return new GroupIterator(sorted);
+  }
+
+  /**
+   * Deletes temporary files.
+   */
+  @Override
+  public void close() {
+    for (File run : runs) {
+      if (run.exists() && !run.delete())
+        OLogManager.instance().warn(this, "Temporary file %s can not be deleted", run);
+    }
+
+    runs.clear();
+    memoryRuns.clear();
+    nullKeys.clear();
+    entries = new ArrayList<SortEntry>();
+  }
+
+  private void writeRun() throws IOException {
+    Collections.sort(entries);
+
+    final File run = File.createTempFile("orientdb-" + indexName + "-", ".sort");
+    runs.add(run);
+
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 64 * 1024));
+    try {
+      for (SortEntry entry : entries) {
+        final byte[] serializedKey = new byte[keySerializer.getObjectSize(entry.key, (Object[]) keyTypes)];
+        keySerializer.serializeNativeObject(entry.key, serializedKey, 0, (Object[]) keyTypes);
+
+        out.writeInt(serializedKey.length);
+        out.write(serializedKey);
+        out.writeInt(entry.rid.getClusterId());
+        out.writeLong(entry.rid.getClusterPosition());
+      }
+    } finally {
+      out.close();
+    }
+
+    entries = new ArrayList<SortEntry>();
+    memorySize = 0;
+  }
+
+  private static int compareKeys(Object keyOne, Object keyTwo) {
+    return ODefaultComparator.INSTANCE.compare(keyOne, keyTwo);
+  }
+
+  private static final class SortEntry implements Comparable<SortEntry> {
+    private final Object key;
+    private final ORID   rid;
+
+    private SortEntry(Object key, ORID rid) {
+      this.key = key;
+      this.rid = rid;
+    }
+
+    @Override
+    public int compareTo(SortEntry other) {
+      return compareKeys(key, other.key);
+    }
+  }
+
+  private static abstract class RunReader {
+    private final int runIndex;
+
+    SortEntry current;
+
+    RunReader(int runIndex) {
+      this.runIndex = runIndex;
+    }
+
+    abstract boolean next() throws IOException;
+  }
+
+  private static final class MemoryRunReader extends RunReader {
+    private final Iterator<SortEntry> iterator;
+
+    private MemoryRunReader(List<SortEntry> run, int runIndex) {
+      super(runIndex);
+      this.iterator = run.iterator();
+    }
+
+    @Override
+    boolean next() {
+      if (!iterator.hasNext()) {
+        current = null;
+        return false;
+      }
+
+      current = iterator.next();
+      return true;
+    }
+  }
+
+  private final class FileRunReader extends RunReader {
+    private final DataInputStream in;
+
+    private FileRunReader(File run, int runIndex) throws IOException {
+      super(runIndex);
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 64 * 1024));
+    }
+
+    @Override
+    boolean next() throws IOException {
+      final int keySize;
+      try {
+        keySize = in.readInt();
+      } catch (EOFException e) {
+        in.close();
+        current = null;
+        return false;
+      }
+
+      final byte[] serializedKey = new byte[keySize];
+      in.readFully(serializedKey);
+
+      final int clusterId = in.readInt();
+      final long clusterPosition = in.readLong();
+
+      current = new SortEntry(keySerializer.deserializeNativeObject(serializedKey, 0), new ORecordId(clusterId, clusterPosition));
+      return true;
+    }
+  }
+
+  /**
+   * Merges sorted temporary files and sorted runs kept in memory, entries with equal keys are returned in order of runs.
+   */
+  private final class MergeIterator implements Iterator<SortEntry> {
+    private final PriorityQueue<RunReader> readers;
+
+    private MergeIterator() throws IOException {
+      readers = new PriorityQueue<RunReader>(runs.size() + memoryRuns.size(), new Comparator<RunReader>() {
+        @Override
+        public int compare(RunReader readerOne, RunReader readerTwo) {
+          final int result = compareKeys(readerOne.current.key, readerTwo.current.key);
+          if (result != 0)
+            return result;
+
+          return readerOne.runIndex < readerTwo.runIndex ? -1 : (readerOne.runIndex == readerTwo.runIndex ? 0 : 1);
+        }
+      });
+
+      for (int i = 0; i < runs.size(); i++) {
+        final RunReader reader = new FileRunReader(runs.get(i), i);
+        if (reader.next())
+          readers.add(reader);
+      }
+
+      for (int i = 0; i < memoryRuns.size(); i++) {
+        final RunReader reader = new MemoryRunReader(memoryRuns.get(i), runs.size() + i);
+        if (reader.next())
+          readers.add(reader);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !readers.isEmpty();
+    }
+
+    @Override
+    public SortEntry next() {
+      final RunReader reader = readers.poll();
+      if (reader == null)
+        throw new NoSuchElementException();
+
+      final SortEntry entry = reader.current;
+      try {
+        if (reader.next())
+          readers.add(reader);
+      } catch (IOException e) {
+        throw OException.wrapException(new OIndexException("Error during reading of sorted keys of index " + indexName), e);
+      }
+
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static final class GroupIterator implements Iterator<Map.Entry<Object, List<ORID>>> {
+    private final Iterator<SortEntry> sorted;
+    private       SortEntry           nextEntry;
+
+    private GroupIterator(Iterator<SortEntry> sorted) {
+      this.sorted = sorted;
+
+      if (sorted.hasNext())
+        nextEntry = sorted.next();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextEntry != null;
+    }
+
+    @Override
+    public Map.Entry<Object, List<ORID>> next() {
+      if (nextEntry == null)
+        throw new NoSuchElementException();
+
+      final Object key = nextEntry.key;
+      final List<ORID> rids = new ArrayList<ORID>(1);
+      rids.add(nextEntry.rid);
+
+      nextEntry = null;
+      while (sorted.hasNext()) {
+        final SortEntry entry = sorted.next();
+
+        if (compareKeys(key, entry.key) != 0) {
+          nextEntry = entry;
+          break;
+        }
+
+        rids.add(entry.rid);
+      }
+
+      return new AbstractMap.SimpleImmutableEntry<Object, List<ORID>>(key, rids);
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -23,6 +23,7 @@ import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.common.types.OModifiableBoolean;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OIndexRIDContainer;
@@ -329,8 +330,15 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
 
     Collections.sort(sortedKeys, comparator);
 
+    for (int i = 0; i < sortedKeys.size(); i++)
+      sortedKeys.set(i, getCollatingValue(sortedKeys.get(i)));
+
+    final int batchSize = Math.max(OGlobalConfiguration.INDEX_MULTI_GET_BATCH_SIZE.getValueAsInteger(), 1);
+
     return new OIndexAbstractCursor() {
-      private Iterator<?> keysIterator = sortedKeys.iterator();
+      private int keyIndex = 0;
+      private int batchEnd = 0;
+      private Map<Object, Object> batchValues;
 
       private Iterator<OIdentifiable> currentIterator = OEmptyIterator.IDENTIFIABLE_INSTANCE;
       private Object currentKey;
@@ -343,26 +351,17 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
         Object key = null;
         if (!currentIterator.hasNext()) {
           Collection<OIdentifiable> result = null;
-          while (keysIterator.hasNext() && (result == null || result.isEmpty())) {
-            key = keysIterator.next();
-            key = getCollatingValue(key);
-
-            acquireSharedLock();
-            try {
-              while (true)
-                try {
-                  result = (Collection<OIdentifiable>) storage.getIndexValue(indexId, key);
-                  break;
-                } catch (OInvalidIndexEngineIdException e) {
-                  doReloadIndexEngine();
-                }
-
-            } finally {
-              releaseSharedLock();
+          while (keyIndex < sortedKeys.size() && (result == null || result.isEmpty())) {
+            if (keyIndex == batchEnd) {
+              batchEnd = Math.min(keyIndex + batchSize, sortedKeys.size());
+              batchValues = getIndexValues(sortedKeys.subList(keyIndex, batchEnd));
             }
+
+            key = sortedKeys.get(keyIndex++);
+            result = (Collection<OIdentifiable>) batchValues.get(key);
           }
 
-          if (result == null) {
+          if (result == null || result.isEmpty()) {
             currentIterator = null;
             return null;
           }
@@ -19,11 +19,15 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OIndexRIDContainer;
 import com.orientechnologies.orient.core.exception.OInvalidIndexEngineIdException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
 import com.orientechnologies.orient.core.tx.OTransactionIndexChangesPerKey;
 
+import java.util.List;
+
 /**
  * Index implementation that allows multiple values for the same key.
  *
@@ -50,6 +54,21 @@ public class OIndexNotUnique extends OIndexMultiValues {
       }
   }
 
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm);
+  }
+
+  @Override
+  protected Object bulkLoadValue(Object key, List<ORID> rids) {
+    final boolean durable = metadata != null && Boolean.TRUE.equals(metadata.field("durableInNonTxMode"));
+
+    final OIndexRIDContainer values = new OIndexRIDContainer(getName(), durable);
+    values.addAll(rids);
+
+    return values;
+  }
+
   @Override
   protected Iterable<OTransactionIndexChangesPerKey.OTransactionIndexEntry> interpretTxKeyChanges(
       OTransactionIndexChangesPerKey changes) {
@@ -0,0 +1,156 @@
+/*
+ *
+ *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientechnologies.com
+ *
+ */
+package com.orientechnologies.orient.core.index;
+
+import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.common.serialization.types.OBinaryTypeSerializer;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OInvalidIndexEngineIdException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.bitmap.ORidBitmap;
+import com.orientechnologies.orient.core.index.engine.OBitmapIndexEngine;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OIndexEngineCallback;
+
+import java.util.Set;
+
+/**
+ * Not unique index which keeps RIDs of each key as compressed {@link ORidBitmap}. It is intended for fields with few distinct
+ * values, where every key refers to a huge amount of records: adding or removing of single RID updates only one chunk of the
+ * bitmap instead of the whole RID container of the key.
+ *
+ * @since 19.05.17
+ */
+public class OIndexNotUniqueBitmap extends OIndexNotUnique {
+
+  public OIndexNotUniqueBitmap(String name, String typeId, String algorithm, int version, OAbstractPaginatedStorage storage,
+      String valueContainerAlgorithm, ODocument metadata) {
+    super(name, typeId, algorithm, version, storage, valueContainerAlgorithm, metadata);
+  }
+
+  /**
+   * Bitmap index engine does not store null keys, so index always ignores null values.
+   */
+  @Override
+  public OIndexMultiValues create(String name, OIndexDefinition indexDefinition, String clusterIndexName,
+      Set<String> clustersToIndex, boolean rebuild, OProgressListener progressListener) {
+    if (indexDefinition != null)
+      indexDefinition.setNullValuesIgnored(true);
+
+    return super.create(name, indexDefinition, clusterIndexName, clustersToIndex, rebuild, progressListener);
+  }
+
+  @Override
+  public OIndexNotUniqueBitmap put(Object key, final OIdentifiable singleValue) {
+    if (singleValue != null && !singleValue.getIdentity().isPersistent())
+      throw new IllegalArgumentException("Cannot index a non persistent record (" + singleValue.getIdentity() + ")");
+
+    key = getCollatingValue(key);
+
+    final ODatabaseDocumentInternal database = getDatabase();
+    final boolean txIsActive = database.getTransaction().isActive();
+
+    if (!txIsActive)
+      keyLockManager.acquireExclusiveLock(key);
+    try {
+      acquireSharedLock();
+      try {
+        if (!singleValue.getIdentity().isValid())
+          (singleValue.getRecord()).save();
+
+        final Object engineKey = key;
+        final ORID identity = singleValue.getIdentity();
+
+        while (true) {
+          try {
+            storage.callIndexEngine(true, false, indexId, new OIndexEngineCallback<Boolean>() {
+              @Override
+              public Boolean callEngine(OIndexEngine engine) {
+                return ((OBitmapIndexEngine) engine).add(engineKey, identity);
+              }
+            });
+            return this;
+          } catch (OInvalidIndexEngineIdException e) {
+            doReloadIndexEngine();
+          }
+        }
+      } finally {
+        releaseSharedLock();
+      }
+    } finally {
+      if (!txIsActive)
+        keyLockManager.releaseExclusiveLock(key);
+    }
+  }
+
+  @Override
+  public boolean remove(Object key, final OIdentifiable value) {
+    if (value == null)
+      return remove(key);
+
+    key = getCollatingValue(key);
+
+    final ODatabaseDocumentInternal database = getDatabase();
+    final boolean txIsActive = database.getTransaction().isActive();
+
+    if (!txIsActive)
+      keyLockManager.acquireExclusiveLock(key);
+    try {
+      acquireSharedLock();
+      try {
+        final Object engineKey = key;
+        final ORID identity = value.getIdentity();
+        if (!identity.isPersistent())
+          return false;
+
+        while (true) {
+          try {
+            return storage.callIndexEngine(true, false, indexId, new OIndexEngineCallback<Boolean>() {
+              @Override
+              public Boolean callEngine(OIndexEngine engine) {
+                return ((OBitmapIndexEngine) engine).remove(engineKey, identity);
+              }
+            });
+          } catch (OInvalidIndexEngineIdException e) {
+            doReloadIndexEngine();
+          }
+        }
+      } finally {
+        releaseSharedLock();
+      }
+    } finally {
+      if (!txIsActive)
+        keyLockManager.releaseExclusiveLock(key);
+    }
+  }
+
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return false;
+  }
+
+  @Override
+  protected OBinarySerializer<?> determineValueSerializer() {
+    return OBinaryTypeSerializer.INSTANCE;
+  }
+}
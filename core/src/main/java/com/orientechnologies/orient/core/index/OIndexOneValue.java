@@ -22,6 +22,7 @@ package com.orientechnologies.orient.core.index;
 import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OInvalidIndexEngineIdException;
@@ -141,29 +142,28 @@ public abstract class OIndexOneValue extends OIndexAbstract<OIdentifiable> {
 
     Collections.sort(sortedKeys, comparator);
 
+    for (int i = 0; i < sortedKeys.size(); i++)
+      sortedKeys.set(i, getCollatingValue(sortedKeys.get(i)));
+
+    final int batchSize = Math.max(OGlobalConfiguration.INDEX_MULTI_GET_BATCH_SIZE.getValueAsInteger(), 1);
+
     return new OIndexAbstractCursor() {
-      private Iterator<?> keysIterator = sortedKeys.iterator();
+      private int keyIndex = 0;
+      private int batchEnd = 0;
+      private Map<Object, Object> batchValues;
 
       @Override
       public Map.Entry<Object, OIdentifiable> nextEntry() {
         OIdentifiable result = null;
         Object key = null;
-        while (keysIterator.hasNext() && result == null) {
-          key = keysIterator.next();
-          key = getCollatingValue(key);
-
-          acquireSharedLock();
-          try {
-            while (true)
-              try {
-                result = (OIdentifiable) storage.getIndexValue(indexId, key);
-                break;
-              } catch (OInvalidIndexEngineIdException e) {
-                doReloadIndexEngine();
-              }
-          } finally {
-            releaseSharedLock();
+        while (keyIndex < sortedKeys.size() && result == null) {
+          if (keyIndex == batchEnd) {
+            batchEnd = Math.min(keyIndex + batchSize, sortedKeys.size());
+            batchValues = getIndexValues(sortedKeys.subList(keyIndex, batchEnd));
           }
+
+          key = sortedKeys.get(keyIndex++);
+          result = (OIdentifiable) batchValues.get(key);
         }
 
         if (result == null)
@@ -414,4 +414,14 @@ public class OIndexRecorder implements OIndex<OIdentifiable>, OIndexInternal<OId
   public String getIndexNameByKey(final Object key) {
     return delegate.getName();
   }
+
+  @Override
+  public OIndexStatistics getStatistics() {
+    return null;
+  }
+
+  @Override
+  public OIndexStatistics analyze() {
+    throw new UnsupportedOperationException("Not allowed operation");
+  }
 }
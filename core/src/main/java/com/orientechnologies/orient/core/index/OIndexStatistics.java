@@ -0,0 +1,238 @@
+/*
+  *
+  *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+  *  *
+  *  *  Licensed under the Apache License, Version 2.0 (the "License");
+  *  *  you may not use this file except in compliance with the License.
+  *  *  You may obtain a copy of the License at
+  *  *
+  *  *       http://www.apache.org/licenses/LICENSE-2.0
+  *  *
+  *  *  Unless required by applicable law or agreed to in writing, software
+  *  *  distributed under the License is distributed on an "AS IS" BASIS,
+  *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  *  *  See the License for the specific language governing permissions and
+  *  *  limitations under the License.
+  *  *
+  *  * For more information: http://www.orientechnologies.com
+  *
+  */
+
+package com.orientechnologies.orient.core.index;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics of the index content which are used by query executor to estimate amount of entries returned by index query.
+ * <p>
+ * Statistics contain amount of entries, amount of distinct keys, amount of distinct prefixes of composite keys and equi-depth
+ * histogram of values of the first indexed field. The last two are gathered only for indexes which keep keys in order. Statistics
+ * are not maintained on index changes, they are gathered by {@link OIndexInternal#analyze()} and stored in index configuration.
+ *
+ * @since 17.05.17
+ */
+public class OIndexStatistics {
+  private static final String ENTRIES     = "entries";
+  private static final String KEYS        = "keys";
+  private static final String PREFIX_KEYS = "prefixKeys";
+  private static final String HISTOGRAM   = "histogram";
+
+  private final long         entries;
+  private final long         keys;
+  private final List<Long>   prefixKeys;
+  private final List<Object> histogram;
+
+  public OIndexStatistics(long entries, long keys, List<Long> prefixKeys, List<Object> histogram) {
+    this.entries = entries;
+    this.keys = keys;
+    this.prefixKeys = prefixKeys;
+    this.histogram = histogram;
+  }
+
+  /**
+   * Iterates over all entries of the index and gathers its statistics.
+   *
+   * @param index         Index to analyze.
+   * @param histogramSize Maximum amount of buckets in histogram of values of the first indexed field.
+   */
+  public static OIndexStatistics gather(OIndex<?> index, int histogramSize) {
+    final boolean ordered = index.getInternal().hasRangeQuerySupport();
+    final long step = Math.max(1, (index.getSize() + histogramSize - 1) / Math.max(1, histogramSize));
+
+    final List<Long> prefixKeys = new ArrayList<Long>();
+    final List<Object> histogram = new ArrayList<Object>();
+
+    long entries = 0;
+    long keys = 0;
+
+    Object prevKey = null;
+    Object firstValue = null;
+
+    final OIndexCursor cursor = index.cursor();
+    Map.Entry<Object, OIdentifiable> entry = cursor.nextEntry();
+    while (entry != null) {
+      final Object key = entry.getKey();
+
+      if (prevKey == null || ODefaultComparator.INSTANCE.compare(prevKey, key) != 0) {
+        keys++;
+
+        if (ordered)
+          countPrefixes(prefixKeys, prevKey, key);
+      }
+
+      if (ordered) {
+        firstValue = firstValue(key);
+        if (entries % step == 0 && firstValue != null)
+          histogram.add(firstValue);
+      }
+
+      entries++;
+      prevKey = key;
+      entry = cursor.nextEntry();
+    }
+
+    if (ordered && entries > 1 && (entries - 1) % step != 0 && firstValue != null)
+      histogram.add(firstValue);
+
+    return new OIndexStatistics(entries, keys, prefixKeys, histogram);
+  }
+
+  public static OIndexStatistics fromStream(ODocument document) {
+    final List<Long> prefixKeys = new ArrayList<Long>();
+    final List<Number> storedPrefixKeys = document.field(PREFIX_KEYS);
+    if (storedPrefixKeys != null)
+      for (Number prefixKey : storedPrefixKeys)
+        prefixKeys.add(prefixKey.longValue());
+
+    final List<Object> storedHistogram = document.field(HISTOGRAM);
+    final List<Object> histogram = storedHistogram != null ? new ArrayList<Object>(storedHistogram) : new ArrayList<Object>();
+
+    return new OIndexStatistics(document.<Number>field(ENTRIES).longValue(), document.<Number>field(KEYS).longValue(), prefixKeys,
+        histogram);
+  }
+
+  public ODocument toStream() {
+    final ODocument document = new ODocument();
+    document.field(ENTRIES, entries);
+    document.field(KEYS, keys);
+    document.field(PREFIX_KEYS, prefixKeys, OType.EMBEDDEDLIST);
+    document.field(HISTOGRAM, histogram, OType.EMBEDDEDLIST);
+    return document;
+  }
+
+  public long getEntries() {
+    return entries;
+  }
+
+  public long getKeys() {
+    return keys;
+  }
+
+  public List<Long> getPrefixKeys() {
+    return Collections.unmodifiableList(prefixKeys);
+  }
+
+  public List<Object> getHistogram() {
+    return Collections.unmodifiableList(histogram);
+  }
+
+  /**
+   * Estimates amount of entries which match equality condition on the given amount of the first indexed fields, assuming that
+   * entries are distributed evenly between keys.
+   *
+   * @return estimated amount of entries or <code>-1</code> if it cannot be estimated.
+   */
+  public long estimateEquals(int fields) {
+    if (keys == 0)
+      return 0;
+
+    if (fields <= 0)
+      return entries;
+
+    final long distinct;
+    if (fields < prefixKeys.size())
+      distinct = prefixKeys.get(fields - 1);
+    else if (prefixKeys.isEmpty() || fields == prefixKeys.size())
+      distinct = keys;
+    else
+      return -1;
+
+    return (entries + distinct - 1) / distinct;
+  }
+
+  /**
+   * Estimates amount of entries whose value of the first indexed field lies between given bounds by histogram of values of that
+   * field.
+   *
+   * @param from Lower bound or <code>null</code> if range is not limited from below.
+   * @param to   Upper bound or <code>null</code> if range is not limited from above.
+   *
+   * @return estimated amount of entries or <code>-1</code> if it cannot be estimated.
+   */
+  public long estimateRange(Object from, Object to) {
+    if (histogram.size() < 2)
+      return -1;
+
+    final double lower = from != null ? cumulativeFraction(from) : 0;
+    final double upper = to != null ? cumulativeFraction(to) : 1;
+
+    final long estimation = (long) Math.ceil(Math.max(0, upper - lower) * entries);
+    return Math.max(estimation, estimateEquals(1));
+  }
+
+  /**
+   * @return approximate part of entries whose value of the first indexed field is less than or equal to the given one.
+   */
+  private double cumulativeFraction(Object value) {
+    int low = 0;
+    int high = histogram.size();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (ODefaultComparator.INSTANCE.compare(histogram.get(mid), value) < 0)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+
+    // value lies in the middle of the bucket which precedes the first bound which is not less than value
+    final int buckets = histogram.size() - 1;
+    return Math.max(0, Math.min(1, (low - 0.5) / buckets));
+  }
+
+  private static void countPrefixes(List<Long> prefixKeys, Object prevKey, Object key) {
+    if (!(key instanceof OCompositeKey))
+      return;
+
+    final List<Object> keyItems = ((OCompositeKey) key).getKeys();
+    final List<Object> prevKeyItems = prevKey instanceof OCompositeKey ? ((OCompositeKey) prevKey).getKeys() : null;
+
+    int common = 0;
+    if (prevKeyItems != null)
+      while (common < keyItems.size() && common < prevKeyItems.size()
+          && ODefaultComparator.INSTANCE.compare(prevKeyItems.get(common), keyItems.get(common)) == 0)
+        common++;
+
+    while (prefixKeys.size() < keyItems.size())
+      prefixKeys.add(0L);
+
+    for (int i = common; i < keyItems.size(); i++)
+      prefixKeys.set(i, prefixKeys.get(i) + 1);
+  }
+
+  private static Object firstValue(Object key) {
+    if (key instanceof OCompositeKey) {
+      final List<Object> keyItems = ((OCompositeKey) key).getKeys();
+      return keyItems.isEmpty() ? null : keyItems.get(0);
+    }
+
+    return key;
+  }
+}
@@ -22,11 +22,14 @@ package com.orientechnologies.orient.core.index;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OInvalidIndexEngineIdException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
 import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
 import com.orientechnologies.orient.core.tx.OTransactionIndexChangesPerKey;
 
+import java.util.List;
+
 /**
  * Index implementation that allows only one value for a key.
  *
@@ -94,6 +97,35 @@ public class OIndexUnique extends OIndexOneValue {
     }
   }
 
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return true;
+  }
+
+  /**
+   * Checks uniqueness of key the same way as it is done when key is put into index.
+   */
+  @Override
+  protected Object bulkLoadValue(Object key, List<ORID> rids) {
+    ORID value = rids.get(0);
+
+    for (int i = 1; i < rids.size(); i++) {
+      final ORID rid = rids.get(i);
+      if (rid.equals(value))
+        continue;
+
+      final Boolean mergeSameKey = metadata != null ? (Boolean) metadata.field(OIndex.MERGE_KEYS) : Boolean.FALSE;
+      if (mergeSameKey == null || !mergeSameKey)
+        throw new ORecordDuplicatedException(String
+            .format("Cannot index record %s: found duplicated key '%s' in index '%s' previously assigned to the record %s", rid, key,
+                getName(), value), getName(), value);
+
+      value = rid;
+    }
+
+    return value;
+  }
+
   @Override
   public boolean canBeUsedInEqualityOperators() {
     return true;
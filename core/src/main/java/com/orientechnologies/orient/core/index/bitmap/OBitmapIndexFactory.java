@@ -0,0 +1,108 @@
+/*
+ *
+ *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientechnologies.com
+ *
+ */
+package com.orientechnologies.orient.core.index.bitmap;
+
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.exception.OConfigurationException;
+import com.orientechnologies.orient.core.index.ODefaultIndexFactory;
+import com.orientechnologies.orient.core.index.OIndexEngine;
+import com.orientechnologies.orient.core.index.OIndexException;
+import com.orientechnologies.orient.core.index.OIndexFactory;
+import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexNotUniqueBitmap;
+import com.orientechnologies.orient.core.index.engine.OBitmapIndexEngine;
+import com.orientechnologies.orient.core.index.engine.ORemoteIndexEngine;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Factory of not unique indexes which keep RIDs of each key as compressed bitmaps, see {@link OIndexNotUniqueBitmap}.
+ *
+ * @since 19.05.17
+ */
+public class OBitmapIndexFactory implements OIndexFactory {
+  public static final String BITMAP_INDEX_ALGORITHM = "BITMAP";
+
+  private static final Set<String> TYPES      = Collections.singleton(OClass.INDEX_TYPE.NOTUNIQUE_BITMAP.toString());
+  private static final Set<String> ALGORITHMS = Collections.singleton(BITMAP_INDEX_ALGORITHM);
+
+  /**
+   * Index types :
+   * <ul>
+   * <li>NOTUNIQUE_BITMAP</li>
+   * </ul>
+   */
+  public Set<String> getTypes() {
+    return TYPES;
+  }
+
+  public Set<String> getAlgorithms() {
+    return ALGORITHMS;
+  }
+
+  public OIndexInternal<?> createIndex(String name, ODatabaseDocumentInternal database, String indexType, String algorithm,
+      String valueContainerAlgorithm, ODocument metadata, int version) throws OConfigurationException {
+
+    if (version < 0)
+      version = getLastVersion();
+
+    // RIDS ARE KEPT BY THE ENGINE ITSELF, NO SEPARATE VALUE CONTAINERS ARE NEEDED
+    valueContainerAlgorithm = ODefaultIndexFactory.NONE_VALUE_CONTAINER;
+
+    final OStorage storage = database.getStorage();
+
+    if (OClass.INDEX_TYPE.NOTUNIQUE_BITMAP.toString().equals(indexType))
+      return new OIndexNotUniqueBitmap(name, indexType, algorithm, version, (OAbstractPaginatedStorage) storage.getUnderlying(),
+          valueContainerAlgorithm, metadata);
+
+    throw new OConfigurationException("Unsupported type: " + indexType);
+  }
+
+  @Override
+  public int getLastVersion() {
+    return OBitmapIndexEngine.VERSION;
+  }
+
+  @Override
+  public OIndexEngine createIndexEngine(final String algoritm, final String name, final Boolean durableInNonTxMode,
+      final OStorage storage, final int version, final Map<String, String> engineProperties) {
+    OIndexEngine indexEngine;
+
+    final String storageType = storage.getType();
+    if (storageType.equals("memory") || storageType.equals("plocal"))
+      indexEngine = new OBitmapIndexEngine(name, durableInNonTxMode, (OAbstractPaginatedStorage) storage, version);
+    else if (storageType.equals("distributed"))
+      // DISTRIBUTED CASE: HANDLE IT AS FOR LOCAL
+      indexEngine = new OBitmapIndexEngine(name, durableInNonTxMode, (OAbstractPaginatedStorage) storage.getUnderlying(),
+          version);
+    else if (storageType.equals("remote"))
+      indexEngine = new ORemoteIndexEngine(name);
+    else
+      throw new OIndexException("Unsupported storage type: " + storageType);
+
+    return indexEngine;
+  }
+}
@@ -0,0 +1,277 @@
+/*
+  *
+  *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+  *  *
+  *  *  Licensed under the Apache License, Version 2.0 (the "License");
+  *  *  you may not use this file except in compliance with the License.
+  *  *  You may obtain a copy of the License at
+  *  *
+  *  *       http://www.apache.org/licenses/LICENSE-2.0
+  *  *
+  *  *  Unless required by applicable law or agreed to in writing, software
+  *  *  distributed under the License is distributed on an "AS IS" BASIS,
+  *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  *  *  See the License for the specific language governing permissions and
+  *  *  limitations under the License.
+  *  *
+  *  * For more information: http://www.orientechnologies.com
+  *
+  */
+
+package com.orientechnologies.orient.core.index.bitmap;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Compressed set of persistent RIDs. RIDs are partitioned into chunks by cluster id and the highest 48 bits of cluster position,
+ * the lowest 16 bits of positions of each chunk are kept in {@link ORidBitmapContainer}. Chunks are ordered by cluster id and
+ * position, so set is iterated in order of RIDs.
+ *
+ * @since 19.05.17
+ */
+public class ORidBitmap extends AbstractSet<OIdentifiable> {
+  private static final int CHUNK_BITS = 16;
+
+  private final TreeMap<Long, ORidBitmapContainer> containers = new TreeMap<Long, ORidBitmapContainer>();
+  private       int                                size;
+
+  public ORidBitmap() {
+  }
+
+  public ORidBitmap(Collection<? extends OIdentifiable> rids) {
+    addAll(rids);
+  }
+
+  /**
+   * @return key of the chunk which contains RIDs with given cluster id and the same highest bits of cluster position as in the
+   * given one.
+   */
+  public static long chunkKey(int clusterId, long clusterPosition) {
+    return ((long) clusterId << 48) | (clusterPosition >>> CHUNK_BITS);
+  }
+
+  public static int clusterId(long chunkKey) {
+    return (int) (chunkKey >>> 48);
+  }
+
+  /**
+   * @return the highest bits of cluster positions of the chunk.
+   */
+  public static long chunk(long chunkKey) {
+    return chunkKey & 0xFFFFFFFFFFFFL;
+  }
+
+  /**
+   * @return the lowest bits of cluster position which are kept in the container of the chunk.
+   */
+  public static int lowBits(long clusterPosition) {
+    return (int) (clusterPosition & 0xFFFF);
+  }
+
+  public static ORID toRid(long chunkKey, int lowBits) {
+    return new ORecordId(clusterId(chunkKey), (chunk(chunkKey) << CHUNK_BITS) | lowBits);
+  }
+
+  /**
+   * Replaces content of the chunk.
+   *
+   * @param container Container of the chunk, it is not copied and should not be changed later.
+   */
+  public void setContainer(long chunkKey, ORidBitmapContainer container) {
+    final ORidBitmapContainer oldContainer;
+    if (container == null || container.isEmpty())
+      oldContainer = containers.remove(chunkKey);
+    else
+      oldContainer = containers.put(chunkKey, container);
+
+    if (oldContainer != null)
+      size -= oldContainer.getCardinality();
+
+    if (container != null)
+      size += container.getCardinality();
+  }
+
+  /**
+   * @return read only view of chunks of the set ordered by chunk key.
+   */
+  public SortedMap<Long, ORidBitmapContainer> getContainers() {
+    return Collections.unmodifiableSortedMap(containers);
+  }
+
+  @Override
+  public boolean add(OIdentifiable identifiable) {
+    final ORID rid = identifiable.getIdentity();
+    checkRid(rid);
+
+    final long chunkKey = chunkKey(rid.getClusterId(), rid.getClusterPosition());
+    ORidBitmapContainer container = containers.get(chunkKey);
+    if (container == null) {
+      container = new ORidBitmapContainer();
+      containers.put(chunkKey, container);
+    }
+
+    if (container.add(lowBits(rid.getClusterPosition()))) {
+      size++;
+      return true;
+    }
+
+    return false;
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    if (!(o instanceof OIdentifiable))
+      return false;
+
+    final ORID rid = ((OIdentifiable) o).getIdentity();
+    if (!rid.isPersistent())
+      return false;
+
+    final long chunkKey = chunkKey(rid.getClusterId(), rid.getClusterPosition());
+    final ORidBitmapContainer container = containers.get(chunkKey);
+    if (container == null || !container.remove(lowBits(rid.getClusterPosition())))
+      return false;
+
+    if (container.isEmpty())
+      containers.remove(chunkKey);
+
+    size--;
+    return true;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    if (!(o instanceof OIdentifiable))
+      return false;
+
+    final ORID rid = ((OIdentifiable) o).getIdentity();
+    if (!rid.isPersistent())
+      return false;
+
+    final ORidBitmapContainer container = containers.get(chunkKey(rid.getClusterId(), rid.getClusterPosition()));
+    return container != null && container.contains(lowBits(rid.getClusterPosition()));
+  }
+
+  @Override
+  public void clear() {
+    containers.clear();
+    size = 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Iterator<OIdentifiable> iterator() {
+    return new RidIterator();
+  }
+
+  /**
+   * @return new set which contains RIDs contained in both sets.
+   */
+  public ORidBitmap and(ORidBitmap other) {
+    final ORidBitmap result = new ORidBitmap();
+
+    final ORidBitmap smaller = containers.size() <= other.containers.size() ? this : other;
+    final ORidBitmap bigger = smaller == this ? other : this;
+
+    for (Map.Entry<Long, ORidBitmapContainer> entry : smaller.containers.entrySet()) {
+      final ORidBitmapContainer otherContainer = bigger.containers.get(entry.getKey());
+      if (otherContainer != null)
+        result.setContainer(entry.getKey(), entry.getValue().and(otherContainer));
+    }
+
+    return result;
+  }
+
+  /**
+   * @return new set which contains RIDs contained in any of sets.
+   */
+  public ORidBitmap or(ORidBitmap other) {
+    final ORidBitmap result = new ORidBitmap();
+
+    for (Map.Entry<Long, ORidBitmapContainer> entry : containers.entrySet()) {
+      final ORidBitmapContainer otherContainer = other.containers.get(entry.getKey());
+      if (otherContainer != null)
+        result.setContainer(entry.getKey(), entry.getValue().or(otherContainer));
+      else
+        result.setContainer(entry.getKey(), entry.getValue().copy());
+    }
+
+    for (Map.Entry<Long, ORidBitmapContainer> entry : other.containers.entrySet()) {
+      if (!containers.containsKey(entry.getKey()))
+        result.setContainer(entry.getKey(), entry.getValue().copy());
+    }
+
+    return result;
+  }
+
+  /**
+   * @return new set which contains RIDs contained in this set but not in the other one.
+   */
+  public ORidBitmap andNot(ORidBitmap other) {
+    final ORidBitmap result = new ORidBitmap();
+
+    for (Map.Entry<Long, ORidBitmapContainer> entry : containers.entrySet()) {
+      final ORidBitmapContainer otherContainer = other.containers.get(entry.getKey());
+      if (otherContainer != null)
+        result.setContainer(entry.getKey(), entry.getValue().andNot(otherContainer));
+      else
+        result.setContainer(entry.getKey(), entry.getValue().copy());
+    }
+
+    return result;
+  }
+
+  private static void checkRid(ORID rid) {
+    if (!rid.isPersistent())
+      throw new IllegalArgumentException("Cannot add a non persistent record (" + rid + ") to the bitmap");
+  }
+
+  private final class RidIterator implements Iterator<OIdentifiable> {
+    private final Iterator<Map.Entry<Long, ORidBitmapContainer>> containerIterator = containers.entrySet().iterator();
+
+    private long                               chunkKey;
+    private ORidBitmapContainer.ValueIterator valueIterator;
+
+    @Override
+    public boolean hasNext() {
+      while (valueIterator == null || !valueIterator.hasNext()) {
+        if (!containerIterator.hasNext())
+          return false;
+
+        final Map.Entry<Long, ORidBitmapContainer> entry = containerIterator.next();
+        chunkKey = entry.getKey();
+        valueIterator = entry.getValue().iterator();
+      }
+
+      return true;
+    }
+
+    @Override
+    public OIdentifiable next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      return toRid(chunkKey, valueIterator.next());
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+  }
+}
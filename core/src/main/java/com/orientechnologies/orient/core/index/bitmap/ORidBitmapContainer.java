@@ -0,0 +1,362 @@
+/*
+  *
+  *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+  *  *
+  *  *  Licensed under the Apache License, Version 2.0 (the "License");
+  *  *  you may not use this file except in compliance with the License.
+  *  *  You may obtain a copy of the License at
+  *  *
+  *  *       http://www.apache.org/licenses/LICENSE-2.0
+  *  *
+  *  *  Unless required by applicable law or agreed to in writing, software
+  *  *  distributed under the License is distributed on an "AS IS" BASIS,
+  *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  *  *  See the License for the specific language governing permissions and
+  *  *  limitations under the License.
+  *  *
+  *  * For more information: http://www.orientechnologies.com
+  *
+  */
+
+package com.orientechnologies.orient.core.index.bitmap;
+
+import com.orientechnologies.common.serialization.types.OByteSerializer;
+import com.orientechnologies.common.serialization.types.OCharSerializer;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of the lowest 16 bits of cluster positions which share the same cluster id and the same highest bits. Sparse sets are kept
+ * as sorted array of values, dense sets which contain more than {@link #ARRAY_MAX_SIZE} values are kept as bitmap of 65536 bits,
+ * so container never occupies more than 8 kilobytes.
+ *
+ * @since 19.05.17
+ */
+public final class ORidBitmapContainer {
+  /**
+   * Maximum amount of values which are kept in sorted array, array of this size occupies the same space as the bitmap.
+   */
+  public static final int ARRAY_MAX_SIZE = 4096;
+
+  private static final int  BITMAP_WORDS = 1024;
+  private static final byte ARRAY_TYPE   = 0;
+  private static final byte BITMAP_TYPE  = 1;
+
+  private char[] array;
+  private long[] bitmap;
+  private int    cardinality;
+
+  public ORidBitmapContainer() {
+    array = new char[4];
+  }
+
+  private ORidBitmapContainer(char[] array, long[] bitmap, int cardinality) {
+    this.array = array;
+    this.bitmap = bitmap;
+    this.cardinality = cardinality;
+  }
+
+  /**
+   * @return <code>true</code> if value was not contained in the container.
+   */
+  public boolean add(int value) {
+    final char low = (char) value;
+
+    if (bitmap != null) {
+      final int word = low >>> 6;
+      final long mask = 1L << low;
+      if ((bitmap[word] & mask) != 0)
+        return false;
+
+      bitmap[word] |= mask;
+      cardinality++;
+      return true;
+    }
+
+    final int index = Arrays.binarySearch(array, 0, cardinality, low);
+    if (index >= 0)
+      return false;
+
+    if (cardinality == ARRAY_MAX_SIZE) {
+      convertToBitmap();
+      return add(value);
+    }
+
+    final int insertionPoint = -index - 1;
+    if (cardinality == array.length)
+      array = Arrays.copyOf(array, Math.min(array.length << 1, ARRAY_MAX_SIZE));
+
+    System.arraycopy(array, insertionPoint, array, insertionPoint + 1, cardinality - insertionPoint);
+    array[insertionPoint] = low;
+    cardinality++;
+    return true;
+  }
+
+  /**
+   * @return <code>true</code> if value was contained in the container.
+   */
+  public boolean remove(int value) {
+    final char low = (char) value;
+
+    if (bitmap != null) {
+      final int word = low >>> 6;
+      final long mask = 1L << low;
+      if ((bitmap[word] & mask) == 0)
+        return false;
+
+      bitmap[word] &= ~mask;
+      cardinality--;
+
+      if (cardinality <= ARRAY_MAX_SIZE)
+        convertToArray();
+
+      return true;
+    }
+
+    final int index = Arrays.binarySearch(array, 0, cardinality, low);
+    if (index < 0)
+      return false;
+
+    System.arraycopy(array, index + 1, array, index, cardinality - index - 1);
+    cardinality--;
+    return true;
+  }
+
+  public boolean contains(int value) {
+    final char low = (char) value;
+
+    if (bitmap != null)
+      return (bitmap[low >>> 6] & (1L << low)) != 0;
+
+    return Arrays.binarySearch(array, 0, cardinality, low) >= 0;
+  }
+
+  public int getCardinality() {
+    return cardinality;
+  }
+
+  public boolean isEmpty() {
+    return cardinality == 0;
+  }
+
+  public ORidBitmapContainer and(ORidBitmapContainer other) {
+    if (bitmap != null && other.bitmap != null) {
+      final long[] result = new long[BITMAP_WORDS];
+      for (int i = 0; i < BITMAP_WORDS; i++)
+        result[i] = bitmap[i] & other.bitmap[i];
+
+      return fromBitmap(result);
+    }
+
+    final ORidBitmapContainer smaller = cardinality <= other.cardinality ? this : other;
+    final ORidBitmapContainer bigger = smaller == this ? other : this;
+
+    final char[] result = new char[smaller.cardinality];
+    int size = 0;
+    final ValueIterator iterator = smaller.iterator();
+    while (iterator.hasNext()) {
+      final int value = iterator.next();
+      if (bigger.contains(value))
+        result[size++] = (char) value;
+    }
+
+    return new ORidBitmapContainer(result, null, size);
+  }
+
+  public ORidBitmapContainer or(ORidBitmapContainer other) {
+    if (cardinality + other.cardinality <= ARRAY_MAX_SIZE && bitmap == null && other.bitmap == null) {
+      final char[] result = new char[cardinality + other.cardinality];
+      int size = 0;
+      int i = 0;
+      int j = 0;
+      while (i < cardinality || j < other.cardinality) {
+        if (j == other.cardinality || (i < cardinality && array[i] < other.array[j]))
+          result[size++] = array[i++];
+        else if (i == cardinality || other.array[j] < array[i])
+          result[size++] = other.array[j++];
+        else {
+          result[size++] = array[i++];
+          j++;
+        }
+      }
+
+      return new ORidBitmapContainer(result, null, size);
+    }
+
+    final long[] result = toBitmap();
+    if (other.bitmap != null) {
+      for (int i = 0; i < BITMAP_WORDS; i++)
+        result[i] |= other.bitmap[i];
+    } else {
+      for (int i = 0; i < other.cardinality; i++)
+        result[other.array[i] >>> 6] |= 1L << other.array[i];
+    }
+
+    return fromBitmap(result);
+  }
+
+  public ORidBitmapContainer andNot(ORidBitmapContainer other) {
+    if (bitmap != null) {
+      final long[] result = toBitmap();
+      if (other.bitmap != null) {
+        for (int i = 0; i < BITMAP_WORDS; i++)
+          result[i] &= ~other.bitmap[i];
+      } else {
+        for (int i = 0; i < other.cardinality; i++)
+          result[other.array[i] >>> 6] &= ~(1L << other.array[i]);
+      }
+
+      return fromBitmap(result);
+    }
+
+    final char[] result = new char[cardinality];
+    int size = 0;
+    for (int i = 0; i < cardinality; i++) {
+      if (!other.contains(array[i]))
+        result[size++] = array[i];
+    }
+
+    return new ORidBitmapContainer(result, null, size);
+  }
+
+  public ORidBitmapContainer copy() {
+    if (bitmap != null)
+      return new ORidBitmapContainer(null, bitmap.clone(), cardinality);
+
+    return new ORidBitmapContainer(Arrays.copyOf(array, Math.max(cardinality, 4)), null, cardinality);
+  }
+
+  public ValueIterator iterator() {
+    return new ValueIterator();
+  }
+
+  public byte[] toBytes() {
+    final byte[] stream;
+    if (bitmap != null) {
+      stream = new byte[OByteSerializer.BYTE_SIZE + OIntegerSerializer.INT_SIZE + BITMAP_WORDS * OLongSerializer.LONG_SIZE];
+      stream[0] = BITMAP_TYPE;
+      OIntegerSerializer.INSTANCE.serializeLiteral(cardinality, stream, OByteSerializer.BYTE_SIZE);
+
+      int position = OByteSerializer.BYTE_SIZE + OIntegerSerializer.INT_SIZE;
+      for (long word : bitmap) {
+        OLongSerializer.INSTANCE.serializeLiteral(word, stream, position);
+        position += OLongSerializer.LONG_SIZE;
+      }
+    } else {
+      stream = new byte[OByteSerializer.BYTE_SIZE + OIntegerSerializer.INT_SIZE + cardinality * OCharSerializer.CHAR_SIZE];
+      stream[0] = ARRAY_TYPE;
+      OIntegerSerializer.INSTANCE.serializeLiteral(cardinality, stream, OByteSerializer.BYTE_SIZE);
+
+      int position = OByteSerializer.BYTE_SIZE + OIntegerSerializer.INT_SIZE;
+      for (int i = 0; i < cardinality; i++) {
+        OCharSerializer.INSTANCE.serializeLiteral(array[i], stream, position);
+        position += OCharSerializer.CHAR_SIZE;
+      }
+    }
+
+    return stream;
+  }
+
+  public static ORidBitmapContainer fromBytes(byte[] stream) {
+    final int cardinality = getCardinality(stream);
+
+    int position = OByteSerializer.BYTE_SIZE + OIntegerSerializer.INT_SIZE;
+    if (stream[0] == BITMAP_TYPE) {
+      final long[] bitmap = new long[BITMAP_WORDS];
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        bitmap[i] = OLongSerializer.INSTANCE.deserializeLiteral(stream, position);
+        position += OLongSerializer.LONG_SIZE;
+      }
+
+      return new ORidBitmapContainer(null, bitmap, cardinality);
+    }
+
+    final char[] array = new char[Math.max(cardinality, 4)];
+    for (int i = 0; i < cardinality; i++) {
+      array[i] = OCharSerializer.INSTANCE.deserializeLiteral(stream, position);
+      position += OCharSerializer.CHAR_SIZE;
+    }
+
+    return new ORidBitmapContainer(array, null, cardinality);
+  }
+
+  /**
+   * @return amount of values in serialized container without its deserialization.
+   */
+  public static int getCardinality(byte[] stream) {
+    return OIntegerSerializer.INSTANCE.deserializeLiteral(stream, OByteSerializer.BYTE_SIZE);
+  }
+
+  private static ORidBitmapContainer fromBitmap(long[] bitmap) {
+    int cardinality = 0;
+    for (long word : bitmap)
+      cardinality += Long.bitCount(word);
+
+    final ORidBitmapContainer container = new ORidBitmapContainer(null, bitmap, cardinality);
+    if (cardinality <= ARRAY_MAX_SIZE)
+      container.convertToArray();
+
+    return container;
+  }
+
+  private long[] toBitmap() {
+    if (bitmap != null)
+      return bitmap.clone();
+
+    final long[] result = new long[BITMAP_WORDS];
+    for (int i = 0; i < cardinality; i++)
+      result[array[i] >>> 6] |= 1L << array[i];
+
+    return result;
+  }
+
+  private void convertToBitmap() {
+    bitmap = toBitmap();
+    array = null;
+  }
+
+  private void convertToArray() {
+    final char[] result = new char[Math.max(cardinality, 4)];
+    int size = 0;
+    final ValueIterator iterator = iterator();
+    while (iterator.hasNext())
+      result[size++] = (char) iterator.next();
+
+    array = result;
+    bitmap = null;
+  }
+
+  /**
+   * Iterates over values of the container in ascending order without boxing.
+   */
+  public final class ValueIterator {
+    private int index = 0;
+    private int word  = 0;
+    private long bits = bitmap != null ? bitmap[0] : 0;
+
+    public boolean hasNext() {
+      if (bitmap == null)
+        return index < cardinality;
+
+      while (bits == 0 && word < BITMAP_WORDS - 1)
+        bits = bitmap[++word];
+
+      return bits != 0;
+    }
+
+    public int next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      if (bitmap == null)
+        return array[index++];
+
+      final int value = (word << 6) + Long.numberOfTrailingZeros(bits);
+      bits &= bits - 1;
+      return value;
+    }
+  }
+}
@@ -0,0 +1,488 @@
+/*
+ *
+ *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientechnologies.com
+ *
+ */
+
+package com.orientechnologies.orient.core.index.engine;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.common.serialization.types.OBinaryTypeSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.index.OIndexAbstractCursor;
+import com.orientechnologies.orient.core.index.OIndexCursor;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexEngine;
+import com.orientechnologies.orient.core.index.OIndexException;
+import com.orientechnologies.orient.core.index.OIndexKeyCursor;
+import com.orientechnologies.orient.core.index.bitmap.ORidBitmap;
+import com.orientechnologies.orient.core.index.bitmap.ORidBitmapContainer;
+import com.orientechnologies.orient.core.index.sbtree.local.OSBTree;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index engine which keeps RIDs of each key as {@link ORidBitmap}. Every chunk of the bitmap is stored as separate entry of
+ * SBTree whose key is the index key followed by cluster id and the highest bits of cluster position, so adding or removing of
+ * single RID rewrites only one container of at most 8 kilobytes, and all chunks of the key are read by single range scan.
+ * <p>
+ * Values of this engine are {@link ORidBitmap} instances. Null keys are not supported, index which uses this engine always ignores
+ * null values.
+ *
+ * @since 19.05.17
+ */
+public class OBitmapIndexEngine implements OIndexEngine {
+  public static final int VERSION = 1;
+
+  private final OSBTree<Object, byte[]> sbTree;
+  private final int                     version;
+  private final String                  name;
+
+  private volatile int keySize;
+
+  public OBitmapIndexEngine(String name, Boolean durableInNonTxMode, OAbstractPaginatedStorage storage, int version) {
+    this.name = name;
+    boolean durableInNonTx;
+
+    if (durableInNonTxMode == null)
+      durableInNonTx = OGlobalConfiguration.INDEX_DURABLE_IN_NON_TX_MODE.getValueAsBoolean();
+    else
+      durableInNonTx = durableInNonTxMode;
+
+    this.version = version;
+
+    sbTree = new OSBTree<Object, byte[]>(name, OSBTreeIndexEngine.DATA_FILE_EXTENSION, durableInNonTx,
+        OSBTreeIndexEngine.NULL_BUCKET_FILE_EXTENSION, storage);
+  }
+
+  @Override
+  public void init(String indexName, String indexType, OIndexDefinition indexDefinition, boolean isAutomatic, ODocument metadata) {
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public void flush() {
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  @Override
+  public void create(OBinarySerializer valueSerializer, boolean isAutomatic, OType[] keyTypes, boolean nullPointerSupport,
+      OBinarySerializer keySerializer, int keySize, Set<String> clustersToIndex, Map<String, String> engineProperties,
+      ODocument metadata) {
+    if (keyTypes == null || keyTypes.length == 0)
+      throw new OIndexException("Bitmap index '" + name + "' requires types of indexed keys");
+    if (nullPointerSupport)
+      throw new OIndexException("Bitmap index '" + name + "' does not support null keys");
+
+    this.keySize = keyTypes.length;
+    sbTree.create((OBinarySerializer) OCompositeKeySerializer.INSTANCE, OBinaryTypeSerializer.INSTANCE, chunkKeyTypes(keyTypes),
+        keyTypes.length + 2, false);
+  }
+
+  @Override
+  public void delete() {
+    sbTree.delete();
+  }
+
+  @Override
+  public void deleteWithoutLoad(String indexName) {
+    sbTree.deleteWithoutLoad(indexName);
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  @Override
+  public void load(String indexName, OBinarySerializer valueSerializer, boolean isAutomatic, OBinarySerializer keySerializer,
+      OType[] keyTypes, boolean nullPointerSupport, int keySize, Map<String, String> engineProperties) {
+    if (keyTypes == null || keyTypes.length == 0)
+      throw new OIndexException("Bitmap index '" + indexName + "' requires types of indexed keys");
+
+    this.keySize = keyTypes.length;
+    sbTree.load(indexName, (OBinarySerializer) OCompositeKeySerializer.INSTANCE, OBinaryTypeSerializer.INSTANCE,
+        chunkKeyTypes(keyTypes), keyTypes.length + 2, false);
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    final OCompositeKey prefix = new OCompositeKey(key);
+    return sbTree.iterateEntriesBetween(prefix, true, prefix, true, true).next(1) != null;
+  }
+
+  @Override
+  public boolean remove(Object key) {
+    final List<Object> chunkKeys = new ArrayList<Object>();
+
+    final OCompositeKey prefix = new OCompositeKey(key);
+    final OSBTree.OSBTreeCursor<Object, byte[]> cursor = sbTree.iterateEntriesBetween(prefix, true, prefix, true, true);
+    Map.Entry<Object, byte[]> entry = cursor.next(-1);
+    while (entry != null) {
+      chunkKeys.add(entry.getKey());
+      entry = cursor.next(-1);
+    }
+
+    for (Object chunkKey : chunkKeys)
+      sbTree.remove(chunkKey);
+
+    return !chunkKeys.isEmpty();
+  }
+
+  @Override
+  public int getVersion() {
+    return version;
+  }
+
+  @Override
+  public void clear() {
+    sbTree.clear();
+  }
+
+  @Override
+  public void close() {
+    sbTree.close();
+  }
+
+  /**
+   * @return {@link ORidBitmap} of RIDs indexed by the key or <code>null</code> if there are no such RIDs.
+   */
+  @Override
+  public Object get(Object key) {
+    final ORidBitmap bitmap = new ORidBitmap();
+
+    final OCompositeKey prefix = new OCompositeKey(key);
+    final OSBTree.OSBTreeCursor<Object, byte[]> cursor = sbTree.iterateEntriesBetween(prefix, true, prefix, true, true);
+    Map.Entry<Object, byte[]> entry = cursor.next(-1);
+    while (entry != null) {
+      bitmap.setContainer(bitmapChunkKey((OCompositeKey) entry.getKey()), ORidBitmapContainer.fromBytes(entry.getValue()));
+      entry = cursor.next(-1);
+    }
+
+    return bitmap.isEmpty() ? null : bitmap;
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    final Map<Object, Object> result = new HashMap<Object, Object>();
+    for (Object key : keys) {
+      final Object value = get(key);
+      if (value != null)
+        result.put(key, value);
+    }
+
+    return result;
+  }
+
+  /**
+   * Replaces all RIDs of the key by given ones.
+   */
+  @Override
+  public void put(Object key, Object value) {
+    remove(key);
+
+    @SuppressWarnings("unchecked")
+    final Collection<OIdentifiable> rids = (Collection<OIdentifiable>) value;
+    final ORidBitmap bitmap = rids instanceof ORidBitmap ? (ORidBitmap) rids : new ORidBitmap(rids);
+
+    for (Map.Entry<Long, ORidBitmapContainer> chunk : bitmap.getContainers().entrySet())
+      sbTree.put(chunkKey(key, chunk.getKey()), chunk.getValue().toBytes());
+  }
+
+  /**
+   * Adds RID to the bitmap of the key, only the chunk which contains this RID is updated.
+   *
+   * @return <code>true</code> if RID was not indexed by the key before.
+   */
+  public boolean add(Object key, ORID rid) {
+    final long bitmapChunkKey = ORidBitmap.chunkKey(rid.getClusterId(), rid.getClusterPosition());
+    final OCompositeKey chunkKey = chunkKey(key, bitmapChunkKey);
+
+    final byte[] stream = sbTree.get(chunkKey);
+    final ORidBitmapContainer container = stream != null ? ORidBitmapContainer.fromBytes(stream) : new ORidBitmapContainer();
+
+    if (!container.add(ORidBitmap.lowBits(rid.getClusterPosition())))
+      return false;
+
+    sbTree.put(chunkKey, container.toBytes());
+    return true;
+  }
+
+  /**
+   * Removes RID from the bitmap of the key, only the chunk which contains this RID is updated.
+   *
+   * @return <code>true</code> if RID was indexed by the key.
+   */
+  public boolean remove(Object key, ORID rid) {
+    final long bitmapChunkKey = ORidBitmap.chunkKey(rid.getClusterId(), rid.getClusterPosition());
+    final OCompositeKey chunkKey = chunkKey(key, bitmapChunkKey);
+
+    final byte[] stream = sbTree.get(chunkKey);
+    if (stream == null)
+      return false;
+
+    final ORidBitmapContainer container = ORidBitmapContainer.fromBytes(stream);
+    if (!container.remove(ORidBitmap.lowBits(rid.getClusterPosition())))
+      return false;
+
+    if (container.isEmpty())
+      sbTree.remove(chunkKey);
+    else
+      sbTree.put(chunkKey, container.toBytes());
+
+    return true;
+  }
+
+  /**
+   * Adds RID to the bitmap of the key if validator allows it, RID itself is passed to the validator as the old value if it is
+   * already indexed by the key.
+   *
+   * @return {@code true} if the validator allowed the put, {@code false} otherwise.
+   */
+  @Override
+  public boolean validatedPut(Object key, OIdentifiable value, Validator<Object, OIdentifiable> validator) {
+    final ORID rid = value.getIdentity();
+    final long bitmapChunkKey = ORidBitmap.chunkKey(rid.getClusterId(), rid.getClusterPosition());
+
+    final byte[] stream = sbTree.get(chunkKey(key, bitmapChunkKey));
+    final boolean indexed =
+        stream != null && ORidBitmapContainer.fromBytes(stream).contains(ORidBitmap.lowBits(rid.getClusterPosition()));
+
+    final Object result = validator.validate(key, indexed ? value : null, value);
+    if (result == Validator.IGNORE)
+      return false;
+
+    add(key, ((OIdentifiable) result).getIdentity());
+    return true;
+  }
+
+  @Override
+  public Object getFirstKey() {
+    final Object firstKey = sbTree.firstKey();
+    return firstKey != null ? indexKey((OCompositeKey) firstKey) : null;
+  }
+
+  @Override
+  public Object getLastKey() {
+    final Object lastKey = sbTree.lastKey();
+    return lastKey != null ? indexKey((OCompositeKey) lastKey) : null;
+  }
+
+  @Override
+  public OIndexCursor iterateEntriesBetween(Object rangeFrom, boolean fromInclusive, Object rangeTo, boolean toInclusive,
+      boolean ascSortOrder, ValuesTransformer transformer) {
+    return new OBitmapIndexCursor(sbTree
+        .iterateEntriesBetween(new OCompositeKey(rangeFrom), fromInclusive, new OCompositeKey(rangeTo), toInclusive, ascSortOrder));
+  }
+
+  @Override
+  public OIndexCursor iterateEntriesMajor(Object fromKey, boolean isInclusive, boolean ascSortOrder,
+      ValuesTransformer transformer) {
+    return new OBitmapIndexCursor(sbTree.iterateEntriesMajor(new OCompositeKey(fromKey), isInclusive, ascSortOrder));
+  }
+
+  @Override
+  public OIndexCursor iterateEntriesMinor(Object toKey, boolean isInclusive, boolean ascSortOrder, ValuesTransformer transformer) {
+    return new OBitmapIndexCursor(sbTree.iterateEntriesMinor(new OCompositeKey(toKey), isInclusive, ascSortOrder));
+  }
+
+  @Override
+  public OIndexCursor cursor(ValuesTransformer valuesTransformer) {
+    final Object firstKey = sbTree.firstKey();
+    if (firstKey == null)
+      return new NullCursor();
+
+    return new OBitmapIndexCursor(sbTree.iterateEntriesMajor(firstKey, true, true));
+  }
+
+  @Override
+  public OIndexCursor descCursor(ValuesTransformer valuesTransformer) {
+    final Object lastKey = sbTree.lastKey();
+    if (lastKey == null)
+      return new NullCursor();
+
+    return new OBitmapIndexCursor(sbTree.iterateEntriesMinor(lastKey, true, false));
+  }
+
+  @Override
+  public OIndexKeyCursor keyCursor() {
+    return new OIndexKeyCursor() {
+      private final OSBTree.OSBTreeKeyCursor<Object> sbTreeKeyCursor = sbTree.keyCursor();
+      private Object prevKey;
+
+      @Override
+      public Object next(int prefetchSize) {
+        Object chunkKey = sbTreeKeyCursor.next(prefetchSize);
+        while (chunkKey != null) {
+          final Object key = indexKey((OCompositeKey) chunkKey);
+          if (prevKey == null || ODefaultComparator.INSTANCE.compare(prevKey, key) != 0) {
+            prevKey = key;
+            return key;
+          }
+
+          chunkKey = sbTreeKeyCursor.next(prefetchSize);
+        }
+
+        return null;
+      }
+    };
+  }
+
+  /**
+   * @return amount of distinct keys if transformer is <code>null</code>, amount of indexed RIDs otherwise.
+   */
+  @Override
+  public long size(ValuesTransformer transformer) {
+    final Object firstKey = sbTree.firstKey();
+    final Object lastKey = sbTree.lastKey();
+    if (firstKey == null || lastKey == null)
+      return 0;
+
+    long counter = 0;
+    Object prevKey = null;
+
+    final OSBTree.OSBTreeCursor<Object, byte[]> cursor = sbTree.iterateEntriesBetween(firstKey, true, lastKey, true, true);
+    Map.Entry<Object, byte[]> entry = cursor.next(-1);
+    while (entry != null) {
+      if (transformer != null)
+        counter += ORidBitmapContainer.getCardinality(entry.getValue());
+      else {
+        final Object key = indexKey((OCompositeKey) entry.getKey());
+        if (prevKey == null || ODefaultComparator.INSTANCE.compare(prevKey, key) != 0)
+          counter++;
+
+        prevKey = key;
+      }
+
+      entry = cursor.next(-1);
+    }
+
+    return counter;
+  }
+
+  @Override
+  public boolean hasRangeQuerySupport() {
+    return true;
+  }
+
+  @Override
+  public boolean acquireAtomicExclusiveLock(Object key) {
+    sbTree.acquireAtomicExclusiveLock();
+    return true;
+  }
+
+  @Override
+  public String getIndexNameByKey(Object key) {
+    return name;
+  }
+
+  private static OType[] chunkKeyTypes(OType[] keyTypes) {
+    final OType[] chunkKeyTypes = new OType[keyTypes.length + 2];
+    System.arraycopy(keyTypes, 0, chunkKeyTypes, 0, keyTypes.length);
+    chunkKeyTypes[keyTypes.length] = OType.INTEGER;
+    chunkKeyTypes[keyTypes.length + 1] = OType.LONG;
+    return chunkKeyTypes;
+  }
+
+  private static OCompositeKey chunkKey(Object key, long bitmapChunkKey) {
+    final OCompositeKey chunkKey = new OCompositeKey(key);
+    chunkKey.addKey(ORidBitmap.clusterId(bitmapChunkKey));
+    chunkKey.addKey(ORidBitmap.chunk(bitmapChunkKey));
+    return chunkKey;
+  }
+
+  private long bitmapChunkKey(OCompositeKey chunkKey) {
+    final List<Object> keys = chunkKey.getKeys();
+    final int clusterId = ((Number) keys.get(keySize)).intValue();
+    final long chunk = ((Number) keys.get(keySize + 1)).longValue();
+    return ORidBitmap.chunkKey(clusterId, chunk << 16);
+  }
+
+  private Object indexKey(OCompositeKey chunkKey) {
+    final List<Object> keys = chunkKey.getKeys();
+    if (keySize == 1)
+      return keys.get(0);
+
+    return new OCompositeKey(keys.subList(0, keySize));
+  }
+
+  private final class OBitmapIndexCursor extends OIndexAbstractCursor {
+    private final OSBTree.OSBTreeCursor<Object, byte[]> treeCursor;
+
+    private ORidBitmapContainer.ValueIterator valueIterator;
+    private Object                            currentKey;
+    private long                              currentChunkKey;
+
+    private OBitmapIndexCursor(OSBTree.OSBTreeCursor<Object, byte[]> treeCursor) {
+      this.treeCursor = treeCursor;
+    }
+
+    @Override
+    public Map.Entry<Object, OIdentifiable> nextEntry() {
+      while (valueIterator == null || !valueIterator.hasNext()) {
+        final Map.Entry<Object, byte[]> entry = treeCursor.next(getPrefetchSize());
+        if (entry == null)
+          return null;
+
+        final OCompositeKey chunkKey = (OCompositeKey) entry.getKey();
+        currentKey = indexKey(chunkKey);
+        currentChunkKey = bitmapChunkKey(chunkKey);
+        valueIterator = ORidBitmapContainer.fromBytes(entry.getValue()).iterator();
+      }
+
+      final Object key = currentKey;
+      final OIdentifiable value = ORidBitmap.toRid(currentChunkKey, valueIterator.next());
+
+      return new Map.Entry<Object, OIdentifiable>() {
+        @Override
+        public Object getKey() {
+          return key;
+        }
+
+        @Override
+        public OIdentifiable getValue() {
+          return value;
+        }
+
+        @Override
+        public OIdentifiable setValue(OIdentifiable value) {
+          throw new UnsupportedOperationException("setValue");
+        }
+      };
+    }
+  }
+
+  private static class NullCursor extends OIndexAbstractCursor {
+    @Override
+    public Map.Entry<Object, OIdentifiable> nextEntry() {
+      return null;
+    }
+  }
+}
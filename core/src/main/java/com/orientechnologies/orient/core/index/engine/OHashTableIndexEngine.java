@@ -32,6 +32,7 @@ import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
@@ -145,6 +146,11 @@ public final class OHashTableIndexEngine implements OIndexEngine {
     return hashTable.get(key);
   }
 
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    return hashTable.getAll(keys);
+  }
+
   @Override
   public void put(Object key, Object value) {
     hashTable.put(key, value);
@@ -25,6 +25,8 @@ import com.orientechnologies.orient.core.index.*;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -99,6 +101,11 @@ public class ORemoteIndexEngine implements OIndexEngine {
     return null;
   }
 
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    return Collections.emptyMap();
+  }
+
   @Override
   public void put(Object key, Object value) {
   }
@@ -30,6 +30,7 @@ import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -128,6 +129,11 @@ public class OSBTreeIndexEngine implements OIndexEngine {
     return sbTree.get(key);
   }
 
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    return sbTree.getAll(keys);
+  }
+
   @Override
   public OIndexCursor cursor(ValuesTransformer valuesTransformer) {
     final Object firstKey = sbTree.firstKey();
@@ -163,6 +169,15 @@ public class OSBTreeIndexEngine implements OIndexEngine {
     sbTree.put(key, value);
   }
 
+  /**
+   * Loads entries sorted by key into the empty index.
+   *
+   * @see OSBTree#bulkLoad(Iterator)
+   */
+  public long bulkLoad(Iterator<Map.Entry<Object, Object>> entries) {
+    return sbTree.bulkLoad(entries);
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public boolean validatedPut(Object key, OIdentifiable value, Validator<Object, OIdentifiable> validator) {
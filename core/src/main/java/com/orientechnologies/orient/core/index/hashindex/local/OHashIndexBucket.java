@@ -56,6 +56,11 @@ public class OHashIndexBucket<K, V> extends ODurablePage implements Iterable<OHa
   private final OType[]              keyTypes;
   private final Comparator keyComparator = ODefaultComparator.INSTANCE;
 
+  /**
+   * Whether offsets and sizes read from the page are checked before data are deserialized, see {@link #checkBounds(int, int)}.
+   */
+  private final boolean checkBounds;
+
   @SuppressFBWarnings("EI_EXPOSE_REP2")
   public OHashIndexBucket(int depth, OCacheEntry cacheEntry, OBinarySerializer<K> keySerializer,
       OBinarySerializer<V> valueSerializer, OType[] keyTypes, OWALChanges changes) throws IOException {
@@ -64,18 +69,29 @@ public class OHashIndexBucket<K, V> extends ODurablePage implements Iterable<OHa
     this.keySerializer = keySerializer;
     this.valueSerializer = valueSerializer;
     this.keyTypes = keyTypes;
+    this.checkBounds = false;
 
     init(depth);
   }
 
-  @SuppressFBWarnings("EI_EXPOSE_REP2")
   public OHashIndexBucket(OCacheEntry cacheEntry, OBinarySerializer<K> keySerializer, OBinarySerializer<V> valueSerializer,
       OType[] keyTypes, OWALChanges changes) {
+    this(cacheEntry, keySerializer, valueSerializer, keyTypes, changes, false);
+  }
+
+  /**
+   * @param checkBounds if <code>true</code> offsets and sizes of data read from the page are checked before data are deserialized,
+   *                    should be used when page is read without page lock and concurrent change may be seen half done.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP2")
+  public OHashIndexBucket(OCacheEntry cacheEntry, OBinarySerializer<K> keySerializer, OBinarySerializer<V> valueSerializer,
+      OType[] keyTypes, OWALChanges changes, boolean checkBounds) {
     super(cacheEntry, changes);
 
     this.keySerializer = keySerializer;
     this.valueSerializer = valueSerializer;
     this.keyTypes = keyTypes;
+    this.checkBounds = checkBounds;
   }
 
   public void init(int depth) throws IOException {
@@ -129,27 +145,27 @@ public class OHashIndexBucket<K, V> extends ODurablePage implements Iterable<OHa
   }
 
   public Entry<K, V> getEntry(int index) {
-    int entryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE);
+    int entryPosition = getEntryPosition(index);
 
     final long hashCode = getLongValue(entryPosition);
     entryPosition += OLongSerializer.LONG_SIZE;
 
-    final K key = deserializeFromDirectMemory(keySerializer, entryPosition);
+    final K key = readKey(entryPosition);
     entryPosition += getObjectSizeInDirectMemory(keySerializer, entryPosition);
 
-    final V value = deserializeFromDirectMemory(valueSerializer, entryPosition);
+    final V value = readValue(entryPosition);
     return new Entry<K, V>(key, value, hashCode);
   }
 
   public long getHashCode(int index) {
-    int entryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE);
+    int entryPosition = getEntryPosition(index);
     return getLongValue(entryPosition);
   }
 
   public K getKey(int index) {
-    int entryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE);
+    int entryPosition = getEntryPosition(index);
 
-    return deserializeFromDirectMemory(keySerializer, entryPosition + OLongSerializer.LONG_SIZE);
+    return readKey(entryPosition + OLongSerializer.LONG_SIZE);
   }
 
   /**
@@ -160,7 +176,7 @@ public class OHashIndexBucket<K, V> extends ODurablePage implements Iterable<OHa
    * @return the obtained value.
    */
   public V getValue(int index) {
-    int entryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE);
+    int entryPosition = getEntryPosition(index);
 
     // skip hash code
     entryPosition += OLongSerializer.LONG_SIZE;
@@ -168,7 +184,41 @@ public class OHashIndexBucket<K, V> extends ODurablePage implements Iterable<OHa
     // skip key
     entryPosition += getObjectSizeInDirectMemory(keySerializer, entryPosition);
 
-    return deserializeFromDirectMemory(valueSerializer, entryPosition);
+    return readValue(entryPosition);
+  }
+
+  private int getEntryPosition(int index) {
+    final int positionOffset = POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE;
+    checkBounds(positionOffset, OIntegerSerializer.INT_SIZE);
+
+    final int entryPosition = getIntValue(positionOffset);
+    checkBounds(entryPosition, OLongSerializer.LONG_SIZE);
+
+    return entryPosition;
+  }
+
+  private K readKey(int keyPosition) {
+    if (checkBounds)
+      checkBounds(keyPosition, getObjectSizeInDirectMemory(keySerializer, keyPosition));
+
+    return deserializeFromDirectMemory(keySerializer, keyPosition);
+  }
+
+  private V readValue(int valuePosition) {
+    if (checkBounds)
+      checkBounds(valuePosition, getObjectSizeInDirectMemory(valueSerializer, valuePosition));
+
+    return deserializeFromDirectMemory(valueSerializer, valuePosition);
+  }
+
+  /**
+   * Page which is read without page lock may be changed in the middle of the read, so offsets and sizes read from it may be broken.
+   * They are checked before data are deserialized, to not allocate memory for arbitrary sizes, data which are read from changed
+   * page are discarded anyway once stamp of the hash table is validated.
+   */
+  private void checkBounds(int offset, int size) {
+    if (checkBounds && (offset < POSITIONS_ARRAY_OFFSET || size < 0 || (long) offset + size > MAX_BUCKET_SIZE_BYTES))
+      throw new IllegalStateException("Data of size " + size + " at offset " + offset + " do not fit into the page");
   }
 
   public int getIndex(final long hashCode, final K key) {
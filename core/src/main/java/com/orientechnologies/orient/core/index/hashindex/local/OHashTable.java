@@ -26,7 +26,9 @@ import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.Map;
 
 /**
  * Created by lomak_000 on 15.04.2015.
@@ -45,6 +47,15 @@ public interface OHashTable<K, V> {
 
   V get(K key);
 
+  /**
+   * Returns values of several keys at once, keys which are stored in the same bucket are found by single read of the bucket.
+   *
+   * @param keys keys to look up.
+   *
+   * @return map of requested keys to their values, keys which are absent in the hash table are absent in the map too.
+   */
+  Map<K, V> getAll(Collection<? extends K> keys);
+
   void put(K key, V value);
 
   /**
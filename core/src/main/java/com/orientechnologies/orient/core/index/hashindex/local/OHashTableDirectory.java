@@ -590,6 +590,32 @@ public class OHashTableDirectory extends ODurableComponent {
     }
   }
 
+  /**
+   * Version of {@link #getNodeLocalDepth(int)} which does not acquire component and page locks, it is used by optimistic reads of
+   * {@link OLocalHashTable} which share lock of the directory and validate stamp of the component once read completes.
+   */
+  byte getNodeLocalDepthOptimistic(int nodeIndex) throws IOException {
+    final ODirectoryPage page = loadPageOptimistic(nodeIndex);
+    try {
+      return page.getNodeLocalDepth(getLocalNodeIndex(nodeIndex));
+    } finally {
+      releasePage(null, page.getEntry());
+    }
+  }
+
+  /**
+   * Version of {@link #getNodePointer(int, int)} which does not acquire component and page locks, see {@link
+   * #getNodeLocalDepthOptimistic(int)}.
+   */
+  long getNodePointerOptimistic(int nodeIndex, int index) throws IOException {
+    final ODirectoryPage page = loadPageOptimistic(nodeIndex);
+    try {
+      return page.getPointer(getLocalNodeIndex(nodeIndex), index);
+    } finally {
+      releasePage(null, page.getEntry());
+    }
+  }
+
   public void setNodePointer(int nodeIndex, int index, long pointer) throws IOException {
     startOperation();
     try {
@@ -686,6 +712,24 @@ public class OHashTableDirectory extends ODurableComponent {
     return new ODirectoryPage(cacheEntry, getChanges(atomicOperation, cacheEntry), cacheEntry);
   }
 
+  private ODirectoryPage loadPageOptimistic(int nodeIndex) throws IOException {
+    if (nodeIndex < ODirectoryFirstPage.NODES_PER_PAGE) {
+      final OCacheEntry cacheEntry = loadPage(null, fileId, firstEntryIndex, true);
+      if (cacheEntry == null)
+        throw new OHashTableDirectoryException("Page of node " + nodeIndex + " is absent", this);
+
+      return new ODirectoryFirstPage(cacheEntry, null, cacheEntry);
+    }
+
+    final int pageIndex = nodeIndex / ODirectoryPage.NODES_PER_PAGE;
+    final OCacheEntry cacheEntry = loadPage(null, fileId, pageIndex, true);
+    // index of the node may be read from the page which is being changed, such index is discarded by validation of the read
+    if (cacheEntry == null)
+      throw new OHashTableDirectoryException("Page of node " + nodeIndex + " is absent", this);
+
+    return new ODirectoryPage(cacheEntry, null, cacheEntry);
+  }
+
   private void releasePage(ODirectoryPage page, boolean exclusiveLock, OAtomicOperation atomicOperation) {
     final OCacheEntry cacheEntry = page.getEntry();
     final OCachePointer cachePointer = cacheEntry.getCachePointer();
@@ -21,8 +21,13 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of hash index which is based on <a href="http://en.wikipedia.org/wiki/Extendible_hashing">extendible hashing
@@ -87,6 +92,8 @@ public class OLocalHashTable<K, V> extends ODurableComponent implements OHashTab
   private static final long HASH_CODE_MIN_VALUE = 0;
   private static final long HASH_CODE_MAX_VALUE = 0xFFFFFFFFFFFFFFFFL;
 
+  private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
   private final String metadataConfigurationFileExtension;
   private final String treeStateFileExtension;
 
@@ -117,6 +124,8 @@ public class OLocalHashTable<K, V> extends ODurableComponent implements OHashTab
 
   private final boolean durableInNonTxMode;
 
+  private final boolean optimisticReads = OGlobalConfiguration.HASH_TABLE_OPTIMISTIC_READS.getValueAsBoolean();
+
   public OLocalHashTable(String name, String metadataConfigurationFileExtension, String treeStateFileExtension,
       String bucketFileExtension, String nullBucketFileExtension, OHashFunction<K> keyHashFunction, boolean durableInNonTxMode,
       OAbstractPaginatedStorage abstractPaginatedStorage) {
@@ -187,6 +196,9 @@ public class OLocalHashTable<K, V> extends ODurableComponent implements OHashTab
             nullBucketFileId = addFile(atomicOperation, getName() + nullBucketFileExtension);
 
           endAtomicOperation(false, null);
+
+          if (optimisticReads)
+            atomicOperationsManager.registerComponentSeqLock(this);
         } catch (IOException e) {
           endAtomicOperation(true, e);
           throw e;
@@ -316,12 +328,117 @@ public class OLocalHashTable<K, V> extends ODurableComponent implements OHashTab
     }
   }
 
+  @Override
+  public Map<K, V> getAll(Collection<? extends K> keys) {
+    final Map<K, V> result = new HashMap<K, V>();
+
+    final List<K> notNullKeys = new ArrayList<K>(keys.size());
+    for (K key : keys) {
+      if (key == null) {
+        final V nullValue = get(null);
+        if (nullValue != null)
+          result.put(null, nullValue);
+      } else
+        notNullKeys.add(key);
+    }
+
+    if (notNullKeys.isEmpty())
+      return result;
+
+    final OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
+    startOperation();
+    if (statistic != null)
+      statistic.startIndexEntryReadTimer();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+
+          final List<KeyToFind<K>> keysToFind = new ArrayList<KeyToFind<K>>(notNullKeys.size());
+          for (K key : notNullKeys) {
+            final K preprocessedKey = keySerializer.preprocess(key, (Object[]) keyTypes);
+            final long hashCode = keyHashFunction.hashCode(preprocessedKey);
+
+            final OHashTable.BucketPath bucketPath = getBucket(hashCode);
+            final long bucketPointer = directory
+                .getNodePointer(bucketPath.nodeIndex, bucketPath.itemIndex + bucketPath.hashMapOffset);
+
+            if (bucketPointer != 0)
+              keysToFind.add(new KeyToFind<K>(key, preprocessedKey, hashCode, getPageIndex(bucketPointer)));
+          }
+
+          // keys which are stored in the same bucket are looked up one after another, so bucket page is loaded only once
+          Collections.sort(keysToFind, new Comparator<KeyToFind<K>>() {
+            @Override
+            public int compare(KeyToFind<K> keyOne, KeyToFind<K> keyTwo) {
+              if (keyOne.pageIndex < keyTwo.pageIndex)
+                return -1;
+              if (keyOne.pageIndex > keyTwo.pageIndex)
+                return 1;
+
+              return 0;
+            }
+          });
+
+          OCacheEntry cacheEntry = null;
+          try {
+            OHashIndexBucket<K, V> bucket = null;
+
+            for (KeyToFind<K> keyToFind : keysToFind) {
+              if (cacheEntry == null || cacheEntry.getPageIndex() != keyToFind.pageIndex) {
+                if (cacheEntry != null) {
+                  cacheEntry.releaseSharedLock();
+                  releasePage(atomicOperation, cacheEntry);
+                  cacheEntry = null;
+                }
+
+                cacheEntry = loadPage(atomicOperation, fileId, keyToFind.pageIndex, false);
+                cacheEntry.acquireSharedLock();
+                bucket = new OHashIndexBucket<K, V>(cacheEntry, keySerializer, valueSerializer, keyTypes,
+                    getChanges(atomicOperation, cacheEntry));
+              }
+
+              final OHashIndexBucket.Entry<K, V> entry = bucket.find(keyToFind.preprocessedKey, keyToFind.hashCode);
+              if (entry != null)
+                result.put(keyToFind.key, entry.value);
+            }
+          } finally {
+            if (cacheEntry != null) {
+              cacheEntry.releaseSharedLock();
+              releasePage(atomicOperation, cacheEntry);
+            }
+          }
+
+          return result;
+        } finally {
+          releaseSharedLock();
+        }
+      } catch (IOException e) {
+        throw OException.wrapException(new OIndexException("Exception during index value retrieval"), e);
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      if (statistic != null)
+        statistic.stopIndexEntryReadTimer();
+      completeOperation();
+    }
+  }
+
   public V get(K key) {
     final OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
     startOperation();
     if (statistic != null)
       statistic.startIndexEntryReadTimer();
     try {
+      if (key != null) {
+        final OptimisticValue<V> optimisticValue = getOptimistically(key);
+        if (optimisticValue != null)
+          return optimisticValue.value;
+      }
+
       atomicOperationsManager.acquireReadLock(this);
       try {
         acquireSharedLock();
@@ -696,6 +813,9 @@ public class OLocalHashTable<K, V> extends ODurableComponent implements OHashTab
           nullBucketFileId = openFile(atomicOperation, name + nullBucketFileExtension);
 
         fileId = openFile(atomicOperation, getFullName());
+
+        if (optimisticReads)
+          atomicOperationsManager.registerComponentSeqLock(this);
       } catch (IOException e) {
         throw OException.wrapException(new OLocalHashTableException("Exception during hash table loading", this), e);
       } finally {
@@ -739,6 +859,8 @@ public class OLocalHashTable<K, V> extends ODurableComponent implements OHashTab
         }
 
         endAtomicOperation(false, null);
+
+        atomicOperationsManager.unregisterComponentSeqLock(this);
       } catch (IOException ioe) {
         rollback(ioe);
         throw OException.wrapException(new OLocalHashTableException("Cannot delete hash table with name " + name, this), ioe);
@@ -1328,6 +1450,8 @@ public class OLocalHashTable<K, V> extends ODurableComponent implements OHashTab
     try {
       acquireExclusiveLock();
       try {
+        atomicOperationsManager.unregisterComponentSeqLock(this);
+
         flush();
 
         directory.close();
@@ -1364,6 +1488,8 @@ public class OLocalHashTable<K, V> extends ODurableComponent implements OHashTab
           deleteFile(atomicOperation, nullBucketFileId);
 
         endAtomicOperation(false, null);
+
+        atomicOperationsManager.unregisterComponentSeqLock(this);
       } catch (IOException e) {
         rollback(e);
         throw OException.wrapException(new OLocalHashTableException("Exception during index deletion", this), e);
@@ -2066,6 +2192,113 @@ public class OLocalHashTable<K, V> extends ODurableComponent implements OHashTab
     throw new IllegalStateException("Extendible hashing tree in corrupted state.");
   }
 
+  /**
+   * Version of {@link #getBucket(long)} which does not acquire locks of directory, should be called only inside of {@link
+   * #getOptimistically(Object)}.
+   *
+   * @return path to the bucket or <code>null</code> if directory is changed by concurrent writer.
+   */
+  private OHashTable.BucketPath getBucketOptimistic(final long hashCode) throws IOException {
+    int localNodeDepth = directory.getNodeLocalDepthOptimistic(0);
+    int nodeDepth = localNodeDepth;
+    OHashTable.BucketPath parentNode = null;
+    int nodeIndex = 0;
+    int offset = 0;
+
+    int index = (int) ((hashCode >>> (HASH_CODE_SIZE - nodeDepth)) & (LEVEL_MASK >>> (MAX_LEVEL_DEPTH - localNodeDepth)));
+    OHashTable.BucketPath currentNode = new OHashTable.BucketPath(null, 0, index, 0, localNodeDepth, nodeDepth);
+    int levels = 0;
+    do {
+      final long position = directory.getNodePointerOptimistic(nodeIndex, index + offset);
+      if (position >= 0)
+        return currentNode;
+
+      // depth of the node read from the node which is being changed may be zero, so amount of levels is limited explicitly
+      if (++levels > HASH_CODE_SIZE)
+        return null;
+
+      nodeIndex = (int) ((position & Long.MAX_VALUE) >>> 8);
+      offset = (int) (position & 0xFF);
+
+      localNodeDepth = directory.getNodeLocalDepthOptimistic(nodeIndex);
+      nodeDepth += localNodeDepth;
+
+      index = (int) ((hashCode >>> (HASH_CODE_SIZE - nodeDepth)) & (LEVEL_MASK >>> (MAX_LEVEL_DEPTH - localNodeDepth)));
+
+      parentNode = currentNode;
+      currentNode = new OHashTable.BucketPath(parentNode, offset, index, nodeIndex, localNodeDepth, nodeDepth);
+    } while (nodeDepth <= HASH_CODE_SIZE);
+
+    return null;
+  }
+
+  /**
+   * Looks up value of the not null key without acquiring of component and page locks, so lookups do not wait for writers which
+   * split buckets and add nodes to the directory. Changes of atomic operation are applied to the pages only when operation is
+   * completed, so only stamp of the hash table, which is shared with its directory, is validated once read completes. If
+   * validation fails read is repeated, after {@link #OPTIMISTIC_READ_ATTEMPTS} failures or if hash table is modified by atomic
+   * operation at the moment <code>null</code> is returned and caller falls back to the read under locks.
+   * <p>
+   * Optimistic reads are not used inside of atomic operations, because changes of atomic operation are not visible to them.
+   *
+   * @return value of the key wrapped in {@link OptimisticValue}, which contains <code>null</code> if the key is absent, or
+   * <code>null</code> if value has to be read under locks.
+   */
+  private OptimisticValue<V> getOptimistically(K key) {
+    if (!optimisticReads || directory == null || atomicOperationsManager.getCurrentOperation() != null)
+      return null;
+
+    for (int i = 0; i < OPTIMISTIC_READ_ATTEMPTS; i++) {
+      final long stamp = atomicOperationsManager.tryOptimisticRead(this);
+      if (stamp < 0)
+        return null;
+
+      final OptimisticValue<V> result;
+      try {
+        result = readValueOptimistic(key);
+      } catch (Throwable e) {
+        //data which were read from changed page may be broken, if hash table was not changed read is repeated under locks,
+        //which reports the error or waits till hash table is created
+        if (atomicOperationsManager.validateOptimisticRead(this, stamp))
+          return null;
+
+        continue;
+      }
+
+      if (result != null && atomicOperationsManager.validateOptimisticRead(this, stamp))
+        return result;
+    }
+
+    return null;
+  }
+
+  private OptimisticValue<V> readValueOptimistic(K key) throws IOException {
+    final K preprocessedKey = keySerializer.preprocess(key, (Object[]) keyTypes);
+    final long hashCode = keyHashFunction.hashCode(preprocessedKey);
+
+    final OHashTable.BucketPath bucketPath = getBucketOptimistic(hashCode);
+    if (bucketPath == null)
+      return null;
+
+    final long bucketPointer = directory
+        .getNodePointerOptimistic(bucketPath.nodeIndex, bucketPath.itemIndex + bucketPath.hashMapOffset);
+    if (bucketPointer == 0)
+      return new OptimisticValue<V>(null);
+
+    final OCacheEntry cacheEntry = loadPage(null, fileId, getPageIndex(bucketPointer), false);
+    if (cacheEntry == null)
+      return null;
+
+    try {
+      final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(cacheEntry, keySerializer, valueSerializer, keyTypes, null,
+          true);
+      final OHashIndexBucket.Entry<K, V> entry = bucket.find(preprocessedKey, hashCode);
+      return new OptimisticValue<V>(entry == null ? null : entry.value);
+    } finally {
+      releasePage(null, cacheEntry);
+    }
+  }
+
   @Override
   protected void startOperation() {
     OSessionStoragePerformanceStatistic sessionStoragePerformanceStatistic = performanceStatisticManager
@@ -2075,4 +2308,33 @@ public class OLocalHashTable<K, V> extends ODurableComponent implements OHashTab
           .startComponentOperation(getFullName(), OSessionStoragePerformanceStatistic.ComponentType.INDEX);
     }
   }
+
+  /**
+   * Key requested by {@link #getAll(Collection)} together with its hash code and index of the page of the bucket where it may be
+   * stored.
+   */
+  private static final class KeyToFind<K> {
+    private final K    key;
+    private final K    preprocessedKey;
+    private final long hashCode;
+    private final long pageIndex;
+
+    private KeyToFind(K key, K preprocessedKey, long hashCode, long pageIndex) {
+      this.key = key;
+      this.preprocessedKey = preprocessedKey;
+      this.hashCode = hashCode;
+      this.pageIndex = pageIndex;
+    }
+  }
+
+  /**
+   * Value found by {@link #getOptimistically(Object)}, <code>null</code> value means that key is absent.
+   */
+  private static final class OptimisticValue<V> {
+    private final V value;
+
+    private OptimisticValue(V value) {
+      this.value = value;
+    }
+  }
 }
@@ -36,7 +36,10 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 /**
  * Implementation of hash index which is based on <a href="http://en.wikipedia.org/wiki/Extendible_hashing">extendible hashing
@@ -319,6 +322,18 @@ public class OLocalHashTable20<K, V> extends ODurableComponent implements OHashT
     page.setFileMetadata(fileLevel, fileId, 0, -1);
   }
 
+  @Override
+  public Map<K, V> getAll(Collection<? extends K> keys) {
+    final Map<K, V> result = new HashMap<K, V>();
+    for (K key : keys) {
+      final V value = get(key);
+      if (value != null)
+        result.put(key, value);
+    }
+
+    return result;
+  }
+
   @Override
   public V get(K key) {
     atomicOperationsManager.acquireReadLock(this);
@@ -81,6 +81,10 @@ public class OSBTree<K, V> extends ODurableComponent {
 
   private static final int MAX_PATH_LENGTH = OGlobalConfiguration.SBTREE_MAX_DEPTH.getValueAsInteger();
 
+  private static final int BULK_LOAD_PAGES_PER_OPERATION = 256;
+
+  private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
   private final static long                  ROOT_INDEX = 0;
   private final        Comparator<? super K> comparator = ODefaultComparator.INSTANCE;
   private final String  nullFileExtension;
@@ -93,6 +97,8 @@ public class OSBTree<K, V> extends ODurableComponent {
   private OBinarySerializer<V> valueSerializer;
   private boolean              nullPointerSupport;
 
+  private final boolean optimisticReads = OGlobalConfiguration.SBTREE_OPTIMISTIC_READS.getValueAsBoolean();
+
   public OSBTree(String name, String dataFileExtension, boolean durableInNonTxMode, String nullFileExtension,
       OAbstractPaginatedStorage storage) {
     super(storage, name, dataFileExtension, name + dataFileExtension);
@@ -150,6 +156,9 @@ public class OSBTree<K, V> extends ODurableComponent {
         }
 
         endAtomicOperation(false, null);
+
+        if (optimisticReads)
+          atomicOperationsManager.registerComponentSeqLock(this);
       } catch (IOException e) {
         try {
           endAtomicOperation(true, e);
@@ -181,12 +190,24 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
-  public V get(K key) {
+  public V get(final K key) {
     final OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
     startOperation();
     if (statistic != null)
       statistic.startIndexEntryReadTimer();
     try {
+      if (key != null) {
+        final OSBTreeValue<V> treeValue = readOptimistically(new OptimisticRead<OSBTreeValue<V>>() {
+          @Override
+          public OSBTreeValue<V> read(long stamp) throws IOException {
+            return getOptimistic(keySerializer.preprocess(key, (Object[]) keyTypes));
+          }
+        });
+
+        if (treeValue != null)
+          return treeValue.getValue();
+      }
+
       atomicOperationsManager.acquireReadLock(this);
       try {
         acquireSharedLock();
@@ -195,9 +216,9 @@ public class OSBTree<K, V> extends ODurableComponent {
 
           OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
           if (key != null) {
-            key = keySerializer.preprocess(key, (Object[]) keyTypes);
+            final K preprocessedKey = keySerializer.preprocess(key, (Object[]) keyTypes);
 
-            BucketSearchResult bucketSearchResult = findBucket(key, atomicOperation);
+            BucketSearchResult bucketSearchResult = findBucket(preprocessedKey, atomicOperation);
             if (bucketSearchResult.itemIndex < 0)
               return null;
 
@@ -248,6 +269,123 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
+  /**
+   * Returns values of several keys at once. Keys are sorted and looked up in a single pass, keys which are placed in the same or
+   * in the adjacent leaf bucket as the previous key are found without descent from the root of the tree.
+   *
+   * @param keys keys to look up, may contain <code>null</code> if null keys are supported.
+   *
+   * @return map of requested keys to their values, keys which are absent in the tree are absent in the map too.
+   */
+  public Map<K, V> getAll(final Collection<? extends K> keys) {
+    final Map<K, V> result = new HashMap<K, V>();
+
+    final List<KeyToFind<K>> keysToFind = new ArrayList<KeyToFind<K>>(keys.size());
+    for (K key : keys) {
+      if (key == null) {
+        final V nullValue = get(null);
+        if (nullValue != null)
+          result.put(null, nullValue);
+      } else
+        keysToFind.add(new KeyToFind<K>(key, keySerializer.preprocess(key, (Object[]) keyTypes)));
+    }
+
+    if (keysToFind.isEmpty())
+      return result;
+
+    Collections.sort(keysToFind, new Comparator<KeyToFind<K>>() {
+      @Override
+      public int compare(KeyToFind<K> keyOne, KeyToFind<K> keyTwo) {
+        return comparator.compare(keyOne.preprocessedKey, keyTwo.preprocessedKey);
+      }
+    });
+
+    final OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
+    startOperation();
+    if (statistic != null)
+      statistic.startIndexEntryReadTimer();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+
+          OCacheEntry leafCacheEntry = null;
+          try {
+            OSBTreeBucket<K, V> leaf = null;
+
+            for (KeyToFind<K> keyToFind : keysToFind) {
+              final K key = keyToFind.preprocessedKey;
+
+              if (leaf != null && !isNotAfterLastKey(leaf, key)) {
+                final long rightSibling = leaf.getRightSibling();
+
+                leafCacheEntry.releaseSharedLock();
+                releasePage(atomicOperation, leafCacheEntry);
+                leafCacheEntry = null;
+                leaf = null;
+
+                if (rightSibling >= 0) {
+                  leafCacheEntry = loadPage(atomicOperation, fileId, rightSibling, false);
+                  leafCacheEntry.acquireSharedLock();
+                  leaf = new OSBTreeBucket<K, V>(leafCacheEntry, keySerializer, keyTypes, valueSerializer,
+                      getChanges(atomicOperation, leafCacheEntry));
+
+                  if (!isNotAfterLastKey(leaf, key)) {
+                    leafCacheEntry.releaseSharedLock();
+                    releasePage(atomicOperation, leafCacheEntry);
+                    leafCacheEntry = null;
+                    leaf = null;
+                  }
+                }
+              }
+
+              if (leaf == null) {
+                final BucketSearchResult bucketSearchResult = findBucket(key, atomicOperation);
+
+                leafCacheEntry = loadPage(atomicOperation, fileId, bucketSearchResult.getLastPathItem(), false);
+                leafCacheEntry.acquireSharedLock();
+                leaf = new OSBTreeBucket<K, V>(leafCacheEntry, keySerializer, keyTypes, valueSerializer,
+                    getChanges(atomicOperation, leafCacheEntry));
+              }
+
+              final int index = leaf.find(key);
+              if (index >= 0)
+                result.put(keyToFind.key, readValue(leaf.getValue(index), atomicOperation));
+            }
+          } finally {
+            if (leafCacheEntry != null) {
+              leafCacheEntry.releaseSharedLock();
+              releasePage(atomicOperation, leafCacheEntry);
+            }
+          }
+
+          return result;
+        } finally {
+          releaseSharedLock();
+        }
+      } catch (IOException e) {
+        throw OException.wrapException(new OSBTreeException("Error during retrieving  of sbtree with name " + getName(), this), e);
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      if (statistic != null)
+        statistic.stopIndexEntryReadTimer();
+      completeOperation();
+    }
+  }
+
+  /**
+   * @return <code>true</code> if given key is not greater than the last key of the bucket, so if key is stored in the tree and all
+   * keys which precede it are stored in this or in the previous buckets, key can be stored only in this bucket.
+   */
+  private boolean isNotAfterLastKey(OSBTreeBucket<K, V> bucket, K key) {
+    final int size = bucket.size();
+    return size > 0 && comparator.compare(key, bucket.getKey(size - 1)) <= 0;
+  }
+
   public void put(K key, V value) {
     put(key, value, null);
   }
@@ -267,11 +405,71 @@ public class OSBTree<K, V> extends ODurableComponent {
     return put(key, value, validator);
   }
 
+  /**
+   * Loads entries into the tree which does not contain any not null key. Entries have to be sorted in ascending order of their keys,
+   * keys have to be unique and not null.
+   * <p>
+   * Tree is built bottom-up instead of insertion of entries one by one. Leaf buckets are filled by entries sequentially, then each
+   * non-leaf level is built from the first keys of buckets of the level below, so buckets are never split and all of them except of
+   * the last bucket of each level are full. Pages are written by series of atomic operations which contain not more than {@link
+   * #BULK_LOAD_PAGES_PER_OPERATION} pages each, so memory consumed by atomic operation does not depend on amount of loaded entries.
+   * New buckets are not reachable till the last atomic operation copies the top bucket into the root, so if load fails tree stays
+   * empty.
+   * <p>
+   * If entries were put into the tree by other threads during the load, loaded entries are put into the tree one by one and pages
+   * built by the load are returned into the free list.
+   *
+   * @param entries Entries sorted by key in ascending order.
+   *
+   * @return Amount of loaded entries.
+   */
+  public long bulkLoad(Iterator<Map.Entry<K, V>> entries) {
+    startOperation();
+    try {
+      final BulkLoad bulkLoad = new BulkLoad();
+      try {
+        bulkLoad.begin();
+
+        final List<BulkLoadItem<K>> leaves = bulkLoad.loadLeaves(entries);
+        final List<BulkLoadItem<K>> nonLeafBuckets = new ArrayList<BulkLoadItem<K>>();
+
+        List<BulkLoadItem<K>> level = leaves;
+        while (level.size() > 1) {
+          level = bulkLoad.loadNonLeafLevel(level);
+          nonLeafBuckets.addAll(level);
+        }
+
+        final boolean copiedIntoRoot = level.isEmpty() || bulkLoad.copyIntoRoot(level.get(0).pageIndex);
+        bulkLoad.end();
+
+        if (!copiedIntoRoot) {
+          putLoadedEntries(leaves.get(0).pageIndex);
+
+          bulkLoad.begin();
+          bulkLoad.freeLoadedPages(leaves, nonLeafBuckets);
+          bulkLoad.end();
+        }
+
+        return bulkLoad.loadedEntries;
+      } catch (IOException e) {
+        bulkLoad.rollback(e);
+        throw OException.wrapException(new OSBTreeException("Error during bulk load of sbtree with name " + getName(), this), e);
+      } catch (RuntimeException e) {
+        bulkLoad.rollback(e);
+        throw e;
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
   public void close(boolean flush) {
     startOperation();
     try {
       acquireExclusiveLock();
       try {
+        atomicOperationsManager.unregisterComponentSeqLock(this);
+
         readCache.closeFile(fileId, flush, writeCache);
 
         if (nullPointerSupport)
@@ -359,6 +557,8 @@ public class OSBTree<K, V> extends ODurableComponent {
           deleteFile(atomicOperation, nullBucketFileId);
 
         endAtomicOperation(false, null);
+
+        atomicOperationsManager.unregisterComponentSeqLock(this);
       } catch (IOException e) {
         rollback(e);
         throw OException.wrapException(new OSBTreeException("Error during delete of sbtree with name " + getName(), this), e);
@@ -396,6 +596,8 @@ public class OSBTree<K, V> extends ODurableComponent {
         }
 
         endAtomicOperation(false, null);
+
+        atomicOperationsManager.unregisterComponentSeqLock(this);
       } catch (IOException ioe) {
         rollback(ioe);
         throw OException.wrapException(new OSBTreeException("Exception during deletion of sbtree " + getName(), this), ioe);
@@ -432,6 +634,9 @@ public class OSBTree<K, V> extends ODurableComponent {
 
         this.keySerializer = keySerializer;
         this.valueSerializer = valueSerializer;
+
+        if (optimisticReads)
+          atomicOperationsManager.registerComponentSeqLock(this);
       } catch (IOException e) {
         throw OException.wrapException(new OSBTreeException("Exception during loading of sbtree " + name, this), e);
       } finally {
@@ -567,13 +772,25 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
-  public OSBTreeCursor<K, V> iterateEntriesMinor(K key, boolean inclusive, boolean ascSortOrder) {
+  public OSBTreeCursor<K, V> iterateEntriesMinor(final K key, final boolean inclusive, boolean ascSortOrder) {
     final OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
 
     startOperation();
     if (statistic != null)
       statistic.startIndexEntryReadTimer();
     try {
+      if (!ascSortOrder) {
+        final OSBTreeCursor<K, V> cursor = readOptimistically(new OptimisticRead<OSBTreeCursor<K, V>>() {
+          @Override
+          public OSBTreeCursor<K, V> read(long stamp) throws IOException {
+            return iterateEntriesMinorDesc(key, inclusive, null, true);
+          }
+        });
+
+        if (cursor != null)
+          return cursor;
+      }
+
       atomicOperationsManager.acquireReadLock(this);
       try {
         acquireSharedLock();
@@ -581,7 +798,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
 
           if (!ascSortOrder)
-            return iterateEntriesMinorDesc(key, inclusive, atomicOperation);
+            return iterateEntriesMinorDesc(key, inclusive, atomicOperation, false);
 
           return iterateEntriesMinorAsc(key, inclusive, atomicOperation);
         } finally {
@@ -600,12 +817,24 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
-  public OSBTreeCursor<K, V> iterateEntriesMajor(K key, boolean inclusive, boolean ascSortOrder) {
+  public OSBTreeCursor<K, V> iterateEntriesMajor(final K key, final boolean inclusive, boolean ascSortOrder) {
     final OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
     startOperation();
     if (statistic != null)
       statistic.startIndexEntryReadTimer();
     try {
+      if (ascSortOrder) {
+        final OSBTreeCursor<K, V> cursor = readOptimistically(new OptimisticRead<OSBTreeCursor<K, V>>() {
+          @Override
+          public OSBTreeCursor<K, V> read(long stamp) throws IOException {
+            return iterateEntriesMajorAsc(key, inclusive, null, true);
+          }
+        });
+
+        if (cursor != null)
+          return cursor;
+      }
+
       atomicOperationsManager.acquireReadLock(this);
       try {
         acquireSharedLock();
@@ -613,7 +842,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
 
           if (ascSortOrder)
-            return iterateEntriesMajorAsc(key, inclusive, atomicOperation);
+            return iterateEntriesMajorAsc(key, inclusive, atomicOperation, false);
 
           return iterateEntriesMajorDesc(key, inclusive, atomicOperation);
         } finally {
@@ -755,22 +984,35 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
-  public OSBTreeCursor<K, V> iterateEntriesBetween(K keyFrom, boolean fromInclusive, K keyTo, boolean toInclusive,
-      boolean ascSortOrder) {
+  public OSBTreeCursor<K, V> iterateEntriesBetween(final K keyFrom, final boolean fromInclusive, final K keyTo,
+      final boolean toInclusive, final boolean ascSortOrder) {
     final OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
     startOperation();
     if (statistic != null)
       statistic.startIndexEntryReadTimer();
     try {
+      final OSBTreeCursor<K, V> cursor = readOptimistically(new OptimisticRead<OSBTreeCursor<K, V>>() {
+        @Override
+        public OSBTreeCursor<K, V> read(long stamp) throws IOException {
+          if (ascSortOrder)
+            return iterateEntriesBetweenAscOrder(keyFrom, fromInclusive, keyTo, toInclusive, null, true);
+          else
+            return iterateEntriesBetweenDescOrder(keyFrom, fromInclusive, keyTo, toInclusive, null, true);
+        }
+      });
+
+      if (cursor != null)
+        return cursor;
+
       atomicOperationsManager.acquireReadLock(this);
       try {
         acquireSharedLock();
         try {
           OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
           if (ascSortOrder)
-            return iterateEntriesBetweenAscOrder(keyFrom, fromInclusive, keyTo, toInclusive, atomicOperation);
+            return iterateEntriesBetweenAscOrder(keyFrom, fromInclusive, keyTo, toInclusive, atomicOperation, false);
           else
-            return iterateEntriesBetweenDescOrder(keyFrom, fromInclusive, keyTo, toInclusive, atomicOperation);
+            return iterateEntriesBetweenDescOrder(keyFrom, fromInclusive, keyTo, toInclusive, atomicOperation, false);
         } finally {
           releaseSharedLock();
         }
@@ -1011,6 +1253,32 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
+  private void putLoadedEntries(long leafPageIndex) throws IOException {
+    while (leafPageIndex >= 0) {
+      final List<K> keys = new ArrayList<K>();
+      final List<V> values = new ArrayList<V>();
+
+      final OCacheEntry cacheEntry = loadPage(null, fileId, leafPageIndex, false);
+      cacheEntry.acquireSharedLock();
+      try {
+        final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer, null);
+
+        for (int i = 0; i < bucket.size(); i++) {
+          keys.add(bucket.getKey(i));
+          values.add(readValue(bucket.getValue(i), null));
+        }
+
+        leafPageIndex = bucket.getRightSibling();
+      } finally {
+        cacheEntry.releaseSharedLock();
+        releasePage(null, cacheEntry);
+      }
+
+      for (int i = 0; i < keys.size(); i++)
+        put(keys.get(i), values.get(i));
+    }
+  }
+
   private void removeLinkedValue(long removedLink, OAtomicOperation atomicOperation) throws IOException {
     long nextPage = removedLink;
     do {
@@ -1195,12 +1463,14 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
-  private OSBTreeCursor<K, V> iterateEntriesMinorDesc(K key, boolean inclusive, OAtomicOperation atomicOperation)
-      throws IOException {
+  private OSBTreeCursor<K, V> iterateEntriesMinorDesc(K key, boolean inclusive, OAtomicOperation atomicOperation,
+      boolean optimistic) throws IOException {
     key = keySerializer.preprocess(key, (Object[]) keyTypes);
     key = enhanceCompositeKeyMinorDesc(key, inclusive);
 
-    BucketSearchResult bucketSearchResult = findBucket(key, atomicOperation);
+    BucketSearchResult bucketSearchResult = optimistic ? findBucketOptimistic(key) : findBucket(key, atomicOperation);
+    if (bucketSearchResult == null)
+      return null;
 
     long pageIndex = bucketSearchResult.getLastPathItem();
     int index;
@@ -1261,12 +1531,14 @@ public class OSBTree<K, V> extends ODurableComponent {
     return key;
   }
 
-  private OSBTreeCursor<K, V> iterateEntriesMajorAsc(K key, boolean inclusive, OAtomicOperation atomicOperation)
-      throws IOException {
+  private OSBTreeCursor<K, V> iterateEntriesMajorAsc(K key, boolean inclusive, OAtomicOperation atomicOperation,
+      boolean optimistic) throws IOException {
     key = keySerializer.preprocess(key, (Object[]) keyTypes);
     key = enhanceCompositeKeyMajorAsc(key, inclusive);
 
-    BucketSearchResult bucketSearchResult = findBucket(key, atomicOperation);
+    BucketSearchResult bucketSearchResult = optimistic ? findBucketOptimistic(key) : findBucket(key, atomicOperation);
+    if (bucketSearchResult == null)
+      return null;
 
     long pageIndex = bucketSearchResult.getLastPathItem();
     int index;
@@ -1470,14 +1742,16 @@ public class OSBTree<K, V> extends ODurableComponent {
   }
 
   private OSBTreeCursor<K, V> iterateEntriesBetweenAscOrder(K keyFrom, boolean fromInclusive, K keyTo, boolean toInclusive,
-      OAtomicOperation atomicOperation) throws IOException {
+      OAtomicOperation atomicOperation, boolean optimistic) throws IOException {
     keyFrom = keySerializer.preprocess(keyFrom, (Object[]) keyTypes);
     keyTo = keySerializer.preprocess(keyTo, (Object[]) keyTypes);
 
     keyFrom = enhanceFromCompositeKeyBetweenAsc(keyFrom, fromInclusive);
     keyTo = enhanceToCompositeKeyBetweenAsc(keyTo, toInclusive);
 
-    BucketSearchResult bucketSearchResultFrom = findBucket(keyFrom, atomicOperation);
+    BucketSearchResult bucketSearchResultFrom = optimistic ? findBucketOptimistic(keyFrom) : findBucket(keyFrom, atomicOperation);
+    if (bucketSearchResultFrom == null)
+      return null;
 
     long pageIndexFrom = bucketSearchResultFrom.getLastPathItem();
 
@@ -1492,14 +1766,16 @@ public class OSBTree<K, V> extends ODurableComponent {
   }
 
   private OSBTreeCursor<K, V> iterateEntriesBetweenDescOrder(K keyFrom, boolean fromInclusive, K keyTo, boolean toInclusive,
-      OAtomicOperation atomicOperation) throws IOException {
+      OAtomicOperation atomicOperation, boolean optimistic) throws IOException {
     keyFrom = keySerializer.preprocess(keyFrom, (Object[]) keyTypes);
     keyTo = keySerializer.preprocess(keyTo, (Object[]) keyTypes);
 
     keyFrom = enhanceFromCompositeKeyBetweenDesc(keyFrom, fromInclusive);
     keyTo = enhanceToCompositeKeyBetweenDesc(keyTo, toInclusive);
 
-    BucketSearchResult bucketSearchResultTo = findBucket(keyTo, atomicOperation);
+    BucketSearchResult bucketSearchResultTo = optimistic ? findBucketOptimistic(keyTo) : findBucket(keyTo, atomicOperation);
+    if (bucketSearchResultTo == null)
+      return null;
 
     long pageIndexTo = bucketSearchResultTo.getLastPathItem();
 
@@ -1572,7 +1848,10 @@ public class OSBTree<K, V> extends ODurableComponent {
       final int bucketSize = bucketToSplit.size();
 
       int indexToSplit = bucketSize >>> 1;
-      final K separationKey = bucketToSplit.getKey(indexToSplit);
+      K separationKey = bucketToSplit.getKey(indexToSplit);
+      if (splitLeaf && indexToSplit > 0 && bucketToSplit.isPrefixCompressed())
+        separationKey = shortenSeparationKey(bucketToSplit.getKey(indexToSplit - 1), separationKey);
+
       final List<OSBTreeBucket.SBTreeEntry<K, V>> rightEntries = new ArrayList<OSBTreeBucket.SBTreeEntry<K, V>>(indexToSplit);
 
       final int startRightIndex = splitLeaf ? indexToSplit : indexToSplit + 1;
@@ -1593,6 +1872,30 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
+  /**
+   * Separation key of leaf buckets only has to be greater than the last key of the left bucket and not greater than the first key
+   * of the right bucket, so for string keys the shortest prefix of the first key of the right bucket which is still greater than the
+   * last key of the left bucket is used. That keeps more entries in non-leaf buckets.
+   */
+  @SuppressWarnings("unchecked")
+  private K shortenSeparationKey(K leftKey, K rightKey) {
+    if (!(leftKey instanceof String) || !(rightKey instanceof String))
+      return rightKey;
+
+    final String left = (String) leftKey;
+    final String right = (String) rightKey;
+
+    final int length = Math.min(left.length(), right.length());
+    int commonLength = 0;
+    while (commonLength < length && left.charAt(commonLength) == right.charAt(commonLength))
+      commonLength++;
+
+    if (commonLength + 1 >= right.length())
+      return rightKey;
+
+    return (K) right.substring(0, commonLength + 1);
+  }
+
   private BucketSearchResult splitNonRootBucket(List<Long> path, int keyIndex, K keyToInsert, long pageIndex,
       OSBTreeBucket<K, V> bucketToSplit, boolean splitLeaf, int indexToSplit, K separationKey,
       List<OSBTreeBucket.SBTreeEntry<K, V>> rightEntries, OAtomicOperation atomicOperation) throws IOException {
@@ -1794,6 +2097,149 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
+  /**
+   * Version of {@link #findBucket(Object, OAtomicOperation)} which does not acquire page locks, should be called only inside of
+   * {@link #readOptimistically(OptimisticRead)}.
+   *
+   * @return result of the search or <code>null</code> if one of the pages was changed while it was read.
+   */
+  private BucketSearchResult findBucketOptimistic(K key) throws IOException {
+    long pageIndex = ROOT_INDEX;
+    final ArrayList<Long> path = new ArrayList<Long>();
+
+    while (true) {
+      if (path.size() > MAX_PATH_LENGTH)
+        return null;
+
+      path.add(pageIndex);
+      final OCacheEntry bucketEntry = loadPage(null, fileId, pageIndex, false);
+      if (bucketEntry == null)
+        return null;
+
+      final OSBTreeBucket.SBTreeEntry<K, V> entry;
+      try {
+        final long pageStamp = bucketEntry.tryOptimisticRead();
+        if (pageStamp < 0)
+          return null;
+
+        final OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(bucketEntry, keySerializer, keyTypes, valueSerializer, null,
+            true);
+        final int index = keyBucket.find(key);
+
+        if (keyBucket.isLeaf()) {
+          if (!bucketEntry.validateOptimisticRead(pageStamp))
+            return null;
+
+          return new BucketSearchResult(index, path);
+        }
+
+        if (index >= 0)
+          entry = keyBucket.getEntry(index);
+        else {
+          final int insertionIndex = -index - 1;
+          if (insertionIndex >= keyBucket.size())
+            entry = keyBucket.getEntry(insertionIndex - 1);
+          else
+            entry = keyBucket.getEntry(insertionIndex);
+        }
+
+        if (!bucketEntry.validateOptimisticRead(pageStamp))
+          return null;
+      } finally {
+        releasePage(null, bucketEntry);
+      }
+
+      if (comparator.compare(key, entry.key) >= 0)
+        pageIndex = entry.rightChild;
+      else
+        pageIndex = entry.leftChild;
+    }
+  }
+
+  /**
+   * Looks up value of the key without acquiring of page locks, should be called only inside of {@link
+   * #readOptimistically(OptimisticRead)}.
+   *
+   * @return value of the key wrapped in {@link OSBTreeValue}, which contains <code>null</code> if the key is absent, or
+   * <code>null</code> if one of the pages was changed while it was read.
+   */
+  private OSBTreeValue<V> getOptimistic(K key) throws IOException {
+    final BucketSearchResult bucketSearchResult = findBucketOptimistic(key);
+    if (bucketSearchResult == null)
+      return null;
+
+    if (bucketSearchResult.itemIndex < 0)
+      return new OSBTreeValue<V>(false, -1, null);
+
+    final OCacheEntry keyBucketCacheEntry = loadPage(null, fileId, bucketSearchResult.getLastPathItem(), false);
+    if (keyBucketCacheEntry == null)
+      return null;
+
+    final OSBTreeValue<V> treeValue;
+    try {
+      final long pageStamp = keyBucketCacheEntry.tryOptimisticRead();
+      if (pageStamp < 0)
+        return null;
+
+      final OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketCacheEntry, keySerializer, keyTypes, valueSerializer,
+          null, true);
+      treeValue = keyBucket.getValue(bucketSearchResult.itemIndex);
+
+      if (!keyBucketCacheEntry.validateOptimisticRead(pageStamp))
+        return null;
+    } finally {
+      releasePage(null, keyBucketCacheEntry);
+    }
+
+    return new OSBTreeValue<V>(false, -1, readValue(treeValue, null));
+  }
+
+  /**
+   * Performs read of tree data without acquiring of component and page locks, so readers do not modify shared state and do not
+   * contend with each other. Pages are still pinned in read cache while they are read.
+   * <p>
+   * Each page is read after stamp of the page is taken and is validated after it is read, so data which are read from page which
+   * was changed by concurrent writer are discarded. Because atomic operation applies changes of pages one by one, stamp of the whole
+   * tree is validated once read completes too. If validation fails read is repeated, after {@link #OPTIMISTIC_READ_ATTEMPTS}
+   * failures or if tree is modified by atomic operation at the moment <code>null</code> is returned and caller falls back to the
+   * read under locks.
+   * <p>
+   * Optimistic reads are not used inside of atomic operations, because changes of atomic operation are not visible to them.
+   *
+   * @return result of the read or <code>null</code> if data have to be read under locks.
+   */
+  private <T> T readOptimistically(OptimisticRead<T> optimisticRead) {
+    if (!optimisticReads || atomicOperationsManager.getCurrentOperation() != null)
+      return null;
+
+    for (int i = 0; i < OPTIMISTIC_READ_ATTEMPTS; i++) {
+      final long stamp = atomicOperationsManager.tryOptimisticRead(this);
+      if (stamp < 0)
+        return null;
+
+      final T result;
+      try {
+        result = optimisticRead.read(stamp);
+      } catch (Throwable e) {
+        //data which were read from changed page may be broken, exception is thrown only if tree was not changed
+        if (!atomicOperationsManager.validateOptimisticRead(this, stamp))
+          continue;
+
+        if (e instanceof RuntimeException)
+          throw (RuntimeException) e;
+        if (e instanceof Error)
+          throw (Error) e;
+
+        throw OException.wrapException(new OSBTreeException("Error during reading of sbtree with name " + getName(), this), e);
+      }
+
+      if (result != null && atomicOperationsManager.validateOptimisticRead(this, stamp))
+        return result;
+    }
+
+    return null;
+  }
+
   private K enhanceCompositeKey(K key, PartialSearchMode partialSearchMode) {
     if (!(key instanceof OCompositeKey))
       return key;
@@ -1899,6 +2345,18 @@ public class OSBTree<K, V> extends ODurableComponent {
     Map.Entry<K, V> next(int prefetchSize);
   }
 
+  /**
+   * Read of tree data performed by {@link #readOptimistically(OptimisticRead)}.
+   */
+  private interface OptimisticRead<T> {
+    /**
+     * @param stamp stamp of the tree taken before the read, may be validated during long reads to stop them earlier.
+     *
+     * @return result of the read or <code>null</code> if one of the pages was changed while it was read.
+     */
+    T read(long stamp) throws IOException;
+  }
+
   public interface OSBTreeKeyCursor<K> {
     K next(int prefetchSize);
   }
@@ -1917,6 +2375,19 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
+  /**
+   * Key requested by {@link #getAll(Collection)} and its preprocessed version which is used for search.
+   */
+  private static final class KeyToFind<K> {
+    private final K key;
+    private final K preprocessedKey;
+
+    private KeyToFind(K key, K preprocessedKey) {
+      this.key = key;
+      this.preprocessedKey = preprocessedKey;
+    }
+  }
+
   private static final class PagePathItemUnit {
     private final long pageIndex;
     private final int  itemIndex;
@@ -1927,48 +2398,386 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
-  public class OSBTreeFullKeyCursor implements OSBTreeKeyCursor<K> {
-    private long pageIndex;
-    private int  itemIndex;
-
-    private List<K>     keysCache    = new ArrayList<K>();
-    private Iterator<K> keysIterator = new OEmptyIterator<K>();
+  /**
+   * Bucket written during bulk load and the first key of the subtree of this bucket.
+   */
+  private static final class BulkLoadItem<K> {
+    private final long pageIndex;
+    private final K    key;
 
-    public OSBTreeFullKeyCursor(long startPageIndex) {
-      pageIndex = startPageIndex;
-      itemIndex = 0;
+    private BulkLoadItem(long pageIndex, K key) {
+      this.pageIndex = pageIndex;
+      this.key = key;
     }
+  }
 
-    @Override
-    public K next(int prefetchSize) {
-      final OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
-      startOperation();
-      if (statistic != null)
-        statistic.startIndexEntryReadTimer();
-      try {
-        if (keysIterator == null)
-          return null;
+  /**
+   * State of bulk load, holds current atomic operation and exclusive lock of the tree. Both are released after every {@link
+   * #BULK_LOAD_PAGES_PER_OPERATION} added pages, to keep the same order of acquisition of locks as other operations do.
+   */
+  private final class BulkLoad {
+    private OAtomicOperation atomicOperation;
+    private boolean          locked;
+    private int              pagesInOperation;
+    private long             loadedEntries;
+
+    private void begin() throws IOException {
+      atomicOperation = startAtomicOperation(true);
+      acquireExclusiveLock();
+      locked = true;
+      pagesInOperation = 0;
 
-        if (keysIterator.hasNext())
-          return keysIterator.next();
+      // pages may be added to the file before any page of it is loaded in this atomic operation
+      getFilledUpTo(atomicOperation, fileId);
+    }
 
-        keysCache.clear();
+    private void end() throws IOException {
+      locked = false;
+      releaseExclusiveLock();
 
-        if (prefetchSize < 0 || prefetchSize > OGlobalConfiguration.INDEX_CURSOR_PREFETCH_SIZE.getValueAsInteger())
-          prefetchSize = OGlobalConfiguration.INDEX_CURSOR_PREFETCH_SIZE.getValueAsInteger();
+      endAtomicOperation(false, null);
+      atomicOperation = null;
+    }
 
-        if (prefetchSize == 0)
-          prefetchSize = 1;
+    private void rollback(Exception e) {
+      if (locked) {
+        locked = false;
+        releaseExclusiveLock();
+      }
 
-        atomicOperationsManager.acquireReadLock(OSBTree.this);
-        try {
-          acquireSharedLock();
-          try {
-            OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+      if (atomicOperation != null) {
+        atomicOperation = null;
+        OSBTree.this.rollback(e);
+      }
+    }
 
-            while (keysCache.size() < prefetchSize) {
-              if (pageIndex == -1)
-                break;
+    private List<BulkLoadItem<K>> loadLeaves(Iterator<Map.Entry<K, V>> entries) throws IOException {
+      final List<BulkLoadItem<K>> leaves = new ArrayList<BulkLoadItem<K>>();
+
+      OCacheEntry leafCacheEntry = null;
+      OSBTreeBucket<K, V> leafBucket = null;
+      K lastKey = null;
+
+      try {
+        while (entries.hasNext()) {
+          final Map.Entry<K, V> entry = entries.next();
+          if (entry.getKey() == null)
+            throw new OSBTreeException("Null keys can not be bulk loaded", OSBTree.this);
+
+          final K key = keySerializer.preprocess(entry.getKey(), (Object[]) keyTypes);
+          final V value = entry.getValue();
+
+          final int keySize = keySerializer.getObjectSize(key, (Object[]) keyTypes);
+          if (keySize > MAX_KEY_SIZE)
+            throw new OTooBigIndexKeyException(
+                "Key size is more than allowed, operation was canceled. Current key size " + keySize + ", allowed  " + MAX_KEY_SIZE,
+                getName());
+
+          if (lastKey != null && comparator.compare(lastKey, key) >= 0)
+            throw new OSBTreeException("Keys of bulk loaded entries have to be unique and sorted in ascending order", OSBTree.this);
+
+          final int valueSize = valueSerializer.getObjectSize(value);
+          final boolean createLinkToTheValue = valueSize > MAX_EMBEDDED_VALUE_SIZE;
+
+          long valueLink = -1;
+          if (createLinkToTheValue) {
+            valueLink = createLinkToTheValue(value, atomicOperation);
+            pagesInOperation += OSBTreeValuePage.calculateAmountOfPage(valueSize);
+          }
+
+          final OSBTreeBucket.SBTreeEntry<K, V> treeEntry = new OSBTreeBucket.SBTreeEntry<K, V>(-1, -1, key,
+              new OSBTreeValue<V>(createLinkToTheValue, valueLink, createLinkToTheValue ? null : value));
+
+          if (leafBucket == null || !leafBucket.addEntry(leafBucket.size(), treeEntry, false)) {
+            K separationKey = key;
+            long leftSibling = -1;
+
+            if (leafBucket != null) {
+              if (leafBucket.isPrefixCompressed())
+                separationKey = shortenSeparationKey(lastKey, key);
+
+              leftSibling = leafCacheEntry.getPageIndex();
+              releaseBucketPage(leafCacheEntry);
+              leafCacheEntry = null;
+            }
+
+            leafCacheEntry = addBucketPage();
+            leafBucket = new OSBTreeBucket<K, V>(leafCacheEntry, true, keySerializer, keyTypes, valueSerializer,
+                getChanges(atomicOperation, leafCacheEntry));
+
+            if (leftSibling >= 0) {
+              leafBucket.setLeftSibling(leftSibling);
+              setRightSibling(leftSibling, leafCacheEntry.getPageIndex());
+            }
+
+            final boolean added = leafBucket.addEntry(0, treeEntry, false);
+            assert added;
+
+            leaves.add(new BulkLoadItem<K>(leafCacheEntry.getPageIndex(), separationKey));
+          }
+
+          lastKey = key;
+          loadedEntries++;
+        }
+      } finally {
+        if (leafCacheEntry != null)
+          releaseBucketPage(leafCacheEntry);
+      }
+
+      return leaves;
+    }
+
+    /**
+     * Builds level of non-leaf buckets which refer to the buckets of the level below.
+     *
+     * @return Buckets of the new level.
+     */
+    private List<BulkLoadItem<K>> loadNonLeafLevel(List<BulkLoadItem<K>> children) throws IOException {
+      final List<BulkLoadItem<K>> level = new ArrayList<BulkLoadItem<K>>();
+
+      OCacheEntry cacheEntry = null;
+      OSBTreeBucket<K, V> bucket = null;
+
+      // the first child of the next bucket, it is known before the first entry of the bucket
+      BulkLoadItem<K> firstChild = children.get(0);
+
+      try {
+        for (int i = 1; i < children.size(); i++) {
+          final BulkLoadItem<K> child = children.get(i);
+          final OSBTreeBucket.SBTreeEntry<K, V> treeEntry = new OSBTreeBucket.SBTreeEntry<K, V>(children.get(i - 1).pageIndex,
+              child.pageIndex, child.key, null);
+
+          if (firstChild == null) {
+            if (bucket.addEntry(bucket.size(), treeEntry, false))
+              continue;
+
+            releaseBucketPage(cacheEntry);
+            cacheEntry = null;
+
+            firstChild = child;
+            continue;
+          }
+
+          cacheEntry = addBucketPage();
+          bucket = new OSBTreeBucket<K, V>(cacheEntry, false, keySerializer, keyTypes, valueSerializer,
+              getChanges(atomicOperation, cacheEntry));
+
+          final boolean added = bucket.addEntry(0, treeEntry, false);
+          assert added;
+
+          level.add(new BulkLoadItem<K>(cacheEntry.getPageIndex(), firstChild.key));
+          firstChild = null;
+        }
+      } finally {
+        if (cacheEntry != null)
+          releaseBucketPage(cacheEntry);
+      }
+
+      if (firstChild != null) {
+        // the last child does not fit into full bucket, so the last entry of that bucket is moved to the new bucket
+        final int lastIndex = children.size() - 1;
+        final BulkLoadItem<K> fullBucket = level.get(level.size() - 1);
+
+        cacheEntry = loadPage(atomicOperation, fileId, fullBucket.pageIndex, false);
+        cacheEntry.acquireExclusiveLock();
+        try {
+          bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
+              getChanges(atomicOperation, cacheEntry));
+
+          assert bucket.size() > 1;
+          bucket.shrink(bucket.size() - 1);
+        } finally {
+          releaseBucketPage(cacheEntry);
+        }
+
+        cacheEntry = addBucketPage();
+        try {
+          bucket = new OSBTreeBucket<K, V>(cacheEntry, false, keySerializer, keyTypes, valueSerializer,
+              getChanges(atomicOperation, cacheEntry));
+
+          final boolean added = bucket.addEntry(0,
+              new OSBTreeBucket.SBTreeEntry<K, V>(children.get(lastIndex - 1).pageIndex, children.get(lastIndex).pageIndex,
+                  children.get(lastIndex).key, null), false);
+          assert added;
+        } finally {
+          releaseBucketPage(cacheEntry);
+        }
+
+        level.add(new BulkLoadItem<K>(cacheEntry.getPageIndex(), children.get(lastIndex - 1).key));
+      }
+
+      return level;
+    }
+
+    /**
+     * Copies entries of the top bucket into the root bucket and returns page of the top bucket into the free list.
+     *
+     * @return <code>false</code> if root bucket is not empty anymore and entries can not be copied.
+     */
+    private boolean copyIntoRoot(long topPageIndex) throws IOException {
+      final OCacheEntry rootCacheEntry = loadPage(atomicOperation, fileId, ROOT_INDEX, false);
+      rootCacheEntry.acquireExclusiveLock();
+      try {
+        OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry, keySerializer, keyTypes, valueSerializer,
+            getChanges(atomicOperation, rootCacheEntry));
+
+        if (!rootBucket.isLeaf() || !rootBucket.isEmpty())
+          return false;
+
+        final long treeSize = rootBucket.getTreeSize();
+        final long freeListPage = rootBucket.getValuesFreeListFirstIndex();
+
+        final List<OSBTreeBucket.SBTreeEntry<K, V>> entries = new ArrayList<OSBTreeBucket.SBTreeEntry<K, V>>();
+        final boolean isLeaf;
+
+        final OCacheEntry topCacheEntry = loadPage(atomicOperation, fileId, topPageIndex, false);
+        topCacheEntry.acquireSharedLock();
+        try {
+          final OSBTreeBucket<K, V> topBucket = new OSBTreeBucket<K, V>(topCacheEntry, keySerializer, keyTypes, valueSerializer,
+              getChanges(atomicOperation, topCacheEntry));
+
+          isLeaf = topBucket.isLeaf();
+          for (int i = 0; i < topBucket.size(); i++)
+            entries.add(topBucket.getEntry(i));
+        } finally {
+          topCacheEntry.releaseSharedLock();
+          releasePage(atomicOperation, topCacheEntry);
+        }
+
+        rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry, isLeaf, keySerializer, keyTypes, valueSerializer,
+            getChanges(atomicOperation, rootCacheEntry));
+
+        rootBucket.setTreeSize(treeSize + loadedEntries);
+        rootBucket.setValuesFreeListFirstIndex(freeListPage);
+        rootBucket.addAll(entries);
+      } finally {
+        rootCacheEntry.releaseExclusiveLock();
+        releasePage(atomicOperation, rootCacheEntry);
+      }
+
+      removeValuePage(topPageIndex, atomicOperation);
+      return true;
+    }
+
+    /**
+     * Returns pages of buckets built by the load and pages of values linked from its leaf buckets into the free list. Used if
+     * built buckets can not be copied into the root, after loaded entries are put into the tree one by one.
+     */
+    private void freeLoadedPages(List<BulkLoadItem<K>> leaves, List<BulkLoadItem<K>> nonLeafBuckets) throws IOException {
+      for (BulkLoadItem<K> leaf : leaves) {
+        final List<Long> links = new ArrayList<Long>();
+
+        final OCacheEntry cacheEntry = loadPage(atomicOperation, fileId, leaf.pageIndex, false);
+        cacheEntry.acquireSharedLock();
+        try {
+          final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
+              getChanges(atomicOperation, cacheEntry));
+
+          for (int i = 0; i < bucket.size(); i++) {
+            final OSBTreeValue<V> value = bucket.getValue(i);
+            if (value.isLink())
+              links.add(value.getLink());
+          }
+        } finally {
+          cacheEntry.releaseSharedLock();
+          releasePage(atomicOperation, cacheEntry);
+        }
+
+        for (long link : links) {
+          countPage();
+          removeLinkedValue(link, atomicOperation);
+        }
+
+        countPage();
+        removeValuePage(leaf.pageIndex, atomicOperation);
+      }
+
+      for (BulkLoadItem<K> bucket : nonLeafBuckets) {
+        countPage();
+        removeValuePage(bucket.pageIndex, atomicOperation);
+      }
+    }
+
+    /**
+     * Starts new atomic operation if current one already contains {@link #BULK_LOAD_PAGES_PER_OPERATION} pages.
+     */
+    private void countPage() throws IOException {
+      if (pagesInOperation >= BULK_LOAD_PAGES_PER_OPERATION) {
+        end();
+        begin();
+      }
+
+      pagesInOperation++;
+    }
+
+    private OCacheEntry addBucketPage() throws IOException {
+      countPage();
+
+      final OCacheEntry cacheEntry = addPage(atomicOperation, fileId);
+      cacheEntry.acquireExclusiveLock();
+      return cacheEntry;
+    }
+
+    private void releaseBucketPage(OCacheEntry cacheEntry) {
+      cacheEntry.releaseExclusiveLock();
+      releasePage(atomicOperation, cacheEntry);
+    }
+
+    private void setRightSibling(long pageIndex, long rightSibling) throws IOException {
+      final OCacheEntry cacheEntry = loadPage(atomicOperation, fileId, pageIndex, false);
+      cacheEntry.acquireExclusiveLock();
+      try {
+        final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
+            getChanges(atomicOperation, cacheEntry));
+        bucket.setRightSibling(rightSibling);
+      } finally {
+        releaseBucketPage(cacheEntry);
+      }
+    }
+  }
+
+  public class OSBTreeFullKeyCursor implements OSBTreeKeyCursor<K> {
+    private long pageIndex;
+    private int  itemIndex;
+
+    private List<K>     keysCache    = new ArrayList<K>();
+    private Iterator<K> keysIterator = new OEmptyIterator<K>();
+
+    public OSBTreeFullKeyCursor(long startPageIndex) {
+      pageIndex = startPageIndex;
+      itemIndex = 0;
+    }
+
+    @Override
+    public K next(int prefetchSize) {
+      final OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
+      startOperation();
+      if (statistic != null)
+        statistic.startIndexEntryReadTimer();
+      try {
+        if (keysIterator == null)
+          return null;
+
+        if (keysIterator.hasNext())
+          return keysIterator.next();
+
+        keysCache.clear();
+
+        if (prefetchSize < 0 || prefetchSize > OGlobalConfiguration.INDEX_CURSOR_PREFETCH_SIZE.getValueAsInteger())
+          prefetchSize = OGlobalConfiguration.INDEX_CURSOR_PREFETCH_SIZE.getValueAsInteger();
+
+        if (prefetchSize == 0)
+          prefetchSize = 1;
+
+        atomicOperationsManager.acquireReadLock(OSBTree.this);
+        try {
+          acquireSharedLock();
+          try {
+            OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+
+            while (keysCache.size() < prefetchSize) {
+              if (pageIndex == -1)
+                break;
 
               if (pageIndex >= getFilledUpTo(atomicOperation, fileId)) {
                 pageIndex = -1;
@@ -1983,6 +2792,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
                 if (itemIndex >= bucket.size()) {
                   pageIndex = bucket.getRightSibling();
+                  readAhead(fileId, pageIndex);
                   itemIndex = 0;
                   continue;
                 }
@@ -2063,61 +2873,20 @@ public class OSBTree<K, V> extends ODurableComponent {
         if (prefetchSize == 0)
           prefetchSize = 1;
 
-        atomicOperationsManager.acquireReadLock(OSBTree.this);
-        try {
-          acquireSharedLock();
+        if (!fetchOptimistically(prefetchSize)) {
+          atomicOperationsManager.acquireReadLock(OSBTree.this);
           try {
-            OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
-
-            while (dataCache.size() < prefetchSize) {
-              if (pageIndex == -1)
-                break;
-
-              if (pageIndex >= getFilledUpTo(atomicOperation, fileId)) {
-                pageIndex = -1;
-                break;
-              }
-
-              final OCacheEntry cacheEntry = loadPage(atomicOperation, fileId, pageIndex, false);
-              cacheEntry.acquireSharedLock();
-              try {
-                final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
-                    getChanges(atomicOperation, cacheEntry));
-
-                if (itemIndex >= bucket.size()) {
-                  pageIndex = bucket.getRightSibling();
-                  itemIndex = 0;
-                  continue;
-                }
-
-                final Map.Entry<K, V> entry = convertToMapEntry(bucket.getEntry(itemIndex), atomicOperation);
-                itemIndex++;
-
-                if (fromKey != null && (fromKeyInclusive ?
-                    comparator.compare(entry.getKey(), fromKey) < 0 :
-                    comparator.compare(entry.getKey(), fromKey) <= 0))
-                  continue;
-
-                if (toKey != null && (toKeyInclusive ?
-                    comparator.compare(entry.getKey(), toKey) > 0 :
-                    comparator.compare(entry.getKey(), toKey) >= 0)) {
-                  pageIndex = -1;
-                  break;
-                }
-
-                dataCache.add(entry);
-              } finally {
-                cacheEntry.releaseSharedLock();
-                releasePage(atomicOperation, cacheEntry);
-              }
+            acquireSharedLock();
+            try {
+              fetchEntries(prefetchSize, atomicOperationsManager.getCurrentOperation(), -1);
+            } finally {
+              releaseSharedLock();
             }
+          } catch (IOException e) {
+            throw OException.wrapException(new OSBTreeException("Error during element iteration", OSBTree.this), e);
           } finally {
-            releaseSharedLock();
+            atomicOperationsManager.releaseReadLock(OSBTree.this);
           }
-        } catch (IOException e) {
-          throw OException.wrapException(new OSBTreeException("Error during element iteration", OSBTree.this), e);
-        } finally {
-          atomicOperationsManager.releaseReadLock(OSBTree.this);
         }
 
         if (dataCache.isEmpty()) {
@@ -2134,6 +2903,116 @@ public class OSBTree<K, V> extends ODurableComponent {
         completeOperation();
       }
     }
+
+    /**
+     * Fetches next entries by {@link #readOptimistically(OptimisticRead)}, position of cursor is restored if they can not be
+     * fetched.
+     *
+     * @return <code>true</code> if entries were fetched.
+     */
+    private boolean fetchOptimistically(final int prefetchSize) {
+      final long startPageIndex = pageIndex;
+      final int startItemIndex = itemIndex;
+
+      final Boolean fetched = readOptimistically(new OptimisticRead<Boolean>() {
+        @Override
+        public Boolean read(long stamp) throws IOException {
+          pageIndex = startPageIndex;
+          itemIndex = startItemIndex;
+          dataCache.clear();
+
+          if (fetchEntries(prefetchSize, null, stamp))
+            return Boolean.TRUE;
+
+          return null;
+        }
+      });
+
+      if (fetched != null)
+        return true;
+
+      pageIndex = startPageIndex;
+      itemIndex = startItemIndex;
+      dataCache.clear();
+
+      return false;
+    }
+
+    /**
+     * @param stamp stamp of optimistic read of the tree or <code>-1</code> if entries are fetched under read locks.
+     *
+     * @return <code>false</code> if entries are fetched optimistically and one of the pages was changed while it was read.
+     */
+    private boolean fetchEntries(int prefetchSize, OAtomicOperation atomicOperation, long stamp) throws IOException {
+      final boolean optimistic = stamp >= 0;
+
+      while (dataCache.size() < prefetchSize) {
+        if (pageIndex == -1)
+          break;
+
+        if (!optimistic && pageIndex >= getFilledUpTo(atomicOperation, fileId)) {
+          pageIndex = -1;
+          break;
+        }
+
+        final OCacheEntry cacheEntry = loadPage(atomicOperation, fileId, pageIndex, false);
+        if (optimistic && cacheEntry == null)
+          return false;
+
+        long pageStamp = -1;
+        if (optimistic) {
+          pageStamp = cacheEntry.tryOptimisticRead();
+          if (pageStamp < 0) {
+            releasePage(atomicOperation, cacheEntry);
+            return false;
+          }
+        } else
+          cacheEntry.acquireSharedLock();
+
+        try {
+          final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
+              getChanges(atomicOperation, cacheEntry), optimistic);
+
+          if (itemIndex >= bucket.size()) {
+            final long rightSibling = bucket.getRightSibling();
+            if (optimistic && !(cacheEntry.validateOptimisticRead(pageStamp) && atomicOperationsManager
+                .validateOptimisticRead(OSBTree.this, stamp)))
+              return false;
+
+            pageIndex = rightSibling;
+            readAhead(fileId, pageIndex);
+            itemIndex = 0;
+            continue;
+          }
+
+          final Map.Entry<K, V> entry = convertToMapEntry(bucket.getEntry(itemIndex), atomicOperation);
+          if (optimistic && !cacheEntry.validateOptimisticRead(pageStamp))
+            return false;
+
+          itemIndex++;
+
+          if (fromKey != null && (fromKeyInclusive ?
+              comparator.compare(entry.getKey(), fromKey) < 0 :
+              comparator.compare(entry.getKey(), fromKey) <= 0))
+            continue;
+
+          if (toKey != null && (toKeyInclusive ?
+              comparator.compare(entry.getKey(), toKey) > 0 :
+              comparator.compare(entry.getKey(), toKey) >= 0)) {
+            pageIndex = -1;
+            break;
+          }
+
+          dataCache.add(entry);
+        } finally {
+          if (!optimistic)
+            cacheEntry.releaseSharedLock();
+          releasePage(atomicOperation, cacheEntry);
+        }
+      }
+
+      return true;
+    }
   }
 
   private final class OSBTreeCursorBackward implements OSBTreeCursor<K, V> {
@@ -2176,62 +3055,20 @@ public class OSBTree<K, V> extends ODurableComponent {
         if (prefetchSize < 0 || prefetchSize > OGlobalConfiguration.INDEX_CURSOR_PREFETCH_SIZE.getValueAsInteger())
           prefetchSize = OGlobalConfiguration.INDEX_CURSOR_PREFETCH_SIZE.getValueAsInteger();
 
-        atomicOperationsManager.acquireReadLock(OSBTree.this);
-        try {
-          acquireSharedLock();
+        if (!fetchOptimistically(prefetchSize)) {
+          atomicOperationsManager.acquireReadLock(OSBTree.this);
           try {
-            OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
-
-            while (dataCache.size() < prefetchSize) {
-              if (pageIndex >= getFilledUpTo(atomicOperation, fileId))
-                pageIndex = getFilledUpTo(atomicOperation, fileId) - 1;
-
-              if (pageIndex == -1)
-                break;
-
-              final OCacheEntry cacheEntry = loadPage(atomicOperation, fileId, pageIndex, false);
-              cacheEntry.acquireSharedLock();
-              try {
-                final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
-                    getChanges(atomicOperation, cacheEntry));
-
-                if (itemIndex >= bucket.size())
-                  itemIndex = bucket.size() - 1;
-
-                if (itemIndex < 0) {
-                  pageIndex = bucket.getLeftSibling();
-                  itemIndex = Integer.MAX_VALUE;
-                  continue;
-                }
-
-                final Map.Entry<K, V> entry = convertToMapEntry(bucket.getEntry(itemIndex), atomicOperation);
-                itemIndex--;
-
-                if (toKey != null && (toKeyInclusive ?
-                    comparator.compare(entry.getKey(), toKey) > 0 :
-                    comparator.compare(entry.getKey(), toKey) >= 0))
-                  continue;
-
-                if (fromKey != null && (fromKeyInclusive ?
-                    comparator.compare(entry.getKey(), fromKey) < 0 :
-                    comparator.compare(entry.getKey(), fromKey) <= 0)) {
-                  pageIndex = -1;
-                  break;
-                }
-
-                dataCache.add(entry);
-              } finally {
-                cacheEntry.releaseSharedLock();
-                releasePage(atomicOperation, cacheEntry);
-              }
+            acquireSharedLock();
+            try {
+              fetchEntries(prefetchSize, atomicOperationsManager.getCurrentOperation(), -1);
+            } finally {
+              releaseSharedLock();
             }
+          } catch (IOException e) {
+            throw OException.wrapException(new OSBTreeException("Error during element iteration", OSBTree.this), e);
           } finally {
-            releaseSharedLock();
+            atomicOperationsManager.releaseReadLock(OSBTree.this);
           }
-        } catch (IOException e) {
-          throw OException.wrapException(new OSBTreeException("Error during element iteration", OSBTree.this), e);
-        } finally {
-          atomicOperationsManager.releaseReadLock(OSBTree.this);
         }
 
         if (dataCache.isEmpty()) {
@@ -2248,6 +3085,117 @@ public class OSBTree<K, V> extends ODurableComponent {
         completeOperation();
       }
     }
+
+    /**
+     * Fetches next entries by {@link #readOptimistically(OptimisticRead)}, position of cursor is restored if they can not be
+     * fetched.
+     *
+     * @return <code>true</code> if entries were fetched.
+     */
+    private boolean fetchOptimistically(final int prefetchSize) {
+      final long startPageIndex = pageIndex;
+      final int startItemIndex = itemIndex;
+
+      final Boolean fetched = readOptimistically(new OptimisticRead<Boolean>() {
+        @Override
+        public Boolean read(long stamp) throws IOException {
+          pageIndex = startPageIndex;
+          itemIndex = startItemIndex;
+          dataCache.clear();
+
+          if (fetchEntries(prefetchSize, null, stamp))
+            return Boolean.TRUE;
+
+          return null;
+        }
+      });
+
+      if (fetched != null)
+        return true;
+
+      pageIndex = startPageIndex;
+      itemIndex = startItemIndex;
+      dataCache.clear();
+
+      return false;
+    }
+
+    /**
+     * @param stamp stamp of optimistic read of the tree or <code>-1</code> if entries are fetched under read locks.
+     *
+     * @return <code>false</code> if entries are fetched optimistically and one of the pages was changed while it was read.
+     */
+    private boolean fetchEntries(int prefetchSize, OAtomicOperation atomicOperation, long stamp) throws IOException {
+      final boolean optimistic = stamp >= 0;
+
+      while (dataCache.size() < prefetchSize) {
+        if (!optimistic && pageIndex >= getFilledUpTo(atomicOperation, fileId))
+          pageIndex = getFilledUpTo(atomicOperation, fileId) - 1;
+
+        if (pageIndex == -1)
+          break;
+
+        final OCacheEntry cacheEntry = loadPage(atomicOperation, fileId, pageIndex, false);
+        if (optimistic && cacheEntry == null)
+          return false;
+
+        long pageStamp = -1;
+        if (optimistic) {
+          pageStamp = cacheEntry.tryOptimisticRead();
+          if (pageStamp < 0) {
+            releasePage(atomicOperation, cacheEntry);
+            return false;
+          }
+        } else
+          cacheEntry.acquireSharedLock();
+
+        try {
+          final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
+              getChanges(atomicOperation, cacheEntry), optimistic);
+
+          if (itemIndex >= bucket.size())
+            itemIndex = bucket.size() - 1;
+
+          if (itemIndex < 0) {
+            final long leftSibling = bucket.getLeftSibling();
+            if (optimistic && !(cacheEntry.validateOptimisticRead(pageStamp) && atomicOperationsManager
+                .validateOptimisticRead(OSBTree.this, stamp)))
+              return false;
+
+            pageIndex = leftSibling;
+            readAhead(fileId, pageIndex);
+            itemIndex = Integer.MAX_VALUE;
+            continue;
+          }
+
+          final Map.Entry<K, V> entry = convertToMapEntry(bucket.getEntry(itemIndex), atomicOperation);
+          if (optimistic && !cacheEntry.validateOptimisticRead(pageStamp))
+            return false;
+
+          itemIndex--;
+
+          if (toKey != null && (toKeyInclusive ?
+              comparator.compare(entry.getKey(), toKey) > 0 :
+              comparator.compare(entry.getKey(), toKey) >= 0))
+            continue;
+
+          if (fromKey != null && (fromKeyInclusive ?
+              comparator.compare(entry.getKey(), fromKey) < 0 :
+              comparator.compare(entry.getKey(), fromKey) <= 0)) {
+            pageIndex = -1;
+            break;
+          }
+
+          dataCache.add(entry);
+        } finally {
+          if (!optimistic)
+            cacheEntry.releaseSharedLock();
+          releasePage(atomicOperation, cacheEntry);
+        }
+      }
+
+      return true;
+    }
   }
 
   @Override
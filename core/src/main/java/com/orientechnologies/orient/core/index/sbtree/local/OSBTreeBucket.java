@@ -25,6 +25,7 @@ import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.common.serialization.types.OByteSerializer;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
@@ -33,6 +34,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
@@ -61,6 +63,21 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
   private static final int POSITIONS_ARRAY_OFFSET = FREE_VALUES_LIST_OFFSET + OLongSerializer.LONG_SIZE;
 
+  /**
+   * Buckets in prefix compressed format keep size of common prefix of keys and prefix itself instead of start of positions array.
+   */
+  private static final int KEY_PREFIX_SIZE_OFFSET = POSITIONS_ARRAY_OFFSET;
+  private static final int KEY_PREFIX_OFFSET      = KEY_PREFIX_SIZE_OFFSET + OIntegerSerializer.INT_SIZE;
+
+  /**
+   * Flags stored in the byte which was used only as "is leaf" flag in buckets created before prefix compression was introduced,
+   * such buckets contain only 0 or 1 in this byte so they are read as buckets without prefix compression.
+   */
+  private static final int LEAF_FLAG              = 1;
+  private static final int PREFIX_COMPRESSED_FLAG = 2;
+
+  private static final byte[] EMPTY_PREFIX = new byte[0];
+
   private final boolean isLeaf;
 
   private final OBinarySerializer<K> keySerializer;
@@ -70,6 +87,17 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
   private final Comparator<? super K> comparator = ODefaultComparator.INSTANCE;
 
+  private final OSBTreeKeyNormalizer keyNormalizer;
+
+  private boolean prefixCompressed;
+  private int     positionsOffset;
+  private byte[]  keyPrefix;
+
+  /**
+   * Whether offsets and sizes read from the page are checked before data are deserialized, see {@link #checkBounds(int, int)}.
+   */
+  private final boolean checkBounds;
+
   @SuppressFBWarnings("EI_EXPOSE_REP2")
   public OSBTreeBucket(OCacheEntry cacheEntry, boolean isLeaf, OBinarySerializer<K> keySerializer, OType[] keyTypes,
       OBinarySerializer<V> valueSerializer, OWALChanges changes) throws IOException {
@@ -79,11 +107,12 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     this.keySerializer = keySerializer;
     this.keyTypes = keyTypes;
     this.valueSerializer = valueSerializer;
+    this.keyNormalizer = OSBTreeKeyNormalizer.create(keySerializer, keyTypes);
+    this.checkBounds = false;
 
     setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
     setIntValue(SIZE_OFFSET, 0);
 
-    setByteValue(IS_LEAF_OFFSET, (byte) (isLeaf ? 1 : 0));
     setLongValue(LEFT_SIBLING_OFFSET, -1);
     setLongValue(RIGHT_SIBLING_OFFSET, -1);
 
@@ -92,17 +121,41 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
     setByteValue(KEY_SERIALIZER_OFFSET, this.keySerializer.getId());
     setByteValue(VALUE_SERIALIZER_OFFSET, this.valueSerializer.getId());
+
+    setFormat(keyNormalizer != null && OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.getValueAsBoolean(), EMPTY_PREFIX);
   }
 
-  @SuppressFBWarnings("EI_EXPOSE_REP2")
   public OSBTreeBucket(OCacheEntry cacheEntry, OBinarySerializer<K> keySerializer, OType[] keyTypes,
       OBinarySerializer<V> valueSerializer, OWALChanges changes) {
+    this(cacheEntry, keySerializer, keyTypes, valueSerializer, changes, false);
+  }
+
+  /**
+   * @param checkBounds if <code>true</code> offsets and sizes of data read from the page are checked before data are deserialized,
+   *                    should be used when page is read without page lock and concurrent change may be seen half done.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP2")
+  public OSBTreeBucket(OCacheEntry cacheEntry, OBinarySerializer<K> keySerializer, OType[] keyTypes,
+      OBinarySerializer<V> valueSerializer, OWALChanges changes, boolean checkBounds) {
     super(cacheEntry, changes);
     this.keyTypes = keyTypes;
+    this.checkBounds = checkBounds;
+
+    final int flags = getByteValue(IS_LEAF_OFFSET);
 
-    this.isLeaf = getByteValue(IS_LEAF_OFFSET) > 0;
+    this.isLeaf = (flags & LEAF_FLAG) != 0;
     this.keySerializer = keySerializer;
     this.valueSerializer = valueSerializer;
+    this.keyNormalizer = OSBTreeKeyNormalizer.create(keySerializer, keyTypes);
+
+    this.prefixCompressed = (flags & PREFIX_COMPRESSED_FLAG) != 0;
+    if (prefixCompressed) {
+      if (keyNormalizer == null)
+        throw new IllegalStateException("Bucket is stored in prefix compressed format but its keys can not be normalized");
+
+      positionsOffset = KEY_PREFIX_OFFSET + getIntValue(KEY_PREFIX_SIZE_OFFSET);
+    } else
+      positionsOffset = POSITIONS_ARRAY_OFFSET;
   }
 
   public void setTreeSize(long size) throws IOException {
@@ -117,6 +170,14 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     return size() == 0;
   }
 
+  /**
+   * @return <code>true</code> if keys of this bucket are stored in normalized form as suffixes of common prefix of all keys of the
+   * bucket.
+   */
+  public boolean isPrefixCompressed() {
+    return prefixCompressed;
+  }
+
   public long getValuesFreeListFirstIndex() {
     return getLongValue(FREE_VALUES_LIST_OFFSET);
   }
@@ -126,6 +187,12 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public int find(K key) {
+    if (prefixCompressed) {
+      final byte[] normalizedKey = keyNormalizer.normalize(key);
+      if (normalizedKey != null)
+        return findNormalized(normalizedKey);
+    }
+
     int low = 0;
     int high = size() - 1;
 
@@ -144,9 +211,53 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     return -(low + 1); // key not found.
   }
 
+  /**
+   * Binary search which compares normalized key with prefix of the bucket once and then only with suffixes of keys stored in the
+   * bucket, keys itself are not deserialized.
+   */
+  private int findNormalized(byte[] normalizedKey) {
+    final byte[] prefix = getKeyPrefix();
+
+    final int prefixResult = OSBTreeKeyNormalizer.compare(prefix, 0, normalizedKey, 0);
+    final boolean compareSuffixes = prefixResult == 0 && normalizedKey.length > prefix.length;
+
+    int low = 0;
+    int high = size() - 1;
+
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compareSuffixes ? compareSuffix(mid, normalizedKey, prefix.length) : prefixResult;
+
+      if (cmp < 0)
+        low = mid + 1;
+      else if (cmp > 0)
+        high = mid - 1;
+      else
+        return mid; // key found
+    }
+    return -(low + 1); // key not found.
+  }
+
+  private int compareSuffix(int index, byte[] normalizedKey, int offset) {
+    int keyPosition = keyPosition(getEntryPosition(index));
+
+    final int suffixSize = getSuffixSize(keyPosition);
+    keyPosition += suffixSizeLength(suffixSize);
+
+    //bytes are compared directly in the page to avoid allocation of suffix on each step of binary search
+    final int length = Math.min(suffixSize, normalizedKey.length - offset);
+    for (int i = 0; i < length; i++) {
+      final int result = (getByteValue(keyPosition + i) & 0xFF) - (normalizedKey[offset + i] & 0xFF);
+      if (result != 0)
+        return result;
+    }
+
+    return 0;
+  }
+
   public long remove(int entryIndex) throws IOException {
-    int entryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + entryIndex * OIntegerSerializer.INT_SIZE);
-    int keySize = getObjectSizeInDirectMemory(keySerializer, entryPosition);
+    int entryPosition = getIntValue(positionsOffset + entryIndex * OIntegerSerializer.INT_SIZE);
+    int keySize = getKeySize(entryPosition);
 
     int entrySize;
     long linkValue = -1;
@@ -171,8 +282,8 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
     int size = size();
     if (entryIndex < size - 1) {
-      moveData(POSITIONS_ARRAY_OFFSET + (entryIndex + 1) * OIntegerSerializer.INT_SIZE,
-          POSITIONS_ARRAY_OFFSET + entryIndex * OIntegerSerializer.INT_SIZE, (size - entryIndex - 1) * OIntegerSerializer.INT_SIZE);
+      moveData(positionsOffset + (entryIndex + 1) * OIntegerSerializer.INT_SIZE,
+          positionsOffset + entryIndex * OIntegerSerializer.INT_SIZE, (size - entryIndex - 1) * OIntegerSerializer.INT_SIZE);
     }
 
     size--;
@@ -184,7 +295,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     }
     setIntValue(FREE_POINTER_OFFSET, freePointer + entrySize);
 
-    int currentPositionOffset = POSITIONS_ARRAY_OFFSET;
+    int currentPositionOffset = positionsOffset;
 
     for (int i = 0; i < size; i++) {
       int currentEntryPosition = getIntValue(currentPositionOffset);
@@ -201,11 +312,11 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public SBTreeEntry<K, V> getEntry(int entryIndex) {
-    int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
+    int entryPosition = getEntryPosition(entryIndex);
 
     if (isLeaf) {
-      K key = deserializeFromDirectMemory(keySerializer, entryPosition);
-      entryPosition += getObjectSizeInDirectMemory(keySerializer, entryPosition);
+      K key = readKey(entryPosition);
+      entryPosition += getKeySize(entryPosition);
 
       boolean isLinkValue = getByteValue(entryPosition) > 0;
       long link = -1;
@@ -214,7 +325,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
       if (isLinkValue)
         link = deserializeFromDirectMemory(OLongSerializer.INSTANCE, entryPosition + OByteSerializer.BYTE_SIZE);
       else
-        value = deserializeFromDirectMemory(valueSerializer, entryPosition + OByteSerializer.BYTE_SIZE);
+        value = readValue(entryPosition + OByteSerializer.BYTE_SIZE);
 
       return new SBTreeEntry<K, V>(-1, -1, key, new OSBTreeValue<V>(link >= 0, link, value));
     } else {
@@ -224,7 +335,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
       long rightChild = getLongValue(entryPosition);
       entryPosition += OLongSerializer.LONG_SIZE;
 
-      K key = deserializeFromDirectMemory(keySerializer, entryPosition);
+      K key = readKey(entryPosition);
 
       return new SBTreeEntry<K, V>(leftChild, rightChild, key, null);
     }
@@ -240,10 +351,10 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   public OSBTreeValue<V> getValue(int entryIndex) {
     assert isLeaf;
 
-    int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
+    int entryPosition = getEntryPosition(entryIndex);
 
     // skip key
-    entryPosition += getObjectSizeInDirectMemory(keySerializer, entryPosition);
+    entryPosition += getKeySize(entryPosition);
 
     boolean isLinkValue = getByteValue(entryPosition) > 0;
     long link = -1;
@@ -252,18 +363,18 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     if (isLinkValue)
       link = deserializeFromDirectMemory(OLongSerializer.INSTANCE, entryPosition + OByteSerializer.BYTE_SIZE);
     else
-      value = deserializeFromDirectMemory(valueSerializer, entryPosition + OByteSerializer.BYTE_SIZE);
+      value = readValue(entryPosition + OByteSerializer.BYTE_SIZE);
 
     return new OSBTreeValue<V>(link >= 0, link, value);
   }
 
   public K getKey(int index) {
-    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
+    int entryPosition = getEntryPosition(index);
 
     if (!isLeaf)
       entryPosition += 2 * OLongSerializer.LONG_SIZE;
 
-    return deserializeFromDirectMemory(keySerializer, entryPosition);
+    return readKey(entryPosition);
   }
 
   public boolean isLeaf() {
@@ -271,11 +382,37 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public void addAll(List<SBTreeEntry<K, V>> entries) throws IOException {
+    // bucket is filled by entries of other bucket, so entries always fit into the bucket at least in format of that bucket
+    if (size() == 0 && keyNormalizer != null && (prefixCompressed || !fitsUncompressed(entries))) {
+      final List<NormalizedEntry> normalizedEntries = normalize(entries);
+
+      if (normalizedEntries != null) {
+        final byte[] prefix = commonPrefix(normalizedEntries);
+
+        if (fits(prefix, normalizedEntries, 0)) {
+          if (!prefixCompressed)
+            setFormat(true, EMPTY_PREFIX);
+
+          writeNormalizedEntries(prefix, normalizedEntries);
+          return;
+        }
+      }
+
+      if (prefixCompressed)
+        setFormat(false, EMPTY_PREFIX);
+    }
+
     for (int i = 0; i < entries.size(); i++)
       addEntry(i, entries.get(i), false);
   }
 
   public void shrink(int newSize) throws IOException {
+    if (prefixCompressed) {
+      final List<NormalizedEntry> entries = readNormalizedEntries(newSize);
+      writeNormalizedEntries(commonPrefix(entries), entries);
+      return;
+    }
+
     List<SBTreeEntry<K, V>> treeEntries = new ArrayList<SBTreeEntry<K, V>>(newSize);
 
     for (int i = 0; i < newSize; i++) {
@@ -293,38 +430,33 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public boolean addEntry(int index, SBTreeEntry<K, V> treeEntry, boolean updateNeighbors) throws IOException {
+    if (prefixCompressed)
+      return addNormalizedEntry(index, treeEntry, updateNeighbors);
+
     final int keySize = keySerializer.getObjectSize(treeEntry.key, (Object[]) keyTypes);
     int valueSize = 0;
     int entrySize = keySize;
 
     if (isLeaf) {
-      if (valueSerializer.isFixedLength())
-        valueSize = valueSerializer.getFixedLength();
-      else {
-        if (treeEntry.value.isLink())
-          valueSize = OLongSerializer.LONG_SIZE;
-        else
-          valueSize = valueSerializer.getObjectSize(treeEntry.value.getValue());
-      }
-
+      valueSize = getValueSize(treeEntry);
       entrySize += valueSize + OByteSerializer.BYTE_SIZE;
     } else
       entrySize += 2 * OLongSerializer.LONG_SIZE;
 
     int size = size();
     int freePointer = getIntValue(FREE_POINTER_OFFSET);
-    if (freePointer - entrySize < (size + 1) * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET)
+    if (freePointer - entrySize < (size + 1) * OIntegerSerializer.INT_SIZE + positionsOffset)
       return false;
 
     if (index <= size - 1) {
-      moveData(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE,
-          POSITIONS_ARRAY_OFFSET + (index + 1) * OIntegerSerializer.INT_SIZE, (size - index) * OIntegerSerializer.INT_SIZE);
+      moveData(positionsOffset + index * OIntegerSerializer.INT_SIZE,
+          positionsOffset + (index + 1) * OIntegerSerializer.INT_SIZE, (size - index) * OIntegerSerializer.INT_SIZE);
     }
 
     freePointer -= entrySize;
 
     setIntValue(FREE_POINTER_OFFSET, freePointer);
-    setIntValue(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE, freePointer);
+    setIntValue(positionsOffset + index * OIntegerSerializer.INT_SIZE, freePointer);
     setIntValue(SIZE_OFFSET, size + 1);
 
     if (isLeaf) {
@@ -351,25 +483,82 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
       size++;
 
-      if (updateNeighbors && size > 1) {
-        if (index < size - 1) {
-          final int nextEntryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + (index + 1) * OIntegerSerializer.INT_SIZE);
-          setLongValue(nextEntryPosition, treeEntry.rightChild);
-        }
+      if (updateNeighbors && size > 1)
+        updateNeighbors(index, size, treeEntry);
+    }
 
-        if (index > 0) {
-          final int prevEntryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + (index - 1) * OIntegerSerializer.INT_SIZE);
-          setLongValue(prevEntryPosition + OLongSerializer.LONG_SIZE, treeEntry.leftChild);
-        }
-      }
+    return true;
+  }
+
+  /**
+   * Adds entry to the prefix compressed bucket. Key of the first entry of empty bucket becomes prefix of the bucket. If key of the
+   * entry does not start with common prefix of the bucket, the prefix is shortened and all entries are rewritten, if they do not fit
+   * into the bucket after that, bucket is treated as full one.
+   */
+  private boolean addNormalizedEntry(int index, SBTreeEntry<K, V> treeEntry, boolean updateNeighbors) throws IOException {
+    final NormalizedEntry entry = normalize(treeEntry);
+    if (entry == null)
+      throw new IllegalArgumentException("Key " + treeEntry.key + " can not be stored in prefix compressed bucket");
+
+    byte[] prefix = getKeyPrefix();
+    final int commonPrefixLength = OSBTreeKeyNormalizer.commonPrefixLength(prefix, entry.key);
+
+    if (size() == 0) {
+      // the first key is the longest prefix possible, it is shortened by the following keys
+      prefix = entry.key;
+      setKeyPrefix(prefix);
+    } else if (commonPrefixLength < prefix.length) {
+      final List<NormalizedEntry> entries = readNormalizedEntries(size());
+      prefix = Arrays.copyOf(prefix, commonPrefixLength);
+
+      if (!fits(prefix, entries, entry.getSize(prefix.length)))
+        return false;
+
+      writeNormalizedEntries(prefix, entries);
     }
 
+    final int entrySize = entry.getSize(prefix.length);
+
+    int size = size();
+    int freePointer = getIntValue(FREE_POINTER_OFFSET);
+    if (freePointer - entrySize < (size + 1) * OIntegerSerializer.INT_SIZE + positionsOffset)
+      return false;
+
+    if (index <= size - 1) {
+      moveData(positionsOffset + index * OIntegerSerializer.INT_SIZE,
+          positionsOffset + (index + 1) * OIntegerSerializer.INT_SIZE, (size - index) * OIntegerSerializer.INT_SIZE);
+    }
+
+    freePointer -= entrySize;
+
+    setIntValue(FREE_POINTER_OFFSET, freePointer);
+    setIntValue(positionsOffset + index * OIntegerSerializer.INT_SIZE, freePointer);
+    setIntValue(SIZE_OFFSET, size + 1);
+
+    setBinaryValue(freePointer, entry.serialize(prefix.length));
+
+    size++;
+    if (!isLeaf && updateNeighbors && size > 1)
+      updateNeighbors(index, size, treeEntry);
+
     return true;
   }
 
+  private void updateNeighbors(int index, int size, SBTreeEntry<K, V> treeEntry) throws IOException {
+    if (index < size - 1) {
+      final int nextEntryPosition = getIntValue(positionsOffset + (index + 1) * OIntegerSerializer.INT_SIZE);
+      setLongValue(nextEntryPosition, treeEntry.rightChild);
+    }
+
+    if (index > 0) {
+      final int prevEntryPosition = getIntValue(positionsOffset + (index - 1) * OIntegerSerializer.INT_SIZE);
+      setLongValue(prevEntryPosition + OLongSerializer.LONG_SIZE, treeEntry.leftChild);
+    }
+  }
+
   public int updateValue(int index, OSBTreeValue<V> value) throws IOException {
-    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
-    entryPosition += getObjectSizeInDirectMemory(keySerializer, entryPosition);
+    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + positionsOffset);
+    entryPosition += getKeySize(entryPosition);
     boolean isLinkValue = getByteValue(entryPosition) > 0;
 
     entryPosition += OByteSerializer.BYTE_SIZE;
@@ -421,6 +610,337 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     return getLongValue(RIGHT_SIBLING_OFFSET);
   }
 
+  private void setFormat(boolean prefixCompressed, byte[] prefix) throws IOException {
+    this.prefixCompressed = prefixCompressed;
+
+    int flags = isLeaf ? LEAF_FLAG : 0;
+    if (prefixCompressed) {
+      flags |= PREFIX_COMPRESSED_FLAG;
+      setKeyPrefix(prefix);
+    } else {
+      positionsOffset = POSITIONS_ARRAY_OFFSET;
+      keyPrefix = null;
+    }
+
+    setByteValue(IS_LEAF_OFFSET, (byte) flags);
+  }
+
+  private void setKeyPrefix(byte[] prefix) throws IOException {
+    setIntValue(KEY_PREFIX_SIZE_OFFSET, prefix.length);
+    setBinaryValue(KEY_PREFIX_OFFSET, prefix);
+
+    positionsOffset = KEY_PREFIX_OFFSET + prefix.length;
+    keyPrefix = prefix;
+  }
+
+  private byte[] getKeyPrefix() {
+    if (keyPrefix == null) {
+      final int prefixSize = getIntValue(KEY_PREFIX_SIZE_OFFSET);
+      checkBounds(KEY_PREFIX_OFFSET, prefixSize);
+
+      keyPrefix = getBinaryValue(KEY_PREFIX_OFFSET, prefixSize);
+    }
+
+    return keyPrefix;
+  }
+
+  private int getEntryPosition(int entryIndex) {
+    final int positionOffset = positionsOffset + entryIndex * OIntegerSerializer.INT_SIZE;
+    checkBounds(positionOffset, OIntegerSerializer.INT_SIZE);
+
+    final int entryPosition = getIntValue(positionOffset);
+    checkBounds(entryPosition, 0);
+
+    return entryPosition;
+  }
+
+  private int keyPosition(int entryPosition) {
+    if (isLeaf)
+      return entryPosition;
+
+    return entryPosition + 2 * OLongSerializer.LONG_SIZE;
+  }
+
+  private int getKeySize(int keyPosition) {
+    if (!prefixCompressed)
+      return getObjectSizeInDirectMemory(keySerializer, keyPosition);
+
+    final int suffixSize = getSuffixSize(keyPosition);
+    return suffixSizeLength(suffixSize) + suffixSize;
+  }
+
+  @SuppressWarnings("unchecked")
+  private K readKey(int keyPosition) {
+    if (!prefixCompressed) {
+      if (checkBounds)
+        checkBounds(keyPosition, getObjectSizeInDirectMemory(keySerializer, keyPosition));
+
+      return deserializeFromDirectMemory(keySerializer, keyPosition);
+    }
+
+    return (K) keyNormalizer.denormalize(readNormalizedKey(keyPosition));
+  }
+
+  private byte[] readNormalizedKey(int keyPosition) {
+    final byte[] prefix = getKeyPrefix();
+
+    final int suffixSize = getSuffixSize(keyPosition);
+    checkBounds(keyPosition + suffixSizeLength(suffixSize), suffixSize);
+
+    final byte[] suffix = getBinaryValue(keyPosition + suffixSizeLength(suffixSize), suffixSize);
+
+    final byte[] key = new byte[prefix.length + suffixSize];
+    System.arraycopy(prefix, 0, key, 0, prefix.length);
+    System.arraycopy(suffix, 0, key, prefix.length, suffixSize);
+
+    return key;
+  }
+
+  private V readValue(int valuePosition) {
+    if (checkBounds)
+      checkBounds(valuePosition, getObjectSizeInDirectMemory(valueSerializer, valuePosition));
+
+    return deserializeFromDirectMemory(valueSerializer, valuePosition);
+  }
+
+  /**
+   * Page which is read without page lock may be changed in the middle of the read, so offsets and sizes read from it may be broken.
+   * They are checked before data are deserialized, to not allocate memory for arbitrary sizes, data which are read from changed
+   * page are discarded anyway once stamp of the page is validated.
+   */
+  private void checkBounds(int offset, int size) {
+    if (checkBounds && (offset < POSITIONS_ARRAY_OFFSET || size < 0 || (long) offset + size > MAX_PAGE_SIZE_BYTES))
+      throw new IllegalStateException("Data of size " + size + " at offset " + offset + " do not fit into the page");
+  }
+
+  /**
+   * Size of the key suffix is stored in one byte if it is less than 128, in two bytes if it is less than 16384 and in three bytes
+   * otherwise.
+   */
+  private int getSuffixSize(int keyPosition) {
+    final int first = getByteValue(keyPosition) & 0xFF;
+    if (first < 0x80)
+      return first;
+
+    if (first < 0xC0)
+      return ((first & 0x3F) << 8) | (getByteValue(keyPosition + 1) & 0xFF);
+
+    return ((first & 0x3F) << 16) | ((getByteValue(keyPosition + 1) & 0xFF) << 8) | (getByteValue(keyPosition + 2) & 0xFF);
+  }
+
+  private static int suffixSizeLength(int suffixSize) {
+    if (suffixSize < 0x80)
+      return 1;
+
+    if (suffixSize < 0x4000)
+      return 2;
+
+    return 3;
+  }
+
+  private static int writeSuffixSize(int suffixSize, byte[] data, int offset) {
+    if (suffixSize < 0x80) {
+      data[offset] = (byte) suffixSize;
+      return 1;
+    }
+
+    if (suffixSize < 0x4000) {
+      data[offset] = (byte) (0x80 | (suffixSize >>> 8));
+      data[offset + 1] = (byte) suffixSize;
+      return 2;
+    }
+
+    data[offset] = (byte) (0xC0 | (suffixSize >>> 16));
+    data[offset + 1] = (byte) (suffixSize >>> 8);
+    data[offset + 2] = (byte) suffixSize;
+    return 3;
+  }
+
+  private int getValueSize(SBTreeEntry<K, V> treeEntry) {
+    if (valueSerializer.isFixedLength())
+      return valueSerializer.getFixedLength();
+
+    if (treeEntry.value.isLink())
+      return OLongSerializer.LONG_SIZE;
+
+    return valueSerializer.getObjectSize(treeEntry.value.getValue());
+  }
+
+  private boolean fitsUncompressed(List<SBTreeEntry<K, V>> entries) {
+    int size = POSITIONS_ARRAY_OFFSET + entries.size() * OIntegerSerializer.INT_SIZE;
+
+    for (SBTreeEntry<K, V> entry : entries) {
+      size += keySerializer.getObjectSize(entry.key, (Object[]) keyTypes);
+
+      if (isLeaf)
+        size += getValueSize(entry) + OByteSerializer.BYTE_SIZE;
+      else
+        size += 2 * OLongSerializer.LONG_SIZE;
+    }
+
+    return size <= MAX_PAGE_SIZE_BYTES;
+  }
+
+  private boolean fits(byte[] prefix, List<NormalizedEntry> entries, int additionalEntrySize) {
+    int size = KEY_PREFIX_OFFSET + prefix.length + entries.size() * OIntegerSerializer.INT_SIZE;
+
+    if (additionalEntrySize > 0)
+      size += additionalEntrySize + OIntegerSerializer.INT_SIZE;
+
+    for (NormalizedEntry entry : entries)
+      size += entry.getSize(prefix.length);
+
+    return size <= MAX_PAGE_SIZE_BYTES;
+  }
+
+  private static byte[] commonPrefix(List<NormalizedEntry> entries) {
+    if (entries.isEmpty())
+      return EMPTY_PREFIX;
+
+    final byte[] first = entries.get(0).key;
+    final byte[] last = entries.get(entries.size() - 1).key;
+
+    return Arrays.copyOf(first, OSBTreeKeyNormalizer.commonPrefixLength(first, last));
+  }
+
+  private List<NormalizedEntry> normalize(List<SBTreeEntry<K, V>> entries) {
+    final List<NormalizedEntry> normalizedEntries = new ArrayList<NormalizedEntry>(entries.size());
+
+    for (SBTreeEntry<K, V> entry : entries) {
+      final NormalizedEntry normalizedEntry = normalize(entry);
+      if (normalizedEntry == null)
+        return null;
+
+      normalizedEntries.add(normalizedEntry);
+    }
+
+    return normalizedEntries;
+  }
+
+  private NormalizedEntry normalize(SBTreeEntry<K, V> treeEntry) {
+    final byte[] key = keyNormalizer.normalize(treeEntry.key);
+    if (key == null)
+      return null;
+
+    if (!isLeaf) {
+      final byte[] head = new byte[2 * OLongSerializer.LONG_SIZE];
+      OLongSerializer.INSTANCE.serializeNative(treeEntry.leftChild, head, 0);
+      OLongSerializer.INSTANCE.serializeNative(treeEntry.rightChild, head, OLongSerializer.LONG_SIZE);
+
+      return new NormalizedEntry(head, key, null);
+    }
+
+    final int valueSize = getValueSize(treeEntry);
+    final byte[] tail = new byte[OByteSerializer.BYTE_SIZE + valueSize];
+
+    if (treeEntry.value.isLink()) {
+      tail[0] = 1;
+      OLongSerializer.INSTANCE.serializeNative(treeEntry.value.getLink(), tail, OByteSerializer.BYTE_SIZE);
+    } else
+      valueSerializer.serializeNativeObject(treeEntry.value.getValue(), tail, OByteSerializer.BYTE_SIZE);
+
+    return new NormalizedEntry(null, key, tail);
+  }
+
+  /**
+   * Reads first entries of prefix compressed bucket as is, without deserialization of keys and values.
+   */
+  private List<NormalizedEntry> readNormalizedEntries(int count) {
+    final List<NormalizedEntry> entries = new ArrayList<NormalizedEntry>(count);
+
+    for (int i = 0; i < count; i++) {
+      final int entryPosition = getIntValue(positionsOffset + i * OIntegerSerializer.INT_SIZE);
+      final int keyPosition = keyPosition(entryPosition);
+
+      final byte[] head = isLeaf ? null : getBinaryValue(entryPosition, 2 * OLongSerializer.LONG_SIZE);
+      final byte[] key = readNormalizedKey(keyPosition);
+
+      byte[] tail = null;
+      if (isLeaf) {
+        final int valuePosition = keyPosition + getKeySize(keyPosition);
+        final int valueSize;
+
+        if (valueSerializer.isFixedLength())
+          valueSize = valueSerializer.getFixedLength();
+        else if (getByteValue(valuePosition) > 0)
+          valueSize = OLongSerializer.LONG_SIZE;
+        else
+          valueSize = getObjectSizeInDirectMemory(valueSerializer, valuePosition + OByteSerializer.BYTE_SIZE);
+
+        tail = getBinaryValue(valuePosition, OByteSerializer.BYTE_SIZE + valueSize);
+      }
+
+      entries.add(new NormalizedEntry(head, key, tail));
+    }
+
+    return entries;
+  }
+
+  private void writeNormalizedEntries(byte[] prefix, List<NormalizedEntry> entries) throws IOException {
+    setKeyPrefix(prefix);
+
+    int freePointer = MAX_PAGE_SIZE_BYTES;
+    for (int i = 0; i < entries.size(); i++) {
+      final byte[] entry = entries.get(i).serialize(prefix.length);
+      freePointer -= entry.length;
+
+      setBinaryValue(freePointer, entry);
+      setIntValue(positionsOffset + i * OIntegerSerializer.INT_SIZE, freePointer);
+    }
+
+    setIntValue(FREE_POINTER_OFFSET, freePointer);
+    setIntValue(SIZE_OFFSET, entries.size());
+  }
+
+  /**
+   * Entry of prefix compressed bucket, contains serialized child pointers of non-leaf entry or serialized value of leaf entry and
+   * full normalized key which is stored in the bucket without common prefix.
+   */
+  private static final class NormalizedEntry {
+    private final byte[] head;
+    private final byte[] key;
+    private final byte[] tail;
+
+    private NormalizedEntry(byte[] head, byte[] key, byte[] tail) {
+      this.head = head;
+      this.key = key;
+      this.tail = tail;
+    }
+
+    private int getSize(int prefixLength) {
+      final int suffixSize = key.length - prefixLength;
+      int size = suffixSizeLength(suffixSize) + suffixSize;
+
+      if (head != null)
+        size += head.length;
+      if (tail != null)
+        size += tail.length;
+
+      return size;
+    }
+
+    private byte[] serialize(int prefixLength) {
+      final byte[] entry = new byte[getSize(prefixLength)];
+      int offset = 0;
+
+      if (head != null) {
+        System.arraycopy(head, 0, entry, 0, head.length);
+        offset += head.length;
+      }
+
+      final int suffixSize = key.length - prefixLength;
+      offset += writeSuffixSize(suffixSize, entry, offset);
+
+      System.arraycopy(key, prefixLength, entry, offset, suffixSize);
+      offset += suffixSize;
+
+      if (tail != null)
+        System.arraycopy(tail, 0, entry, offset, tail.length);
+
+      return entry;
+    }
+  }
+
   public static final class SBTreeEntry<K, V> implements Comparable<SBTreeEntry<K, V>> {
     private final Comparator<? super K> comparator = ODefaultComparator.INSTANCE;
 
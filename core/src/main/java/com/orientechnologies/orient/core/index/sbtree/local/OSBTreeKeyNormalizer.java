@@ -0,0 +1,420 @@
+/*
+ *
+ *  *  Copyright 2017 OrientDB LTD (info(at)orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientdb.com
+ *
+ */
+
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import com.orientechnologies.common.serialization.types.*;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OAlwaysGreaterKey;
+import com.orientechnologies.orient.core.index.OAlwaysLessKey;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Converts keys of sb-tree into binary form which preserves order of keys, so result of unsigned byte by byte comparison of two
+ * normalized keys is the same as result of comparison of original keys by
+ * {@link com.orientechnologies.common.comparator.ODefaultComparator}. Normalized keys which share the same start share the same
+ * prefix of bytes too, that is what allows {@link OSBTreeBucket} to keep common prefix of all keys of the page only once.
+ * <p>
+ * Keys are encoded as following:
+ * <ol>
+ * <li>Strings are encoded char by char, chars less than <code>0x7F</code> take single byte, chars less than <code>0x3F7F</code> take
+ * two bytes, the rest take three bytes. String is terminated by zero byte.</li>
+ * <li>Numbers and dates are written in big endian order with flipped sign bit, bits of negative floating point numbers are
+ * inverted.</li>
+ * <li>Links are written as cluster id followed by cluster position.</li>
+ * <li>Each item of composite key is preceded by tag which makes {@link OAlwaysLessKey} less and {@link OAlwaysGreaterKey} greater
+ * than any other item and <code>null</code> less than any not <code>null</code> item.</li>
+ * </ol>
+ * Only keys of types listed above can be normalized, instance of normalizer is created by {@link #create(OBinarySerializer,
+ * OType[])} only if all key types are supported.
+ *
+ * @since 12.05.17
+ */
+public final class OSBTreeKeyNormalizer {
+  private static final int ALWAYS_LESS_TAG    = 0x00;
+  private static final int NULL_TAG           = 0x01;
+  private static final int VALUE_TAG          = 0x02;
+  private static final int ALWAYS_GREATER_TAG = 0xFF;
+
+  private static final int STRING_TERMINATOR = 0x00;
+
+  private final OType[] types;
+  private final boolean composite;
+
+  private OSBTreeKeyNormalizer(OType[] types, boolean composite) {
+    this.types = types;
+    this.composite = composite;
+  }
+
+  /**
+   * @return Normalizer for keys serialized by passed in serializer or <code>null</code> if keys of given types can not be
+   * normalized.
+   */
+  public static OSBTreeKeyNormalizer create(OBinarySerializer<?> keySerializer, OType[] keyTypes) {
+    if (keySerializer instanceof OCompositeKeySerializer) {
+      if (keyTypes == null || keyTypes.length == 0)
+        return null;
+
+      for (OType keyType : keyTypes) {
+        if (!isSupported(keyType))
+          return null;
+      }
+
+      return new OSBTreeKeyNormalizer(keyTypes.clone(), true);
+    }
+
+    final OType type = typeOfSerializer(keySerializer);
+    if (type == null)
+      return null;
+
+    if (keyTypes != null && (keyTypes.length != 1 || keyTypes[0] != type))
+      return null;
+
+    return new OSBTreeKeyNormalizer(new OType[] { type }, false);
+  }
+
+  /**
+   * @return Normalized key or <code>null</code> if passed in key can not be normalized, for example if class of key does not match
+   * type of key.
+   */
+  public byte[] normalize(Object key) {
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream(32);
+
+    if (composite) {
+      if (!(key instanceof OCompositeKey))
+        return null;
+
+      final List<Object> items = ((OCompositeKey) key).getKeys();
+      if (items.size() > types.length)
+        return null;
+
+      for (int i = 0; i < items.size(); i++) {
+        final Object item = items.get(i);
+
+        if (item instanceof OAlwaysLessKey)
+          stream.write(ALWAYS_LESS_TAG);
+        else if (item instanceof OAlwaysGreaterKey)
+          stream.write(ALWAYS_GREATER_TAG);
+        else if (item == null)
+          stream.write(NULL_TAG);
+        else {
+          stream.write(VALUE_TAG);
+          if (!write(stream, types[i], item))
+            return null;
+        }
+      }
+    } else if (!write(stream, types[0], key))
+      return null;
+
+    return stream.toByteArray();
+  }
+
+  /**
+   * Restores key from its normalized form.
+   */
+  public Object denormalize(byte[] normalizedKey) {
+    final int[] offset = new int[1];
+
+    if (!composite)
+      return read(normalizedKey, offset, types[0]);
+
+    final OCompositeKey compositeKey = new OCompositeKey();
+    int item = 0;
+    while (offset[0] < normalizedKey.length) {
+      final int tag = normalizedKey[offset[0]++] & 0xFF;
+
+      if (tag == NULL_TAG)
+        compositeKey.addKey(null);
+      else if (tag == VALUE_TAG)
+        compositeKey.addKey(read(normalizedKey, offset, types[item]));
+      else
+        throw new IllegalStateException("Invalid tag " + tag + " of item of normalized composite key");
+
+      item++;
+    }
+
+    return compositeKey;
+  }
+
+  /**
+   * Compares normalized keys. If all bytes of one of the keys are equal to bytes of the other key, keys are treated as equal, that
+   * gives the same result as comparison of composite keys with different amount of items.
+   */
+  public static int compare(byte[] keyOne, int offsetOne, byte[] keyTwo, int offsetTwo) {
+    final int length = Math.min(keyOne.length - offsetOne, keyTwo.length - offsetTwo);
+
+    for (int i = 0; i < length; i++) {
+      final int result = (keyOne[offsetOne + i] & 0xFF) - (keyTwo[offsetTwo + i] & 0xFF);
+      if (result != 0)
+        return result;
+    }
+
+    return 0;
+  }
+
+  /**
+   * @return Length of common prefix of two normalized keys.
+   */
+  public static int commonPrefixLength(byte[] keyOne, byte[] keyTwo) {
+    final int length = Math.min(keyOne.length, keyTwo.length);
+
+    for (int i = 0; i < length; i++) {
+      if (keyOne[i] != keyTwo[i])
+        return i;
+    }
+
+    return length;
+  }
+
+  private static boolean isSupported(OType type) {
+    if (type == null)
+      return false;
+
+    switch (type) {
+    case STRING:
+    case INTEGER:
+    case LONG:
+    case SHORT:
+    case BYTE:
+    case BOOLEAN:
+    case FLOAT:
+    case DOUBLE:
+    case DATE:
+    case DATETIME:
+    case LINK:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private static OType typeOfSerializer(OBinarySerializer<?> keySerializer) {
+    if (keySerializer instanceof OStringSerializer)
+      return OType.STRING;
+    if (keySerializer instanceof OIntegerSerializer)
+      return OType.INTEGER;
+    if (keySerializer instanceof OLongSerializer)
+      return OType.LONG;
+    if (keySerializer instanceof OShortSerializer)
+      return OType.SHORT;
+    if (keySerializer instanceof OByteSerializer)
+      return OType.BYTE;
+    if (keySerializer instanceof OBooleanSerializer)
+      return OType.BOOLEAN;
+    if (keySerializer instanceof OFloatSerializer)
+      return OType.FLOAT;
+    if (keySerializer instanceof ODoubleSerializer)
+      return OType.DOUBLE;
+    if (keySerializer instanceof ODateSerializer)
+      return OType.DATE;
+    if (keySerializer instanceof ODateTimeSerializer)
+      return OType.DATETIME;
+    if (keySerializer instanceof OLinkSerializer)
+      return OType.LINK;
+
+    return null;
+  }
+
+  private static boolean write(ByteArrayOutputStream stream, OType type, Object value) {
+    switch (type) {
+    case STRING:
+      if (!(value instanceof String))
+        return false;
+
+      writeString(stream, (String) value);
+      return true;
+    case INTEGER:
+      if (!(value instanceof Integer))
+        return false;
+
+      writeBigEndian(stream, ((Integer) value) ^ Integer.MIN_VALUE, 4);
+      return true;
+    case LONG:
+      if (!(value instanceof Long))
+        return false;
+
+      writeBigEndian(stream, ((Long) value) ^ Long.MIN_VALUE, 8);
+      return true;
+    case SHORT:
+      if (!(value instanceof Short))
+        return false;
+
+      writeBigEndian(stream, ((Short) value) ^ Short.MIN_VALUE, 2);
+      return true;
+    case BYTE:
+      if (!(value instanceof Byte))
+        return false;
+
+      writeBigEndian(stream, ((Byte) value) ^ Byte.MIN_VALUE, 1);
+      return true;
+    case BOOLEAN:
+      if (!(value instanceof Boolean))
+        return false;
+
+      stream.write((Boolean) value ? 1 : 0);
+      return true;
+    case FLOAT:
+      if (!(value instanceof Float))
+        return false;
+
+      final int floatBits = Float.floatToIntBits((Float) value);
+      writeBigEndian(stream, floatBits < 0 ? ~floatBits : floatBits ^ Integer.MIN_VALUE, 4);
+      return true;
+    case DOUBLE:
+      if (!(value instanceof Double))
+        return false;
+
+      final long doubleBits = Double.doubleToLongBits((Double) value);
+      writeBigEndian(stream, doubleBits < 0 ? ~doubleBits : doubleBits ^ Long.MIN_VALUE, 8);
+      return true;
+    case DATE:
+      if (!(value instanceof Date))
+        return false;
+
+      //the same truncation to the day as in ODateSerializer, otherwise keys which are equal after serialization are different here
+      final Calendar calendar = Calendar.getInstance();
+      calendar.setTime((Date) value);
+      calendar.set(Calendar.HOUR_OF_DAY, 0);
+      calendar.set(Calendar.MINUTE, 0);
+      calendar.set(Calendar.SECOND, 0);
+      calendar.set(Calendar.MILLISECOND, 0);
+
+      writeBigEndian(stream, calendar.getTimeInMillis() ^ Long.MIN_VALUE, 8);
+      return true;
+    case DATETIME:
+      if (!(value instanceof Date))
+        return false;
+
+      writeBigEndian(stream, ((Date) value).getTime() ^ Long.MIN_VALUE, 8);
+      return true;
+    case LINK:
+      if (!(value instanceof OIdentifiable))
+        return false;
+
+      final ORID rid = ((OIdentifiable) value).getIdentity();
+      writeBigEndian(stream, rid.getClusterId() ^ Integer.MIN_VALUE, 4);
+      writeBigEndian(stream, rid.getClusterPosition() ^ Long.MIN_VALUE, 8);
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private static Object read(byte[] data, int[] offset, OType type) {
+    switch (type) {
+    case STRING:
+      return readString(data, offset);
+    case INTEGER:
+      return (int) readBigEndian(data, offset, 4) ^ Integer.MIN_VALUE;
+    case LONG:
+      return readBigEndian(data, offset, 8) ^ Long.MIN_VALUE;
+    case SHORT:
+      return (short) (readBigEndian(data, offset, 2) ^ Short.MIN_VALUE);
+    case BYTE:
+      return (byte) (readBigEndian(data, offset, 1) ^ Byte.MIN_VALUE);
+    case BOOLEAN:
+      return data[offset[0]++] != 0;
+    case FLOAT:
+      final int floatBits = (int) readBigEndian(data, offset, 4);
+      return Float.intBitsToFloat(floatBits < 0 ? floatBits ^ Integer.MIN_VALUE : ~floatBits);
+    case DOUBLE:
+      final long doubleBits = readBigEndian(data, offset, 8);
+      return Double.longBitsToDouble(doubleBits < 0 ? doubleBits ^ Long.MIN_VALUE : ~doubleBits);
+    case DATE:
+    case DATETIME:
+      return new Date(readBigEndian(data, offset, 8) ^ Long.MIN_VALUE);
+    case LINK:
+      final int clusterId = (int) readBigEndian(data, offset, 4) ^ Integer.MIN_VALUE;
+      final long clusterPosition = readBigEndian(data, offset, 8) ^ Long.MIN_VALUE;
+      return new ORecordId(clusterId, clusterPosition);
+    default:
+      throw new IllegalStateException("Keys of type " + type + " can not be normalized");
+    }
+  }
+
+  private static void writeString(ByteArrayOutputStream stream, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      final int c = value.charAt(i);
+
+      if (c < 0x7F)
+        stream.write(c + 1);
+      else if (c < 0x3F7F) {
+        final int v = c - 0x7F;
+        stream.write(0x80 + (v >>> 8));
+        stream.write(v & 0xFF);
+      } else {
+        stream.write(0xC0);
+        stream.write(c >>> 8);
+        stream.write(c & 0xFF);
+      }
+    }
+
+    stream.write(STRING_TERMINATOR);
+  }
+
+  private static String readString(byte[] data, int[] offset) {
+    final StringBuilder builder = new StringBuilder();
+    int position = offset[0];
+
+    while (true) {
+      final int b = data[position++] & 0xFF;
+      if (b == STRING_TERMINATOR)
+        break;
+
+      if (b < 0x80)
+        builder.append((char) (b - 1));
+      else if (b < 0xC0) {
+        builder.append((char) ((((b - 0x80) << 8) | (data[position++] & 0xFF)) + 0x7F));
+      } else {
+        builder.append((char) (((data[position] & 0xFF) << 8) | (data[position + 1] & 0xFF)));
+        position += 2;
+      }
+    }
+
+    offset[0] = position;
+    return builder.toString();
+  }
+
+  private static void writeBigEndian(ByteArrayOutputStream stream, long value, int size) {
+    for (int i = size - 1; i >= 0; i--)
+      stream.write((int) (value >>> (i * 8)) & 0xFF);
+  }
+
+  private static long readBigEndian(byte[] data, int[] offset, int size) {
+    long value = 0;
+    int position = offset[0];
+
+    for (int i = 0; i < size; i++)
+      value = (value << 8) | (data[position++] & 0xFF);
+
+    offset[0] = position;
+    return value;
+  }
+}
@@ -23,6 +23,7 @@ import java.util.*;
 
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordOperation;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
@@ -61,6 +62,7 @@ public abstract class OIdentifiableIterator<REC extends OIdentifiable> implement
   protected long firstClusterEntry      = 0;
   protected long lastClusterEntry       = Long.MAX_VALUE;
   private String fetchPlan;
+  private ODatabaseDocumentTx.RecordReader recordReader = null;
   private ORecord reusedRecord = null;                          // DEFAULT = NOT
   // REUSE IT
   private Boolean directionForward;
@@ -185,6 +187,18 @@ public abstract class OIdentifiableIterator<REC extends OIdentifiable> implement
     return this;
   }
 
+  /**
+   * Sets the reader of records used instead of the default one. Reader may skip records which should not be returned by the
+   * iterator before they are unmarshalled, by returning <code>null</code> instead of their content. It is used only outside of
+   * transactions and if tombstones are not browsed.
+   *
+   * @param recordReader reader of records or <code>null</code> to use the default one
+   */
+  public OIdentifiableIterator<REC> setRecordReader(final ODatabaseDocumentTx.RecordReader recordReader) {
+    this.recordReader = recordReader;
+    return this;
+  }
+
   public Set<ORID> getBrokenRIDs() {
     return brokenRIDs;
   }
@@ -293,7 +307,14 @@ public abstract class OIdentifiableIterator<REC extends OIdentifiable> implement
         return null;
 
       try {
-        if (iRecord != null) {
+        if (recordReader != null && !iterateThroughTombstones && lowLevelDatabase instanceof ODatabaseDocumentTx
+            && !lowLevelDatabase.getTransaction().isActive()) {
+          if (iRecord != null)
+            ORecordInternal.setIdentity(iRecord, new ORecordId(current.getClusterId(), current.getClusterPosition()));
+
+          iRecord = ((ODatabaseDocumentTx) lowLevelDatabase)
+              .executeReadRecord(current, iRecord, -1, fetchPlan, false, true, false, lockingStrategy, recordReader);
+        } else if (iRecord != null) {
           ORecordInternal.setIdentity(iRecord, new ORecordId(current.getClusterId(), current.getClusterPosition()));
           iRecord = lowLevelDatabase.load(iRecord, fetchPlan, false, true, iterateThroughTombstones, lockingStrategy);
         } else
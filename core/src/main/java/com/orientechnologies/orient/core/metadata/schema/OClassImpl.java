@@ -1881,7 +1881,9 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
     final String localName = this.name;
     final int[] localPolymorphicClusterIds = polymorphicClusterIds;
 
-    for (final String fieldToIndex : fields) {
+    final String[] indexFields = appendIncludedFields(name, type, metadata, fields);
+
+    for (final String fieldToIndex : indexFields) {
       final String fieldName = decodeClassName(OIndexDefinitionFactory.extractFieldName(fieldToIndex));
 
       if (!fieldName.equals("@rid") && !existsProperty(fieldName))
@@ -1891,12 +1893,54 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
     }
 
     final OIndexDefinition indexDefinition = OIndexDefinitionFactory
-        .createIndexDefinition(this, Arrays.asList(fields), extractFieldTypes(fields), null, type, algorithm);
+        .createIndexDefinition(this, Arrays.asList(indexFields), extractFieldTypes(indexFields), null, type, algorithm);
+
+    if (indexFields.length > fields.length)
+      ((OCompositeIndexDefinition) indexDefinition).setIncludedFieldsCount(indexFields.length - fields.length);
 
     return getDatabase().getMetadata().getIndexManager()
         .createIndex(name, type, indexDefinition, localPolymorphicClusterIds, progressListener, metadata, algorithm);
   }
 
+  /**
+   * Appends fields listed in {@link OIndex#INCLUDE} field of index metadata to the fields to index. Included fields are stored as
+   * the last components of index key, that is why they are supported only by not unique indexes. Collection fields can not be
+   * included because each their item would be stored in a separate key.
+   */
+  private String[] appendIncludedFields(final String indexName, final String type, final ODocument metadata,
+      final String[] fields) {
+    if (metadata == null)
+      return fields;
+
+    final Collection<?> includedFields = metadata.field(OIndex.INCLUDE);
+    if (includedFields == null || includedFields.isEmpty())
+      return fields;
+
+    if (!INDEX_TYPE.NOTUNIQUE.name().equals(type))
+      throw new OIndexException(
+          "Index with name '" + indexName + "' cannot be created on class '" + name + "' because included fields are supported only by "
+              + INDEX_TYPE.NOTUNIQUE + " indexes");
+
+    final List<String> indexFields = new ArrayList<String>(Arrays.asList(fields));
+    for (Object includedField : includedFields) {
+      final String fieldName = includedField.toString();
+      if (indexFields.contains(fieldName))
+        throw new OIndexException(
+            "Index with name '" + indexName + "' cannot be created on class '" + name + "' because the field '" + fieldName
+                + "' is listed twice");
+
+      final OProperty property = getProperty(decodeClassName(OIndexDefinitionFactory.extractFieldName(fieldName)));
+      if (property != null && property.getType().isMultiValue())
+        throw new OIndexException(
+            "Index with name '" + indexName + "' cannot be created on class '" + name + "' because the included field '" + fieldName
+                + "' is a collection");
+
+      indexFields.add(fieldName);
+    }
+
+    return indexFields.toArray(new String[indexFields.size()]);
+  }
+
   public boolean areIndexed(final String... fields) {
     return areIndexed(Arrays.asList(fields));
   }
@@ -44,6 +44,10 @@ import com.orientechnologies.orient.core.record.*;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.BytesContainer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.OBinaryField;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ODocumentSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
 import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerNetwork;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
 import com.orientechnologies.orient.core.sql.filter.OSQLPredicate;
@@ -66,6 +70,7 @@ public class ODocument extends ORecordAbstract
 
   public static final    byte     RECORD_TYPE      = 'd';
   protected static final String[] EMPTY_STRINGS    = new String[] {};
+  private static final   Object   NOT_DECODED      = new Object();
   private static final   long     serialVersionUID = 1L;
   protected int _fieldSize;
 
@@ -75,6 +80,7 @@ public class ODocument extends ORecordAbstract
   protected           boolean                             _ordered            = true;
   protected           boolean                             _lazyLoad           = true;
   protected           boolean                             _allowChainedAccess = true;
+  protected           boolean                             _lazyFieldDecoding  = false;
   protected transient List<WeakReference<ORecordElement>> _owners             = null;
   protected OImmutableSchema _schema;
   private   String           _className;
@@ -770,6 +776,13 @@ public class ODocument extends ORecordAbstract
       return null;
 
     checkForLoading();
+
+    if (_lazyFieldDecoding) {
+      final Object decoded = decodeField(iFieldName);
+      if (decoded != NOT_DECODED)
+        return (RET) decoded;
+    }
+
     if (!checkForFields(iFieldName))
       // NO FIELDS
       return null;
@@ -1645,6 +1658,24 @@ public class ODocument extends ORecordAbstract
     }
   }
 
+  public boolean isLazyFieldDecoding() {
+    return _lazyFieldDecoding;
+  }
+
+  /**
+   * Enables or disables the decoding of field values directly from the serialized content on each read. When enabled, reads of the
+   * fields which are not unmarshalled yet do not fill the fields of the document, so documents which are only read, like the
+   * results of big queries, are never materialized. Only the values of immutable types are decoded this way, the first change of
+   * the document unmarshalls all the fields as usual.
+   *
+   * @param iLazyFieldDecoding True to enable it, otherwise false
+   * @return this
+   */
+  public ODocument setLazyFieldDecoding(final boolean iLazyFieldDecoding) {
+    this._lazyFieldDecoding = iLazyFieldDecoding;
+    return this;
+  }
+
   public boolean isTrackingChanges() {
     return _trackingChanges;
   }
@@ -2614,6 +2645,54 @@ public class ODocument extends ORecordAbstract
 
   }
 
+  /**
+   * Decodes the value of the field from the serialized content without unmarshalling of the field into the document.
+   *
+   * @return value of the field or {@link #NOT_DECODED} if the field is unmarshalled already, is absent, is null or its value is not
+   * immutable, so it has to be read from the fields of the document.
+   */
+  private Object decodeField(final String iFieldName) {
+    if (_status != ORecordElement.STATUS.LOADED || _source == null || _source.length == 0 || iFieldName.charAt(0) == '@')
+      return NOT_DECODED;
+
+    if (_fields != null && _fields.containsKey(iFieldName))
+      // ALREADY UNMARSHALLED OR CHANGED
+      return NOT_DECODED;
+
+    if (_allowChainedAccess && OStringSerializerHelper.indexOf(iFieldName, 0, '.', '[') > -1)
+      return NOT_DECODED;
+
+    if (_recordFormat == null)
+      setup();
+
+    if (!(_recordFormat instanceof ORecordSerializerBinary) || !ODatabaseRecordThreadLocal.INSTANCE.isDefined())
+      return NOT_DECODED;
+
+    final ODocumentSerializer serializer = ((ORecordSerializerBinary) _recordFormat).getSerializer(_source[0]);
+    final OBinaryField field = serializer
+        .deserializeField(new BytesContainer(_source).skip(1), getImmutableSchemaClass(), iFieldName);
+    if (field == null)
+      return NOT_DECODED;
+
+    switch (field.type) {
+    case BOOLEAN:
+    case BYTE:
+    case SHORT:
+    case INTEGER:
+    case LONG:
+    case FLOAT:
+    case DOUBLE:
+    case DECIMAL:
+    case STRING:
+    case DATE:
+    case DATETIME:
+      return serializer.deserializeValue(field.bytes, field.type, this);
+    default:
+      // LINKS ARE REPLACED BY LOADED RECORDS AND BINARY VALUES CAN BE CHANGED IN PLACE
+      return NOT_DECODED;
+    }
+  }
+
   protected boolean checkForFields(final String... iFields) {
     if (_fields == null)
       _fields = _ordered ? new LinkedHashMap<String, ODocumentEntry>() : new HashMap<String, ODocumentEntry>();
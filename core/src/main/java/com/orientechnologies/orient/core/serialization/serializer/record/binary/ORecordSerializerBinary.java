@@ -21,6 +21,9 @@
 package com.orientechnologies.orient.core.serialization.serializer.record.binary;
 
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.OBase64Utils;
@@ -30,13 +33,15 @@ public class ORecordSerializerBinary implements ORecordSerializer {
 
   public static final String                  NAME                   = "ORecordSerializerBinary";
   public static final ORecordSerializerBinary INSTANCE               = new ORecordSerializerBinary();
-  private static final byte                   CURRENT_RECORD_VERSION = 0;
+  private static final byte                   CURRENT_RECORD_VERSION = 1;
+  private static final byte                   MIN_RECORD_VERSION     = 0;
 
   private ODocumentSerializer[]               serializerByVersion;
 
   public ORecordSerializerBinary() {
-    serializerByVersion = new ODocumentSerializer[1];
+    serializerByVersion = new ODocumentSerializer[2];
     serializerByVersion[0] = new ORecordSerializerBinaryV0();
+    serializerByVersion[1] = new ORecordSerializerBinaryV1();
   }
 
   @Override
@@ -46,7 +51,7 @@ public class ORecordSerializerBinary implements ORecordSerializer {
 
   @Override
   public int getMinSupportedVersion() {
-    return CURRENT_RECORD_VERSION;
+    return MIN_RECORD_VERSION;
   }
 
   public ODocumentSerializer getSerializer(final int iVersion) {
@@ -93,10 +98,11 @@ public class ORecordSerializerBinary implements ORecordSerializer {
     final BytesContainer container = new BytesContainer();
 
     // WRITE SERIALIZER VERSION
+    final byte version = getWriteVersion();
     int pos = container.alloc(1);
-    container.bytes[pos] = CURRENT_RECORD_VERSION;
+    container.bytes[pos] = version;
     // SERIALIZE RECORD
-    serializerByVersion[CURRENT_RECORD_VERSION].serialize((ODocument) iSource, container, false);
+    serializerByVersion[version].serialize((ODocument) iSource, container, false);
 
     return container.fitBytes();
   }
@@ -117,6 +123,22 @@ public class ORecordSerializerBinary implements ORecordSerializer {
     }
   }
 
+  /**
+   * Records of the database which storage configuration contains older serializer version are written in that version, because
+   * releases which do not support current version check only version stored in configuration before database is opened.
+   */
+  private static byte getWriteVersion() {
+    final ODatabaseDocumentInternal db = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (db == null || db.getStorage() == null)
+      return CURRENT_RECORD_VERSION;
+
+    final OStorageConfiguration configuration = db.getStorage().getConfiguration();
+    if (configuration == null || configuration.getRecordSerializerVersion() >= CURRENT_RECORD_VERSION)
+      return CURRENT_RECORD_VERSION;
+
+    return (byte) Math.max(configuration.getRecordSerializerVersion(), MIN_RECORD_VERSION);
+  }
+
   private void checkTypeODocument(final ORecord iRecord) {
     if (!(iRecord instanceof ODocument)) {
       throw new UnsupportedOperationException("The " + ORecordSerializerBinary.NAME + " don't support record of type "
@@ -128,11 +150,12 @@ public class ORecordSerializerBinary implements ORecordSerializer {
     final BytesContainer container = new BytesContainer();
 
     // WRITE SERIALIZER VERSION
+    final byte version = getWriteVersion();
     int pos = container.alloc(1);
-    container.bytes[pos] = CURRENT_RECORD_VERSION;
+    container.bytes[pos] = version;
 
     // SERIALIZE CLASS ONLY
-    serializerByVersion[CURRENT_RECORD_VERSION].serialize((ODocument) iSource, container, true);
+    serializerByVersion[version].serialize((ODocument) iSource, container, true);
 
     return container.fitBytes();
   }
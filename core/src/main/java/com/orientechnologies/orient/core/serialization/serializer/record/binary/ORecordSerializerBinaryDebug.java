@@ -3,6 +3,7 @@ package com.orientechnologies.orient.core.serialization.serializer.record.binary
 import java.util.ArrayList;
 
 import com.orientechnologies.common.exception.OSystemException;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.metadata.OMetadataInternal;
@@ -17,9 +18,12 @@ public class ORecordSerializerBinaryDebug extends ORecordSerializerBinaryV0 {
     ORecordSerializationDebug debugInfo = new ORecordSerializationDebug();
     OImmutableSchema schema = ((OMetadataInternal) db.getMetadata()).getImmutableSchemaSnapshot();
     BytesContainer bytes = new BytesContainer(iSource);
-    if (bytes.bytes[0] != 0)
+    final byte version = bytes.bytes[0];
+    if (version != 0 && version != 1)
       throw new OSystemException("Unsupported binary serialization version");
     bytes.skip(1);
+    // EMBEDDED DOCUMENTS ARE WRITTEN IN THE SAME VERSION AS THE RECORD
+    final ODocumentSerializer valueSerializer = ORecordSerializerBinary.INSTANCE.getSerializer(version);
     try {
       final String className = readString(bytes);
       debugInfo.className = className;
@@ -32,6 +36,54 @@ public class ORecordSerializerBinaryDebug extends ORecordSerializerBinaryV0 {
 
     debugInfo.properties = new ArrayList<ORecordSerializationDebugProperty>();
     int last = 0;
+    if (version == 1) {
+      try {
+        final int tableSize = OVarIntSerializer.readAsInteger(bytes);
+        final int firstId = tableSize > 0 ? OVarIntSerializer.readAsInteger(bytes) : 0;
+        final int tablePos = bytes.offset;
+        bytes.skip(tableSize * OIntegerSerializer.INT_SIZE);
+
+        for (int slot = 0; slot < tableSize; slot++) {
+          final int valuePos = OIntegerSerializer.INSTANCE
+              .deserializeLiteral(bytes.bytes, tablePos + slot * OIntegerSerializer.INT_SIZE);
+          if (valuePos == ORecordSerializerBinaryV1.ABSENT_FIELD_POSITION)
+            continue;
+
+          final ORecordSerializationDebugProperty debugProperty = new ORecordSerializationDebugProperty();
+          debugInfo.properties.add(debugProperty);
+          debugProperty.globalId = firstId + slot;
+          debugProperty.valuePos = valuePos;
+
+          final OGlobalProperty prop = schema.getGlobalPropertyById(firstId + slot);
+          if (prop == null)
+            continue;
+
+          debugProperty.name = prop.getName();
+          debugProperty.type = prop.getType();
+
+          if (valuePos != ORecordSerializerBinaryV1.NULL_FIELD_POSITION) {
+            final int headerCursor = bytes.offset;
+            bytes.offset = valuePos;
+            try {
+              debugProperty.value = valueSerializer.deserializeValue(bytes, prop.getType(), new ODocument());
+            } catch (RuntimeException ex) {
+              debugProperty.faildToRead = true;
+              debugProperty.readingException = ex;
+              debugProperty.failPosition = bytes.offset;
+            }
+            if (bytes.offset > last)
+              last = bytes.offset;
+            bytes.offset = headerCursor;
+          }
+        }
+      } catch (RuntimeException ex) {
+        debugInfo.readingFailure = true;
+        debugInfo.readingException = ex;
+        debugInfo.failPosition = bytes.offset;
+        return debugInfo;
+      }
+    }
+
     String fieldName;
     int valuePos;
     OType type;
@@ -75,7 +127,7 @@ public class ORecordSerializerBinaryDebug extends ORecordSerializerBinaryV0 {
           int headerCursor = bytes.offset;
           bytes.offset = valuePos;
           try {
-            debugProperty.value = deserializeValue(bytes, type, new ODocument());
+            debugProperty.value = valueSerializer.deserializeValue(bytes, type, new ODocument());
           } catch (RuntimeException ex) {
             debugProperty.faildToRead = true;
             debugProperty.readingException = ex;
@@ -72,6 +72,13 @@ public class ORecordSerializerBinaryV0 implements ODocumentSerializer {
     if (className.length() != 0)
       ODocumentInternal.fillClassNameIfNeeded(document, className);
 
+    deserializeHeaderPartial(document, bytes, iFields);
+  }
+
+  /**
+   * Deserializes fields of the header which have one of the given names, header is scanned till all of them are found.
+   */
+  protected void deserializeHeaderPartial(final ODocument document, final BytesContainer bytes, final String[] iFields) {
     // TRANSFORMS FIELDS FOM STRINGS TO BYTE[]
     final byte[][] fields = new byte[iFields.length][];
     for (int i = 0; i < iFields.length; ++i)
@@ -162,11 +169,21 @@ public class ORecordSerializerBinaryV0 implements ODocumentSerializer {
     final int classNameLen = OVarIntSerializer.readAsInteger(bytes);
     bytes.skip(classNameLen);
 
-    final byte[] field = iFieldName.getBytes();
-
     final OMetadataInternal metadata = (OMetadataInternal) ODatabaseRecordThreadLocal.INSTANCE.get().getMetadata();
     final OImmutableSchema _schema = metadata.getImmutableSchemaSnapshot();
 
+    return deserializeHeaderField(bytes, iClass, iFieldName, _schema);
+  }
+
+  /**
+   * Scans the header for the field with the given name.
+   *
+   * @return binary value of the field or <code>null</code> if field is absent, is null or is not binary comparable.
+   */
+  protected OBinaryField deserializeHeaderField(final BytesContainer bytes, final OClass iClass, final String iFieldName,
+      final OImmutableSchema _schema) {
+    final byte[] field = iFieldName.getBytes();
+
     while (true) {
       final int len = OVarIntSerializer.readAsInteger(bytes);
 
@@ -238,7 +255,22 @@ public class ORecordSerializerBinaryV0 implements ODocumentSerializer {
     if (className.length() != 0)
       ODocumentInternal.fillClassNameIfNeeded(document, className);
 
-    int last = 0;
+    final int last = deserializeHeader(document, bytes, 0);
+
+    ORecordInternal.clearSource(document);
+
+    if (last > bytes.offset)
+      bytes.offset = last;
+  }
+
+  /**
+   * Deserializes all fields of the header which are not contained in the document yet.
+   *
+   * @param last the biggest position reached by values which were read before the header.
+   *
+   * @return the biggest position reached by values of the record.
+   */
+  protected int deserializeHeader(final ODocument document, final BytesContainer bytes, int last) {
     String fieldName;
     int valuePos;
     OType type;
@@ -283,10 +315,7 @@ public class ORecordSerializerBinaryV0 implements ODocumentSerializer {
         ODocumentInternal.rawField(document, fieldName, null, null);
     }
 
-    ORecordInternal.clearSource(document);
-
-    if (last > bytes.offset)
-      bytes.offset = last;
+    return last;
   }
 
   @Override
@@ -296,7 +325,15 @@ public class ORecordSerializerBinaryV0 implements ODocumentSerializer {
     bytes.skip(classNameLen);
 
     final List<String> result = new ArrayList<String>();
+    readFieldNames(reference, bytes, result);
+
+    return result.toArray(new String[result.size()]);
+  }
 
+  /**
+   * Adds names of all fields of the header to the given list.
+   */
+  protected void readFieldNames(final ODocument reference, final BytesContainer bytes, final List<String> result) {
     String fieldName;
     while (true) {
       OGlobalProperty prop = null;
@@ -324,8 +361,6 @@ public class ORecordSerializerBinaryV0 implements ODocumentSerializer {
         bytes.skip(OIntegerSerializer.INT_SIZE + (prop.getType() != OType.ANY ? 0 : 1));
       }
     }
-
-    return result.toArray(new String[result.size()]);
   }
 
   @SuppressWarnings("unchecked")
@@ -351,44 +386,71 @@ public class ORecordSerializerBinaryV0 implements ODocumentSerializer {
       ODocumentEntry docEntry = entry.getValue();
       if (!docEntry.exist())
         continue;
-      if (docEntry.property == null && props != null) {
-        OProperty prop = props.get(entry.getKey());
-        if (prop != null && docEntry.type == prop.getType())
-          docEntry.property = prop;
-      }
+      resolveFieldProperty(entry.getKey(), docEntry, props);
 
-      if (docEntry.property != null) {
-        OVarIntSerializer.write(bytes, (docEntry.property.getId() + 1) * -1);
-        if (docEntry.property.getType() != OType.ANY)
-          pos[i] = bytes.alloc(OIntegerSerializer.INT_SIZE);
-        else
-          pos[i] = bytes.alloc(OIntegerSerializer.INT_SIZE + 1);
-      } else {
-        writeString(bytes, entry.getKey());
-        pos[i] = bytes.alloc(OIntegerSerializer.INT_SIZE + 1);
-      }
+      pos[i] = serializeHeaderEntry(bytes, entry.getKey(), docEntry);
       values[i] = entry;
       i++;
     }
     writeEmptyString(bytes);
     int size = i;
 
-    for (i = 0; i < size; i++) {
-      int pointer = 0;
-      final Object value = values[i].getValue().value;
-      if (value != null) {
-        final OType type = getFieldType(values[i].getValue());
-        if (type == null) {
-          throw new OSerializationException(
-              "Impossible serialize value of type " + value.getClass() + " with the ODocument binary serializer");
-        }
-        pointer = serializeValue(bytes, value, type, getLinkedType(document, type, values[i].getKey()));
-        OIntegerSerializer.INSTANCE.serializeLiteral(pointer, bytes.bytes, pos[i]);
-        if (values[i].getValue().property == null || values[i].getValue().property.getType() == OType.ANY)
-          writeOType(bytes, (pos[i] + OIntegerSerializer.INT_SIZE), type);
-      }
+    for (i = 0; i < size; i++)
+      serializeFieldValue(document, bytes, values[i], pos[i]);
+  }
+
+  /**
+   * Binds the field to the property of the class with the same name and type, values of such fields are written without type.
+   */
+  protected void resolveFieldProperty(final String fieldName, final ODocumentEntry docEntry, final Map<String, OProperty> props) {
+    if (docEntry.property == null && props != null) {
+      OProperty prop = props.get(fieldName);
+      if (prop != null && docEntry.type == prop.getType())
+        docEntry.property = prop;
+    }
+  }
+
+  /**
+   * Writes entry of the field to the header, fields bound to the properties are identified by id of the global property, other
+   * fields by name.
+   *
+   * @return position of the header entry where position of the value has to be written.
+   */
+  protected int serializeHeaderEntry(final BytesContainer bytes, final String fieldName, final ODocumentEntry docEntry) {
+    if (docEntry.property != null) {
+      OVarIntSerializer.write(bytes, (docEntry.property.getId() + 1) * -1);
+      if (docEntry.property.getType() != OType.ANY)
+        return bytes.alloc(OIntegerSerializer.INT_SIZE);
+
+      return bytes.alloc(OIntegerSerializer.INT_SIZE + 1);
     }
 
+    writeString(bytes, fieldName);
+    return bytes.alloc(OIntegerSerializer.INT_SIZE + 1);
+  }
+
+  /**
+   * Serializes value of the field and writes its position, and its type if it is not defined by the property, at the given
+   * position of the header.
+   *
+   * @return position of the value or <code>0</code> if value is null.
+   */
+  protected int serializeFieldValue(final ODocument document, final BytesContainer bytes, final Entry<String, ODocumentEntry> field,
+      final int headerPos) {
+    int pointer = 0;
+    final Object value = field.getValue().value;
+    if (value != null) {
+      final OType type = getFieldType(field.getValue());
+      if (type == null) {
+        throw new OSerializationException(
+            "Impossible serialize value of type " + value.getClass() + " with the ODocument binary serializer");
+      }
+      pointer = serializeValue(bytes, value, type, getLinkedType(document, type, field.getKey()));
+      OIntegerSerializer.INSTANCE.serializeLiteral(pointer, bytes.bytes, headerPos);
+      if (field.getValue().property == null || field.getValue().property.getType() == OType.ANY)
+        writeOType(bytes, (headerPos + OIntegerSerializer.INT_SIZE), type);
+    }
+    return pointer;
   }
 
   @Override
@@ -967,11 +1029,11 @@ public class ORecordSerializerBinaryV0 implements ODocumentSerializer {
     return value;
   }
 
-  private int writeEmptyString(final BytesContainer bytes) {
+  protected int writeEmptyString(final BytesContainer bytes) {
     return OVarIntSerializer.write(bytes, 0);
   }
 
-  private int writeString(final BytesContainer bytes, final String toWrite) {
+  protected int writeString(final BytesContainer bytes, final String toWrite) {
     final byte[] nameBytes = bytesFromString(toWrite);
     final int pointer = OVarIntSerializer.write(bytes, nameBytes.length);
     final int start = bytes.alloc(nameBytes.length);
@@ -0,0 +1,362 @@
+/*
+ *
+ *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientechnologies.com
+ *
+ */
+
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.metadata.OMetadataInternal;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OGlobalProperty;
+import com.orientechnologies.orient.core.metadata.schema.OImmutableSchema;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentEntry;
+import com.orientechnologies.orient.core.record.impl.ODocumentInternal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Version of binary serializer which places fields of the properties declared in the schema into the table of value positions
+ * indexed by id of the global property, so such fields are found without scan of the header, and neither names nor types of
+ * them are written. Other fields are written into the header in the same way as by {@link ORecordSerializerBinaryV0}. Record
+ * has the following layout:
+ * <p>
+ * <code>class name | size of table (varint) | id of the property of the first slot (varint, only if table is not empty) | value
+ * positions (int per slot) | header | values</code>
+ * <p>
+ * Slot of the field which is absent in the record contains {@link #ABSENT_FIELD_POSITION}, slot of the field with null value
+ * contains {@link #NULL_FIELD_POSITION}. Ids of the properties of the record may be far from each other, so table covers only the
+ * densest range of them, fields of other properties are written into the header.
+ *
+ * @since 19.05.17
+ */
+public class ORecordSerializerBinaryV1 extends ORecordSerializerBinaryV0 {
+  public static final int ABSENT_FIELD_POSITION = 0;
+  public static final int NULL_FIELD_POSITION   = -1;
+
+  /**
+   * Amount of empty slots which are allowed in the table in addition to one empty slot per field.
+   */
+  private static final int TABLE_SLACK = 8;
+
+  private static final Comparator<Entry<String, ODocumentEntry>> PROPERTY_ID_COMPARATOR =
+      new Comparator<Entry<String, ODocumentEntry>>() {
+        @Override
+        public int compare(Entry<String, ODocumentEntry> entryOne, Entry<String, ODocumentEntry> entryTwo) {
+          final int idOne = entryOne.getValue().property.getId();
+          final int idTwo = entryTwo.getValue().property.getId();
+
+          return idOne < idTwo ? -1 : (idOne == idTwo ? 0 : 1);
+        }
+      };
+
+  @Override
+  public void deserializePartial(final ODocument document, final BytesContainer bytes, final String[] iFields) {
+    final String className = readString(bytes);
+    if (className.length() != 0)
+      ODocumentInternal.fillClassNameIfNeeded(document, className);
+
+    final int tableSize = OVarIntSerializer.readAsInteger(bytes);
+    final int firstId = tableSize > 0 ? OVarIntSerializer.readAsInteger(bytes) : 0;
+    final int tablePos = bytes.offset;
+    bytes.skip(tableSize * OIntegerSerializer.INT_SIZE);
+
+    final String[] notFound = new String[iFields.length];
+    int notFoundCount = 0;
+
+    if (tableSize > 0) {
+      final OClass clazz = ODocumentInternal.getImmutableSchemaClass(document);
+      final OImmutableSchema schema = getSchema();
+
+      for (String fieldName : iFields) {
+        final int slot = findSlot(bytes, tablePos, tableSize, firstId, clazz, fieldName, schema);
+        if (slot < 0) {
+          notFound[notFoundCount++] = fieldName;
+          continue;
+        }
+
+        final int valuePos = readSlot(bytes, tablePos, slot);
+        if (valuePos != NULL_FIELD_POSITION) {
+          final OType type = schema.getGlobalPropertyById(firstId + slot).getType();
+          final int headerCursor = bytes.offset;
+          bytes.offset = valuePos;
+          final Object value = deserializeValue(bytes, type, document);
+          bytes.offset = headerCursor;
+          ODocumentInternal.rawField(document, fieldName, value, type);
+        } else
+          ODocumentInternal.rawField(document, fieldName, null, null);
+      }
+    } else {
+      System.arraycopy(iFields, 0, notFound, 0, iFields.length);
+      notFoundCount = iFields.length;
+    }
+
+    if (notFoundCount > 0)
+      deserializeHeaderPartial(document, bytes, Arrays.copyOf(notFound, notFoundCount));
+  }
+
+  @Override
+  public OBinaryField deserializeField(final BytesContainer bytes, final OClass iClass, final String iFieldName) {
+    // SKIP CLASS NAME
+    final int classNameLen = OVarIntSerializer.readAsInteger(bytes);
+    bytes.skip(classNameLen);
+
+    final int tableSize = OVarIntSerializer.readAsInteger(bytes);
+    final int firstId = tableSize > 0 ? OVarIntSerializer.readAsInteger(bytes) : 0;
+    final int tablePos = bytes.offset;
+    bytes.skip(tableSize * OIntegerSerializer.INT_SIZE);
+
+    final OImmutableSchema schema = getSchema();
+
+    if (tableSize > 0) {
+      final int slot = findSlot(bytes, tablePos, tableSize, firstId, iClass, iFieldName, schema);
+      if (slot >= 0) {
+        final int valuePos = readSlot(bytes, tablePos, slot);
+        if (valuePos == NULL_FIELD_POSITION)
+          return null;
+
+        final OType type = schema.getGlobalPropertyById(firstId + slot).getType();
+        if (!ORecordSerializerBinary.INSTANCE.getCurrentSerializer().getComparator().isBinaryComparable(type))
+          return null;
+
+        bytes.offset = valuePos;
+
+        final OProperty classProp = iClass != null ? iClass.getProperty(iFieldName) : null;
+        return new OBinaryField(iFieldName, type, bytes, classProp != null ? classProp.getCollate() : null);
+      }
+    }
+
+    return deserializeHeaderField(bytes, iClass, iFieldName, schema);
+  }
+
+  @Override
+  public void deserialize(final ODocument document, final BytesContainer bytes) {
+    final String className = readString(bytes);
+    if (className.length() != 0)
+      ODocumentInternal.fillClassNameIfNeeded(document, className);
+
+    final int tableSize = OVarIntSerializer.readAsInteger(bytes);
+    final int firstId = tableSize > 0 ? OVarIntSerializer.readAsInteger(bytes) : 0;
+    final int tablePos = bytes.offset;
+    bytes.skip(tableSize * OIntegerSerializer.INT_SIZE);
+
+    int last = 0;
+    for (int slot = 0; slot < tableSize; slot++) {
+      final int valuePos = readSlot(bytes, tablePos, slot);
+      if (valuePos == ABSENT_FIELD_POSITION)
+        continue;
+
+      final OGlobalProperty prop = ODocumentInternal.getGlobalPropertyById(document, firstId + slot);
+      if (prop == null)
+        throw new OSerializationException("Missing property definition for property id '" + (firstId + slot) + "'");
+
+      final String fieldName = prop.getName();
+      if (ODocumentInternal.rawContainsField(document, fieldName))
+        continue;
+
+      if (valuePos != NULL_FIELD_POSITION) {
+        final int headerCursor = bytes.offset;
+        bytes.offset = valuePos;
+        final Object value = deserializeValue(bytes, prop.getType(), document);
+        if (bytes.offset > last)
+          last = bytes.offset;
+        bytes.offset = headerCursor;
+        ODocumentInternal.rawField(document, fieldName, value, prop.getType());
+      } else
+        ODocumentInternal.rawField(document, fieldName, null, null);
+    }
+
+    last = deserializeHeader(document, bytes, last);
+
+    ORecordInternal.clearSource(document);
+
+    if (last > bytes.offset)
+      bytes.offset = last;
+  }
+
+  @Override
+  public String[] getFieldNames(ODocument reference, final BytesContainer bytes) {
+    // SKIP CLASS NAME
+    final int classNameLen = OVarIntSerializer.readAsInteger(bytes);
+    bytes.skip(classNameLen);
+
+    final int tableSize = OVarIntSerializer.readAsInteger(bytes);
+    final int firstId = tableSize > 0 ? OVarIntSerializer.readAsInteger(bytes) : 0;
+    final int tablePos = bytes.offset;
+    bytes.skip(tableSize * OIntegerSerializer.INT_SIZE);
+
+    final List<String> result = new ArrayList<String>();
+    for (int slot = 0; slot < tableSize; slot++) {
+      if (readSlot(bytes, tablePos, slot) == ABSENT_FIELD_POSITION)
+        continue;
+
+      final OGlobalProperty prop = ODocumentInternal.getGlobalPropertyById(reference, firstId + slot);
+      if (prop == null)
+        throw new OSerializationException("Missing property definition for property id '" + (firstId + slot) + "'");
+
+      result.add(prop.getName());
+    }
+
+    readFieldNames(reference, bytes, result);
+
+    return result.toArray(new String[result.size()]);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void serialize(final ODocument document, final BytesContainer bytes, final boolean iClassOnly) {
+    final OClass clazz = serializeClass(document, bytes);
+    if (iClassOnly) {
+      // EMPTY TABLE AND EMPTY HEADER
+      writeEmptyString(bytes);
+      writeEmptyString(bytes);
+      return;
+    }
+
+    final Map<String, OProperty> props = clazz != null ? clazz.propertiesMap() : null;
+
+    final Set<Entry<String, ODocumentEntry>> fields = ODocumentInternal.rawEntries(document);
+
+    final List<Entry<String, ODocumentEntry>> tableFields = new ArrayList<Entry<String, ODocumentEntry>>();
+    final List<Entry<String, ODocumentEntry>> headerFields = new ArrayList<Entry<String, ODocumentEntry>>();
+    for (Entry<String, ODocumentEntry> entry : fields) {
+      final ODocumentEntry docEntry = entry.getValue();
+      if (!docEntry.exist())
+        continue;
+      resolveFieldProperty(entry.getKey(), docEntry, props);
+
+      if (docEntry.property != null && docEntry.property.getType() != OType.ANY)
+        tableFields.add(entry);
+      else
+        headerFields.add(entry);
+    }
+
+    Collections.sort(tableFields, PROPERTY_ID_COMPARATOR);
+
+    final int[] range = chooseTableRange(tableFields);
+    headerFields.addAll(tableFields.subList(0, range[0]));
+    headerFields.addAll(tableFields.subList(range[1], tableFields.size()));
+
+    final List<Entry<String, ODocumentEntry>> slotFields = tableFields.subList(range[0], range[1]);
+
+    int firstId = 0;
+    int tableSize = 0;
+    if (!slotFields.isEmpty()) {
+      firstId = slotFields.get(0).getValue().property.getId();
+      tableSize = slotFields.get(slotFields.size() - 1).getValue().property.getId() - firstId + 1;
+    }
+
+    OVarIntSerializer.write(bytes, tableSize);
+    int tablePos = 0;
+    if (tableSize > 0) {
+      OVarIntSerializer.write(bytes, firstId);
+      tablePos = bytes.alloc(tableSize * OIntegerSerializer.INT_SIZE);
+      Arrays.fill(bytes.bytes, tablePos, tablePos + tableSize * OIntegerSerializer.INT_SIZE, (byte) ABSENT_FIELD_POSITION);
+    }
+
+    final int[] pos = new int[headerFields.size()];
+    for (int i = 0; i < headerFields.size(); i++) {
+      final Entry<String, ODocumentEntry> entry = headerFields.get(i);
+      pos[i] = serializeHeaderEntry(bytes, entry.getKey(), entry.getValue());
+    }
+    writeEmptyString(bytes);
+
+    for (Entry<String, ODocumentEntry> entry : slotFields) {
+      final int slotPos = tablePos + (entry.getValue().property.getId() - firstId) * OIntegerSerializer.INT_SIZE;
+      if (serializeFieldValue(document, bytes, entry, slotPos) == 0)
+        OIntegerSerializer.INSTANCE.serializeLiteral(NULL_FIELD_POSITION, bytes.bytes, slotPos);
+    }
+
+    for (int i = 0; i < headerFields.size(); i++)
+      serializeFieldValue(document, bytes, headerFields.get(i), pos[i]);
+  }
+
+  /**
+   * Chooses the range of fields, sorted by ids of their properties, which is covered by the table. Range contains the biggest
+   * amount of fields for which table has no more than one empty slot per field plus {@link #TABLE_SLACK} empty slots.
+   *
+   * @return index of the first field of the range and index of the field next to the last one.
+   */
+  private static int[] chooseTableRange(final List<Entry<String, ODocumentEntry>> tableFields) {
+    final int[] range = new int[2];
+
+    int from = 0;
+    for (int to = 0; to < tableFields.size(); to++) {
+      final int lastId = tableFields.get(to).getValue().property.getId();
+      while (lastId - tableFields.get(from).getValue().property.getId() + 1 > 2 * (to - from + 1) + TABLE_SLACK)
+        from++;
+
+      if (to - from + 1 > range[1] - range[0]) {
+        range[0] = from;
+        range[1] = to + 1;
+      }
+    }
+
+    return range;
+  }
+
+  /**
+   * Finds the slot of the table which contains position of the value of the field. Slot is looked up by id of the property of the
+   * class first. Field which was written when property had other id, for example before change of its type or before property was
+   * dropped and created again, is found by comparison of its name with names of the global properties of the filled slots.
+   *
+   * @return index of the slot or <code>-1</code> if field is not contained in the table.
+   */
+  private static int findSlot(final BytesContainer bytes, final int tablePos, final int tableSize, final int firstId,
+      final OClass clazz, final String fieldName, final OImmutableSchema schema) {
+    final OProperty property = clazz != null ? clazz.getProperty(fieldName) : null;
+    if (property != null) {
+      final int slot = property.getId() - firstId;
+      if (slot >= 0 && slot < tableSize && readSlot(bytes, tablePos, slot) != ABSENT_FIELD_POSITION)
+        return slot;
+    }
+
+    for (int slot = 0; slot < tableSize; slot++) {
+      if (readSlot(bytes, tablePos, slot) == ABSENT_FIELD_POSITION)
+        continue;
+
+      final OGlobalProperty globalProperty = schema.getGlobalPropertyById(firstId + slot);
+      if (globalProperty != null && fieldName.equals(globalProperty.getName()))
+        return slot;
+    }
+
+    return -1;
+  }
+
+  private static int readSlot(final BytesContainer bytes, final int tablePos, final int slot) {
+    return OIntegerSerializer.INSTANCE.deserializeLiteral(bytes.bytes, tablePos + slot * OIntegerSerializer.INT_SIZE);
+  }
+
+  private static OImmutableSchema getSchema() {
+    final OMetadataInternal metadata = ODatabaseRecordThreadLocal.INSTANCE.get().getMetadata();
+    return metadata.getImmutableSchemaSnapshot();
+  }
+}
@@ -36,6 +36,8 @@ import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -196,6 +198,28 @@ public final class OAutoShardingIndexEngine implements OIndexEngine {
     return getPartition(key).get(key);
   }
 
+  @Override
+  public Map<Object, Object> getAll(final Collection<?> keys) {
+    final Map<OHashTable<Object, Object>, List<Object>> keysByPartition = new HashMap<OHashTable<Object, Object>, List<Object>>();
+    for (Object key : keys) {
+      final OHashTable<Object, Object> partition = getPartition(key);
+
+      List<Object> partitionKeys = keysByPartition.get(partition);
+      if (partitionKeys == null) {
+        partitionKeys = new ArrayList<Object>();
+        keysByPartition.put(partition, partitionKeys);
+      }
+
+      partitionKeys.add(key);
+    }
+
+    final Map<Object, Object> result = new HashMap<Object, Object>();
+    for (Map.Entry<OHashTable<Object, Object>, List<Object>> entry : keysByPartition.entrySet())
+      result.putAll(entry.getKey().getAll(entry.getValue()));
+
+    return result;
+  }
+
   @Override
   public void put(final Object key, final Object value) {
     getPartition(key).put(key, value);
@@ -213,6 +213,7 @@ public class OChainedIndexProxy<T> implements OIndex<T> {
     case FULLTEXT_HASH_INDEX:
     case DICTIONARY_HASH_INDEX:
     case SPATIAL:
+    case NOTUNIQUE_BITMAP:
       return -1;
     }
 
@@ -0,0 +1,102 @@
+/*
+ *
+ *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientechnologies.com
+ *
+ */
+package com.orientechnologies.orient.core.sql;
+
+import com.orientechnologies.orient.core.command.OCommandDistributedReplicateRequest;
+import com.orientechnologies.orient.core.command.OCommandExecutor;
+import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexManager;
+
+import java.util.Map;
+
+/**
+ * SQL ANALYZE INDEX command: gathers statistics of the index content which are used by query executor to choose between indexes
+ * and class scan.
+ *
+ * @since 17.05.17
+ */
+public class OCommandExecutorSQLAnalyzeIndex extends OCommandExecutorSQLAbstract implements OCommandDistributedReplicateRequest {
+  public static final String KEYWORD_ANALYZE = "ANALYZE";
+  public static final String KEYWORD_INDEX   = "INDEX";
+
+  private String name;
+
+  @SuppressWarnings("unchecked")
+  public <RET extends OCommandExecutor> RET parse(final OCommandRequest iRequest) {
+    // NOT PRE-PARSED, STRICT SQL GRAMMAR DOES NOT KNOW THIS COMMAND
+    init((OCommandRequestText) iRequest);
+
+    parserRequiredKeyword(KEYWORD_ANALYZE);
+    parserRequiredKeyword(KEYWORD_INDEX);
+    name = parserRequiredWord(false, "Expected index name");
+
+    return (RET) this;
+  }
+
+  /**
+   * Execute the ANALYZE INDEX.
+   *
+   * @return amount of analyzed index entries.
+   */
+  public Object execute(final Map<Object, Object> iArgs) {
+    if (name == null)
+      throw new OCommandExecutionException("Cannot execute the command because it has not been parsed yet");
+
+    final ODatabaseDocument database = getDatabase();
+    final OIndexManager indexManager = database.getMetadata().getIndexManager();
+
+    long totalAnalyzed = 0;
+    if (name.equals("*")) {
+      for (OIndex<?> idx : indexManager.getIndexes()) {
+        final OIndexInternal<?> internal = idx.getInternal();
+        if (internal != null && internal.canBeUsedInEqualityOperators())
+          totalAnalyzed += internal.analyze().getEntries();
+      }
+    } else {
+      final OIndex<?> idx = indexManager.getIndex(name);
+      if (idx == null)
+        throw new OCommandExecutionException("Index '" + name + "' not found");
+
+      final OIndexInternal<?> internal = idx.getInternal();
+      if (internal == null || !internal.canBeUsedInEqualityOperators())
+        throw new OCommandExecutionException("Cannot analyze index '" + name + "' because it is not used to look up keys");
+
+      totalAnalyzed = internal.analyze().getEntries();
+    }
+
+    indexManager.save();
+    return totalAnalyzed;
+  }
+
+  @Override
+  public String getSyntax() {
+    return "ANALYZE INDEX <index-name>|*";
+  }
+
+  @Override
+  public QUORUM_TYPE getQuorumType() {
+    return QUORUM_TYPE.ALL;
+  }
+}
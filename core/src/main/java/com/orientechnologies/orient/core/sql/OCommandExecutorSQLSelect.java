@@ -40,6 +40,7 @@ import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.OExecutionThreadLocal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OClassTrigger;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
@@ -58,6 +59,7 @@ import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OImmutableClass;
 import com.orientechnologies.orient.core.metadata.schema.OImmutableSchema;
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.metadata.security.ORestrictedAccessHook;
 import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.metadata.security.ORule;
 import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
@@ -67,6 +69,7 @@ import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
 import com.orientechnologies.orient.core.sql.filter.*;
 import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
 import com.orientechnologies.orient.core.sql.functions.coll.OSQLFunctionDistinct;
@@ -76,6 +79,7 @@ import com.orientechnologies.orient.core.sql.parser.*;
 import com.orientechnologies.orient.core.sql.query.OResultSet;
 import com.orientechnologies.orient.core.sql.query.OSQLQuery;
 import com.orientechnologies.orient.core.storage.OStorage.LOCKING_STRATEGY;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
 
 import java.util.*;
 import java.util.Map.Entry;
@@ -123,7 +127,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   private final OOrderByOptimizer           orderByOptimizer     = new OOrderByOptimizer();
   private final OMetricRecorder             metricRecorder       = new OMetricRecorder();
   private final OFilterOptimizer            filterOptimizer      = new OFilterOptimizer();
+  private final OCoveringIndexOptimizer     coveringOptimizer    = new OCoveringIndexOptimizer();
   private final OFilterAnalyzer             filterAnalyzer       = new OFilterAnalyzer();
+  private final OIndexCostEstimator         costEstimator        = new OIndexCostEstimator(filterAnalyzer);
   private       Map<String, String>         projectionDefinition = null;
   // THIS HAS BEEN KEPT FOR COMPATIBILITY; BUT IT'S USED THE PROJECTIONS IN GROUPED-RESULTS
   private       Map<String, Object>         projections          = null;
@@ -142,6 +148,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   private          Boolean isAnyFunctionAggregates = null;
   private volatile boolean parallel                = false;
   private volatile boolean parallelRunning;
+  private OSQLFilterBinaryPredicate scanPredicate;
   private final ArrayBlockingQueue<AsyncResult> resultQueue = new ArrayBlockingQueue<AsyncResult>(
       OGlobalConfiguration.QUERY_PARALLEL_RESULT_QUEUE_SIZE.getValueAsInteger());
 
@@ -607,6 +614,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
       iContext.updateMetric("documentReads", +1);
 
+      if (record instanceof ODocument && OGlobalConfiguration.QUERY_LAZY_FIELD_DECODING.getValueAsBoolean())
+        ((ODocument) record).setLazyFieldDecoding(true);
+
       iContext.setVariable("current", record);
 
       if (filter(record, iContext)) {
@@ -1567,6 +1577,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
     parallel = (parallel || OGlobalConfiguration.QUERY_PARALLEL_AUTO.getValueAsBoolean()) && canRunParallel(clusterIds, iTarget);
 
+    scanPredicate = compileScanPredicate(iTarget);
+
     try {
       if (parallel)
         return parallelExec(iTarget);
@@ -1577,6 +1589,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
         prefetchRecords = true;
       }
 
+      if (scanPredicate != null)
+        ((OIdentifiableIterator<?>) iTarget).setRecordReader(scanPredicate.createRecordReader(prefetchRecords));
+
       final ODatabaseDocumentInternal database = getDatabase();
       database.setPrefetchRecords(prefetchRecords);
       try {
@@ -1591,6 +1606,43 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     }
   }
 
+  /**
+   * Compiles the part of the condition which is evaluated against serialized content of the records while clusters are scanned,
+   * so records which do not match it are not unmarshalled.
+   *
+   * @return compiled predicate or <code>null</code> if target is not a scan of clusters or condition can not be compiled
+   */
+  private OSQLFilterBinaryPredicate compileScanPredicate(final Iterator<? extends OIdentifiable> iTarget) {
+    if (!(iTarget instanceof OIdentifiableIterator) || compiledFilter == null || compiledFilter.getRootCondition() == null
+        || !OGlobalConfiguration.QUERY_SCAN_BINARY_FILTER.getValueAsBoolean())
+      return null;
+
+    final ODatabaseDocumentInternal db = getDatabase();
+    if (!(db.getSerializer() instanceof ORecordSerializerBinary) || !(db.getStorage()
+        .getUnderlying() instanceof OAbstractPaginatedStorage) || db.getTransaction().isActive() || hasReadHooks(db))
+      return null;
+
+    return OSQLFilterBinaryPredicate.compile(compiledFilter.getRootCondition());
+  }
+
+  /**
+   * Records which are skipped by the binary predicate are not passed to the hooks, so the predicate is not used if database has
+   * hooks of the read scope. {@link ORestrictedAccessHook} only hides records on read, {@link OClassTrigger} calls functions only
+   * for the records of triggered classes, which are not filtered by the predicate, so these hooks are not taken into account.
+   */
+  private static boolean hasReadHooks(final ODatabaseDocumentInternal db) {
+    for (ORecordHook hook : db.getHooks().keySet()) {
+      if (hook instanceof ORestrictedAccessHook || hook instanceof OClassTrigger)
+        continue;
+
+      if (!(hook instanceof ORecordHook.Scoped) || Arrays.asList(((ORecordHook.Scoped) hook).getScopes())
+          .contains(ORecordHook.SCOPE.READ))
+        return true;
+    }
+
+    return false;
+  }
+
   private boolean canRunParallel(int[] clusterIds, Iterator<? extends OIdentifiable> iTarget) {
     if (getDatabase().getTransaction().isActive())
       return false;
@@ -1801,6 +1853,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   private void scanClusterWithIterator(final ODatabaseDocumentInternal localDatabase, final OCommandContext iContext,
       final int iClusterId, final int current, final boolean[] results) {
     final ORecordIteratorCluster it = new ORecordIteratorCluster(localDatabase, localDatabase, iClusterId);
+    if (scanPredicate != null)
+      it.setRecordReader(scanPredicate.createRecordReader(false));
 
     while (it.hasNext()) {
       final ORecord next = it.next();
@@ -2105,6 +2159,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     if (conditionHierarchy == null)
       return false;
 
+    if (costEstimator.isClassScanCheaper(iSchemaClass, conditionHierarchy)) {
+      return tryOptimizeSort(iSchemaClass);
+    }
+
     List<OIndexCursor> cursors = new ArrayList<OIndexCursor>();
 
     boolean indexIsUsedInOrderBy = false;
@@ -2114,14 +2172,16 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       boolean indexOnExactClass = true;//to track if the index used is specific for this class or if it's defined on a super/sub class
 
       OIndexSearchResult lastSearchResult = null;
+      OIndex<?> lastUsedIndex = null;
       for (List<OIndexSearchResult> indexSearchResults : conditionHierarchy) {
         // go through all variants to choose which one can be used for index search.
         boolean indexUsed = false;
-        for (final OIndexSearchResult searchResult : indexSearchResults) {
+        for (final OIndexSearchResult searchResult : costEstimator.sortSearchResults(iSchemaClass, indexSearchResults)) {
           lastSearchResult = searchResult;
           final List<OIndex<?>> involvedIndexes = filterAnalyzer.getInvolvedIndexes(iSchemaClass, searchResult);
 
           Collections.sort(involvedIndexes, new IndexComparator());
+          costEstimator.sortIndexes(involvedIndexes, searchResult);
 
           indexOnExactClass = true;
 
@@ -2141,34 +2201,13 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
             final OQueryOperator operator = searchResult.lastOperator;
 
-            // we need to test that last field in query subset and field in index that has the same position
-            // are equals.
-            if (!OIndexSearchResult.isIndexEqualityOperator(operator)) {
-              final String lastFiled = searchResult.lastField.getItemName(searchResult.lastField.getItemCount() - 1);
-              final String relatedIndexField = indexDefinition.getFields().get(searchResult.fieldValuePairs.size());
-              if (!lastFiled.equals(relatedIndexField)) {
-                continue;
-              }
+            if (!isLastFieldMatchingIndex(indexDefinition, searchResult)) {
+              continue;
             }
 
-            final int searchResultFieldsCount = searchResult.fields().size();
-            final List<Object> keyParams = new ArrayList<Object>(searchResultFieldsCount);
-            // We get only subset contained in processed sub query.
-            for (final String fieldName : indexDefinition.getFields().subList(0, searchResultFieldsCount)) {
-              Object fieldValue = searchResult.fieldValuePairs.get(fieldName);
-              if (fieldValue instanceof OSQLQuery<?> || fieldValue instanceof OSQLFilterCondition) {
-                return false;
-              }
-
-              if (fieldValue != null) {
-                keyParams.add(fieldValue);
-              } else {
-                if (searchResult.lastValue instanceof OSQLQuery<?> || searchResult.lastValue instanceof OSQLFilterCondition) {
-                  return false;
-                }
-
-                keyParams.add(searchResult.lastValue);
-              }
+            final List<Object> keyParams = createKeyParams(indexDefinition, searchResult);
+            if (keyParams == null) {
+              return false;
             }
 
             OIndexCursor cursor;
@@ -2214,6 +2253,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
               cursors.add(OIndexChangesWrapper.wrap(index, cursor, indexRebuildVersion));
               indexUseAttempts.add(new IndexUsageLog(index, keyParams, indexDefinition));
               indexUsed = true;
+              lastUsedIndex = index;
               break;
             }
           }
@@ -2230,6 +2270,12 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
         return false;
       }
 
+      if (cursors.size() == 1 && conditionHierarchy.size() == 1 && !indexIsUsedInOrderBy && limit == -1 && !(indexOnExactClass
+          && canUseCoveringIndex(lastUsedIndex))) {
+        cursors.set(0,
+            intersectWithOtherIndexes(iSchemaClass, conditionHierarchy.get(0), lastSearchResult, lastUsedIndex, cursors.get(0)));
+      }
+
       if (cursors.size() == 1 && canOptimize(conditionHierarchy)) {
         filterOptimizer.optimize(compiledFilter, lastSearchResult);
       }
@@ -2274,9 +2320,13 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
         }
       }
 
-      for (OIndexCursor cursor : cursors) {
-        if (!fetchValuesFromIndexCursor(cursor)) {
-          break;
+      if (cursors.size() == 1 && indexOnExactClass && canUseCoveringIndex(lastUsedIndex)) {
+        fetchValuesFromCoveringIndexCursor(cursors.get(0), lastUsedIndex);
+      } else {
+        for (OIndexCursor cursor : cursors) {
+          if (!fetchValuesFromIndexCursor(cursor)) {
+            break;
+          }
         }
       }
       uniqueResult.clear();
@@ -2293,6 +2343,158 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     }
   }
 
+  /**
+   * We need to test that last field in query subset and field in index that has the same position are equals.
+   */
+  private boolean isLastFieldMatchingIndex(final OIndexDefinition indexDefinition, final OIndexSearchResult searchResult) {
+    if (OIndexSearchResult.isIndexEqualityOperator(searchResult.lastOperator)) {
+      return true;
+    }
+
+    final String lastFiled = searchResult.lastField.getItemName(searchResult.lastField.getItemCount() - 1);
+    final String relatedIndexField = indexDefinition.getFields().get(searchResult.fieldValuePairs.size());
+    return lastFiled.equals(relatedIndexField);
+  }
+
+  /**
+   * @return values of the query subset in the order of index fields or <code>null</code> if some of them are sub-queries or
+   * conditions which cannot be looked up in index.
+   */
+  private List<Object> createKeyParams(final OIndexDefinition indexDefinition, final OIndexSearchResult searchResult) {
+    final int searchResultFieldsCount = searchResult.fields().size();
+    final List<Object> keyParams = new ArrayList<Object>(searchResultFieldsCount);
+    // We get only subset contained in processed sub query.
+    for (final String fieldName : indexDefinition.getFields().subList(0, searchResultFieldsCount)) {
+      Object fieldValue = searchResult.fieldValuePairs.get(fieldName);
+      if (fieldValue instanceof OSQLQuery<?> || fieldValue instanceof OSQLFilterCondition) {
+        return null;
+      }
+
+      if (fieldValue != null) {
+        keyParams.add(fieldValue);
+      } else {
+        if (searchResult.lastValue instanceof OSQLQuery<?> || searchResult.lastValue instanceof OSQLFilterCondition) {
+          return null;
+        }
+
+        keyParams.add(searchResult.lastValue);
+      }
+    }
+
+    return keyParams;
+  }
+
+  /**
+   * Fetches RIDs of records which satisfy other conditions of the AND block from their indexes and filters entries of the used
+   * index by them, so records which do not satisfy these conditions are not loaded. The conditions are still evaluated by the
+   * filter, so an index which cannot be fetched completely is just skipped.
+   * <p>
+   * Index is intersected only if index statistics estimate that it fetches no more entries than the used index, reading of such
+   * index costs less than loading of records which it filters out. If estimation is not available, entries of the used index are
+   * just filtered.
+   */
+  private OIndexCursor intersectWithOtherIndexes(final OClass iSchemaClass, final List<OIndexSearchResult> indexSearchResults,
+      final OIndexSearchResult usedSearchResult, final OIndex<?> usedIndex, final OIndexCursor cursor) {
+    final int maxRids = OGlobalConfiguration.QUERY_INDEX_INTERSECTION_MAX_RIDS.getValueAsInteger();
+    if (maxRids <= 0 || indexSearchResults.size() < 2) {
+      return cursor;
+    }
+
+    final long usedIndexEstimation = costEstimator.estimate(usedIndex, usedSearchResult);
+    if (usedIndexEstimation <= 0) {
+      return cursor;
+    }
+
+    final int ridsLimit = (int) Math.min(maxRids, usedIndexEstimation);
+
+    final Set<String> intersectedFields = new HashSet<String>(usedSearchResult.fields());
+    ORID[] rids = null;
+
+    for (OIndexSearchResult searchResult : costEstimator.sortSearchResults(iSchemaClass, indexSearchResults)) {
+      if (searchResult.lastField.isLong() || !Collections.disjoint(intersectedFields, searchResult.fields())) {
+        continue;
+      }
+
+      final ORID[] indexRids = fetchRidsFromIndex(iSchemaClass, searchResult, ridsLimit);
+      if (indexRids == null) {
+        continue;
+      }
+
+      intersectedFields.addAll(searchResult.fields());
+      rids = rids == null ? indexRids : OIndexIntersectionCursor.intersect(rids, indexRids);
+    }
+
+    if (rids == null) {
+      return cursor;
+    }
+
+    return new OIndexIntersectionCursor(cursor, rids);
+  }
+
+  /**
+   * @return sorted RIDs of records which satisfy query subset or <code>null</code> if there is no suitable index or it is estimated
+   * to contain or contains more than <code>maxRids</code> matching entries.
+   */
+  private ORID[] fetchRidsFromIndex(final OClass iSchemaClass, final OIndexSearchResult searchResult, final int maxRids) {
+    final List<OIndex<?>> involvedIndexes = filterAnalyzer.getInvolvedIndexes(iSchemaClass, searchResult);
+
+    Collections.sort(involvedIndexes, new IndexComparator());
+    costEstimator.sortIndexes(involvedIndexes, searchResult);
+
+    for (final OIndex<?> index : involvedIndexes) {
+      final long indexRebuildVersion = index.getRebuildVersion();
+      final OIndexDefinition indexDefinition = index.getDefinition();
+
+      // index of the subclass does not contain records of the class itself
+      if (index.isRebuilding() || !iSchemaClass.isSubClassOf(indexDefinition.getClassName())) {
+        continue;
+      }
+
+      if (searchResult.containsNullValues && indexDefinition.isNullValuesIgnored()) {
+        continue;
+      }
+
+      if (!isLastFieldMatchingIndex(indexDefinition, searchResult)) {
+        continue;
+      }
+
+      final long estimation = costEstimator.estimate(index, searchResult);
+      if (estimation < 0 || estimation > maxRids) {
+        continue;
+      }
+
+      final List<Object> keyParams = createKeyParams(indexDefinition, searchResult);
+      if (keyParams == null) {
+        return null;
+      }
+
+      final OIndexCursor cursor;
+      try {
+        cursor = searchResult.lastOperator.executeIndexQuery(context, index, keyParams, true);
+      } catch (OIndexEngineException e) {
+        throw e;
+      } catch (Exception e) {
+        OLogManager.instance().debug(this, "Error on using index %s to intersect results of query '%s'", e, index.getName(),
+            request != null && request.getText() != null ? request.getText() : "");
+        continue;
+      }
+
+      if (cursor == null) {
+        continue;
+      }
+
+      final ORID[] rids = OIndexIntersectionCursor.fetchSortedRids(cursor, maxRids);
+      if (rids == null || index.getRebuildVersion() != indexRebuildVersion) {
+        return null;
+      }
+
+      metricRecorder.recordInvolvedIndexesMetric(index);
+      return rids;
+    }
+
+    return null;
+  }
+
   private Iterator<OIdentifiable> tryIndexedFunctions(OClass iSchemaClass) {
     // TODO profiler
     if (this.preParsedStatement == null) {
@@ -2464,6 +2666,71 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     return fetchFromTarget(cursor);
   }
 
+  /**
+   * Checks that the query may be answered by the entries of the given index only: filter is fully evaluated by the index, every
+   * projection is stored in the index keys and nothing else requires the records.
+   */
+  private boolean canUseCoveringIndex(final OIndex<?> index) {
+    if (!OGlobalConfiguration.QUERY_COVERING_INDEXES.getValueAsBoolean())
+      return false;
+
+    if (compiledFilter != null && compiledFilter.getRootCondition() != null)
+      return false;
+
+    if (aggregate || parallel || (groupByFields != null && !groupByFields.isEmpty()) || unwindFields != null
+        || expandTarget != null || (let != null && !let.isEmpty()))
+      return false;
+
+    if (!orderedFields.isEmpty() && !fullySortedByIndex)
+      return false;
+
+    if (!(lockingStrategy == LOCKING_STRATEGY.DEFAULT || lockingStrategy == LOCKING_STRATEGY.NONE)
+        || context.getVariable("$locking") != null)
+      return false;
+
+    return !isUsingRestrictedClasses() && coveringOptimizer.canBeUsedAsCoveringIndex(index, projections);
+  }
+
+  /**
+   * Builds results from the keys of index entries instead of loading of records.
+   */
+  private void fetchValuesFromCoveringIndexCursor(final OIndexCursor cursor, final OIndex<?> index) {
+    fetchLimit = getQueryFetchLimit();
+
+    if (fetchLimit > 0) {
+      cursor.setPrefetchSize(fetchLimit + skip);
+    } else {
+      cursor.setPrefetchSize(-1);
+    }
+
+    final OIndexDefinition indexDefinition = index.getDefinition();
+
+    Entry<Object, OIdentifiable> entry = cursor.nextEntry();
+    while (entry != null) {
+      final ORID identity = entry.getValue().getIdentity();
+
+      if (!uniqueResult.containsKey(identity)) {
+        uniqueResult.put(identity, identity);
+
+        if (!checkInterruption()) {
+          return;
+        }
+
+        final ODocument document = coveringOptimizer.createDocument(indexDefinition, entry.getKey());
+
+        context.updateMetric("coveringIndexReads", +1);
+        context.setVariable("current", document);
+
+        if (!handleResult(document, context)) {
+          // LIMIT REACHED
+          return;
+        }
+      }
+
+      entry = cursor.nextEntry();
+    }
+  }
+
   private void fetchEntriesFromIndexCursor(final OIndexCursor cursor) {
     int needsToFetch;
     if (fetchLimit > 0) {
@@ -0,0 +1,111 @@
+/*
+  *
+  *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+  *  *
+  *  *  Licensed under the Apache License, Version 2.0 (the "License");
+  *  *  you may not use this file except in compliance with the License.
+  *  *  You may obtain a copy of the License at
+  *  *
+  *  *       http://www.apache.org/licenses/LICENSE-2.0
+  *  *
+  *  *  Unless required by applicable law or agreed to in writing, software
+  *  *  distributed under the License is distributed on an "AS IS" BASIS,
+  *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  *  *  See the License for the specific language governing permissions and
+  *  *  limitations under the License.
+  *  *
+  *  * For more information: http://www.orientechnologies.com
+  *
+  */
+
+package com.orientechnologies.orient.core.sql;
+
+import com.orientechnologies.orient.core.collate.ODefaultCollate;
+import com.orientechnologies.orient.core.index.OCompositeCollate;
+import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexDefinitionMultiValue;
+import com.orientechnologies.orient.core.index.OPropertyIndexDefinition;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects queries which may be answered by the entries of the index only, so called covering index, and converts index keys into
+ * documents which contain values of the indexed fields.
+ *
+ * @since 16.05.17
+ */
+public class OCoveringIndexOptimizer {
+  /**
+   * @return <code>true</code> if every projection is a plain field whose value is stored unchanged in the keys of the index.
+   */
+  boolean canBeUsedAsCoveringIndex(OIndex<?> index, Map<String, Object> projections) {
+    if (projections == null || projections.isEmpty())
+      return false;
+
+    final OIndexDefinition definition = index.getDefinition();
+    if (definition == null || definition.getClassName() == null || !hasPlainKeys(definition))
+      return false;
+
+    final List<String> fields = definition.getFields();
+    for (Object projection : projections.values()) {
+      if (!(projection instanceof OSQLFilterItemField))
+        return false;
+
+      final OSQLFilterItemField field = (OSQLFilterItemField) projection;
+      if (field.isFieldChain() || field.hasChainOperators())
+        return false;
+
+      final String fieldName = field.getRoot();
+      if (fieldName == null || fieldName.startsWith("@") || !fields.contains(fieldName))
+        return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * @return document which contains values of indexed fields stored in the given index key.
+   */
+  ODocument createDocument(OIndexDefinition definition, Object key) {
+    final List<String> fields = definition.getFields();
+    final ODocument document = new ODocument();
+
+    if (definition instanceof OCompositeIndexDefinition) {
+      final List<Object> keys = ((OCompositeKey) key).getKeys();
+      final int size = Math.min(fields.size(), keys.size());
+
+      for (int i = 0; i < size; i++)
+        document.field(fields.get(i), keys.get(i));
+    } else
+      document.field(fields.get(0), key);
+
+    return document;
+  }
+
+  /**
+   * @return <code>true</code> if keys of the index contain values of the fields as they are stored in the record, which is not the
+   * case for collections, maps and collated values.
+   */
+  private boolean hasPlainKeys(OIndexDefinition definition) {
+    if (definition instanceof OCompositeIndexDefinition) {
+      final OCompositeIndexDefinition compositeDefinition = (OCompositeIndexDefinition) definition;
+      if (compositeDefinition.getMultiValueDefinition() != null)
+        return false;
+
+      for (Object collate : ((OCompositeCollate) compositeDefinition.getCollate()).getCollates())
+        if (!(collate instanceof ODefaultCollate))
+          return false;
+
+      return true;
+    }
+
+    return definition instanceof OPropertyIndexDefinition && !(definition instanceof OIndexDefinitionMultiValue) && definition
+        .getCollate() instanceof ODefaultCollate;
+  }
+}
@@ -0,0 +1,259 @@
+/*
+  *
+  *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+  *  *
+  *  *  Licensed under the Apache License, Version 2.0 (the "License");
+  *  *  you may not use this file except in compliance with the License.
+  *  *  You may obtain a copy of the License at
+  *  *
+  *  *       http://www.apache.org/licenses/LICENSE-2.0
+  *  *
+  *  *  Unless required by applicable law or agreed to in writing, software
+  *  *  distributed under the License is distributed on an "AS IS" BASIS,
+  *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  *  *  See the License for the specific language governing permissions and
+  *  *  limitations under the License.
+  *  *
+  *  * For more information: http://www.orientechnologies.com
+  *
+  */
+
+package com.orientechnologies.orient.core.sql;
+
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexDefinitionMultiValue;
+import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorBetween;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorIn;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates amount of index entries fetched by query subsets using {@link OIndexStatistics} gathered by ANALYZE INDEX command and
+ * orders indexes and query subsets by this estimation. Query subsets and indexes which cannot be estimated, because some of the
+ * indexes were not analyzed or operator is not supported, keep the order chosen by heuristic rules.
+ *
+ * @since 17.05.17
+ */
+public class OIndexCostEstimator {
+  /**
+   * Part of entries matched by range condition which follows equality conditions of composite index, histogram is gathered for
+   * the first field only.
+   */
+  private static final int RANGE_SELECTIVITY = 3;
+
+  private final OFilterAnalyzer filterAnalyzer;
+
+  public OIndexCostEstimator(OFilterAnalyzer filterAnalyzer) {
+    this.filterAnalyzer = filterAnalyzer;
+  }
+
+  /**
+   * @return <code>true</code> if index statistics estimate that given query subsets fetch such big part of the class records that
+   * class scan is cheaper than the index lookup.
+   */
+  boolean isClassScanCheaper(OClass iSchemaClass, List<List<OIndexSearchResult>> conditionHierarchy) {
+    long estimation = 0;
+    for (List<OIndexSearchResult> indexSearchResults : conditionHierarchy) {
+      long best = Long.MAX_VALUE;
+      for (OIndexSearchResult searchResult : indexSearchResults) {
+        final long searchResultEstimation = estimate(searchResult,
+            filterAnalyzer.getInvolvedIndexes(iSchemaClass, searchResult));
+        if (searchResultEstimation < 0)
+          return false;
+
+        if (searchResultEstimation < best)
+          best = searchResultEstimation;
+      }
+
+      // NO INDEX CAN BE USED FOR THIS SUB-CONDITION
+      if (best == Long.MAX_VALUE)
+        return false;
+
+      estimation += best;
+    }
+
+    final float threshold = OGlobalConfiguration.QUERY_INDEX_SCAN_THRESHOLD.getValueAsFloat();
+    return estimation > threshold * iSchemaClass.count();
+  }
+
+  /**
+   * @return Query subsets ordered by the smallest estimation of entries fetched from their indexes.
+   */
+  List<OIndexSearchResult> sortSearchResults(OClass iSchemaClass, List<OIndexSearchResult> indexSearchResults) {
+    if (indexSearchResults.size() < 2)
+      return indexSearchResults;
+
+    final Map<OIndexSearchResult, Long> estimations = new IdentityHashMap<OIndexSearchResult, Long>();
+    for (OIndexSearchResult searchResult : indexSearchResults) {
+      final long estimation = estimate(searchResult, filterAnalyzer.getInvolvedIndexes(iSchemaClass, searchResult));
+      if (estimation < 0)
+        return indexSearchResults;
+
+      estimations.put(searchResult, estimation);
+    }
+
+    final List<OIndexSearchResult> result = new ArrayList<OIndexSearchResult>(indexSearchResults);
+    Collections.sort(result, new EstimationComparator<OIndexSearchResult>(estimations));
+    return result;
+  }
+
+  /**
+   * Sorts indexes by estimation of entries fetched for given query subset, sort is stable so indexes with the same estimation keep
+   * the order chosen by heuristic rules.
+   */
+  void sortIndexes(List<OIndex<?>> involvedIndexes, OIndexSearchResult searchResult) {
+    if (involvedIndexes.size() < 2)
+      return;
+
+    final Map<OIndex<?>, Long> estimations = new IdentityHashMap<OIndex<?>, Long>();
+    for (OIndex<?> index : involvedIndexes) {
+      final long estimation = estimate(index, searchResult);
+      if (estimation < 0)
+        return;
+
+      estimations.put(index, estimation);
+    }
+
+    Collections.sort(involvedIndexes, new EstimationComparator<OIndex<?>>(estimations));
+  }
+
+  /**
+   * @return the smallest estimation of entries fetched by query subset from given indexes, {@link Long#MAX_VALUE} if there are no
+   * such indexes or <code>-1</code> if any of indexes cannot be estimated.
+   */
+  private long estimate(OIndexSearchResult searchResult, List<OIndex<?>> involvedIndexes) {
+    long best = Long.MAX_VALUE;
+    for (OIndex<?> index : involvedIndexes) {
+      final long estimation = estimate(index, searchResult);
+      if (estimation < 0)
+        return -1;
+
+      if (estimation < best)
+        best = estimation;
+    }
+
+    return best;
+  }
+
+  /**
+   * @return estimated amount of entries fetched by query subset from the index or <code>-1</code> if it cannot be estimated.
+   */
+  long estimate(OIndex<?> index, OIndexSearchResult searchResult) {
+    if (index instanceof OChainedIndexProxy)
+      return -1;
+
+    final OIndexInternal<?> internal = index.getInternal();
+    if (internal == null)
+      return -1;
+
+    final OIndexStatistics statistics = internal.getStatistics();
+    if (statistics == null)
+      return -1;
+
+    final OQueryOperator operator = searchResult.lastOperator;
+    final int fields = searchResult.getFieldCount();
+
+    if (operator instanceof OQueryOperatorEquals)
+      return statistics.estimateEquals(fields);
+
+    if (operator instanceof OQueryOperatorIn) {
+      if (!OMultiValue.isMultiValue(searchResult.lastValue))
+        return -1;
+
+      final long estimation = statistics.estimateEquals(fields);
+      if (estimation < 0)
+        return -1;
+
+      return Math.min(statistics.getEntries(), estimation * OMultiValue.getSize(searchResult.lastValue));
+    }
+
+    if (!isRangeOperator(operator))
+      return -1;
+
+    if (fields > 1) {
+      final long estimation = statistics.estimateEquals(fields - 1);
+      if (estimation < 0)
+        return -1;
+
+      return Math.max(1, estimation / RANGE_SELECTIVITY);
+    }
+
+    final OIndexDefinition definition = index.getDefinition();
+    if (definition == null || definition instanceof OIndexDefinitionMultiValue)
+      return -1;
+
+    try {
+      final Object from;
+      final Object to;
+      if (operator instanceof OQueryOperatorBetween) {
+        final Object[] betweenKeys = (Object[]) searchResult.lastValue;
+        from = createFirstKeyValue(definition, betweenKeys[0]);
+        to = createFirstKeyValue(definition, betweenKeys[2]);
+        if (from == null || to == null)
+          return -1;
+      } else if (operator instanceof OQueryOperatorMajor || operator instanceof OQueryOperatorMajorEquals) {
+        from = createFirstKeyValue(definition, searchResult.lastValue);
+        to = null;
+        if (from == null)
+          return -1;
+      } else {
+        from = null;
+        to = createFirstKeyValue(definition, searchResult.lastValue);
+        if (to == null)
+          return -1;
+      }
+
+      return statistics.estimateRange(from, to);
+    } catch (RuntimeException e) {
+      // VALUE CANNOT BE CONVERTED TO THE KEY TYPE, LEAVE THE DECISION TO THE OPERATOR
+      return -1;
+    }
+  }
+
+  private static boolean isRangeOperator(OQueryOperator operator) {
+    return operator instanceof OQueryOperatorMajor || operator instanceof OQueryOperatorMajorEquals
+        || operator instanceof OQueryOperatorMinor || operator instanceof OQueryOperatorMinorEquals
+        || operator instanceof OQueryOperatorBetween;
+  }
+
+  private static Object createFirstKeyValue(OIndexDefinition definition, Object value) {
+    final Object key = definition.createValue(Collections.singletonList(OSQLHelper.getValue(value)));
+    if (key instanceof OCompositeKey) {
+      final List<Object> keys = ((OCompositeKey) key).getKeys();
+      return keys.isEmpty() ? null : keys.get(0);
+    }
+
+    return key;
+  }
+
+  private static final class EstimationComparator<T> implements Comparator<T> {
+    private final Map<T, Long> estimations;
+
+    private EstimationComparator(Map<T, Long> estimations) {
+      this.estimations = estimations;
+    }
+
+    @Override
+    public int compare(T o1, T o2) {
+      return estimations.get(o1).compareTo(estimations.get(o2));
+    }
+  }
+}
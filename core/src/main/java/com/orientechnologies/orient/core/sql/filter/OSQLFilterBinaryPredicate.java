@@ -0,0 +1,378 @@
+/*
+ *
+ *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientechnologies.com
+ *
+ */
+
+package com.orientechnologies.orient.core.sql.filter;
+
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.orient.core.collate.ODefaultCollate;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.OMetadataInternal;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OImmutableClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.BytesContainer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.OBinaryComparator;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.OBinaryField;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ODocumentSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorAnd;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorBetween;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorEquality;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorIn;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorOr;
+import com.orientechnologies.orient.core.sql.query.OSQLQuery;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Part of the WHERE condition which is evaluated against the serialized content of the records while clusters are scanned, so the
+ * records which surely do not match the condition are skipped before they are unmarshalled and put into the local cache.
+ * <p>
+ * Only comparisons of fields with constant values by <code>=</code>, <code>&lt;&gt;</code>, <code>&lt;</code>,
+ * <code>&lt;=</code>, <code>&gt;</code>, <code>&gt;=</code>, <code>BETWEEN</code> and <code>IN</code> are compiled. Other parts
+ * of the condition, as well as the fields which are null, absent or can not be compared in binary form, are considered as
+ * matching, so the records which pass this predicate are still filtered by the whole condition.
+ *
+ * @since 19.05.17
+ */
+public class OSQLFilterBinaryPredicate {
+  private final Term root;
+
+  private OSQLFilterBinaryPredicate(final Term root) {
+    this.root = root;
+  }
+
+  /**
+   * Compiles the parts of the condition which can be evaluated in binary form.
+   *
+   * @return predicate or <code>null</code> if no part of the condition can be evaluated in binary form
+   */
+  public static OSQLFilterBinaryPredicate compile(final OSQLFilterCondition iCondition) {
+    final Term root = compileCondition(iCondition);
+    return root != null ? new OSQLFilterBinaryPredicate(root) : null;
+  }
+
+  /**
+   * @param iSource content of the record serialized by {@link ORecordSerializerBinary}
+   * @param iClass  class of the record, if any
+   *
+   * @return <code>false</code> if the record surely does not match the condition
+   */
+  public boolean mayMatch(final byte[] iSource, final OClass iClass) {
+    if (iSource == null || iSource.length == 0 || iSource[0] < 0
+        || iSource[0] > ORecordSerializerBinary.INSTANCE.getCurrentVersion())
+      return true;
+
+    return root.mayMatch(ORecordSerializerBinary.INSTANCE.getSerializer(iSource[0]), iSource, iClass);
+  }
+
+  /**
+   * Creates the reader of records which returns <code>null</code> instead of the documents that surely do not match the condition,
+   * so they are neither unmarshalled nor cached.
+   */
+  public ODatabaseDocumentTx.RecordReader createRecordReader(final boolean iPrefetchRecords) {
+    return new FilteringRecordReader(iPrefetchRecords);
+  }
+
+  private static Term compileCondition(final Object iCondition) {
+    if (!(iCondition instanceof OSQLFilterCondition))
+      return null;
+
+    final OSQLFilterCondition condition = (OSQLFilterCondition) iCondition;
+    if (condition.getOperator() instanceof OQueryOperatorAnd) {
+      final Term left = compileCondition(condition.getLeft());
+      final Term right = compileCondition(condition.getRight());
+      if (left == null)
+        return right;
+      if (right == null)
+        return left;
+
+      return new And(left, right);
+    }
+
+    if (condition.getOperator() instanceof OQueryOperatorOr) {
+      final Term left = compileCondition(condition.getLeft());
+      final Term right = compileCondition(condition.getRight());
+      if (left == null || right == null)
+        // ONE OF BRANCHES MAY MATCH ANY RECORD
+        return null;
+
+      return new Or(left, right);
+    }
+
+    if (!(condition.getLeft() instanceof OSQLFilterItemField))
+      return null;
+
+    final OSQLFilterItemField field = (OSQLFilterItemField) condition.getLeft();
+    if (field.hasChainOperators() || field.getRoot() == null || field.getRoot().isEmpty() || field.getRoot().charAt(0) == '@'
+        || field.getRoot().indexOf('.') > -1)
+      return null;
+
+    if (field.getCollate() != null && !ODefaultCollate.NAME.equals(field.getCollate().getName()))
+      return null;
+
+    if (condition.getOperator() instanceof OQueryOperatorBetween) {
+      final OQueryOperatorBetween between = (OQueryOperatorBetween) condition.getOperator();
+      if (!OMultiValue.isMultiValue(condition.getRight()) || OMultiValue.getSize(condition.getRight()) != 3)
+        return null;
+
+      final Iterator<?> values = OMultiValue.getMultiValueIterator(condition.getRight(), false);
+      final OBinaryField low = toBinary(values.next());
+      values.next();
+      final OBinaryField high = toBinary(values.next());
+      if (low == null || high == null)
+        return null;
+
+      return new Between(field.getRoot(), low, high, between.isLeftInclusive(), between.isRightInclusive());
+    }
+
+    if (condition.getOperator() instanceof OQueryOperatorIn) {
+      if (!OMultiValue.isMultiValue(condition.getRight()))
+        return null;
+
+      final List<OBinaryField> values = new ArrayList<OBinaryField>(OMultiValue.getSize(condition.getRight()));
+      for (Object value : OMultiValue.getMultiValueIterable(condition.getRight(), false)) {
+        final OBinaryField binaryValue = toBinary(value);
+        if (binaryValue == null)
+          return null;
+        values.add(binaryValue);
+      }
+
+      if (values.isEmpty())
+        return null;
+
+      return new In(field.getRoot(), values.toArray(new OBinaryField[values.size()]));
+    }
+
+    if (condition.getOperator() instanceof OQueryOperatorEquality && condition.getOperator().isSupportingBinaryEvaluate()) {
+      final OBinaryField value = toBinary(condition.getRight());
+      if (value == null)
+        return null;
+
+      return new Comparison(field.getRoot(), (OQueryOperatorEquality) condition.getOperator(), value);
+    }
+
+    return null;
+  }
+
+  /**
+   * Serializes the constant value of the condition.
+   *
+   * @return serialized value or <code>null</code> if value is not constant or can not be compared in binary form
+   */
+  private static OBinaryField toBinary(Object iValue) {
+    if (iValue instanceof OSQLFilterItemParameter) {
+      iValue = ((OSQLFilterItemParameter) iValue).getValue(null, null, null);
+      if ("?".equals(iValue))
+        // NOT BOUND
+        return null;
+    }
+
+    if (iValue == null || iValue instanceof OSQLFilterItem || iValue instanceof OSQLFilterCondition || iValue instanceof OSQLQuery<?>)
+      return null;
+
+    final OType type = OType.getTypeByValue(iValue);
+    final ODocumentSerializer serializer = ORecordSerializerBinary.INSTANCE.getCurrentSerializer();
+    if (type == null || !serializer.getComparator().isBinaryComparable(type) || type == OType.LINK)
+      return null;
+
+    final BytesContainer bytes = new BytesContainer();
+    serializer.serializeValue(bytes, iValue, type, null);
+    bytes.offset = 0;
+
+    return new OBinaryField(null, type, bytes, null);
+  }
+
+  private static OBinaryComparator getComparator() {
+    return ORecordSerializerBinary.INSTANCE.getCurrentSerializer().getComparator();
+  }
+
+  private static boolean isNumber(final OType iType) {
+    switch (iType) {
+    case BYTE:
+    case SHORT:
+    case INTEGER:
+    case LONG:
+    case FLOAT:
+    case DOUBLE:
+    case DECIMAL:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private static abstract class Term {
+    abstract boolean mayMatch(ODocumentSerializer serializer, byte[] source, OClass iClass);
+  }
+
+  private static final class And extends Term {
+    private final Term left;
+    private final Term right;
+
+    private And(final Term left, final Term right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    boolean mayMatch(final ODocumentSerializer serializer, final byte[] source, final OClass iClass) {
+      return left.mayMatch(serializer, source, iClass) && right.mayMatch(serializer, source, iClass);
+    }
+  }
+
+  private static final class Or extends Term {
+    private final Term left;
+    private final Term right;
+
+    private Or(final Term left, final Term right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    boolean mayMatch(final ODocumentSerializer serializer, final byte[] source, final OClass iClass) {
+      return left.mayMatch(serializer, source, iClass) || right.mayMatch(serializer, source, iClass);
+    }
+  }
+
+  /**
+   * Comparison of the field with constant values, evaluated only if the field is found in the record and both values are numbers
+   * or have the same type, so the result of binary comparison is the same as the result of comparison of unmarshalled values.
+   */
+  private static abstract class FieldTerm extends Term {
+    private final String fieldName;
+
+    private FieldTerm(final String fieldName) {
+      this.fieldName = fieldName;
+    }
+
+    @Override
+    boolean mayMatch(final ODocumentSerializer serializer, final byte[] source, final OClass iClass) {
+      final OBinaryField field = serializer.deserializeField(new BytesContainer(source).skip(1), iClass, fieldName);
+      if (field == null || (field.collate != null && !ODefaultCollate.NAME.equals(field.collate.getName())))
+        return true;
+
+      return mayMatch(field);
+    }
+
+    abstract boolean mayMatch(OBinaryField field);
+
+    static boolean isComparable(final OBinaryField field, final OBinaryField value) {
+      return field.type == value.type || (isNumber(field.type) && isNumber(value.type));
+    }
+  }
+
+  private static final class Comparison extends FieldTerm {
+    private final OQueryOperatorEquality operator;
+    private final OBinaryField           value;
+
+    private Comparison(final String fieldName, final OQueryOperatorEquality operator, final OBinaryField value) {
+      super(fieldName);
+      this.operator = operator;
+      this.value = value;
+    }
+
+    @Override
+    boolean mayMatch(final OBinaryField field) {
+      return !isComparable(field, value) || operator.evaluate(field, value.copy(), null);
+    }
+  }
+
+  private static final class Between extends FieldTerm {
+    private final OBinaryField low;
+    private final OBinaryField high;
+    private final boolean      lowInclusive;
+    private final boolean      highInclusive;
+
+    private Between(final String fieldName, final OBinaryField low, final OBinaryField high, final boolean lowInclusive,
+        final boolean highInclusive) {
+      super(fieldName);
+      this.low = low;
+      this.high = high;
+      this.lowInclusive = lowInclusive;
+      this.highInclusive = highInclusive;
+    }
+
+    @Override
+    boolean mayMatch(final OBinaryField field) {
+      if (!isComparable(field, low) || !isComparable(field, high))
+        return true;
+
+      final int lowResult = getComparator().compare(field.copy(), low.copy());
+      if (lowInclusive ? lowResult < 0 : lowResult <= 0)
+        return false;
+
+      final int highResult = getComparator().compare(field.copy(), high.copy());
+      return highInclusive ? highResult <= 0 : highResult < 0;
+    }
+  }
+
+  private static final class In extends FieldTerm {
+    private final OBinaryField[] values;
+
+    private In(final String fieldName, final OBinaryField[] values) {
+      super(fieldName);
+      this.values = values;
+    }
+
+    @Override
+    boolean mayMatch(final OBinaryField field) {
+      for (OBinaryField value : values)
+        if (!isComparable(field, value) || getComparator().isEqual(field.copy(), value.copy()))
+          return true;
+
+      return false;
+    }
+  }
+
+  private final class FilteringRecordReader implements ODatabaseDocumentTx.RecordReader {
+    private final boolean prefetchRecords;
+
+    private FilteringRecordReader(final boolean prefetchRecords) {
+      this.prefetchRecords = prefetchRecords;
+    }
+
+    @Override
+    public ORawBuffer readRecord(final OStorage storage, final ORecordId rid, final String fetchPlan, final boolean ignoreCache,
+        final int recordVersion) throws ORecordNotFoundException {
+      final ORawBuffer buffer = storage.readRecord(rid, fetchPlan, ignoreCache, prefetchRecords, null).getResult();
+      if (buffer == null || buffer.recordType != ODocument.RECORD_TYPE)
+        return buffer;
+
+      final OMetadataInternal metadata = ODatabaseRecordThreadLocal.INSTANCE.get().getMetadata();
+      final OClass cls = metadata.getImmutableSchemaSnapshot().getClassByClusterId(rid.getClusterId());
+
+      // read triggers of the class are called for every record
+      if (cls instanceof OImmutableClass && ((OImmutableClass) cls).isTriggered())
+        return buffer;
+
+      return mayMatch(buffer.buffer, cls) ? buffer : null;
+    }
+  }
+}
@@ -148,7 +148,9 @@ public class OSQLFilterItemField extends OSQLFilterItemAbstract {
 
     final ORecord rec = iRecord.getRecord();
 
-    return ORecordSerializerBinary.INSTANCE.getCurrentSerializer().deserializeField(new BytesContainer(rec.toStream()).skip(1),
+    final byte[] source = rec.toStream();
+    // RECORDS WRITTEN BY DIFFERENT VERSIONS OF THE SERIALIZER MAY BE MIXED
+    return ORecordSerializerBinary.INSTANCE.getSerializer(source[0]).deserializeField(new BytesContainer(source).skip(1),
         rec instanceof ODocument ? ((ODocument) rec).getSchemaClass() : null, name);
   }
 
@@ -20,6 +20,7 @@
 package com.orientechnologies.orient.core.sql.operator;
 
 import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
@@ -164,8 +165,22 @@ public class OQueryOperatorIn extends OQueryOperatorEqualityNotNulls {
         } else {
           cursor = new OIndexCursorCollectionValue((Collection<OIdentifiable>) indexResult, inKeys);
         }
-      } else
-        return null;
+      } else {
+        // KEYS ARE PREFIXES OF COMPOSITE KEYS: EVERY KEY MATCHES A RANGE OF ENTRIES
+        if (!internalIndex.hasRangeQuerySupport())
+          return null;
+
+        if (ascSortOrder)
+          Collections.sort(inKeys, ODefaultComparator.INSTANCE);
+        else
+          Collections.sort(inKeys, Collections.reverseOrder(ODefaultComparator.INSTANCE));
+
+        final List<OIndexCursor> cursors = new ArrayList<OIndexCursor>(inKeys.size());
+        for (Object key : inKeys)
+          cursors.add(index.iterateEntriesBetween(key, true, key, true, ascSortOrder));
+
+        cursor = new OCompositeIndexCursor(cursors);
+      }
     }
 
     updateProfiler(iContext, internalIndex, keyParams, indexDefinition);
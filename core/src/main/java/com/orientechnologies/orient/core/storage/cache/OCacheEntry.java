@@ -89,6 +89,14 @@ public class OCacheEntry {
     dataPointer.releaseSharedLock();
   }
 
+  public long tryOptimisticRead() {
+    return dataPointer.tryOptimisticRead();
+  }
+
+  public boolean validateOptimisticRead(long stamp) {
+    return dataPointer.validateOptimisticRead(stamp);
+  }
+
   public int getUsagesCount() {
     return usagesCount;
   }
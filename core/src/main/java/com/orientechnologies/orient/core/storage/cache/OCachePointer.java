@@ -19,6 +19,7 @@
  */
 package com.orientechnologies.orient.core.storage.cache;
 
+import com.orientechnologies.common.concur.lock.OSeqLock;
 import com.orientechnologies.common.directmemory.OByteBufferPool;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
@@ -38,6 +39,12 @@ public class OCachePointer {
 
   private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
 
+  /**
+   * Changed when exclusive lock is acquired and released, so optimistic readers which do not take the shared lock can detect that
+   * page was modified while it was read.
+   */
+  private final OSeqLock version = new OSeqLock();
+
   private final AtomicInteger referrersCount         = new AtomicInteger();
   private final AtomicLong    readersWritersReferrer = new AtomicLong();
 
@@ -226,16 +233,43 @@ public class OCachePointer {
 
   public void acquireExclusiveLock() {
     readWriteLock.writeLock().lock();
+
+    if (readWriteLock.getWriteHoldCount() == 1)
+      version.beginWrite();
   }
 
   public boolean tryAcquireExclusiveLock() {
-    return readWriteLock.writeLock().tryLock();
+    if (readWriteLock.writeLock().tryLock()) {
+      if (readWriteLock.getWriteHoldCount() == 1)
+        version.beginWrite();
+
+      return true;
+    }
+
+    return false;
   }
 
   public void releaseExclusiveLock() {
+    if (readWriteLock.getWriteHoldCount() == 1)
+      version.endWrite();
+
     readWriteLock.writeLock().unlock();
   }
 
+  /**
+   * Starts optimistic read of the page which does not acquire shared lock. Page content read after this call is consistent only if
+   * {@link #validateOptimisticRead(long)} returns <code>true</code> for the returned stamp.
+   *
+   * @return stamp of the read or <code>-1</code> if page is locked exclusively at the moment.
+   */
+  public long tryOptimisticRead() {
+    return version.tryOptimisticRead();
+  }
+
+  public boolean validateOptimisticRead(long stamp) {
+    return version.validate(stamp);
+  }
+
   public void acquireSharedLock() {
     readWriteLock.readLock().lock();
   }
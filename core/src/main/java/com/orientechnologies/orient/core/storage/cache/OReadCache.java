@@ -67,6 +67,20 @@ public interface OReadCache {
   OCacheEntry load(long fileId, long pageIndex, boolean checkPinnedPages, OWriteCache writeCache, int pageCount,
       boolean verifyChecksums) throws IOException;
 
+  /**
+   * Loads pages of the file into the cache without acquiring of them, so they are kept in cache only till they will be evicted by
+   * usual replacement policy. Pages which are already present in cache are skipped. This method is used to read pages ahead of
+   * sequential scans, it is safe to call it from background threads.
+   *
+   * @param fileId          Id of file pages of which should be loaded.
+   * @param startPageIndex  Index of the first page to load.
+   * @param pageCount       Amount of pages to load, pages which are located after the end of file are ignored.
+   * @param writeCache      Write cache which is used to load pages from the disk.
+   * @param verifyChecksums Whether checksums of loaded pages should be verified.
+   */
+  void prefetch(long fileId, long startPageIndex, int pageCount, OWriteCache writeCache, boolean verifyChecksums)
+      throws IOException;
+
   void pinPage(OCacheEntry cacheEntry) throws IOException;
 
   OCacheEntry allocateNewPage(long fileId, OWriteCache writeCache, boolean verifyChecksums) throws IOException;
@@ -24,6 +24,7 @@ import com.orientechnologies.common.types.OModifiableBoolean;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.storage.cache.local.OBackgroundExceptionListener;
 import com.orientechnologies.orient.core.storage.impl.local.OLowDiskSpaceListener;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
 import com.orientechnologies.orient.core.storage.impl.local.statistic.OPerformanceStatisticManager;
 
 import java.io.File;
@@ -74,6 +75,19 @@ public interface OWriteCache {
 
   void makeFuzzyCheckpoint();
 
+  /**
+   * Schedules checkpoint which flushes in background dirty pages changed by the oldest records of WAL and truncates WAL till the
+   * oldest change which is still not written to the disk. Method returns immediately and does not wait till checkpoint is completed.
+   * Requests of checkpoint which are done while previous checkpoint is not completed yet are ignored.
+   */
+  void makeIncrementalCheckpoint();
+
+  /**
+   * @return The smallest LSN of changes of pages which are not written to the disk yet, or <code>null</code> if there are no such
+   * pages or LSN of changes is not tracked.
+   */
+  OLogSequenceNumber getMinDirtyLsn();
+
   boolean exists(String fileName);
 
   boolean exists(long fileId);
@@ -0,0 +1,270 @@
+/*
+ *
+ *  *  Copyright 2017 OrientDB LTD (info(at)orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientdb.com
+ *
+ */
+
+package com.orientechnologies.orient.core.storage.cache.local;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.storage.OStorageAbstract;
+import com.orientechnologies.orient.core.storage.cache.OReadCache;
+import com.orientechnologies.orient.core.storage.cache.OWriteCache;
+
+import java.util.concurrent.*;
+
+/**
+ * Detects sequential access to the pages of the same file and loads next pages into the read cache by background threads, so
+ * cluster scans and range scans of indexes do not wait for synchronous read of every page.
+ * <p>
+ * Up to {@link #MAX_STREAMS_PER_FILE} concurrent access streams are tracked for each file. Once at least
+ * {@link #SEQUENTIAL_HITS_THRESHOLD} sequential accesses in the same direction are detected, pages which follow current page are
+ * loaded by {@link OReadCache#prefetch(long, long, int, OWriteCache, boolean)}. Size of read ahead window starts from minimum amount
+ * of pages and is doubled on each next read ahead till it reaches maximum amount of pages. Stream is considered as sequential if
+ * distance between two accessed pages is not bigger than {@link #MAX_SEQUENTIAL_GAP}, so records which are moved to other pages do
+ * not break detection of the scan.
+ * <p>
+ * Read ahead is only a hint, if queue of background tasks is full new requests are silently discarded and pages are loaded by
+ * reader threads itself.
+ *
+ * @since 04.05.17
+ */
+public class OReadAheadEngine {
+  static final int MAX_STREAMS_PER_FILE      = 8;
+  static final int SEQUENTIAL_HITS_THRESHOLD = 2;
+  static final int MAX_SEQUENTIAL_GAP        = 4;
+
+  private static final int QUEUE_SIZE_PER_THREAD = 16;
+
+  private final OReadCache  readCache;
+  private final OWriteCache writeCache;
+
+  private final int minPages;
+  private final int maxPages;
+
+  private final ConcurrentMap<Long, FileStreams> files = new ConcurrentHashMap<Long, FileStreams>();
+  private final ThreadPoolExecutor readAheadExecutor;
+
+  private volatile boolean closed;
+
+  public OReadAheadEngine(String storageName, OReadCache readCache, OWriteCache writeCache, int minPages, int maxPages,
+      int threads) {
+    if (minPages < 1)
+      throw new IllegalArgumentException("Minimum amount of pages to read ahead should be positive but was " + minPages);
+
+    if (threads < 1)
+      throw new IllegalArgumentException("Amount of read ahead threads should be positive but was " + threads);
+
+    this.readCache = readCache;
+    this.writeCache = writeCache;
+    this.minPages = minPages;
+    this.maxPages = Math.max(minPages, maxPages);
+
+    readAheadExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(threads * QUEUE_SIZE_PER_THREAD), new ReadAheadThreadFactory(storageName),
+        new ThreadPoolExecutor.DiscardPolicy());
+    readAheadExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Notifies engine that page is going to be read by scan. If access is a part of sequential stream of reads, next pages of the file
+   * are scheduled to be loaded in background.
+   *
+   * @param fileId    Id of file page of which is read.
+   * @param pageIndex Index of page which is read.
+   */
+  public void onPageAccess(long fileId, long pageIndex) {
+    if (closed || pageIndex < 0)
+      return;
+
+    FileStreams streams = files.get(fileId);
+    if (streams == null) {
+      streams = new FileStreams();
+      final FileStreams oldStreams = files.putIfAbsent(fileId, streams);
+      if (oldStreams != null)
+        streams = oldStreams;
+    }
+
+    final long[] range;
+    synchronized (streams) {
+      range = streams.access(pageIndex, minPages, maxPages);
+    }
+
+    if (range != null)
+      readAheadExecutor.execute(new ReadAheadTask(fileId, range[0], (int) range[1]));
+  }
+
+  /**
+   * Stops background threads. Tasks which are in progress are completed before this method returns, so it is safe to close files
+   * of the read cache after the call of this method.
+   */
+  public void close() {
+    closed = true;
+
+    readAheadExecutor.getQueue().clear();
+    readAheadExecutor.shutdown();
+
+    try {
+      if (!readAheadExecutor.awaitTermination(5, TimeUnit.MINUTES))
+        OLogManager.instance().warn(this, "Read ahead tasks were not completed in time");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    files.clear();
+  }
+
+  /**
+   * Set of access streams of single file. Streams are replaced in round robin order once new stream is detected and all slots are
+   * occupied.
+   */
+  static final class FileStreams {
+    private final Stream[] streams = new Stream[MAX_STREAMS_PER_FILE];
+    private int nextSlot;
+
+    /**
+     * @return <code>null</code> if there is no need to read ahead, otherwise array of two elements, the first one is index of the
+     * first page to read and the second one is amount of pages to read.
+     */
+    long[] access(long pageIndex, int minPages, int maxPages) {
+      for (Stream stream : streams) {
+        if (stream == null)
+          continue;
+
+        if (stream.lastPage == pageIndex)
+          return null;
+
+        if (stream.matches(pageIndex))
+          return stream.advance(pageIndex, maxPages);
+      }
+
+      streams[nextSlot] = new Stream(pageIndex, minPages);
+      nextSlot = (nextSlot + 1) & (MAX_STREAMS_PER_FILE - 1);
+
+      return null;
+    }
+  }
+
+  private static final class Stream {
+    private long lastPage;
+    private int  direction;
+    private int  hits;
+    private int  window;
+
+    /**
+     * Boundary of already requested pages, exclusive upper boundary for forward streams and inclusive lower boundary for backward
+     * streams.
+     */
+    private long requestedBoundary;
+
+    private Stream(long pageIndex, int window) {
+      this.lastPage = pageIndex;
+      this.window = window;
+    }
+
+    private boolean matches(long pageIndex) {
+      final long distance = pageIndex - lastPage;
+
+      if (direction == 0)
+        return distance != 0 && Math.abs(distance) <= MAX_SEQUENTIAL_GAP;
+
+      return distance * direction > 0 && Math.abs(distance) <= MAX_SEQUENTIAL_GAP;
+    }
+
+    private long[] advance(long pageIndex, int maxPages) {
+      if (direction == 0) {
+        direction = pageIndex > lastPage ? 1 : -1;
+        requestedBoundary = pageIndex;
+      }
+
+      lastPage = pageIndex;
+      hits++;
+
+      if (hits < SEQUENTIAL_HITS_THRESHOLD)
+        return null;
+
+      if (direction > 0) {
+        if (requestedBoundary - pageIndex > window / 2)
+          return null;
+
+        final long start = Math.max(pageIndex + 1, requestedBoundary);
+        final long end = start + window;
+
+        window = Math.min(window << 1, maxPages);
+        requestedBoundary = end;
+        return new long[] { start, end - start };
+      }
+
+      if (pageIndex - requestedBoundary > window / 2)
+        return null;
+
+      final long end = Math.min(pageIndex, requestedBoundary);
+      final long start = Math.max(0, end - window);
+
+      window = Math.min(window << 1, maxPages);
+
+      if (start >= end)
+        return null;
+
+      requestedBoundary = start;
+      return new long[] { start, end - start };
+    }
+  }
+
+  private final class ReadAheadTask implements Runnable {
+    private final long fileId;
+    private final long startPageIndex;
+    private final int  pageCount;
+
+    private ReadAheadTask(long fileId, long startPageIndex, int pageCount) {
+      this.fileId = fileId;
+      this.startPageIndex = startPageIndex;
+      this.pageCount = pageCount;
+    }
+
+    @Override
+    public void run() {
+      if (closed)
+        return;
+
+      try {
+        readCache.prefetch(fileId, startPageIndex, pageCount, writeCache, true);
+      } catch (Exception e) {
+        //read ahead is only a hint, page will be read again by the reader thread which will report an error if any
+        OLogManager.instance()
+            .debug(this, "Error during read ahead of %d pages of file %d starting from page %d", e, pageCount, fileId,
+                startPageIndex);
+      }
+    }
+  }
+
+  private static final class ReadAheadThreadFactory implements ThreadFactory {
+    private final String storageName;
+
+    private ReadAheadThreadFactory(String storageName) {
+      this.storageName = storageName;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+      final Thread thread = new Thread(OStorageAbstract.storageThreadGroup, r);
+      thread.setDaemon(true);
+      thread.setName("OrientDB Read Ahead (" + storageName + ")");
+      return thread;
+    }
+  }
+}
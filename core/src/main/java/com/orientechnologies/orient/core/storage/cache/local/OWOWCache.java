@@ -42,6 +42,7 @@ import com.orientechnologies.orient.core.storage.cache.OCachePointer;
 import com.orientechnologies.orient.core.storage.cache.OPageDataVerificationError;
 import com.orientechnologies.orient.core.storage.cache.OWriteCache;
 import com.orientechnologies.orient.core.storage.fs.OFileClassic;
+import com.orientechnologies.orient.core.storage.fs.OFileMMap;
 import com.orientechnologies.orient.core.storage.impl.local.OLowDiskSpaceInformation;
 import com.orientechnologies.orient.core.storage.impl.local.OLowDiskSpaceListener;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
@@ -51,10 +52,12 @@ import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWrite
 import com.orientechnologies.orient.core.storage.impl.local.statistic.OPerformanceStatisticManager;
 import com.orientechnologies.orient.core.storage.impl.local.statistic.OSessionStoragePerformanceStatistic;
 
+import javax.management.*;
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -62,6 +65,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.zip.CRC32;
@@ -70,13 +74,18 @@ import java.util.zip.CRC32;
  * @author Andrey Lomakin
  * @since 7/23/13
  */
-public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCachePointer.WritersListener {
+public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCachePointer.WritersListener, OWOWCacheMXBean {
   // we add 8 bytes before and after cache pages to prevent word tearing in mt case.
 
   private final int MAX_PAGES_PER_FLUSH;
 
   public static final String NAME_ID_MAP_EXTENSION = ".cm";
 
+  /**
+   * {@link OWOWCache}'s MBean name.
+   */
+  public static final String MBEAN_NAME = "com.orientechnologies.orient.core.storage.cache.local:type=OWOWCacheMXBean";
+
   private static final String NAME_ID_MAP = "name_id_map" + NAME_ID_MAP_EXTENSION;
 
   public static final int MIN_CACHE_SIZE = 16;
@@ -99,6 +108,16 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
 
   private static final int PAGE_OFFSET_TO_CHECKSUM_FROM = OLongSerializer.LONG_SIZE + OIntegerSerializer.INT_SIZE;
 
+  /**
+   * Maximum amount of adjacent pages which are written to the file by single write operation.
+   */
+  private static final int MAX_PAGES_PER_WRITE = 64;
+
+  /**
+   * Maximum amount of pages which are flushed by single increment of incremental checkpoint.
+   */
+  private static final int MAX_PAGES_PER_CHECKPOINT_INCREMENT = 1024;
+
   private static boolean crc32ArraysWarningLogged = false;
 
   private final long freeSpaceLimit = OGlobalConfiguration.DISK_CACHE_FREE_SPACE_LIMIT.getValueAsLong() * 1024L * 1024L;
@@ -112,6 +131,18 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
 
   private final ConcurrentSkipListMap<PageKey, PageGroup> writeCachePages         = new ConcurrentSkipListMap<PageKey, PageGroup>();
   private final ConcurrentSkipListSet<PageKey>            exclusiveWritePages     = new ConcurrentSkipListSet<PageKey>();
+
+  /**
+   * Pages of write cache ordered by LSN of their last flush, first page of this set defines the oldest WAL record which should be
+   * preserved in case of crash. Page is added to this set when it is put in write cache and removed when it leaves write cache, so
+   * neither checkpoint nor flush need to scan the whole write cache to find this LSN.
+   */
+  private final ConcurrentSkipListSet<DirtyPage>          dirtyPages              = new ConcurrentSkipListSet<DirtyPage>();
+
+  /**
+   * Whether incremental checkpoint is scheduled but not completed yet.
+   */
+  private final AtomicBoolean incrementalCheckpointScheduled = new AtomicBoolean();
   private final ODistributedCounter                       writeCacheSize          = new ODistributedCounter();
   private final ODistributedCounter                       exclusiveWriteCacheSize = new ODistributedCounter();
   private final ODistributedCounter                       cacheOverflowCount      = new ODistributedCounter();
@@ -152,6 +183,21 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
 
   private final OByteBufferPool bufferPool;
 
+  private final AtomicBoolean mbeanIsRegistered = new AtomicBoolean();
+
+  /**
+   * Average latency of reads of pages from disk (in nanoseconds), above which background flush pauses between writes.
+   */
+  private final long flushReadLatencyLimit =
+      OGlobalConfiguration.DISK_WRITE_CACHE_FLUSH_READ_LATENCY_LIMIT.getValueAsInteger() * 1000L;
+
+  private final ODistributedCounter diskReads         = new ODistributedCounter();
+  private final ODistributedCounter diskReadsTime     = new ODistributedCounter();
+  private final AtomicLong          flushedPages      = new AtomicLong();
+  private final AtomicLong          flushWrites       = new AtomicLong();
+  private final AtomicLong          flushWritesTime   = new AtomicLong();
+  private final AtomicLong          flushThrottleTime = new AtomicLong();
+
   private OChecksumMode checksumMode = OGlobalConfiguration.STORAGE_CHECKSUM_MODE.getValue();
 
   private Method crc32UpdateByteBuffer;
@@ -572,6 +618,30 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
     }
   }
 
+  @Override
+  public void makeIncrementalCheckpoint() {
+    if (writeAheadLog != null && incrementalCheckpointScheduled.compareAndSet(false, true)) {
+      try {
+        commitExecutor.submit(new IncrementalCheckpointTask());
+      } catch (RejectedExecutionException e) {
+        incrementalCheckpointScheduled.set(false);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * @return The smallest LSN of the first change among pages which are in write cache, or <code>null</code> if write cache is empty.
+   */
+  @Override
+  public OLogSequenceNumber getMinDirtyLsn() {
+    try {
+      return dirtyPages.first().lsn;
+    } catch (NoSuchElementException e) {
+      return null;
+    }
+  }
+
   public boolean exists(String fileName) {
     filesLock.acquireReadLock();
     try {
@@ -619,7 +689,7 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
       try {
         PageGroup pageGroup = writeCachePages.get(pageKey);
         if (pageGroup == null)
-          pageGroup = doPutInCache(dataPointer, pageKey);
+          pageGroup = doPutInCache(dataPointer, pageKey, getPageLsn(dataPointer));
 
         assert pageGroup.page.equals(dataPointer);
 
@@ -776,7 +846,7 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
                 //otherwise call of write listener inside pointer may set exclusive size to negative value
                 exclusiveWriteCacheSize.increment();
 
-                doPutInCache(cachePointer, new PageKey(intId, index));
+                doPutInCache(cachePointer, new PageKey(intId, index), lastLsn);
 
                 if (index == startPageIndex) {
                   resultPointer = cachePointer;
@@ -1219,6 +1289,15 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
     return cacheOverflowCount.get();
   }
 
+  /**
+   * Runs single iteration of background flush of write cache in flush thread.
+   *
+   * @return Future which is completed when iteration is finished.
+   */
+  Future<?> flushInBackground() {
+    return commitExecutor.submit(new PeriodicFlushTask());
+  }
+
   public long getWriteCacheSize() {
     return writeCacheSize.get();
   }
@@ -1227,6 +1306,115 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
     return exclusiveWriteCacheSize.get();
   }
 
+  @Override
+  public long getWriteCacheSizeInMB() {
+    return getWriteCacheSize() * pageSize / (1024 * 1024);
+  }
+
+  @Override
+  public double getWriteCacheSizeInGB() {
+    return ((double) getWriteCacheSize() * pageSize) / (1024 * 1024 * 1024);
+  }
+
+  @Override
+  public long getExclusiveWriteCacheSizeInMB() {
+    return getExclusiveWriteCacheSize() * pageSize / (1024 * 1024);
+  }
+
+  @Override
+  public double getExclusiveWriteCacheSizeInGB() {
+    return ((double) getExclusiveWriteCacheSize() * pageSize) / (1024 * 1024 * 1024);
+  }
+
+  @Override
+  public long getFlushedPagesCount() {
+    return flushedPages.get();
+  }
+
+  @Override
+  public long getFlushWritesCount() {
+    return flushWrites.get();
+  }
+
+  @Override
+  public double getAveragePagesPerFlushWrite() {
+    final long writes = flushWrites.get();
+    if (writes == 0)
+      return 0;
+
+    return ((double) flushedPages.get()) / writes;
+  }
+
+  @Override
+  public double getFlushThroughputInMBPerSecond() {
+    final long time = flushWritesTime.get();
+    if (time == 0)
+      return 0;
+
+    return (((double) flushedPages.get() * pageSize) / (1024 * 1024)) / (((double) time) / 1000000000);
+  }
+
+  @Override
+  public long getFlushThrottleTimeInMs() {
+    return flushThrottleTime.get() / 1000000;
+  }
+
+  @Override
+  public long getAverageDiskReadLatencyInMicros() {
+    final long reads = diskReads.get();
+    if (reads == 0)
+      return 0;
+
+    return diskReadsTime.get() / reads / 1000;
+  }
+
+  public void registerMBean() {
+    if (mbeanIsRegistered.compareAndSet(false, true)) {
+      try {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName mbeanName = new ObjectName(getMBeanName());
+
+        if (!server.isRegistered(mbeanName)) {
+          server.registerMBean(this, mbeanName);
+        } else {
+          mbeanIsRegistered.set(false);
+          OLogManager.instance().warn(this,
+              "MBean with name %s has already registered. Probably your system was not shutdown correctly "
+                  + "or you have several running applications which use OrientDB engine inside", mbeanName.getCanonicalName());
+        }
+
+      } catch (MalformedObjectNameException e) {
+        throw OException.wrapException(new OStorageException("Error during registration of write cache MBean"), e);
+      } catch (InstanceAlreadyExistsException e) {
+        throw OException.wrapException(new OStorageException("Error during registration of write cache MBean"), e);
+      } catch (MBeanRegistrationException e) {
+        throw OException.wrapException(new OStorageException("Error during registration of write cache MBean"), e);
+      } catch (NotCompliantMBeanException e) {
+        throw OException.wrapException(new OStorageException("Error during registration of write cache MBean"), e);
+      }
+    }
+  }
+
+  private String getMBeanName() {
+    return MBEAN_NAME + ",name=" + ObjectName.quote(storageLocal.getName()) + ",id=" + id;
+  }
+
+  public void unregisterMBean() {
+    if (mbeanIsRegistered.compareAndSet(true, false)) {
+      try {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName mbeanName = new ObjectName(getMBeanName());
+        server.unregisterMBean(mbeanName);
+      } catch (MalformedObjectNameException e) {
+        throw OException.wrapException(new OStorageException("Error during unregistration of write cache MBean"), e);
+      } catch (InstanceNotFoundException e) {
+        throw OException.wrapException(new OStorageException("Error during unregistration of write cache MBean"), e);
+      } catch (MBeanRegistrationException e) {
+        throw OException.wrapException(new OStorageException("Error during unregistration of write cache MBean"), e);
+      }
+    }
+  }
+
   private void openFile(final OFileClassic fileClassic) throws IOException {
     if (fileClassic.exists()) {
       if (!fileClassic.isOpen())
@@ -1263,7 +1451,11 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
   private OFileClassic createFileInstance(String fileName) throws InterruptedException {
     final String path = storageLocal.getVariableParser()
         .resolveVariables(storageLocal.getStoragePath() + File.separator + fileName);
-    return new OFileClassic(path, storageLocal.getMode());
+
+    if (OFileMMap.NAME.equals(OGlobalConfiguration.FILE_TYPE.getValueAsString()))
+      return new OFileMMap(path, storageLocal.getMode(), OGlobalConfiguration.FILE_MMAP_REGION_SIZE.getValueAsInteger() * 1024 * 1024);
+
+    return new OFileClassic(path, storageLocal.getMode(), OGlobalConfiguration.FILE_DIRECT_IO.getValueAsBoolean());
   }
 
   private void readNameIdMap() throws IOException, InterruptedException {
@@ -1454,7 +1646,9 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
               final ByteBuffer buffer = bufferPool.acquireDirect(false);
               assert buffer.position() == 0;
 
+              final long readStart = System.nanoTime();
               fileClassic.read(firstPageStartPosition, buffer, false);
+              countDiskRead(readStart);
 
               if (verifyChecksums && (checksumMode == OChecksumMode.StoreAndVerify || checksumMode == OChecksumMode.StoreAndThrow))
                 verifyChecksum(buffer, fileId, startPageIndex, null);
@@ -1475,7 +1669,9 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
               assert buffers[i].position() == 0;
             }
 
+            final long readStart = System.nanoTime();
             fileClassic.read(firstPageStartPosition, buffers, false);
+            countDiskRead(readStart);
 
             if (verifyChecksums && (checksumMode == OChecksumMode.StoreAndVerify || checksumMode == OChecksumMode.StoreAndThrow))
               for (int i = 0; i < buffers.length; ++i)
@@ -1504,9 +1700,13 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
     }
   }
 
-  private PageGroup doPutInCache(OCachePointer dataPointer, PageKey pageKey) {
-    final PageGroup pageGroup = new PageGroup(System.currentTimeMillis(), dataPointer);
+  /**
+   * @param dirtyLsn LSN of the first change of the page which is not written to the disk yet, or any smaller LSN.
+   */
+  private PageGroup doPutInCache(OCachePointer dataPointer, PageKey pageKey, OLogSequenceNumber dirtyLsn) {
+    final PageGroup pageGroup = new PageGroup(System.currentTimeMillis(), dataPointer, dirtyLsn);
     writeCachePages.put(pageKey, pageGroup);
+    dirtyPages.add(new DirtyPage(dirtyLsn, pageKey));
 
     writeCacheSize.increment();
 
@@ -1543,6 +1743,26 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
     buffer.position(CHECKSUM_OFFSET);
     final int storedChecksum = OIntegerSerializer.INSTANCE.deserializeFromByteBufferObject(buffer);
 
+    final int computedChecksum = calculatePageCrc(buffer);
+
+    if (computedChecksum != storedChecksum) {
+      final String message = "Checksum verification failed for page `" + pageIndex + "` of `" + fileNameById(fileId) + "`.";
+      OLogManager.instance().error(this, "%s", message);
+      if (checksumMode == OChecksumMode.StoreAndThrow) {
+
+        if (buffersToRelease == null)
+          bufferPool.release(buffer);
+        else
+          for (ByteBuffer bufferToRelease : buffersToRelease)
+            bufferPool.release(bufferToRelease);
+
+        throw new OStorageException(message);
+      }
+
+    }
+  }
+
+  private int calculatePageCrc(ByteBuffer buffer) {
     final CRC32 crc32 = new CRC32();
     buffer.position(PAGE_OFFSET_TO_CHECKSUM_FROM);
 
@@ -1566,58 +1786,256 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
       crc32.update(data);
     }
 
-    final int computedChecksum = (int) crc32.getValue();
+    return (int) crc32.getValue();
+  }
 
-    if (computedChecksum != storedChecksum) {
-      final String message = "Checksum verification failed for page `" + pageIndex + "` of `" + fileNameById(fileId) + "`.";
-      OLogManager.instance().error(this, "%s", message);
-      if (checksumMode == OChecksumMode.StoreAndThrow) {
+  /**
+   * Flushes adjacent pages of the same file. Pages are copied to the buffers of pool under the locks of page groups and all pages
+   * which are still in write cache are written by single vectored write. If some of pages are absent or locked by writers they are
+   * skipped and rest of pages is written by several writes.
+   * <p>
+   * Locks of page groups are held till pages are removed from write cache, so pages can not be read from the file before they are
+   * written.
+   *
+   * @param pageKeys Keys of pages ordered by page index.
+   *
+   * @return Amount of flushed pages.
+   */
+  private int flushPages(final List<PageKey> pageKeys) throws IOException, InterruptedException {
+    final int size = pageKeys.size();
+    if (size == 0)
+      return 0;
 
-        if (buffersToRelease == null)
-          bufferPool.release(buffer);
-        else
-          for (ByteBuffer bufferToRelease : buffersToRelease)
-            bufferPool.release(bufferToRelease);
+    final int fileId = pageKeys.get(0).fileId;
 
-        throw new OStorageException(message);
+    final PageGroup[] pageGroups = new PageGroup[size];
+    final ByteBuffer[] contents = new ByteBuffer[size];
+    final OLogSequenceNumber[] lsns = new OLogSequenceNumber[size];
+
+    final Lock[] groupLocks = lockManager.acquireExclusiveLocksInBatch(pageKeys);
+    try {
+      try {
+        OLogSequenceNumber maxLsn = null;
+
+        for (int i = 0; i < size; i++) {
+          final PageGroup pageGroup = writeCachePages.get(pageKeys.get(i));
+          if (pageGroup == null)
+            continue;
+
+          final OCachePointer pagePointer = pageGroup.page;
+          if (!pagePointer.tryAcquireSharedLock())
+            continue;
+
+          try {
+            final ByteBuffer buffer = pagePointer.getSharedBuffer();
+
+            lsns[i] = ODurablePage.getLogSequenceNumberFromPage(buffer);
+            contents[i] = preparePageForFlush(buffer);
+          } finally {
+            pagePointer.releaseSharedLock();
+          }
+
+          pageGroups[i] = pageGroup;
+
+          if (maxLsn == null || maxLsn.compareTo(lsns[i]) < 0)
+            maxLsn = lsns[i];
+        }
+
+        if (maxLsn == null)
+          return 0;
+
+        flushWALTill(maxLsn);
+
+        final OClosableEntry<Long, OFileClassic> entry = files.acquire(composeFileId(id, fileId));
+        try {
+          final OFileClassic fileClassic = entry.get();
+          final long writeStart = System.nanoTime();
+
+          int writes = 0;
+          int pages = 0;
+
+          int start = 0;
+          while (start < size) {
+            if (contents[start] == null) {
+              start++;
+              continue;
+            }
+
+            int end = start + 1;
+            while (end < size && contents[end] != null)
+              end++;
+
+            fileClassic.write(pageKeys.get(start).pageIndex * pageSize, Arrays.copyOfRange(contents, start, end));
+
+            writes++;
+            pages += end - start;
+            start = end;
+          }
+
+          if (syncOnPageFlush)
+            fileClassic.synch();
+
+          countFlushWrites(writes, pages, writeStart);
+        } finally {
+          files.release(entry);
+        }
+      } finally {
+        for (ByteBuffer content : contents) {
+          if (content != null)
+            bufferPool.release(content);
+        }
       }
 
+      int flushedPages = 0;
+      for (int i = 0; i < size; i++) {
+        final PageGroup pageGroup = pageGroups[i];
+        if (pageGroup == null)
+          continue;
+
+        final OCachePointer pagePointer = pageGroup.page;
+        pagePointer.setLastFlushedLsn(lsns[i]);
+
+        pagePointer.decrementWritersReferrer();
+        pagePointer.setWritersListener(null);
+
+        writeCacheSize.decrement();
+        writeCachePages.remove(pageKeys.get(i), pageGroup);
+        removeDirtyPage(pageKeys.get(i), pageGroup);
+
+        flushedPages++;
+      }
+
+      return flushedPages;
+    } finally {
+      for (Lock groupLock : groupLocks) {
+        groupLock.unlock();
+      }
     }
   }
 
-  private void flushPage(final int fileId, final long pageIndex, final ByteBuffer buffer) throws IOException, InterruptedException {
+  private void removeDirtyPage(PageKey pageKey, PageGroup pageGroup) {
+    dirtyPages.remove(new DirtyPage(pageGroup.dirtyLsn, pageKey));
+  }
+
+  /**
+   * Page is passed to write cache once it is released after the change, so if page is not in write cache yet, it contains LSN of
+   * the first change which made it dirty.
+   */
+  private static OLogSequenceNumber getPageLsn(OCachePointer dataPointer) {
+    dataPointer.acquireSharedLock();
+    try {
+      return ODurablePage.getLogSequenceNumberFromPage(dataPointer.getSharedBuffer());
+    } finally {
+      dataPointer.releaseSharedLock();
+    }
+  }
+
+  private int flushPagesInOrder(final Iterable<PageKey> pageKeys) throws IOException, InterruptedException {
+    return flushPagesInOrder(pageKeys, null);
+  }
+
+  /**
+   * Flushes pages in order of passed in keys, adjacent pages are written by single write operation.
+   *
+   * @param pageKeys Keys of pages ordered by file and page index.
+   * @param listener Listener which is notified after each write operation and may stop the flush, may be <code>null</code>.
+   *
+   * @return Amount of flushed pages.
+   */
+  private int flushPagesInOrder(final Iterable<PageKey> pageKeys, final AdjacentPagesFlushListener listener)
+      throws IOException, InterruptedException {
+    int flushedPages = 0;
+
+    final List<PageKey> adjacentPages = new ArrayList<PageKey>(MAX_PAGES_PER_WRITE);
+    final Iterator<PageKey> keysIterator = pageKeys.iterator();
+
+    PageKey nextKey = keysIterator.hasNext() ? keysIterator.next() : null;
+    while (nextKey != null) {
+      adjacentPages.clear();
+      adjacentPages.add(nextKey);
+      nextKey = null;
+
+      while (keysIterator.hasNext()) {
+        final PageKey pageKey = keysIterator.next();
+        final PageKey lastKey = adjacentPages.get(adjacentPages.size() - 1);
+
+        if (lastKey.fileId != pageKey.fileId || lastKey.pageIndex + 1 != pageKey.pageIndex
+            || adjacentPages.size() == MAX_PAGES_PER_WRITE) {
+          nextKey = pageKey;
+          break;
+        }
+
+        adjacentPages.add(pageKey);
+      }
+
+      final long writeStart = System.nanoTime();
+      final int writtenPages = flushPages(adjacentPages);
+      flushedPages += writtenPages;
+
+      if (listener != null && !listener.onPagesFlushed(adjacentPages, writtenPages, System.nanoTime() - writeStart))
+        break;
+    }
+
+    return flushedPages;
+  }
+
+  /**
+   * Listener of writes performed by {@link #flushPagesInOrder(Iterable, AdjacentPagesFlushListener)}.
+   */
+  private interface AdjacentPagesFlushListener {
+    /**
+     * @param pageKeys     Keys of adjacent pages which were written by single write operation.
+     * @param flushedPages Amount of pages which were actually flushed, pages which are in use are skipped.
+     * @param writeTime    Time of the write in nanoseconds.
+     *
+     * @return <code>true</code> if flush should be continued.
+     */
+    boolean onPagesFlushed(List<PageKey> pageKeys, int flushedPages, long writeTime);
+  }
+
+  private void countDiskRead(long readStart) {
+    diskReadsTime.add(System.nanoTime() - readStart);
+    diskReads.increment();
+  }
+
+  private void countFlushWrites(int writes, int pages, long writeStart) {
+    flushWritesTime.addAndGet(System.nanoTime() - writeStart);
+    flushWrites.addAndGet(writes);
+    flushedPages.addAndGet(pages);
+  }
+
+  private void flushWALTill(OLogSequenceNumber lsn) throws IOException {
     if (writeAheadLog != null) {
-      final OLogSequenceNumber lsn = ODurablePage.getLogSequenceNumberFromPage(buffer);
       final OLogSequenceNumber flushedLSN = writeAheadLog.getFlushedLsn();
 
       if (flushedLSN == null || flushedLSN.compareTo(lsn) < 0)
         writeAheadLog.flush();
     }
+  }
+
+  /**
+   * Copies content of the page to the buffer of pool and sets magic number and checksum of the page. Buffers of pool are aligned,
+   * so they may be written to the files opened in direct I/O mode.
+   *
+   * @return Buffer acquired from pool, should be released once page is written.
+   */
+  private ByteBuffer preparePageForFlush(final ByteBuffer buffer) {
+    final ByteBuffer flushBuffer = bufferPool.acquireDirect(false);
+    assert flushBuffer.order() == ByteOrder.nativeOrder();
 
-    final byte[] content = new byte[pageSize];
     buffer.position(0);
-    buffer.get(content);
+    flushBuffer.position(0);
+    flushBuffer.put(buffer);
 
-    OLongSerializer.INSTANCE
-        .serializeNative(checksumMode == OChecksumMode.Off ? MAGIC_NUMBER_WITHOUT_CHECKSUM : MAGIC_NUMBER_WITH_CHECKSUM, content,
-            MAGIC_NUMBER_OFFSET);
+    flushBuffer.putLong(MAGIC_NUMBER_OFFSET,
+        checksumMode == OChecksumMode.Off ? MAGIC_NUMBER_WITHOUT_CHECKSUM : MAGIC_NUMBER_WITH_CHECKSUM);
 
-    if (checksumMode != OChecksumMode.Off) {
-      final int crc32 = calculatePageCrc(content);
-      OIntegerSerializer.INSTANCE.serializeNative(crc32, content, CHECKSUM_OFFSET);
-    }
+    if (checksumMode != OChecksumMode.Off)
+      flushBuffer.putInt(CHECKSUM_OFFSET, calculatePageCrc(flushBuffer));
 
-    final long externalId = composeFileId(id, fileId);
-    final OClosableEntry<Long, OFileClassic> entry = files.acquire(externalId);
-    try {
-      final OFileClassic fileClassic = entry.get();
-      fileClassic.write(pageIndex * pageSize, content);
+    flushBuffer.position(0);
 
-      if (syncOnPageFlush)
-        fileClassic.synch();
-    } finally {
-      files.release(entry);
-    }
+    return flushBuffer;
   }
 
   private static final class NameFileIdEntry {
@@ -1654,6 +2072,41 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
     }
   }
 
+  private static final class DirtyPage implements Comparable<DirtyPage> {
+    private final OLogSequenceNumber lsn;
+    private final PageKey            pageKey;
+
+    private DirtyPage(final OLogSequenceNumber lsn, final PageKey pageKey) {
+      this.lsn = lsn;
+      this.pageKey = pageKey;
+    }
+
+    @Override
+    public int compareTo(final DirtyPage other) {
+      final int result = lsn.compareTo(other.lsn);
+      if (result != 0)
+        return result;
+
+      return pageKey.compareTo(other.pageKey);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+
+      final DirtyPage dirtyPage = (DirtyPage) o;
+      return lsn.equals(dirtyPage.lsn) && pageKey.equals(dirtyPage.pageKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * lsn.hashCode() + pageKey.hashCode();
+    }
+  }
+
   private static final class PageKey implements Comparable<PageKey> {
     private final int  fileId;
     private final long pageIndex;
@@ -1712,7 +2165,25 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
     }
   }
 
+  /**
+   * Background flush of write cache. Pages to flush are selected by iteration over the ring of pages in write cache, starting
+   * from the pages with the oldest LSN. Selected pages are not written immediately but collected into the flush plan, which is
+   * sorted by file and page index, so adjacent pages are written by single vectored write instead of several random writes.
+   * <p>
+   * If foreground reads of pages from disk become slow, flush of the rest of the plan is postponed for the time of the last write,
+   * unless write cache is close to overflow. Flush thread is not blocked during the pause, so other tasks of write cache are not
+   * delayed by it.
+   */
   private final class PeriodicFlushTask implements Runnable {
+    private final NavigableSet<PageKey> plannedPages = new TreeSet<PageKey>();
+
+    /**
+     * Whether flush of the rest of the plan is postponed, accessed only from flush thread.
+     */
+    private boolean throttled;
+
+    private long lastDiskReads;
+    private long lastDiskReadsTime;
 
     @Override
     public void run() {
@@ -1793,6 +2264,8 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
 
     private int flushRing(final int writePagesToFlush, int flushedPages, final boolean forceFlush,
         final boolean iterateByWritePagesFirst) throws IOException, InterruptedException {
+      if (throttled && !forceFlush)
+        return flushedPages;
 
       NavigableMap<PageKey, PageGroup> subMap = null;
       NavigableSet<PageKey> writePagesSubset = null;
@@ -1803,15 +2276,86 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
         subMap = writeCachePages.tailMap(lastPageKey, false);
       }
 
-      flushedPages = iterateBySubRing(subMap, writePagesSubset, writePagesToFlush, flushedPages, forceFlush,
+      int selectedPages = iterateBySubRing(subMap, writePagesSubset, writePagesToFlush, flushedPages, forceFlush,
           iterateByWritePagesFirst);
 
-      if (flushedPages < writePagesToFlush) {
-        flushedPages = iterateBySubRing(writeCachePages, exclusiveWritePages, writePagesToFlush, flushedPages, forceFlush,
+      if (selectedPages < writePagesToFlush) {
+        iterateBySubRing(writeCachePages, exclusiveWritePages, writePagesToFlush, selectedPages, forceFlush,
             iterateByWritePagesFirst);
       }
 
-      return flushedPages;
+      return flushedPages + flushPlannedPages(forceFlush);
+    }
+
+    /**
+     * Writes pages of flush plan ordered by file and page index, runs of adjacent pages are written by single write.
+     *
+     * @return Amount of flushed pages.
+     */
+    private int flushPlannedPages(final boolean forceFlush) throws IOException, InterruptedException {
+      throttled = false;
+
+      return flushPagesInOrder(new ArrayList<PageKey>(plannedPages), new AdjacentPagesFlushListener() {
+        @Override
+        public boolean onPagesFlushed(List<PageKey> pageKeys, int flushedPages, long writeTime) {
+          plannedPages.removeAll(pageKeys);
+
+          if (flushedPages == 0 || forceFlush || !isReadLatencyExceeded())
+            return true;
+
+          throttle(writeTime);
+          return false;
+        }
+      });
+    }
+
+    /**
+     * Postpones flush of the rest of the plan for the time of the last write, so flush takes not more than half of time of the disk
+     * while foreground reads are slow.
+     */
+    private void throttle(final long writeTime) {
+      if (plannedPages.isEmpty() || commitExecutor.isShutdown())
+        return;
+
+      throttled = true;
+      flushThrottleTime.addAndGet(writeTime);
+
+      commitExecutor.schedule(new PlannedPagesFlushTask(), writeTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return <code>true</code> if average latency of reads of pages from disk made since the previous check exceeds the limit.
+     */
+    private boolean isReadLatencyExceeded() {
+      if (flushReadLatencyLimit <= 0)
+        return false;
+
+      final long reads = diskReads.get();
+      final long readsTime = diskReadsTime.get();
+
+      final long newReads = reads - lastDiskReads;
+      final long newReadsTime = readsTime - lastDiskReadsTime;
+
+      lastDiskReads = reads;
+      lastDiskReadsTime = readsTime;
+
+      return newReads > 0 && newReadsTime / newReads > flushReadLatencyLimit;
+    }
+
+    /**
+     * Flushes the rest of the plan after the pause caused by throttling.
+     */
+    private final class PlannedPagesFlushTask implements Runnable {
+      @Override
+      public void run() {
+        try {
+          if (throttled)
+            flushPlannedPages(false);
+        } catch (Throwable e) {
+          OLogManager.instance().error(this, "Exception during data flush", e);
+          OWOWCache.this.fireBackgroundDataProcessingExceptionEvent(e);
+        }
+      }
     }
 
     private PageKey findExclusivePageKeyWithMinimumLsn() {
@@ -1839,26 +2383,11 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
     }
 
     private PageKey findNonExclusivePageKeyWithMinimumLsn() {
-      PageKey result = lastPageKey;
-
-      OLogSequenceNumber minimumLsn = new OLogSequenceNumber(Long.MAX_VALUE, Long.MAX_VALUE);
-      for (Map.Entry<PageKey, PageGroup> entry : writeCachePages.entrySet()) {
-        final PageKey pageKey = entry.getKey();
-        final Lock lock = lockManager.acquireExclusiveLock(pageKey);
-        try {
-          final PageGroup pageGroup = entry.getValue();
-
-          final OLogSequenceNumber lsn = pageGroup.page.getLastFlushedLsn();
-          if (lsn != null && lsn.compareTo(minimumLsn) < 0) {
-            minimumLsn = lsn;
-            result = pageKey;
-          }
-        } finally {
-          lockManager.releaseExclusiveLock(pageKey);
-        }
+      try {
+        return dirtyPages.first().pageKey;
+      } catch (NoSuchElementException e) {
+        return lastPageKey;
       }
-
-      return result;
     }
 
     private int iterateBySubRing(final NavigableMap<PageKey, PageGroup> subMap, NavigableSet<PageKey> subSet, int writePagesToFlush,
@@ -1891,6 +2420,9 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
         if (flushedWritePages > writePagesToFlush && flushedRegions >= 4)
           break;
 
+        if (plannedPages.contains(entry))
+          continue;
+
         Lock groupLock = lockManager.acquireExclusiveLock(entry);
         try {
 
@@ -1910,25 +2442,7 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
             continue;
           } else {
             group.recencyBit = false;
-
-            if (!pagePointer.tryAcquireSharedLock())
-              continue;
-
-            try {
-              final ByteBuffer buffer = pagePointer.getSharedBuffer();
-              flushPage(entry.fileId, entry.pageIndex, buffer);
-
-              final OLogSequenceNumber flushedLSN = ODurablePage.getLogSequenceNumberFromPage(buffer);
-              pagePointer.setLastFlushedLsn(flushedLSN);
-            } finally {
-              pagePointer.releaseSharedLock();
-            }
-
-            pagePointer.decrementWritersReferrer();
-            pagePointer.setWritersListener(null);
-
-            entriesIterator.remove();
-            writeCachePages.remove(entry);
+            plannedPages.add(entry);
           }
         } finally {
           lockManager.releaseExclusiveLock(entry);
@@ -1938,8 +2452,6 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
         flushedWritePages++;
 
         lastPageIndex = entry.pageIndex;
-
-        writeCacheSize.decrement();
       }
 
       return flushedWritePages;
@@ -1970,6 +2482,9 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
           }
         }
 
+        if (plannedPages.contains(pageKey))
+          continue;
+
         final OCachePointer pagePointer = group.page;
         final boolean weakLockMode =
             currentTime - group.creationTime < groupTTL && !forceFlush && !tooOldLsn(pagePointer.getLastFlushedLsn(),
@@ -1987,24 +2502,7 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
             continue;
           } else {
             group.recencyBit = false;
-
-            if (!pagePointer.tryAcquireSharedLock())
-              continue;
-
-            try {
-              final ByteBuffer buffer = pagePointer.getSharedBuffer();
-              flushPage(pageKey.fileId, pageKey.pageIndex, buffer);
-
-              final OLogSequenceNumber flushedLSN = ODurablePage.getLogSequenceNumberFromPage(buffer);
-              pagePointer.setLastFlushedLsn(flushedLSN);
-            } finally {
-              pagePointer.releaseSharedLock();
-            }
-
-            pagePointer.decrementWritersReferrer();
-            pagePointer.setWritersListener(null);
-
-            entriesIterator.remove();
+            plannedPages.add(pageKey);
           }
         } finally {
           lockManager.releaseExclusiveLock(entry.getKey());
@@ -2014,8 +2512,6 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
 
         flushedWritePages++;
         lastPageIndex = pageKey.pageIndex;
-
-        writeCacheSize.decrement();
       }
 
       return flushedWritePages;
@@ -2030,6 +2526,16 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
     }
   }
 
+  /**
+   * Fuzzy checkpoint does not lock pages of write cache, LSN till which WAL may be truncated is calculated as the smallest of
+   * <ol>
+   * <li>LSN of start of the oldest active atomic operation, its changes may be not passed to the write cache yet</li>
+   * <li>LSN of the oldest dirty page in write cache</li>
+   * <li>LSN of the last record flushed to WAL</li>
+   * </ol>
+   * Atomic operations pass pages to the write cache before they are completed, so it is important that the first of those values
+   * is taken before the second one.
+   */
   private final class PeriodicalFuzzyCheckpointTask implements Runnable {
     private PeriodicalFuzzyCheckpointTask() {
     }
@@ -2040,7 +2546,7 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
       if (statistic != null)
         statistic.startFuzzyCheckpointTimer();
       try {
-        OLogSequenceNumber minLsn = findMinLsn(writeAheadLog.getFlushedLsn(), writeCachePages);
+        OLogSequenceNumber minLsn = findMinLsn();
         if (minLsn == null)
           return;
 
@@ -2080,28 +2586,70 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
       }
     }
 
-    private OLogSequenceNumber findMinLsn(OLogSequenceNumber minLsn, ConcurrentSkipListMap<PageKey, PageGroup> ring) {
+    private OLogSequenceNumber findMinLsn() {
+      final OLogSequenceNumber activeOperationLsn = writeAheadLog.getOldestActiveOperationLsn();
+      final OLogSequenceNumber dirtyLsn = getMinDirtyLsn();
+
+      OLogSequenceNumber minLsn = writeAheadLog.getFlushedLsn();
       if (minLsn == null)
         return null;
 
-      for (Map.Entry<PageKey, PageGroup> entry : ring.entrySet()) {
-        lockManager.acquireExclusiveLock(entry.getKey());
-        try {
-          PageGroup group = entry.getValue();
-          final OCachePointer pagePointer = group.page;
-          if (pagePointer.getLastFlushedLsn() != null) {
-            if (minLsn.compareTo(pagePointer.getLastFlushedLsn()) > 0) {
-              minLsn = pagePointer.getLastFlushedLsn();
-            }
-          }
-        } finally {
-          lockManager.releaseExclusiveLock(entry.getKey());
-        }
-      }
+      if (activeOperationLsn != null && minLsn.compareTo(activeOperationLsn) > 0)
+        minLsn = activeOperationLsn;
+
+      if (dirtyLsn != null && minLsn.compareTo(dirtyLsn) > 0)
+        minLsn = dirtyLsn;
+
       return minLsn;
     }
   }
 
+  /**
+   * Flushes pages which prevent truncation of the oldest segment of WAL and then performs fuzzy checkpoint, so WAL is truncated by
+   * single segment at once. Pages which are locked by writers are skipped and flushed by one of the next increments.
+   */
+  private final class IncrementalCheckpointTask implements Runnable {
+    @Override
+    public void run() {
+      try {
+        flushOldestPages();
+      } catch (Throwable e) {
+        OLogManager.instance().error(this, "Error during incremental checkpoint", e);
+        fireBackgroundDataProcessingExceptionEvent(e);
+      } finally {
+        incrementalCheckpointScheduled.set(false);
+      }
+
+      new PeriodicalFuzzyCheckpointTask().run();
+    }
+
+    private void flushOldestPages() throws IOException, InterruptedException {
+      final Iterator<DirtyPage> dirtyPagesIterator = dirtyPages.iterator();
+      if (!dirtyPagesIterator.hasNext())
+        return;
+
+      DirtyPage dirtyPage = dirtyPagesIterator.next();
+
+      final long segment = dirtyPage.lsn.getSegment();
+      if (segment >= writeAheadLog.activeSegment())
+        return;
+
+      final NavigableSet<PageKey> pageKeys = new TreeSet<PageKey>();
+      while (true) {
+        pageKeys.add(dirtyPage.pageKey);
+
+        if (pageKeys.size() == MAX_PAGES_PER_CHECKPOINT_INCREMENT || !dirtyPagesIterator.hasNext())
+          break;
+
+        dirtyPage = dirtyPagesIterator.next();
+        if (dirtyPage.lsn.getSegment() != segment)
+          break;
+      }
+
+      flushPagesInOrder(pageKeys);
+    }
+  }
+
   private final class FileFlushTask implements Callable<Void> {
     private final int fileId;
 
@@ -2114,7 +2662,7 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
       final PageKey firstKey = new PageKey(fileId, 0);
       final PageKey lastKey = new PageKey(fileId, Long.MAX_VALUE);
 
-      flushRing(writeCachePages.subMap(firstKey, true, lastKey, true));
+      flushPagesInOrder(writeCachePages.subMap(firstKey, true, lastKey, true).keySet());
 
       final long finalId = composeFileId(id, fileId);
       final OClosableEntry<Long, OFileClassic> entry = files.acquire(finalId);
@@ -2126,44 +2674,6 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
 
       return null;
     }
-
-    private void flushRing(final NavigableMap<PageKey, PageGroup> subMap) throws IOException, InterruptedException {
-      final Iterator<Map.Entry<PageKey, PageGroup>> entryIterator = subMap.entrySet().iterator();
-
-      while (entryIterator.hasNext()) {
-        Map.Entry<PageKey, PageGroup> entry = entryIterator.next();
-        final PageGroup pageGroup = entry.getValue();
-        final PageKey pageKey = entry.getKey();
-
-        final Lock groupLock = lockManager.acquireExclusiveLock(pageKey);
-        try {
-
-          final OCachePointer pagePointer = pageGroup.page;
-
-          if (!pagePointer.tryAcquireSharedLock())
-            continue;
-
-          try {
-            final ByteBuffer buffer = pagePointer.getSharedBuffer();
-            flushPage(pageKey.fileId, pageKey.pageIndex, buffer);
-
-            final OLogSequenceNumber flushedLSN = ODurablePage.getLogSequenceNumberFromPage(buffer);
-            pagePointer.setLastFlushedLsn(flushedLSN);
-          } finally {
-            pagePointer.releaseSharedLock();
-          }
-
-          pagePointer.decrementWritersReferrer();
-          pagePointer.setWritersListener(null);
-
-          writeCacheSize.decrement();
-          entryIterator.remove();
-
-        } finally {
-          lockManager.releaseExclusiveLock(pageKey);
-        }
-      }
-    }
   }
 
   private final class RemoveFilePagesTask implements Callable<Void> {
@@ -2204,6 +2714,7 @@ public class OWOWCache extends OAbstractWriteCache implements OWriteCache, OCach
           }
 
           entryIterator.remove();
+          removeDirtyPage(pageKey, pageGroup);
         } finally {
           lockManager.releaseExclusiveLock(pageKey);
         }
@@ -34,4 +34,31 @@ public interface OWOWCacheMXBean {
   long getExclusiveWriteCacheSizeInMB();
 
   double getExclusiveWriteCacheSizeInGB();
+
+  /**
+   * @return Amount of pages written to the disk by write cache.
+   */
+  long getFlushedPagesCount();
+
+  /**
+   * @return Amount of write operations performed to flush pages, adjacent pages are written by single operation.
+   */
+  long getFlushWritesCount();
+
+  double getAveragePagesPerFlushWrite();
+
+  /**
+   * @return Speed of writes of pages to the disk, calculated over the time spent inside of write operations.
+   */
+  double getFlushThroughputInMBPerSecond();
+
+  /**
+   * @return Time during which background flush was paused because of slow foreground reads from the disk.
+   */
+  long getFlushThrottleTimeInMs();
+
+  /**
+   * @return Average latency of reads of pages from the disk.
+   */
+  long getAverageDiskReadLatencyInMicros();
 }
@@ -21,6 +21,7 @@
 package com.orientechnologies.orient.core.storage.cache.local;
 
 import com.orientechnologies.orient.core.storage.cache.OCachePointer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
 
 /**
  * @author Andrey Lomakin
@@ -32,9 +33,16 @@ class PageGroup {
   public volatile boolean    recencyBit;
   public final long          creationTime;
 
-  PageGroup(long creationTime, OCachePointer page) {
+  /**
+   * LSN of the first change of the page which made it dirty. All changes of the page which are not written to the disk yet have the
+   * same or bigger LSNs.
+   */
+  public final OLogSequenceNumber dirtyLsn;
+
+  PageGroup(long creationTime, OCachePointer page, OLogSequenceNumber dirtyLsn) {
     this.recencyBit = true;
     this.creationTime = creationTime;
     this.page = page;
+    this.dirtyLsn = dirtyLsn;
   }
 }
@@ -0,0 +1,149 @@
+/*
+ *
+ *  *  Copyright 2017 OrientDB LTD (info(at)orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientdb.com
+ *
+ */
+
+package com.orientechnologies.orient.core.storage.cache.local.tinylfu;
+
+/**
+ * Count-min sketch with 4-bit counters which is used to estimate frequency of access of cache pages in {@link OTinyLFUCache}.
+ * <p>
+ * Each <code>long</code> slot of the table contains 16 counters, every page is mapped to 4 counters inside of the same slot. Once
+ * amount of increments reaches sample size all counters are halved, so frequencies of pages which are not accessed any more decay
+ * with time.
+ * <p>
+ * This class is not thread safe and should be guarded by the lock of the cache segment which owns it.
+ *
+ * @since 02.05.17
+ */
+public final class OFrequencySketch {
+  private static final long[] SEEDS = new long[] { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+      0xcbf29ce484222325L };
+
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK   = 0x1111111111111111L;
+
+  private long[] table;
+  private int    tableMask;
+  private int    sampleSize;
+  private int    size;
+
+  /**
+   * @param maximumSize Expected amount of pages which are tracked by the sketch.
+   */
+  public OFrequencySketch(int maximumSize) {
+    ensureCapacity(maximumSize);
+  }
+
+  /**
+   * Resizes sketch if it is too small to track given amount of pages. All collected statistics is lost during resize.
+   *
+   * @param maximumSize Expected amount of pages which are tracked by the sketch.
+   */
+  public void ensureCapacity(int maximumSize) {
+    final int maximum = Math.max(Math.min(maximumSize, 1 << 30), 8);
+    if (table != null && table.length >= maximum)
+      return;
+
+    table = new long[ceilingPowerOfTwo(maximum)];
+    tableMask = Math.max(0, table.length - 1);
+    sampleSize = 10 * maximum;
+    if (sampleSize <= 0)
+      sampleSize = Integer.MAX_VALUE;
+
+    size = 0;
+  }
+
+  /**
+   * @return Estimated frequency of access of given page, value is in range between 0 and 15.
+   */
+  public int frequency(long fileId, long pageIndex) {
+    final int hash = spread(fileId, pageIndex);
+    final int start = (hash & 3) << 2;
+
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      final int index = indexOf(hash, i);
+      final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+
+    return frequency;
+  }
+
+  /**
+   * Increments estimated frequency of access of given page if it is not reached maximum value yet.
+   */
+  public void increment(long fileId, long pageIndex) {
+    final int hash = spread(fileId, pageIndex);
+    final int start = (hash & 3) << 2;
+
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+
+    if (added && ++size == sampleSize)
+      reset();
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    final int offset = counter << 2;
+    final long mask = 0xfL << offset;
+
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Halves all counters, so old statistics gradually loses its weight.
+   */
+  void reset() {
+    int count = 0;
+    for (int i = 0; i < table.length; i++) {
+      count += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+
+    size = (size >>> 1) - (count >>> 2);
+  }
+
+  private int indexOf(int item, int i) {
+    long hash = SEEDS[i] * item;
+    hash += hash >>> 32;
+    return ((int) hash) & tableMask;
+  }
+
+  private static int spread(long fileId, long pageIndex) {
+    long h = fileId * 0x9e3779b97f4a7c15L + pageIndex;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+
+    final int x = (int) (h ^ (h >>> 32));
+    return (x >>> 16) ^ x;
+  }
+
+  private static int ceilingPowerOfTwo(int x) {
+    return 1 << (32 - Integer.numberOfLeadingZeros(x - 1));
+  }
+}
@@ -0,0 +1,1361 @@
+/*
+ *
+ *  *  Copyright 2017 OrientDB LTD (info(at)orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientdb.com
+ *
+ */
+
+package com.orientechnologies.orient.core.storage.cache.local.tinylfu;
+
+import com.orientechnologies.common.concur.lock.OInterruptedException;
+import com.orientechnologies.common.concur.lock.OLockManager;
+import com.orientechnologies.common.concur.lock.OPartitionedLockManager;
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.types.OModifiableBoolean;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.exception.OReadCacheException;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.storage.cache.*;
+import com.orientechnologies.orient.core.storage.impl.local.statistic.OSessionStoragePerformanceStatistic;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read cache which is based on W-TinyLFU eviction policy.
+ * <p>
+ * Page table of the cache is split on segments, amount of segments is proportional to the amount of CPU cores. Every segment is
+ * guarded by its own lock, so threads which access different pages do not contend on the same lock like it happens in
+ * {@link com.orientechnologies.orient.core.storage.cache.local.twoq.O2QCache}.
+ * <p>
+ * Each segment consist of three LRU queues:
+ * <ol>
+ * <li>Window queue - small queue (1% of segment) to which all newly loaded pages are added.</li>
+ * <li>Probation queue - pages which were evicted from window queue and admitted to the main part of the cache.</li>
+ * <li>Protected queue - pages from probation queue which were accessed at least one more time.</li>
+ * </ol>
+ * When page is evicted from window queue it competes with the LRU page of probation queue, the page which has lower access
+ * frequency according to {@link OFrequencySketch} is removed from the cache. As result, pages which are accessed only once during
+ * big scans can not push hot pages out of the cache.
+ *
+ * @since 02.05.17
+ */
+public class OTinyLFUCache implements OReadCache {
+  /**
+   * Name of the cache type in {@link OGlobalConfiguration#DISK_CACHE_READ_CACHE_TYPE}.
+   */
+  public static final String NAME = "tinylfu";
+
+  /**
+   * Maximum percent of pinned pages which may be contained in this cache.
+   */
+  public static final int MAX_PERCENT_OF_PINED_PAGES = 50;
+
+  /**
+   * Minimum size of memory which may be allocated by cache (in pages). This parameter is used only if related flag is set in
+   * constrictor of cache.
+   */
+  public static final int MIN_CACHE_SIZE = 256;
+
+  /**
+   * File which contains stored state of disk cache after storage close.
+   */
+  public static final String CACHE_STATE_FILE = "cache.lfu.stt";
+
+  /**
+   * Minimum amount of pages which should be held by single segment.
+   */
+  private static final int MIN_SEGMENT_SIZE = 64;
+
+  /**
+   * Maximum amount of times when we will show message that limit of pinned pages was exhausted.
+   */
+  private static final int MAX_AMOUNT_OF_WARNINGS_PINNED_PAGES = 10;
+
+  private static final int WINDOW_PERCENT    = 1;
+  private static final int PROTECTED_PERCENT = 80;
+
+  private final int       pageSize;
+  private final Segment[] segments;
+  private final int       segmentsMask;
+
+  private final int percentOfPinnedPages;
+
+  /**
+   * Counts how much time we warned user that limit of amount of pinned pages is reached.
+   */
+  private final AtomicInteger pinnedPagesWarningCounter = new AtomicInteger();
+
+  private final AtomicReference<MemoryData> memoryDataContainer = new AtomicReference<MemoryData>();
+
+  /**
+   * Contains all pages in cache for given file.
+   */
+  private final ConcurrentMap<Long, Set<Long>> filePages = new ConcurrentHashMap<Long, Set<Long>>();
+
+  private final OPartitionedLockManager<Long>       fileLockManager = new OPartitionedLockManager<Long>(true);
+  private final OLockManager<PageKey>               pageLockManager = new OPartitionedLockManager<PageKey>();
+  private final ConcurrentMap<PageKey, OCacheEntry> pinnedPages     = new ConcurrentHashMap<PageKey, OCacheEntry>();
+
+  /**
+   * @param readCacheMaxMemory   Maximum amount of direct memory which can allocated by disk cache in bytes.
+   * @param pageSize             Cache page size in bytes.
+   * @param checkMinSize         If this flat is set size of cache may be {@link #MIN_CACHE_SIZE} or bigger.
+   * @param percentOfPinnedPages Maximum percent of pinned pages which may be hold by this cache.
+   */
+  public OTinyLFUCache(final long readCacheMaxMemory, final int pageSize, final boolean checkMinSize,
+      final int percentOfPinnedPages) {
+    this(readCacheMaxMemory, pageSize, checkMinSize, percentOfPinnedPages, Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  /**
+   * @param readCacheMaxMemory   Maximum amount of direct memory which can allocated by disk cache in bytes.
+   * @param pageSize             Cache page size in bytes.
+   * @param checkMinSize         If this flat is set size of cache may be {@link #MIN_CACHE_SIZE} or bigger.
+   * @param percentOfPinnedPages Maximum percent of pinned pages which may be hold by this cache.
+   * @param concurrencyLevel     Expected amount of threads which access cache concurrently, amount of segments is calculated as
+   *                             closest power of two which is not less than this value.
+   */
+  public OTinyLFUCache(final long readCacheMaxMemory, final int pageSize, final boolean checkMinSize,
+      final int percentOfPinnedPages, final int concurrencyLevel) {
+    if (percentOfPinnedPages > MAX_PERCENT_OF_PINED_PAGES)
+      throw new IllegalArgumentException(
+          "Percent of pinned pages cannot be more than " + MAX_PERCENT_OF_PINED_PAGES + " but passed value is "
+              + percentOfPinnedPages);
+
+    this.percentOfPinnedPages = percentOfPinnedPages;
+    this.pageSize = pageSize;
+
+    int normalizedSize = normalizeMemory(readCacheMaxMemory, pageSize);
+    if (checkMinSize && normalizedSize < MIN_CACHE_SIZE)
+      normalizedSize = MIN_CACHE_SIZE;
+
+    int segmentsCount = 1;
+    while (segmentsCount < concurrencyLevel && segmentsCount < (1 << 16))
+      segmentsCount <<= 1;
+
+    while (segmentsCount > 1 && normalizedSize / segmentsCount < MIN_SEGMENT_SIZE)
+      segmentsCount >>= 1;
+
+    final MemoryData memoryData = new MemoryData(normalizedSize, 0);
+    memoryDataContainer.set(memoryData);
+
+    segments = new Segment[segmentsCount];
+    segmentsMask = segmentsCount - 1;
+
+    final int segmentSize = memoryData.segmentSize(segmentsCount);
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment(segmentSize);
+    }
+  }
+
+  @Override
+  public long addFile(String fileName, OWriteCache writeCache) throws IOException {
+    final long fileId = writeCache.addFile(fileName);
+    final Set<Long> oldPages = filePages.put(fileId, Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>()));
+    assert oldPages == null || oldPages.isEmpty();
+
+    return fileId;
+  }
+
+  @Override
+  public long addFile(String fileName, long fileId, OWriteCache writeCache) throws IOException {
+    fileId = OAbstractWriteCache.checkFileIdCompatibility(writeCache.getId(), fileId);
+
+    final long fid = writeCache.addFile(fileName, fileId);
+    final Set<Long> oldPages = filePages.put(fid, Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>()));
+    assert oldPages == null || oldPages.isEmpty();
+
+    return fid;
+  }
+
+  @Override
+  public OCacheEntry load(long fileId, final long pageIndex, final boolean checkPinnedPages, final OWriteCache writeCache,
+      final int pageCount, final boolean verifyChecksums) throws IOException {
+    if (pageCount < 1)
+      throw new IllegalArgumentException(
+          "Amount of pages to load from cache should be not less than 1 but passed value is " + pageCount);
+
+    final OSessionStoragePerformanceStatistic sessionStoragePerformanceStatistic = writeCache.getPerformanceStatisticManager()
+        .getSessionPerformanceStatistic();
+
+    if (sessionStoragePerformanceStatistic != null) {
+      sessionStoragePerformanceStatistic.startPageReadFromCacheTimer();
+    }
+
+    try {
+      fileId = OAbstractWriteCache.checkFileIdCompatibility(writeCache.getId(), fileId);
+
+      final OModifiableBoolean cacheHit = new OModifiableBoolean(false);
+      final OCacheEntry cacheEntry;
+
+      fileLockManager.acquireSharedLock(fileId);
+      try {
+        cacheEntry = doLoad(fileId, pageIndex, checkPinnedPages, false, writeCache, pageCount, cacheHit, verifyChecksums);
+      } finally {
+        fileLockManager.releaseSharedLock(fileId);
+      }
+
+      if (sessionStoragePerformanceStatistic != null && cacheEntry != null)
+        sessionStoragePerformanceStatistic.incrementPageAccessOnCacheLevel(cacheHit.getValue());
+
+      return cacheEntry;
+    } finally {
+      if (sessionStoragePerformanceStatistic != null) {
+        sessionStoragePerformanceStatistic.stopPageReadFromCacheTimer();
+      }
+    }
+  }
+
+  @Override
+  public void prefetch(long fileId, final long startPageIndex, final int pageCount, final OWriteCache writeCache,
+      final boolean verifyChecksums) throws IOException {
+    fileId = OAbstractWriteCache.checkFileIdCompatibility(writeCache.getId(), fileId);
+
+    fileLockManager.acquireSharedLock(fileId);
+    try {
+      //file is closed or deleted
+      if (!filePages.containsKey(fileId))
+        return;
+
+      final long endPageIndex = Math.min(startPageIndex + pageCount, writeCache.getFilledUpTo(fileId));
+      long pageIndex = startPageIndex;
+
+      while (pageIndex < endPageIndex) {
+        final PageKey startKey = new PageKey(fileId, pageIndex);
+        if (segment(startKey).contains(startKey)) {
+          pageIndex++;
+          continue;
+        }
+
+        //load whole range of absent pages by single read
+        long rangeEnd = pageIndex + 1;
+        while (rangeEnd < endPageIndex) {
+          final PageKey pageKey = new PageKey(fileId, rangeEnd);
+          if (segment(pageKey).contains(pageKey))
+            break;
+
+          rangeEnd++;
+        }
+
+        prefetchRange(fileId, pageIndex, (int) (rangeEnd - pageIndex), writeCache, verifyChecksums);
+        pageIndex = rangeEnd;
+      }
+    } finally {
+      fileLockManager.releaseSharedLock(fileId);
+    }
+  }
+
+  /**
+   * Loads range of pages which are absent in cache, prefetched pages are not counted as accessed by frequency sketch, so read
+   * ahead does not change priority of pages. Should be called under shared lock of the file.
+   */
+  private void prefetchRange(final long fileId, final long startPageIndex, final int pageCount, final OWriteCache writeCache,
+      final boolean verifyChecksums) throws IOException {
+    final PageKey[] pageKeys = new PageKey[pageCount];
+    for (int i = 0; i < pageKeys.length; i++) {
+      pageKeys[i] = new PageKey(fileId, startPageIndex + i);
+    }
+
+    final Lock[] pageLocks = pageLockManager.acquireExclusiveLocksInBatch(pageKeys);
+    try {
+      final OCachePointer[] dataPointers = writeCache
+          .load(fileId, startPageIndex, pageCount, false, new OModifiableBoolean(false), verifyChecksums);
+
+      for (OCachePointer dataPointer : dataPointers) {
+        final PageKey key = new PageKey(dataPointer.getFileId(), dataPointer.getPageIndex());
+        segment(key).addIfAbsent(key, dataPointer, false);
+      }
+    } finally {
+      for (Lock pageLock : pageLocks) {
+        pageLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Loads page into the cache, should be called under shared or exclusive lock of the file.
+   */
+  private OCacheEntry doLoad(final long fileId, final long pageIndex, final boolean checkPinnedPages, final boolean addNewPages,
+      final OWriteCache writeCache, final int pageCount, final OModifiableBoolean cacheHit, final boolean verifyChecksums)
+      throws IOException {
+    final PageKey pageKey = new PageKey(fileId, pageIndex);
+    final Segment segment = segment(pageKey);
+
+    //fast path, page is already in cache, so only segment lock is acquired
+    OCacheEntry cacheEntry = segment.acquireIfPresent(pageKey, checkPinnedPages);
+    if (cacheEntry != null) {
+      cacheHit.setValue(true);
+      return cacheEntry;
+    }
+
+    final PageKey[] pageKeys = new PageKey[pageCount];
+    pageKeys[0] = pageKey;
+    for (int i = 1; i < pageKeys.length; i++) {
+      pageKeys[i] = new PageKey(fileId, pageIndex + i);
+    }
+
+    //page locks prevent concurrent load of the same page from the disk
+    final Lock[] pageLocks = pageLockManager.acquireExclusiveLocksInBatch(pageKeys);
+    try {
+      //page could be pinned by other thread after the first check, so we check pinned pages unconditionally
+      cacheEntry = segment.acquireIfPresent(pageKey, true);
+      if (cacheEntry != null) {
+        cacheHit.setValue(true);
+        return cacheEntry;
+      }
+
+      final OCachePointer[] dataPointers = writeCache.load(fileId, pageIndex, pageCount, addNewPages, cacheHit, verifyChecksums);
+      if (dataPointers.length == 0)
+        return null;
+
+      cacheEntry = segment.addAndAcquire(pageKey, dataPointers[0]);
+
+      for (int i = 1; i < dataPointers.length; i++) {
+        final OCachePointer dataPointer = dataPointers[i];
+        final PageKey key = new PageKey(dataPointer.getFileId(), dataPointer.getPageIndex());
+
+        segment(key).addIfAbsent(key, dataPointer, true);
+      }
+    } finally {
+      for (Lock pageLock : pageLocks) {
+        pageLock.unlock();
+      }
+    }
+
+    return cacheEntry;
+  }
+
+  @Override
+  public void pinPage(final OCacheEntry cacheEntry) throws IOException {
+    MemoryData memoryData = memoryDataContainer.get();
+
+    if ((100 * (memoryData.pinnedPages + 1)) / memoryData.maxSize > percentOfPinnedPages) {
+      if (pinnedPagesWarningCounter.get() < MAX_AMOUNT_OF_WARNINGS_PINNED_PAGES) {
+
+        final long warnings = pinnedPagesWarningCounter.incrementAndGet();
+        if (warnings < MAX_AMOUNT_OF_WARNINGS_PINNED_PAGES) {
+          OLogManager.instance().warn(this, "Maximum amount of pinned pages is reached, given page " + cacheEntry
+              + " will not be marked as pinned which may lead to performance degradation. You may consider to increase the percent of pinned pages "
+              + "by changing the property '" + OGlobalConfiguration.DISK_CACHE_PINNED_PAGES.getKey() + "'");
+        }
+      }
+
+      return;
+    }
+
+    final PageKey pageKey = new PageKey(cacheEntry.getFileId(), cacheEntry.getPageIndex());
+    final Segment segment = segment(pageKey);
+
+    fileLockManager.acquireSharedLock(cacheEntry.getFileId());
+    try {
+      segment.lock.lock();
+      try {
+        if (segment.removeEntry(pageKey) == null)
+          return;
+
+        //page still belongs to the file, it is only moved out of eviction queues
+        addFilePage(pageKey.fileId, pageKey.pageIndex);
+        pinnedPages.put(pageKey, cacheEntry);
+      } finally {
+        segment.lock.unlock();
+      }
+    } finally {
+      fileLockManager.releaseSharedLock(cacheEntry.getFileId());
+    }
+
+    MemoryData newMemoryData = new MemoryData(memoryData.maxSize, memoryData.pinnedPages + 1);
+
+    while (!memoryDataContainer.compareAndSet(memoryData, newMemoryData)) {
+      memoryData = memoryDataContainer.get();
+      newMemoryData = new MemoryData(memoryData.maxSize, memoryData.pinnedPages + 1);
+    }
+
+    updateSegmentsSize();
+  }
+
+  /**
+   * Changes amount of memory which may be used by given cache. This method may consume many resources if amount of memory provided
+   * in parameter is much less than current amount of memory.
+   *
+   * @param readCacheMaxMemory New maximum size of cache in bytes.
+   *
+   * @throws IllegalStateException In case of new size of disk cache is too small to hold existing pinned pages.
+   */
+  public void changeMaximumAmountOfMemory(final long readCacheMaxMemory) throws IllegalStateException {
+    MemoryData memoryData;
+    MemoryData newMemoryData;
+
+    final int newMemorySize = normalizeMemory(readCacheMaxMemory, pageSize);
+    do {
+      memoryData = memoryDataContainer.get();
+
+      if (memoryData.maxSize == newMemorySize)
+        return;
+
+      if ((100 * memoryData.pinnedPages / newMemorySize) > percentOfPinnedPages) {
+        throw new IllegalStateException("Cannot decrease amount of memory used by disk cache "
+            + "because limit of pinned pages will be more than allowed limit " + percentOfPinnedPages);
+      }
+
+      newMemoryData = new MemoryData(newMemorySize, memoryData.pinnedPages);
+    } while (!memoryDataContainer.compareAndSet(memoryData, newMemoryData));
+
+    updateSegmentsSize();
+
+    OLogManager.instance()
+        .info(this, "Disk cache size was changed from " + memoryData.maxSize + " pages to " + newMemorySize + " pages");
+  }
+
+  private void updateSegmentsSize() {
+    final int segmentSize = memoryDataContainer.get().segmentSize(segments.length);
+
+    for (Segment segment : segments) {
+      segment.lock.lock();
+      try {
+        segment.resize(segmentSize);
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public OCacheEntry allocateNewPage(long fileId, OWriteCache writeCache, boolean verifyChecksums) throws IOException {
+    final OSessionStoragePerformanceStatistic sessionStoragePerformanceStatistic = writeCache.getPerformanceStatisticManager()
+        .getSessionPerformanceStatistic();
+
+    if (sessionStoragePerformanceStatistic != null) {
+      sessionStoragePerformanceStatistic.startPageReadFromCacheTimer();
+    }
+
+    try {
+      fileId = OAbstractWriteCache.checkFileIdCompatibility(writeCache.getId(), fileId);
+
+      final OModifiableBoolean cacheHit = new OModifiableBoolean(false);
+      final OCacheEntry cacheEntry;
+
+      fileLockManager.acquireExclusiveLock(fileId);
+      try {
+        final long filledUpTo = writeCache.getFilledUpTo(fileId);
+        assert filledUpTo >= 0;
+
+        cacheEntry = doLoad(fileId, filledUpTo, false, true, writeCache, 1, cacheHit, verifyChecksums);
+      } finally {
+        fileLockManager.releaseExclusiveLock(fileId);
+      }
+
+      assert cacheEntry != null;
+
+      if (sessionStoragePerformanceStatistic != null)
+        sessionStoragePerformanceStatistic.incrementPageAccessOnCacheLevel(cacheHit.getValue());
+
+      return cacheEntry;
+    } finally {
+      if (sessionStoragePerformanceStatistic != null) {
+        sessionStoragePerformanceStatistic.stopPageReadFromCacheTimer();
+      }
+    }
+  }
+
+  @Override
+  public void release(OCacheEntry cacheEntry, OWriteCache writeCache) {
+    Future<?> flushFuture = null;
+
+    final PageKey pageKey = new PageKey(cacheEntry.getFileId(), cacheEntry.getPageIndex());
+    final Segment segment = segment(pageKey);
+
+    fileLockManager.acquireSharedLock(cacheEntry.getFileId());
+    try {
+      segment.lock.lock();
+      try {
+        cacheEntry.decrementUsages();
+
+        assert cacheEntry.getUsagesCount() >= 0;
+        assert cacheEntry.getUsagesCount() > 0 || !cacheEntry.isLockAcquiredByCurrentThread();
+
+        if (cacheEntry.getUsagesCount() == 0 && cacheEntry.isDirty()) {
+          final OSessionStoragePerformanceStatistic sessionStoragePerformanceStatistic = writeCache.getPerformanceStatisticManager()
+              .getSessionPerformanceStatistic();
+
+          if (sessionStoragePerformanceStatistic != null) {
+            sessionStoragePerformanceStatistic.startPageWriteInCacheTimer();
+          }
+
+          try {
+            flushFuture = writeCache.store(cacheEntry.getFileId(), cacheEntry.getPageIndex(), cacheEntry.getCachePointer());
+          } finally {
+            if (sessionStoragePerformanceStatistic != null) {
+              sessionStoragePerformanceStatistic.stopPageWriteInCacheTimer();
+            }
+          }
+
+          cacheEntry.clearDirty();
+        }
+
+        //segment may exceed its limit if all pages are in use, evict them once they are released
+        if (cacheEntry.getUsagesCount() == 0)
+          segment.evict();
+      } finally {
+        segment.lock.unlock();
+      }
+    } finally {
+      fileLockManager.releaseSharedLock(cacheEntry.getFileId());
+    }
+
+    if (flushFuture != null) {
+      try {
+        flushFuture.get();
+      } catch (InterruptedException e) {
+        throw new OInterruptedException("File flush was interrupted");
+      } catch (Exception e) {
+        throw OException.wrapException(new OReadCacheException("File flush was abnormally terminated"), e);
+      }
+    }
+  }
+
+  @Override
+  public long getUsedMemory() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.size;
+    }
+
+    return size * pageSize;
+  }
+
+  @Override
+  public void clear() {
+    fileLockManager.lockAllExclusive();
+    try {
+      for (Segment segment : segments) {
+        segment.lock.lock();
+        try {
+          segment.clear();
+        } finally {
+          segment.lock.unlock();
+        }
+      }
+
+      for (Set<Long> pages : filePages.values())
+        pages.clear();
+
+      clearPinnedPages();
+    } finally {
+      fileLockManager.unlockAllExclusive();
+    }
+  }
+
+  private void clearPinnedPages() {
+    for (OCacheEntry pinnedEntry : pinnedPages.values()) {
+      if (pinnedEntry.getUsagesCount() == 0) {
+        final OCachePointer cachePointer = pinnedEntry.getCachePointer();
+        cachePointer.decrementReadersReferrer();
+        pinnedEntry.clearCachePointer();
+
+        decrementPinnedPages();
+      } else
+        throw new OStorageException("Page with index " + pinnedEntry.getPageIndex() + " for file with id " + pinnedEntry.getFileId()
+            + "cannot be freed because it is used.");
+    }
+
+    pinnedPages.clear();
+  }
+
+  private void decrementPinnedPages() {
+    MemoryData memoryData = memoryDataContainer.get();
+    MemoryData newMemoryData = new MemoryData(memoryData.maxSize, memoryData.pinnedPages - 1);
+
+    while (!memoryDataContainer.compareAndSet(memoryData, newMemoryData)) {
+      memoryData = memoryDataContainer.get();
+      newMemoryData = new MemoryData(memoryData.maxSize, memoryData.pinnedPages - 1);
+    }
+  }
+
+  @Override
+  public void truncateFile(long fileId, OWriteCache writeCache) throws IOException {
+    fileId = OAbstractWriteCache.checkFileIdCompatibility(writeCache.getId(), fileId);
+
+    fileLockManager.acquireExclusiveLock(fileId);
+    try {
+      writeCache.truncateFile(fileId);
+
+      clearFile(fileId);
+    } finally {
+      fileLockManager.releaseExclusiveLock(fileId);
+    }
+  }
+
+  /**
+   * Removes all pages of given file from the cache, should be called under exclusive lock of the file.
+   */
+  private void clearFile(long fileId) {
+    final Set<Long> pageEntries = filePages.get(fileId);
+    if (pageEntries == null || pageEntries.isEmpty()) {
+      return;
+    }
+
+    for (Long pageIndex : pageEntries) {
+      final PageKey pageKey = new PageKey(fileId, pageIndex);
+      final Segment segment = segment(pageKey);
+
+      OCacheEntry cacheEntry;
+
+      segment.lock.lock();
+      try {
+        cacheEntry = segment.get(pageKey);
+        if (cacheEntry != null) {
+          if (cacheEntry.getUsagesCount() > 0)
+            throw new OStorageException(
+                "Page with index " + pageIndex + " for file with id " + fileId + " cannot be freed because it is used.");
+
+          segment.removeEntry(pageKey);
+        }
+      } finally {
+        segment.lock.unlock();
+      }
+
+      if (cacheEntry == null) {
+        cacheEntry = pinnedPages.get(pageKey);
+
+        if (cacheEntry == null)
+          throw new OStorageException("Page with index " + pageIndex + " was  not found in cache for file with id " + fileId);
+
+        if (cacheEntry.getUsagesCount() > 0)
+          throw new OStorageException(
+              "Page with index " + pageIndex + " for file with id " + fileId + " cannot be freed because it is used.");
+
+        pinnedPages.remove(pageKey);
+        decrementPinnedPages();
+      }
+
+      final OCachePointer cachePointer = cacheEntry.getCachePointer();
+      if (cachePointer != null) {
+        cachePointer.decrementReadersReferrer();
+        cacheEntry.clearCachePointer();
+      }
+    }
+
+    pageEntries.clear();
+  }
+
+  @Override
+  public void closeFile(long fileId, boolean flush, OWriteCache writeCache) throws IOException {
+    fileId = OAbstractWriteCache.checkFileIdCompatibility(writeCache.getId(), fileId);
+
+    fileLockManager.acquireExclusiveLock(fileId);
+    try {
+      writeCache.close(fileId, flush);
+
+      clearFile(fileId);
+    } finally {
+      fileLockManager.releaseExclusiveLock(fileId);
+    }
+  }
+
+  @Override
+  public void deleteFile(long fileId, OWriteCache writeCache) throws IOException {
+    fileId = OAbstractWriteCache.checkFileIdCompatibility(writeCache.getId(), fileId);
+
+    fileLockManager.acquireExclusiveLock(fileId);
+    try {
+      clearFile(fileId);
+      filePages.remove(fileId);
+      writeCache.deleteFile(fileId);
+    } finally {
+      fileLockManager.releaseExclusiveLock(fileId);
+    }
+  }
+
+  @Override
+  public void deleteStorage(OWriteCache writeCache) throws IOException {
+    fileLockManager.lockAllExclusive();
+    try {
+      final long[] filesToClear = writeCache.delete();
+      for (long fileId : filesToClear)
+        clearFile(fileId);
+
+      final File rootDirectory = writeCache.getRootDirectory();
+      final File stateFile = new File(rootDirectory, CACHE_STATE_FILE);
+      if (stateFile.exists()) {
+        if (!stateFile.delete()) {
+          OLogManager.instance().error(this, "Cache state file %s cannot be deleted", stateFile);
+        }
+      }
+    } finally {
+      fileLockManager.unlockAllExclusive();
+    }
+  }
+
+  @Override
+  public void closeStorage(OWriteCache writeCache) throws IOException {
+    if (writeCache == null)
+      return;
+
+    fileLockManager.lockAllExclusive();
+    try {
+      final long[] filesToClear = writeCache.close();
+
+      for (long fileId : filesToClear)
+        clearFile(fileId);
+    } finally {
+      fileLockManager.unlockAllExclusive();
+    }
+  }
+
+  /**
+   * Loads pages which were stored in {@link #CACHE_STATE_FILE} during storage close back into the cache if flag {@link
+   * OGlobalConfiguration#STORAGE_KEEP_DISK_CACHE_STATE} is set to <code>true</code>.
+   * <p>
+   * Pages are loaded in order of their position in file, frequency statistic of pages is not restored.
+   *
+   * @param writeCache Write cache is used to load pages back into cache if needed.
+   */
+  @Override
+  public void loadCacheState(final OWriteCache writeCache) {
+    if (!OGlobalConfiguration.STORAGE_KEEP_DISK_CACHE_STATE.getValueAsBoolean()) {
+      return;
+    }
+
+    final File rootDirectory = writeCache.getRootDirectory();
+    final File stateFile = new File(rootDirectory, CACHE_STATE_FILE);
+    if (!stateFile.exists())
+      return;
+
+    final TreeSet<PageKey> pagesToLoad = new TreeSet<PageKey>();
+
+    try {
+      final DataInputStream dataInputStream = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(stateFile), 64 * 1024));
+      try {
+        final long maxCacheSize = dataInputStream.readLong();
+        final long currentMaxCacheSize = memoryDataContainer.get().maxSize;
+
+        if (maxCacheSize > currentMaxCacheSize) {
+          OLogManager.instance().info(this,
+              "Previous maximum cache size was %d current maximum cache size is %d. Cache state for storage %s will not be restored.",
+              maxCacheSize, currentMaxCacheSize, rootDirectory);
+          return;
+        }
+
+        int internalFileId = dataInputStream.readInt();
+        while (internalFileId >= 0) {
+          final long pageIndex = dataInputStream.readLong();
+          pagesToLoad.add(new PageKey(writeCache.externalFileId(internalFileId), pageIndex));
+
+          internalFileId = dataInputStream.readInt();
+        }
+      } finally {
+        dataInputStream.close();
+      }
+    } catch (IOException e) {
+      OLogManager.instance().warn(this, "Cannot restore state of cache for storage placed under " + rootDirectory, e);
+      return;
+    }
+
+    final OModifiableBoolean cacheHit = new OModifiableBoolean();
+    try {
+      for (PageKey pageKey : pagesToLoad) {
+        fileLockManager.acquireSharedLock(pageKey.fileId);
+        try {
+          if (!filePages.containsKey(pageKey.fileId))
+            continue;
+
+          final Segment segment = segment(pageKey);
+
+          segment.lock.lock();
+          try {
+            if (segment.get(pageKey) != null || pinnedPages.containsKey(pageKey))
+              continue;
+
+            final OCachePointer[] pointers = writeCache.load(pageKey.fileId, pageKey.pageIndex, 1, false, cacheHit, true);
+            if (pointers.length == 0)
+              continue;
+
+            segment.add(pageKey, pointers[0], true);
+          } finally {
+            segment.lock.unlock();
+          }
+        } finally {
+          fileLockManager.releaseSharedLock(pageKey.fileId);
+        }
+      }
+    } catch (Exception e) {
+      throw OException.wrapException(new OStorageException("Cannot restore state of cache for storage placed under " + rootDirectory),
+          e);
+    }
+  }
+
+  /**
+   * Stores identifiers of pages which are contained in cache inside of {@link #CACHE_STATE_FILE} file if flag {@link
+   * OGlobalConfiguration#STORAGE_KEEP_DISK_CACHE_STATE} is set to <code>true</code>.
+   * <p>
+   * Following format is used to store cache state:
+   * <p>
+   * <ol>
+   * <li>Max cache size, single item (long)</li>
+   * <li>File id or -1 if end of the list is reached (int)</li>
+   * <li>Page index (long), is absent if end of the list is reached</li>
+   * </ol>
+   *
+   * @param writeCache Write cache which manages files cache state of which is going to be stored.
+   */
+  @Override
+  public void storeCacheState(OWriteCache writeCache) {
+    if (!OGlobalConfiguration.STORAGE_KEEP_DISK_CACHE_STATE.getValueAsBoolean()) {
+      return;
+    }
+
+    if (writeCache == null)
+      return;
+
+    fileLockManager.lockAllExclusive();
+    try {
+      final File rootDirectory = writeCache.getRootDirectory();
+      final File stateFile = new File(rootDirectory, CACHE_STATE_FILE);
+
+      if (stateFile.exists()) {
+        if (!stateFile.delete()) {
+          OLogManager.instance().warn(this, "Cannot delete cache state file %s", stateFile);
+        }
+      }
+
+      final Set<Long> filesToStore = new HashSet<Long>(writeCache.files().values());
+
+      final RandomAccessFile cacheState = new RandomAccessFile(stateFile, "rw");
+      try {
+        final FileChannel channel = cacheState.getChannel();
+        final DataOutputStream dataOutputStream = new DataOutputStream(
+            new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+        try {
+          dataOutputStream.writeLong(memoryDataContainer.get().maxSize);
+
+          for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+              for (PageKey pageKey : segment.data.keySet()) {
+                if (filesToStore.contains(pageKey.fileId)) {
+                  dataOutputStream.writeInt(writeCache.internalFileId(pageKey.fileId));
+                  dataOutputStream.writeLong(pageKey.pageIndex);
+                }
+              }
+            } finally {
+              segment.lock.unlock();
+            }
+          }
+
+          dataOutputStream.writeInt(-1);
+        } finally {
+          dataOutputStream.close();
+        }
+      } finally {
+        cacheState.close();
+      }
+    } catch (Exception e) {
+      OLogManager.instance()
+          .error(this, "Cannot store state of cache for storage placed under %s (error: %s)", writeCache.getRootDirectory(), e);
+    } finally {
+      fileLockManager.unlockAllExclusive();
+    }
+  }
+
+  /**
+   * @return Amount of segments page table of this cache is split on.
+   */
+  public int getSegmentsCount() {
+    return segments.length;
+  }
+
+  int getMaxSize() {
+    return memoryDataContainer.get().maxSize;
+  }
+
+  boolean inPinnedPages(long fileId, long pageIndex) {
+    return pinnedPages.containsKey(new PageKey(fileId, pageIndex));
+  }
+
+  boolean inWindow(long fileId, long pageIndex) {
+    return inQueue(fileId, pageIndex, NodeList.WINDOW);
+  }
+
+  boolean inProbation(long fileId, long pageIndex) {
+    return inQueue(fileId, pageIndex, NodeList.PROBATION);
+  }
+
+  boolean inProtected(long fileId, long pageIndex) {
+    return inQueue(fileId, pageIndex, NodeList.PROTECTED);
+  }
+
+  private boolean inQueue(long fileId, long pageIndex, byte queue) {
+    final PageKey pageKey = new PageKey(fileId, pageIndex);
+    final Segment segment = segment(pageKey);
+
+    segment.lock.lock();
+    try {
+      final Node node = segment.data.get(pageKey);
+      return node != null && node.queue == queue;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  private Segment segment(PageKey pageKey) {
+    return segments[OPartitionedLockManager.shuffleHashCode(pageKey.hashCode()) & segmentsMask];
+  }
+
+  private void addFilePage(long fileId, long pageIndex) {
+    Set<Long> pages = filePages.get(fileId);
+    if (pages == null) {
+      pages = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+      final Set<Long> oldPages = filePages.putIfAbsent(fileId, pages);
+
+      if (oldPages != null)
+        pages = oldPages;
+    }
+
+    pages.add(pageIndex);
+  }
+
+  private void removeFilePage(long fileId, long pageIndex) {
+    final Set<Long> pages = filePages.get(fileId);
+    if (pages != null)
+      pages.remove(pageIndex);
+  }
+
+  private static int normalizeMemory(long maxSize, int pageSize) {
+    final long tmpMaxSize = maxSize / pageSize;
+    if (tmpMaxSize >= Integer.MAX_VALUE) {
+      return Integer.MAX_VALUE;
+    } else {
+      return (int) tmpMaxSize;
+    }
+  }
+
+  /**
+   * Part of the page table of the cache. All fields are guarded by {@link #lock}, including usage counters of cache entries which
+   * belong to this segment.
+   */
+  private final class Segment {
+    private final ReentrantLock          lock = new ReentrantLock();
+    private final HashMap<PageKey, Node> data = new HashMap<PageKey, Node>();
+    private final OFrequencySketch sketch;
+
+    private final NodeList window        = new NodeList();
+    private final NodeList probation     = new NodeList();
+    private final NodeList protectedList = new NodeList();
+
+    private int maxSize;
+    private int maxWindowSize;
+    private int maxProtectedSize;
+
+    /**
+     * Amount of pages in segment, may be read without lock.
+     */
+    private volatile int size;
+
+    private Segment(int maxSize) {
+      this.sketch = new OFrequencySketch(maxSize);
+      setLimits(maxSize);
+    }
+
+    private void setLimits(int maxSize) {
+      this.maxSize = maxSize;
+      this.maxWindowSize = Math.max(1, maxSize * WINDOW_PERCENT / 100);
+      this.maxProtectedSize = (maxSize - maxWindowSize) * PROTECTED_PERCENT / 100;
+    }
+
+    private void resize(int maxSize) {
+      setLimits(maxSize);
+      sketch.ensureCapacity(maxSize);
+
+      evict();
+    }
+
+    private OCacheEntry get(PageKey pageKey) {
+      final Node node = data.get(pageKey);
+      if (node == null)
+        return null;
+
+      return node.cacheEntry;
+    }
+
+    private boolean contains(PageKey pageKey) {
+      lock.lock();
+      try {
+        return data.containsKey(pageKey) || pinnedPages.containsKey(pageKey);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private OCacheEntry acquireIfPresent(PageKey pageKey, boolean checkPinnedPages) {
+      lock.lock();
+      try {
+        OCacheEntry cacheEntry = null;
+        if (checkPinnedPages)
+          cacheEntry = pinnedPages.get(pageKey);
+
+        if (cacheEntry == null) {
+          final Node node = data.get(pageKey);
+          if (node == null)
+            return null;
+
+          sketch.increment(pageKey.fileId, pageKey.pageIndex);
+          onAccess(node);
+
+          cacheEntry = node.cacheEntry;
+        }
+
+        cacheEntry.incrementUsages();
+        return cacheEntry;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private OCacheEntry addAndAcquire(PageKey pageKey, OCachePointer dataPointer) {
+      lock.lock();
+      try {
+        final OCacheEntry cacheEntry = add(pageKey, dataPointer, true);
+        cacheEntry.incrementUsages();
+
+        evict();
+        return cacheEntry;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void addIfAbsent(PageKey pageKey, OCachePointer dataPointer, boolean recordAccess) {
+      lock.lock();
+      try {
+        if (data.containsKey(pageKey) || pinnedPages.containsKey(pageKey)) {
+          dataPointer.decrementReadersReferrer();
+          return;
+        }
+
+        add(pageKey, dataPointer, recordAccess);
+        evict();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private OCacheEntry add(PageKey pageKey, OCachePointer dataPointer, boolean recordAccess) {
+      final OCacheEntry cacheEntry = new OCacheEntry(pageKey.fileId, pageKey.pageIndex, dataPointer, false);
+      final Node node = new Node(pageKey, cacheEntry);
+
+      data.put(pageKey, node);
+      size = data.size();
+      addFilePage(pageKey.fileId, pageKey.pageIndex);
+
+      if (recordAccess)
+        sketch.increment(pageKey.fileId, pageKey.pageIndex);
+
+      node.queue = NodeList.WINDOW;
+      window.addMRU(node);
+
+      while (window.size > maxWindowSize) {
+        final Node candidate = window.head;
+        window.remove(candidate);
+
+        candidate.queue = NodeList.PROBATION;
+        probation.addMRU(candidate);
+      }
+
+      return cacheEntry;
+    }
+
+    private void onAccess(Node node) {
+      if (node.queue == NodeList.WINDOW) {
+        window.moveToMRU(node);
+      } else if (node.queue == NodeList.PROBATION) {
+        probation.remove(node);
+
+        node.queue = NodeList.PROTECTED;
+        protectedList.addMRU(node);
+
+        while (protectedList.size > maxProtectedSize) {
+          final Node demoted = protectedList.head;
+          protectedList.remove(demoted);
+
+          demoted.queue = NodeList.PROBATION;
+          probation.addMRU(demoted);
+        }
+      } else {
+        protectedList.moveToMRU(node);
+      }
+    }
+
+    /**
+     * Removes pages from the segment till its size will be less than limit. Newly admitted pages from the tail of probation queue
+     * compete with the oldest pages from the head of this queue, page with the smallest frequency is evicted. Pages which are in use
+     * are skipped, so segment can temporary exceed its limit.
+     */
+    private void evict() {
+      while (data.size() > maxSize) {
+        Node victim = probation.firstUnused();
+        Node candidate = probation.lastUnused();
+
+        if (victim == null) {
+          victim = protectedList.firstUnused();
+          if (victim == null)
+            victim = window.firstUnused();
+
+          if (victim == null)
+            return;
+
+          candidate = null;
+        }
+
+        final Node evicted;
+        if (candidate == null || candidate == victim)
+          evicted = victim;
+        else if (sketch.frequency(candidate.key.fileId, candidate.key.pageIndex) > sketch
+            .frequency(victim.key.fileId, victim.key.pageIndex))
+          evicted = victim;
+        else
+          evicted = candidate;
+
+        assert evicted.cacheEntry.getUsagesCount() == 0;
+        assert !evicted.cacheEntry.isDirty();
+
+        removeNode(evicted);
+
+        final OCachePointer cachePointer = evicted.cacheEntry.getCachePointer();
+        if (cachePointer != null) {
+          cachePointer.decrementReadersReferrer();
+          evicted.cacheEntry.clearCachePointer();
+        }
+      }
+    }
+
+    private OCacheEntry removeEntry(PageKey pageKey) {
+      final Node node = data.get(pageKey);
+      if (node == null)
+        return null;
+
+      removeNode(node);
+      return node.cacheEntry;
+    }
+
+    private void removeNode(Node node) {
+      data.remove(node.key);
+      size = data.size();
+
+      if (node.queue == NodeList.WINDOW)
+        window.remove(node);
+      else if (node.queue == NodeList.PROBATION)
+        probation.remove(node);
+      else
+        protectedList.remove(node);
+
+      removeFilePage(node.key.fileId, node.key.pageIndex);
+    }
+
+    private void clear() {
+      for (Node node : data.values()) {
+        final OCacheEntry cacheEntry = node.cacheEntry;
+        if (cacheEntry.getUsagesCount() == 0) {
+          final OCachePointer cachePointer = cacheEntry.getCachePointer();
+          cachePointer.decrementReadersReferrer();
+          cacheEntry.clearCachePointer();
+        } else
+          throw new OStorageException("Page with index " + cacheEntry.getPageIndex() + " for file id " + cacheEntry.getFileId()
+              + " is used and cannot be removed");
+      }
+
+      data.clear();
+      size = 0;
+
+      window.clear();
+      probation.clear();
+      protectedList.clear();
+    }
+  }
+
+  /**
+   * Intrusive doubly linked list of cache pages, head of the list is the least recently used page.
+   */
+  private static final class NodeList {
+    private static final byte WINDOW    = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private Node head;
+    private Node tail;
+    private int  size;
+
+    private void addMRU(Node node) {
+      node.prev = tail;
+      node.next = null;
+
+      if (tail == null)
+        head = node;
+      else
+        tail.next = node;
+
+      tail = node;
+      size++;
+    }
+
+    private void remove(Node node) {
+      if (node.prev == null)
+        head = node.next;
+      else
+        node.prev.next = node.next;
+
+      if (node.next == null)
+        tail = node.prev;
+      else
+        node.next.prev = node.prev;
+
+      node.prev = null;
+      node.next = null;
+      size--;
+    }
+
+    private void moveToMRU(Node node) {
+      if (tail == node)
+        return;
+
+      remove(node);
+      addMRU(node);
+    }
+
+    private Node firstUnused() {
+      Node node = head;
+      while (node != null && node.cacheEntry.getUsagesCount() > 0)
+        node = node.next;
+
+      return node;
+    }
+
+    private Node lastUnused() {
+      Node node = tail;
+      while (node != null && node.cacheEntry.getUsagesCount() > 0)
+        node = node.prev;
+
+      return node;
+    }
+
+    private void clear() {
+      head = null;
+      tail = null;
+      size = 0;
+    }
+  }
+
+  private static final class Node {
+    private final PageKey     key;
+    private final OCacheEntry cacheEntry;
+
+    private byte queue;
+    private Node prev;
+    private Node next;
+
+    private Node(PageKey key, OCacheEntry cacheEntry) {
+      this.key = key;
+      this.cacheEntry = cacheEntry;
+    }
+  }
+
+  private static final class PageKey implements Comparable<PageKey> {
+    private final long fileId;
+    private final long pageIndex;
+
+    private PageKey(long fileId, long pageIndex) {
+      this.fileId = fileId;
+      this.pageIndex = pageIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+
+      PageKey pageKey = (PageKey) o;
+
+      if (fileId != pageKey.fileId)
+        return false;
+      if (pageIndex != pageKey.pageIndex)
+        return false;
+
+      return true;
+    }
+
+    @Override
+    public int compareTo(PageKey other) {
+      if (fileId > other.fileId)
+        return 1;
+      if (fileId < other.fileId)
+        return -1;
+
+      if (pageIndex > other.pageIndex)
+        return 1;
+      if (pageIndex < other.pageIndex)
+        return -1;
+
+      return 0;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = (int) (fileId ^ (fileId >>> 32));
+      result = 31 * result + (int) (pageIndex ^ (pageIndex >>> 32));
+      return result;
+    }
+  }
+
+  /**
+   * That is immutable class which contains information about current memory limits for the cache.
+   */
+  private static final class MemoryData {
+    /**
+     * Maximum size of memory consumed by cache in amount of pages.
+     */
+    private final int maxSize;
+
+    /**
+     * Memory consumed by pinned pages in amount of pages.
+     */
+    private final int pinnedPages;
+
+    private MemoryData(int maxSize, int pinnedPages) {
+      this.maxSize = maxSize;
+      this.pinnedPages = pinnedPages;
+    }
+
+    /**
+     * @return Maximum amount of pages which can be contained in single segment.
+     */
+    private int segmentSize(int segmentsCount) {
+      return Math.max(1, (maxSize - pinnedPages) / segmentsCount);
+    }
+  }
+}
@@ -50,6 +50,11 @@ import java.util.concurrent.locks.Lock;
  * @since 7/24/13
  */
 public class O2QCache implements OReadCache {
+  /**
+   * Name of the cache type in {@link OGlobalConfiguration#DISK_CACHE_READ_CACHE_TYPE}.
+   */
+  public static final String NAME = "2q";
+
   /**
    * Maximum percent of pinned pages which may be contained in this cache.
    */
@@ -103,7 +108,7 @@ public class O2QCache implements OReadCache {
   private final int percentOfPinnedPages;
 
   private final OReadersWriterSpinLock                 cacheLock       = new OReadersWriterSpinLock();
-  private final OLockManager                           fileLockManager = new OPartitionedLockManager(true);
+  private final OLockManager<Long>                     fileLockManager = new OPartitionedLockManager<Long>(true);
   private final OLockManager<PageKey>                  pageLockManager = new OPartitionedLockManager<PageKey>();
   private final ConcurrentMap<PinnedPage, OCacheEntry> pinnedPages     = new ConcurrentHashMap<PinnedPage, OCacheEntry>();
 
@@ -312,6 +317,55 @@ public class O2QCache implements OReadCache {
     }
   }
 
+  @Override
+  public void prefetch(long fileId, final long startPageIndex, final int pageCount, OWriteCache writeCache,
+      boolean verifyChecksums) throws IOException {
+    fileId = OAbstractWriteCache.checkFileIdCompatibility(writeCache.getId(), fileId);
+
+    boolean removeColdPages = false;
+
+    cacheLock.acquireReadLock();
+    try {
+      fileLockManager.acquireSharedLock(fileId);
+      try {
+        //file is closed or deleted
+        if (!filePages.containsKey(fileId))
+          return;
+
+        final long endPageIndex = Math.min(startPageIndex + pageCount, writeCache.getFilledUpTo(fileId));
+        long pageIndex = startPageIndex;
+
+        while (pageIndex < endPageIndex) {
+          if (isCached(fileId, pageIndex)) {
+            pageIndex++;
+            continue;
+          }
+
+          //load whole range of absent pages by single read
+          long rangeEnd = pageIndex + 1;
+          while (rangeEnd < endPageIndex && !isCached(fileId, rangeEnd))
+            rangeEnd++;
+
+          final UpdateCacheResult cacheResult = doLoad(fileId, pageIndex, false, false, writeCache, (int) (rangeEnd - pageIndex),
+              null, verifyChecksums);
+          if (cacheResult != null) {
+            removeColdPages |= cacheResult.removeColdPages;
+            release(cacheResult.cacheEntry, writeCache);
+          }
+
+          pageIndex = rangeEnd;
+        }
+      } finally {
+        fileLockManager.releaseSharedLock(fileId);
+      }
+    } finally {
+      cacheLock.releaseReadLock();
+    }
+
+    if (removeColdPages)
+      removeColdestPagesIfNeeded();
+  }
+
   private UpdateCacheResult doLoad(long fileId, long pageIndex, boolean checkPinnedPages, boolean addNewPages,
       OWriteCache writeCache, final int pageCount, final OSessionStoragePerformanceStatistic sessionStoragePerformanceStatistic,
       boolean verifyChecksums) throws IOException {
@@ -991,6 +1045,10 @@ public class O2QCache implements OReadCache {
     }
   }
 
+  private boolean isCached(long fileId, long pageIndex) {
+    return pinnedPages.containsKey(new PinnedPage(fileId, pageIndex)) || get(fileId, pageIndex, false) != null;
+  }
+
   private OCacheEntry get(long fileId, long pageIndex, boolean useOutQueue) {
     OCacheEntry cacheEntry = am.get(fileId, pageIndex);
 
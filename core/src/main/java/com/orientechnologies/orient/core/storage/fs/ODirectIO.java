@@ -0,0 +1,85 @@
+/*
+ *
+ *  *  Copyright 2017 OrientDB LTD (info(at)orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientdb.com
+ *
+ */
+
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+
+/**
+ * Opens files in direct I/O mode, so data written to the file bypasses page cache of OS.
+ * <p>
+ * Direct I/O is available only since Java 10 as {@code com.sun.nio.file.ExtendedOpenOption#DIRECT} option, so it is looked up by
+ * reflection. On older JVMs and on file systems which do not support direct I/O files can not be opened in this mode and
+ * {@link #openForWrite(File)} returns <code>null</code>. Code which uses NIO.2 API is placed in {@link ODirectIOJava7}, so this
+ * class may be loaded on Java 6 too.
+ * <p>
+ * Position, size and address of memory of all buffers which are written to the channel opened in direct I/O mode should be aligned
+ * by {@link #getBlockSize(File)}.
+ *
+ * @since 08.05.17
+ */
+final class ODirectIO {
+  private static final boolean useOldFileAPI;
+
+  static {
+    boolean oldAPI = false;
+
+    try {
+      Class.forName("java.nio.file.FileStore");
+    } catch (ClassNotFoundException e) {
+      oldAPI = true;
+    }
+
+    useOldFileAPI = oldAPI;
+  }
+
+  private ODirectIO() {
+  }
+
+  /**
+   * @return <code>true</code> if JVM supports direct I/O.
+   */
+  static boolean isSupported() {
+    return !useOldFileAPI && ODirectIOJava7.isSupported();
+  }
+
+  /**
+   * @return Size of block of file system which contains passed in file or <code>-1</code> if it can not be detected.
+   */
+  static int getBlockSize(File file) {
+    if (useOldFileAPI)
+      return -1;
+
+    return ODirectIOJava7.getBlockSize(file);
+  }
+
+  /**
+   * Opens existing file for writes in direct I/O mode.
+   *
+   * @return Opened channel or <code>null</code> if direct I/O is not supported by JVM or by file system.
+   */
+  static FileChannel openForWrite(File file) {
+    if (useOldFileAPI)
+      return null;
+
+    return ODirectIOJava7.openForWrite(file);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ *
+ *  *  Copyright 2017 OrientDB LTD (info(at)orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientdb.com
+ *
+ */
+
+package com.orientechnologies.orient.core.storage.fs;
+
+import com.orientechnologies.common.log.OLogManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Implementation of {@link ODirectIO} which uses NIO.2 API available since Java 7. Should be accessed only through
+ * {@link ODirectIO}, which checks presence of this API.
+ *
+ * @since 19.05.17
+ */
+final class ODirectIOJava7 {
+  private static final OpenOption DIRECT         = findDirectOption();
+  private static final Method     GET_BLOCK_SIZE = findGetBlockSize();
+
+  private ODirectIOJava7() {
+  }
+
+  static boolean isSupported() {
+    return DIRECT != null && GET_BLOCK_SIZE != null;
+  }
+
+  static int getBlockSize(File file) {
+    if (GET_BLOCK_SIZE == null)
+      return -1;
+
+    try {
+      final FileStore fileStore = Files.getFileStore(file.toPath());
+      final long blockSize = (Long) GET_BLOCK_SIZE.invoke(fileStore);
+
+      if (blockSize <= 0 || blockSize > Integer.MAX_VALUE)
+        return -1;
+
+      return (int) blockSize;
+    } catch (Exception e) {
+      OLogManager.instance().debug(ODirectIOJava7.class, "Can not detect size of block of file system for file " + file, e);
+      return -1;
+    }
+  }
+
+  static FileChannel openForWrite(File file) {
+    if (!isSupported())
+      return null;
+
+    try {
+      return FileChannel.open(file.toPath(), StandardOpenOption.WRITE, DIRECT);
+    } catch (IOException e) {
+      OLogManager.instance()
+          .warn(ODirectIOJava7.class, "File %s can not be opened in direct I/O mode, buffered I/O will be used", e, file);
+      return null;
+    } catch (UnsupportedOperationException e) {
+      OLogManager.instance()
+          .warn(ODirectIOJava7.class, "File %s can not be opened in direct I/O mode, buffered I/O will be used", e, file);
+      return null;
+    }
+  }
+
+  private static OpenOption findDirectOption() {
+    try {
+      final Class<?> optionClass = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+      for (Object option : optionClass.getEnumConstants()) {
+        if ("DIRECT".equals(((Enum<?>) option).name()))
+          return (OpenOption) option;
+      }
+    } catch (ClassNotFoundException e) {
+      //not supported
+    }
+
+    return null;
+  }
+
+  private static Method findGetBlockSize() {
+    try {
+      return FileStore.class.getMethod("getBlockSize");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+}
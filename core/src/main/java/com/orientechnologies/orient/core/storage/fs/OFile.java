@@ -114,4 +114,9 @@ public interface OFile {
   void read(long offset, ByteBuffer[] buffers, boolean throwOnEof) throws IOException;
 
   void write(long offset, ByteBuffer buffer) throws IOException;
+
+  /**
+   * Writes content of buffers one after another starting from passed in offset.
+   */
+  void write(long offset, ByteBuffer[] buffers) throws IOException;
 }
@@ -20,6 +20,7 @@
 package com.orientechnologies.orient.core.storage.fs;
 
 import com.orientechnologies.common.collection.closabledictionary.OClosableItem;
+import com.orientechnologies.common.directmemory.OByteBufferPool;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.common.io.OIOException;
@@ -30,33 +31,61 @@ import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class OFileClassic implements OFile, OClosableItem {
-  public final static  String        NAME             = "classic";
-  public static final  int           HEADER_SIZE      = 1024;
-  private static final int           VERSION_OFFSET   = 48;
-  private static final int           SIZE_OFFSET      = 52;
-  private static final int           CURRENT_VERSION  = 2;
-  private static final int           OPEN_RETRY_MAX   = 10;
-  private static final int           OPEN_DELAY_RETRY = 100;
-  private final        ReadWriteLock lock             = new ReentrantReadWriteLock();
-
-  private volatile File   osFile;
-  private final    String mode;
+  public final static  String        NAME               = "classic";
+  /**
+   * Size of header of files which are not written in direct I/O mode. Files created in direct I/O mode reserve header of size of
+   * block of file system if it is bigger than this value, so pages of such files are aligned by size of block too.
+   */
+  public static final  int           HEADER_SIZE        = 1024;
+  private static final int           VERSION_OFFSET     = 48;
+  private static final int           SIZE_OFFSET        = 52;
+  /**
+   * Offset of size of header, zero is stored in files which were created before header could be extended and have header of
+   * {@link #HEADER_SIZE} bytes.
+   */
+  private static final int           HEADER_SIZE_OFFSET = 60;
+  private static final int           CURRENT_VERSION    = 2;
+  private static final int           OPEN_RETRY_MAX     = 10;
+  private static final int           OPEN_DELAY_RETRY   = 100;
+  private final        ReadWriteLock lock               = new ReentrantReadWriteLock();
+
+  private volatile File    osFile;
+  private final    String  mode;
+  private final    boolean directIO;
 
   private RandomAccessFile accessFile;
   private FileChannel      channel;
+
+  /**
+   * Channel which is used to write pages in direct I/O mode, <code>null</code> if direct I/O is not used.
+   */
+  private FileChannel directChannel;
+  private int         directBlockSize;
   private volatile boolean dirty       = false;
   private volatile boolean headerDirty = false;
   private int version;
 
   private volatile long size;
+  private volatile int headerSize = HEADER_SIZE;
 
   public OFileClassic(String osFile, String mode) {
+    this(osFile, mode, false);
+  }
+
+  /**
+   * @param directIO Whether data written by {@link #write(long, ByteBuffer[])} should bypass page cache of OS. Direct I/O is used
+   *                 only if it is supported by JVM and by file system, otherwise file silently falls back to buffered I/O.
+   */
+  public OFileClassic(String osFile, String mode, boolean directIO) {
     this.mode = mode;
     this.osFile = new File(osFile);
+    this.directIO = directIO;
   }
 
   @Override
@@ -69,7 +98,7 @@ public class OFileClassic implements OFile, OClosableItem {
       assert this.size >= size;
 
       setSize(this.size);
-      channel.truncate(this.size + HEADER_SIZE);
+      channel.truncate(this.size + headerSize);
 
       return currentSize;
     } finally {
@@ -85,7 +114,7 @@ public class OFileClassic implements OFile, OClosableItem {
       try {
         acquireWriteLock();
         try {
-          channel.truncate(HEADER_SIZE + size);
+          channel.truncate(headerSize + size);
           this.size = size;
           setSize(this.size);
 
@@ -103,11 +132,31 @@ public class OFileClassic implements OFile, OClosableItem {
     }
   }
 
+  /**
+   * @return Channel of the opened file or <code>null</code> if file is closed. Channel may be replaced if file is reopened after
+   * IO error, so it should not be cached.
+   */
+  protected FileChannel getChannel() {
+    acquireReadLock();
+    try {
+      return channel;
+    } finally {
+      releaseReadLock();
+    }
+  }
+
   @Override
   public long getFileSize() {
     return size;
   }
 
+  /**
+   * @return Position of the first byte of data in the file.
+   */
+  protected int getHeaderSize() {
+    return headerSize;
+  }
+
   public void read(long offset, byte[] iData, int iLength, int iArrayOffset) throws IOException {
     int attempts = 0;
 
@@ -164,7 +213,7 @@ public class OFileClassic implements OFile, OClosableItem {
       try {
         acquireWriteLock();
         try {
-          offset += HEADER_SIZE;
+          offset += headerSize;
 
           channel.position(offset);
           readByteBuffers(buffers, channel, buffers.length * buffers[0].limit(), throwOnEof);
@@ -189,9 +238,14 @@ public class OFileClassic implements OFile, OClosableItem {
       try {
         acquireWriteLock();
         try {
-          offset += HEADER_SIZE;
+          offset += headerSize;
+
+          if (directChannel != null) {
+            buffer.position(0);
+            writeDirect(new ByteBuffer[] { buffer }, offset);
+          } else
+            writeByteBuffer(buffer, channel, offset);
 
-          writeByteBuffer(buffer, channel, offset);
           setDirty();
 
           break;
@@ -206,6 +260,59 @@ public class OFileClassic implements OFile, OClosableItem {
     }
   }
 
+  /**
+   * Writes content of several buffers to the file by single operation, content of buffers is written starting from position zero
+   * till the limit of each buffer.
+   * <p>
+   * If file is opened in direct I/O mode, content of buffers is written bypassing page cache, buffers which are not aligned by size
+   * of block of file system are copied to the aligned buffers of pool first.
+   * Pages of such file are always written in direct I/O mode, so position and size of written region should be aligned by size of
+   * block of file system.
+   */
+  @Override
+  public void write(long offset, ByteBuffer[] buffers) throws IOException {
+    int attempts = 0;
+
+    while (true) {
+      try {
+        acquireWriteLock();
+        try {
+          offset += headerSize;
+
+          for (ByteBuffer buffer : buffers) {
+            buffer.position(0);
+          }
+
+          if (directChannel != null)
+            writeDirect(buffers, offset);
+          else
+            writeByteBuffers(buffers, channel, offset);
+
+          setDirty();
+          break;
+        } finally {
+          releaseWriteLock();
+          attempts++;
+        }
+      } catch (IOException e) {
+        OLogManager.instance().error(this, "Error during data write for file '" + getName() + "' " + attempts + "-th attempt", e);
+        reopenFile(attempts, e);
+      }
+    }
+  }
+
+  /**
+   * @return <code>true</code> if pages are written to this file in direct I/O mode.
+   */
+  public boolean isDirectIO() {
+    acquireReadLock();
+    try {
+      return directChannel != null;
+    } finally {
+      releaseReadLock();
+    }
+  }
+
   public void write(long iOffset, byte[] iData, int iSize, int iArrayOffset) throws IOException {
     int attempts = 0;
 
@@ -228,7 +335,7 @@ public class OFileClassic implements OFile, OClosableItem {
 
   private void writeInternal(long iOffset, byte[] iData, int iSize, int iArrayOffset) throws IOException {
     if (iData != null) {
-      iOffset += HEADER_SIZE;
+      iOffset += headerSize;
       ByteBuffer byteBuffer = ByteBuffer.wrap(iData, iArrayOffset, iSize);
       writeByteBuffer(byteBuffer, channel, iOffset);
       setDirty();
@@ -335,7 +442,7 @@ public class OFileClassic implements OFile, OClosableItem {
       try {
         acquireWriteLock();
         try {
-          iOffset += HEADER_SIZE;
+          iOffset += headerSize;
 
           final ByteBuffer buffer = ByteBuffer.allocate(OBinaryProtocol.SIZE_INT);
           buffer.putInt(iValue);
@@ -363,7 +470,7 @@ public class OFileClassic implements OFile, OClosableItem {
       try {
         acquireWriteLock();
         try {
-          iOffset += HEADER_SIZE;
+          iOffset += headerSize;
           final ByteBuffer buffer = ByteBuffer.allocate(OBinaryProtocol.SIZE_LONG);
           buffer.putLong(iValue);
           writeBuffer(buffer, iOffset);
@@ -389,7 +496,7 @@ public class OFileClassic implements OFile, OClosableItem {
       try {
         acquireWriteLock();
         try {
-          iOffset += HEADER_SIZE;
+          iOffset += headerSize;
           final ByteBuffer buffer = ByteBuffer.allocate(OBinaryProtocol.SIZE_SHORT);
           buffer.putShort(iValue);
           writeBuffer(buffer, iOffset);
@@ -414,7 +521,7 @@ public class OFileClassic implements OFile, OClosableItem {
       try {
         acquireWriteLock();
         try {
-          iOffset += HEADER_SIZE;
+          iOffset += headerSize;
           final ByteBuffer buffer = ByteBuffer.allocate(OBinaryProtocol.SIZE_BYTE);
           buffer.put(iValue);
           writeBuffer(buffer, iOffset);
@@ -516,7 +623,7 @@ public class OFileClassic implements OFile, OClosableItem {
             "You cannot access outside the file size (" + size + " bytes). You have requested portion " + iOffset + "-" + (iOffset
                 + iLength) + " bytes. File: " + toString());
 
-      return iOffset + HEADER_SIZE;
+      return iOffset + headerSize;
     } finally {
       releaseReadLock();
     }
@@ -598,6 +705,8 @@ public class OFileClassic implements OFile, OClosableItem {
       try {
         acquireWriteLock();
         try {
+          closeDirectChannel();
+
           if (accessFile != null) {
             accessFile.close();
             accessFile = null;
@@ -685,9 +794,16 @@ public class OFileClassic implements OFile, OClosableItem {
       channel = accessFile.getChannel();
 
       if (channel.size() == 0) {
-        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        headerSize = directIO && !mode.equals("r") ? directHeaderSize() : HEADER_SIZE;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(headerSize);
+        buffer.putInt(HEADER_SIZE_OFFSET, headerSize);
         writeByteBuffer(buffer, channel, 0);
-      }
+      } else
+        headerSize = readHeaderSize();
+
+      if (directIO)
+        openDirectChannel();
     } finally {
       releaseWriteLock();
     }
@@ -696,7 +812,7 @@ public class OFileClassic implements OFile, OClosableItem {
   private void init() throws IOException {
     size = getSize();
     if (size == 0)
-      size = channel.size() - HEADER_SIZE;
+      size = channel.size() - headerSize;
 
     assert size >= 0;
 
@@ -847,6 +963,13 @@ public class OFileClassic implements OFile, OClosableItem {
 
     acquireWriteLock();
     try {
+      try {
+        closeDirectChannel();
+      } catch (IOException ioe) {
+        OLogManager.instance().error(this,
+            "Error during direct I/O channel close for file '" + osFile.getAbsolutePath() + "', during IO exception handling", ioe);
+      }
+
       try {
         channel.close();
       } catch (IOException ioe) {
@@ -928,5 +1051,162 @@ public class OFileClassic implements OFile, OClosableItem {
       read += r;
     }
   }
-}
 
+  /**
+   * @return Size of header of new file which aligns pages of the file by size of block of file system, if block size can not be
+   * detected {@link #HEADER_SIZE} is returned.
+   */
+  private int directHeaderSize() {
+    final int blockSize = ODirectIO.getBlockSize(osFile);
+    if (blockSize <= HEADER_SIZE)
+      return HEADER_SIZE;
+
+    return (HEADER_SIZE + blockSize - 1) / blockSize * blockSize;
+  }
+
+  private int readHeaderSize() throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(OBinaryProtocol.SIZE_INT);
+    readByteBuffer(buffer, channel, HEADER_SIZE_OFFSET, true);
+
+    final int storedSize = buffer.getInt(0);
+    if (storedSize == 0)
+      return HEADER_SIZE;
+
+    return storedSize;
+  }
+
+  /**
+   * Opens channel which is used to write pages in direct I/O mode. Pages of file are written only by single channel, so if pages
+   * can not be aligned by size of block of file system (the file header is included in this check) direct I/O is not used for this
+   * file at all. Header of files created in direct I/O mode is aligned by block size, files which were created in buffered mode
+   * on file systems with blocks bigger than {@link #HEADER_SIZE} are always written by buffered I/O.
+   */
+  private void openDirectChannel() throws IOException {
+    if (directChannel != null || mode.equals("r"))
+      return;
+
+    //direct I/O requires buffers aligned by block size, buffers of pool are aligned only by BUFFER_ALIGNMENT
+    final int blockSize = ODirectIO.getBlockSize(osFile);
+    if (blockSize <= 0 || headerSize % blockSize != 0 || OByteBufferPool.BUFFER_ALIGNMENT % blockSize != 0
+        || OByteBufferPool.instance().getBufferSize() % blockSize != 0) {
+      OLogManager.instance()
+          .debug(this, "Pages of file %s can not be aligned by size of block of file system, buffered I/O will be used", osFile);
+      return;
+    }
+
+    directChannel = ODirectIO.openForWrite(osFile);
+    directBlockSize = blockSize;
+  }
+
+  private void closeDirectChannel() throws IOException {
+    if (directChannel != null) {
+      final FileChannel channel = directChannel;
+      directChannel = null;
+
+      channel.close();
+    }
+  }
+
+  private void writeDirect(ByteBuffer[] buffers, long position) throws IOException {
+    long size = 0;
+    for (ByteBuffer buffer : buffers) {
+      size += buffer.limit();
+    }
+
+    if (position % directBlockSize != 0 || size % directBlockSize != 0)
+      throw new IllegalArgumentException(
+          "Region [" + position + ", " + (position + size) + ") of file '" + getName() + "' is not aligned by size of block "
+              + directBlockSize + " and can not be written in direct I/O mode");
+
+    //pages flushed by write cache are already placed in aligned buffers of pool
+    if (areAligned(buffers)) {
+      writeByteBuffers(buffers, directChannel, position);
+      return;
+    }
+
+    final OByteBufferPool bufferPool = OByteBufferPool.instance();
+    final int stageSize = bufferPool.getBufferSize();
+    final ByteBuffer[] stage = new ByteBuffer[(int) ((size + stageSize - 1) / stageSize)];
+
+    try {
+      long stageStart = 0;
+      for (int i = 0; i < stage.length; i++) {
+        final ByteBuffer buffer = bufferPool.acquireDirect(false);
+        stage[i] = buffer;
+
+        if (!isAligned(buffer))
+          throw new IllegalStateException(
+              "Buffer of pool is not aligned by size of block " + directBlockSize + " and can not be used for direct I/O");
+
+        final long stageEnd = Math.min(size, stageStart + stageSize);
+        for (ByteBuffer part : range(buffers, stageStart, stageEnd)) {
+          buffer.put(part);
+        }
+
+        buffer.flip();
+        stageStart = stageEnd;
+      }
+
+      writeByteBuffers(stage, directChannel, position);
+    } finally {
+      for (ByteBuffer buffer : stage) {
+        if (buffer != null) {
+          buffer.clear();
+          bufferPool.release(buffer);
+        }
+      }
+    }
+  }
+
+  private boolean isAligned(ByteBuffer buffer) {
+    return OByteBufferPool.alignmentOffset(buffer, directBlockSize) == 0;
+  }
+
+  private boolean areAligned(ByteBuffer[] buffers) {
+    for (ByteBuffer buffer : buffers) {
+      if (!buffer.isDirect() || buffer.position() != 0 || buffer.limit() % directBlockSize != 0 || !isAligned(buffer))
+        return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * @return Views of parts of passed in buffers which cover region between <code>from</code> and <code>to</code> positions, as
+   * if all buffers were concatenated.
+   */
+  private static ByteBuffer[] range(ByteBuffer[] buffers, long from, long to) {
+    final List<ByteBuffer> result = new ArrayList<ByteBuffer>();
+
+    long bufferStart = 0;
+    for (ByteBuffer buffer : buffers) {
+      final long bufferEnd = bufferStart + buffer.limit();
+
+      if (bufferEnd > from && bufferStart < to) {
+        final ByteBuffer part = buffer.duplicate();
+        part.limit((int) (Math.min(to, bufferEnd) - bufferStart));
+        part.position((int) (Math.max(from, bufferStart) - bufferStart));
+
+        result.add(part);
+      }
+
+      bufferStart = bufferEnd;
+    }
+
+    return result.toArray(new ByteBuffer[result.size()]);
+  }
+
+  private static void writeByteBuffers(ByteBuffer[] buffers, FileChannel channel, long position) throws IOException {
+    long bytesToWrite = 0;
+    for (ByteBuffer buffer : buffers) {
+      bytesToWrite += buffer.remaining();
+    }
+
+    channel.position(position);
+
+    long written = 0;
+    while (written < bytesToWrite) {
+      written += channel.write(buffers);
+    }
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ *
+ *  *  Copyright 2017 OrientDB LTD (info(at)orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import com.orientechnologies.common.directmemory.OByteBufferPool;
+import com.orientechnologies.common.log.OLogManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * File which reads pages from memory mapped regions instead of issuing system call for every page read, so pages which are already
+ * present in OS page cache are served by a single memory copy.
+ * <p>
+ * Content of file is mapped lazily by regions of fixed size, regions are mapped in read only mode. All writes are performed by the
+ * same system calls as in {@link OFileClassic}, so order in which write cache writes and fsyncs pages (and as result guarantees
+ * provided by WAL) is not changed. Writes done through the file channel are visible through the mapped regions because both use
+ * the same OS page cache.
+ * <p>
+ * Mapped regions are unmapped before the file is truncated, closed or deleted, so memory which does not belong to the file any
+ * more is never accessed. Reads which can not be served from mapped regions (if the region can not be mapped, for example, because
+ * of lack of address space) fall back to the system calls.
+ *
+ * @since 05.05.17
+ */
+public class OFileMMap extends OFileClassic {
+  public static final String NAME = "mmap";
+
+  private final int regionSize;
+
+  /**
+   * Guards mapped regions, shared lock is held during the copy of data from the mapped region, exclusive lock is held during
+   * unmap of regions.
+   */
+  private final ReadWriteLock regionsLock = new ReentrantReadWriteLock();
+
+  private MappedByteBuffer[] regions = new MappedByteBuffer[0];
+
+  private volatile boolean mapFailed;
+
+  /**
+   * @param osFile     Path to the file.
+   * @param mode       Mode in which file is opened.
+   * @param regionSize Size of the mapped region in bytes, should be a multiple of size of page, so pages never cross region
+   *                   boundaries.
+   */
+  public OFileMMap(String osFile, String mode, int regionSize) {
+    super(osFile, mode);
+
+    if (regionSize <= 0)
+      throw new IllegalArgumentException("Size of mapped region should be positive but was " + regionSize);
+
+    this.regionSize = regionSize;
+  }
+
+  @Override
+  public void read(long offset, ByteBuffer buffer, boolean throwOnEof) throws IOException {
+    if (!readMapped(offset, buffer))
+      super.read(offset, buffer, throwOnEof);
+  }
+
+  @Override
+  public void read(long offset, ByteBuffer[] buffers, boolean throwOnEof) throws IOException {
+    long bufferOffset = offset;
+
+    int mapped = 0;
+    for (ByteBuffer buffer : buffers) {
+      buffer.position(0);
+
+      if (!readMapped(bufferOffset, buffer))
+        break;
+
+      bufferOffset += buffer.limit();
+      mapped++;
+    }
+
+    if (mapped == buffers.length)
+      return;
+
+    final ByteBuffer[] rest = new ByteBuffer[buffers.length - mapped];
+    System.arraycopy(buffers, mapped, rest, 0, rest.length);
+
+    super.read(bufferOffset, rest, throwOnEof);
+  }
+
+  @Override
+  public void shrink(long size) throws IOException {
+    unmapRegions();
+    super.shrink(size);
+  }
+
+  @Override
+  public void close() {
+    unmapRegions();
+    super.close();
+  }
+
+  @Override
+  public void delete() throws IOException {
+    unmapRegions();
+    super.delete();
+  }
+
+  @Override
+  public boolean renameTo(File newFile) throws IOException {
+    unmapRegions();
+    return super.renameTo(newFile);
+  }
+
+  /**
+   * Copies data from the mapped region into the buffer.
+   *
+   * @return <code>true</code> if data were copied and <code>false</code> if data should be read by system call.
+   */
+  private boolean readMapped(long offset, ByteBuffer buffer) throws IOException {
+    final int length = buffer.limit();
+    if (mapFailed || offset < 0 || offset + length > getFileSize())
+      return false;
+
+    final long position = offset + getHeaderSize();
+    final int regionIndex = (int) (position / regionSize);
+    final int regionOffset = (int) (position - (long) regionIndex * regionSize);
+
+    //data cross boundary of the region
+    if (regionOffset + length > regionSize)
+      return false;
+
+    regionsLock.readLock().lock();
+    try {
+      ByteBuffer region = region(regionIndex);
+
+      if (region == null || region.capacity() < regionOffset + length) {
+        regionsLock.readLock().unlock();
+        try {
+          region = mapRegion(regionIndex, regionOffset + length);
+        } finally {
+          regionsLock.readLock().lock();
+        }
+
+        //region could be unmapped by concurrent truncation of file
+        if (region == null || region(regionIndex) != region)
+          return false;
+      }
+
+      final ByteBuffer source = region.duplicate();
+      source.position(regionOffset);
+      source.limit(regionOffset + length);
+
+      buffer.position(0);
+      buffer.put(source);
+
+      return true;
+    } finally {
+      regionsLock.readLock().unlock();
+    }
+  }
+
+  private ByteBuffer region(int regionIndex) {
+    final MappedByteBuffer[] regions = this.regions;
+    if (regionIndex < regions.length)
+      return regions[regionIndex];
+
+    return null;
+  }
+
+  /**
+   * Maps region of file, part of region which is located after the end of file is not mapped, so region is remapped once file
+   * grows.
+   *
+   * @param requiredSize Minimum size of mapped region which is needed to serve the read.
+   *
+   * @return Mapped region or <code>null</code> if region can not be mapped.
+   */
+  private ByteBuffer mapRegion(int regionIndex, int requiredSize) throws IOException {
+    regionsLock.writeLock().lock();
+    try {
+      ByteBuffer region = region(regionIndex);
+      if (region != null && region.capacity() >= requiredSize)
+        return region;
+
+      final FileChannel channel = getChannel();
+      if (channel == null)
+        return null;
+
+      final long regionPosition = (long) regionIndex * regionSize;
+      final long mapSize = Math.min(regionSize, channel.size() - regionPosition);
+      if (mapSize < requiredSize)
+        return null;
+
+      final MappedByteBuffer mappedRegion;
+      try {
+        mappedRegion = channel.map(FileChannel.MapMode.READ_ONLY, regionPosition, mapSize);
+      } catch (IOException e) {
+        mapFailed = true;
+        OLogManager.instance().warn(this, "Cannot map region of file %s, file will be read by system calls", e, getName());
+        return null;
+      }
+
+      if (regionIndex >= regions.length) {
+        final MappedByteBuffer[] newRegions = new MappedByteBuffer[regionIndex + 1];
+        System.arraycopy(regions, 0, newRegions, 0, regions.length);
+        regions = newRegions;
+      } else if (regions[regionIndex] != null) {
+        unmap(regions[regionIndex]);
+      }
+
+      regions[regionIndex] = mappedRegion;
+      return mappedRegion;
+    } finally {
+      regionsLock.writeLock().unlock();
+    }
+  }
+
+  private void unmapRegions() {
+    regionsLock.writeLock().lock();
+    try {
+      for (MappedByteBuffer region : regions) {
+        if (region != null)
+          unmap(region);
+      }
+
+      regions = new MappedByteBuffer[0];
+      mapFailed = false;
+    } finally {
+      regionsLock.writeLock().unlock();
+    }
+  }
+
+  private static void unmap(MappedByteBuffer region) {
+    OByteBufferPool.cleanBuffer(region);
+  }
+}
@@ -75,6 +75,7 @@ import com.orientechnologies.orient.core.serialization.serializer.binary.impl.in
 import com.orientechnologies.orient.core.storage.*;
 import com.orientechnologies.orient.core.storage.cache.*;
 import com.orientechnologies.orient.core.storage.cache.local.OBackgroundExceptionListener;
+import com.orientechnologies.orient.core.storage.cache.local.OReadAheadEngine;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.*;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.atomicoperations.OAtomicOperation;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.atomicoperations.OAtomicOperationsManager;
@@ -129,8 +130,9 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
   protected volatile OWriteAheadLog          writeAheadLog;
   private            OStorageRecoverListener recoverListener;
 
-  protected volatile OReadCache  readCache;
-  protected volatile OWriteCache writeCache;
+  protected volatile OReadCache       readCache;
+  protected volatile OWriteCache      writeCache;
+  protected volatile OReadAheadEngine readAheadEngine;
 
   private volatile ORecordConflictStrategy recordConflictStrategy = Orient.instance().getRecordConflictStrategy()
       .getDefaultImplementation();
@@ -838,6 +840,13 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     return writeCache;
   }
 
+  /**
+   * @return Engine which loads pages ahead of sequential scans or <code>null</code> if read ahead is disabled.
+   */
+  public OReadAheadEngine getReadAheadEngine() {
+    return readAheadEngine;
+  }
+
   public long count(final int iClusterId) {
     try {
       return count(iClusterId, false);
@@ -1625,6 +1634,7 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
 
       final List<ORecordOperation> result = new ArrayList<ORecordOperation>();
       final List<Lock[]> indexKeyLockList = new ArrayList<Lock[]>(indexesToCommit.size());
+      OAtomicOperation committedOperation = null;
       stateLock.acquireReadLock();
       try {
         try {
@@ -1653,9 +1663,13 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
 
               final OCluster cluster = getClusterById(clusterId);
 
-              final OPaginatedCluster.RECORD_STATUS recordStatus = rid.getClusterPosition() > -1 ?
-                  ((OPaginatedCluster) cluster).getRecordStatus(rid.getClusterPosition()) :
-                  OPaginatedCluster.RECORD_STATUS.NOT_EXISTENT;
+              final OPaginatedCluster.RECORD_STATUS recordStatus;
+              if (rid.getClusterPosition() < 0)
+                recordStatus = OPaginatedCluster.RECORD_STATUS.NOT_EXISTENT;
+              else if (cluster instanceof OAppendOnlyCluster)
+                recordStatus = ((OAppendOnlyCluster) cluster).getRecordStatus(rid.getClusterPosition());
+              else
+                recordStatus = ((OPaginatedCluster) cluster).getRecordStatus(rid.getClusterPosition());
 
               OPhysicalPosition ppos = new OPhysicalPosition(rid.getClusterPosition());
 
@@ -1695,7 +1709,7 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
 
             commitIndexes(indexesToCommit);
 
-            endStorageTx();
+            committedOperation = endStorageTx();
 
             OTransactionAbstract.updateCacheFromEntries(clientTx, entries, true);
 
@@ -1716,6 +1730,16 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
         stateLock.releaseReadLock();
       }
 
+      //transaction is already applied and its locks are released, so failure of the flush is not a reason to roll it back
+      if (committedOperation != null) {
+        try {
+          atomicOperationsManager.waitTillCommitted(committedOperation);
+        } catch (RuntimeException e) {
+          throw OException.wrapException(new OStorageException(
+              "Transaction " + clientTx.getId() + " was committed but its changes may be lost because WAL was not flushed"), e);
+        }
+      }
+
       if (OLogManager.instance().isDebugEnabled())
         OLogManager.instance().debug(this, "Committed transaction %d on database '%s' (result=%s thread=%d)", clientTx.getId(),
             databaseRecord.getName(), result, Thread.currentThread().getId());
@@ -1914,7 +1938,10 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
       return indexDefinition.getTypes().length;
   }
 
-  private OBinarySerializer determineKeySerializer(OIndexDefinition indexDefinition) {
+  /**
+   * @return Serializer which is used by index engines to serialize keys of index with given definition.
+   */
+  public OBinarySerializer determineKeySerializer(OIndexDefinition indexDefinition) {
     final OBinarySerializer keySerializer;
     if (indexDefinition != null) {
       if (indexDefinition instanceof ORuntimeKeyIndexDefinition) {
@@ -2123,6 +2150,42 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     return engine.get(key);
   }
 
+  /**
+   * Looks up values of several keys at once.
+   *
+   * @see OIndexEngine#getAll(Collection)
+   */
+  public Map<Object, Object> getIndexValues(int indexId, Collection<?> keys) throws OInvalidIndexEngineIdException {
+    try {
+      if (transaction.get() != null)
+        return doGetIndexValues(indexId, keys);
+
+      checkOpeness();
+
+      stateLock.acquireReadLock();
+      try {
+        checkOpeness();
+        return doGetIndexValues(indexId, keys);
+      } finally {
+        stateLock.releaseReadLock();
+      }
+    } catch (RuntimeException e) {
+      throw logAndPrepareForRethrow(e);
+    } catch (Error e) {
+      throw logAndPrepareForRethrow(e);
+    } catch (Throwable t) {
+      throw logAndPrepareForRethrow(t);
+    }
+  }
+
+  private Map<Object, Object> doGetIndexValues(int indexId, Collection<?> keys) throws OInvalidIndexEngineIdException {
+    checkIndexId(indexId);
+
+    final OIndexEngine engine = indexEngines.get(indexId);
+
+    return engine.getAll(keys);
+  }
+
   public OIndexEngine getIndexEngine(int indexId) throws OInvalidIndexEngineIdException {
     try {
       checkIndexId(indexId);
@@ -2301,6 +2364,58 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     }
   }
 
+  /**
+   * Loads entries sorted by key into the empty index with the given index id. Only indexes based on SBTree support bulk load.
+   *
+   * @param indexId the index id of the index to load entries into.
+   * @param entries entries sorted by key in ascending order, keys have to be unique and not null.
+   *
+   * @return amount of loaded entries.
+   *
+   * @see OSBTreeIndexEngine#bulkLoad(Iterator)
+   */
+  public long bulkLoadIndex(int indexId, Iterator<Map.Entry<Object, Object>> entries) throws OInvalidIndexEngineIdException {
+    try {
+      if (transaction.get() != null)
+        return doBulkLoadIndex(indexId, entries);
+
+      checkOpeness();
+
+      stateLock.acquireReadLock();
+      try {
+        checkOpeness();
+
+        checkLowDiskSpaceFullCheckpointRequestsAndBackgroundDataFlushExceptions();
+
+        return doBulkLoadIndex(indexId, entries);
+      } finally {
+        stateLock.releaseReadLock();
+      }
+    } catch (RuntimeException e) {
+      throw logAndPrepareForRethrow(e);
+    } catch (Error e) {
+      throw logAndPrepareForRethrow(e);
+    } catch (Throwable t) {
+      throw logAndPrepareForRethrow(t);
+    }
+  }
+
+  private long doBulkLoadIndex(int indexId, Iterator<Map.Entry<Object, Object>> entries) throws OInvalidIndexEngineIdException {
+    try {
+      checkIndexId(indexId);
+
+      final OIndexEngine engine = indexEngines.get(indexId);
+      if (!(engine instanceof OSBTreeIndexEngine))
+        throw new OStorageException("Index engine " + engine.getName() + " does not support bulk load");
+
+      makeStorageDirty();
+
+      return ((OSBTreeIndexEngine) engine).bulkLoad(entries);
+    } catch (IOException e) {
+      throw OException.wrapException(new OStorageException("Error during bulk load of index"), e);
+    }
+  }
+
   /**
    * Puts the given value under the given key into this storage for the index with the given index id. Validates the operation using
    * the provided validator.
@@ -3659,10 +3774,11 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     }
   }
 
-  private void endStorageTx() throws IOException {
-    atomicOperationsManager.endAtomicOperation(false, null, (String) null);
+  private OAtomicOperation endStorageTx() throws IOException {
+    final OAtomicOperation operation = atomicOperationsManager.endAtomicOperationWithoutFlushWait(false, null, null);
 
     assert atomicOperationsManager.getCurrentOperation() == null;
+    return operation;
   }
 
   private void startStorageTx(OTransaction clientTx) throws IOException {
@@ -4123,7 +4239,7 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     if (clusterName != null) {
       clusterName = clusterName.toLowerCase(configuration.getLocaleInstance());
 
-      cluster = OPaginatedClusterFactory.INSTANCE.createCluster(clusterName, configuration.version, this);
+      cluster = OPaginatedClusterFactory.INSTANCE.createCluster(clusterName, configuration.version, this, parameters);
       cluster.configure(this, clusterPos, clusterName, parameters);
     } else {
       cluster = null;
@@ -4178,6 +4294,11 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
 
       status = STATUS.CLOSING;
 
+      if (readAheadEngine != null) {
+        readAheadEngine.close();
+        readAheadEngine = null;
+      }
+
       readCache.storeCacheState(writeCache);
 
       if (!onDelete)
@@ -4594,6 +4715,11 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
 
     long lastReportTime = 0;
 
+    final int restoreThreads = OGlobalConfiguration.WAL_RESTORE_THREADS.getValueAsInteger();
+    OWALRedoExecutor redoExecutor = null;
+    if (restoreThreads > 1)
+      redoExecutor = new OWALRedoExecutor(name, readCache, writeCache, restoreThreads);
+
     try {
       while (lsn != null) {
         logSequenceNumber = lsn;
@@ -4607,7 +4733,7 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
           // in case of data restore from fuzzy checkpoint part of operations may be already flushed to the disk
           if (atomicUnit != null) {
             atomicUnit.add(walRecord);
-            restoreAtomicUnit(atomicUnit, atLeastOnePageUpdate);
+            restoreAtomicUnit(atomicUnit, atLeastOnePageUpdate, redoExecutor);
           }
 
         } else if (walRecord instanceof OAtomicUnitStartRecord) {
@@ -4648,6 +4774,13 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
 
         lsn = writeAheadLog.next(lsn);
       }
+
+      if (redoExecutor != null) {
+        //all changes should be applied before data are flushed by caller
+        final OWALRedoExecutor executor = redoExecutor;
+        redoExecutor = null;
+        executor.close();
+      }
     } catch (OWALPageBrokenException e) {
       OLogManager.instance()
           .error(this, "Data restore was paused because broken WAL page was found. The rest of changes will be rolled back.");
@@ -4656,6 +4789,14 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
           "Data restore was paused because of exception. The rest of changes will be rolled back and WAL files will be backed up."
               + " Please report issue about this exception to bug tracker and provide WAL files which are backed up in 'wal_backup' directory.");
       backUpWAL(e);
+    } finally {
+      if (redoExecutor != null) {
+        try {
+          redoExecutor.close();
+        } catch (RuntimeException e) {
+          OLogManager.instance().error(this, "Error during restore of page changes from WAL", e);
+        }
+      }
     }
 
     if (atLeastOnePageUpdate.getValue())
@@ -4744,10 +4885,27 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
   }
 
   protected void restoreAtomicUnit(List<OWALRecord> atomicUnit, OModifiableBoolean atLeastOnePageUpdate) throws IOException {
+    restoreAtomicUnit(atomicUnit, atLeastOnePageUpdate, null);
+  }
+
+  /**
+   * @param redoExecutor Executor which applies page changes in parallel, if <code>null</code> changes are applied by the current
+   *                     thread.
+   */
+  private void restoreAtomicUnit(List<OWALRecord> atomicUnit, OModifiableBoolean atLeastOnePageUpdate,
+      OWALRedoExecutor redoExecutor) throws IOException {
     assert atomicUnit.get(atomicUnit.size() - 1) instanceof OAtomicUnitEndRecord;
 
+    // units which follow the unit which could not be restored are not applied
+    if (redoExecutor != null)
+      redoExecutor.beginUnit();
+
     for (OWALRecord walRecord : atomicUnit) {
       if (walRecord instanceof OFileDeletedWALRecord) {
+        // queued changes of pages of deleted file have to be applied before file is removed
+        if (redoExecutor != null)
+          redoExecutor.await();
+
         OFileDeletedWALRecord fileDeletedWALRecord = (OFileDeletedWALRecord) walRecord;
         if (writeCache.exists(fileDeletedWALRecord.getFileId()))
           readCache.deleteFile(fileDeletedWALRecord.getFileId(), writeCache);
@@ -4775,6 +4933,25 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
         final long pageIndex = updatePageRecord.getPageIndex();
         fileId = writeCache.externalFileId(writeCache.internalFileId(fileId));
 
+        if (redoExecutor != null) {
+          // new pages are allocated by the current thread only, so pages are appended to the file in order of their indexes
+          if (pageIndex >= writeCache.getFilledUpTo(fileId)) {
+            OCacheEntry cacheEntry = null;
+            do {
+              if (cacheEntry != null)
+                readCache.release(cacheEntry, writeCache);
+
+              cacheEntry = readCache.allocateNewPage(fileId, writeCache, false);
+            } while (cacheEntry.getPageIndex() != pageIndex);
+
+            readCache.release(cacheEntry, writeCache);
+          }
+
+          redoExecutor.redo(fileId, pageIndex, updatePageRecord);
+          atLeastOnePageUpdate.setValue(true);
+          continue;
+        }
+
         OCacheEntry cacheEntry = readCache.load(fileId, pageIndex, true, writeCache, 1, false);
         if (cacheEntry == null) {
           do {
@@ -4843,7 +5020,11 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     }
 
     if (checkpointRequest && writeAheadLog instanceof ODiskWriteAheadLog) {
-      if (checkpointInProgress.compareAndSet(false, true)) {
+      if (writeCache.getMinDirtyLsn() != null) {
+        //checkpoint is performed in background, WAL is truncated by small portions once oldest pages are flushed
+        checkpointRequest = false;
+        writeCache.makeIncrementalCheckpoint();
+      } else if (checkpointInProgress.compareAndSet(false, true)) {
         try {
           final ODiskWriteAheadLog diskWriteAheadLog = (ODiskWriteAheadLog) writeAheadLog;
           final long size = diskWriteAheadLog.size();
@@ -0,0 +1,268 @@
+/*
+ *
+ *  *  Copyright 2017 OrientDB LTD (info(at)orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientdb.com
+ *
+ */
+
+package com.orientechnologies.orient.core.storage.impl.local;
+
+import com.orientechnologies.common.concur.lock.OInterruptedException;
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.storage.OStorageAbstract;
+import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
+import com.orientechnologies.orient.core.storage.cache.OCachePointer;
+import com.orientechnologies.orient.core.storage.cache.OReadCache;
+import com.orientechnologies.orient.core.storage.cache.OWriteCache;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OUpdatePageRecord;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Applies page changes restored from WAL by several threads.
+ * <p>
+ * WAL is still read sequentially by the single thread which restores data, but changes of pages are passed to the worker threads.
+ * Pages are partitioned between workers by file id and page index, so all changes of the same page are applied by the same worker
+ * in the same order as they are written in WAL. Changes of different pages are independent from each other, so result of restore
+ * is the same as result of sequential restore once all workers complete their queues.
+ * <p>
+ * Operations which change the set of files (creation and deletion of files) and allocation of new pages are performed by the
+ * restoring thread itself, before the file is deleted all queued changes should be applied by call of {@link #await()}.
+ * <p>
+ * Changes are tagged by the atomic unit they belong to. Once change of some unit fails, queued changes of this and next units are
+ * skipped and restoring thread stops at the beginning of the next unit, changes of previous units are still applied. Changes of
+ * next units which were applied by other workers before the failure was detected are not reverted, the same way as part of failed
+ * unit is not reverted by sequential restore.
+ *
+ * @since 07.05.17
+ */
+final class OWALRedoExecutor {
+  private static final int QUEUE_SIZE = 1024;
+
+  private static final PageChange STOP = new PageChange(-1, -1, -1, null);
+
+  private final OReadCache  readCache;
+  private final OWriteCache writeCache;
+
+  private final Worker[] workers;
+
+  private final Object pendingLock = new Object();
+  private long pending;
+
+  private volatile Throwable error;
+
+  /**
+   * The first unit changes of which could not be applied.
+   */
+  private volatile long failedUnit = Long.MAX_VALUE;
+
+  /**
+   * Accessed only by restoring thread.
+   */
+  private long currentUnit;
+
+  OWALRedoExecutor(String storageName, OReadCache readCache, OWriteCache writeCache, int threads) {
+    if (threads < 1)
+      throw new IllegalArgumentException("Amount of restore threads should be positive but was " + threads);
+
+    this.readCache = readCache;
+    this.writeCache = writeCache;
+
+    workers = new Worker[threads];
+    for (int i = 0; i < threads; i++) {
+      final Worker worker = new Worker();
+      worker.setName("OrientDB WAL Restore (" + storageName + ") #" + i);
+      workers[i] = worker;
+    }
+
+    for (Worker worker : workers) {
+      worker.start();
+    }
+  }
+
+  /**
+   * Marks beginning of restore of next atomic unit, all changes passed to {@link #redo(long, long, OUpdatePageRecord)} after this
+   * call belong to this unit.
+   *
+   * @throws OStorageException if one of changes of previous units could not be applied.
+   */
+  void beginUnit() {
+    checkError();
+    currentUnit++;
+  }
+
+  /**
+   * Schedules application of page changes. Page should already exist in the file.
+   */
+  void redo(long fileId, long pageIndex, OUpdatePageRecord record) {
+    checkError();
+
+    synchronized (pendingLock) {
+      pending++;
+    }
+
+    final Worker worker = workers[partition(fileId, pageIndex, workers.length)];
+    try {
+      worker.queue.put(new PageChange(currentUnit, fileId, pageIndex, record));
+    } catch (InterruptedException e) {
+      completed();
+      throw OException.wrapException(new OInterruptedException("Restore of data was interrupted"), e);
+    }
+  }
+
+  /**
+   * Waits till all scheduled changes are applied.
+   *
+   * @throws OStorageException if one of changes could not be applied.
+   */
+  void await() {
+    synchronized (pendingLock) {
+      while (pending > 0) {
+        try {
+          pendingLock.wait();
+        } catch (InterruptedException e) {
+          throw OException.wrapException(new OInterruptedException("Restore of data was interrupted"), e);
+        }
+      }
+    }
+
+    checkError();
+  }
+
+  /**
+   * Waits till all scheduled changes are applied and stops worker threads.
+   *
+   * @throws OStorageException if one of changes could not be applied.
+   */
+  void close() {
+    try {
+      await();
+    } finally {
+      //workers are not interrupted because interruption of IO operation closes file channel
+      try {
+        for (Worker worker : workers) {
+          worker.queue.put(STOP);
+        }
+
+        for (Worker worker : workers) {
+          worker.join();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  static int partition(long fileId, long pageIndex, int partitions) {
+    long hash = fileId * 31 + pageIndex;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+
+    return (int) ((hash & Long.MAX_VALUE) % partitions);
+  }
+
+  private void checkError() {
+    final Throwable e = error;
+    if (e != null)
+      throw OException.wrapException(new OStorageException("Error during restore of page changes from WAL"), e);
+  }
+
+  private void completed() {
+    synchronized (pendingLock) {
+      pending--;
+
+      if (pending == 0)
+        pendingLock.notifyAll();
+    }
+  }
+
+  private void apply(PageChange change) throws Exception {
+    final OCacheEntry cacheEntry = readCache.load(change.fileId, change.pageIndex, true, writeCache, 1, false);
+    if (cacheEntry == null)
+      throw new OStorageException("Page " + change.pageIndex + " of file " + change.fileId + " was not allocated before restore");
+
+    final OCachePointer cachePointer = cacheEntry.getCachePointer();
+    cachePointer.acquireExclusiveLock();
+    try {
+      ODurablePage durablePage = new ODurablePage(cacheEntry, null);
+      durablePage.restoreChanges(change.record.getChanges());
+      durablePage.setLsn(change.record.getLsn());
+    } finally {
+      cachePointer.releaseExclusiveLock();
+      readCache.release(cacheEntry, writeCache);
+    }
+  }
+
+  private synchronized void failed(long unit, Throwable e) {
+    if (unit < failedUnit) {
+      failedUnit = unit;
+      error = e;
+    }
+  }
+
+  private static final class PageChange {
+    private final long              unit;
+    private final long              fileId;
+    private final long              pageIndex;
+    private final OUpdatePageRecord record;
+
+    private PageChange(long unit, long fileId, long pageIndex, OUpdatePageRecord record) {
+      this.unit = unit;
+      this.fileId = fileId;
+      this.pageIndex = pageIndex;
+      this.record = record;
+    }
+  }
+
+  private final class Worker extends Thread {
+    private final BlockingQueue<PageChange> queue = new ArrayBlockingQueue<PageChange>(QUEUE_SIZE);
+
+    private Worker() {
+      super(OStorageAbstract.storageThreadGroup, (Runnable) null);
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        final PageChange change;
+        try {
+          change = queue.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+
+        if (change == STOP)
+          return;
+
+        try {
+          //changes of units which follow failed one are skipped, restore will be stopped by restoring thread
+          if (change.unit < failedUnit)
+            apply(change);
+        } catch (Throwable e) {
+          failed(change.unit, e);
+        } finally {
+          completed();
+        }
+      }
+    }
+  }
+}
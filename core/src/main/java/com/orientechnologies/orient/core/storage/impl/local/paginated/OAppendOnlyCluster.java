@@ -0,0 +1,1616 @@
+/*
+ *
+ *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientechnologies.com
+ *
+ */
+
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.common.util.OCommonConst;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.compression.OCompression;
+import com.orientechnologies.orient.core.compression.OCompressionFactory;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.config.OStorageClusterConfiguration;
+import com.orientechnologies.orient.core.config.OStoragePaginatedClusterConfiguration;
+import com.orientechnologies.orient.core.conflict.ORecordConflictStrategy;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.encryption.OEncryption;
+import com.orientechnologies.orient.core.encryption.OEncryptionFactory;
+import com.orientechnologies.orient.core.exception.OAppendOnlyClusterException;
+import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.OMetadata;
+import com.orientechnologies.orient.core.storage.*;
+import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.atomicoperations.OAtomicOperation;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurableComponent;
+import com.orientechnologies.orient.core.storage.impl.local.statistic.OSessionStoragePerformanceStatistic;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cluster for immutable, time ordered data like events, audit or log entries. Records are appended one after another into
+ * densely filled pages, there is no free space map and no position map: records are stored in the order of their positions,
+ * so a record is found by binary search over the pages and then over the entries of a page.
+ * <p>
+ * Every record gets the creation time assigned, timestamps never decrease within the cluster, so records created in a time
+ * interval form a range of positions, see {@link #getPositionByTime(long)}. Pages are grouped into segment files of the same
+ * size, old records are removed by deletion of whole segments, see {@link #truncateBefore(long)}, which is far cheaper than
+ * deletion of records one by one.
+ * <p>
+ * Records can not be updated, deleted records only get a tombstone, their space is reclaimed when the segment is dropped.
+ * Storage creates the cluster if {@link #APPEND_ONLY} is passed as parameter of
+ * {@link com.orientechnologies.orient.core.db.ODatabase#addCluster(String, Object...)}.
+ *
+ * @since 19.05.17
+ */
+public class OAppendOnlyCluster extends ODurableComponent implements OCluster {
+  /**
+   * Cluster parameter which requests creation of append-only cluster.
+   */
+  public static final String APPEND_ONLY = "appendOnly";
+
+  public static final String DEF_EXTENSION     = ".aoc";
+  public static final String SEGMENT_EXTENSION = ".aos";
+
+  private static final int STATE_PAGE_INDEX = 0;
+
+  private final boolean addRidMetadata = OGlobalConfiguration.STORAGE_TRACK_CHANGED_RECORDS_IN_WAL.getValueAsBoolean();
+
+  private final    boolean                               systemCluster;
+  private final    ConcurrentMap<Long, Long>             segmentFileIds = new ConcurrentHashMap<Long, Long>();
+  private volatile OCompression                          compression;
+  private volatile OEncryption                           encryption;
+  private          OAbstractPaginatedStorage             storageLocal;
+  private volatile int                                   id;
+  private          long                                  stateFileId;
+  private          OStoragePaginatedClusterConfiguration config;
+  private          ORecordConflictStrategy               recordConflictStrategy;
+
+  private static final class StateSnapshot {
+    private final long firstPage;
+    private final long lastPage;
+    private final int  segmentPages;
+    private final long nextPosition;
+    private final long lastRecordPosition;
+
+    private StateSnapshot(OAppendOnlyClusterState state) {
+      this.firstPage = state.getFirstPage();
+      this.lastPage = state.getLastPage();
+      this.segmentPages = state.getSegmentPages();
+      this.nextPosition = state.getNextPosition();
+      this.lastRecordPosition = state.getLastRecordPosition();
+    }
+
+    private long getFirstSegment() {
+      return firstPage / segmentPages;
+    }
+
+    /**
+     * @return the segment records are appended to or the one before the first segment if the cluster has no data pages
+     */
+    private long getLastSegment() {
+      return lastPage < firstPage ? getFirstSegment() - 1 : lastPage / segmentPages;
+    }
+  }
+
+  private static final class EntryPointer {
+    private final long pageIndex;
+    private final int  entryIndex;
+
+    private EntryPointer(long pageIndex, int entryIndex) {
+      this.pageIndex = pageIndex;
+      this.entryIndex = entryIndex;
+    }
+  }
+
+  public OAppendOnlyCluster(final String name, final OAbstractPaginatedStorage storage) {
+    super(storage, name, DEF_EXTENSION, name + DEF_EXTENSION);
+
+    systemCluster = OMetadata.SYSTEM_CLUSTER.contains(name);
+  }
+
+  /**
+   * Tells whether cluster parameters request creation of append-only cluster, see {@link #APPEND_ONLY}.
+   */
+  public static boolean isRequested(final Object... parameters) {
+    if (parameters != null)
+      for (Object parameter : parameters)
+        if (APPEND_ONLY.equals(parameter))
+          return true;
+
+    return false;
+  }
+
+  public static String getSegmentFileName(final String clusterName, final long segment) {
+    return clusterName + "_" + segment + SEGMENT_EXTENSION;
+  }
+
+  @Override
+  public void configure(final OStorage storage, final int id, final String clusterName, final Object... parameters)
+      throws IOException {
+    startOperation();
+    try {
+      acquireExclusiveLock();
+      try {
+        final OContextConfiguration ctxCfg = storage.getConfiguration().getContextConfiguration();
+        final String cfgCompression = ctxCfg.getValueAsString(OGlobalConfiguration.STORAGE_COMPRESSION_METHOD);
+        final String cfgEncryption = ctxCfg.getValueAsString(OGlobalConfiguration.STORAGE_ENCRYPTION_METHOD);
+        final String cfgEncryptionKey = ctxCfg.getValueAsString(OGlobalConfiguration.STORAGE_ENCRYPTION_KEY);
+
+        config = new OStoragePaginatedClusterConfiguration(storage.getConfiguration(), id, clusterName, null, true,
+            OStoragePaginatedClusterConfiguration.DEFAULT_GROW_FACTOR, OStoragePaginatedClusterConfiguration.DEFAULT_GROW_FACTOR,
+            cfgCompression, cfgEncryption, cfgEncryptionKey, null, OStorageClusterConfiguration.STATUS.ONLINE);
+        config.name = clusterName;
+
+        init((OAbstractPaginatedStorage) storage, config);
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public void configure(final OStorage storage, final OStorageClusterConfiguration config) throws IOException {
+    acquireExclusiveLock();
+    try {
+      init((OAbstractPaginatedStorage) storage, config);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public boolean exists() {
+    startOperation();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+          return isFileExists(atomicOperation, getFullName());
+        } finally {
+          releaseSharedLock();
+        }
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public void create(final int startSize) throws IOException {
+    startOperation();
+    try {
+      final OAtomicOperation atomicOperation = startAtomicOperation(false);
+      acquireExclusiveLock();
+      try {
+        stateFileId = addFile(atomicOperation, getFullName());
+        segmentFileIds.clear();
+
+        initClusterState(atomicOperation);
+
+        if (config.root.clusters.size() <= config.id)
+          config.root.clusters.add(config);
+        else
+          config.root.clusters.set(config.id, config);
+
+        endAtomicOperation(false, null);
+      } catch (Exception e) {
+        endAtomicOperation(true, e);
+        throw OException
+            .wrapException(new OAppendOnlyClusterException("Error during creation of cluster with name " + getName(), this), e);
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public void open() throws IOException {
+    startOperation();
+    try {
+      acquireExclusiveLock();
+      try {
+        final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+        stateFileId = openFile(atomicOperation, getFullName());
+
+        final OCacheEntry stateEntry = loadPage(atomicOperation, stateFileId, STATE_PAGE_INDEX, false);
+        try {
+          pinPage(atomicOperation, stateEntry);
+        } finally {
+          releasePage(atomicOperation, stateEntry);
+        }
+
+        segmentFileIds.clear();
+
+        final StateSnapshot state = readState(atomicOperation);
+        for (long segment = state.getFirstSegment(); segment <= state.getLastSegment(); segment++)
+          segmentFileIds.put(segment, openFile(atomicOperation, getSegmentFileName(getName(), segment)));
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    close(true);
+  }
+
+  @Override
+  public void close(final boolean flush) throws IOException {
+    startOperation();
+    try {
+      acquireExclusiveLock();
+      try {
+        if (flush)
+          synch();
+
+        final StateSnapshot state = readState(atomicOperationsManager.getCurrentOperation());
+        for (long segment = state.getFirstSegment(); segment <= state.getLastSegment(); segment++) {
+          final Long fileId = segmentFileIds.get(segment);
+          if (fileId != null)
+            readCache.closeFile(fileId, flush, writeCache);
+        }
+
+        segmentFileIds.clear();
+        readCache.closeFile(stateFileId, flush, writeCache);
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public void delete() throws IOException {
+    startOperation();
+    try {
+      final OAtomicOperation atomicOperation = startAtomicOperation(false);
+      acquireExclusiveLock();
+      try {
+        final StateSnapshot state = readState(atomicOperation);
+        for (long segment = state.getFirstSegment(); segment <= state.getLastSegment(); segment++)
+          deleteFile(atomicOperation, getSegmentFileId(atomicOperation, segment));
+
+        deleteFile(atomicOperation, stateFileId);
+
+        endAtomicOperation(false, null);
+
+        segmentFileIds.clear();
+      } catch (IOException ioe) {
+        endAtomicOperation(true, ioe);
+
+        throw ioe;
+      } catch (Exception e) {
+        endAtomicOperation(true, e);
+
+        throw OException.wrapException(new OAppendOnlyClusterException("Error during deletion of cluster " + getName(), this), e);
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public Object set(final OCluster.ATTRIBUTES attribute, final Object value) throws IOException {
+    startOperation();
+    try {
+      if (attribute == null)
+        throw new IllegalArgumentException("attribute is null");
+
+      final String stringValue = value != null ? value.toString() : null;
+
+      acquireExclusiveLock();
+      try {
+
+        switch (attribute) {
+        case NAME:
+          setNameInternal(stringValue);
+          break;
+        case COMPRESSION:
+          if (getEntries() > 0)
+            throw new IllegalArgumentException(
+                "Cannot change compression setting on cluster '" + getName() + "' because it is not empty");
+          setCompressionInternal(stringValue,
+              ODatabaseRecordThreadLocal.INSTANCE.get().getStorage().getConfiguration().getContextConfiguration()
+                  .getValueAsString(OGlobalConfiguration.STORAGE_ENCRYPTION_KEY));
+          break;
+        case CONFLICTSTRATEGY:
+          return setRecordConflictStrategy(stringValue);
+        case STATUS: {
+          if (stringValue == null)
+            throw new IllegalStateException("Value of attribute is null");
+
+          return storageLocal.setClusterStatus(id, OStorageClusterConfiguration.STATUS
+              .valueOf(stringValue.toUpperCase(storageLocal.getConfiguration().getLocaleInstance())));
+        }
+        case ENCRYPTION:
+          if (getEntries() > 0)
+            throw new IllegalArgumentException(
+                "Cannot change encryption setting on cluster '" + getName() + "' because it is not empty");
+          setEncryptionInternal(stringValue,
+              ODatabaseRecordThreadLocal.INSTANCE.get().getStorage().getConfiguration().getContextConfiguration()
+                  .getValueAsString(OGlobalConfiguration.STORAGE_ENCRYPTION_KEY));
+          break;
+        default:
+          throw new IllegalArgumentException("Runtime change of attribute '" + attribute + " is not supported");
+        }
+
+      } finally {
+        releaseExclusiveLock();
+      }
+
+      return null;
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public boolean isSystemCluster() {
+    return systemCluster;
+  }
+
+  @Override
+  public float recordGrowFactor() {
+    acquireSharedLock();
+    try {
+      return config.recordGrowFactor;
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public float recordOverflowGrowFactor() {
+    acquireSharedLock();
+    try {
+      return config.recordOverflowGrowFactor;
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public String compression() {
+    acquireSharedLock();
+    try {
+      return config.compression;
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public String encryption() {
+    acquireSharedLock();
+    try {
+      return config.encryption;
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public OPhysicalPosition allocatePosition(byte recordType) throws IOException {
+    startOperation();
+    try {
+      final OAtomicOperation atomicOperation = startAtomicOperation(true);
+      acquireExclusiveLock();
+      try {
+        final long clusterPosition;
+
+        final OCacheEntry stateEntry = loadPage(atomicOperation, stateFileId, STATE_PAGE_INDEX, true);
+        stateEntry.acquireExclusiveLock();
+        try {
+          final OAppendOnlyClusterState state = new OAppendOnlyClusterState(stateEntry, getChanges(atomicOperation, stateEntry));
+          clusterPosition = state.getNextPosition();
+          state.setNextPosition(clusterPosition + 1);
+        } finally {
+          stateEntry.releaseExclusiveLock();
+          releasePage(atomicOperation, stateEntry);
+        }
+
+        endAtomicOperation(false, null);
+        return createPhysicalPosition(recordType, clusterPosition, -1);
+      } catch (IOException e) {
+        endAtomicOperation(true, e);
+        throw e;
+      } catch (RuntimeException e) {
+        endAtomicOperation(true, e);
+        throw e;
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  /**
+   * Appends the record to the cluster. Allocated positions have to be used in the order they were allocated, positions which
+   * are skipped are never filled.
+   */
+  @Override
+  public OPhysicalPosition createRecord(byte[] content, final int recordVersion, final byte recordType,
+      final OPhysicalPosition allocatedPosition) throws IOException {
+    startOperation();
+    OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
+    if (statistic != null)
+      statistic.startRecordCreationTimer();
+    try {
+      content = compression.compress(content);
+      content = encryption.encrypt(content);
+
+      final OAtomicOperation atomicOperation = startAtomicOperation(true);
+      acquireExclusiveLock();
+      try {
+        final long clusterPosition;
+
+        final OCacheEntry stateEntry = loadPage(atomicOperation, stateFileId, STATE_PAGE_INDEX, true);
+        stateEntry.acquireExclusiveLock();
+        try {
+          final OAppendOnlyClusterState state = new OAppendOnlyClusterState(stateEntry, getChanges(atomicOperation, stateEntry));
+
+          if (allocatedPosition != null) {
+            clusterPosition = allocatedPosition.clusterPosition;
+            if (clusterPosition <= state.getLastRecordPosition() || clusterPosition >= state.getNextPosition())
+              throw new OAppendOnlyClusterException(
+                  "Records of append-only cluster have to be created in order of their positions, position " + clusterPosition
+                      + " can not be used", this);
+          } else {
+            clusterPosition = state.getNextPosition();
+            state.setNextPosition(clusterPosition + 1);
+          }
+
+          final long timestamp = Math.max(System.currentTimeMillis(), state.getLastTimestamp());
+          appendRecord(state, clusterPosition, timestamp, recordVersion, recordType, content, atomicOperation);
+
+          state.setLastRecordPosition(clusterPosition);
+          state.setLastTimestamp(timestamp);
+          state.setSize(state.getSize() + 1);
+          state.setRecordsSize(state.getRecordsSize() + content.length);
+        } finally {
+          stateEntry.releaseExclusiveLock();
+          releasePage(atomicOperation, stateEntry);
+        }
+
+        addAtomicOperationMetadata(new ORecordId(id, clusterPosition), atomicOperation);
+
+        endAtomicOperation(false, null);
+
+        return createPhysicalPosition(recordType, clusterPosition, recordVersion);
+      } catch (IOException e) {
+        endAtomicOperation(true, e);
+        throw e;
+      } catch (RuntimeException e) {
+        endAtomicOperation(true, e);
+        throw e;
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      if (statistic != null)
+        statistic.stopRecordCreationTimer();
+
+      completeOperation();
+    }
+  }
+
+  @Override
+  public ORawBuffer readRecord(final long clusterPosition, final boolean prefetchRecords) throws IOException {
+    startOperation();
+    OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
+    if (statistic != null)
+      statistic.startRecordReadTimer();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+          final StateSnapshot state = readState(atomicOperation);
+
+          final EntryPointer pointer = findHead(state, clusterPosition, atomicOperation);
+          if (pointer == null)
+            return null;
+
+          return readRecordBuffer(state, pointer, atomicOperation);
+        } finally {
+          releaseSharedLock();
+        }
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      if (statistic != null)
+        statistic.stopRecordReadTimer();
+      completeOperation();
+    }
+  }
+
+  @Override
+  public ORawBuffer readRecordIfVersionIsNotLatest(final long clusterPosition, final int recordVersion)
+      throws IOException, ORecordNotFoundException {
+    startOperation();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+          final StateSnapshot state = readState(atomicOperation);
+
+          final EntryPointer pointer = findHead(state, clusterPosition, atomicOperation);
+          if (pointer == null)
+            throw new ORecordNotFoundException(new ORecordId(id, clusterPosition),
+                "Record for cluster with id " + id + " and position " + clusterPosition + " is absent.");
+
+          final int loadedRecordVersion;
+
+          final OCacheEntry cacheEntry = loadDataPage(state, pointer.pageIndex, atomicOperation);
+          cacheEntry.acquireSharedLock();
+          try {
+            final OAppendOnlyClusterPage dataPage = new OAppendOnlyClusterPage(cacheEntry, getChanges(atomicOperation, cacheEntry));
+            if (dataPage.isDeleted(pointer.entryIndex))
+              throw new ORecordNotFoundException(new ORecordId(id, clusterPosition),
+                  "Record for cluster with id " + id + " and position " + clusterPosition + " is absent.");
+
+            loadedRecordVersion = dataPage.getVersion(pointer.entryIndex);
+          } finally {
+            cacheEntry.releaseSharedLock();
+            releasePage(atomicOperation, cacheEntry);
+          }
+
+          if (loadedRecordVersion > recordVersion)
+            return readRecordBuffer(state, pointer, atomicOperation);
+
+          return null;
+        } finally {
+          releaseSharedLock();
+        }
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  /**
+   * Puts a tombstone on the record, its space is reclaimed when the segment which contains it is dropped.
+   */
+  @Override
+  public boolean deleteRecord(final long clusterPosition) throws IOException {
+    startOperation();
+    OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
+    if (statistic != null)
+      statistic.startRecordDeletionTimer();
+    try {
+      final OAtomicOperation atomicOperation = startAtomicOperation(true);
+      acquireExclusiveLock();
+      try {
+        final StateSnapshot state = readState(atomicOperation);
+
+        final EntryPointer pointer = findHead(state, clusterPosition, atomicOperation);
+        if (pointer == null) {
+          endAtomicOperation(false, null);
+          return false;
+        }
+
+        final int recordSize;
+        final OCacheEntry cacheEntry = loadDataPage(state, pointer.pageIndex, atomicOperation);
+        cacheEntry.acquireExclusiveLock();
+        try {
+          final OAppendOnlyClusterPage dataPage = new OAppendOnlyClusterPage(cacheEntry, getChanges(atomicOperation, cacheEntry));
+          if (dataPage.isDeleted(pointer.entryIndex))
+            recordSize = -1;
+          else {
+            recordSize = dataPage.getRecordSize(pointer.entryIndex);
+
+            dataPage.markDeleted(pointer.entryIndex);
+            dataPage.updateRecords(-1, -recordSize);
+          }
+        } finally {
+          cacheEntry.releaseExclusiveLock();
+          releasePage(atomicOperation, cacheEntry);
+        }
+
+        if (recordSize < 0) {
+          endAtomicOperation(false, null);
+          return false;
+        }
+
+        updateClusterState(-1, -recordSize, atomicOperation);
+        addAtomicOperationMetadata(new ORecordId(id, clusterPosition), atomicOperation);
+
+        endAtomicOperation(false, null);
+        return true;
+      } catch (Exception e) {
+        endAtomicOperation(true, e);
+        throw OException.wrapException(new OAppendOnlyClusterException("Error during record deletion", this), e);
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      if (statistic != null)
+        statistic.stopRecordDeletionTimer();
+
+      completeOperation();
+    }
+  }
+
+  @Override
+  public boolean hideRecord(final long position) throws IOException {
+    return deleteRecord(position);
+  }
+
+  @Override
+  public void updateRecord(final long clusterPosition, final byte[] content, final int recordVersion, final byte recordType)
+      throws IOException {
+    throw new OAppendOnlyClusterException(
+        "Record with rid " + new ORecordId(id, clusterPosition) + " can not be updated, records of append-only cluster are immutable",
+        this);
+  }
+
+  @Override
+  public void recycleRecord(final long clusterPosition) throws IOException {
+    throw new OAppendOnlyClusterException(
+        "Position of record with rid " + new ORecordId(id, clusterPosition) + " can not be reused, it belongs to append-only cluster",
+        this);
+  }
+
+  @Override
+  public long getTombstonesCount() {
+    return 0;
+  }
+
+  /**
+   * Removes all records of the cluster. Positions of the removed records are not reused.
+   */
+  @Override
+  public void truncate() throws IOException {
+    startOperation();
+    try {
+      final OAtomicOperation atomicOperation = startAtomicOperation(true);
+      acquireExclusiveLock();
+      try {
+        final StateSnapshot snapshot = readState(atomicOperation);
+        for (long segment = snapshot.getFirstSegment(); segment <= snapshot.getLastSegment(); segment++)
+          deleteFile(atomicOperation, getSegmentFileId(atomicOperation, segment));
+
+        // records are appended to a new segment, its page numbering continues the numbering of removed pages
+        final long firstPage = (snapshot.getLastSegment() + 1) * snapshot.segmentPages;
+
+        final OCacheEntry stateEntry = loadPage(atomicOperation, stateFileId, STATE_PAGE_INDEX, true);
+        stateEntry.acquireExclusiveLock();
+        try {
+          final OAppendOnlyClusterState state = new OAppendOnlyClusterState(stateEntry, getChanges(atomicOperation, stateEntry));
+          state.setFirstPage(firstPage);
+          state.setLastPage(firstPage - 1);
+          state.setSize(0);
+          state.setRecordsSize(0);
+        } finally {
+          stateEntry.releaseExclusiveLock();
+          releasePage(atomicOperation, stateEntry);
+        }
+
+        endAtomicOperation(false, null);
+
+        for (long segment = snapshot.getFirstSegment(); segment <= snapshot.getLastSegment(); segment++)
+          segmentFileIds.remove(segment);
+      } catch (Exception e) {
+        endAtomicOperation(true, e);
+        throw OException.wrapException(new OAppendOnlyClusterException("Error during cluster truncate", this), e);
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  /**
+   * Removes the segments which contain only records with positions less than the given one. Records are removed by whole
+   * segments, so the records of the segment which contains the given position stay, as well as the records of the segment
+   * records are appended to.
+   *
+   * @param clusterPosition position of the first record which has to stay in the cluster
+   *
+   * @return amount of removed records
+   */
+  public long truncateBefore(final long clusterPosition) throws IOException {
+    startOperation();
+    try {
+      final OAtomicOperation atomicOperation = startAtomicOperation(true);
+      acquireExclusiveLock();
+      try {
+        final StateSnapshot snapshot = readState(atomicOperation);
+
+        long segment = snapshot.getFirstSegment();
+        long removedRecords = 0;
+        long removedSize = 0;
+
+        while (segment < snapshot.getLastSegment()) {
+          final long nextSegmentPage = (segment + 1) * snapshot.segmentPages;
+
+          final boolean canBeRemoved;
+          final OCacheEntry nextSegmentEntry = loadDataPage(snapshot, nextSegmentPage, atomicOperation);
+          nextSegmentEntry.acquireSharedLock();
+          try {
+            final OAppendOnlyClusterPage dataPage = new OAppendOnlyClusterPage(nextSegmentEntry,
+                getChanges(atomicOperation, nextSegmentEntry));
+            // the last record of the segment must not continue in the next one
+            canBeRemoved = dataPage.isHead(0) && dataPage.getPosition(0) <= clusterPosition;
+          } finally {
+            nextSegmentEntry.releaseSharedLock();
+            releasePage(atomicOperation, nextSegmentEntry);
+          }
+
+          if (!canBeRemoved)
+            break;
+
+          for (long pageIndex = segment * snapshot.segmentPages; pageIndex < nextSegmentPage; pageIndex++) {
+            final OCacheEntry cacheEntry = loadDataPage(snapshot, pageIndex, atomicOperation);
+            cacheEntry.acquireSharedLock();
+            try {
+              final OAppendOnlyClusterPage dataPage = new OAppendOnlyClusterPage(cacheEntry, getChanges(atomicOperation, cacheEntry));
+              removedRecords += dataPage.getRecordsCount();
+              removedSize += dataPage.getRecordsSize();
+            } finally {
+              cacheEntry.releaseSharedLock();
+              releasePage(atomicOperation, cacheEntry);
+            }
+          }
+
+          deleteFile(atomicOperation, getSegmentFileId(atomicOperation, segment));
+          segment++;
+        }
+
+        if (segment > snapshot.getFirstSegment()) {
+          final OCacheEntry stateEntry = loadPage(atomicOperation, stateFileId, STATE_PAGE_INDEX, true);
+          stateEntry.acquireExclusiveLock();
+          try {
+            final OAppendOnlyClusterState state = new OAppendOnlyClusterState(stateEntry, getChanges(atomicOperation, stateEntry));
+            state.setFirstPage(segment * snapshot.segmentPages);
+            state.setSize(state.getSize() - removedRecords);
+            state.setRecordsSize(state.getRecordsSize() - removedSize);
+          } finally {
+            stateEntry.releaseExclusiveLock();
+            releasePage(atomicOperation, stateEntry);
+          }
+        }
+
+        endAtomicOperation(false, null);
+
+        for (long removedSegment = snapshot.getFirstSegment(); removedSegment < segment; removedSegment++)
+          segmentFileIds.remove(removedSegment);
+
+        return removedRecords;
+      } catch (Exception e) {
+        endAtomicOperation(true, e);
+        throw OException.wrapException(new OAppendOnlyClusterException("Error during removal of old segments of cluster", this), e);
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  /**
+   * Removes the segments which contain only records created before the given time, see {@link #truncateBefore(long)}.
+   *
+   * @param timestamp time in milliseconds of the first record which has to stay in the cluster
+   *
+   * @return amount of removed records
+   */
+  public long truncateBeforeTime(final long timestamp) throws IOException {
+    final long clusterPosition = getPositionByTime(timestamp);
+    return truncateBefore(clusterPosition == ORID.CLUSTER_POS_INVALID ? Long.MAX_VALUE : clusterPosition);
+  }
+
+  /**
+   * Finds position of the first record created at or after the given time. Records which are created in a time interval
+   * <code>[from, to)</code> have positions in the range <code>[getPositionByTime(from), getPositionByTime(to))</code>.
+   *
+   * @param timestamp time in milliseconds
+   *
+   * @return position of the record or {@link ORID#CLUSTER_POS_INVALID} if all records were created before the given time
+   */
+  public long getPositionByTime(final long timestamp) throws IOException {
+    startOperation();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+          final StateSnapshot state = readState(atomicOperation);
+
+          for (long pageIndex = Math.max(findPage(state, timestamp, true, atomicOperation), state.firstPage);
+               pageIndex <= state.lastPage; pageIndex++) {
+            final OCacheEntry cacheEntry = loadDataPage(state, pageIndex, atomicOperation);
+            cacheEntry.acquireSharedLock();
+            try {
+              final OAppendOnlyClusterPage dataPage = new OAppendOnlyClusterPage(cacheEntry, getChanges(atomicOperation, cacheEntry));
+              final int entriesCount = dataPage.getEntriesCount();
+
+              for (int i = 0; i < entriesCount; i++)
+                if (dataPage.isHead(i) && dataPage.getTimestamp(i) >= timestamp)
+                  return dataPage.getPosition(i);
+            } finally {
+              cacheEntry.releaseSharedLock();
+              releasePage(atomicOperation, cacheEntry);
+            }
+          }
+
+          return ORID.CLUSTER_POS_INVALID;
+        } finally {
+          releaseSharedLock();
+        }
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  /**
+   * Records are never moved, space of deleted records is reclaimed by {@link #truncateBefore(long)}.
+   */
+  @Override
+  public void compact() throws IOException {
+  }
+
+  @Override
+  public OPhysicalPosition getPhysicalPosition(final OPhysicalPosition position) throws IOException {
+    startOperation();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+          final StateSnapshot state = readState(atomicOperation);
+
+          final EntryPointer pointer = findHead(state, position.clusterPosition, atomicOperation);
+          if (pointer == null)
+            return null;
+
+          final OCacheEntry cacheEntry = loadDataPage(state, pointer.pageIndex, atomicOperation);
+          cacheEntry.acquireSharedLock();
+          try {
+            final OAppendOnlyClusterPage dataPage = new OAppendOnlyClusterPage(cacheEntry, getChanges(atomicOperation, cacheEntry));
+            if (dataPage.isDeleted(pointer.entryIndex))
+              return null;
+
+            return createPhysicalPosition(dataPage.getRecordType(pointer.entryIndex), position.clusterPosition,
+                dataPage.getVersion(pointer.entryIndex));
+          } finally {
+            cacheEntry.releaseSharedLock();
+            releasePage(atomicOperation, cacheEntry);
+          }
+        } finally {
+          releaseSharedLock();
+        }
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  /**
+   * Same as {@link OPaginatedCluster#getRecordStatus(long)}, positions which were allocated and are below the position of the
+   * last created record are reported as removed, they can not be filled anymore.
+   */
+  public OPaginatedCluster.RECORD_STATUS getRecordStatus(final long clusterPosition) throws IOException {
+    final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+    final StateSnapshot state = readState(atomicOperation);
+
+    if (clusterPosition < 0 || clusterPosition >= state.nextPosition)
+      return OPaginatedCluster.RECORD_STATUS.NOT_EXISTENT;
+
+    final EntryPointer pointer = findHead(state, clusterPosition, atomicOperation);
+    if (pointer == null)
+      return clusterPosition > state.lastRecordPosition ?
+          OPaginatedCluster.RECORD_STATUS.ALLOCATED :
+          OPaginatedCluster.RECORD_STATUS.REMOVED;
+
+    final OCacheEntry cacheEntry = loadDataPage(state, pointer.pageIndex, atomicOperation);
+    cacheEntry.acquireSharedLock();
+    try {
+      final OAppendOnlyClusterPage dataPage = new OAppendOnlyClusterPage(cacheEntry, getChanges(atomicOperation, cacheEntry));
+      return dataPage.isDeleted(pointer.entryIndex) ?
+          OPaginatedCluster.RECORD_STATUS.REMOVED :
+          OPaginatedCluster.RECORD_STATUS.PRESENT;
+    } finally {
+      cacheEntry.releaseSharedLock();
+      releasePage(atomicOperation, cacheEntry);
+    }
+  }
+
+  @Override
+  public long getEntries() {
+    startOperation();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+          final OCacheEntry stateEntry = loadPage(atomicOperation, stateFileId, STATE_PAGE_INDEX, true);
+          stateEntry.acquireSharedLock();
+          try {
+            return new OAppendOnlyClusterState(stateEntry, getChanges(atomicOperation, stateEntry)).getSize();
+          } finally {
+            stateEntry.releaseSharedLock();
+            releasePage(atomicOperation, stateEntry);
+          }
+        } finally {
+          releaseSharedLock();
+        }
+      } catch (IOException ioe) {
+        throw OException
+            .wrapException(new OAppendOnlyClusterException("Error during retrieval of size of '" + getName() + "' cluster", this),
+                ioe);
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public long getFirstPosition() throws IOException {
+    final OPhysicalPosition[] positions = ceilingPositions(new OPhysicalPosition(0));
+    return positions.length > 0 ? positions[0].clusterPosition : ORID.CLUSTER_POS_INVALID;
+  }
+
+  @Override
+  public long getLastPosition() throws IOException {
+    final OPhysicalPosition[] positions = floorPositions(new OPhysicalPosition(Long.MAX_VALUE));
+    return positions.length > 0 ? positions[positions.length - 1].clusterPosition : ORID.CLUSTER_POS_INVALID;
+  }
+
+  @Override
+  public long getNextPosition() throws IOException {
+    startOperation();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          return readState(atomicOperationsManager.getCurrentOperation()).nextPosition;
+        } finally {
+          releaseSharedLock();
+        }
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public String getFileName() {
+    startOperation();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          return writeCache.fileNameById(stateFileId);
+        } finally {
+          releaseSharedLock();
+        }
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public int getId() {
+    return id;
+  }
+
+  @Override
+  public void synch() throws IOException {
+    startOperation();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+          final StateSnapshot state = readState(atomicOperation);
+
+          for (long segment = state.getFirstSegment(); segment <= state.getLastSegment(); segment++)
+            writeCache.flush(getSegmentFileId(atomicOperation, segment));
+
+          writeCache.flush(stateFileId);
+        } finally {
+          releaseSharedLock();
+        }
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public long getRecordsSize() throws IOException {
+    startOperation();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+
+          final OCacheEntry stateEntry = loadPage(atomicOperation, stateFileId, STATE_PAGE_INDEX, true);
+          stateEntry.acquireSharedLock();
+          try {
+            return new OAppendOnlyClusterState(stateEntry, getChanges(atomicOperation, stateEntry)).getRecordsSize();
+          } finally {
+            stateEntry.releaseSharedLock();
+            releasePage(atomicOperation, stateEntry);
+          }
+        } finally {
+          releaseSharedLock();
+        }
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public boolean isHashBased() {
+    return false;
+  }
+
+  @Override
+  public OClusterEntryIterator absoluteIterator() {
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        return new OClusterEntryIterator(this);
+      } finally {
+        releaseSharedLock();
+      }
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+  }
+
+  @Override
+  public OPhysicalPosition[] higherPositions(final OPhysicalPosition position) throws IOException {
+    if (position.clusterPosition == Long.MAX_VALUE)
+      return OCommonConst.EMPTY_PHYSICAL_POSITIONS_ARRAY;
+
+    return ceilingPositions(new OPhysicalPosition(position.clusterPosition + 1));
+  }
+
+  @Override
+  public OPhysicalPosition[] ceilingPositions(final OPhysicalPosition position) throws IOException {
+    startOperation();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+          final StateSnapshot state = readState(atomicOperation);
+
+          for (long pageIndex = Math.max(findPage(state, position.clusterPosition, false, atomicOperation), state.firstPage);
+               pageIndex <= state.lastPage; pageIndex++) {
+            final long[] positions = readPositions(state, pageIndex, position.clusterPosition, Long.MAX_VALUE, atomicOperation);
+            if (positions.length > 0)
+              return convertToPhysicalPositions(positions);
+          }
+
+          return OCommonConst.EMPTY_PHYSICAL_POSITIONS_ARRAY;
+        } finally {
+          releaseSharedLock();
+        }
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public OPhysicalPosition[] lowerPositions(final OPhysicalPosition position) throws IOException {
+    if (position.clusterPosition <= 0)
+      return OCommonConst.EMPTY_PHYSICAL_POSITIONS_ARRAY;
+
+    return floorPositions(new OPhysicalPosition(position.clusterPosition - 1));
+  }
+
+  @Override
+  public OPhysicalPosition[] floorPositions(final OPhysicalPosition position) throws IOException {
+    startOperation();
+    try {
+      atomicOperationsManager.acquireReadLock(this);
+      try {
+        acquireSharedLock();
+        try {
+          final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+          final StateSnapshot state = readState(atomicOperation);
+
+          for (long pageIndex = findPage(state, position.clusterPosition, false, atomicOperation);
+               pageIndex >= state.firstPage; pageIndex--) {
+            final long[] positions = readPositions(state, pageIndex, Long.MIN_VALUE, position.clusterPosition, atomicOperation);
+            if (positions.length > 0)
+              return convertToPhysicalPositions(positions);
+          }
+
+          return OCommonConst.EMPTY_PHYSICAL_POSITIONS_ARRAY;
+        } finally {
+          releaseSharedLock();
+        }
+      } finally {
+        atomicOperationsManager.releaseReadLock(this);
+      }
+    } finally {
+      completeOperation();
+    }
+  }
+
+  @Override
+  public ORecordConflictStrategy getRecordConflictStrategy() {
+    return recordConflictStrategy;
+  }
+
+  @Override
+  public void acquireAtomicExclusiveLock() {
+    atomicOperationsManager.acquireExclusiveLockTillOperationComplete(this);
+  }
+
+  @Override
+  public String toString() {
+    return "plocal append-only cluster: " + getName();
+  }
+
+  @Override
+  protected void startOperation() {
+    OSessionStoragePerformanceStatistic sessionStoragePerformanceStatistic = performanceStatisticManager
+        .getSessionPerformanceStatistic();
+    if (sessionStoragePerformanceStatistic != null) {
+      sessionStoragePerformanceStatistic
+          .startComponentOperation(getFullName(), OSessionStoragePerformanceStatistic.ComponentType.CLUSTER);
+    }
+  }
+
+  /**
+   * Writes the record into the last page, records which do not fit into the rest of the page are moved to a new page and only
+   * records which do not fit even into an empty page are split between pages.
+   */
+  private void appendRecord(OAppendOnlyClusterState state, long clusterPosition, long timestamp, int recordVersion,
+      byte recordType, byte[] content, OAtomicOperation atomicOperation) throws IOException {
+    final int segmentPages = state.getSegmentPages();
+
+    long pageIndex = state.getLastPage();
+    boolean newPage = pageIndex < state.getFirstPage();
+    int written = 0;
+    boolean head = true;
+
+    while (head || written < content.length) {
+      final OCacheEntry cacheEntry;
+      if (newPage) {
+        pageIndex++;
+        cacheEntry = addDataPage(pageIndex, segmentPages, atomicOperation);
+      } else
+        cacheEntry = loadPage(atomicOperation, getSegmentFileId(atomicOperation, pageIndex / segmentPages),
+            pageIndex % segmentPages, false);
+
+      cacheEntry.acquireExclusiveLock();
+      try {
+        final OAppendOnlyClusterPage dataPage = new OAppendOnlyClusterPage(cacheEntry, getChanges(atomicOperation, cacheEntry));
+        if (newPage)
+          dataPage.init();
+
+        final int remaining = content.length - written;
+        final int freeSpace = dataPage.getFreeChunkSpace();
+
+        if (!newPage && freeSpace < remaining && (remaining <= OAppendOnlyClusterPage.MAX_CHUNK_SIZE || freeSpace <= 0)) {
+          newPage = true;
+          continue;
+        }
+
+        final int chunkSize = Math.min(remaining, freeSpace);
+
+        byte flags = head ? 0 : OAppendOnlyClusterPage.CONTINUATION_FLAG;
+        if (chunkSize < remaining)
+          flags |= OAppendOnlyClusterPage.NEXT_CHUNK_FLAG;
+
+        dataPage.appendEntry(clusterPosition, timestamp, recordVersion, recordType, flags, content.length,
+            Arrays.copyOfRange(content, written, written + chunkSize));
+
+        if (head)
+          dataPage.updateRecords(1, content.length);
+
+        written += chunkSize;
+        head = false;
+        newPage = true;
+      } finally {
+        cacheEntry.releaseExclusiveLock();
+        releasePage(atomicOperation, cacheEntry);
+      }
+    }
+
+    state.setLastPage(pageIndex);
+  }
+
+  private OCacheEntry addDataPage(long pageIndex, int segmentPages, OAtomicOperation atomicOperation) throws IOException {
+    final long segment = pageIndex / segmentPages;
+
+    final long fileId;
+    if (pageIndex % segmentPages == 0) {
+      fileId = addFile(atomicOperation, getSegmentFileName(getName(), segment));
+      segmentFileIds.put(segment, fileId);
+    } else
+      fileId = getSegmentFileId(atomicOperation, segment);
+
+    final OCacheEntry cacheEntry = addPage(atomicOperation, fileId);
+    assert cacheEntry.getPageIndex() == pageIndex % segmentPages;
+
+    return cacheEntry;
+  }
+
+  private OCacheEntry loadDataPage(StateSnapshot state, long pageIndex, OAtomicOperation atomicOperation) throws IOException {
+    return loadPage(atomicOperation, getSegmentFileId(atomicOperation, pageIndex / state.segmentPages),
+        pageIndex % state.segmentPages, false);
+  }
+
+  /**
+   * Segment files are opened lazily, the map of opened segments is not rolled back together with atomic operations.
+   */
+  private long getSegmentFileId(OAtomicOperation atomicOperation, long segment) throws IOException {
+    Long fileId = segmentFileIds.get(segment);
+    if (fileId == null) {
+      fileId = openFile(atomicOperation, getSegmentFileName(getName(), segment));
+      segmentFileIds.put(segment, fileId);
+    }
+
+    return fileId;
+  }
+
+  /**
+   * Finds the last page which contains entries less than the given key, a page which starts with the continuation of a record
+   * is considered to be after the head of this record.
+   *
+   * @param byTimestamp whether key is a timestamp or a record position
+   *
+   * @return index of the page or <code>-1</code> if there is no such page
+   */
+  private long findPage(StateSnapshot state, long key, boolean byTimestamp, OAtomicOperation atomicOperation)
+      throws IOException {
+    long low = state.firstPage;
+    long high = state.lastPage;
+    long result = -1;
+
+    while (low <= high) {
+      final long middle = (low + high) >>> 1;
+
+      final boolean before;
+      final OCacheEntry cacheEntry = loadDataPage(state, middle, atomicOperation);
+      cacheEntry.acquireSharedLock();
+      try {
+        final OAppendOnlyClusterPage dataPage = new OAppendOnlyClusterPage(cacheEntry, getChanges(atomicOperation, cacheEntry));
+        if (dataPage.getEntriesCount() == 0)
+          before = false;
+        else if (byTimestamp)
+          before = dataPage.getTimestamp(0) < key;
+        else
+          before = dataPage.getPosition(0) < key || dataPage.getPosition(0) == key && dataPage.isHead(0);
+      } finally {
+        cacheEntry.releaseSharedLock();
+        releasePage(atomicOperation, cacheEntry);
+      }
+
+      if (before) {
+        result = middle;
+        low = middle + 1;
+      } else
+        high = middle - 1;
+    }
+
+    return result;
+  }
+
+  private EntryPointer findHead(StateSnapshot state, long clusterPosition, OAtomicOperation atomicOperation) throws IOException {
+    if (clusterPosition < 0 || clusterPosition > state.lastRecordPosition)
+      return null;
+
+    final long pageIndex = findPage(state, clusterPosition, false, atomicOperation);
+    if (pageIndex < 0)
+      return null;
+
+    final OCacheEntry cacheEntry = loadDataPage(state, pageIndex, atomicOperation);
+    cacheEntry.acquireSharedLock();
+    try {
+      final int entryIndex = new OAppendOnlyClusterPage(cacheEntry, getChanges(atomicOperation, cacheEntry))
+          .findHead(clusterPosition);
+      return entryIndex < 0 ? null : new EntryPointer(pageIndex, entryIndex);
+    } finally {
+      cacheEntry.releaseSharedLock();
+      releasePage(atomicOperation, cacheEntry);
+    }
+  }
+
+  private ORawBuffer readRecordBuffer(StateSnapshot state, EntryPointer pointer, OAtomicOperation atomicOperation)
+      throws IOException {
+    byte[] content = null;
+    int recordVersion = 0;
+    byte recordType = 0;
+
+    long pageIndex = pointer.pageIndex;
+    int entryIndex = pointer.entryIndex;
+    int read = 0;
+    boolean hasNextChunk;
+
+    do {
+      final OCacheEntry cacheEntry = loadDataPage(state, pageIndex, atomicOperation);
+      cacheEntry.acquireSharedLock();
+      try {
+        final OAppendOnlyClusterPage dataPage = new OAppendOnlyClusterPage(cacheEntry, getChanges(atomicOperation, cacheEntry));
+        if (content == null) {
+          if (dataPage.isDeleted(entryIndex))
+            return null;
+
+          recordVersion = dataPage.getVersion(entryIndex);
+          recordType = dataPage.getRecordType(entryIndex);
+          content = new byte[dataPage.getRecordSize(entryIndex)];
+        }
+
+        final byte[] chunk = dataPage.getChunk(entryIndex);
+        System.arraycopy(chunk, 0, content, read, chunk.length);
+        read += chunk.length;
+
+        hasNextChunk = dataPage.hasNextChunk(entryIndex);
+      } finally {
+        cacheEntry.releaseSharedLock();
+        releasePage(atomicOperation, cacheEntry);
+      }
+
+      pageIndex++;
+      entryIndex = 0;
+    } while (hasNextChunk);
+
+    byte[] recordContent = compression.uncompress(content);
+    recordContent = encryption.decrypt(recordContent);
+
+    return new ORawBuffer(recordContent, recordVersion, recordType);
+  }
+
+  /**
+   * @return positions of live records of the page which are in the range <code>[from, to]</code>
+   */
+  private long[] readPositions(StateSnapshot state, long pageIndex, long from, long to, OAtomicOperation atomicOperation)
+      throws IOException {
+    final OCacheEntry cacheEntry = loadDataPage(state, pageIndex, atomicOperation);
+    cacheEntry.acquireSharedLock();
+    try {
+      final OAppendOnlyClusterPage dataPage = new OAppendOnlyClusterPage(cacheEntry, getChanges(atomicOperation, cacheEntry));
+      final int entriesCount = dataPage.getEntriesCount();
+
+      final long[] positions = new long[entriesCount];
+      int size = 0;
+
+      for (int i = 0; i < entriesCount; i++) {
+        if (!dataPage.isHead(i) || dataPage.isDeleted(i))
+          continue;
+
+        final long position = dataPage.getPosition(i);
+        if (position >= from && position <= to)
+          positions[size++] = position;
+      }
+
+      return Arrays.copyOf(positions, size);
+    } finally {
+      cacheEntry.releaseSharedLock();
+      releasePage(atomicOperation, cacheEntry);
+    }
+  }
+
+  private StateSnapshot readState(OAtomicOperation atomicOperation) throws IOException {
+    final OCacheEntry stateEntry = loadPage(atomicOperation, stateFileId, STATE_PAGE_INDEX, true);
+    stateEntry.acquireSharedLock();
+    try {
+      return new StateSnapshot(new OAppendOnlyClusterState(stateEntry, getChanges(atomicOperation, stateEntry)));
+    } finally {
+      stateEntry.releaseSharedLock();
+      releasePage(atomicOperation, stateEntry);
+    }
+  }
+
+  private void updateClusterState(long sizeDiff, long recordsSizeDiff, OAtomicOperation atomicOperation) throws IOException {
+    final OCacheEntry stateEntry = loadPage(atomicOperation, stateFileId, STATE_PAGE_INDEX, true);
+    stateEntry.acquireExclusiveLock();
+    try {
+      final OAppendOnlyClusterState state = new OAppendOnlyClusterState(stateEntry, getChanges(atomicOperation, stateEntry));
+      state.setSize(state.getSize() + sizeDiff);
+      state.setRecordsSize(state.getRecordsSize() + recordsSizeDiff);
+    } finally {
+      stateEntry.releaseExclusiveLock();
+      releasePage(atomicOperation, stateEntry);
+    }
+  }
+
+  private void initClusterState(OAtomicOperation atomicOperation) throws IOException {
+    final int segmentPages = Math.max(1, storageLocal.getConfiguration().getContextConfiguration()
+        .getValueAsInteger(OGlobalConfiguration.STORAGE_APPEND_ONLY_CLUSTER_SEGMENT_PAGES));
+
+    final OCacheEntry stateEntry = addPage(atomicOperation, stateFileId);
+    stateEntry.acquireExclusiveLock();
+    try {
+      final OAppendOnlyClusterState state = new OAppendOnlyClusterState(stateEntry, getChanges(atomicOperation, stateEntry));
+
+      pinPage(atomicOperation, stateEntry);
+      state.setSize(0);
+      state.setRecordsSize(0);
+      state.setNextPosition(0);
+      state.setLastRecordPosition(-1);
+      state.setLastTimestamp(0);
+      state.setFirstPage(0);
+      state.setLastPage(-1);
+      state.setSegmentPages(segmentPages);
+    } finally {
+      stateEntry.releaseExclusiveLock();
+      releasePage(atomicOperation, stateEntry);
+    }
+  }
+
+  private void addAtomicOperationMetadata(ORID rid, OAtomicOperation atomicOperation) {
+    if (!addRidMetadata)
+      return;
+
+    if (atomicOperation == null)
+      return;
+
+    ORecordOperationMetadata recordOperationMetadata = (ORecordOperationMetadata) atomicOperation
+        .getMetadata(ORecordOperationMetadata.RID_METADATA_KEY);
+
+    if (recordOperationMetadata == null) {
+      recordOperationMetadata = new ORecordOperationMetadata();
+      atomicOperation.addMetadata(recordOperationMetadata);
+    }
+
+    recordOperationMetadata.addRid(rid);
+  }
+
+  private OPhysicalPosition createPhysicalPosition(final byte recordType, final long clusterPosition, final int version) {
+    final OPhysicalPosition physicalPosition = new OPhysicalPosition();
+    physicalPosition.recordType = recordType;
+    physicalPosition.recordSize = -1;
+    physicalPosition.clusterPosition = clusterPosition;
+    physicalPosition.recordVersion = version;
+    return physicalPosition;
+  }
+
+  private OPhysicalPosition[] convertToPhysicalPositions(long[] clusterPositions) {
+    OPhysicalPosition[] positions = new OPhysicalPosition[clusterPositions.length];
+    for (int i = 0; i < positions.length; i++) {
+      OPhysicalPosition physicalPosition = new OPhysicalPosition();
+      physicalPosition.clusterPosition = clusterPositions[i];
+      positions[i] = physicalPosition;
+    }
+    return positions;
+  }
+
+  private void init(final OAbstractPaginatedStorage storage, final OStorageClusterConfiguration config) throws IOException {
+    OFileUtils.checkValidName(config.getName());
+
+    this.config = (OStoragePaginatedClusterConfiguration) config;
+    this.compression = OCompressionFactory.INSTANCE.getCompression(this.config.compression, null);
+    this.encryption = OEncryptionFactory.INSTANCE.getEncryption(this.config.encryption, this.config.encryptionKey);
+
+    if (((OStoragePaginatedClusterConfiguration) config).conflictStrategy != null)
+      this.recordConflictStrategy = Orient.instance().getRecordConflictStrategy()
+          .getStrategy(((OStoragePaginatedClusterConfiguration) config).conflictStrategy);
+
+    storageLocal = storage;
+
+    this.id = config.getId();
+  }
+
+  private String setRecordConflictStrategy(final String stringValue) {
+    recordConflictStrategy = Orient.instance().getRecordConflictStrategy().getStrategy(stringValue);
+    config.conflictStrategy = stringValue;
+    storageLocal.getConfiguration().update();
+    return recordConflictStrategy == null ? null : recordConflictStrategy.getName();
+  }
+
+  private void setCompressionInternal(final String iCompressionMethod, final String iCompressionOptions) {
+    try {
+      compression = OCompressionFactory.INSTANCE.getCompression(iCompressionMethod, iCompressionOptions);
+      config.compression = iCompressionMethod;
+      storageLocal.getConfiguration().update();
+    } catch (IllegalArgumentException e) {
+      throw OException.wrapException(
+          new OAppendOnlyClusterException("Invalid value for " + OCluster.ATTRIBUTES.COMPRESSION + " attribute", this), e);
+    }
+  }
+
+  private void setEncryptionInternal(final String iMethod, final String iKey) {
+    try {
+      encryption = OEncryptionFactory.INSTANCE.getEncryption(iMethod, iKey);
+      config.encryption = iMethod;
+      storageLocal.getConfiguration().update();
+    } catch (IllegalArgumentException e) {
+      throw OException
+          .wrapException(new OAppendOnlyClusterException("Invalid value for " + ATTRIBUTES.ENCRYPTION + " attribute", this), e);
+    }
+  }
+
+  private void setNameInternal(final String newName) throws IOException {
+    final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+    final StateSnapshot state = readState(atomicOperation);
+
+    for (long segment = state.getFirstSegment(); segment <= state.getLastSegment(); segment++) {
+      final long fileId = getSegmentFileId(atomicOperation, segment);
+      writeCache.renameFile(fileId, getSegmentFileName(getName(), segment), getSegmentFileName(newName, segment));
+    }
+    writeCache.renameFile(stateFileId, getFullName(), newName + getExtension());
+
+    config.name = newName;
+    storageLocal.renameCluster(getName(), newName);
+    setName(newName);
+
+    storageLocal.getConfiguration().update();
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ *
+ *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientechnologies.com
+ *
+ */
+
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import com.orientechnologies.common.serialization.types.OByteSerializer;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWALChanges;
+
+import java.io.IOException;
+
+/**
+ * Data page of {@link OAppendOnlyCluster}. Entries are written one after another from the page header and are never moved, the
+ * offsets of entries are kept in a directory which grows from the end of the page. Entries are ordered by record position, so
+ * an entry is found by binary search over the directory.
+ * <p>
+ * A record which does not fit into the rest of the page is split into chunks, every chunk is written as a separate entry into
+ * the following page. Only the first chunk (head) of a record is looked up by position, so a page may start with the
+ * continuation of a record whose head is stored in the previous page.
+ *
+ * @since 19.05.17
+ */
+public class OAppendOnlyClusterPage extends ODurablePage {
+  private static final int ENTRIES_COUNT_OFFSET = NEXT_FREE_POSITION;
+  private static final int FREE_POSITION_OFFSET = ENTRIES_COUNT_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int RECORDS_COUNT_OFFSET = FREE_POSITION_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int RECORDS_SIZE_OFFSET  = RECORDS_COUNT_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int ENTRIES_OFFSET       = RECORDS_SIZE_OFFSET + OLongSerializer.LONG_SIZE;
+
+  private static final int ENTRY_POSITION_OFFSET    = 0;
+  private static final int ENTRY_TIMESTAMP_OFFSET   = ENTRY_POSITION_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int ENTRY_VERSION_OFFSET     = ENTRY_TIMESTAMP_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int ENTRY_TYPE_OFFSET        = ENTRY_VERSION_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int ENTRY_FLAGS_OFFSET       = ENTRY_TYPE_OFFSET + OByteSerializer.BYTE_SIZE;
+  private static final int ENTRY_RECORD_SIZE_OFFSET = ENTRY_FLAGS_OFFSET + OByteSerializer.BYTE_SIZE;
+  private static final int ENTRY_CHUNK_SIZE_OFFSET  = ENTRY_RECORD_SIZE_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int ENTRY_HEADER_SIZE        = ENTRY_CHUNK_SIZE_OFFSET + OIntegerSerializer.INT_SIZE;
+
+  public static final byte CONTINUATION_FLAG = 1;
+  public static final byte NEXT_CHUNK_FLAG   = 2;
+  public static final byte DELETED_FLAG      = 4;
+
+  /**
+   * Maximum size of a chunk which is stored in an empty page.
+   */
+  public static final int MAX_CHUNK_SIZE = MAX_PAGE_SIZE_BYTES - ENTRIES_OFFSET - ENTRY_HEADER_SIZE - OIntegerSerializer.INT_SIZE;
+
+  public OAppendOnlyClusterPage(OCacheEntry cacheEntry, OWALChanges changes) {
+    super(cacheEntry, changes);
+  }
+
+  public void init() throws IOException {
+    setIntValue(ENTRIES_COUNT_OFFSET, 0);
+    setIntValue(FREE_POSITION_OFFSET, ENTRIES_OFFSET);
+    setIntValue(RECORDS_COUNT_OFFSET, 0);
+    setLongValue(RECORDS_SIZE_OFFSET, 0);
+  }
+
+  public int getEntriesCount() {
+    return getIntValue(ENTRIES_COUNT_OFFSET);
+  }
+
+  /**
+   * @return maximum size of a chunk which still fits into the page, negative if even an empty chunk does not fit
+   */
+  public int getFreeChunkSpace() {
+    final int directoryStart = MAX_PAGE_SIZE_BYTES - getEntriesCount() * OIntegerSerializer.INT_SIZE;
+    return directoryStart - getIntValue(FREE_POSITION_OFFSET) - ENTRY_HEADER_SIZE - OIntegerSerializer.INT_SIZE;
+  }
+
+  /**
+   * Appends a chunk of a record, the caller guarantees that it fits into the page, see {@link #getFreeChunkSpace()}.
+   *
+   * @return index of the added entry
+   */
+  public int appendEntry(long position, long timestamp, int version, byte recordType, byte flags, int recordSize, byte[] chunk)
+      throws IOException {
+    final int entriesCount = getEntriesCount();
+    final int entryOffset = getIntValue(FREE_POSITION_OFFSET);
+
+    setLongValue(entryOffset + ENTRY_POSITION_OFFSET, position);
+    setLongValue(entryOffset + ENTRY_TIMESTAMP_OFFSET, timestamp);
+    setIntValue(entryOffset + ENTRY_VERSION_OFFSET, version);
+    setByteValue(entryOffset + ENTRY_TYPE_OFFSET, recordType);
+    setByteValue(entryOffset + ENTRY_FLAGS_OFFSET, flags);
+    setIntValue(entryOffset + ENTRY_RECORD_SIZE_OFFSET, recordSize);
+    setIntValue(entryOffset + ENTRY_CHUNK_SIZE_OFFSET, chunk.length);
+    setBinaryValue(entryOffset + ENTRY_HEADER_SIZE, chunk);
+
+    setIntValue(directoryOffset(entriesCount), entryOffset);
+    setIntValue(FREE_POSITION_OFFSET, entryOffset + ENTRY_HEADER_SIZE + chunk.length);
+    setIntValue(ENTRIES_COUNT_OFFSET, entriesCount + 1);
+
+    return entriesCount;
+  }
+
+  /**
+   * Finds the head entry of the record with the given position.
+   *
+   * @return index of the entry or <code>-1</code> if the head of the record is not stored in the page
+   */
+  public int findHead(long position) {
+    int low = 0;
+    int high = getEntriesCount() - 1;
+
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final long middlePosition = getPosition(middle);
+
+      if (middlePosition < position)
+        low = middle + 1;
+      else if (middlePosition > position)
+        high = middle - 1;
+      else
+        return isHead(middle) ? middle : -1;
+    }
+
+    return -1;
+  }
+
+  public long getPosition(int index) {
+    return getLongValue(entryOffset(index) + ENTRY_POSITION_OFFSET);
+  }
+
+  public long getTimestamp(int index) {
+    return getLongValue(entryOffset(index) + ENTRY_TIMESTAMP_OFFSET);
+  }
+
+  public int getVersion(int index) {
+    return getIntValue(entryOffset(index) + ENTRY_VERSION_OFFSET);
+  }
+
+  public byte getRecordType(int index) {
+    return getByteValue(entryOffset(index) + ENTRY_TYPE_OFFSET);
+  }
+
+  public int getRecordSize(int index) {
+    return getIntValue(entryOffset(index) + ENTRY_RECORD_SIZE_OFFSET);
+  }
+
+  public byte[] getChunk(int index) {
+    final int entryOffset = entryOffset(index);
+    return getBinaryValue(entryOffset + ENTRY_HEADER_SIZE, getIntValue(entryOffset + ENTRY_CHUNK_SIZE_OFFSET));
+  }
+
+  public boolean isHead(int index) {
+    return (getFlags(index) & CONTINUATION_FLAG) == 0;
+  }
+
+  public boolean hasNextChunk(int index) {
+    return (getFlags(index) & NEXT_CHUNK_FLAG) != 0;
+  }
+
+  public boolean isDeleted(int index) {
+    return (getFlags(index) & DELETED_FLAG) != 0;
+  }
+
+  public void markDeleted(int index) {
+    final int entryOffset = entryOffset(index);
+    setByteValue(entryOffset + ENTRY_FLAGS_OFFSET, (byte) (getByteValue(entryOffset + ENTRY_FLAGS_OFFSET) | DELETED_FLAG));
+  }
+
+  /**
+   * Number of live records whose head is stored in the page.
+   */
+  public int getRecordsCount() {
+    return getIntValue(RECORDS_COUNT_OFFSET);
+  }
+
+  /**
+   * Total size of live records whose head is stored in the page, chunks stored in other pages included.
+   */
+  public long getRecordsSize() {
+    return getLongValue(RECORDS_SIZE_OFFSET);
+  }
+
+  public void updateRecords(int countDiff, long sizeDiff) throws IOException {
+    setIntValue(RECORDS_COUNT_OFFSET, getRecordsCount() + countDiff);
+    setLongValue(RECORDS_SIZE_OFFSET, getRecordsSize() + sizeDiff);
+  }
+
+  private byte getFlags(int index) {
+    return getByteValue(entryOffset(index) + ENTRY_FLAGS_OFFSET);
+  }
+
+  private int entryOffset(int index) {
+    return getIntValue(directoryOffset(index));
+  }
+
+  private static int directoryOffset(int index) {
+    return MAX_PAGE_SIZE_BYTES - (index + 1) * OIntegerSerializer.INT_SIZE;
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ *
+ *  *  Copyright 2014 Orient Technologies LTD (info(at)orientechnologies.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientechnologies.com
+ *
+ */
+
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWALChanges;
+
+import java.io.IOException;
+
+/**
+ * State of {@link OAppendOnlyCluster}. Data pages of the cluster are numbered globally, page <code>n</code> is stored in segment
+ * <code>n / segmentPages</code>, so the range of live pages is enough to find every segment file of the cluster.
+ *
+ * @since 19.05.17
+ */
+public class OAppendOnlyClusterState extends ODurablePage {
+  private static final int SIZE_OFFSET                 = NEXT_FREE_POSITION;
+  private static final int RECORDS_SIZE_OFFSET         = SIZE_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int NEXT_POSITION_OFFSET        = RECORDS_SIZE_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int LAST_RECORD_POSITION_OFFSET = NEXT_POSITION_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int LAST_TIMESTAMP_OFFSET       = LAST_RECORD_POSITION_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int FIRST_PAGE_OFFSET           = LAST_TIMESTAMP_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int LAST_PAGE_OFFSET            = FIRST_PAGE_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int SEGMENT_PAGES_OFFSET        = LAST_PAGE_OFFSET + OLongSerializer.LONG_SIZE;
+
+  public OAppendOnlyClusterState(OCacheEntry cacheEntry, OWALChanges changes) {
+    super(cacheEntry, changes);
+  }
+
+  public void setSize(long size) throws IOException {
+    setLongValue(SIZE_OFFSET, size);
+  }
+
+  public long getSize() {
+    return getLongValue(SIZE_OFFSET);
+  }
+
+  public void setRecordsSize(long recordsSize) throws IOException {
+    setLongValue(RECORDS_SIZE_OFFSET, recordsSize);
+  }
+
+  public long getRecordsSize() {
+    return getLongValue(RECORDS_SIZE_OFFSET);
+  }
+
+  /**
+   * Position which is assigned to the next allocated or created record.
+   */
+  public void setNextPosition(long nextPosition) throws IOException {
+    setLongValue(NEXT_POSITION_OFFSET, nextPosition);
+  }
+
+  public long getNextPosition() {
+    return getLongValue(NEXT_POSITION_OFFSET);
+  }
+
+  /**
+   * Position of the last record appended to the cluster, <code>-1</code> if none was appended.
+   */
+  public void setLastRecordPosition(long lastRecordPosition) throws IOException {
+    setLongValue(LAST_RECORD_POSITION_OFFSET, lastRecordPosition);
+  }
+
+  public long getLastRecordPosition() {
+    return getLongValue(LAST_RECORD_POSITION_OFFSET);
+  }
+
+  public void setLastTimestamp(long lastTimestamp) throws IOException {
+    setLongValue(LAST_TIMESTAMP_OFFSET, lastTimestamp);
+  }
+
+  public long getLastTimestamp() {
+    return getLongValue(LAST_TIMESTAMP_OFFSET);
+  }
+
+  /**
+   * Index of the first live data page, it is always the first page of a segment.
+   */
+  public void setFirstPage(long firstPage) throws IOException {
+    setLongValue(FIRST_PAGE_OFFSET, firstPage);
+  }
+
+  public long getFirstPage() {
+    return getLongValue(FIRST_PAGE_OFFSET);
+  }
+
+  /**
+   * Index of the page records are appended to, the cluster has no data pages if it is less than the first page.
+   */
+  public void setLastPage(long lastPage) throws IOException {
+    setLongValue(LAST_PAGE_OFFSET, lastPage);
+  }
+
+  public long getLastPage() {
+    return getLongValue(LAST_PAGE_OFFSET);
+  }
+
+  public void setSegmentPages(int segmentPages) throws IOException {
+    setIntValue(SEGMENT_PAGES_OFFSET, segmentPages);
+  }
+
+  public int getSegmentPages() {
+    return getIntValue(SEGMENT_PAGES_OFFSET);
+  }
+}
@@ -377,6 +377,13 @@ public class OClusterPositionMap extends ODurableComponent {
     }
   }
 
+  /**
+   * Notifies read ahead engine that entry of given cluster position is going to be read by cluster scan.
+   */
+  public void readAheadEntry(final long clusterPosition) {
+    readAhead(fileId, clusterPosition / OClusterPositionMapBucket.MAX_ENTRIES);
+  }
+
   public OClusterPositionMapBucket.PositionEntry get(final long clusterPosition, final int pageCount) throws IOException {
     startOperation();
     try {
@@ -39,6 +39,7 @@ import com.orientechnologies.orient.core.index.engine.OHashTableIndexEngine;
 import com.orientechnologies.orient.core.index.engine.OSBTreeIndexEngine;
 import com.orientechnologies.orient.core.metadata.OMetadataDefault;
 import com.orientechnologies.orient.core.storage.cache.OReadCache;
+import com.orientechnologies.orient.core.storage.cache.local.OReadAheadEngine;
 import com.orientechnologies.orient.core.storage.cache.local.OWOWCache;
 import com.orientechnologies.orient.core.storage.cache.local.twoq.O2QCache;
 import com.orientechnologies.orient.core.storage.fs.OFileClassic;
@@ -68,7 +69,8 @@ public class OLocalPaginatedStorage extends OAbstractPaginatedStorage implements
       ".fl", ".json", ".DS_Store", ODiskWriteAheadLog.WAL_SEGMENT_EXTENSION, ODiskWriteAheadLog.MASTER_RECORD_EXTENSION,
       OHashTableIndexEngine.BUCKET_FILE_EXTENSION, OHashTableIndexEngine.METADATA_FILE_EXTENSION,
       OHashTableIndexEngine.TREE_FILE_EXTENSION, OHashTableIndexEngine.NULL_BUCKET_FILE_EXTENSION,
-      OClusterPositionMap.DEF_EXTENSION, OSBTreeIndexEngine.DATA_FILE_EXTENSION, OWOWCache.NAME_ID_MAP_EXTENSION,
+      OClusterPositionMap.DEF_EXTENSION, OAppendOnlyCluster.DEF_EXTENSION, OAppendOnlyCluster.SEGMENT_EXTENSION,
+      OSBTreeIndexEngine.DATA_FILE_EXTENSION, OWOWCache.NAME_ID_MAP_EXTENSION,
       OIndexRIDContainer.INDEX_FILE_EXTENSION, OSBTreeCollectionManagerShared.DEFAULT_EXTENSION,
       OSBTreeIndexEngine.NULL_BUCKET_FILE_EXTENSION, O2QCache.CACHE_STATISTIC_FILE_EXTENSION };
 
@@ -426,6 +428,13 @@ public class OLocalPaginatedStorage extends OAbstractPaginatedStorage implements
 
   @Override
   protected void postCloseSteps(boolean onDelete) throws IOException {
+    if (writeCache instanceof OWOWCache)
+      try {
+        ((OWOWCache) writeCache).unregisterMBean();
+      } catch (Exception e) {
+        OLogManager.instance().error(this, "MBean for write cache cannot be unregistered", e);
+      }
+
     if (onDelete)
       dirtyFlag.delete();
     else {
@@ -583,7 +592,21 @@ public class OLocalPaginatedStorage extends OAbstractPaginatedStorage implements
     wowCache.addLowDiskSpaceListener(this);
     wowCache.addBackgroundExceptionListener(this);
 
+    try {
+      wowCache.registerMBean();
+    } catch (Exception e) {
+      OLogManager.instance().error(this, "MBean for write cache cannot be registered", e);
+    }
+
     writeCache = wowCache;
+
+    if (OGlobalConfiguration.DISK_CACHE_READ_AHEAD_ENABLED.getValueAsBoolean())
+      readAheadEngine = new OReadAheadEngine(getName(), readCache, writeCache,
+          OGlobalConfiguration.DISK_CACHE_READ_AHEAD_MIN_PAGES.getValueAsInteger(),
+          OGlobalConfiguration.DISK_CACHE_READ_AHEAD_MAX_PAGES.getValueAsInteger(),
+          OGlobalConfiguration.DISK_CACHE_READ_AHEAD_THREADS.getValueAsInteger());
+    else
+      readAheadEngine = null;
   }
 
   public static boolean exists(final String path) {
@@ -24,6 +24,7 @@ import com.orientechnologies.common.serialization.types.OLongSerializer;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.compression.OCompression;
 import com.orientechnologies.orient.core.compression.OCompressionFactory;
+import com.orientechnologies.orient.core.compression.impl.ODictionaryCompression;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageClusterConfiguration;
@@ -48,6 +49,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.orientechnologies.orient.core.config.OGlobalConfiguration.DISK_CACHE_PAGE_SIZE;
@@ -71,10 +73,11 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
   public static final  String DEF_EXTENSION            = ".pcl";
   private static final int    DISK_PAGE_SIZE           = DISK_CACHE_PAGE_SIZE.getValueAsInteger();
   private static final int    LOWEST_FREELIST_BOUNDARY = PAGINATED_STORAGE_LOWEST_FREELIST_BOUNDARY.getValueAsInteger();
-  private final static int    FREE_LIST_SIZE           = DISK_PAGE_SIZE - LOWEST_FREELIST_BOUNDARY;
+  final static int            FREE_LIST_SIZE           = DISK_PAGE_SIZE - LOWEST_FREELIST_BOUNDARY;
   private static final int    PAGE_INDEX_OFFSET        = 16;
   private static final int    RECORD_POSITION_MASK     = 0xFFFF;
   private static final int    ONE_KB                   = 1024;
+  private static final int    DICTIONARY_SAMPLE_SIZE   = 2 * ONE_KB;
 
   private volatile OCompression                          compression;
   private volatile OEncryption                           encryption;
@@ -86,6 +89,8 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
   private          OStoragePaginatedClusterConfiguration config;
   private          long                                  pinnedStateEntryIndex;
   private          ORecordConflictStrategy               recordConflictStrategy;
+  private final    List<byte[]>                          dictionarySamples = new ArrayList<byte[]>();
+  private volatile boolean                               dictionaryWritten;
 
   private static final class AddEntryResult {
     private final long pageIndex;
@@ -222,6 +227,8 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
           releasePage(atomicOperation, pinnedStateEntry);
         }
 
+        loadCompressionDictionary(atomicOperation);
+
         clusterPositionMap.open();
       } finally {
         releaseExclusiveLock();
@@ -336,6 +343,7 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
           setCompressionInternal(stringValue,
               ODatabaseRecordThreadLocal.INSTANCE.get().getStorage().getConfiguration().getContextConfiguration()
                   .getValueAsString(OGlobalConfiguration.STORAGE_ENCRYPTION_KEY));
+          loadCompressionDictionary(atomicOperationsManager.getCurrentOperation());
           break;
         case CONFLICTSTRATEGY:
           return setRecordConflictStrategy(stringValue);
@@ -444,6 +452,8 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
     if (statistic != null)
       statistic.startRecordCreationTimer();
     try {
+      addCompressionDictionarySample(content);
+
       content = compression.compress(content);
       content = encryption.encrypt(content);
 
@@ -463,6 +473,8 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
 
         addAtomicOperationMetadata(new ORecordId(id, clusterPosition), atomicOperation);
 
+        trainCompressionDictionary(atomicOperation);
+
         endAtomicOperation(false, null);
 
         return createPhysicalPosition(recordType, clusterPosition, recordCreationResult.recordVersion);
@@ -639,13 +651,17 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
   public ORawBuffer readRecord(final long clusterPosition, boolean prefetchRecords) throws IOException {
     int pagesCount = 1;
     if (prefetchRecords) {
+      //pages are loaded by background threads, so there is no need to load them synchronously
+      if (storage.getReadAheadEngine() != null)
+        return readRecord(clusterPosition, 1, true);
+
       pagesCount = OGlobalConfiguration.QUERY_SCAN_PREFETCH_PAGES.getValueAsInteger();
     }
 
-    return readRecord(clusterPosition, pagesCount);
+    return readRecord(clusterPosition, pagesCount, false);
   }
 
-  private ORawBuffer readRecord(final long clusterPosition, final int pageCount) throws IOException {
+  private ORawBuffer readRecord(final long clusterPosition, final int pageCount, final boolean readAhead) throws IOException {
     startOperation();
     OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
     if (statistic != null)
@@ -655,6 +671,9 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
       try {
         acquireSharedLock();
         try {
+          if (readAhead)
+            clusterPositionMap.readAheadEntry(clusterPosition);
+
           final OClusterPositionMapBucket.PositionEntry positionEntry = clusterPositionMap.get(clusterPosition, pageCount);
           if (positionEntry == null)
             return null;
@@ -663,6 +682,9 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
             // ALLOCATED
             return null;
 
+          if (readAhead)
+            readAhead(fileId, positionEntry.getPageIndex());
+
           return readRecordBuffer(clusterPosition, pageCount, positionEntry);
         } finally {
           releaseSharedLock();
@@ -1226,10 +1248,15 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
 
       acquireExclusiveLock();
       try {
+        // the dictionary is kept, new records of the cluster are alike the removed ones
+        final byte[] dictionary = getCompressionDictionary();
+
         truncateFile(atomicOperation, fileId);
         clusterPositionMap.truncate();
 
         pinnedStateEntryIndex = initCusterState(fileId, atomicOperation);
+        if (dictionary != null)
+          writeCompressionDictionary(fileId, pinnedStateEntryIndex, dictionary, atomicOperation);
 
         endAtomicOperation(false, null);
 
@@ -1262,6 +1289,10 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
         newFileId = addFile(atomicOperation, getName() + DEF_EXTENSION + "t");
         newStateIndex = initCusterState(newFileId, atomicOperation);
 
+        final byte[] dictionary = getCompressionDictionary();
+        if (dictionary != null)
+          writeCompressionDictionary(newFileId, newStateIndex, dictionary, atomicOperation);
+
         endAtomicOperation(false, null);
       } catch (RuntimeException e) {
         endAtomicOperation(true, e);
@@ -1293,7 +1324,9 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
             if (buffer == null)
               throw new IllegalStateException("Can not add records to new file during data compaction");
 
-            recordCreationResults[i] = createDataRecord(newFileId, newStateIndex, buffer.buffer, buffer.version, buffer.recordType,
+            // the read content is uncompressed and decrypted, so it has to be encoded again
+            final byte[] content = encryption.encrypt(compression.compress(buffer.buffer));
+            recordCreationResults[i] = createDataRecord(newFileId, newStateIndex, content, buffer.version, buffer.recordType,
                 atomicOperation);
           }
 
@@ -1716,6 +1749,105 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
     }
   }
 
+  private byte[] getCompressionDictionary() {
+    final OCompression compression = this.compression;
+    if (compression instanceof ODictionaryCompression)
+      return ((ODictionaryCompression) compression).getDictionary();
+
+    return null;
+  }
+
+  private void loadCompressionDictionary(OAtomicOperation atomicOperation) throws IOException {
+    final OCompression compression = this.compression;
+    if (compression instanceof ODictionaryCompression)
+      ((ODictionaryCompression) compression)
+          .setDictionary(readCompressionDictionary(fileId, pinnedStateEntryIndex, atomicOperation));
+
+    dictionaryWritten = false;
+    synchronized (dictionarySamples) {
+      dictionarySamples.clear();
+    }
+  }
+
+  private void addCompressionDictionarySample(byte[] content) {
+    final OCompression compression = this.compression;
+    if (!(compression instanceof ODictionaryCompression) || ((ODictionaryCompression) compression).getDictionary() != null)
+      return;
+
+    synchronized (dictionarySamples) {
+      if (dictionarySamples.size() < OGlobalConfiguration.STORAGE_COMPRESSION_DICTIONARY_TRAINING_RECORDS.getValueAsInteger())
+        dictionarySamples.add(Arrays.copyOf(content, Math.min(content.length, DICTIONARY_SAMPLE_SIZE)));
+    }
+  }
+
+  /**
+   * Trains the compression dictionary once enough records are sampled and stores it in the cluster state page. The dictionary is
+   * used for compression only when the atomic operation which stored it is committed, it is checked by reading the state page
+   * outside of the atomic operation during the next record creation. Otherwise records compressed with the dictionary would become
+   * unreadable if the operation was rolled back.
+   */
+  private void trainCompressionDictionary(OAtomicOperation atomicOperation) throws IOException {
+    final OCompression compression = this.compression;
+    if (!(compression instanceof ODictionaryCompression))
+      return;
+
+    final ODictionaryCompression dictionaryCompression = (ODictionaryCompression) compression;
+    if (dictionaryCompression.getDictionary() != null)
+      return;
+
+    if (dictionaryWritten) {
+      final byte[] committedDictionary = readCompressionDictionary(fileId, pinnedStateEntryIndex, null);
+      if (committedDictionary != null) {
+        dictionaryCompression.setDictionary(committedDictionary);
+        dictionaryWritten = false;
+        return;
+      }
+    }
+
+    final List<byte[]> samples;
+    synchronized (dictionarySamples) {
+      if (dictionarySamples.isEmpty()
+          || dictionarySamples.size() < OGlobalConfiguration.STORAGE_COMPRESSION_DICTIONARY_TRAINING_RECORDS.getValueAsInteger())
+        return;
+
+      samples = new ArrayList<byte[]>(dictionarySamples);
+      dictionarySamples.clear();
+    }
+
+    final byte[] dictionary = ODictionaryCompression.train(samples,
+        Math.min(OGlobalConfiguration.STORAGE_COMPRESSION_DICTIONARY_SIZE.getValueAsInteger(),
+            OPaginatedClusterState.MAX_DICTIONARY_SIZE));
+    if (dictionary == null)
+      return;
+
+    writeCompressionDictionary(fileId, pinnedStateEntryIndex, dictionary, atomicOperation);
+    dictionaryWritten = true;
+  }
+
+  private byte[] readCompressionDictionary(long fileId, long pinnedStateEntryIndex, OAtomicOperation atomicOperation)
+      throws IOException {
+    final OCacheEntry pinnedStateEntry = loadPage(atomicOperation, fileId, pinnedStateEntryIndex, true);
+    pinnedStateEntry.acquireSharedLock();
+    try {
+      return new OPaginatedClusterState(pinnedStateEntry, getChanges(atomicOperation, pinnedStateEntry)).getDictionary();
+    } finally {
+      pinnedStateEntry.releaseSharedLock();
+      releasePage(atomicOperation, pinnedStateEntry);
+    }
+  }
+
+  private void writeCompressionDictionary(long fileId, long pinnedStateEntryIndex, byte[] dictionary,
+      OAtomicOperation atomicOperation) throws IOException {
+    final OCacheEntry pinnedStateEntry = loadPage(atomicOperation, fileId, pinnedStateEntryIndex, true);
+    pinnedStateEntry.acquireExclusiveLock();
+    try {
+      new OPaginatedClusterState(pinnedStateEntry, getChanges(atomicOperation, pinnedStateEntry)).setDictionary(dictionary);
+    } finally {
+      pinnedStateEntry.releaseExclusiveLock();
+      releasePage(atomicOperation, pinnedStateEntry);
+    }
+  }
+
   private void init(final OAbstractPaginatedStorage storage, final OStorageClusterConfiguration config) throws IOException {
     OFileUtils.checkValidName(config.getName());
 
@@ -2128,6 +2260,8 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
       for (int i = 0; i < FREE_LIST_SIZE; i++)
         paginatedClusterState.setFreeListPage(i, -1);
 
+      paginatedClusterState.setDictionary(null);
+
       return pinnedStateEntry.getPageIndex();
     } finally {
       pinnedStateEntry.releaseExclusiveLock();
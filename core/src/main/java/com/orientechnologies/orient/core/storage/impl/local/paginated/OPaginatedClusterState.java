@@ -20,7 +20,9 @@
 
 package com.orientechnologies.orient.core.storage.impl.local.paginated;
 
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.compression.impl.ODictionaryCompression;
 import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWALChanges;
@@ -35,6 +37,13 @@ public class OPaginatedClusterState extends ODurablePage {
   private static final int RECORDS_SIZE_OFFSET = NEXT_FREE_POSITION;
   private static final int SIZE_OFFSET         = RECORDS_SIZE_OFFSET + OLongSerializer.LONG_SIZE;
   private static final int FREE_LIST_OFFSET    = SIZE_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int DICTIONARY_OFFSET   = FREE_LIST_OFFSET + OPaginatedCluster.FREE_LIST_SIZE * OLongSerializer.LONG_SIZE;
+
+  /**
+   * Maximum size of the compression dictionary which fits into the rest of the state page.
+   */
+  public static final int MAX_DICTIONARY_SIZE = Math.min(ODictionaryCompression.MAX_DICTIONARY_SIZE,
+      MAX_PAGE_SIZE_BYTES - DICTIONARY_OFFSET - OIntegerSerializer.INT_SIZE);
 
   public OPaginatedClusterState(OCacheEntry cacheEntry, OWALChanges changes) {
     super(cacheEntry, changes);
@@ -63,4 +72,30 @@ public class OPaginatedClusterState extends ODurablePage {
   public long getFreeListPage(int index) {
     return getLongValue(FREE_LIST_OFFSET + index * OLongSerializer.LONG_SIZE);
   }
+
+  /**
+   * Stores the compression dictionary of the cluster, <code>null</code> removes it. Pages of clusters created before the
+   * dictionary was introduced are zero filled at this offset, so they read as clusters without a dictionary.
+   */
+  public void setDictionary(byte[] dictionary) throws IOException {
+    if (dictionary == null) {
+      setIntValue(DICTIONARY_OFFSET, 0);
+      return;
+    }
+
+    if (dictionary.length > MAX_DICTIONARY_SIZE)
+      throw new IllegalArgumentException(
+          "Dictionary size " + dictionary.length + " exceeds maximum allowed size " + MAX_DICTIONARY_SIZE);
+
+    setIntValue(DICTIONARY_OFFSET, dictionary.length);
+    setBinaryValue(DICTIONARY_OFFSET + OIntegerSerializer.INT_SIZE, dictionary);
+  }
+
+  public byte[] getDictionary() {
+    final int size = getIntValue(DICTIONARY_OFFSET);
+    if (size <= 0 || size > MAX_DICTIONARY_SIZE)
+      return null;
+
+    return getBinaryValue(DICTIONARY_OFFSET + OIntegerSerializer.INT_SIZE, size);
+  }
 }
@@ -48,6 +48,7 @@ public class OAtomicOperation {
 
   private final int                storageId;
   private final OLogSequenceNumber startLSN;
+  private       OLogSequenceNumber endLSN;
   private final OOperationUnitId   operationUnitId;
 
   private int       startCounter;
@@ -85,6 +86,18 @@ public class OAtomicOperation {
     return startLSN;
   }
 
+  /**
+   * @return LSN of end record of committed operation, or <code>null</code> if operation is not completed yet, was rolled back or
+   * WAL is not used.
+   */
+  public OLogSequenceNumber getEndLSN() {
+    return endLSN;
+  }
+
+  void setEndLSN(OLogSequenceNumber endLSN) {
+    this.endLSN = endLSN;
+  }
+
   public OOperationUnitId getOperationUnitId() {
     return operationUnitId;
   }
@@ -23,6 +23,7 @@ package com.orientechnologies.orient.core.storage.impl.local.paginated.atomicope
 import com.orientechnologies.common.concur.lock.ODistributedCounter;
 import com.orientechnologies.common.concur.lock.OInterruptedException;
 import com.orientechnologies.common.concur.lock.OOneEntryPerKeyLockManager;
+import com.orientechnologies.common.concur.lock.OSeqLock;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.util.OPair;
@@ -49,9 +50,11 @@ import java.io.StringWriter;
 import java.lang.management.ManagementFactory;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -118,6 +121,14 @@ public class OAtomicOperationsManager implements OAtomicOperationsMangerMXBean {
   private final OWriteAheadLog            writeAheadLog;
   private final OOneEntryPerKeyLockManager<String> lockManager = new OOneEntryPerKeyLockManager<String>(true, -1,
       OGlobalConfiguration.COMPONENTS_LOCK_CACHE.getValueAsInteger());
+
+  /**
+   * Sequence locks of components which are changed when atomic operation which holds exclusive lock of component applies its
+   * changes to the pages of component, they allow to read component data without acquiring of read lock, see {@link
+   * #tryOptimisticRead(ODurableComponent)}. Only components which are read optimistically register their locks, see {@link
+   * #registerComponentSeqLock(ODurableComponent)}, locks are removed once components are closed or deleted.
+   */
+  private final ConcurrentMap<String, OSeqLock> componentSeqLocks = new ConcurrentHashMap<String, OSeqLock>();
   private final OReadCache  readCache;
   private final OWriteCache writeCache;
 
@@ -415,6 +426,19 @@ public class OAtomicOperationsManager implements OAtomicOperationsMangerMXBean {
   }
 
   public OAtomicOperation endAtomicOperation(boolean rollback, Exception exception, String lockName) throws IOException {
+    final OAtomicOperation operation = endAtomicOperationWithoutFlushWait(rollback, exception, lockName);
+    waitTillCommitted(operation);
+
+    return operation;
+  }
+
+  /**
+   * Ends atomic operation, but unlike {@link #endAtomicOperation(boolean, Exception, String)} does not wait till end record of
+   * operation is flushed by group commit of WAL. Caller should call {@link #waitTillCommitted(OAtomicOperation)} once all locks
+   * which protect changes of operation are released, so failure of the flush is reported after changes are already applied.
+   */
+  public OAtomicOperation endAtomicOperationWithoutFlushWait(boolean rollback, Exception exception, String lockName)
+      throws IOException {
     final OAtomicOperation operation = currentOperation.get();
     assert operation != null;
 
@@ -464,11 +488,29 @@ public class OAtomicOperationsManager implements OAtomicOperationsMangerMXBean {
     if (counter == 1) {
       final boolean useWal = useWal();
 
-      if (!operation.isRollback())
-        operation.commitChanges(useWal ? writeAheadLog : null);
+      if (!operation.isRollback()) {
+        // till this moment all changes are kept inside of atomic operation and optimistic readers see last committed state of
+        // components, so they are blocked only for the time of applying of changes to the pages
+        final List<OSeqLock> seqLocks = new ArrayList<OSeqLock>();
+        for (String lockObject : operation.lockedObjects()) {
+          final OSeqLock seqLock = componentSeqLocks.get(lockObject);
+          if (seqLock != null) {
+            seqLock.beginWrite();
+            seqLocks.add(seqLock);
+          }
+        }
 
+        try {
+          operation.commitChanges(useWal ? writeAheadLog : null);
+        } finally {
+          for (OSeqLock seqLock : seqLocks)
+            seqLock.endWrite();
+        }
+      }
+
+      OLogSequenceNumber endLsn = null;
       if (useWal)
-        writeAheadLog.logAtomicOperationEndRecord(operation.getOperationUnitId(), rollback, operation.getStartLSN(),
+        endLsn = writeAheadLog.logAtomicOperationEndRecord(operation.getOperationUnitId(), rollback, operation.getStartLSN(),
             operation.getMetadata());
 
       // We have to decrement the counter after the disk operations, otherwise, if they
@@ -480,16 +522,30 @@ public class OAtomicOperationsManager implements OAtomicOperationsMangerMXBean {
         activeAtomicOperations.remove(operation.getOperationUnitId());
       }
 
-      for (String lockObject : operation.lockedObjects())
+      for (String lockObject : operation.lockedObjects()) {
         lockManager.releaseLock(this, lockObject, OOneEntryPerKeyLockManager.LOCK.EXCLUSIVE);
+      }
 
       atomicOperationsCount.decrement();
+
+      if (!rollback)
+        operation.setEndLSN(endLsn);
     } else
       operation.decrementCounter();
 
     return operation;
   }
 
+  /**
+   * Blocks till end record of completed atomic operation is flushed to the disk if group commit is enabled. Should be called after
+   * locks are released, so other operations may be committed in the same flush.
+   */
+  public void waitTillCommitted(OAtomicOperation operation) {
+    final OLogSequenceNumber endLsn = operation.getEndLSN();
+    if (endLsn != null)
+      writeAheadLog.waitTillCommitted(endLsn);
+  }
+
   /**
    * Acquires exclusive lock with the given lock name in the given atomic operation.
    *
@@ -526,6 +582,55 @@ public class OAtomicOperationsManager implements OAtomicOperationsMangerMXBean {
     lockManager.releaseLock(this, durableComponent.getLockName(), OOneEntryPerKeyLockManager.LOCK.SHARED);
   }
 
+  /**
+   * Starts optimistic read of the component, which unlike {@link #acquireReadLock(ODurableComponent)} does not modify any shared
+   * state. Data read after this call are consistent only if {@link #validateOptimisticRead(ODurableComponent, long)} returns
+   * <code>true</code> for the returned stamp, otherwise they have to be discarded and read again.
+   * <p>
+   * Optimistic read can not be used inside of atomic operation, because changes of atomic operation are not visible to it. Because
+   * changes of atomic operation are applied to the pages only at the end of operation, optimistic read is not blocked while
+   * component is locked by atomic operation, but pages of component still may be locked exclusively during this time.
+   *
+   * @return stamp of the read or <code>-1</code> if component is modified by atomic operation at the moment or sequence lock of
+   * component is not registered.
+   */
+  public long tryOptimisticRead(ODurableComponent durableComponent) {
+    assert durableComponent.getLockName() != null;
+
+    final OSeqLock seqLock = componentSeqLocks.get(durableComponent.getLockName());
+    if (seqLock == null)
+      return -1;
+
+    return seqLock.tryOptimisticRead();
+  }
+
+  public boolean validateOptimisticRead(ODurableComponent durableComponent, long stamp) {
+    assert durableComponent.getLockName() != null;
+
+    final OSeqLock seqLock = componentSeqLocks.get(durableComponent.getLockName());
+    return seqLock != null && seqLock.validate(stamp);
+  }
+
+  /**
+   * Registers sequence lock of the component, so component may be read optimistically. Should be called when component is created
+   * or loaded, before it is read by other threads.
+   */
+  public void registerComponentSeqLock(ODurableComponent durableComponent) {
+    assert durableComponent.getLockName() != null;
+
+    componentSeqLocks.putIfAbsent(durableComponent.getLockName(), new OSeqLock());
+  }
+
+  /**
+   * Removes sequence lock of the component when component is closed or deleted, optimistic reads of the component fail after this
+   * call.
+   */
+  public void unregisterComponentSeqLock(ODurableComponent durableComponent) {
+    assert durableComponent.getLockName() != null;
+
+    componentSeqLocks.remove(durableComponent.getLockName());
+  }
+
   public void registerMBean() {
     if (mbeanIsRegistered.compareAndSet(false, true)) {
       try {
@@ -24,6 +24,7 @@ import com.orientechnologies.common.concur.resource.OSharedResourceAdaptive;
 import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
 import com.orientechnologies.orient.core.storage.cache.OReadCache;
 import com.orientechnologies.orient.core.storage.cache.OWriteCache;
+import com.orientechnologies.orient.core.storage.cache.local.OReadAheadEngine;
 import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.atomicoperations.OAtomicOperation;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.atomicoperations.OAtomicOperationsManager;
@@ -150,6 +151,16 @@ public abstract class ODurableComponent extends OSharedResourceAdaptive {
     return atomicOperation.loadPage(fileId, pageIndex, checkPinnedPages, pageCount);
   }
 
+  /**
+   * Notifies read ahead engine of the storage that page is read by scan, so next pages of the file may be loaded in background.
+   * Does nothing if read ahead is disabled.
+   */
+  protected void readAhead(long fileId, long pageIndex) {
+    final OReadAheadEngine readAheadEngine = storage.getReadAheadEngine();
+    if (readAheadEngine != null)
+      readAheadEngine.onPageAccess(fileId, pageIndex);
+  }
+
   protected void pinPage(OAtomicOperation atomicOperation, OCacheEntry cacheEntry) throws IOException {
     if (atomicOperation == null)
       readCache.pinPage(cacheEntry);
@@ -26,7 +26,12 @@ import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.compression.OCompression;
+import com.orientechnologies.orient.core.compression.OCompressionFactory;
+import com.orientechnologies.orient.core.compression.impl.ONothingCompression;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.storage.OStorageAbstract;
 import com.orientechnologies.orient.core.storage.impl.local.OFullCheckpointRequestListener;
@@ -92,12 +97,20 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
   private       boolean   segmentCreationFlag     = false;
   private final Condition segmentCreationComplete = syncObject.newCondition();
 
-  private final Set<OOperationUnitId>                               activeOperations        = new HashSet<OOperationUnitId>();
+  private final Map<OOperationUnitId, OLogSequenceNumber>           activeOperations        = new HashMap<OOperationUnitId, OLogSequenceNumber>();
   private final List<WeakReference<OLowDiskSpaceListener>>          lowDiskSpaceListeners   = new CopyOnWriteArrayList<WeakReference<OLowDiskSpaceListener>>();
   private final List<WeakReference<OFullCheckpointRequestListener>> fullCheckpointListeners = new CopyOnWriteArrayList<WeakReference<OFullCheckpointRequestListener>>();
 
   private final ByteBuffer fileDataBuffer = ByteBuffer.allocateDirect(OWALPage.PAGE_SIZE).order(ByteOrder.nativeOrder());
 
+  /**
+   * Flushes WAL on behalf of committing threads, <code>null</code> if group commit is disabled.
+   */
+  private final OWALGroupCommitter groupCommitter;
+
+  private final OCompression compression;
+  private final int          minCompressionSize;
+
   private static class SimpleFileNameFilter implements java.io.FilenameFilter {
     private final String storageName;
     private final Locale locale;
@@ -154,7 +167,29 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
     this(OGlobalConfiguration.WAL_CACHE_SIZE.getValueAsInteger(), OGlobalConfiguration.WAL_COMMIT_TIMEOUT.getValueAsInteger(),
         OGlobalConfiguration.WAL_MAX_SEGMENT_SIZE.getValueAsInteger() * ONE_KB * ONE_KB,
         OGlobalConfiguration.WAL_LOCATION.getValueAsString(), true, storage,
-        OGlobalConfiguration.WAL_FILE_AUTOCLOSE_INTERVAL.getValueAsInteger());
+        OGlobalConfiguration.WAL_FILE_AUTOCLOSE_INTERVAL.getValueAsInteger(),
+        walCompression(storage.getConfiguration().getContextConfiguration()),
+        storage.getConfiguration().getContextConfiguration().getValueAsInteger(OGlobalConfiguration.WAL_COMPRESSION_MIN_SIZE));
+  }
+
+  /**
+   * @return Compression of WAL records configured for the storage or <code>null</code> if records are not compressed.
+   *
+   * @throws OConfigurationException if configured compression is stateful. Compressed records are uncompressed by new instance of
+   *                                 compression during replay of WAL, so state of compression which wrote them would be lost.
+   */
+  static OCompression walCompression(OContextConfiguration contextConfiguration) {
+    final String compressionMethod = contextConfiguration.getValueAsString(OGlobalConfiguration.WAL_COMPRESSION_METHOD);
+    if (compressionMethod == null || compressionMethod.equals(ONothingCompression.NAME))
+      return null;
+
+    if (!OCompressionFactory.INSTANCE.isStateless(compressionMethod))
+      throw new OConfigurationException(
+          "Compression '" + compressionMethod + "' is stateful and can not be used for compression of WAL records, set '"
+              + OGlobalConfiguration.WAL_COMPRESSION_METHOD.getKey() + "' to one of stateless compressions "
+              + OCompressionFactory.INSTANCE.getCompressions());
+
+    return OCompressionFactory.INSTANCE.getCompression(compressionMethod, null);
   }
 
   public void addLowDiskSpaceListener(OLowDiskSpaceListener listener) {
@@ -199,6 +234,20 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
    */
   public ODiskWriteAheadLog(int maxPagesCacheSize, int commitDelay, long maxSegmentSize, final String walPath,
       boolean filterWALFiles, final OLocalPaginatedStorage storage, int fileTTL) throws IOException {
+    this(maxPagesCacheSize, commitDelay, maxSegmentSize, walPath, filterWALFiles, storage, fileTTL, null, 0);
+  }
+
+  /**
+   * @param fileTTL            If file of {@link OLogSegment} will not be accessed inside of this interval (in seconds) it will be
+   *                           closed by timer.
+   * @param compression        Compression of content of records or <code>null</code> if records are stored uncompressed.
+   * @param minCompressionSize Minimum size of serialized record (in bytes) which is compressed.
+   */
+  public ODiskWriteAheadLog(int maxPagesCacheSize, int commitDelay, long maxSegmentSize, final String walPath,
+      boolean filterWALFiles, final OLocalPaginatedStorage storage, int fileTTL, OCompression compression, int minCompressionSize)
+      throws IOException {
+    this.compression = compression;
+    this.minCompressionSize = minCompressionSize;
     this.fileTTL = fileTTL;
     this.maxPagesCacheSize = maxPagesCacheSize;
     this.commitDelay = commitDelay;
@@ -277,6 +326,12 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
 
       fixMasterRecords();
 
+      if (OGlobalConfiguration.WAL_GROUP_COMMIT.getValueAsBoolean())
+        groupCommitter = new OWALGroupCommitter(this, storage.getName(),
+            TimeUnit.MICROSECONDS.toNanos(OGlobalConfiguration.WAL_GROUP_COMMIT_MAX_WINDOW.getValueAsInteger()));
+      else
+        groupCommitter = null;
+
     } catch (FileNotFoundException e) {
       // never happened
       OLogManager.instance().error(this, "Error during file initialization for storage '%s'", e, this.storage.getName());
@@ -412,13 +467,13 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
       statistic.startWALLogRecordTimer();
     try {
       OAtomicUnitStartRecord record = new OAtomicUnitStartRecord(isRollbackSupported, unitId);
-      byte[] content = OWALRecordsFactory.INSTANCE.toStream(record);
+      byte[] content = OWALRecordsFactory.INSTANCE.toStream(record, compression, minCompressionSize);
       syncObject.lock();
       try {
         checkForClose();
 
         final OLogSequenceNumber lsn = internalLog(record, content);
-        activeOperations.add(unitId);
+        activeOperations.put(unitId, lsn);
         return lsn;
       } finally {
         syncObject.unlock();
@@ -438,7 +493,7 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
       statistic.startWALLogRecordTimer();
     try {
       OAtomicUnitEndRecord record = new OAtomicUnitEndRecord(operationUnitId, rollback, atomicOperationMetadata);
-      byte[] content = OWALRecordsFactory.INSTANCE.toStream(record);
+      byte[] content = OWALRecordsFactory.INSTANCE.toStream(record, compression, minCompressionSize);
       syncObject.lock();
       try {
         checkForClose();
@@ -456,12 +511,18 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
     }
   }
 
+  @Override
+  public void waitTillCommitted(OLogSequenceNumber endLsn) {
+    if (groupCommitter != null)
+      groupCommitter.waitTillFlushed(endLsn);
+  }
+
   public OLogSequenceNumber log(OWALRecord record) throws IOException {
     OSessionStoragePerformanceStatistic statistic = performanceStatisticManager.getSessionPerformanceStatistic();
     if (statistic != null)
       statistic.startWALLogRecordTimer();
     try {
-      return internalLog(record, OWALRecordsFactory.INSTANCE.toStream(record));
+      return internalLog(record, OWALRecordsFactory.INSTANCE.toStream(record, compression, minCompressionSize));
     } finally {
       if (statistic != null)
         statistic.stopWALRecordTimer(false, false);
@@ -485,7 +546,7 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
       checkForClose();
 
       if (segmentCreationFlag && record instanceof OOperationUnitRecord && !activeOperations
-          .contains(((OOperationUnitRecord) record).getOperationUnitId())) {
+          .containsKey(((OOperationUnitRecord) record).getOperationUnitId())) {
         while (segmentCreationFlag) {
           try {
             segmentCreationComplete.await();
@@ -698,6 +759,8 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
   }
 
   public void close(boolean flush) throws IOException {
+    stopGroupCommit(flush);
+
     syncObject.lock();
     try {
       if (closed)
@@ -743,6 +806,8 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
   }
 
   public void delete(boolean flush) throws IOException {
+    stopGroupCommit(flush);
+
     syncObject.lock();
     try {
       close(flush);
@@ -765,6 +830,27 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
     }
   }
 
+  /**
+   * Stops group commit thread, should be called without {@link #syncObject} lock because group commit thread uses it to flush WAL.
+   * If flush is requested WAL is flushed before, so threads which wait for the commit are released normally.
+   */
+  private void stopGroupCommit(boolean flush) {
+    if (groupCommitter == null)
+      return;
+
+    if (flush) {
+      syncObject.lock();
+      try {
+        if (!closed)
+          flush();
+      } finally {
+        syncObject.unlock();
+      }
+    }
+
+    groupCommitter.close();
+  }
+
   public OWALRecord read(OLogSequenceNumber lsn) throws IOException {
     syncObject.lock();
     try {
@@ -827,12 +913,36 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
     return flushedLsn;
   }
 
-  public void cutTill(OLogSequenceNumber lsn) throws IOException {
+  @Override
+  public OLogSequenceNumber getOldestActiveOperationLsn() {
     syncObject.lock();
     try {
       checkForClose();
 
-      flush();
+      OLogSequenceNumber oldestLsn = null;
+      for (OLogSequenceNumber lsn : activeOperations.values()) {
+        if (oldestLsn == null || oldestLsn.compareTo(lsn) > 0)
+          oldestLsn = lsn;
+      }
+
+      if (oldestLsn != null)
+        return oldestLsn;
+
+      return end();
+    } finally {
+      syncObject.unlock();
+    }
+  }
+
+  public void cutTill(OLogSequenceNumber lsn) throws IOException {
+    //flush is done outside of the lock, so records can be logged while data are written to the disk
+    flush();
+
+    final List<OLogSegment> segmentsToDelete = new ArrayList<OLogSegment>();
+
+    syncObject.lock();
+    try {
+      checkForClose();
 
       final OLogSequenceNumber maxLsn = preventCutTill;
 
@@ -853,7 +963,7 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
       for (int i = 0; i <= lastTruncateIndex; i++) {
         final OLogSegment logSegment = removeHeadSegmentFromList();
         if (logSegment != null)
-          logSegment.delete(false);
+          segmentsToDelete.add(logSegment);
       }
 
       recalculateLogSize();
@@ -861,6 +971,11 @@ public class ODiskWriteAheadLog extends OAbstractWriteAheadLog {
     } finally {
       syncObject.unlock();
     }
+
+    //segments are not accessible any more, so their files can be deleted without the lock
+    for (OLogSegment logSegment : segmentsToDelete) {
+      logSegment.delete(false);
+    }
   }
 
   @Override
@@ -117,7 +117,14 @@ final class OLogSegment implements Comparable<OLogSegment> {
       null);
 
   private final class FlushTask implements Runnable {
-    private FlushTask() {
+    /**
+     * If set, error of flush is thrown to the thread which requested flush. Periodic flushes only log errors because exception
+     * thrown from periodic task cancels its next executions.
+     */
+    private final boolean propagateErrors;
+
+    private FlushTask(boolean propagateErrors) {
+      this.propagateErrors = propagateErrors;
     }
 
     @Override
@@ -125,7 +132,19 @@ final class OLogSegment implements Comparable<OLogSegment> {
       try {
         try {
           commitLog();
+        } catch (IOException e) {
+          if (propagateErrors)
+            throw OException.wrapException(new OStorageException("Error during flush of WAL segment '" + getPath() + "'"), e);
+
+          OLogManager.instance().error(this, "Error during WAL background flush", e);
         } catch (Throwable e) {
+          if (propagateErrors) {
+            if (e instanceof Error)
+              throw (Error) e;
+
+            throw (RuntimeException) e;
+          }
+
           OLogManager.instance().error(this, "Error during WAL background flush", e);
         }
       } finally {
@@ -156,98 +175,119 @@ final class OLogSegment implements Comparable<OLogSegment> {
         if (toFlush.isEmpty())
           return;
 
-        final ByteBuffer pageContent = ByteBuffer.allocate(OWALPage.PAGE_SIZE).order(ByteOrder.nativeOrder());
-        pageContent.position(0);
-
-        OLogRecord first = toFlush.get(0);
-        int curIndex = (int) (first.writeFrom / OWALPage.PAGE_SIZE);
-        fileLock.lock();
+        boolean flushed = false;
         try {
-          final RandomAccessFile rndFile = getRndFile();
+          writeRecords(toFlush);
+          flushed = true;
+        } finally {
+          //records are returned back, so they will be written by the next flush
+          if (!flushed) {
+            cacheLock.lock();
+            try {
+              toFlush.addAll(logCache);
+              logCache = toFlush;
+            } finally {
+              cacheLock.unlock();
+            }
 
-          long pagesCount = rndFile.length() / OWALPage.PAGE_SIZE;
-          if (pagesCount > curIndex) {
-            final FileChannel channel = rndFile.getChannel();
-            channel.read(pageContent, curIndex * OWALPage.PAGE_SIZE);
+            flushNewData = true;
           }
-        } finally {
-          fileLock.unlock();
         }
+      } finally {
+        if (statistic != null)
+          statistic.stopWALFlushTimer();
+      }
+    }
+
+    private void writeRecords(List<OLogRecord> toFlush) throws IOException {
+      final ByteBuffer pageContent = ByteBuffer.allocate(OWALPage.PAGE_SIZE).order(ByteOrder.nativeOrder());
+      pageContent.position(0);
 
-        OLogSequenceNumber lsn = null;
-        long pageIndex = 0;
+      OLogRecord first = toFlush.get(0);
+      int curIndex = (int) (first.writeFrom / OWALPage.PAGE_SIZE);
+      fileLock.lock();
+      try {
+        final RandomAccessFile rndFile = getRndFile();
 
-        int pos;
-        boolean lastToFlush = false;
+        long pagesCount = rndFile.length() / OWALPage.PAGE_SIZE;
+        if (pagesCount > curIndex) {
+          final FileChannel channel = rndFile.getChannel();
+          channel.read(pageContent, curIndex * OWALPage.PAGE_SIZE);
+        }
+      } finally {
+        fileLock.unlock();
+      }
 
-        long lastPos = 0;
-        for (OLogRecord log : toFlush) {
-          lsn = new OLogSequenceNumber(order, log.writeFrom);
-          pos = (int) (log.writeFrom % OWALPage.PAGE_SIZE);
-          pageIndex = log.writeFrom / OWALPage.PAGE_SIZE;
+      OLogSequenceNumber lsn = null;
+      long pageIndex = 0;
 
-          int written = 0;
+      int pos;
+      boolean lastToFlush = false;
 
-          while (written < log.record.length) {
-            lastToFlush = true;
-            int pageFreeSpace = OWALPage.calculateRecordSize(OWALPage.PAGE_SIZE - pos);
-            int contentLength = Math.min(pageFreeSpace, (log.record.length - written));
-            int fromRecord = written;
-            written += contentLength;
+      long lastPos = 0;
+      for (OLogRecord log : toFlush) {
+        lsn = new OLogSequenceNumber(order, log.writeFrom);
+        pos = (int) (log.writeFrom % OWALPage.PAGE_SIZE);
+        pageIndex = log.writeFrom / OWALPage.PAGE_SIZE;
 
-            pos = writeContentInPage(pageContent, pos, log.record, written == log.record.length, fromRecord, contentLength);
+        int written = 0;
 
-            if (OWALPage.PAGE_SIZE - pos < OWALPage.MIN_RECORD_SIZE) {
-              fileLock.lock();
-              try {
-                final RandomAccessFile rndFile = getRndFile();
-                final FileChannel channel = rndFile.getChannel();
-                channel.position(pageIndex * OWALPage.PAGE_SIZE);
+        while (written < log.record.length) {
+          lastToFlush = true;
+          int pageFreeSpace = OWALPage.calculateRecordSize(OWALPage.PAGE_SIZE - pos);
+          int contentLength = Math.min(pageFreeSpace, (log.record.length - written));
+          int fromRecord = written;
+          written += contentLength;
 
-                flushPage(pageContent, channel);
-              } finally {
-                fileLock.unlock();
-              }
+          pos = writeContentInPage(pageContent, pos, log.record, written == log.record.length, fromRecord, contentLength);
 
-              writtenUpTo = (pageIndex + 1) * OWALPage.PAGE_SIZE - 1;
+          if (OWALPage.PAGE_SIZE - pos < OWALPage.MIN_RECORD_SIZE) {
+            fileLock.lock();
+            try {
+              final RandomAccessFile rndFile = getRndFile();
+              final FileChannel channel = rndFile.getChannel();
+              channel.position(pageIndex * OWALPage.PAGE_SIZE);
 
-              lastToFlush = false;
-              pageIndex++;
-              pos = OWALPage.RECORDS_OFFSET;
+              flushPage(pageContent, channel);
+            } finally {
+              fileLock.unlock();
             }
-          }
 
-          lastPos = log.writeTo;
-        }
-        if (lastToFlush) {
-          fileLock.lock();
-          try {
-            RandomAccessFile rndFile = getRndFile();
-            final FileChannel channel = rndFile.getChannel();
+            writtenUpTo = (pageIndex + 1) * OWALPage.PAGE_SIZE - 1;
 
-            channel.position(pageIndex * OWALPage.PAGE_SIZE);
-            flushPage(pageContent, channel);
-          } finally {
-            fileLock.unlock();
+            lastToFlush = false;
+            pageIndex++;
+            pos = OWALPage.RECORDS_OFFSET;
           }
-
-          writtenUpTo = lastPos;
         }
-        if (OGlobalConfiguration.WAL_SYNC_ON_PAGE_FLUSH.getValueAsBoolean()) {
-          fileLock.lock();
-          try {
-            final RandomAccessFile rndFile = getRndFile();
-            rndFile.getFD().sync();
-          } finally {
-            fileLock.unlock();
-          }
+
+        lastPos = log.writeTo;
+      }
+      if (lastToFlush) {
+        fileLock.lock();
+        try {
+          RandomAccessFile rndFile = getRndFile();
+          final FileChannel channel = rndFile.getChannel();
+
+          channel.position(pageIndex * OWALPage.PAGE_SIZE);
+          flushPage(pageContent, channel);
+        } finally {
+          fileLock.unlock();
         }
 
-        writeAheadLog.setFlushedLsn(lsn);
-      } finally {
-        if (statistic != null)
-          statistic.stopWALFlushTimer();
+        writtenUpTo = lastPos;
+      }
+      if (OGlobalConfiguration.WAL_SYNC_ON_PAGE_FLUSH.getValueAsBoolean()) {
+        fileLock.lock();
+        try {
+          final RandomAccessFile rndFile = getRndFile();
+          rndFile.getFD().sync();
+        } finally {
+          fileLock.unlock();
+        }
       }
+
+      writeAheadLog.setFlushedLsn(lsn);
     }
 
   }
@@ -308,7 +348,7 @@ final class OLogSegment implements Comparable<OLogSegment> {
 
   public void startFlush() {
     if (writeAheadLog.getCommitDelay() > 0) {
-      commitExecutor.scheduleAtFixedRate(new FlushTask(), writeAheadLog.getCommitDelay(), writeAheadLog.getCommitDelay(),
+      commitExecutor.scheduleAtFixedRate(new FlushTask(false), writeAheadLog.getCommitDelay(), writeAheadLog.getCommitDelay(),
           TimeUnit.MILLISECONDS);
 
       //if WAL segment is active (all content is written in this segment) we should not try to close it after TTL.
@@ -680,14 +720,14 @@ final class OLogSegment implements Comparable<OLogSegment> {
   public void flush() {
     if (!commitExecutor.isShutdown()) {
       try {
-        commitExecutor.submit(new FlushTask()).get();
+        commitExecutor.submit(new FlushTask(true)).get();
       } catch (InterruptedException e) {
         throw OException.wrapException(new OStorageException("Thread was interrupted during flush"), e);
       } catch (ExecutionException e) {
         throw OException.wrapException(new OStorageException("Error during WAL segment '" + getPath() + "' flush"), e);
       }
     } else {
-      new FlushTask().run();
+      new FlushTask(true).run();
     }
   }
 
@@ -52,6 +52,10 @@ public class OMemoryWriteAheadLog extends OAbstractWriteAheadLog {
     return log(new OAtomicUnitStartRecord(isRollbackSupported, unitId));
   }
 
+  @Override
+  public void waitTillCommitted(OLogSequenceNumber endLsn) {
+  }
+
   @Override
   public OLogSequenceNumber logAtomicOperationEndRecord(OOperationUnitId operationUnitId, boolean rollback,
       OLogSequenceNumber startLsn, Map<String, OAtomicOperationMetadata<?>> atomicOperationMetadata) throws IOException {
@@ -99,6 +103,11 @@ public class OMemoryWriteAheadLog extends OAbstractWriteAheadLog {
     throw new UnsupportedOperationException("Operation not supported for in memory storage.");
   }
 
+  @Override
+  public OLogSequenceNumber getOldestActiveOperationLsn() {
+    throw new UnsupportedOperationException("Operation not supported for in memory storage.");
+  }
+
   @Override
   public void cutTill(OLogSequenceNumber lsn) throws IOException {
   }
@@ -23,6 +23,7 @@ package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OAppendOnlyCluster;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.OPaginatedCluster;
 
 /**
@@ -32,12 +33,20 @@ import com.orientechnologies.orient.core.storage.impl.local.paginated.OPaginated
 public class OPaginatedClusterFactory {
   public static final OPaginatedClusterFactory INSTANCE = new OPaginatedClusterFactory();
 
-  public OCluster createCluster(String name, int configurationVersion, OAbstractPaginatedStorage storage) {
+  /**
+   * Creates instance of a cluster. An append-only cluster is created if it is requested by cluster parameters, see
+   * {@link OAppendOnlyCluster#APPEND_ONLY}, or if the files of the existing cluster belong to an append-only cluster. The type
+   * of cluster is not kept in storage configuration, so the format of configuration stays the same.
+   */
+  public OCluster createCluster(String name, int configurationVersion, OAbstractPaginatedStorage storage, Object... parameters) {
     if (configurationVersion >= 0 && configurationVersion < 6) {
       throw new OStorageException("You use deprecated version of storage cluster, "
           + "this version is not supported in current implementation. Please do export/import or recreate database.");
     }
 
+    if (OAppendOnlyCluster.isRequested(parameters) || storage.getWriteCache().exists(name + OAppendOnlyCluster.DEF_EXTENSION))
+      return new OAppendOnlyCluster(name, storage);
+
     return new OPaginatedCluster(name, storage);
   }
 }
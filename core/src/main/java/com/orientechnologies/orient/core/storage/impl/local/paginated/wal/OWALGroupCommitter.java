@@ -0,0 +1,223 @@
+/*
+ *
+ *  *  Copyright 2017 OrientDB LTD (info(at)orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientdb.com
+ *
+ */
+
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import com.orientechnologies.common.concur.lock.OInterruptedException;
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.storage.OStorageAbstract;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Group commit of {@link ODiskWriteAheadLog}.
+ * <p>
+ * Threads which commit atomic operations register LSN of end record of operation and wait till it will be flushed. Single
+ * flusher thread flushes WAL once for all threads which are waiting at that moment, so cost of single fsync is shared between
+ * all concurrent commits.
+ * <p>
+ * Before the flush, flusher waits for a short batch window to let more threads join the batch. Window is adapted to the load: it is
+ * zero if commits are not concurrent (average batch contains single commit), otherwise it is half of average duration of the
+ * flush but not longer than configured maximum. So under high load commit rate is bound by throughput of the disk, not by latency
+ * of fsync.
+ *
+ * @since 06.05.17
+ */
+final class OWALGroupCommitter {
+  /**
+   * Weight of the last measurement in exponential moving averages, as shift of 1.
+   */
+  private static final int AVERAGE_SHIFT = 3;
+
+  private final ODiskWriteAheadLog writeAheadLog;
+  private final long               maxWindowNanos;
+
+  private final ReentrantLock lock         = new ReentrantLock();
+  private final Condition     flushRequest = lock.newCondition();
+  private final Condition     flushDone    = lock.newCondition();
+
+  private final Thread flusher;
+
+  private OLogSequenceNumber requestedLsn;
+  private int                waiters;
+  private long               flushCount;
+  private Throwable          flushError;
+  private boolean            closed;
+
+  /**
+   * Accessed only by flusher thread.
+   */
+  private long averageFlushNanos;
+  private long averageBatchSize;
+
+  OWALGroupCommitter(ODiskWriteAheadLog writeAheadLog, String storageName, long maxWindowNanos) {
+    this.writeAheadLog = writeAheadLog;
+    this.maxWindowNanos = maxWindowNanos;
+
+    flusher = new Thread(OStorageAbstract.storageThreadGroup, new Flusher());
+    flusher.setDaemon(true);
+    flusher.setName("OrientDB WAL Group Commit (" + storageName + ")");
+    flusher.start();
+  }
+
+  /**
+   * Blocks till WAL is flushed at least till passed in LSN.
+   */
+  void waitTillFlushed(OLogSequenceNumber lsn) {
+    if (isFlushed(lsn))
+      return;
+
+    lock.lock();
+    try {
+      waiters++;
+      try {
+        while (!isFlushed(lsn)) {
+          if (closed)
+            throw new OStorageException("WAL was closed before commit record " + lsn + " was flushed");
+
+          if (requestedLsn == null || requestedLsn.compareTo(lsn) < 0) {
+            requestedLsn = lsn;
+            flushRequest.signal();
+          }
+
+          final long flushes = flushCount;
+          while (flushCount == flushes && !closed) {
+            try {
+              flushDone.await();
+            } catch (InterruptedException e) {
+              throw OException.wrapException(new OInterruptedException("Waiting for WAL flush was interrupted"), e);
+            }
+          }
+
+          if (flushError != null && !isFlushed(lsn))
+            throw OException.wrapException(new OStorageException("Error during flush of WAL"), flushError);
+        }
+      } finally {
+        waiters--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stops flusher thread, threads which still wait for flush are released.
+   */
+  void close() {
+    lock.lock();
+    try {
+      closed = true;
+
+      flushRequest.signalAll();
+      flushDone.signalAll();
+    } finally {
+      lock.unlock();
+    }
+
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return Current batch window in nanoseconds.
+   */
+  long batchWindow() {
+    if (averageBatchSize < 2L << AVERAGE_SHIFT)
+      return 0;
+
+    return Math.min(maxWindowNanos, (averageFlushNanos >>> AVERAGE_SHIFT) / 2);
+  }
+
+  private boolean isFlushed(OLogSequenceNumber lsn) {
+    final OLogSequenceNumber flushedLsn = writeAheadLog.getFlushedLsn();
+    return flushedLsn != null && flushedLsn.compareTo(lsn) >= 0;
+  }
+
+  private static long average(long average, long value) {
+    if (average == 0)
+      return value << AVERAGE_SHIFT;
+
+    return average - (average >>> AVERAGE_SHIFT) + value;
+  }
+
+  private final class Flusher implements Runnable {
+    @Override
+    public void run() {
+      while (true) {
+        final int batchSize;
+
+        lock.lock();
+        try {
+          while (requestedLsn == null && !closed) {
+            flushRequest.awaitUninterruptibly();
+          }
+
+          if (closed)
+            return;
+
+          long window = batchWindow();
+          while (window > 0 && !closed) {
+            try {
+              window = flushRequest.awaitNanos(window);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              break;
+            }
+          }
+
+          requestedLsn = null;
+          batchSize = waiters;
+        } finally {
+          lock.unlock();
+        }
+
+        //any failure is passed to the waiting threads, otherwise they would wait for the flush which never happens
+        Throwable error = null;
+        final long start = System.nanoTime();
+        try {
+          writeAheadLog.flush();
+        } catch (Throwable e) {
+          OLogManager.instance().error(this, "Error during group commit of WAL", e);
+          error = e;
+        }
+
+        averageFlushNanos = average(averageFlushNanos, System.nanoTime() - start);
+        averageBatchSize = average(averageBatchSize, batchSize);
+
+        lock.lock();
+        try {
+          flushError = error;
+          flushCount++;
+
+          flushDone.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+}
@@ -20,19 +20,61 @@
 
 package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
 
+import com.orientechnologies.orient.core.compression.OCompression;
+import com.orientechnologies.orient.core.compression.OCompressionFactory;
+
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Andrey Lomakin
  * @since 25.04.13
  */
 public class OWALRecordsFactory {
+  /**
+   * Id of record which contains compressed content of other record. Compressed record consists of id, length of name of
+   * compression, name of compression and compressed content of original record including its id.
+   */
+  private static final byte    COMPRESSED_RECORD_ID = 14;
+  private static final Charset COMPRESSION_CHARSET  = Charset.forName("UTF-8");
+
   private Map<Byte, Class>               idToTypeMap = new HashMap<Byte, Class>();
   private Map<Class, Byte>               typeToIdMap = new HashMap<Class, Byte>();
 
+  private final ConcurrentMap<String, OCompression> compressions = new ConcurrentHashMap<String, OCompression>();
+
   public static final OWALRecordsFactory INSTANCE    = new OWALRecordsFactory();
 
+  /**
+   * Serializes record and compresses its content if record is big enough and compression reduces its size.
+   *
+   * @param compression        Compression of records or <code>null</code> if record should not be compressed.
+   * @param minCompressionSize Minimum size of serialized record which is compressed.
+   */
+  public byte[] toStream(OWALRecord walRecord, OCompression compression, int minCompressionSize) {
+    final byte[] content = toStream(walRecord);
+    if (compression == null || content.length < minCompressionSize)
+      return content;
+
+    final byte[] compressedContent = compression.compress(content);
+    final byte[] name = compression.name().getBytes(COMPRESSION_CHARSET);
+
+    final int compressedSize = 2 + name.length + compressedContent.length;
+    if (compressedSize >= content.length)
+      return content;
+
+    final byte[] compressedRecord = new byte[compressedSize];
+    compressedRecord[0] = COMPRESSED_RECORD_ID;
+    compressedRecord[1] = (byte) name.length;
+    System.arraycopy(name, 0, compressedRecord, 2, name.length);
+    System.arraycopy(compressedContent, 0, compressedRecord, 2 + name.length, compressedContent.length);
+
+    return compressedRecord;
+  }
+
   public byte[] toStream(OWALRecord walRecord) {
     int contentSize = walRecord.serializedSize() + 1;
     byte[] content = new byte[contentSize];
@@ -70,6 +112,9 @@ public class OWALRecordsFactory {
   }
 
   public OWALRecord fromStream(byte[] content) {
+    if (content[0] == COMPRESSED_RECORD_ID)
+      content = uncompress(content);
+
     OWALRecord walRecord;
     switch (content[0]) {
     case 0:
@@ -123,7 +168,24 @@ public class OWALRecordsFactory {
     return walRecord;
   }
 
+  private byte[] uncompress(byte[] compressedRecord) {
+    final int nameLength = compressedRecord[1];
+    final String name = new String(compressedRecord, 2, nameLength, COMPRESSION_CHARSET);
+
+    OCompression compression = compressions.get(name);
+    if (compression == null) {
+      compression = OCompressionFactory.INSTANCE.getCompression(name, null);
+      compressions.putIfAbsent(name, compression);
+    }
+
+    final int offset = 2 + nameLength;
+    return compression.uncompress(compressedRecord, offset, compressedRecord.length - offset);
+  }
+
   public void registerNewRecord(byte id, Class<? extends OWALRecord> type) {
+    if (id == COMPRESSED_RECORD_ID)
+      throw new IllegalArgumentException("Id " + id + " is reserved for compressed records");
+
     typeToIdMap.put(type, id);
     idToTypeMap.put(id, type);
   }
@@ -55,6 +55,14 @@ public interface OWriteAheadLog {
       Map<String, OAtomicOperationMetadata<?>> atomicOperationMetadata)
       throws IOException;
 
+  /**
+   * Blocks till end record of atomic operation is flushed to the disk if group commit is enabled, otherwise returns immediately
+   * and record is flushed in background.
+   *
+   * @param endLsn LSN of end record of atomic operation.
+   */
+  void waitTillCommitted(OLogSequenceNumber endLsn);
+
   OLogSequenceNumber log(OWALRecord record) throws IOException;
 
   void truncate() throws IOException;
@@ -73,6 +81,13 @@ public interface OWriteAheadLog {
 
   OLogSequenceNumber getFlushedLsn();
 
+  /**
+   * @return LSN of start record of the oldest atomic operation which is not completed yet or LSN of the last record in the log if
+   * there are no active atomic operations. All records which precede returned LSN belong to completed atomic operations, so all
+   * changes of pages made by those operations are already passed to the write cache.
+   */
+  OLogSequenceNumber getOldestActiveOperationLsn();
+
   void cutTill(OLogSequenceNumber lsn) throws IOException;
 
   void addFullCheckpointListener(OFullCheckpointRequestListener listener);
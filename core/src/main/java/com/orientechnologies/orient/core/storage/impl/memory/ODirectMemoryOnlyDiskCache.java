@@ -196,6 +196,11 @@ public class ODirectMemoryOnlyDiskCache extends OAbstractWriteCache implements O
     }
   }
 
+  @Override
+  public void prefetch(long fileId, long startPageIndex, int pageCount, OWriteCache writeCache, boolean verifyChecksums) {
+    //all pages are always in memory
+  }
+
   @Override
   public OCacheEntry load(final long fileId, final long pageIndex, final boolean checkPinnedPages, final OWriteCache writeCache,
       final int pageCount, boolean verifyChecksums) {
@@ -577,6 +582,15 @@ public class ODirectMemoryOnlyDiskCache extends OAbstractWriteCache implements O
   public void makeFuzzyCheckpoint() {
   }
 
+  @Override
+  public void makeIncrementalCheckpoint() {
+  }
+
+  @Override
+  public OLogSequenceNumber getMinDirtyLsn() {
+    return null;
+  }
+
   @Override
   public void addLowDiskSpaceListener(OLowDiskSpaceListener listener) {
   }
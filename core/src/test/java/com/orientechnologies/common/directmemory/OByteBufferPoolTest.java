@@ -1,5 +1,6 @@
 package com.orientechnologies.common.directmemory;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -43,6 +44,25 @@ public class OByteBufferPoolTest {
     Assert.assertEquals(pool.getSize(), 1);
   }
 
+  public void testBuffersAreAligned() {
+    final int pageSize = 2 * OByteBufferPool.BUFFER_ALIGNMENT;
+    final OByteBufferPool pool = new OByteBufferPool(pageSize, 4 * pageSize, 2 * pageSize);
+
+    final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+    //first two buffers are sliced from preallocated chunk, rest of them are allocated separately
+    for (int i = 0; i < 4; i++) {
+      final ByteBuffer buffer = pool.acquireDirect(true);
+      Assert.assertEquals(OByteBufferPool.alignmentOffset(buffer, OByteBufferPool.BUFFER_ALIGNMENT), 0);
+      Assert.assertEquals(buffer.capacity(), pageSize);
+
+      buffers.add(buffer);
+    }
+
+    for (ByteBuffer buffer : buffers) {
+      pool.release(buffer);
+    }
+  }
+
   public void testAcquireReleasePageWithPreallocation() {
     OByteBufferPool pool = new OByteBufferPool(10, 300, 200);
 
@@ -67,6 +87,195 @@ public class OByteBufferPoolTest {
     }
   }
 
+  public void testBuffersAreStolenFromOtherShards() throws Exception {
+    final OByteBufferPool pool = new OByteBufferPool(10, 300, 200, 4, 4);
+    Assert.assertEquals(pool.getShardCount(), 4);
+
+    final Thread thread = threadOfOtherShard(new Runnable() {
+      @Override
+      public void run() {
+        final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+        for (int i = 0; i < 10; i++) {
+          buffers.add(pool.acquireDirect(false));
+        }
+
+        for (ByteBuffer buffer : buffers) {
+          pool.release(buffer);
+        }
+      }
+    }, 4);
+
+    thread.start();
+    thread.join();
+
+    Assert.assertEquals(pool.getSize(), 10);
+    Assert.assertEquals(pool.getBuffersInMagazines(), 4);
+    Assert.assertEquals(sum(pool.getShardBuffersInThePool()), 6);
+
+    // buffers cached by terminated thread are returned to the shards once current thread starts to use the pool
+    for (int i = 0; i < 10; i++) {
+      pool.acquireDirect(false);
+    }
+
+    Assert.assertEquals(pool.getSize(), 0);
+    Assert.assertEquals(pool.getPreAllocatedBufferCount(), 10);
+    Assert.assertEquals(sum(pool.getShardStealCounts()), 10);
+    Assert.assertEquals(sum(pool.getShardHitCounts()), 0);
+  }
+
+  public void testBuffersAreCachedByThread() {
+    final OByteBufferPool pool = new OByteBufferPool(10, 300, 200, 2, 4);
+
+    final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+    for (int i = 0; i < 6; i++) {
+      buffers.add(pool.acquireDirect(false));
+    }
+
+    for (ByteBuffer buffer : buffers) {
+      pool.release(buffer);
+    }
+
+    // magazine was full on the fifth release, so two buffers were returned to the shard
+    Assert.assertEquals(pool.getSize(), 6);
+    Assert.assertEquals(pool.getBuffersInMagazines(), 4);
+    Assert.assertEquals(sum(pool.getShardBuffersInThePool()), 2);
+
+    // the most recently released buffers are reused first, then magazine is refilled from the shard
+    final int[] order = new int[] { 5, 4, 3, 2, 0, 1 };
+    for (int index : order) {
+      Assert.assertSame(pool.acquireDirect(false), buffers.get(index));
+    }
+
+    Assert.assertEquals(pool.getSize(), 0);
+    Assert.assertEquals(sum(pool.getShardHitCounts()), 2);
+    Assert.assertEquals(pool.getPreAllocatedBufferCount(), 6);
+  }
+
+  public void testBuffersCachedByLiveThreadAreUsedBeforeOverflow() throws Exception {
+    final OByteBufferPool pool = new OByteBufferPool(10, 300, 10, 1, 4);
+
+    final CountDownLatch released = new CountDownLatch(1);
+    final CountDownLatch finish = new CountDownLatch(1);
+    final Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+        for (int i = 0; i < 4; i++) {
+          buffers.add(pool.acquireDirect(false));
+        }
+
+        for (ByteBuffer buffer : buffers) {
+          pool.release(buffer);
+        }
+
+        released.countDown();
+        try {
+          finish.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+
+    thread.start();
+    released.await();
+    Assert.assertEquals(pool.getBuffersInMagazines(), 4);
+
+    try {
+      for (int i = 0; i < 10; i++) {
+        pool.acquireDirect(false);
+      }
+
+      Assert.assertEquals(pool.getOverflowBufferCount(), 0);
+      Assert.assertEquals(pool.getBuffersInMagazines(), 0);
+      Assert.assertEquals(pool.getSize(), 0);
+
+      pool.acquireDirect(false);
+      Assert.assertEquals(pool.getOverflowBufferCount(), 1);
+    } finally {
+      finish.countDown();
+      thread.join();
+    }
+  }
+
+  public void testAcquireReleaseWithoutMagazines() {
+    final OByteBufferPool pool = new OByteBufferPool(10, 300, 200, 2, 0);
+
+    final ByteBuffer buffer = pool.acquireDirect(false);
+    pool.release(buffer);
+
+    Assert.assertEquals(pool.getSize(), 1);
+    Assert.assertEquals(pool.getBuffersInMagazines(), 0);
+    Assert.assertEquals(sum(pool.getShardBuffersInThePool()), 1);
+
+    Assert.assertSame(pool.acquireDirect(false), buffer);
+    Assert.assertEquals(pool.getSize(), 0);
+  }
+
+  public void testShardedPoolInMT() throws Exception {
+    final OByteBufferPool pool = new OByteBufferPool(10, 1000, 5000, 4, 8);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    for (int n = 0; n < 8; n++) {
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final ThreadLocalRandom random = ThreadLocalRandom.current();
+          final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+
+          for (int i = 0; i < 10000; i++) {
+            if (buffers.isEmpty() || (buffers.size() < 50 && random.nextBoolean())) {
+              final ByteBuffer buffer = pool.acquireDirect(false);
+              Assert.assertEquals(buffer.position(), 0);
+              Assert.assertEquals(buffer.capacity(), 10);
+
+              buffers.add(buffer);
+            } else
+              pool.release(buffers.remove(random.nextInt(buffers.size())));
+          }
+
+          for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+          }
+
+          return null;
+        }
+      }));
+    }
+
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+    final long allocated = pool.getPreAllocatedBufferCount() + pool.getOverflowBufferCount();
+    Assert.assertEquals(pool.getSize(), allocated);
+    Assert.assertEquals(pool.getBuffersInMagazines() + sum(pool.getShardBuffersInThePool()), allocated);
+  }
+
+  @Test(expectedExceptions = AssertionError.class)
+  public void testLeaksAreDetectedInTrackMode() {
+    final boolean trackMode = OGlobalConfiguration.DIRECT_MEMORY_TRACK_MODE.getValueAsBoolean();
+    OGlobalConfiguration.DIRECT_MEMORY_TRACK_MODE.setValue(true);
+
+    final OByteBufferPool pool;
+    try {
+      pool = new OByteBufferPool(10);
+    } finally {
+      OGlobalConfiguration.DIRECT_MEMORY_TRACK_MODE.setValue(trackMode);
+    }
+
+    final ByteBuffer buffer = pool.acquireDirect(false);
+    pool.release(buffer);
+    pool.verifyState();
+
+    pool.acquireDirect(false);
+    pool.verifyState();
+  }
+
   @Test(enabled = false)
   public void testAcquireReleasePageWithPreallocationInMT() throws Exception {
     final OByteBufferPool pool = new OByteBufferPool(10, 300, 200);
@@ -126,6 +335,32 @@ public class OByteBufferPoolTest {
 
   }
 
+  private static Thread threadOfOtherShard(Runnable runnable, int shardCount) {
+    while (true) {
+      final Thread thread = new Thread(runnable);
+      if ((thread.getId() & (shardCount - 1)) != (Thread.currentThread().getId() & (shardCount - 1)))
+        return thread;
+    }
+  }
+
+  private static long sum(int[] values) {
+    long sum = 0;
+    for (int value : values) {
+      sum += value;
+    }
+
+    return sum;
+  }
+
+  private static long sum(long[] values) {
+    long sum = 0;
+    for (long value : values) {
+      sum += value;
+    }
+
+    return sum;
+  }
+
   private void assertBufferOperations(OByteBufferPool pool, int initialSize) {
     ByteBuffer buffer = pool.acquireDirect(true);
     Assert.assertEquals(pool.getSize(), initialSize);
@@ -0,0 +1,132 @@
+package com.orientechnologies.orient.core.compression.impl;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OCluster;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Test
+public class DictionaryCompressionTest extends AbstractCompressionTest {
+  private static final String[] CITIES   = { "Rome", "London", "Berlin", "Madrid" };
+  private static final String[] STATUSES = { "active", "suspended", "pending" };
+
+  public void testDictionaryCompression() {
+    testCompression(ODictionaryCompression.NAME);
+  }
+
+  public void testTrainedDictionary() {
+    final List<byte[]> samples = new ArrayList<byte[]>();
+    for (int i = 0; i < 100; i++)
+      samples.add(record(i));
+
+    final byte[] dictionary = ODictionaryCompression.train(samples, 4096);
+    Assert.assertNotNull(dictionary);
+    Assert.assertTrue(dictionary.length <= 4096);
+
+    final ODictionaryCompression compression = new ODictionaryCompression();
+    final byte[] record = record(1000);
+    final byte[] withoutDictionary = compression.compress(record);
+
+    compression.setDictionary(dictionary);
+    final byte[] withDictionary = compression.compress(record);
+
+    Assert.assertTrue(withDictionary.length < withoutDictionary.length);
+    Assert.assertEquals(compression.uncompress(withDictionary), record);
+    Assert.assertEquals(compression.uncompress(withoutDictionary), record);
+  }
+
+  public void testSamplesWithoutCommonContent() {
+    final List<byte[]> samples = new ArrayList<byte[]>();
+    samples.add(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+    samples.add(new byte[] { 9, 8, 7, 6, 5, 4, 3, 2, 1 });
+
+    Assert.assertNull(ODictionaryCompression.train(samples, 4096));
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testAbsentDictionary() {
+    final List<byte[]> samples = new ArrayList<byte[]>();
+    for (int i = 0; i < 10; i++)
+      samples.add(record(i));
+
+    final ODictionaryCompression compression = new ODictionaryCompression();
+    compression.setDictionary(ODictionaryCompression.train(samples, 4096));
+
+    new ODictionaryCompression().uncompress(compression.compress(record(10)));
+  }
+
+  public void testClusterTrainsDictionary() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:" + DictionaryCompressionTest.class.getSimpleName());
+    db.create();
+
+    OGlobalConfiguration.STORAGE_COMPRESSION_DICTIONARY_TRAINING_RECORDS.setValue(20);
+    try {
+      final OCluster trained = createCluster(db, "trained");
+      final List<ORID> rids = createDocuments(db, "trained", 200);
+
+      OGlobalConfiguration.STORAGE_COMPRESSION_DICTIONARY_TRAINING_RECORDS.setValue(1000);
+
+      final OCluster untrained = createCluster(db, "untrained");
+      createDocuments(db, "untrained", 200);
+
+      Assert.assertTrue(trained.getRecordsSize() < untrained.getRecordsSize());
+
+      db.getLocalCache().clear();
+      for (int i = 0; i < rids.size(); i++)
+        assertDocument(db.<ODocument>load(rids.get(i)), i);
+
+      trained.truncate();
+      final List<ORID> afterTruncate = createDocuments(db, "trained", 10);
+
+      db.getLocalCache().clear();
+      for (int i = 0; i < afterTruncate.size(); i++)
+        assertDocument(db.<ODocument>load(afterTruncate.get(i)), i);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    } finally {
+      OGlobalConfiguration.STORAGE_COMPRESSION_DICTIONARY_TRAINING_RECORDS
+          .setValue(OGlobalConfiguration.STORAGE_COMPRESSION_DICTIONARY_TRAINING_RECORDS.getDefValue());
+      db.drop();
+    }
+  }
+
+  private static OCluster createCluster(ODatabaseDocumentTx db, String name) throws Exception {
+    final OCluster cluster = db.getStorage().getClusterById(db.addCluster(name));
+    cluster.set(OCluster.ATTRIBUTES.COMPRESSION, ODictionaryCompression.NAME);
+    return cluster;
+  }
+
+  private static List<ORID> createDocuments(ODatabaseDocumentTx db, String cluster, int count) {
+    final List<ORID> rids = new ArrayList<ORID>();
+    for (int i = 0; i < count; i++) {
+      final ODocument document = new ODocument();
+      document.field("customerName", "customer" + i);
+      document.field("customerCity", CITIES[i % CITIES.length]);
+      document.field("accountStatus", STATUSES[i % STATUSES.length]);
+      document.field("registrationNumber", i);
+      document.save(cluster);
+
+      rids.add(document.getIdentity());
+    }
+
+    return rids;
+  }
+
+  private static void assertDocument(ODocument document, int i) {
+    Assert.assertEquals(document.<String>field("customerName"), "customer" + i);
+    Assert.assertEquals(document.<String>field("customerCity"), CITIES[i % CITIES.length]);
+    Assert.assertEquals(document.<String>field("accountStatus"), STATUSES[i % STATUSES.length]);
+    Assert.assertEquals(document.<Number>field("registrationNumber").intValue(), i);
+  }
+
+  private static byte[] record(int i) {
+    return ("{\"customerName\":\"customer" + i + "\",\"customerCity\":\"" + CITIES[i % CITIES.length] + "\",\"accountStatus\":\""
+        + STATUSES[i % STATUSES.length] + "\",\"registrationNumber\":" + i + "}").getBytes();
+  }
+}
@@ -0,0 +1,103 @@
+package com.orientechnologies.orient.core.index;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.bitmap.ORidBitmap;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.List;
+
+public class BitmapIndexTest {
+  private ODatabaseDocumentTx db;
+
+  @BeforeMethod
+  public void before() {
+    db = new ODatabaseDocumentTx("memory:" + BitmapIndexTest.class.getSimpleName());
+    db.create();
+
+    final OClass oClass = db.getMetadata().getSchema().createClass("Person");
+    oClass.createProperty("gender", OType.STRING);
+    db.command(new OCommandSQL("create index Person.gender on Person (gender) NOTUNIQUE_BITMAP")).execute();
+  }
+
+  @AfterMethod
+  public void after() {
+    db.drop();
+  }
+
+  @Test
+  public void testPutGetRemove() {
+    for (int i = 0; i < 1000; i++) {
+      final ODocument doc = new ODocument("Person");
+      doc.field("gender", i % 3 == 0 ? "F" : "M");
+      doc.save();
+    }
+
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Person.gender");
+    Assert.assertTrue(index.getInternal() instanceof OIndexNotUniqueBitmap);
+
+    Assert.assertEquals(index.count("F"), 334);
+    Assert.assertEquals(index.count("M"), 666);
+    Assert.assertEquals(index.getSize(), 1000);
+    Assert.assertEquals(index.getKeySize(), 2);
+
+    final Collection<OIdentifiable> female = (Collection<OIdentifiable>) index.get("F");
+    Assert.assertEquals(female.size(), 334);
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Person where gender = 'F'"));
+    Assert.assertEquals(result.size(), 334);
+
+    final ODocument doc = result.get(0);
+    doc.field("gender", "M");
+    doc.save();
+
+    Assert.assertEquals(index.count("F"), 333);
+    Assert.assertEquals(index.count("M"), 667);
+
+    doc.delete();
+    Assert.assertEquals(index.count("M"), 666);
+    Assert.assertEquals(index.getSize(), 999);
+  }
+
+  @Test
+  public void testTransaction() {
+    db.begin();
+    for (int i = 0; i < 10; i++) {
+      final ODocument doc = new ODocument("Person");
+      doc.field("gender", "F");
+      doc.save();
+    }
+    db.commit();
+
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Person.gender");
+    Assert.assertEquals(index.count("F"), 10);
+
+    final ORidBitmap bitmap = new ORidBitmap((Collection<OIdentifiable>) index.get("F"));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Person where gender = 'F'"));
+    for (ODocument doc : result)
+      Assert.assertTrue(bitmap.contains(doc.getIdentity()));
+  }
+
+  @Test
+  public void testNullValuesAreIgnored() {
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Person.gender");
+    Assert.assertTrue(index.getDefinition().isNullValuesIgnored());
+
+    new ODocument("Person").field("gender", "F").save();
+    new ODocument("Person").save();
+
+    Assert.assertEquals(index.getSize(), 1);
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Person where gender is null"));
+    Assert.assertEquals(result.size(), 1);
+  }
+}
@@ -0,0 +1,216 @@
+package com.orientechnologies.orient.core.index;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+@Test
+public class IndexBulkLoadTest {
+  private static final int DOCUMENTS = 20000;
+
+  private ODatabaseDocumentTx db;
+  private int                 sortBufferSize;
+  private int                 parallelism;
+
+  @BeforeMethod
+  public void before() {
+    sortBufferSize = OGlobalConfiguration.INDEX_BULK_LOAD_SORT_BUFFER_SIZE.getValueAsInteger();
+    parallelism = OGlobalConfiguration.INDEX_REBUILD_PARALLELISM.getValueAsInteger();
+    OGlobalConfiguration.INDEX_REBUILD_PARALLELISM.setValue(4);
+
+    // keys do not fit into the buffer, so they are sorted using temporary files
+    OGlobalConfiguration.INDEX_BULK_LOAD_SORT_BUFFER_SIZE.setValue(1);
+
+    db = new ODatabaseDocumentTx("memory:" + IndexBulkLoadTest.class.getSimpleName());
+    db.create();
+
+    final OClass personClass = db.getMetadata().getSchema().createClass("Person");
+    personClass.createProperty("id", OType.INTEGER);
+    personClass.createProperty("group", OType.STRING);
+    personClass.createProperty("name", OType.STRING);
+    personClass.createProperty("tags", OType.EMBEDDEDLIST, OType.STRING);
+
+    final Random random = new Random(42);
+    for (int i = 0; i < DOCUMENTS; i++) {
+      final ODocument document = new ODocument("Person");
+      document.field("id", DOCUMENTS - i);
+      document.field("group", "group" + random.nextInt(100));
+
+      if (i % 10 != 0)
+        document.field("name", "name" + random.nextInt(DOCUMENTS));
+
+      document.field("tags", Arrays.asList("tag" + random.nextInt(20), "tag" + random.nextInt(20)));
+      document.save();
+    }
+  }
+
+  @AfterMethod
+  public void after() {
+    OGlobalConfiguration.INDEX_BULK_LOAD_SORT_BUFFER_SIZE.setValue(sortBufferSize);
+    OGlobalConfiguration.INDEX_REBUILD_PARALLELISM.setValue(parallelism);
+    db.drop();
+  }
+
+  public void testIndexesAreFilledByBulkLoad() {
+    final OClass personClass = db.getMetadata().getSchema().getClass("Person");
+
+    personClass.createIndex("Person.id", OClass.INDEX_TYPE.UNIQUE, "id");
+    personClass.createIndex("Person.group", OClass.INDEX_TYPE.NOTUNIQUE, "group");
+    personClass.createIndex("Person.name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
+    personClass.createIndex("Person.tags", OClass.INDEX_TYPE.NOTUNIQUE, "tags");
+    personClass.createIndex("Person.groupAndId", OClass.INDEX_TYPE.UNIQUE, "group", "id");
+
+    assertIndexes();
+
+    for (String indexName : new String[] { "Person.id", "Person.group", "Person.name", "Person.tags", "Person.groupAndId" }) {
+      db.getMetadata().getIndexManager().getIndex(indexName).rebuild();
+    }
+
+    assertIndexes();
+  }
+
+  public void testIndexesFilledByBulkLoadAreTheSameAsIndexesFilledByPut() {
+    final OClass personClass = db.getMetadata().getSchema().getClass("Person");
+
+    personClass.createIndex("Person.name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
+
+    OGlobalConfiguration.INDEX_BULK_LOAD.setValue(false);
+    try {
+      personClass.createIndex("Person.nameByPut", OClass.INDEX_TYPE.NOTUNIQUE, "name");
+    } finally {
+      OGlobalConfiguration.INDEX_BULK_LOAD.setValue(true);
+    }
+
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Person.name");
+    final OIndex<?> indexByPut = db.getMetadata().getIndexManager().getIndex("Person.nameByPut");
+
+    Assert.assertEquals(index.getSize(), indexByPut.getSize());
+    Assert.assertEquals(index.getKeySize(), indexByPut.getKeySize());
+
+    final OIndexCursor cursor = index.cursor();
+    final OIndexCursor cursorByPut = indexByPut.cursor();
+
+    Map.Entry<Object, OIdentifiable> entry;
+    while ((entry = cursor.nextEntry()) != null) {
+      final Map.Entry<Object, OIdentifiable> entryByPut = cursorByPut.nextEntry();
+
+      Assert.assertEquals(entry.getKey(), entryByPut.getKey());
+      Assert.assertEquals(entry.getValue(), entryByPut.getValue());
+    }
+
+    Assert.assertNull(cursorByPut.nextEntry());
+  }
+
+  public void testParallelScanOfBigCluster() {
+    final OClass eventClass = db.getMetadata().getSchema().createClass("Event", 1);
+    eventClass.createProperty("id", OType.INTEGER);
+    eventClass.createProperty("value", OType.INTEGER);
+
+    final int events = 100000;
+    for (int i = 0; i < events; i++) {
+      final ODocument document = new ODocument("Event");
+      document.field("id", i);
+      document.field("value", i % 1000);
+      document.save();
+    }
+
+    eventClass.createIndex("Event.id", OClass.INDEX_TYPE.UNIQUE, "id");
+    eventClass.createIndex("Event.value", OClass.INDEX_TYPE.NOTUNIQUE, "value");
+
+    OGlobalConfiguration.INDEX_REBUILD_PARALLELISM.setValue(1);
+    eventClass.createIndex("Event.valueByOneThread", OClass.INDEX_TYPE.NOTUNIQUE, "value");
+
+    final OIndex<?> idIndex = db.getMetadata().getIndexManager().getIndex("Event.id");
+    Assert.assertEquals(idIndex.getSize(), events);
+    for (int i = 0; i < events; i++) {
+      final ODocument document = ((OIdentifiable) idIndex.get(i)).getRecord();
+      Assert.assertEquals(document.field("id"), i);
+    }
+
+    final OIndex<?> valueIndex = db.getMetadata().getIndexManager().getIndex("Event.value");
+    final OIndex<?> valueIndexByOneThread = db.getMetadata().getIndexManager().getIndex("Event.valueByOneThread");
+    Assert.assertEquals(valueIndex.getSize(), events);
+    Assert.assertEquals(valueIndex.getKeySize(), 1000);
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertEquals(new HashSet<Object>((Collection<?>) valueIndex.get(i)),
+          new HashSet<Object>((Collection<?>) valueIndexByOneThread.get(i)));
+    }
+  }
+
+  public void testDuplicatedKeysOfUniqueIndex() {
+    final OClass personClass = db.getMetadata().getSchema().getClass("Person");
+
+    try {
+      personClass.createIndex("Person.group", OClass.INDEX_TYPE.UNIQUE, "group");
+      Assert.fail();
+    } catch (OException e) {
+      Assert.assertNull(db.getMetadata().getIndexManager().getIndex("Person.group"));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void assertIndexes() {
+    final Map<Object, Set<OIdentifiable>> groups = new HashMap<Object, Set<OIdentifiable>>();
+    final Map<Object, Set<OIdentifiable>> names = new HashMap<Object, Set<OIdentifiable>>();
+    final Map<Object, Set<OIdentifiable>> tags = new HashMap<Object, Set<OIdentifiable>>();
+
+    for (ODocument document : db.browseClass("Person")) {
+      addValue(groups, document.field("group"), document);
+      addValue(names, document.field("name"), document);
+
+      for (Object tag : (List<Object>) document.field("tags")) {
+        addValue(tags, tag, document);
+      }
+    }
+
+    final OIndex<?> idIndex = db.getMetadata().getIndexManager().getIndex("Person.id");
+    Assert.assertEquals(idIndex.getSize(), DOCUMENTS);
+    for (int i = 1; i <= DOCUMENTS; i++) {
+      final ODocument document = ((OIdentifiable) idIndex.get(i)).getRecord();
+      Assert.assertEquals(document.field("id"), i);
+    }
+
+    assertNotUniqueIndex("Person.group", groups);
+    assertNotUniqueIndex("Person.name", names);
+    assertNotUniqueIndex("Person.tags", tags);
+
+    final OIndex<?> compositeIndex = db.getMetadata().getIndexManager().getIndex("Person.groupAndId");
+    Assert.assertEquals(compositeIndex.getSize(), DOCUMENTS);
+    for (Map.Entry<Object, Set<OIdentifiable>> entry : groups.entrySet()) {
+      for (OIdentifiable identifiable : entry.getValue()) {
+        final ODocument document = identifiable.getRecord();
+        Assert.assertEquals(compositeIndex.get(new OCompositeKey(entry.getKey(), document.field("id"))), identifiable);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void assertNotUniqueIndex(String indexName, Map<Object, Set<OIdentifiable>> values) {
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex(indexName);
+
+    Assert.assertEquals(index.getKeySize(), values.size());
+    for (Map.Entry<Object, Set<OIdentifiable>> entry : values.entrySet()) {
+      Assert.assertEquals(new HashSet<OIdentifiable>((Collection<OIdentifiable>) index.get(entry.getKey())), entry.getValue());
+    }
+  }
+
+  private static void addValue(Map<Object, Set<OIdentifiable>> values, Object key, ODocument document) {
+    Set<OIdentifiable> keyValues = values.get(key);
+    if (keyValues == null) {
+      keyValues = new HashSet<OIdentifiable>();
+      values.put(key, keyValues);
+    }
+
+    keyValues.add(document.getIdentity());
+  }
+}
@@ -0,0 +1,91 @@
+package com.orientechnologies.orient.core.index.bitmap;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORecordId;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Test
+public class ORidBitmapTest {
+  public void testAddRemoveContains() {
+    final ORidBitmap bitmap = new ORidBitmap();
+
+    Assert.assertTrue(bitmap.add(new ORecordId(10, 5)));
+    Assert.assertTrue(bitmap.add(new ORecordId(10, 70000)));
+    Assert.assertTrue(bitmap.add(new ORecordId(9, 5)));
+    Assert.assertFalse(bitmap.add(new ORecordId(10, 5)));
+
+    Assert.assertEquals(bitmap.size(), 3);
+    Assert.assertEquals(bitmap.getContainers().size(), 3);
+    Assert.assertTrue(bitmap.contains(new ORecordId(10, 70000)));
+    Assert.assertFalse(bitmap.contains(new ORecordId(10, 6)));
+
+    final List<OIdentifiable> rids = new ArrayList<OIdentifiable>(bitmap);
+    Assert.assertEquals(rids.get(0), new ORecordId(9, 5));
+    Assert.assertEquals(rids.get(1), new ORecordId(10, 5));
+    Assert.assertEquals(rids.get(2), new ORecordId(10, 70000));
+
+    Assert.assertTrue(bitmap.remove(new ORecordId(10, 70000)));
+    Assert.assertFalse(bitmap.remove(new ORecordId(10, 70000)));
+    Assert.assertEquals(bitmap.size(), 2);
+    Assert.assertEquals(bitmap.getContainers().size(), 2);
+  }
+
+  public void testContainerConversion() {
+    final ORidBitmapContainer container = new ORidBitmapContainer();
+    for (int i = 0; i < ORidBitmapContainer.ARRAY_MAX_SIZE * 2; i++)
+      Assert.assertTrue(container.add(i * 3));
+
+    Assert.assertEquals(container.getCardinality(), ORidBitmapContainer.ARRAY_MAX_SIZE * 2);
+    Assert.assertTrue(container.toBytes().length <= 8 * 1024 + 5);
+
+    final ORidBitmapContainer restored = ORidBitmapContainer.fromBytes(container.toBytes());
+    Assert.assertEquals(restored.getCardinality(), container.getCardinality());
+    Assert.assertTrue(restored.contains(3 * 100));
+    Assert.assertFalse(restored.contains(3 * 100 + 1));
+
+    for (int i = 0; i < ORidBitmapContainer.ARRAY_MAX_SIZE * 2; i += 2)
+      Assert.assertTrue(restored.remove(i * 3));
+
+    Assert.assertEquals(restored.getCardinality(), ORidBitmapContainer.ARRAY_MAX_SIZE);
+    Assert.assertEquals(restored.toBytes().length, 5 + ORidBitmapContainer.ARRAY_MAX_SIZE * 2);
+
+    final ORidBitmapContainer.ValueIterator iterator = restored.iterator();
+    int expected = 3;
+    while (iterator.hasNext()) {
+      Assert.assertEquals(iterator.next(), expected);
+      expected += 6;
+    }
+  }
+
+  public void testSetOperations() {
+    final ORidBitmap first = new ORidBitmap();
+    final ORidBitmap second = new ORidBitmap();
+    for (int i = 0; i < 10000; i++) {
+      first.add(new ORecordId(1, i));
+      if (i % 2 == 0)
+        second.add(new ORecordId(1, i));
+    }
+    second.add(new ORecordId(2, 0));
+
+    final ORidBitmap and = first.and(second);
+    Assert.assertEquals(and.size(), 5000);
+    Assert.assertTrue(and.contains(new ORecordId(1, 2)));
+    Assert.assertFalse(and.contains(new ORecordId(1, 3)));
+
+    final ORidBitmap or = first.or(second);
+    Assert.assertEquals(or.size(), 10001);
+    Assert.assertTrue(or.contains(new ORecordId(2, 0)));
+
+    final ORidBitmap andNot = first.andNot(second);
+    Assert.assertEquals(andNot.size(), 5000);
+    Assert.assertTrue(andNot.contains(new ORecordId(1, 3)));
+    Assert.assertFalse(andNot.contains(new ORecordId(1, 2)));
+
+    Assert.assertEquals(first.size(), 10000);
+    Assert.assertEquals(second.size(), 5001);
+  }
+}
@@ -0,0 +1,116 @@
+package com.orientechnologies.orient.core.index.hashindex.local;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Test
+public class LocalHashTableOptimisticReadTest {
+  private static final int KEYS_COUNT = 200000;
+  private static final int READERS    = 4;
+
+  private ODatabaseDocumentTx              databaseDocumentTx;
+  private OLocalHashTable<Integer, String> localHashTable;
+
+  @BeforeClass
+  public void beforeClass() {
+    OGlobalConfiguration.HASH_TABLE_OPTIMISTIC_READS.setValue(true);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/localHashTableOptimisticReadTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    OMurmurHash3HashFunction<Integer> murmurHash3HashFunction = new OMurmurHash3HashFunction<Integer>();
+    murmurHash3HashFunction.setValueSerializer(OIntegerSerializer.INSTANCE);
+
+    localHashTable = new OLocalHashTable<Integer, String>("localHashTableOptimisticRead", ".imc", ".tsc", ".obf", ".nbh",
+        murmurHash3HashFunction, false, (OAbstractPaginatedStorage) databaseDocumentTx.getStorage());
+
+    localHashTable.create(OIntegerSerializer.INSTANCE,
+        OBinarySerializerFactory.getInstance().<String>getObjectSerializer(OType.STRING), null, true);
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    localHashTable.clear();
+    localHashTable.delete();
+    databaseDocumentTx.drop();
+
+    OGlobalConfiguration.HASH_TABLE_OPTIMISTIC_READS
+        .setValue(OGlobalConfiguration.HASH_TABLE_OPTIMISTIC_READS.getDefValue());
+  }
+
+  /**
+   * Checks that keys which were added before the read started are always found while buckets are split and directory grows.
+   */
+  public void testReadsDuringGrowth() throws Exception {
+    final AtomicInteger added = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(READERS + 1);
+    try {
+      final List<Future<Void>> readers = new ArrayList<Future<Void>>();
+      for (int i = 0; i < READERS; i++) {
+        final int seed = i;
+        readers.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            final Random random = new Random(seed);
+            int count;
+            while ((count = added.get()) < KEYS_COUNT) {
+              if (count == 0)
+                continue;
+
+              final int key = random.nextInt(count);
+              Assert.assertEquals(localHashTable.get(key), key + "");
+              Assert.assertNull(localHashTable.get(KEYS_COUNT + key));
+            }
+
+            return null;
+          }
+        }));
+      }
+
+      final Future<Void> writer = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for (int i = 0; i < KEYS_COUNT; i++) {
+            localHashTable.put(i, i + "");
+            added.set(i + 1);
+          }
+
+          return null;
+        }
+      });
+
+      writer.get();
+      for (Future<Void> reader : readers)
+        reader.get();
+    } finally {
+      executor.shutdown();
+      Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+
+    for (int i = 0; i < KEYS_COUNT; i++)
+      Assert.assertEquals(localHashTable.get(i), i + "");
+  }
+}
@@ -13,7 +13,10 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
@@ -211,6 +214,32 @@ public class OLocalHashTableTest {
     }
   }
 
+  public void testGetAll() throws IOException {
+    for (int i = 0; i < KEYS_COUNT; i += 2)
+      localHashTable.put(i, i + "");
+
+    localHashTable.put(null, "null");
+
+    final List<Integer> keys = new ArrayList<Integer>();
+    for (int i = 0; i < KEYS_COUNT; i += 7)
+      keys.add(i);
+
+    keys.add(null);
+
+    final Map<Integer, String> values = localHashTable.getAll(keys);
+
+    int found = 0;
+    for (Integer key : keys) {
+      final String value = localHashTable.get(key);
+      if (value != null)
+        found++;
+
+      Assert.assertEquals(values.get(key), value, key + " key has wrong value");
+    }
+
+    Assert.assertEquals(values.size(), found);
+  }
+
   public void testKeyPutRemoveNullKey() throws IOException {
     for (int i = 0; i < 10; i++)
       localHashTable.put(i, i + "");
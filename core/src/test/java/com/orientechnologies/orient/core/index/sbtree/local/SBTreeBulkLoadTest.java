@@ -0,0 +1,235 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+@Test
+public class SBTreeBulkLoadTest {
+  private ODatabaseDocumentTx             databaseDocumentTx;
+  private OSBTree<Integer, OIdentifiable> sbTree;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/sbTreeBulkLoadTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    sbTree = new OSBTree<Integer, OIdentifiable>("bulkLoadTree", ".sbt", false, ".nbt",
+        (OAbstractPaginatedStorage) databaseDocumentTx.getStorage());
+    sbTree.create(OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, 1, false);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    sbTree.clear();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    sbTree.delete();
+    databaseDocumentTx.drop();
+  }
+
+  public void testBulkLoad() {
+    final TreeMap<Integer, ORecordId> keys = new TreeMap<Integer, ORecordId>();
+    for (int i = 0; i < 1000000; i++) {
+      keys.put(i * 2, new ORecordId(i % 32000, i));
+    }
+
+    Assert.assertEquals(sbTree.bulkLoad(SBTreeBulkLoadTest.<Integer, OIdentifiable>entries(keys)), keys.size());
+    assertTree(sbTree, keys);
+
+    final Random random = new Random(42);
+    for (int i = 0; i < 50000; i++) {
+      final int key = random.nextInt(700000);
+      final ORecordId value = new ORecordId(key % 32000, key);
+
+      sbTree.put(key, value);
+      keys.put(key, value);
+    }
+
+    for (int i = 0; i < 50000; i++) {
+      final int key = random.nextInt(700000);
+      Assert.assertEquals(sbTree.remove(key), keys.remove(key));
+    }
+
+    assertTree(sbTree, keys);
+  }
+
+  public void testBulkLoadOfFewKeys() {
+    Assert.assertEquals(sbTree.bulkLoad(SBTreeBulkLoadTest.<Integer, OIdentifiable>entries(new TreeMap<Integer, ORecordId>())), 0);
+    Assert.assertEquals(sbTree.size(), 0);
+    Assert.assertNull(sbTree.firstKey());
+
+    final TreeMap<Integer, ORecordId> keys = new TreeMap<Integer, ORecordId>();
+    for (int i = 0; i < 10; i++) {
+      keys.put(i, new ORecordId(1, i));
+    }
+
+    Assert.assertEquals(sbTree.bulkLoad(SBTreeBulkLoadTest.<Integer, OIdentifiable>entries(keys)), keys.size());
+    assertTree(sbTree, keys);
+  }
+
+  public void testBulkLoadIntoNotEmptyTree() {
+    final TreeMap<Integer, ORecordId> keys = new TreeMap<Integer, ORecordId>();
+    for (int i = 0; i < 100; i++) {
+      sbTree.put(i * 1000 + 1, new ORecordId(2, i));
+      keys.put(i * 1000 + 1, new ORecordId(2, i));
+    }
+
+    final TreeMap<Integer, ORecordId> loaded = new TreeMap<Integer, ORecordId>();
+    for (int i = 0; i < 50000; i++) {
+      loaded.put(i * 2, new ORecordId(1, i));
+    }
+
+    Assert.assertEquals(sbTree.bulkLoad(SBTreeBulkLoadTest.<Integer, OIdentifiable>entries(loaded)), loaded.size());
+
+    keys.putAll(loaded);
+    assertTree(sbTree, keys);
+  }
+
+  public void testUnsortedKeysAreRejected() {
+    final List<Map.Entry<Integer, OIdentifiable>> entries = new ArrayList<Map.Entry<Integer, OIdentifiable>>();
+    for (int i = 0; i < 100000; i++) {
+      entries.add(new AbstractMap.SimpleImmutableEntry<Integer, OIdentifiable>(i, new ORecordId(1, i)));
+    }
+    entries.add(new AbstractMap.SimpleImmutableEntry<Integer, OIdentifiable>(10, new ORecordId(1, 10)));
+
+    try {
+      sbTree.bulkLoad(entries.iterator());
+      Assert.fail();
+    } catch (OSBTreeException e) {
+      Assert.assertEquals(sbTree.size(), 0);
+      Assert.assertNull(sbTree.get(10));
+    }
+  }
+
+  public void testBulkLoadOfLongKeys() throws Exception {
+    final boolean prefixCompression = OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.getValueAsBoolean();
+    OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(false);
+
+    final OSBTree<String, OIdentifiable> tree = new OSBTree<String, OIdentifiable>("bulkLoadLongKeysTree", ".sbt", false, ".nbt",
+        (OAbstractPaginatedStorage) databaseDocumentTx.getStorage());
+    tree.create(OStringSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, 1, false);
+    try {
+      final StringBuilder prefix = new StringBuilder();
+      while (prefix.length() < 1000) {
+        prefix.append("key");
+      }
+
+      for (int count : new int[] { 1000, 1070, 3000 }) {
+        final TreeMap<String, ORecordId> keys = new TreeMap<String, ORecordId>();
+        for (int i = 0; i < count; i++) {
+          keys.put(prefix.toString() + i, new ORecordId(1, i));
+        }
+
+        Assert.assertEquals(tree.bulkLoad(SBTreeBulkLoadTest.<String, OIdentifiable>entries(keys)), keys.size());
+
+        Assert.assertEquals(tree.size(), keys.size());
+        for (Map.Entry<String, ORecordId> entry : keys.entrySet()) {
+          Assert.assertEquals(tree.get(entry.getKey()), entry.getValue());
+        }
+
+        final OSBTree.OSBTreeCursor<String, OIdentifiable> cursor = tree.iterateEntriesMajor(keys.firstKey(), true, true);
+        for (Map.Entry<String, ORecordId> entry : keys.entrySet()) {
+          Assert.assertEquals(cursor.next(-1).getKey(), entry.getKey());
+        }
+        Assert.assertNull(cursor.next(-1));
+
+        tree.clear();
+      }
+    } finally {
+      OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(prefixCompression);
+      tree.delete();
+    }
+  }
+
+  public void testBulkLoadOfStringKeysAndLinkedValues() throws Exception {
+    final OSBTree<String, String> tree = new OSBTree<String, String>("bulkLoadStringTree", ".sbt", false, ".nbt",
+        (OAbstractPaginatedStorage) databaseDocumentTx.getStorage());
+    tree.create(OStringSerializer.INSTANCE, OStringSerializer.INSTANCE, null, 1, false);
+    try {
+      final Random random = new Random(42);
+      final TreeMap<String, String> keys = new TreeMap<String, String>();
+      for (int i = 0; i < 100000; i++) {
+        keys.put("http://www.orientdb.com/docs/" + random.nextLong(), "value" + i);
+      }
+
+      final StringBuilder bigValue = new StringBuilder();
+      while (bigValue.length() < 100000) {
+        bigValue.append(random.nextLong());
+      }
+
+      final Iterator<String> iterator = keys.keySet().iterator();
+      for (int i = 0; i < 50; i++) {
+        iterator.next();
+        keys.put(iterator.next(), bigValue.toString() + i);
+      }
+
+      Assert.assertEquals(tree.bulkLoad(entries(keys)), keys.size());
+
+      Assert.assertEquals(tree.size(), keys.size());
+      for (Map.Entry<String, String> entry : keys.entrySet()) {
+        Assert.assertEquals(tree.get(entry.getKey()), entry.getValue());
+      }
+
+      final OSBTree.OSBTreeCursor<String, String> cursor = tree.iterateEntriesMinor(keys.lastKey(), true, false);
+      for (Map.Entry<String, String> entry : keys.descendingMap().entrySet()) {
+        Assert.assertEquals(cursor.next(-1).getKey(), entry.getKey());
+      }
+      Assert.assertNull(cursor.next(-1));
+    } finally {
+      tree.delete();
+    }
+  }
+
+  private static <K, V> Iterator<Map.Entry<K, V>> entries(SortedMap<K, ? extends V> keys) {
+    final List<Map.Entry<K, V>> entries = new ArrayList<Map.Entry<K, V>>();
+    for (Map.Entry<K, ? extends V> entry : keys.entrySet()) {
+      entries.add(new AbstractMap.SimpleImmutableEntry<K, V>(entry.getKey(), entry.getValue()));
+    }
+
+    return entries.iterator();
+  }
+
+  private static void assertTree(OSBTree<Integer, OIdentifiable> tree, TreeMap<Integer, ORecordId> keys) {
+    Assert.assertEquals(tree.size(), keys.size());
+    Assert.assertEquals(tree.firstKey(), keys.firstKey());
+    Assert.assertEquals(tree.lastKey(), keys.lastKey());
+
+    for (int i = keys.firstKey() - 1; i <= keys.lastKey() + 1; i++) {
+      Assert.assertEquals(tree.get(i), keys.get(i));
+    }
+
+    final OSBTree.OSBTreeCursor<Integer, OIdentifiable> cursor = tree.iterateEntriesMajor(keys.firstKey(), true, true);
+    for (Map.Entry<Integer, ORecordId> entry : keys.entrySet()) {
+      final Map.Entry<Integer, OIdentifiable> treeEntry = cursor.next(-1);
+
+      Assert.assertEquals(treeEntry.getKey(), entry.getKey());
+      Assert.assertEquals(treeEntry.getValue(), entry.getValue());
+    }
+
+    Assert.assertNull(cursor.next(-1));
+  }
+}
@@ -0,0 +1,200 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import com.orientechnologies.common.directmemory.OByteBufferPool;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.cache.OCachePointer;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Test
+public class SBTreeOptimisticReadTest {
+  private static final int KEYS_COUNT = 100000;
+  private static final int READERS    = 4;
+
+  private ODatabaseDocumentTx             databaseDocumentTx;
+  private OSBTree<Integer, OIdentifiable> sbTree;
+
+  @BeforeClass
+  public void beforeClass() {
+    OGlobalConfiguration.SBTREE_OPTIMISTIC_READS.setValue(true);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/localSBTreeOptimisticReadTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    sbTree = new OSBTree<Integer, OIdentifiable>("sbTreeOptimisticRead", ".sbt", false, ".nbt",
+        (OAbstractPaginatedStorage) databaseDocumentTx.getStorage());
+    sbTree.create(OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, 1, false);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    sbTree.delete();
+    databaseDocumentTx.drop();
+
+    OGlobalConfiguration.SBTREE_OPTIMISTIC_READS.setValue(OGlobalConfiguration.SBTREE_OPTIMISTIC_READS.getDefValue());
+  }
+
+  public void testPageStampIsChangedByExclusiveLock() {
+    final OByteBufferPool bufferPool = OByteBufferPool.instance();
+    final ByteBuffer buffer = bufferPool.acquireDirect(true);
+
+    final OCachePointer cachePointer = new OCachePointer(buffer, bufferPool, new OLogSequenceNumber(0, 0), 0, 0);
+    cachePointer.incrementReferrer();
+    try {
+      final long stamp = cachePointer.tryOptimisticRead();
+      Assert.assertTrue(stamp >= 0);
+      Assert.assertTrue(cachePointer.validateOptimisticRead(stamp));
+
+      cachePointer.acquireExclusiveLock();
+      try {
+        Assert.assertEquals(cachePointer.tryOptimisticRead(), -1);
+        Assert.assertFalse(cachePointer.validateOptimisticRead(stamp));
+
+        cachePointer.acquireExclusiveLock();
+        cachePointer.releaseExclusiveLock();
+
+        Assert.assertEquals(cachePointer.tryOptimisticRead(), -1);
+      } finally {
+        cachePointer.releaseExclusiveLock();
+      }
+
+      Assert.assertFalse(cachePointer.validateOptimisticRead(stamp));
+      Assert.assertTrue(cachePointer.tryOptimisticRead() >= 0);
+
+      cachePointer.acquireSharedLock();
+      cachePointer.releaseSharedLock();
+      Assert.assertTrue(cachePointer.validateOptimisticRead(cachePointer.tryOptimisticRead()));
+    } finally {
+      cachePointer.decrementReferrer();
+    }
+  }
+
+  public void testReadsDuringConcurrentUpdates() throws Exception {
+    for (int i = 0; i < KEYS_COUNT; i += 2)
+      sbTree.put(i, value(i));
+
+    final AtomicBoolean stop = new AtomicBoolean();
+    final ExecutorService executor = Executors.newFixedThreadPool(READERS + 1);
+    try {
+      final List<Future<Void>> readers = new ArrayList<Future<Void>>();
+      for (int i = 0; i < READERS; i++)
+        readers.add(executor.submit(new Reader(stop, i)));
+
+      final Future<Void> writer = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final Random random = new Random(42);
+          for (int n = 0; n < 5; n++) {
+            for (int i = 1; i < KEYS_COUNT; i += 2)
+              sbTree.put(i, value(i));
+
+            for (int i = 1; i < KEYS_COUNT; i += 2)
+              sbTree.remove(i);
+
+            for (int i = 0; i < KEYS_COUNT / 10; i++) {
+              final int key = random.nextInt(KEYS_COUNT / 2) * 2;
+              sbTree.put(key, value(key));
+            }
+          }
+
+          return null;
+        }
+      });
+
+      writer.get();
+      stop.set(true);
+
+      for (Future<Void> reader : readers)
+        reader.get();
+    } finally {
+      executor.shutdown();
+      Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+
+    for (int i = 0; i < KEYS_COUNT; i++)
+      Assert.assertEquals(sbTree.get(i), i % 2 == 0 ? value(i) : null);
+  }
+
+  private static ORecordId value(int key) {
+    return new ORecordId(key % 32000, key);
+  }
+
+  /**
+   * Checks that keys with even values, which are never removed, are always found with correct values and that keys with odd values
+   * are found either with correct values or not found at all.
+   */
+  private final class Reader implements Callable<Void> {
+    private final AtomicBoolean stop;
+    private final Random        random;
+
+    private Reader(AtomicBoolean stop, int seed) {
+      this.stop = stop;
+      this.random = new Random(seed);
+    }
+
+    @Override
+    public Void call() throws Exception {
+      while (!stop.get()) {
+        for (int i = 0; i < 1000; i++) {
+          final int key = random.nextInt(KEYS_COUNT);
+          final OIdentifiable value = sbTree.get(key);
+
+          if (key % 2 == 0 || value != null)
+            Assert.assertEquals(value, value(key));
+        }
+
+        final int from = random.nextInt(KEYS_COUNT / 2) * 2;
+        final boolean ascSortOrder = random.nextBoolean();
+        final OSBTree.OSBTreeCursor<Integer, OIdentifiable> cursor = sbTree
+            .iterateEntriesBetween(from, true, from + 200, false, ascSortOrder);
+
+        int evenKeys = 0;
+        Integer lastKey = null;
+        Map.Entry<Integer, OIdentifiable> entry = cursor.next(-1);
+        while (entry != null) {
+          final int key = entry.getKey();
+          Assert.assertEquals(entry.getValue(), value(key));
+
+          if (lastKey != null)
+            Assert.assertTrue(ascSortOrder ? key > lastKey : key < lastKey);
+
+          if (key % 2 == 0)
+            evenKeys++;
+
+          lastKey = key;
+          entry = cursor.next(-1);
+        }
+
+        Assert.assertEquals(evenKeys, Math.min(100, (KEYS_COUNT - from) / 2));
+      }
+
+      return null;
+    }
+  }
+}
@@ -0,0 +1,356 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.directmemory.OByteBufferPool;
+import com.orientechnologies.common.serialization.types.ODateSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OAlwaysGreaterKey;
+import com.orientechnologies.orient.core.index.OAlwaysLessKey;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
+import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
+import com.orientechnologies.orient.core.storage.cache.OCachePointer;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+@Test
+public class SBTreePrefixCompressionTest {
+  private OByteBufferPool bufferPool;
+  private OCachePointer   cachePointer;
+  private OCacheEntry     cacheEntry;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    bufferPool = OByteBufferPool.instance();
+    final ByteBuffer buffer = bufferPool.acquireDirect(true);
+
+    cachePointer = new OCachePointer(buffer, bufferPool, new OLogSequenceNumber(0, 0), 0, 0);
+    cachePointer.incrementReferrer();
+
+    cacheEntry = new OCacheEntry(0, 0, cachePointer, false);
+    cacheEntry.acquireExclusiveLock();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    cacheEntry.releaseExclusiveLock();
+    cachePointer.decrementReferrer();
+
+    OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.getDefValue());
+  }
+
+  public void testNormalizedKeysPreserveOrder() {
+    final Random random = new Random(42);
+    final OSBTreeKeyNormalizer normalizer = OSBTreeKeyNormalizer
+        .create(OCompositeKeySerializer.INSTANCE, new OType[] { OType.STRING, OType.LONG, OType.DOUBLE, OType.LINK });
+
+    final List<OCompositeKey> keys = new ArrayList<OCompositeKey>();
+    for (int i = 0; i < 2000; i++) {
+      keys.add(new OCompositeKey(random.nextInt(10) == 0 ? null : randomString(random), random.nextLong() % 10,
+          random.nextDouble() - 0.5, new ORecordId(random.nextInt(5), random.nextInt(1000))));
+    }
+
+    for (int i = 0; i < keys.size() - 1; i++) {
+      final OCompositeKey keyOne = keys.get(i);
+      final OCompositeKey keyTwo = keys.get(i + 1);
+
+      final byte[] normalizedOne = normalizer.normalize(keyOne);
+      final byte[] normalizedTwo = normalizer.normalize(keyTwo);
+
+      Assert.assertEquals(Integer.signum(OSBTreeKeyNormalizer.compare(normalizedOne, 0, normalizedTwo, 0)),
+          Integer.signum(ODefaultComparator.INSTANCE.compare(keyOne, keyTwo)));
+      Assert.assertEquals(normalizer.denormalize(normalizedOne), keyOne);
+    }
+
+    final OCompositeKey key = keys.get(0);
+    final byte[] normalizedKey = normalizer.normalize(key);
+
+    Assert.assertTrue(OSBTreeKeyNormalizer
+        .compare(normalizer.normalize(new OCompositeKey(key.getKeys().get(0), new OAlwaysLessKey())), 0, normalizedKey, 0) < 0);
+    Assert.assertTrue(OSBTreeKeyNormalizer
+        .compare(normalizer.normalize(new OCompositeKey(key.getKeys().get(0), new OAlwaysGreaterKey())), 0, normalizedKey, 0) > 0);
+    Assert.assertEquals(
+        OSBTreeKeyNormalizer.compare(normalizer.normalize(new OCompositeKey(key.getKeys().get(0))), 0, normalizedKey, 0), 0);
+  }
+
+  public void testDateKeysAreTruncatedToTheDay() {
+    final OSBTreeKeyNormalizer normalizer = OSBTreeKeyNormalizer.create(ODateSerializer.INSTANCE, null);
+
+    final Calendar calendar = Calendar.getInstance();
+    calendar.set(2017, Calendar.MAY, 19, 10, 30, 15);
+    final Date morning = calendar.getTime();
+
+    calendar.set(Calendar.HOUR_OF_DAY, 22);
+    final Date evening = calendar.getTime();
+
+    calendar.set(Calendar.HOUR_OF_DAY, 0);
+    calendar.set(Calendar.MINUTE, 0);
+    calendar.set(Calendar.SECOND, 0);
+    calendar.set(Calendar.MILLISECOND, 0);
+
+    Assert.assertEquals(normalizer.normalize(morning), normalizer.normalize(evening));
+    Assert.assertEquals(normalizer.denormalize(normalizer.normalize(morning)), calendar.getTime());
+  }
+
+  public void testUnsupportedKeysAreNotNormalized() {
+    Assert.assertNull(OSBTreeKeyNormalizer.create(OCompositeKeySerializer.INSTANCE, null));
+    Assert.assertNull(OSBTreeKeyNormalizer.create(OCompositeKeySerializer.INSTANCE, new OType[] { OType.STRING, OType.BINARY }));
+    Assert.assertNull(OSBTreeKeyNormalizer.create(OStringSerializer.INSTANCE, new OType[] { OType.INTEGER }));
+    Assert.assertNull(OSBTreeKeyNormalizer.create(OStringSerializer.INSTANCE, null).normalize(1));
+  }
+
+  public void testSearchAndRemove() throws Exception {
+    final OSBTreeBucket<String, OIdentifiable> bucket = newBucket(true);
+    Assert.assertTrue(bucket.isPrefixCompressed());
+
+    final TreeMap<String, ORecordId> keys = fill(bucket, "http://www.orientdb.com/docs/");
+    assertBucket(bucket, keys);
+
+    final Random random = new Random(42);
+    final List<String> removed = new ArrayList<String>(keys.keySet());
+    Collections.shuffle(removed, random);
+
+    for (String key : removed.subList(0, removed.size() / 2)) {
+      final int index = bucket.find(key);
+      Assert.assertTrue(index >= 0);
+
+      bucket.remove(index);
+      keys.remove(key);
+    }
+
+    assertBucket(bucket, loadBucket());
+    assertBucket(loadBucket(), keys);
+  }
+
+  public void testPrefixIsShortenedWhenKeyDoesNotMatch() throws Exception {
+    final OSBTreeBucket<String, OIdentifiable> bucket = newBucket(true);
+
+    final List<OSBTreeBucket.SBTreeEntry<String, OIdentifiable>> entries = new ArrayList<OSBTreeBucket.SBTreeEntry<String, OIdentifiable>>();
+    final TreeMap<String, ORecordId> keys = new TreeMap<String, ORecordId>();
+    for (int i = 0; i < 100; i++) {
+      final String key = "prefix" + (1000 + i);
+      keys.put(key, new ORecordId(1, i));
+      entries.add(leafEntry(key, keys.get(key)));
+    }
+
+    bucket.addAll(entries);
+
+    keys.put("other", new ORecordId(2, 2));
+    Assert.assertTrue(bucket.addEntry(-bucket.find("other") - 1, leafEntry("other", keys.get("other")), false));
+    keys.put("a", new ORecordId(3, 3));
+    Assert.assertTrue(bucket.addEntry(-bucket.find("a") - 1, leafEntry("a", keys.get("a")), false));
+
+    assertBucket(bucket, keys);
+
+    bucket.shrink(50);
+    while (keys.size() > 50)
+      keys.pollLastEntry();
+
+    assertBucket(loadBucket(), keys);
+  }
+
+  public void testNonLeafBucket() throws Exception {
+    OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(true);
+
+    final OSBTreeBucket<String, OIdentifiable> bucket = new OSBTreeBucket<String, OIdentifiable>(cacheEntry, false,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, null);
+    Assert.assertTrue(bucket.isPrefixCompressed());
+
+    for (int i = 0; i < 100; i++) {
+      final String key = "key" + (1000 + i * 2);
+      Assert.assertTrue(bucket.addEntry(i, new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(i, i + 1, key, null), true));
+    }
+
+    Assert.assertTrue(bucket.addEntry(-bucket.find("key1001") - 1,
+        new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(100, 101, "key1001", null), true));
+
+    final OSBTreeBucket<String, OIdentifiable> loaded = new OSBTreeBucket<String, OIdentifiable>(cacheEntry,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, null);
+    Assert.assertFalse(loaded.isLeaf());
+    Assert.assertEquals(loaded.size(), 101);
+    Assert.assertEquals(loaded.find("key1001"), 1);
+    Assert.assertEquals(loaded.getEntry(0), new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(0, 100, "key1000", null));
+    Assert.assertEquals(loaded.getEntry(1), new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(100, 101, "key1001", null));
+    Assert.assertEquals(loaded.getEntry(2), new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(101, 2, "key1002", null));
+  }
+
+  public void testCompressedBucketHoldsMoreKeys() throws Exception {
+    final int compressed = fill(newBucket(true), "http://www.orientdb.com/docs/").size();
+    final int uncompressed = fill(newBucket(false), "http://www.orientdb.com/docs/").size();
+
+    Assert.assertTrue(compressed > 2 * uncompressed);
+  }
+
+  public void testUncompressedBucketIsReadAsBefore() throws Exception {
+    final OSBTreeBucket<String, OIdentifiable> bucket = newBucket(false);
+    Assert.assertFalse(bucket.isPrefixCompressed());
+
+    final TreeMap<String, ORecordId> keys = fill(bucket, "key");
+
+    OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(true);
+    final OSBTreeBucket<String, OIdentifiable> loaded = loadBucket();
+
+    Assert.assertFalse(loaded.isPrefixCompressed());
+    Assert.assertTrue(loaded.isLeaf());
+    assertBucket(loaded, keys);
+  }
+
+  public void testTreeWithBucketsOfBothFormats() throws Exception {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    final ODatabaseDocumentTx database = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/sbTreePrefixCompressionTest");
+    if (database.exists()) {
+      database.open("admin", "admin");
+      database.drop();
+    }
+
+    database.create();
+    try {
+      OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(false);
+
+      final OSBTree<String, OIdentifiable> tree = new OSBTree<String, OIdentifiable>("prefixCompressionTree", ".sbt", false,
+          ".nbt", (OAbstractPaginatedStorage) database.getStorage());
+      tree.create(OStringSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, 1, false);
+
+      final Random random = new Random(42);
+      final TreeMap<String, ORecordId> keys = new TreeMap<String, ORecordId>();
+
+      put(tree, keys, random, 20000);
+      OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(true);
+      put(tree, keys, random, 50000);
+
+      assertTree(tree, keys);
+
+      final List<String> removed = new ArrayList<String>(keys.keySet());
+      Collections.shuffle(removed, random);
+
+      for (String key : removed.subList(0, removed.size() / 2)) {
+        Assert.assertEquals(tree.remove(key), keys.remove(key));
+      }
+
+      assertTree(tree, keys);
+      tree.delete();
+    } finally {
+      database.drop();
+    }
+  }
+
+  private static void put(OSBTree<String, OIdentifiable> tree, Map<String, ORecordId> keys, Random random, int count) {
+    for (int i = 0; i < count; i++) {
+      final String key = "http://www.orientdb.com/docs/" + randomString(random);
+      final ORecordId value = new ORecordId(random.nextInt(100), random.nextInt(100000));
+
+      tree.put(key, value);
+      keys.put(key, value);
+    }
+  }
+
+  private static void assertTree(OSBTree<String, OIdentifiable> tree, TreeMap<String, ORecordId> keys) {
+    Assert.assertEquals(tree.size(), keys.size());
+    Assert.assertEquals(tree.firstKey(), keys.firstKey());
+    Assert.assertEquals(tree.lastKey(), keys.lastKey());
+
+    for (Map.Entry<String, ORecordId> entry : keys.entrySet()) {
+      Assert.assertEquals(tree.get(entry.getKey()), entry.getValue());
+      Assert.assertNull(tree.get(entry.getKey() + "\u0000"));
+    }
+
+    final OSBTree.OSBTreeCursor<String, OIdentifiable> cursor = tree.iterateEntriesMajor(keys.firstKey(), true, true);
+    for (Map.Entry<String, ORecordId> entry : keys.entrySet()) {
+      final Map.Entry<String, OIdentifiable> treeEntry = cursor.next(-1);
+
+      Assert.assertEquals(treeEntry.getKey(), entry.getKey());
+      Assert.assertEquals(treeEntry.getValue(), entry.getValue());
+    }
+
+    Assert.assertNull(cursor.next(-1));
+  }
+
+  private OSBTreeBucket<String, OIdentifiable> newBucket(boolean prefixCompression) throws Exception {
+    OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(prefixCompression);
+    return new OSBTreeBucket<String, OIdentifiable>(cacheEntry, true, OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE,
+        null);
+  }
+
+  private OSBTreeBucket<String, OIdentifiable> loadBucket() {
+    return new OSBTreeBucket<String, OIdentifiable>(cacheEntry, OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, null);
+  }
+
+  private static TreeMap<String, ORecordId> fill(OSBTreeBucket<String, OIdentifiable> bucket, String prefix) throws Exception {
+    final Random random = new Random(42);
+    final TreeMap<String, ORecordId> keys = new TreeMap<String, ORecordId>();
+
+    while (true) {
+      final String key = prefix + randomString(random);
+      if (keys.containsKey(key))
+        continue;
+
+      final int index = bucket.find(key);
+      Assert.assertTrue(index < 0);
+
+      final ORecordId value = new ORecordId(random.nextInt(100), random.nextInt(100000));
+      if (!bucket.addEntry(-index - 1, leafEntry(key, value), false))
+        break;
+
+      keys.put(key, value);
+    }
+
+    return keys;
+  }
+
+  private static void assertBucket(OSBTreeBucket<String, OIdentifiable> bucket, SortedMap<String, ORecordId> keys) {
+    Assert.assertEquals(bucket.size(), keys.size());
+
+    int index = 0;
+    for (Map.Entry<String, ORecordId> entry : keys.entrySet()) {
+      Assert.assertEquals(bucket.find(entry.getKey()), index);
+      Assert.assertEquals(bucket.getKey(index), entry.getKey());
+      Assert.assertEquals(bucket.getValue(index).getValue(), entry.getValue());
+      Assert.assertEquals(bucket.getEntry(index), leafEntry(entry.getKey(), entry.getValue()));
+
+      Assert.assertEquals(bucket.find(entry.getKey() + "\u0000"), -index - 2);
+      index++;
+    }
+  }
+
+  private static void assertBucket(OSBTreeBucket<String, OIdentifiable> bucket, OSBTreeBucket<String, OIdentifiable> loaded) {
+    Assert.assertEquals(loaded.size(), bucket.size());
+
+    for (int i = 0; i < bucket.size(); i++)
+      Assert.assertEquals(loaded.getEntry(i), bucket.getEntry(i));
+  }
+
+  private static OSBTreeBucket.SBTreeEntry<String, OIdentifiable> leafEntry(String key, ORecordId value) {
+    return new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(-1, -1, key,
+        new OSBTreeValue<OIdentifiable>(false, -1, value));
+  }
+
+  private static String randomString(Random random) {
+    final StringBuilder builder = new StringBuilder();
+    final int length = random.nextInt(20);
+
+    for (int i = 0; i < length; i++) {
+      if (random.nextInt(10) == 0)
+        builder.append((char) random.nextInt(Character.MAX_VALUE));
+      else
+        builder.append((char) ('a' + random.nextInt(26)));
+    }
+
+    return builder.toString();
+  }
+}
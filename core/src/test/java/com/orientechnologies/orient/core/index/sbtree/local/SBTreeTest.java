@@ -468,6 +468,38 @@ public class SBTreeTest {
     Assert.assertTrue(identifiables.isEmpty());
   }
 
+  public void testGetAll() {
+    final long seed = System.currentTimeMillis();
+    System.out.println("testGetAll seed : " + seed);
+    final Random random = new Random(seed);
+
+    for (int i = 0; i < KEYS_COUNT; i += 2)
+      sbTree.put(i, new ORecordId(i % 32000, i));
+
+    for (int n = 0; n < 100; n++) {
+      final List<Integer> keys = new ArrayList<Integer>();
+      final int keysCount = random.nextInt(10000);
+      final int start = random.nextInt(KEYS_COUNT);
+      final int range = random.nextInt(3) == 0 ? 2 * KEYS_COUNT : 3 * keysCount + 1;
+
+      for (int i = 0; i < keysCount; i++)
+        keys.add(start + random.nextInt(range) - range / 2);
+
+      final Map<Integer, OIdentifiable> values = sbTree.getAll(keys);
+      for (Integer key : keys)
+        Assert.assertEquals(values.get(key), sbTree.get(key), key + " key has wrong value");
+
+      int found = 0;
+      for (Integer key : new HashSet<Integer>(keys))
+        if (sbTree.get(key) != null)
+          found++;
+
+      Assert.assertEquals(values.size(), found);
+    }
+
+    Assert.assertTrue(sbTree.getAll(Collections.<Integer>emptyList()).isEmpty());
+  }
+
   public void testNullKeysInSBTree() {
     final OSBTree<Integer, OIdentifiable> nullSBTree = new OSBTree<Integer, OIdentifiable>("nullSBTree", ".sbt", false, ".nbt",
         (OAbstractPaginatedStorage) databaseDocumentTx.getStorage());
@@ -0,0 +1,128 @@
+package com.orientechnologies.orient.core.record.impl;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ODocumentLazyFieldDecodingTest {
+  private ODatabaseDocumentTx db;
+
+  @BeforeMethod
+  public void before() {
+    db = new ODatabaseDocumentTx("memory:" + ODocumentLazyFieldDecodingTest.class.getSimpleName());
+    db.create();
+
+    final OClass person = db.getMetadata().getSchema().createClass("Person");
+    person.createProperty("name", OType.STRING);
+    person.createProperty("age", OType.INTEGER);
+  }
+
+  @AfterMethod
+  public void after() {
+    db.drop();
+  }
+
+  @Test
+  public void testReadDoesNotUnmarshallFields() {
+    final ODocument document = load(createPerson("John", 30));
+    document.setLazyFieldDecoding(true);
+
+    Assert.assertEquals(document.<String>field("name"), "John");
+    Assert.assertEquals(document.<Number>field("age").intValue(), 30);
+    Assert.assertEquals(document.<String>field("nickname"), "J");
+    Assert.assertNull(document.field("absent"));
+
+    Assert.assertFalse(ODocumentInternal.rawContainsField(document, "name"));
+    Assert.assertFalse(ODocumentInternal.rawContainsField(document, "age"));
+    Assert.assertFalse(ODocumentInternal.rawContainsField(document, "nickname"));
+    Assert.assertFalse(document.isDirty());
+  }
+
+  @Test
+  public void testMutableValuesAreUnmarshalled() {
+    final ODocument document = load(createPerson("John", 30));
+    document.setLazyFieldDecoding(true);
+
+    final List<String> tags = document.field("tags");
+    Assert.assertEquals(tags.size(), 2);
+    Assert.assertTrue(ODocumentInternal.rawContainsField(document, "tags"));
+
+    tags.add("c");
+    Assert.assertTrue(document.isDirty());
+    Assert.assertEquals(document.<String>field("name"), "John");
+
+    document.save();
+    Assert.assertEquals(load(document).<List<String>>field("tags").size(), 3);
+  }
+
+  @Test
+  public void testWriteConvertsToMutableDocument() {
+    final ODocument document = load(createPerson("John", 30));
+    document.setLazyFieldDecoding(true);
+
+    Assert.assertEquals(document.<Number>field("age").intValue(), 30);
+
+    document.field("age", 31);
+    Assert.assertTrue(ODocumentInternal.rawContainsField(document, "name"));
+    Assert.assertEquals(document.<Number>field("age").intValue(), 31);
+
+    document.removeField("nickname");
+    Assert.assertNull(document.field("nickname"));
+    document.save();
+
+    final ODocument reloaded = load(document);
+    reloaded.setLazyFieldDecoding(true);
+    Assert.assertEquals(reloaded.<String>field("name"), "John");
+    Assert.assertEquals(reloaded.<Number>field("age").intValue(), 31);
+    Assert.assertFalse(reloaded.containsField("nickname"));
+  }
+
+  @Test
+  public void testQuery() {
+    for (int i = 0; i < 10; i++)
+      createPerson("name" + i, i);
+
+    OGlobalConfiguration.QUERY_LAZY_FIELD_DECODING.setValue(true);
+    try {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Person where age >= 5 order by age"));
+      Assert.assertEquals(result.size(), 5);
+
+      for (int i = 0; i < result.size(); i++) {
+        final ODocument document = result.get(i);
+        Assert.assertTrue(document.isLazyFieldDecoding());
+        Assert.assertEquals(document.<String>field("name"), "name" + (i + 5));
+        Assert.assertEquals(document.<Number>field("age").intValue(), i + 5);
+      }
+    } finally {
+      OGlobalConfiguration.QUERY_LAZY_FIELD_DECODING.setValue(OGlobalConfiguration.QUERY_LAZY_FIELD_DECODING.getDefValue());
+    }
+  }
+
+  private ODocument createPerson(String name, int age) {
+    final ODocument document = new ODocument("Person");
+    document.field("name", name);
+    document.field("age", age);
+    document.field("nickname", name.substring(0, 1));
+
+    final List<String> tags = new ArrayList<String>();
+    tags.add("a");
+    tags.add("b");
+    document.field("tags", tags);
+
+    return document.save();
+  }
+
+  private ODocument load(ODocument document) {
+    db.getLocalCache().clear();
+    return db.load(document.getIdentity());
+  }
+}
@@ -0,0 +1,181 @@
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class ORecordSerializerBinaryV1Test {
+  private static final int FIELDS = 150;
+
+  private ODatabaseDocumentTx     db;
+  private ORecordSerializerBinary serializer;
+
+  @BeforeMethod
+  public void before() {
+    db = new ODatabaseDocumentTx("memory:" + ORecordSerializerBinaryV1Test.class.getSimpleName());
+    db.create();
+
+    final OClass wide = db.getMetadata().getSchema().createClass("Wide");
+    for (int i = 0; i < FIELDS; i++)
+      wide.createProperty("field" + i, OType.INTEGER);
+    wide.createProperty("name", OType.STRING);
+    wide.createProperty("embedded", OType.EMBEDDED);
+
+    serializer = new ORecordSerializerBinary();
+  }
+
+  @AfterMethod
+  public void after() {
+    db.drop();
+  }
+
+  @Test
+  public void testDeclaredFieldsAreWrittenWithoutNames() {
+    final ODocument document = createDocument();
+
+    final byte[] v1 = serializer.toStream(document, false);
+    Assert.assertEquals(v1[0], 1);
+    Assert.assertTrue(v1.length < serializeV0(document).length);
+
+    final ODocument result = (ODocument) serializer.fromStream(v1, new ODocument(), null);
+    assertDocument(result);
+    Assert.assertEquals(new HashSet<String>(Arrays.asList(serializer.getFieldNames(new ODocument(), v1))),
+        new HashSet<String>(Arrays.asList(document.fieldNames())));
+  }
+
+  @Test
+  public void testPartialDeserialization() {
+    final byte[] v1 = serializer.toStream(createDocument(), false);
+
+    final ODocument result = (ODocument) serializer
+        .fromStream(v1, new ODocument(), new String[] { "field120", "name", "undeclared", "absent" });
+    Assert.assertEquals(result.<Number>field("field120").intValue(), 120);
+    Assert.assertNull(result.field("name"));
+    Assert.assertTrue(result.containsField("name"));
+    Assert.assertEquals(result.<String>field("undeclared"), "value");
+    Assert.assertFalse(result.containsField("absent"));
+    Assert.assertFalse(result.containsField("field0"));
+  }
+
+  @Test
+  public void testDeserializeField() {
+    final byte[] v1 = serializer.toStream(createDocument(), false);
+    final OClass wide = db.getMetadata().getSchema().getClass("Wide");
+
+    final OBinaryField field = serializer.getSerializer(1).deserializeField(new BytesContainer(v1).skip(1), wide, "field99");
+    Assert.assertNotNull(field);
+    Assert.assertEquals(field.type, OType.INTEGER);
+    Assert.assertEquals(OVarIntSerializer.readAsInteger(field.bytes), 99);
+
+    Assert.assertNull(serializer.getSerializer(1).deserializeField(new BytesContainer(v1).skip(1), wide, "name"));
+    Assert.assertNotNull(serializer.getSerializer(1).deserializeField(new BytesContainer(v1).skip(1), wide, "undeclared"));
+    Assert.assertNull(serializer.getSerializer(1).deserializeField(new BytesContainer(v1).skip(1), wide, "absent"));
+  }
+
+  @Test
+  public void testFieldsWrittenBeforeChangeOfPropertyType() {
+    final byte[] v1 = serializer.toStream(createDocument(), false);
+
+    final OClass wide = db.getMetadata().getSchema().getClass("Wide");
+    wide.getProperty("field7").setType(OType.LONG);
+
+    final ODocument partial = (ODocument) serializer.fromStream(v1, new ODocument(), new String[] { "field7" });
+    Assert.assertEquals(partial.<Number>field("field7").intValue(), 7);
+
+    final OBinaryField field = serializer.getSerializer(1).deserializeField(new BytesContainer(v1).skip(1), wide, "field7");
+    Assert.assertNotNull(field);
+    Assert.assertEquals(field.type, OType.INTEGER);
+
+    assertDocument((ODocument) serializer.fromStream(v1, new ODocument(), null));
+  }
+
+  @Test
+  public void testStoredRecordsAreReadAfterAlterOfPropertyType() {
+    final ODocument document = createDocument();
+    document.save();
+    final ORID rid = document.getIdentity();
+
+    db.command(new OCommandSQL("alter property Wide.field7 type LONG")).execute();
+    db.getLocalCache().clear();
+
+    final ODocument loaded = db.load(rid);
+    Assert.assertEquals(loaded.<Number>field("field7").intValue(), 7);
+    assertDocument(loaded);
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select field7 from Wide where field7 = 7"));
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(result.get(0).<Number>field("field7").intValue(), 7);
+  }
+
+  @Test
+  public void testRecordsOfDatabaseOfPreviousVersionAreWrittenInPreviousVersion() {
+    db.getStorage().getConfiguration().setRecordSerializerVersion(0);
+    try {
+      final byte[] v0 = serializer.toStream(createDocument(), false);
+      Assert.assertEquals(v0[0], 0);
+
+      assertDocument((ODocument) serializer.fromStream(v0, new ODocument(), null));
+    } finally {
+      db.getStorage().getConfiguration().setRecordSerializerVersion(serializer.getCurrentVersion());
+    }
+
+    Assert.assertEquals(serializer.toStream(createDocument(), false)[0], 1);
+  }
+
+  @Test
+  public void testRecordsOfPreviousVersionAreRead() {
+    final byte[] v0 = serializeV0(createDocument());
+    Assert.assertEquals(v0[0], 0);
+
+    assertDocument((ODocument) serializer.fromStream(v0, new ODocument(), null));
+  }
+
+  private ODocument createDocument() {
+    final ODocument document = new ODocument("Wide");
+    for (int i = 0; i < FIELDS; i++)
+      document.field("field" + i, i);
+    document.field("name", (Object) null);
+    document.field("undeclared", "value");
+
+    final ODocument embedded = new ODocument("Wide");
+    embedded.field("field3", 3);
+    embedded.field("other", 4);
+    document.field("embedded", embedded, OType.EMBEDDED);
+
+    return document;
+  }
+
+  private void assertDocument(ODocument document) {
+    Assert.assertEquals(document.getClassName(), "Wide");
+    for (int i = 0; i < FIELDS; i++)
+      Assert.assertEquals(document.<Number>field("field" + i).intValue(), i);
+
+    Assert.assertTrue(document.containsField("name"));
+    Assert.assertNull(document.field("name"));
+    Assert.assertEquals(document.<String>field("undeclared"), "value");
+
+    final ODocument embedded = document.field("embedded");
+    Assert.assertEquals(embedded.<Number>field("field3").intValue(), 3);
+    Assert.assertEquals(embedded.<Number>field("other").intValue(), 4);
+    Assert.assertEquals(embedded.fields(), 2);
+  }
+
+  private byte[] serializeV0(ODocument document) {
+    final BytesContainer container = new BytesContainer();
+    container.bytes[container.alloc(1)] = 0;
+    serializer.getSerializer(0).serialize(document, container, false);
+    return container.fitBytes();
+  }
+}
@@ -26,6 +26,7 @@ import com.orientechnologies.orient.core.db.ODatabaseInternal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OIndexException;
 import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
 import com.orientechnologies.orient.core.iterator.ORecordIteratorClass;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
@@ -396,6 +397,171 @@ public class OCommandExecutorSQLSelectTest {
     assertEquals(indexUsages(db), idxUsagesBefore + 2);
   }
 
+  @Test
+  public void testCoveringIndex() {
+    db.command(new OCommandSQL("create class CoveringIndexTest")).execute();
+    db.command(new OCommandSQL("create property CoveringIndexTest.name STRING")).execute();
+    db.command(new OCommandSQL("create property CoveringIndexTest.age INTEGER")).execute();
+    db.command(new OCommandSQL("create property CoveringIndexTest.surname STRING")).execute();
+    db.command(new OCommandSQL(
+        "create index CoveringIndexTestName on CoveringIndexTest (name) NOTUNIQUE METADATA {\"include\": [\"age\"]}")).execute();
+
+    for (int i = 0; i < 10; i++)
+      db.command(new OCommandSQL("insert into CoveringIndexTest (name, age, surname) values ('n" + i + "', " + i + ", 's" + i + "')"))
+          .execute();
+
+    List<ODocument> qResult = db.command(new OCommandSQL("select name, age as years from CoveringIndexTest where name = 'n3'"))
+        .execute();
+    assertEquals(qResult.size(), 1);
+    assertEquals(qResult.get(0).field("name"), "n3");
+    assertEquals(qResult.get(0).<Integer>field("years").intValue(), 3);
+    assertNull(qResult.get(0).field("surname"));
+
+    qResult = db.command(new OCommandSQL("select age from CoveringIndexTest where name in ['n1', 'n5', 'n7', 'n11']")).execute();
+    assertEquals(qResult.size(), 3);
+
+    ODocument explain = db
+        .command(new OCommandSQL("explain select age from CoveringIndexTest where name in ['n1', 'n5', 'n7', 'n11']")).execute();
+    assertEquals(explain.<Long>field("coveringIndexReads").longValue(), 3L);
+
+    explain = db.command(new OCommandSQL("explain select name, age from CoveringIndexTest where name = 'n3'")).execute();
+    assertEquals(explain.<Long>field("coveringIndexReads").longValue(), 1L);
+    assertNull(explain.field("documentReads"));
+
+    explain = db.command(new OCommandSQL("explain select name, surname from CoveringIndexTest where name = 'n3'")).execute();
+    assertNull(explain.field("coveringIndexReads"));
+    assertEquals(explain.<Long>field("documentReads").longValue(), 1L);
+
+    explain = db.command(new OCommandSQL("explain select name from CoveringIndexTest where name = 'n3' and surname = 's3'"))
+        .execute();
+    assertNull(explain.field("coveringIndexReads"));
+
+    //null value of included field does not remove document from the index
+    db.command(new OCommandSQL("insert into CoveringIndexTest (name, surname) values ('n10', 's10')")).execute();
+    qResult = db.command(new OCommandSQL("select name, age from CoveringIndexTest where name = 'n10'")).execute();
+    assertEquals(qResult.size(), 1);
+    assertNull(qResult.get(0).field("age"));
+
+    db.command(new OCommandSQL("drop class CoveringIndexTest")).execute();
+  }
+
+  @Test
+  public void testIncludedFieldsRequireNotUniqueIndex() {
+    db.command(new OCommandSQL("create class IncludeUniqueTest")).execute();
+    db.command(new OCommandSQL("create property IncludeUniqueTest.name STRING")).execute();
+    db.command(new OCommandSQL("create property IncludeUniqueTest.age INTEGER")).execute();
+
+    try {
+      db.command(new OCommandSQL(
+          "create index IncludeUniqueTestName on IncludeUniqueTest (name) UNIQUE METADATA {\"include\": [\"age\"]}")).execute();
+      fail();
+    } catch (OIndexException e) {
+    }
+
+    db.command(new OCommandSQL("drop class IncludeUniqueTest")).execute();
+  }
+
+  @Test
+  public void testIncludedFieldsCanNotBeCollections() {
+    db.command(new OCommandSQL("create class IncludeCollectionTest")).execute();
+    db.command(new OCommandSQL("create property IncludeCollectionTest.name STRING")).execute();
+    db.command(new OCommandSQL("create property IncludeCollectionTest.tags EMBEDDEDLIST STRING")).execute();
+
+    try {
+      db.command(new OCommandSQL(
+          "create index IncludeCollectionTestName on IncludeCollectionTest (name) NOTUNIQUE METADATA {\"include\": [\"tags\"]}"))
+          .execute();
+      fail();
+    } catch (OIndexException e) {
+    }
+
+    db.command(new OCommandSQL("drop class IncludeCollectionTest")).execute();
+  }
+
+  @Test
+  public void testIndexStatistics() {
+    db.command(new OCommandSQL("create class AnalyzeIndexTest")).execute();
+    db.command(new OCommandSQL("create property AnalyzeIndexTest.kind STRING")).execute();
+    db.command(new OCommandSQL("create property AnalyzeIndexTest.num INTEGER")).execute();
+    db.command(new OCommandSQL("create index AnalyzeIndexTestKind on AnalyzeIndexTest (kind) NOTUNIQUE")).execute();
+    db.command(new OCommandSQL("create index AnalyzeIndexTestNum on AnalyzeIndexTest (num) UNIQUE")).execute();
+
+    for (int i = 0; i < 100; i++)
+      db.command(new OCommandSQL("insert into AnalyzeIndexTest (kind, num) values ('k" + (i % 2) + "', " + i + ")")).execute();
+
+    ODocument explain = db.command(new OCommandSQL("explain select from AnalyzeIndexTest where kind = 'k0'")).execute();
+    assertTrue(((Set<String>) explain.field("involvedIndexes")).contains("AnalyzeIndexTestKind"));
+
+    assertEquals(((Number) db.command(new OCommandSQL("analyze index AnalyzeIndexTestKind")).execute()).longValue(), 100L);
+    assertEquals(((Number) db.command(new OCommandSQL("analyze index AnalyzeIndexTestNum")).execute()).longValue(), 100L);
+
+    assertEquals(db.getMetadata().getIndexManager().getIndex("AnalyzeIndexTestKind").getInternal().getStatistics().getKeys(), 2L);
+    assertEquals(db.getMetadata().getIndexManager().getIndex("AnalyzeIndexTestNum").getInternal().getStatistics().getKeys(), 100L);
+
+    // half of the records match, class scan is cheaper
+    explain = db.command(new OCommandSQL("explain select from AnalyzeIndexTest where kind = 'k0'")).execute();
+    assertNull(explain.field("involvedIndexes"));
+    assertEquals(explain.<Long>field("documentReads").longValue(), 100L);
+
+    explain = db.command(new OCommandSQL("explain select from AnalyzeIndexTest where num > 90")).execute();
+    assertTrue(((Set<String>) explain.field("involvedIndexes")).contains("AnalyzeIndexTestNum"));
+
+    explain = db.command(new OCommandSQL("explain select from AnalyzeIndexTest where num > 10")).execute();
+    assertNull(explain.field("involvedIndexes"));
+
+    explain = db.command(new OCommandSQL("explain select from AnalyzeIndexTest where kind = 'k1' and num = 5")).execute();
+    final Set<String> involvedIndexes = explain.field("involvedIndexes");
+    assertEquals(involvedIndexes.size(), 1);
+    assertTrue(involvedIndexes.contains("AnalyzeIndexTestNum"));
+    assertEquals(explain.<Long>field("documentReads").longValue(), 1L);
+
+    List<ODocument> qResult = db.command(new OCommandSQL("select from AnalyzeIndexTest where kind = 'k0'")).execute();
+    assertEquals(qResult.size(), 50);
+
+    db.command(new OCommandSQL("drop class AnalyzeIndexTest")).execute();
+  }
+
+  @Test
+  public void testIndexIntersection() {
+    db.command(new OCommandSQL("create class IndexIntersectionTest")).execute();
+    db.command(new OCommandSQL("create property IndexIntersectionTest.a INTEGER")).execute();
+    db.command(new OCommandSQL("create property IndexIntersectionTest.b INTEGER")).execute();
+    db.command(new OCommandSQL("create index IndexIntersectionTestA on IndexIntersectionTest (a) NOTUNIQUE")).execute();
+    db.command(new OCommandSQL("create index IndexIntersectionTestB on IndexIntersectionTest (b) NOTUNIQUE")).execute();
+
+    for (int i = 0; i < 100; i++)
+      db.command(new OCommandSQL("insert into IndexIntersectionTest (a, b) values (" + (i % 10) + ", " + (i / 10) + ")")).execute();
+
+    List<ODocument> qResult = db.command(new OCommandSQL("select from IndexIntersectionTest where a = 1 and b = 2")).execute();
+    assertEquals(qResult.size(), 1);
+    assertEquals(qResult.get(0).<Integer>field("a").intValue(), 1);
+    assertEquals(qResult.get(0).<Integer>field("b").intValue(), 2);
+
+    qResult = db.command(new OCommandSQL("select from IndexIntersectionTest where a = 1 and b in [2, 3, 4] and b < 4")).execute();
+    assertEquals(qResult.size(), 2);
+
+    //without index statistics entries of the used index are just filtered
+    ODocument explain = db.command(new OCommandSQL("explain select from IndexIntersectionTest where a = 1 and b = 2")).execute();
+    assertEquals(explain.<Long>field("documentReads").longValue(), 10L);
+
+    db.command(new OCommandSQL("analyze index *")).execute();
+
+    explain = db.command(new OCommandSQL("explain select from IndexIntersectionTest where a = 1 and b = 2")).execute();
+    final Set<String> involvedIndexes = explain.field("involvedIndexes");
+    assertTrue(involvedIndexes.contains("IndexIntersectionTestA"));
+    assertTrue(involvedIndexes.contains("IndexIntersectionTestB"));
+    assertEquals(explain.<Long>field("documentReads").longValue(), 1L);
+
+    //index which fetches more entries than the used one is not intersected
+    explain = db.command(new OCommandSQL("explain select from IndexIntersectionTest where a = 1 and b < 5")).execute();
+    assertEquals(explain.<Long>field("documentReads").longValue(), 10L);
+
+    qResult = db.command(new OCommandSQL("select from IndexIntersectionTest where a = 1 and b = 20")).execute();
+    assertEquals(qResult.size(), 0);
+
+    db.command(new OCommandSQL("drop class IndexIntersectionTest")).execute();
+  }
+
   @Test
   public void testOperatorPriority() {
 
@@ -0,0 +1,158 @@
+package com.orientechnologies.orient.core.sql.filter;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.hook.ODocumentHookAbstract;
+import com.orientechnologies.orient.core.hook.ORecordHook;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLEngine;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class OSQLFilterBinaryPredicateTest {
+  private static final int RECORDS = 100;
+
+  private ODatabaseDocumentTx db;
+  private List<ORID>          rids;
+
+  @BeforeMethod
+  public void before() {
+    db = new ODatabaseDocumentTx("memory:" + OSQLFilterBinaryPredicateTest.class.getSimpleName());
+    db.create();
+
+    final OClass person = db.getMetadata().getSchema().createClass("Person");
+    person.createProperty("age", OType.INTEGER);
+    person.createProperty("name", OType.STRING);
+    person.createProperty("nick", OType.STRING).setCollate("ci");
+
+    rids = new ArrayList<ORID>();
+    for (int i = 0; i < RECORDS; i++) {
+      final ODocument document = new ODocument("Person");
+      document.field("age", i);
+      document.field("name", "name" + i);
+      document.field("nick", "Nick" + (i % 10));
+      document.field("score", (long) (i % 7));
+      if (i % 2 == 0)
+        document.field("city", "Rome");
+      document.save();
+      rids.add(document.getIdentity());
+    }
+  }
+
+  @AfterMethod
+  public void after() {
+    db.drop();
+  }
+
+  @Test
+  public void testCompile() {
+    Assert.assertNotNull(compile("age > 5"));
+    Assert.assertNotNull(compile("age between 5 and 10 and name like 'n%'"));
+    Assert.assertNotNull(compile("age in [1, 2] or name = 'name3'"));
+
+    Assert.assertNull(compile("name like 'n%'"));
+    Assert.assertNull(compile("age > 5 or name like 'n%'"));
+    Assert.assertNull(compile("age.asString() = '5'"));
+    Assert.assertNull(compile("age = name"));
+  }
+
+  @Test
+  public void testQueries() {
+    assertQuery("age = 10", 1);
+    assertQuery("age < 10", 10);
+    assertQuery("age >= 90", 10);
+    assertQuery("age <> 10", RECORDS - 1);
+    assertQuery("age between 10 and 19", 10);
+    assertQuery("age in [1, 3, 500]", 2);
+    assertQuery("name = 'name42'", 1);
+    assertQuery("score = 3", 14);
+    assertQuery("score in [1, 2]", 29);
+    assertQuery("city = 'Rome' and age < 10", 5);
+    assertQuery("city = 'Rome' or age < 10", 55);
+    assertQuery("age < 10 and name like '%1'", 1);
+    assertQuery("nick = 'nick1'", 10);
+    assertQuery("age = '10'", 1);
+  }
+
+  @Test
+  public void testNotMatchingRecordsAreNotCached() {
+    db.getLocalCache().clear();
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Person where age < 10"));
+    Assert.assertEquals(result.size(), 10);
+
+    for (int i = 0; i < RECORDS; i++)
+      Assert.assertEquals(db.getLocalCache().findRecord(rids.get(i)) != null, i < 10);
+  }
+
+  @Test
+  public void testParameters() {
+    final List<ODocument> result = db
+        .query(new OSQLSynchQuery<ODocument>("select from Person where age between ? and ? and name = ?"), 10, 20, "name15");
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(result.get(0).getIdentity(), rids.get(15));
+  }
+
+  @Test
+  public void testRecordsArePassedToReadHooks() {
+    final Set<ORID> read = new HashSet<ORID>();
+    final ORecordHook hook = new ODocumentHookAbstract(db) {
+      @Override
+      public RESULT onRecordBeforeRead(ODocument iDocument) {
+        read.add(iDocument.getIdentity());
+        return RESULT.RECORD_NOT_CHANGED;
+      }
+
+      @Override
+      public DISTRIBUTED_EXECUTION_MODE getDistributedExecutionMode() {
+        return DISTRIBUTED_EXECUTION_MODE.TARGET_NODE;
+      }
+    };
+
+    db.registerHook(hook);
+    try {
+      Assert.assertEquals(query("age < 10").size(), 10);
+      Assert.assertEquals(read, new HashSet<ORID>(rids));
+    } finally {
+      db.unregisterHook(hook);
+    }
+  }
+
+  private OSQLFilterBinaryPredicate compile(String condition) {
+    return OSQLFilterBinaryPredicate.compile(OSQLEngine.getInstance().parseCondition(condition, null, "WHERE").getRootCondition());
+  }
+
+  private void assertQuery(String condition, int expected) {
+    final Set<ORID> pushedDown = query(condition);
+
+    OGlobalConfiguration.QUERY_SCAN_BINARY_FILTER.setValue(false);
+    try {
+      Assert.assertEquals(query(condition), pushedDown, condition);
+    } finally {
+      OGlobalConfiguration.QUERY_SCAN_BINARY_FILTER.setValue(OGlobalConfiguration.QUERY_SCAN_BINARY_FILTER.getDefValue());
+    }
+
+    Assert.assertEquals(pushedDown.size(), expected, condition);
+  }
+
+  private Set<ORID> query(String condition) {
+    db.getLocalCache().clear();
+
+    final Set<ORID> result = new HashSet<ORID>();
+    for (ODocument document : db.<List<ODocument>>query(new OSQLSynchQuery<ODocument>("select from Person where " + condition)))
+      result.add(document.getIdentity());
+
+    return result;
+  }
+}
@@ -0,0 +1,175 @@
+package com.orientechnologies.orient.core.storage.cache.local;
+
+import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.tool.ODatabaseCompare;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.ODiskWriteAheadLog;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Truncates WAL by checkpoints while changed pages are still not written to the disk, then copies storage without close, as if
+ * it was crashed, and checks that all changes are restored from WAL.
+ */
+@Test
+public class OIncrementalCheckpointTest {
+  private static final String BASE_NAME = "baseIncrementalCheckpoint";
+  private static final String TEST_NAME = "testIncrementalCheckpoint";
+
+  private File                buildDir;
+  private ODatabaseDocumentTx baseDocumentTx;
+  private ODatabaseDocumentTx testDocumentTx;
+
+  private int     walMaxSegmentSize;
+  private boolean fileLock;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    walMaxSegmentSize = OGlobalConfiguration.WAL_MAX_SEGMENT_SIZE.getValueAsInteger();
+    fileLock = OGlobalConfiguration.FILE_LOCK.getValueAsBoolean();
+
+    OGlobalConfiguration.WAL_MAX_SEGMENT_SIZE.setValue(1);
+    OGlobalConfiguration.FILE_LOCK.setValue(false);
+
+    String buildDirectory = System.getProperty("buildDirectory", ".");
+    buildDir = new File(buildDirectory, "incrementalCheckpointTest");
+    OFileUtils.deleteRecursively(buildDir);
+    Assert.assertTrue(buildDir.mkdirs());
+
+    baseDocumentTx = new ODatabaseDocumentTx("plocal:" + new File(buildDir, BASE_NAME).getAbsolutePath());
+    baseDocumentTx.create();
+
+    final OClass checkpointClass = baseDocumentTx.getMetadata().getSchema().createClass("Checkpoint");
+    checkpointClass.createProperty("key", OType.INTEGER);
+    checkpointClass.createIndex("CheckpointKeyIndex", OClass.INDEX_TYPE.NOTUNIQUE, "key");
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    OGlobalConfiguration.WAL_MAX_SEGMENT_SIZE.setValue(walMaxSegmentSize);
+    OGlobalConfiguration.FILE_LOCK.setValue(fileLock);
+
+    if (testDocumentTx != null) {
+      testDocumentTx.open("admin", "admin");
+      testDocumentTx.drop();
+    }
+
+    baseDocumentTx.open("admin", "admin");
+    baseDocumentTx.drop();
+
+    OFileUtils.deleteRecursively(buildDir);
+  }
+
+  public void testRestoreAfterWALIsTruncatedWithUnflushedPages() throws Exception {
+    baseDocumentTx.getStorage().synch();
+
+    //most of pages are new ones and were never flushed to the disk
+    fill(20000);
+
+    final OAbstractPaginatedStorage storage = (OAbstractPaginatedStorage) baseDocumentTx.getStorage().getUnderlying();
+    final OWOWCache writeCache = (OWOWCache) storage.getWriteCache();
+    final ODiskWriteAheadLog writeAheadLog = (ODiskWriteAheadLog) storage.getWALInstance();
+
+    Assert.assertNotNull(writeCache.getMinDirtyLsn());
+
+    //both checkpoints are executed by flush thread, so the second one is finished after the first one
+    writeCache.makeIncrementalCheckpoint();
+    writeCache.makeFuzzyCheckpoint();
+
+    final OLogSequenceNumber minDirtyLsn = writeCache.getMinDirtyLsn();
+    Assert.assertNotNull(minDirtyLsn);
+    Assert.assertTrue(writeAheadLog.begin().compareTo(minDirtyLsn) <= 0,
+        "WAL begins at " + writeAheadLog.begin() + " but page changed at " + minDirtyLsn + " is not flushed");
+
+    writeAheadLog.flush();
+    copyDataFromBaseWithoutClose();
+
+    final OStorage baseStorage = baseDocumentTx.getStorage();
+    baseDocumentTx.close();
+    baseStorage.close();
+
+    testDocumentTx = new ODatabaseDocumentTx("plocal:" + new File(buildDir, TEST_NAME).getAbsolutePath());
+    testDocumentTx.open("admin", "admin");
+    testDocumentTx.close();
+
+    final ODatabaseCompare databaseCompare = new ODatabaseCompare(testDocumentTx.getURL(), baseDocumentTx.getURL(), "admin",
+        "admin", new OCommandOutputListener() {
+      @Override
+      public void onMessage(String text) {
+        System.out.println(text);
+      }
+    });
+    databaseCompare.setCompareIndexMetadata(true);
+
+    Assert.assertTrue(databaseCompare.compare());
+  }
+
+  private void fill(int count) {
+    final Random random = new Random(42);
+
+    final StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 1024; i++) {
+      value.append('v');
+    }
+
+    for (int i = 0; i < count; i++) {
+      final ODocument document = new ODocument("Checkpoint");
+      document.field("key", random.nextInt(1000));
+      document.field("value", value.toString());
+      document.save();
+    }
+  }
+
+  private void copyDataFromBaseWithoutClose() throws IOException {
+    final File baseDir = new File(buildDir, BASE_NAME);
+    final File testDir = new File(buildDir, TEST_NAME);
+    Assert.assertTrue(testDir.mkdir());
+
+    final File[] storageFiles = baseDir.listFiles();
+    Assert.assertNotNull(storageFiles);
+
+    for (File storageFile : storageFiles) {
+      String name = storageFile.getName();
+      if (name.startsWith(BASE_NAME))
+        name = TEST_NAME + name.substring(BASE_NAME.length());
+
+      copyFile(storageFile, new File(testDir, name));
+    }
+  }
+
+  private static void copyFile(File from, File to) throws IOException {
+    final BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(from));
+    try {
+      final FileOutputStream outputStream = new FileOutputStream(to);
+      try {
+        final byte[] data = new byte[1024];
+        int bytesRead = inputStream.read(data);
+        while (bytesRead > 0) {
+          outputStream.write(data, 0, bytesRead);
+          bytesRead = inputStream.read(data);
+        }
+      } finally {
+        outputStream.close();
+      }
+    } finally {
+      inputStream.close();
+    }
+  }
+}
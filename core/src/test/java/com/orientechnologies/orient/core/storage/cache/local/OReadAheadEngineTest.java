@@ -0,0 +1,169 @@
+package com.orientechnologies.orient.core.storage.cache.local;
+
+import com.orientechnologies.common.directmemory.OByteBufferPool;
+import com.orientechnologies.common.types.OModifiableBoolean;
+import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
+import com.orientechnologies.orient.core.storage.cache.OCachePointer;
+import com.orientechnologies.orient.core.storage.cache.OWriteCache;
+import com.orientechnologies.orient.core.storage.cache.local.tinylfu.OTinyLFUCache;
+import com.orientechnologies.orient.core.storage.impl.local.statistic.OPerformanceStatisticManager;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyBoolean;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Test
+public class OReadAheadEngineTest {
+  public void testForwardScanIsDetected() {
+    final OReadAheadEngine.FileStreams streams = new OReadAheadEngine.FileStreams();
+
+    Assert.assertNull(streams.access(10, 4, 16));
+    Assert.assertNull(streams.access(11, 4, 16));
+
+    final long[] range = streams.access(12, 4, 16);
+    Assert.assertNotNull(range);
+    Assert.assertEquals(range[0], 13);
+    Assert.assertEquals(range[1], 4);
+  }
+
+  public void testWindowGrowsTillMaximum() {
+    final OReadAheadEngine.FileStreams streams = new OReadAheadEngine.FileStreams();
+
+    long requestedUpTo = 0;
+    long maxRange = 0;
+
+    for (long pageIndex = 0; pageIndex < 1000; pageIndex++) {
+      final long[] range = streams.access(pageIndex, 4, 16);
+      if (range != null) {
+        Assert.assertTrue(range[0] > pageIndex);
+        Assert.assertTrue(range[0] >= requestedUpTo);
+
+        requestedUpTo = range[0] + range[1];
+        maxRange = Math.max(maxRange, range[1]);
+      }
+
+      Assert.assertTrue(requestedUpTo == 0 || requestedUpTo > pageIndex);
+    }
+
+    Assert.assertEquals(maxRange, 16);
+  }
+
+  public void testBackwardScanIsDetected() {
+    final OReadAheadEngine.FileStreams streams = new OReadAheadEngine.FileStreams();
+
+    Assert.assertNull(streams.access(100, 4, 16));
+    Assert.assertNull(streams.access(99, 4, 16));
+
+    final long[] range = streams.access(98, 4, 16);
+    Assert.assertNotNull(range);
+    Assert.assertEquals(range[0], 94);
+    Assert.assertEquals(range[1], 4);
+  }
+
+  public void testRandomAccessIsIgnored() {
+    final OReadAheadEngine.FileStreams streams = new OReadAheadEngine.FileStreams();
+
+    final long[] pages = new long[] { 100, 5, 731, 42, 1000, 300, 12, 555, 890, 77, 150, 64 };
+    for (long pageIndex : pages) {
+      Assert.assertNull(streams.access(pageIndex, 4, 16));
+    }
+  }
+
+  public void testRepeatedAccessOfTheSamePage() {
+    final OReadAheadEngine.FileStreams streams = new OReadAheadEngine.FileStreams();
+
+    for (int i = 0; i < 10; i++) {
+      Assert.assertNull(streams.access(7, 4, 16));
+    }
+  }
+
+  public void testPagesAreLoadedIntoReadCache() throws Exception {
+    final int pageSize = 1024;
+    final long filledUpTo = 100;
+
+    final OByteBufferPool bufferPool = new OByteBufferPool(pageSize);
+    final AtomicInteger loads = new AtomicInteger();
+    final Set<Long> loadedPages = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    final CountDownLatch readAheadLatch = new CountDownLatch(1);
+
+    final OWriteCache writeCache = mock(OWriteCache.class);
+    when(writeCache.getPerformanceStatisticManager()).thenReturn(new OPerformanceStatisticManager(null, 10000, 10000));
+    when(writeCache.addFile("readAhead.pcl")).thenReturn(1L);
+    when(writeCache.getFilledUpTo(1L)).thenReturn(filledUpTo);
+    when(writeCache.load(anyLong(), anyLong(), anyInt(), anyBoolean(), any(OModifiableBoolean.class), anyBoolean()))
+        .thenAnswer(new Answer<OCachePointer[]>() {
+          @Override
+          public OCachePointer[] answer(InvocationOnMock invocation) throws Throwable {
+            final Object[] arguments = invocation.getArguments();
+            final long fileId = (Long) arguments[0];
+            final long startPageIndex = (Long) arguments[1];
+            final int pageCount = (int) Math.min((Integer) arguments[2], filledUpTo - startPageIndex);
+
+            loads.incrementAndGet();
+
+            final OCachePointer[] pointers = new OCachePointer[pageCount];
+            for (int i = 0; i < pageCount; i++) {
+              pointers[i] = new OCachePointer(bufferPool.acquireDirect(true), bufferPool, null, fileId, startPageIndex + i);
+              pointers[i].incrementReadersReferrer();
+              loadedPages.add(startPageIndex + i);
+            }
+
+            //readers load pages one by one
+            if (pageCount > 1)
+              readAheadLatch.countDown();
+
+            return pointers;
+          }
+        });
+
+    final OTinyLFUCache readCache = new OTinyLFUCache(1000 * pageSize, pageSize, false, 20, 1);
+    final long fileId = readCache.addFile("readAhead.pcl", writeCache);
+
+    final OReadAheadEngine readAheadEngine = new OReadAheadEngine("readAheadTest", readCache, writeCache, 4, 16, 1);
+    for (long pageIndex = 10; pageIndex < 13; pageIndex++) {
+      readAheadEngine.onPageAccess(fileId, pageIndex);
+      loadAndRelease(readCache, writeCache, fileId, pageIndex);
+    }
+
+    Assert.assertTrue(readAheadLatch.await(1, TimeUnit.MINUTES));
+
+    Assert.assertEquals(loads.get(), 4);
+    for (long pageIndex = 13; pageIndex < 17; pageIndex++)
+      Assert.assertTrue(loadedPages.contains(pageIndex));
+    Assert.assertFalse(loadedPages.contains(17L));
+
+    //pages which were read ahead are served by read cache, page locks make readers wait till read ahead adds them into the cache
+    for (long pageIndex = 13; pageIndex < 17; pageIndex++)
+      loadAndRelease(readCache, writeCache, fileId, pageIndex);
+
+    Assert.assertEquals(loads.get(), 4);
+
+    loadAndRelease(readCache, writeCache, fileId, 17);
+    Assert.assertEquals(loads.get(), 5);
+
+    readAheadEngine.close();
+    readCache.clear();
+  }
+
+  private static void loadAndRelease(OTinyLFUCache readCache, OWriteCache writeCache, long fileId, long pageIndex)
+      throws IOException {
+    final OCacheEntry cacheEntry = readCache.load(fileId, pageIndex, false, writeCache, 1, true);
+    Assert.assertEquals(cacheEntry.getPageIndex(), pageIndex);
+    readCache.release(cacheEntry, writeCache);
+  }
+}
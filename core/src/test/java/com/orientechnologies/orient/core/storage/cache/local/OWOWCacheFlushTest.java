@@ -0,0 +1,104 @@
+package com.orientechnologies.orient.core.storage.cache.local;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+@Test
+public class OWOWCacheFlushTest {
+  private ODatabaseDocumentTx database;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    database = new ODatabaseDocumentTx("plocal:" + new File(buildDirectory, "wowCacheFlushTest").getAbsolutePath());
+    if (database.exists()) {
+      database.open("admin", "admin");
+      database.drop();
+    }
+
+    database.create();
+    database.getMetadata().getSchema().createClass("Flush");
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    database.activateOnCurrentThread();
+    database.drop();
+  }
+
+  public void testAdjacentPagesAreWrittenTogether() throws Exception {
+    fill();
+
+    final OWOWCache writeCache = writeCache();
+    final long pages = writeCache.getFlushedPagesCount();
+    final long writes = writeCache.getFlushWritesCount();
+
+    database.getStorage().synch();
+
+    Assert.assertEquals(writeCache.getWriteCacheSize(), 0);
+    Assert.assertTrue(writeCache.getFlushedPagesCount() > pages);
+    Assert.assertTrue(writeCache.getFlushWritesCount() - writes < writeCache.getFlushedPagesCount() - pages);
+  }
+
+  public void testBackgroundFlushCoalescesAdjacentPages() throws Exception {
+    final OWOWCache writeCache = writeCache();
+    database.getStorage().synch();
+
+    final long pages = writeCache.getFlushedPagesCount();
+    final long writes = writeCache.getFlushWritesCount();
+
+    fill();
+
+    //each iteration flushes part of the ring, pages used recently are flushed only by the next iteration
+    for (int i = 0; i < 10000 && writeCache.getWriteCacheSize() > 0; i++) {
+      writeCache.flushInBackground().get();
+    }
+
+    Assert.assertEquals(writeCache.getWriteCacheSize(), 0);
+    Assert.assertTrue(writeCache.getFlushWritesCount() - writes < writeCache.getFlushedPagesCount() - pages);
+  }
+
+  public void testMetricsArePublished() throws Exception {
+    fill();
+    database.getStorage().synch();
+
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    final ObjectName name = new ObjectName(
+        OWOWCache.MBEAN_NAME + ",name=" + ObjectName.quote(database.getStorage().getName()) + ",id=" + writeCache().getId());
+
+    Assert.assertTrue(server.isRegistered(name));
+    Assert.assertTrue((Long) server.getAttribute(name, "FlushedPagesCount") > 0);
+    Assert.assertTrue((Double) server.getAttribute(name, "AveragePagesPerFlushWrite") >= 1.0);
+    Assert.assertTrue((Double) server.getAttribute(name, "FlushThroughputInMBPerSecond") > 0);
+  }
+
+  private void fill() {
+    final StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 1024; i++) {
+      value.append('v');
+    }
+
+    for (int i = 0; i < 2000; i++) {
+      final ODocument document = new ODocument("Flush");
+      document.field("value", value.toString());
+      document.save();
+    }
+  }
+
+  private OWOWCache writeCache() {
+    return (OWOWCache) ((OAbstractPaginatedStorage) database.getStorage().getUnderlying()).getWriteCache();
+  }
+}
@@ -0,0 +1,67 @@
+package com.orientechnologies.orient.core.storage.cache.local.tinylfu;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OFrequencySketchTest {
+  public void testIncrement() {
+    final OFrequencySketch sketch = new OFrequencySketch(512);
+
+    Assert.assertEquals(sketch.frequency(1, 1), 0);
+
+    sketch.increment(1, 1);
+    Assert.assertEquals(sketch.frequency(1, 1), 1);
+
+    sketch.increment(1, 1);
+    sketch.increment(1, 1);
+    Assert.assertEquals(sketch.frequency(1, 1), 3);
+  }
+
+  public void testCounterSaturation() {
+    final OFrequencySketch sketch = new OFrequencySketch(512);
+
+    for (int i = 0; i < 100; i++) {
+      sketch.increment(2, 10);
+    }
+
+    Assert.assertEquals(sketch.frequency(2, 10), 15);
+  }
+
+  public void testReset() {
+    final OFrequencySketch sketch = new OFrequencySketch(512);
+
+    for (int i = 0; i < 10; i++) {
+      sketch.increment(3, 42);
+    }
+
+    sketch.reset();
+    Assert.assertEquals(sketch.frequency(3, 42), 5);
+  }
+
+  public void testHotPagesAreDistinguishedFromScan() {
+    final OFrequencySketch sketch = new OFrequencySketch(1024);
+
+    for (int n = 0; n < 8; n++) {
+      for (int i = 0; i < 100; i++) {
+        sketch.increment(1, i);
+      }
+    }
+
+    for (int i = 1000; i < 5000; i++) {
+      sketch.increment(1, i);
+    }
+
+    int hotFrequency = 0;
+    for (int i = 0; i < 100; i++) {
+      hotFrequency += sketch.frequency(1, i);
+    }
+
+    int scanFrequency = 0;
+    for (int i = 1000; i < 1100; i++) {
+      scanFrequency += sketch.frequency(1, i);
+    }
+
+    Assert.assertTrue(hotFrequency > scanFrequency);
+  }
+}
@@ -0,0 +1,183 @@
+package com.orientechnologies.orient.core.storage.cache.local.tinylfu;
+
+import com.orientechnologies.common.directmemory.OByteBufferPool;
+import com.orientechnologies.common.types.OModifiableBoolean;
+import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
+import com.orientechnologies.orient.core.storage.cache.OCachePointer;
+import com.orientechnologies.orient.core.storage.cache.OWriteCache;
+import com.orientechnologies.orient.core.storage.impl.local.statistic.OPerformanceStatisticManager;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyBoolean;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OTinyLFUCacheTest {
+  private static final int  PAGE_SIZE = 1024;
+  private static final int  MAX_SIZE  = 100;
+  private static final long FILE_ID   = 1;
+
+  private OByteBufferPool bufferPool;
+  private OWriteCache     writeCache;
+  private OTinyLFUCache   readCache;
+
+  @BeforeMethod
+  public void before() throws IOException {
+    bufferPool = new OByteBufferPool(PAGE_SIZE);
+
+    writeCache = mock(OWriteCache.class);
+    when(writeCache.getPerformanceStatisticManager()).thenReturn(new OPerformanceStatisticManager(null, 10000, 10000));
+    when(writeCache.load(anyLong(), anyLong(), anyInt(), anyBoolean(), any(OModifiableBoolean.class), anyBoolean()))
+        .thenAnswer(new Answer<OCachePointer[]>() {
+          @Override
+          public OCachePointer[] answer(InvocationOnMock invocation) throws Throwable {
+            final Object[] arguments = invocation.getArguments();
+            final OCachePointer cachePointer = new OCachePointer(bufferPool.acquireDirect(true), bufferPool, null,
+                (Long) arguments[0], (Long) arguments[1]);
+            cachePointer.incrementReadersReferrer();
+
+            return new OCachePointer[] { cachePointer };
+          }
+        });
+
+    //single segment, so window queue contains single page and protected queue contains 79 pages
+    readCache = new OTinyLFUCache(MAX_SIZE * PAGE_SIZE, PAGE_SIZE, false, 20, 1);
+    Assert.assertEquals(readCache.getSegmentsCount(), 1);
+  }
+
+  @AfterMethod
+  public void after() {
+    readCache.clear();
+  }
+
+  @Test
+  public void testNewPagesAreAddedToWindow() throws IOException {
+    loadAndRelease(0);
+    Assert.assertTrue(readCache.inWindow(FILE_ID, 0));
+
+    loadAndRelease(1);
+    Assert.assertTrue(readCache.inWindow(FILE_ID, 1));
+    Assert.assertTrue(readCache.inProbation(FILE_ID, 0));
+
+    loadAndRelease(1);
+    Assert.assertTrue(readCache.inWindow(FILE_ID, 1));
+  }
+
+  @Test
+  public void testProbationHitPromotesPageToProtected() throws IOException {
+    loadAndRelease(0);
+    loadAndRelease(1);
+    Assert.assertTrue(readCache.inProbation(FILE_ID, 0));
+
+    loadAndRelease(0);
+    Assert.assertTrue(readCache.inProtected(FILE_ID, 0));
+
+    loadAndRelease(0);
+    Assert.assertTrue(readCache.inProtected(FILE_ID, 0));
+  }
+
+  @Test
+  public void testProtectedOverflowDemotesPageToProbation() throws IOException {
+    for (int i = 0; i <= 80; i++)
+      loadAndRelease(i);
+
+    for (int i = 0; i < 79; i++)
+      loadAndRelease(i);
+
+    for (int i = 0; i < 79; i++)
+      Assert.assertTrue(readCache.inProtected(FILE_ID, i));
+
+    loadAndRelease(79);
+
+    Assert.assertTrue(readCache.inProbation(FILE_ID, 0));
+    for (int i = 1; i < 80; i++)
+      Assert.assertTrue(readCache.inProtected(FILE_ID, i));
+
+    Assert.assertTrue(readCache.inWindow(FILE_ID, 80));
+  }
+
+  @Test
+  public void testScanDoesNotEvictFrequentlyUsedPages() throws IOException {
+    for (int i = 0; i < MAX_SIZE; i++)
+      loadAndRelease(i);
+
+    for (int n = 0; n < 2; n++) {
+      for (int i = 0; i < 50; i++)
+        loadAndRelease(i);
+    }
+
+    for (int i = 1000; i < 1200; i++)
+      loadAndRelease(i);
+
+    Assert.assertEquals(readCache.getUsedMemory(), MAX_SIZE * PAGE_SIZE);
+
+    for (int i = 0; i < 50; i++)
+      Assert.assertTrue(readCache.inProtected(FILE_ID, i));
+
+    //pages accessed only once lose competition with pages of probation queue, so most of them are not admitted
+    int admitted = 0;
+    for (int i = 1000; i < 1199; i++) {
+      if (inCache(i))
+        admitted++;
+    }
+
+    Assert.assertTrue(admitted < 10, "Amount of admitted pages " + admitted);
+    Assert.assertTrue(readCache.inWindow(FILE_ID, 1199));
+  }
+
+  @Test
+  public void testPageIsAdmittedWhenItIsAccessedMoreOftenThanVictim() throws IOException {
+    for (int i = 0; i < MAX_SIZE; i++)
+      loadAndRelease(i);
+
+    loadAndRelease(1000);
+    loadAndRelease(1001);
+
+    Assert.assertFalse(inCache(1000));
+    Assert.assertTrue(inCache(0));
+
+    loadAndRelease(1000);
+    loadAndRelease(1002);
+
+    Assert.assertTrue(readCache.inProbation(FILE_ID, 1000));
+    Assert.assertFalse(inCache(1001));
+    Assert.assertFalse(inCache(0));
+    Assert.assertEquals(readCache.getUsedMemory(), MAX_SIZE * PAGE_SIZE);
+  }
+
+  @Test
+  public void testUsedPagesAreNotEvicted() throws IOException {
+    final OCacheEntry cacheEntry = readCache.load(FILE_ID, 0, false, writeCache, 1, true);
+    try {
+      for (int i = 1; i <= 2 * MAX_SIZE; i++)
+        loadAndRelease(i);
+
+      Assert.assertTrue(inCache(0));
+    } finally {
+      readCache.release(cacheEntry, writeCache);
+    }
+
+    Assert.assertEquals(readCache.getUsedMemory(), MAX_SIZE * PAGE_SIZE);
+  }
+
+  private void loadAndRelease(long pageIndex) throws IOException {
+    final OCacheEntry cacheEntry = readCache.load(FILE_ID, pageIndex, false, writeCache, 1, true);
+    Assert.assertEquals(cacheEntry.getPageIndex(), pageIndex);
+    readCache.release(cacheEntry, writeCache);
+  }
+
+  private boolean inCache(long pageIndex) {
+    return readCache.inWindow(FILE_ID, pageIndex) || readCache.inProbation(FILE_ID, pageIndex) || readCache
+        .inProtected(FILE_ID, pageIndex);
+  }
+}
@@ -266,6 +266,12 @@ public class PageCacheTest {
       return pointers == null || pointers.length == 0 ? null : new OCacheEntry(fileId, pageIndex, pointers[0], false);
     }
 
+    @Override
+    public void prefetch(long fileId, long startPageIndex, int pageCount, OWriteCache writeCache, boolean verifyChecksums)
+        throws IOException {
+
+    }
+
     @Override
     public void pinPage(OCacheEntry cacheEntry) throws IOException {
 
@@ -395,6 +401,16 @@ public class PageCacheTest {
 
     }
 
+    @Override
+    public void makeIncrementalCheckpoint() {
+
+    }
+
+    @Override
+    public OLogSequenceNumber getMinDirtyLsn() {
+      return null;
+    }
+
     @Override
     public boolean exists(String fileName) {
       return false;
@@ -619,6 +635,10 @@ public class PageCacheTest {
       return null;
     }
 
+    @Override
+    public void waitTillCommitted(OLogSequenceNumber endLsn) {
+    }
+
     @Override
     public OLogSequenceNumber log(OWALRecord record) throws IOException {
       return new OLogSequenceNumber(0, 0);
@@ -664,6 +684,11 @@ public class PageCacheTest {
       return null;
     }
 
+    @Override
+    public OLogSequenceNumber getOldestActiveOperationLsn() {
+      return null;
+    }
+
     @Override
     public void cutTill(OLogSequenceNumber lsn) throws IOException {
 
@@ -0,0 +1,184 @@
+package com.orientechnologies.orient.core.storage.fs;
+
+import com.orientechnologies.common.directmemory.OByteBufferPool;
+import com.orientechnologies.common.io.OFileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+@Test
+public class OFileClassicVectoredWriteTest {
+  private static final int PAGE_SIZE = 64 * 1024;
+
+  private File directory;
+
+  @BeforeMethod
+  public void beforeMethod() throws Exception {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    directory = new File(buildDirectory, "OFileClassicVectoredWriteTest");
+    OFileUtils.deleteRecursively(directory);
+    Assert.assertTrue(directory.mkdirs());
+  }
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    OFileUtils.deleteRecursively(directory);
+  }
+
+  public void testBufferedVectoredWrite() throws Exception {
+    assertVectoredWrite(false);
+  }
+
+  public void testDirectVectoredWrite() throws Exception {
+    assertVectoredWrite(true);
+  }
+
+  public void testDirectFileIsReadInBufferedMode() throws Exception {
+    final String path = new File(directory, "direct.tst").getAbsolutePath();
+
+    final OFileClassic directFile = new OFileClassic(path, "rw", true);
+    directFile.create();
+    directFile.allocateSpace(4 * PAGE_SIZE);
+    directFile.write(PAGE_SIZE, new ByteBuffer[] { page(1), page(2) });
+    directFile.close();
+
+    final OFileClassic file = new OFileClassic(path, "rw", false);
+    file.open();
+    try {
+      Assert.assertEquals(file.getFileSize(), 4 * PAGE_SIZE);
+      Assert.assertEquals(file.getHeaderSize(), directFile.getHeaderSize());
+
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(PAGE_SIZE);
+      file.read(2 * PAGE_SIZE, buffer, true);
+      assertPage(buffer, 2);
+    } finally {
+      file.delete();
+    }
+  }
+
+  public void testDirectWriteOfPartOfBlock() throws Exception {
+    final OFileClassic file = new OFileClassic(new File(directory, "partial.tst").getAbsolutePath(), "rw", true);
+    file.create();
+    try {
+      file.allocateSpace(PAGE_SIZE);
+
+      final ByteBuffer buffer = ByteBuffer.allocate(100);
+      for (int i = 0; i < 100; i++) {
+        buffer.put((byte) i);
+      }
+
+      //pages of file in direct I/O mode are never written by buffered I/O, so unaligned region can not be written
+      if (file.isDirectIO()) {
+        try {
+          file.write(10, new ByteBuffer[] { buffer });
+          Assert.fail();
+        } catch (IllegalArgumentException e) {
+          //expected
+        }
+
+        return;
+      }
+
+      file.write(10, new ByteBuffer[] { buffer });
+
+      final byte[] content = new byte[100];
+      file.read(10, content, 100);
+      for (int i = 0; i < 100; i++) {
+        Assert.assertEquals(content[i], (byte) i);
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  private void assertVectoredWrite(boolean directIO) throws Exception {
+    final OFileClassic file = new OFileClassic(new File(directory, "vectored.tst").getAbsolutePath(), "rw", directIO);
+    file.create();
+    try {
+      if (directIO && isDirectIOSupported()) {
+        Assert.assertTrue(file.isDirectIO());
+        Assert.assertEquals(file.getHeaderSize() % ODirectIO.getBlockSize(directory), 0);
+      } else
+        Assert.assertFalse(file.isDirectIO());
+
+      file.allocateSpace(16 * PAGE_SIZE);
+
+      final ByteBuffer[] pages = new ByteBuffer[8];
+      for (int i = 0; i < pages.length; i++) {
+        pages[i] = page(i + 3);
+      }
+
+      file.write(3 * PAGE_SIZE, pages);
+      file.write(12 * PAGE_SIZE, new ByteBuffer[] { page(12) });
+      file.synch();
+
+      for (int i = 3; i < 11; i++) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(PAGE_SIZE);
+        file.read(i * PAGE_SIZE, buffer, true);
+        assertPage(buffer, i);
+      }
+
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(PAGE_SIZE);
+      file.read(12 * PAGE_SIZE, buffer, true);
+      assertPage(buffer, 12);
+
+      file.close();
+      file.open();
+
+      buffer.position(0);
+      file.read(5 * PAGE_SIZE, buffer, true);
+      assertPage(buffer, 5);
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * @return <code>true</code> if JVM and file system of test directory support direct I/O and pages of pool can be aligned by size
+   * of block of file system.
+   */
+  private boolean isDirectIOSupported() throws Exception {
+    final int blockSize = ODirectIO.getBlockSize(directory);
+    if (blockSize <= 0 || OByteBufferPool.BUFFER_ALIGNMENT % blockSize != 0
+        || OByteBufferPool.instance().getBufferSize() % blockSize != 0)
+      return false;
+
+    final File probe = new File(directory, "probe.tst");
+    Assert.assertTrue(probe.createNewFile());
+    try {
+      final FileChannel channel = ODirectIO.openForWrite(probe);
+      if (channel == null)
+        return false;
+
+      channel.close();
+      return true;
+    } finally {
+      Assert.assertTrue(probe.delete());
+    }
+  }
+
+  private static ByteBuffer page(int index) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(PAGE_SIZE);
+    for (int i = 0; i < PAGE_SIZE / 4; i++) {
+      buffer.putInt(index * 31 + i);
+    }
+
+    buffer.position(0);
+    return buffer;
+  }
+
+  private static void assertPage(ByteBuffer buffer, int index) {
+    buffer.position(0);
+    for (int i = 0; i < PAGE_SIZE / 4; i++) {
+      Assert.assertEquals(buffer.getInt(), index * 31 + i);
+    }
+  }
+}
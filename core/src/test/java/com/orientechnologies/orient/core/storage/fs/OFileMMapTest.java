@@ -0,0 +1,148 @@
+package com.orientechnologies.orient.core.storage.fs;
+
+import com.orientechnologies.common.io.OFileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+@Test
+public class OFileMMapTest {
+  private static final int PAGE_SIZE   = 1024;
+  private static final int REGION_SIZE = 4 * PAGE_SIZE;
+
+  private File      directory;
+  private OFileMMap file;
+
+  @BeforeMethod
+  public void beforeMethod() throws Exception {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    directory = new File(buildDirectory, "OFileMMapTest");
+    OFileUtils.deleteRecursively(directory);
+    Assert.assertTrue(directory.mkdirs());
+
+    file = new OFileMMap(new File(directory, "mmap.tst").getAbsolutePath(), "rw", REGION_SIZE);
+    file.create();
+  }
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    file.delete();
+    OFileUtils.deleteRecursively(directory);
+  }
+
+  public void testReadWrittenPages() throws Exception {
+    file.allocateSpace(16 * PAGE_SIZE);
+
+    for (int i = 0; i < 16; i++) {
+      file.write(i * PAGE_SIZE, page(i));
+    }
+
+    for (int i = 0; i < 16; i++) {
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(PAGE_SIZE);
+      file.read(i * PAGE_SIZE, buffer, true);
+      assertPage(buffer, i);
+    }
+  }
+
+  public void testPageIsUpdatedAfterWrite() throws Exception {
+    file.allocateSpace(4 * PAGE_SIZE);
+    file.write(PAGE_SIZE, page(1));
+
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(PAGE_SIZE);
+    file.read(PAGE_SIZE, buffer, true);
+    assertPage(buffer, 1);
+
+    file.write(PAGE_SIZE, page(42));
+
+    buffer.position(0);
+    file.read(PAGE_SIZE, buffer, true);
+    assertPage(buffer, 42);
+  }
+
+  public void testFileGrowsAfterRegionIsMapped() throws Exception {
+    file.allocateSpace(PAGE_SIZE);
+    file.write(0, page(0));
+
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(PAGE_SIZE);
+    file.read(0, buffer, true);
+    assertPage(buffer, 0);
+
+    file.allocateSpace(8 * PAGE_SIZE);
+    for (int i = 1; i < 9; i++) {
+      file.write(i * PAGE_SIZE, page(i));
+    }
+
+    for (int i = 0; i < 9; i++) {
+      buffer.position(0);
+      file.read(i * PAGE_SIZE, buffer, true);
+      assertPage(buffer, i);
+    }
+  }
+
+  public void testVectoredRead() throws Exception {
+    file.allocateSpace(10 * PAGE_SIZE);
+    for (int i = 0; i < 10; i++) {
+      file.write(i * PAGE_SIZE, page(i));
+    }
+
+    final ByteBuffer[] buffers = new ByteBuffer[6];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = ByteBuffer.allocateDirect(PAGE_SIZE);
+    }
+
+    file.read(2 * PAGE_SIZE, buffers, true);
+
+    for (int i = 0; i < buffers.length; i++) {
+      assertPage(buffers[i], i + 2);
+    }
+  }
+
+  public void testReadAfterShrink() throws Exception {
+    file.allocateSpace(12 * PAGE_SIZE);
+    for (int i = 0; i < 12; i++) {
+      file.write(i * PAGE_SIZE, page(i));
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(PAGE_SIZE);
+    file.read(10 * PAGE_SIZE, buffer, true);
+    assertPage(buffer, 10);
+
+    file.shrink(2 * PAGE_SIZE);
+    Assert.assertEquals(file.getFileSize(), 2 * PAGE_SIZE);
+
+    buffer.position(0);
+    file.read(PAGE_SIZE, buffer, true);
+    assertPage(buffer, 1);
+
+    file.allocateSpace(10 * PAGE_SIZE);
+    file.write(10 * PAGE_SIZE, page(7));
+
+    buffer.position(0);
+    file.read(10 * PAGE_SIZE, buffer, true);
+    assertPage(buffer, 7);
+  }
+
+  private static ByteBuffer page(int index) {
+    final ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+    for (int i = 0; i < PAGE_SIZE; i++) {
+      buffer.put((byte) (index + i));
+    }
+
+    buffer.position(0);
+    return buffer;
+  }
+
+  private static void assertPage(ByteBuffer buffer, int index) {
+    buffer.position(0);
+    for (int i = 0; i < PAGE_SIZE; i++) {
+      Assert.assertEquals(buffer.get(), (byte) (index + i));
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.orientechnologies.orient.core.storage.impl.local;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OWALRedoExecutorTest {
+  public void testSamePageIsAlwaysInSamePartition() {
+    for (long fileId = 0; fileId < 16; fileId++) {
+      for (long pageIndex = 0; pageIndex < 1024; pageIndex++) {
+        final int partition = OWALRedoExecutor.partition(fileId, pageIndex, 7);
+        Assert.assertTrue(partition >= 0 && partition < 7);
+        Assert.assertEquals(OWALRedoExecutor.partition(fileId, pageIndex, 7), partition);
+      }
+    }
+  }
+
+  public void testPagesAreSpreadBetweenPartitions() {
+    final int partitions = 8;
+    final int pages = 8 * 1024;
+
+    final int[] counts = new int[partitions];
+    for (long pageIndex = 0; pageIndex < pages; pageIndex++) {
+      counts[OWALRedoExecutor.partition(3, pageIndex, partitions)]++;
+    }
+
+    for (int count : counts) {
+      Assert.assertTrue(count > pages / partitions / 2, "Pages are not spread evenly " + count);
+    }
+  }
+}
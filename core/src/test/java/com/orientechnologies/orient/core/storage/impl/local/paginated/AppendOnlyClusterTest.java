@@ -0,0 +1,210 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OAppendOnlyClusterException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class AppendOnlyClusterTest {
+  private ODatabaseDocumentTx db;
+  private OAppendOnlyCluster  cluster;
+
+  @BeforeMethod
+  public void before() {
+    db = new ODatabaseDocumentTx("memory:" + AppendOnlyClusterTest.class.getSimpleName());
+    db.create();
+
+    OGlobalConfiguration.STORAGE_APPEND_ONLY_CLUSTER_SEGMENT_PAGES.setValue(2);
+    try {
+      cluster = (OAppendOnlyCluster) db.getStorage().getClusterById(db.addCluster("events", OAppendOnlyCluster.APPEND_ONLY));
+    } finally {
+      OGlobalConfiguration.STORAGE_APPEND_ONLY_CLUSTER_SEGMENT_PAGES
+          .setValue(OGlobalConfiguration.STORAGE_APPEND_ONLY_CLUSTER_SEGMENT_PAGES.getDefValue());
+    }
+  }
+
+  @AfterMethod
+  public void after() {
+    db.drop();
+  }
+
+  @Test
+  public void testCreateAndRead() throws IOException {
+    final Random random = new Random(42);
+    final List<byte[]> records = new ArrayList<byte[]>();
+
+    for (int i = 0; i < 1000; i++) {
+      // every tenth record does not fit into a single page
+      final byte[] record = new byte[i % 10 == 0 ? 2 * 65536 + 100 : random.nextInt(1000) + 1];
+      random.nextBytes(record);
+      records.add(record);
+
+      final OPhysicalPosition position = cluster.createRecord(record, i, (byte) 'b', null);
+      Assert.assertEquals(position.clusterPosition, i);
+    }
+
+    Assert.assertEquals(cluster.getEntries(), records.size());
+    Assert.assertEquals(cluster.getFirstPosition(), 0);
+    Assert.assertEquals(cluster.getLastPosition(), records.size() - 1);
+    Assert.assertEquals(cluster.getNextPosition(), records.size());
+
+    for (int i = 0; i < records.size(); i++) {
+      final ORawBuffer buffer = cluster.readRecord(i, false);
+      Assert.assertEquals(buffer.buffer, records.get(i));
+      Assert.assertEquals(buffer.version, i);
+      Assert.assertEquals(buffer.recordType, (byte) 'b');
+    }
+
+    Assert.assertNull(cluster.readRecord(records.size(), false));
+    Assert.assertNull(cluster.readRecordIfVersionIsNotLatest(5, 5));
+    Assert.assertEquals(cluster.readRecordIfVersionIsNotLatest(5, 4).buffer, records.get(5));
+  }
+
+  @Test
+  public void testPositions() throws IOException {
+    for (int i = 0; i < 500; i++)
+      cluster.createRecord(new byte[500], 0, (byte) 'b', null);
+
+    for (int i = 0; i < 500; i += 2)
+      Assert.assertTrue(cluster.deleteRecord(i));
+
+    Assert.assertFalse(cluster.deleteRecord(0));
+    Assert.assertNull(cluster.readRecord(0, false));
+    Assert.assertNull(cluster.getPhysicalPosition(new OPhysicalPosition(0)));
+    Assert.assertEquals(cluster.getEntries(), 250);
+    Assert.assertEquals(cluster.getRecordsSize(), 250 * 500);
+
+    Assert.assertEquals(cluster.getFirstPosition(), 1);
+    Assert.assertEquals(cluster.getLastPosition(), 499);
+    Assert.assertEquals(cluster.getRecordStatus(0), OPaginatedCluster.RECORD_STATUS.REMOVED);
+    Assert.assertEquals(cluster.getRecordStatus(1), OPaginatedCluster.RECORD_STATUS.PRESENT);
+    Assert.assertEquals(cluster.getRecordStatus(500), OPaginatedCluster.RECORD_STATUS.NOT_EXISTENT);
+
+    long expected = 1;
+    OPhysicalPosition[] positions = cluster.ceilingPositions(new OPhysicalPosition(0));
+    while (positions.length > 0) {
+      for (OPhysicalPosition position : positions) {
+        Assert.assertEquals(position.clusterPosition, expected);
+        expected += 2;
+      }
+
+      positions = cluster.higherPositions(positions[positions.length - 1]);
+    }
+    Assert.assertEquals(expected, 501);
+
+    positions = cluster.floorPositions(new OPhysicalPosition(300));
+    Assert.assertEquals(positions[positions.length - 1].clusterPosition, 299);
+
+    positions = cluster.lowerPositions(new OPhysicalPosition(299));
+    Assert.assertEquals(positions[positions.length - 1].clusterPosition, 297);
+  }
+
+  @Test
+  public void testAllocatedPositionsAreUsedInOrder() throws IOException {
+    final OPhysicalPosition first = cluster.allocatePosition((byte) 'b');
+    final OPhysicalPosition second = cluster.allocatePosition((byte) 'b');
+    Assert.assertEquals(cluster.getRecordStatus(first.clusterPosition), OPaginatedCluster.RECORD_STATUS.ALLOCATED);
+
+    cluster.createRecord(new byte[] { 2 }, 0, (byte) 'b', second);
+    Assert.assertEquals(cluster.getRecordStatus(first.clusterPosition), OPaginatedCluster.RECORD_STATUS.REMOVED);
+
+    try {
+      cluster.createRecord(new byte[] { 1 }, 0, (byte) 'b', first);
+      Assert.fail();
+    } catch (OAppendOnlyClusterException e) {
+      // expected
+    }
+
+    Assert.assertEquals(cluster.getEntries(), 1);
+    Assert.assertEquals(cluster.readRecord(second.clusterPosition, false).buffer, new byte[] { 2 });
+  }
+
+  @Test(expectedExceptions = OAppendOnlyClusterException.class)
+  public void testUpdateIsNotSupported() throws IOException {
+    final OPhysicalPosition position = cluster.createRecord(new byte[] { 1 }, 0, (byte) 'b', null);
+    cluster.updateRecord(position.clusterPosition, new byte[] { 2 }, 1, (byte) 'b');
+  }
+
+  @Test
+  public void testTruncateBefore() throws IOException {
+    for (int i = 0; i < 1000; i++)
+      cluster.createRecord(new byte[1000], 0, (byte) 'b', null);
+
+    final long removed = cluster.truncateBefore(500);
+    Assert.assertTrue(removed > 0 && removed <= 500);
+
+    Assert.assertEquals(cluster.getEntries(), 1000 - removed);
+    Assert.assertEquals(cluster.getFirstPosition(), removed);
+    Assert.assertNull(cluster.readRecord(removed - 1, false));
+
+    for (long i = removed; i < 1000; i++)
+      Assert.assertNotNull(cluster.readRecord(i, false));
+
+    // the segment records are appended to is never removed
+    Assert.assertEquals(cluster.truncateBefore(Long.MAX_VALUE) + removed + cluster.getEntries(), 1000);
+    Assert.assertTrue(cluster.getEntries() > 0);
+    Assert.assertEquals(cluster.getLastPosition(), 999);
+
+    cluster.truncate();
+    Assert.assertEquals(cluster.getEntries(), 0);
+    Assert.assertEquals(cluster.getFirstPosition(), ORID.CLUSTER_POS_INVALID);
+
+    Assert.assertEquals(cluster.createRecord(new byte[] { 1 }, 0, (byte) 'b', null).clusterPosition, 1000);
+    Assert.assertEquals(cluster.readRecord(1000, false).buffer, new byte[] { 1 });
+  }
+
+  @Test
+  public void testPositionByTime() throws Exception {
+    for (int i = 0; i < 300; i++)
+      cluster.createRecord(new byte[1000], 0, (byte) 'b', null);
+
+    Thread.sleep(5);
+    final long timestamp = System.currentTimeMillis();
+    Thread.sleep(5);
+
+    for (int i = 0; i < 300; i++)
+      cluster.createRecord(new byte[1000], 0, (byte) 'b', null);
+
+    Assert.assertEquals(cluster.getPositionByTime(0), 0);
+    Assert.assertEquals(cluster.getPositionByTime(timestamp), 300);
+    Assert.assertEquals(cluster.getPositionByTime(System.currentTimeMillis() + 1000), ORID.CLUSTER_POS_INVALID);
+
+    final long removed = cluster.truncateBeforeTime(timestamp);
+    Assert.assertTrue(removed > 0 && removed <= 300);
+    Assert.assertEquals(cluster.getFirstPosition(), removed);
+  }
+
+  @Test
+  public void testDocuments() {
+    for (int i = 0; i < 100; i++)
+      new ODocument().field("event", "created").field("number", i).save("events");
+
+    db.begin();
+    for (int i = 100; i < 200; i++)
+      new ODocument().field("event", "created").field("number", i).save("events");
+    db.commit();
+
+    db.getLocalCache().clear();
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from cluster:events"));
+    Assert.assertEquals(result.size(), 200);
+
+    for (int i = 0; i < result.size(); i++) {
+      Assert.assertEquals(result.get(i).getIdentity().getClusterPosition(), i);
+      Assert.assertEquals(result.get(i).<Number>field("number").intValue(), i);
+    }
+  }
+}
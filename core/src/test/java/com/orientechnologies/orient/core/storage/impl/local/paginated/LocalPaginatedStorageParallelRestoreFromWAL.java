@@ -0,0 +1,168 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.tool.ODatabaseCompare;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Restores storage which consists of many atomic units from WAL by several threads.
+ */
+@Test
+public class LocalPaginatedStorageParallelRestoreFromWAL {
+  private static final String BASE_NAME = "baseParallelRestoreFromWAL";
+  private static final String TEST_NAME = "testParallelRestoreFromWAL";
+
+  private File                buildDir;
+  private ODatabaseDocumentTx baseDocumentTx;
+  private ODatabaseDocumentTx testDocumentTx;
+
+  private int     restoreThreads;
+  private boolean fileLock;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    restoreThreads = OGlobalConfiguration.WAL_RESTORE_THREADS.getValueAsInteger();
+    fileLock = OGlobalConfiguration.FILE_LOCK.getValueAsBoolean();
+    OGlobalConfiguration.FILE_LOCK.setValue(false);
+
+    String buildDirectory = System.getProperty("buildDirectory", ".");
+    buildDir = new File(buildDirectory, "localPaginatedStorageParallelRestoreFromWAL");
+    OFileUtils.deleteRecursively(buildDir);
+    Assert.assertTrue(buildDir.mkdirs());
+
+    baseDocumentTx = new ODatabaseDocumentTx("plocal:" + new File(buildDir, BASE_NAME).getAbsolutePath());
+    baseDocumentTx.create();
+
+    final OClass testClass = baseDocumentTx.getMetadata().getSchema().createClass("TestClass");
+    testClass.createProperty("key", OType.INTEGER);
+    testClass.createProperty("value", OType.STRING);
+    testClass.createIndex("TestClassKeyIndex", OClass.INDEX_TYPE.NOTUNIQUE, "key");
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    OGlobalConfiguration.WAL_RESTORE_THREADS.setValue(restoreThreads);
+    OGlobalConfiguration.FILE_LOCK.setValue(fileLock);
+
+    if (testDocumentTx != null) {
+      testDocumentTx.open("admin", "admin");
+      testDocumentTx.drop();
+    }
+
+    baseDocumentTx.open("admin", "admin");
+    baseDocumentTx.drop();
+
+    OFileUtils.deleteRecursively(buildDir);
+  }
+
+  public void testParallelRestore() throws Exception {
+    final Random random = new Random(42);
+    final List<ORID> rids = new ArrayList<ORID>();
+
+    //each transaction is a separate atomic unit which changes pages of cluster and index
+    for (int i = 0; i < 1000; i++) {
+      baseDocumentTx.begin();
+      for (int n = 0; n < 10; n++) {
+        final ODocument document = new ODocument("TestClass");
+        document.field("key", random.nextInt(1000));
+        document.field("value", "value " + random.nextInt());
+        document.save();
+
+        rids.add(document.getIdentity());
+      }
+
+      if (i % 3 == 0) {
+        final ODocument document = baseDocumentTx.load(rids.get(random.nextInt(rids.size())));
+        document.field("value", "updated " + i);
+        document.save();
+      }
+
+      if (i % 5 == 0)
+        baseDocumentTx.delete(rids.remove(random.nextInt(rids.size())));
+
+      baseDocumentTx.commit();
+    }
+
+    //data files are copied without close of storage, so changes which are not flushed are restored from WAL
+    ((OAbstractPaginatedStorage) baseDocumentTx.getStorage().getUnderlying()).getWALInstance().flush();
+    copyDataFromBaseWithoutClose();
+
+    final OStorage baseStorage = baseDocumentTx.getStorage();
+    baseDocumentTx.close();
+    baseStorage.close();
+
+    OGlobalConfiguration.WAL_RESTORE_THREADS.setValue(4);
+
+    testDocumentTx = new ODatabaseDocumentTx("plocal:" + new File(buildDir, TEST_NAME).getAbsolutePath());
+    testDocumentTx.open("admin", "admin");
+    testDocumentTx.close();
+
+    final ODatabaseCompare databaseCompare = new ODatabaseCompare(testDocumentTx.getURL(), baseDocumentTx.getURL(), "admin",
+        "admin", new OCommandOutputListener() {
+      @Override
+      public void onMessage(String text) {
+        System.out.println(text);
+      }
+    });
+    databaseCompare.setCompareIndexMetadata(true);
+
+    Assert.assertTrue(databaseCompare.compare());
+  }
+
+  private void copyDataFromBaseWithoutClose() throws IOException {
+    final File baseDir = new File(buildDir, BASE_NAME);
+    final File testDir = new File(buildDir, TEST_NAME);
+    Assert.assertTrue(testDir.mkdir());
+
+    final File[] storageFiles = baseDir.listFiles();
+    Assert.assertNotNull(storageFiles);
+
+    for (File storageFile : storageFiles) {
+      String name = storageFile.getName();
+      if (name.startsWith(BASE_NAME))
+        name = TEST_NAME + name.substring(BASE_NAME.length());
+
+      copyFile(storageFile, new File(testDir, name));
+    }
+  }
+
+  private static void copyFile(File from, File to) throws IOException {
+    final BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(from));
+    try {
+      final FileOutputStream outputStream = new FileOutputStream(to);
+      try {
+        final byte[] data = new byte[1024];
+        int bytesRead = inputStream.read(data);
+        while (bytesRead > 0) {
+          outputStream.write(data, 0, bytesRead);
+          bytesRead = inputStream.read(data);
+        }
+      } finally {
+        outputStream.close();
+      }
+    } finally {
+      inputStream.close();
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import com.orientechnologies.orient.core.compression.OCompression;
+import com.orientechnologies.orient.core.compression.OCompressionFactory;
+import com.orientechnologies.orient.core.compression.impl.ODictionaryCompression;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.exception.OConfigurationException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OWALRecordsFactoryCompressionTest {
+  public void testBigRecordIsCompressed() {
+    final OCompression compression = OCompressionFactory.INSTANCE.getCompression("gzip", null);
+    final OFileCreatedWALRecord record = new OFileCreatedWALRecord(OOperationUnitId.generateId(), fileName(2048), 42);
+
+    final byte[] plain = OWALRecordsFactory.INSTANCE.toStream(record);
+    final byte[] compressed = OWALRecordsFactory.INSTANCE.toStream(record, compression, 512);
+    Assert.assertTrue(compressed.length < plain.length);
+
+    final OFileCreatedWALRecord restored = (OFileCreatedWALRecord) OWALRecordsFactory.INSTANCE.fromStream(compressed);
+    Assert.assertEquals(restored.getFileName(), record.getFileName());
+    Assert.assertEquals(restored.getFileId(), record.getFileId());
+    Assert.assertEquals(restored.getOperationUnitId(), record.getOperationUnitId());
+  }
+
+  public void testSmallRecordIsNotCompressed() {
+    final OCompression compression = OCompressionFactory.INSTANCE.getCompression("gzip", null);
+    final OFileCreatedWALRecord record = new OFileCreatedWALRecord(OOperationUnitId.generateId(), fileName(64), 42);
+
+    final byte[] plain = OWALRecordsFactory.INSTANCE.toStream(record);
+    final byte[] content = OWALRecordsFactory.INSTANCE.toStream(record, compression, 512);
+    Assert.assertEquals(content, plain);
+  }
+
+  public void testRecordIsNotCompressedWithoutCompression() {
+    final OFileCreatedWALRecord record = new OFileCreatedWALRecord(OOperationUnitId.generateId(), fileName(2048), 42);
+
+    final byte[] plain = OWALRecordsFactory.INSTANCE.toStream(record);
+    final byte[] content = OWALRecordsFactory.INSTANCE.toStream(record, null, 0);
+    Assert.assertEquals(content, plain);
+  }
+
+  public void testStatefulCompressionIsRejected() {
+    final OContextConfiguration configuration = new OContextConfiguration();
+
+    configuration.setValue(OGlobalConfiguration.WAL_COMPRESSION_METHOD, "gzip");
+    Assert.assertEquals(ODiskWriteAheadLog.walCompression(configuration).name(), "gzip");
+
+    configuration.setValue(OGlobalConfiguration.WAL_COMPRESSION_METHOD, ODictionaryCompression.NAME);
+    try {
+      ODiskWriteAheadLog.walCompression(configuration);
+      Assert.fail();
+    } catch (OConfigurationException e) {
+      //expected
+    }
+  }
+
+  private static String fileName(int length) {
+    final StringBuilder builder = new StringBuilder();
+    while (builder.length() < length)
+      builder.append("file");
+
+    return builder.toString();
+  }
+}
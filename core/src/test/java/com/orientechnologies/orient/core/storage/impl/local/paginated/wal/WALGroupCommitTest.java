@@ -0,0 +1,146 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.statistic.OPerformanceStatisticManager;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Test
+public class WALGroupCommitTest {
+  private ODiskWriteAheadLog writeAheadLog;
+  private File               testDir;
+  private boolean            groupCommit;
+
+  @BeforeMethod
+  public void beforeMethod() throws Exception {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    testDir = new File(buildDirectory, "walGroupCommitTest");
+    OFileUtils.deleteRecursively(testDir);
+    Assert.assertTrue(testDir.mkdirs());
+
+    groupCommit = OGlobalConfiguration.WAL_GROUP_COMMIT.getValueAsBoolean();
+    OGlobalConfiguration.WAL_GROUP_COMMIT.setValue(true);
+
+    OLocalPaginatedStorage paginatedStorage = mock(OLocalPaginatedStorage.class);
+    when(paginatedStorage.getName()).thenReturn("WALGroupCommitTest");
+    when(paginatedStorage.getStoragePath()).thenReturn(testDir.getAbsolutePath());
+    OStorageConfiguration configurationMock = mock(OStorageConfiguration.class);
+    when(configurationMock.getLocaleInstance()).thenReturn(Locale.getDefault());
+    when(paginatedStorage.getConfiguration()).thenReturn(configurationMock);
+    when(paginatedStorage.getPerformanceStatisticManager())
+        .thenReturn(new OPerformanceStatisticManager(paginatedStorage, Long.MAX_VALUE, -1));
+
+    //periodic flush is disabled, so only group commit flushes WAL
+    writeAheadLog = new ODiskWriteAheadLog(16, -1, OWALPage.PAGE_SIZE * 64, null, true, paginatedStorage, 10);
+  }
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    if (writeAheadLog != null)
+      writeAheadLog.delete();
+
+    OGlobalConfiguration.WAL_GROUP_COMMIT.setValue(groupCommit);
+    OFileUtils.deleteRecursively(testDir);
+  }
+
+  public void testCommitWaitsForFlush() throws Exception {
+    final OOperationUnitId unitId = OOperationUnitId.generateId();
+    final OLogSequenceNumber startLsn = writeAheadLog.logAtomicOperationStartRecord(true, unitId);
+    final OLogSequenceNumber endLsn = writeAheadLog.logAtomicOperationEndRecord(unitId, false, startLsn, null);
+
+    writeAheadLog.waitTillCommitted(endLsn);
+
+    Assert.assertNotNull(writeAheadLog.getFlushedLsn());
+    Assert.assertTrue(writeAheadLog.getFlushedLsn().compareTo(endLsn) >= 0);
+  }
+
+  public void testConcurrentCommits() throws Exception {
+    final int threads = 8;
+    final int commits = 200;
+
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final CountDownLatch latch = new CountDownLatch(1);
+
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            latch.await();
+
+            for (int n = 0; n < commits; n++) {
+              final OOperationUnitId unitId = OOperationUnitId.generateId();
+              final OLogSequenceNumber startLsn = writeAheadLog.logAtomicOperationStartRecord(true, unitId);
+              final OLogSequenceNumber endLsn = writeAheadLog.logAtomicOperationEndRecord(unitId, false, startLsn, null);
+
+              writeAheadLog.waitTillCommitted(endLsn);
+              Assert.assertTrue(writeAheadLog.getFlushedLsn().compareTo(endLsn) >= 0);
+            }
+
+            return null;
+          }
+        }));
+      }
+
+      latch.countDown();
+
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testAlreadyFlushedRecordDoesNotWait() throws Exception {
+    final OOperationUnitId unitId = OOperationUnitId.generateId();
+    final OLogSequenceNumber startLsn = writeAheadLog.logAtomicOperationStartRecord(true, unitId);
+    final OLogSequenceNumber endLsn = writeAheadLog.logAtomicOperationEndRecord(unitId, false, startLsn, null);
+
+    writeAheadLog.flush();
+    Assert.assertTrue(writeAheadLog.getFlushedLsn().compareTo(endLsn) >= 0);
+
+    writeAheadLog.waitTillCommitted(endLsn);
+  }
+
+  @Test(timeOut = 60000)
+  public void testFlushErrorIsPassedToWaiters() throws Exception {
+    final ODiskWriteAheadLog failingLog = mock(ODiskWriteAheadLog.class);
+    doThrow(new AssertionError("Flush failure")).when(failingLog).flush();
+
+    final OWALGroupCommitter groupCommitter = new OWALGroupCommitter(failingLog, "WALGroupCommitTest", 0);
+    try {
+      //flusher thread survives the failure, so the next commit is failed too instead of waiting forever
+      for (int i = 0; i < 2; i++) {
+        try {
+          groupCommitter.waitTillFlushed(new OLogSequenceNumber(1, 100));
+          Assert.fail();
+        } catch (OStorageException e) {
+          Assert.assertTrue(e.getCause() instanceof AssertionError);
+        }
+      }
+    } finally {
+      groupCommitter.close();
+    }
+  }
+}
@@ -30,7 +30,9 @@ import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.ORecordVersionHelper;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OAppendOnlyCluster;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.OPaginatedCluster;
 import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.distributed.ODistributedException;
@@ -109,9 +111,16 @@ public class OIncrementalServerSync {
 
                 totalRecords++;
 
-                final OPaginatedCluster cluster = (OPaginatedCluster) db.getStorage().getUnderlying()
-                    .getClusterById(rid.getClusterId());
-                final OPaginatedCluster.RECORD_STATUS recordStatus = cluster.getRecordStatus(rid.getClusterPosition());
+                final OCluster cluster = db.getStorage().getUnderlying().getClusterById(rid.getClusterId());
+                final OPaginatedCluster.RECORD_STATUS recordStatus;
+                if (cluster instanceof OAppendOnlyCluster)
+                  recordStatus = ((OAppendOnlyCluster) cluster).getRecordStatus(rid.getClusterPosition());
+                else if (cluster instanceof OPaginatedCluster)
+                  recordStatus = ((OPaginatedCluster) cluster).getRecordStatus(rid.getClusterPosition());
+                else
+                  throw new ODistributedException(
+                      "Cannot apply delta of record " + rid + " because status of records can not be read from cluster " + rid
+                          .getClusterId());
 
                 ORecord newRecord = null;
 
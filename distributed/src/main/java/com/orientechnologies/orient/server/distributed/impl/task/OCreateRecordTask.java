@@ -31,7 +31,9 @@ import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.ORecordVersionHelper;
+import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OAppendOnlyCluster;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.OPaginatedCluster;
 import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.distributed.*;
@@ -110,9 +112,15 @@ public class OCreateRecordTask extends OAbstractRecordReplicatedTask {
     if (!rid.isPersistent())
       throw new ODistributedException("Record " + rid + " has not been saved on owner node first (temporary rid)");
 
-    final OPaginatedCluster cluster = (OPaginatedCluster) ODatabaseRecordThreadLocal.INSTANCE.get().getStorage()
-        .getClusterById(rid.getClusterId());
-    final OPaginatedCluster.RECORD_STATUS recordStatus = cluster.getRecordStatus(rid.getClusterPosition());
+    final OCluster cluster = ODatabaseRecordThreadLocal.INSTANCE.get().getStorage().getClusterById(rid.getClusterId());
+    final OPaginatedCluster.RECORD_STATUS recordStatus;
+    if (cluster instanceof OAppendOnlyCluster)
+      recordStatus = ((OAppendOnlyCluster) cluster).getRecordStatus(rid.getClusterPosition());
+    else if (cluster instanceof OPaginatedCluster)
+      recordStatus = ((OPaginatedCluster) cluster).getRecordStatus(rid.getClusterPosition());
+    else
+      throw new ODistributedException(
+          "Cannot create record " + rid + " because status of records can not be read from cluster " + rid.getClusterId());
 
     if (ODistributedServerLog.isDebugEnabled())
       ODistributedServerLog
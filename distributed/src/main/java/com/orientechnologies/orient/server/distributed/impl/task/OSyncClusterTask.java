@@ -31,6 +31,7 @@ import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.sharding.auto.OAutoShardingIndexEngine;
+import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.OClusterPositionMap;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.OPaginatedCluster;
 import com.orientechnologies.orient.server.OServer;
@@ -105,7 +106,11 @@ public class OSyncClusterTask extends OAbstractReplicatedTask {
         ODistributedServerLog.info(this, iManager.getLocalNodeName(), getNodeSource(), DIRECTION.OUT,
             "Creating backup of cluster '%s' in directory: %s...", databaseName, backupFile.getAbsolutePath());
 
-        final OPaginatedCluster cluster = (OPaginatedCluster) database.getStorage().getClusterByName(clusterName);
+        final OCluster storageCluster = database.getStorage().getClusterByName(clusterName);
+        if (!(storageCluster instanceof OPaginatedCluster))
+          throw new ODistributedException(
+              "Cannot deploy cluster '" + databaseName + "." + clusterName + "' because only files of paginated clusters are copied");
+        final OPaginatedCluster cluster = (OPaginatedCluster) storageCluster;
 
         switch (mode) {
         case MERGE:
@@ -37,6 +37,7 @@ import com.orientechnologies.orient.core.sql.OCommandExecutorSQLAbstract;
 import com.orientechnologies.orient.core.sql.OCommandSQLParsingException;
 import com.orientechnologies.orient.core.sql.parser.OHaSyncClusterStatement;
 import com.orientechnologies.orient.core.sql.parser.OStatementCache;
+import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.OPaginatedCluster;
 import com.orientechnologies.orient.server.OServer;
@@ -213,7 +214,11 @@ public class OCommandExecutorSQLHASyncCluster extends OCommandExecutorSQLAbstrac
         stg.freeze(false);
         try {
 
-          final OPaginatedCluster cluster = (OPaginatedCluster) stg.getClusterByName(clusterName);
+          final OCluster storageCluster = stg.getClusterByName(clusterName);
+          if (!(storageCluster instanceof OPaginatedCluster))
+            throw new ODistributedException(
+                "Cannot replace cluster '" + databaseName + "." + clusterName + "' because only files of paginated clusters are copied");
+          final OPaginatedCluster cluster = (OPaginatedCluster) storageCluster;
 
           final File tempClusterFile = new File(tempDirectoryPath + "/" + clusterName + OPaginatedCluster.DEF_EXTENSION);
 
@@ -0,0 +1,102 @@
+package com.orientechnologies.orient.core.index.hashindex.local;
+
+import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures latency distribution of look ups of {@link OLocalHashTable} while concurrent writer constantly adds new keys, so buckets
+ * are split and directory grows during the whole measurement, with optimistic reads switched on and off. Percentiles of
+ * <code>growth:get</code> show how long readers are stalled by growth of the hash table.
+ * <p>
+ * To run this benchmark run {@link org.openjdk.jmh.Main}.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LocalHashTableGrowthBenchmark {
+  private static final int INITIAL_KEYS = 100000;
+
+  @Param({ "true", "false" })
+  private boolean optimisticReads;
+
+  private ODatabaseDocumentTx              database;
+  private OLocalHashTable<Integer, String> hashTable;
+
+  private final AtomicInteger keys = new AtomicInteger();
+
+  @State(Scope.Thread)
+  public static class ThreadState {
+    private final Random random = new Random();
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    OGlobalConfiguration.HASH_TABLE_OPTIMISTIC_READS.setValue(optimisticReads);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    final File directory = new File(buildDirectory, "localHashTableGrowthBenchmark");
+    OFileUtils.deleteRecursively(directory);
+
+    database = new ODatabaseDocumentTx("plocal:" + directory.getAbsolutePath());
+    database.create();
+
+    final OMurmurHash3HashFunction<Integer> hashFunction = new OMurmurHash3HashFunction<Integer>();
+    hashFunction.setValueSerializer(OIntegerSerializer.INSTANCE);
+
+    hashTable = new OLocalHashTable<Integer, String>("localHashTableGrowthBenchmark", ".imc", ".tsc", ".obf", ".nbh", hashFunction,
+        false, (OAbstractPaginatedStorage) database.getStorage());
+    hashTable.create(OIntegerSerializer.INSTANCE, OBinarySerializerFactory.getInstance().<String>getObjectSerializer(OType.STRING),
+        null, false);
+  }
+
+  /**
+   * Each iteration starts from the small hash table, so growth of the directory is measured instead of updates of the big table.
+   */
+  @Setup(Level.Iteration)
+  public void setUpIteration() {
+    hashTable.clear();
+
+    for (int i = 0; i < INITIAL_KEYS; i++)
+      hashTable.put(i, String.valueOf(i));
+
+    keys.set(INITIAL_KEYS);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    hashTable.delete();
+    database.drop();
+
+    OGlobalConfiguration.HASH_TABLE_OPTIMISTIC_READS.setValue(OGlobalConfiguration.HASH_TABLE_OPTIMISTIC_READS.getDefValue());
+  }
+
+  @Benchmark
+  @Group("growth")
+  @GroupThreads(3)
+  public String get(ThreadState state) {
+    return hashTable.get(state.random.nextInt(keys.get()));
+  }
+
+  @Benchmark
+  @Group("growth")
+  @GroupThreads(1)
+  public void put() {
+    final int key = keys.get();
+    hashTable.put(key, String.valueOf(key));
+    keys.set(key + 1);
+  }
+}
@@ -0,0 +1,93 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures throughput of point look ups and short range scans of {@link OSBTree} performed by all available processors with
+ * optimistic reads switched on and off.
+ * <p>
+ * To run this benchmark run {@link org.openjdk.jmh.Main}, amount of threads may be changed by <code>-t</code> parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(Threads.MAX)
+public class SBTreeGetBenchmark {
+  private static final int KEYS       = 1000000;
+  private static final int RANGE_SIZE = 10;
+
+  @Param({ "true", "false" })
+  private boolean optimisticReads;
+
+  private ODatabaseDocumentTx            database;
+  private OSBTree<Integer, OIdentifiable> sbTree;
+
+  @State(Scope.Thread)
+  public static class ThreadState {
+    private final Random random = new Random();
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    OGlobalConfiguration.SBTREE_OPTIMISTIC_READS.setValue(optimisticReads);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    final File directory = new File(buildDirectory, "sbTreeGetBenchmark");
+    OFileUtils.deleteRecursively(directory);
+
+    database = new ODatabaseDocumentTx("plocal:" + directory.getAbsolutePath());
+    database.create();
+
+    sbTree = new OSBTree<Integer, OIdentifiable>("sbTreeGetBenchmark", ".sbt", false, ".nbt",
+        (OAbstractPaginatedStorage) database.getStorage());
+    sbTree.create(OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, 1, false);
+
+    for (int i = 0; i < KEYS; i++)
+      sbTree.put(i, new ORecordId(i % 32000, i));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    sbTree.delete();
+    database.drop();
+
+    OGlobalConfiguration.SBTREE_OPTIMISTIC_READS.setValue(OGlobalConfiguration.SBTREE_OPTIMISTIC_READS.getDefValue());
+  }
+
+  @Benchmark
+  public OIdentifiable get(ThreadState state) {
+    return sbTree.get(state.random.nextInt(KEYS));
+  }
+
+  @Benchmark
+  public int iterateEntriesBetween(ThreadState state) {
+    final int from = state.random.nextInt(KEYS - RANGE_SIZE);
+    final OSBTree.OSBTreeCursor<Integer, OIdentifiable> cursor = sbTree
+        .iterateEntriesBetween(from, true, from + RANGE_SIZE, false, true);
+
+    int count = 0;
+    Map.Entry<Integer, OIdentifiable> entry = cursor.next(RANGE_SIZE);
+    while (entry != null) {
+      count++;
+      entry = cursor.next(RANGE_SIZE);
+    }
+
+    return count;
+  }
+}
@@ -0,0 +1,106 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures latency of commit of transaction which updates documents with WAL compression switched on and off. Amount of WAL bytes
+ * written per commit is printed at the end of each iteration.
+ * <p>
+ * To run this benchmark run {@link org.openjdk.jmh.Main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WALCompressionBenchmark {
+  private static final int DOCUMENTS            = 10000;
+  private static final int DOCUMENTS_PER_COMMIT = 10;
+
+  @Param({ "nothing", "snappy", "gzip" })
+  private String compression;
+
+  private ODatabaseDocumentTx database;
+  private ORID[]              rids;
+  private Random              random;
+
+  private long commits;
+  private long walSize;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    OGlobalConfiguration.WAL_COMPRESSION_METHOD.setValue(compression);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    final File directory = new File(buildDirectory, "walCompressionBenchmark");
+    OFileUtils.deleteRecursively(directory);
+
+    database = new ODatabaseDocumentTx("plocal:" + directory.getAbsolutePath());
+    database.create();
+    database.getMetadata().getSchema().createClass("Benchmark");
+
+    random = new Random(42);
+    rids = new ORID[DOCUMENTS];
+    for (int i = 0; i < DOCUMENTS; i++) {
+      final ODocument document = new ODocument("Benchmark");
+      fill(document);
+      document.save();
+
+      rids[i] = document.getIdentity();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    database.drop();
+    OGlobalConfiguration.WAL_COMPRESSION_METHOD.setValue(OGlobalConfiguration.WAL_COMPRESSION_METHOD.getDefValue());
+  }
+
+  @Setup(Level.Iteration)
+  public void startIteration() {
+    commits = 0;
+    walSize = walSize();
+  }
+
+  @TearDown(Level.Iteration)
+  public void endIteration() {
+    if (commits > 0)
+      System.out.printf("%ncompression %s, %d bytes of WAL per commit%n", compression, (walSize() - walSize) / commits);
+  }
+
+  @Benchmark
+  public void commit() {
+    database.begin();
+
+    for (int i = 0; i < DOCUMENTS_PER_COMMIT; i++) {
+      final ODocument document = database.load(rids[random.nextInt(DOCUMENTS)]);
+      fill(document);
+      document.save();
+    }
+
+    database.commit();
+    commits++;
+  }
+
+  private void fill(ODocument document) {
+    document.field("name", "name" + random.nextInt(1000));
+    document.field("description", "description of the document which is updated by benchmark " + random.nextInt(100));
+    document.field("value", random.nextLong());
+  }
+
+  private long walSize() {
+    final OWriteAheadLog writeAheadLog = ((OAbstractPaginatedStorage) database.getStorage().getUnderlying()).getWALInstance();
+    return ((ODiskWriteAheadLog) writeAheadLog).size();
+  }
+}
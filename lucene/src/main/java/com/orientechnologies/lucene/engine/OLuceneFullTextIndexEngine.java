@@ -120,6 +120,18 @@ public class OLuceneFullTextIndexEngine extends OLuceneIndexEngineAbstract {
     return getInTx(key, null);
   }
 
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    final Map<Object, Object> result = new HashMap<Object, Object>();
+    for (Object key : keys) {
+      final Object value = get(key);
+      if (value != null)
+        result.put(key, value);
+    }
+
+    return result;
+  }
+
   @Override
   public void put(Object key, Object value) {
     updateLastAccess();
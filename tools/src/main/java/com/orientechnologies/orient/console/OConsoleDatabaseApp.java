@@ -1343,11 +1343,18 @@ public class OConsoleDatabaseApp extends OrientConsole implements OCommandOutput
       }
     } else {
       final OLocalPaginatedStorage storage = (OLocalPaginatedStorage) currentDatabase.getStorage();
-      final OPaginatedCluster cluster = (OPaginatedCluster) storage.getClusterById(id.getClusterId());
-      if (cluster == null) {
+      final OCluster storageCluster = storage.getClusterById(id.getClusterId());
+      if (storageCluster == null) {
         message("\n cluster with id %i does not exist", id.getClusterId());
         return;
       }
+      if (!(storageCluster instanceof OPaginatedCluster)) {
+        message("\n low level info is available only for paginated clusters, cluster '%s' is of type %s", storageCluster.getName(),
+            storageCluster.getClass().getSimpleName());
+        return;
+      }
+
+      final OPaginatedCluster cluster = (OPaginatedCluster) storageCluster;
 
       message("\n\nLOW LEVEL CLUSTER INFO");
       final OPaginatedCluster.RECORD_STATUS status = cluster.getRecordStatus(id.getClusterPosition());